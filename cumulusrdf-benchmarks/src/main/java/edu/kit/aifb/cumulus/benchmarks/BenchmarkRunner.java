@@ -0,0 +1,46 @@
+package edu.kit.aifb.cumulus.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the CumulusRDF benchmarks.
+ * Any JMH command line option can be used. Unless otherwise specified, all benchmarks of this module
+ * are executed and allocation rates are reported (i.e. the GC profiler, "-prof gc", is enabled).
+ * 
+ * @author agent
+ * @since 1.1.0
+ */
+public final class BenchmarkRunner {
+
+	/**
+	 * No instantiation allowed.
+	 */
+	private BenchmarkRunner() {
+		// Nothing
+	}
+
+	/**
+	 * Main method.
+	 * 
+	 * @param args the JMH command line options.
+	 * @throws Exception in case the benchmarks cannot be executed.
+	 */
+	public static void main(final String[] args) throws Exception {
+		final CommandLineOptions commandLine = new CommandLineOptions(args);
+		final ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+
+		if (commandLine.getIncludes().isEmpty()) {
+			options.include(BenchmarkRunner.class.getPackage().getName() + ".*Benchmark");
+		}
+
+		if (commandLine.getProfilers().isEmpty()) {
+			options.addProfiler(GCProfiler.class);
+		}
+
+		new Runner(options.build()).run();
+	}
+}
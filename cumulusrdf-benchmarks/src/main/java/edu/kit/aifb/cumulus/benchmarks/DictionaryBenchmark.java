@@ -0,0 +1,174 @@
+package edu.kit.aifb.cumulus.benchmarks;
+
+import static edu.kit.aifb.cumulus.benchmarks.Fixtures.SAMPLE_MASK;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.kit.aifb.cumulus.framework.domain.dictionary.ITopLevelDictionary;
+
+/**
+ * Benchmarks for the value dictionaries hot paths:
+ * 
+ * <ul>
+ * 	<li>{@code TransientValueDictionary}: identifiers are the N3 (UTF-8) representation of values;</li>
+ * 	<li>{@code ThreeTieredValueDictionary}: URIs are split in namespace and local name identifiers;</li>
+ * 	<li>{@code PersistentValueDictionary}: new identifiers are (murmur3) hashes of values.</li>
+ * </ul>
+ * 
+ * @author agent
+ * @since 1.1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DictionaryBenchmark {
+
+	private ITopLevelDictionary _transient;
+	private ITopLevelDictionary _threeTiered;
+	private ITopLevelDictionary _persistent;
+	private ITopLevelDictionary _assigner;
+
+	private Value[] _literalsAndBNodes;
+	private byte[][] _literalsAndBNodesIds;
+
+	private URI[] _uris;
+	private byte[][] _urisIds;
+
+	private Value[] _values;
+	private int _cursor;
+
+	/**
+	 * Builds the dictionaries and encodes the samples.
+	 * 
+	 * @throws Exception hopefully never.
+	 */
+	@Setup
+	public void setUp() throws Exception {
+		final StubDataAccessLayerFactory factory = new StubDataAccessLayerFactory(false);
+		_transient = Fixtures.transientDictionary(factory);
+		_threeTiered = Fixtures.threeTieredDictionary(factory);
+		_persistent = Fixtures.persistentDictionary(factory);
+		_assigner = Fixtures.persistentDictionary(new StubDataAccessLayerFactory(true));
+
+		_literalsAndBNodes = Fixtures.literalsAndBNodes(1);
+		_literalsAndBNodesIds = new byte[_literalsAndBNodes.length][];
+		for (int i = 0; i < _literalsAndBNodes.length; i++) {
+			_literalsAndBNodesIds[i] = _transient.getID(_literalsAndBNodes[i], false);
+		}
+
+		_uris = Fixtures.uris(2);
+		_urisIds = new byte[_uris.length][];
+		for (int i = 0; i < _uris.length; i++) {
+			_urisIds[i] = _threeTiered.getID(_uris[i], false);
+		}
+
+		_values = Fixtures.values(3);
+		for (final Value value : _values) {
+			_persistent.getID(value, false);
+		}
+	}
+
+	/**
+	 * Closes the dictionaries.
+	 */
+	@TearDown
+	public void tearDown() {
+		_transient.close();
+		_threeTiered.close();
+		_persistent.close();
+		_assigner.close();
+	}
+
+	/**
+	 * Encodes a literal or a blank node (N3 serialization and UTF-8 encoding).
+	 * 
+	 * @return the identifier.
+	 * @throws Exception hopefully never.
+	 */
+	@Benchmark
+	public byte[] transientGetId() throws Exception {
+		return _transient.getID(_literalsAndBNodes[next()], false);
+	}
+
+	/**
+	 * Decodes a literal or a blank node (UTF-8 decoding and N3 parsing).
+	 * 
+	 * @return the value.
+	 * @throws Exception hopefully never.
+	 */
+	@Benchmark
+	public Value transientGetValue() throws Exception {
+		return _transient.getValue(_literalsAndBNodesIds[next()], false);
+	}
+
+	/**
+	 * Encodes a URI as namespace and local name identifiers.
+	 * 
+	 * @return the identifier.
+	 * @throws Exception hopefully never.
+	 */
+	@Benchmark
+	public byte[] threeTieredGetId() throws Exception {
+		return _threeTiered.getID(_uris[next()], false);
+	}
+
+	/**
+	 * Decodes a URI from its namespace and local name identifiers.
+	 * 
+	 * @return the value.
+	 * @throws Exception hopefully never.
+	 */
+	@Benchmark
+	public Value threeTieredGetValue() throws Exception {
+		return _threeTiered.getValue(_urisIds[next()], false);
+	}
+
+	/**
+	 * Looks up the (hash) identifier of a value that is already in the dictionary.
+	 * 
+	 * @return the identifier.
+	 * @throws Exception hopefully never.
+	 */
+	@Benchmark
+	public byte[] persistentGetId() throws Exception {
+		return _persistent.getID(_values[next()], false);
+	}
+
+	/**
+	 * Assigns a new (hash) identifier to a value. 
+	 * The underlying maps discard writes, so each lookup misses and a new identifier is computed and reserved.
+	 * 
+	 * @return the identifier.
+	 * @throws Exception hopefully never.
+	 */
+	@Benchmark
+	public byte[] persistentNewId() throws Exception {
+		return _assigner.getID(_values[next()], false);
+	}
+
+	/**
+	 * Returns the next position in the samples.
+	 * 
+	 * @return the next position in the samples.
+	 */
+	private int next() {
+		return _cursor++ & SAMPLE_MASK;
+	}
+}
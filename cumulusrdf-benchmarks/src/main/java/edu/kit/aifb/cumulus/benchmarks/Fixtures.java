@@ -0,0 +1,180 @@
+package edu.kit.aifb.cumulus.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openrdf.model.BNode;
+import org.openrdf.model.Literal;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.model.vocabulary.XMLSchema;
+
+import edu.kit.aifb.cumulus.framework.InitialisationException;
+import edu.kit.aifb.cumulus.framework.domain.dictionary.ITopLevelDictionary;
+import edu.kit.aifb.cumulus.store.dict.impl.string.PersistentStringDictionary;
+import edu.kit.aifb.cumulus.store.dict.impl.string.TransientStringDictionary;
+import edu.kit.aifb.cumulus.store.dict.impl.value.PersistentValueDictionary;
+import edu.kit.aifb.cumulus.store.dict.impl.value.ThreeTieredValueDictionary;
+import edu.kit.aifb.cumulus.store.dict.impl.value.TransientValueDictionary;
+
+/**
+ * Shared (deterministic) data and dictionaries for benchmarks.
+ * Dictionaries are not decorated with caches, so that benchmarks measure the encoding and decoding work.
+ * 
+ * @author agent
+ * @since 1.1.0
+ */
+public final class Fixtures {
+
+	/** The number of values in each sample: a power of two, so that cursors can be wrapped with a mask. */
+	public static final int SAMPLE_SIZE = 4096;
+	public static final int SAMPLE_MASK = SAMPLE_SIZE - 1;
+
+	static final ValueFactory VALUE_FACTORY = ValueFactoryImpl.getInstance();
+
+	private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+	static final String[] NAMESPACES = {
+		"http://example.org/resource/",
+		"http://dbpedia.org/resource/",
+		"http://xmlns.com/foaf/0.1/",
+		"http://www.w3.org/1999/02/22-rdf-syntax-ns#",
+		"http://www.lehigh.edu/~zhp2/2004/0401/univ-bench.owl#",
+		"http://www4.wiwiss.fu-berlin.de/bizer/bsbm/v01/instances/"
+	};
+
+	/**
+	 * No instantiation allowed.
+	 */
+	private Fixtures() {
+		// Nothing
+	}
+
+	/**
+	 * Returns a unique dictionary identifier (dictionaries are registered as managed beans under their identifiers).
+	 * 
+	 * @param name the dictionary name.
+	 * @return a unique dictionary identifier.
+	 */
+	static String id(final String name) {
+		return name + "#" + INSTANCES.incrementAndGet();
+	}
+
+	/**
+	 * Returns a sample of URIs, spread over a few namespaces.
+	 * 
+	 * @param seed the random seed.
+	 * @return a sample of URIs.
+	 */
+	public static URI[] uris(final long seed) {
+		final Random random = new Random(seed);
+		final URI[] uris = new URI[SAMPLE_SIZE];
+		for (int i = 0; i < uris.length; i++) {
+			uris[i] = VALUE_FACTORY.createURI(NAMESPACES[random.nextInt(NAMESPACES.length)], "Resource" + random.nextInt(Integer.MAX_VALUE));
+		}
+		return uris;
+	}
+
+	/**
+	 * Returns a sample of literals (plain, language tagged and typed) and blank nodes.
+	 * 
+	 * @param seed the random seed.
+	 * @return a sample of literals and blank nodes.
+	 */
+	public static Value[] literalsAndBNodes(final long seed) {
+		final Random random = new Random(seed);
+		final Value[] values = new Value[SAMPLE_SIZE];
+		for (int i = 0; i < values.length; i++) {
+			switch (i % 4) {
+			case 0:
+				values[i] = VALUE_FACTORY.createLiteral("A plain literal, number " + random.nextInt());
+				break;
+			case 1:
+				values[i] = VALUE_FACTORY.createLiteral("Ein Literal mit Sprache " + random.nextInt(), "de");
+				break;
+			case 2:
+				values[i] = VALUE_FACTORY.createLiteral(String.valueOf(random.nextInt()), XMLSchema.INT);
+				break;
+			default:
+				values[i] = VALUE_FACTORY.createBNode("node" + random.nextInt(Integer.MAX_VALUE));
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Returns a sample of URIs, literals and blank nodes.
+	 * 
+	 * @param seed the random seed.
+	 * @return a sample of URIs, literals and blank nodes.
+	 */
+	public static Value[] values(final long seed) {
+		final URI[] uris = uris(seed);
+		final Value[] values = literalsAndBNodes(seed);
+		for (int i = 0; i < values.length; i += 2) {
+			values[i] = uris[i];
+		}
+		return values;
+	}
+
+	/**
+	 * Returns true if the given value is a literal or a blank node.
+	 * 
+	 * @param value the value.
+	 * @return true if the given value is a literal or a blank node.
+	 */
+	static boolean isLiteralOrBNode(final Value value) {
+		return value instanceof Literal || value instanceof BNode;
+	}
+
+	/**
+	 * Builds and initialises a transient value dictionary (which encodes values in their identifiers).
+	 * 
+	 * @param factory the data access layer factory.
+	 * @return a new transient value dictionary.
+	 * @throws InitialisationException in case of initialisation failure.
+	 */
+	public static ITopLevelDictionary transientDictionary(final StubDataAccessLayerFactory factory) throws InitialisationException {
+		final ITopLevelDictionary dictionary = new TransientValueDictionary(
+				id("TransientDictionary"),
+				new PersistentValueDictionary(id("LongLiteralsDictionary")),
+				-1);
+		dictionary.initialise(factory);
+		return dictionary;
+	}
+
+	/**
+	 * Builds and initialises a persistent (hash identifiers) value dictionary.
+	 * 
+	 * @param factory the data access layer factory.
+	 * @return a new persistent value dictionary.
+	 * @throws InitialisationException in case of initialisation failure.
+	 */
+	public static ITopLevelDictionary persistentDictionary(final StubDataAccessLayerFactory factory) throws InitialisationException {
+		final ITopLevelDictionary dictionary = new PersistentValueDictionary(id("PersistentDictionary"));
+		dictionary.initialise(factory);
+		return dictionary;
+	}
+
+	/**
+	 * Builds and initialises the same dictionary chain of the default dictionary, without caches and known URIs.
+	 * 
+	 * @param factory the data access layer factory.
+	 * @return a new three tiered value dictionary.
+	 * @throws InitialisationException in case of initialisation failure.
+	 */
+	public static ITopLevelDictionary threeTieredDictionary(final StubDataAccessLayerFactory factory) throws InitialisationException {
+		final ITopLevelDictionary dictionary = new ThreeTieredValueDictionary(
+				id("ThreeTieredDictionary"),
+				new PersistentStringDictionary(id("NamespacesDictionary"), "DICT_NAMESPACES"),
+				new TransientStringDictionary(id("LocalNamesDictionary")),
+				new TransientValueDictionary(
+						id("LiteralsAndBNodesDictionary"),
+						new PersistentValueDictionary(id("LongLiteralsDictionary")),
+						-1));
+		dictionary.initialise(factory);
+		return dictionary;
+	}
+}
@@ -0,0 +1,150 @@
+package edu.kit.aifb.cumulus.benchmarks;
+
+import static edu.kit.aifb.cumulus.benchmarks.Fixtures.SAMPLE_MASK;
+import static edu.kit.aifb.cumulus.benchmarks.Fixtures.SAMPLE_SIZE;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.kit.aifb.cumulus.datasource.serializer.Serializer;
+
+/**
+ * Benchmarks for the (CQL storage) {@link Serializer} classes.
+ * 
+ * @author agent
+ * @since 1.1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializerBenchmark {
+
+	private String[] _strings;
+	private ByteBuffer[] _serializedStrings;
+	private Long[] _longs;
+	private ByteBuffer[] _serializedLongs;
+	private byte[][] _arrays;
+	private ByteBuffer[] _serializedArrays;
+	private int _cursor;
+
+	/**
+	 * Builds the samples.
+	 */
+	@Setup
+	public void setUp() {
+		final Random random = new Random(1);
+		_strings = new String[SAMPLE_SIZE];
+		_serializedStrings = new ByteBuffer[SAMPLE_SIZE];
+		_longs = new Long[SAMPLE_SIZE];
+		_serializedLongs = new ByteBuffer[SAMPLE_SIZE];
+		_arrays = new byte[SAMPLE_SIZE][];
+		_serializedArrays = new ByteBuffer[SAMPLE_SIZE];
+
+		for (int i = 0; i < SAMPLE_SIZE; i++) {
+			_strings[i] = "<" + Fixtures.NAMESPACES[i % Fixtures.NAMESPACES.length] + "Resource" + random.nextInt(Integer.MAX_VALUE) + ">";
+			_serializedStrings[i] = Serializer.STRING_SERIALIZER.serialize(_strings[i]);
+
+			_longs[i] = random.nextLong();
+			_serializedLongs[i] = Serializer.LONG_SERIALIZER.serialize(_longs[i]);
+
+			_arrays[i] = new byte[8 + random.nextInt(32)];
+			random.nextBytes(_arrays[i]);
+			_serializedArrays[i] = Serializer.BYTE_ARRAY_SERIALIZER.serialize(_arrays[i]);
+		}
+	}
+
+	/**
+	 * Serializes a string.
+	 * 
+	 * @return the serialized string.
+	 */
+	@Benchmark
+	public ByteBuffer serializeString() {
+		return Serializer.STRING_SERIALIZER.serialize(_strings[next()]);
+	}
+
+	/**
+	 * Deserializes a string.
+	 * 
+	 * @return the string.
+	 */
+	@Benchmark
+	public String deserializeString() {
+		return Serializer.STRING_SERIALIZER.deserialize(_serializedStrings[next()].duplicate());
+	}
+
+	/**
+	 * Serializes a long.
+	 * 
+	 * @return the serialized long.
+	 */
+	@Benchmark
+	public ByteBuffer serializeLong() {
+		return Serializer.LONG_SERIALIZER.serialize(_longs[next()]);
+	}
+
+	/**
+	 * Deserializes a long.
+	 * 
+	 * @return the long.
+	 */
+	@Benchmark
+	public Long deserializeLong() {
+		return Serializer.LONG_SERIALIZER.deserialize(_serializedLongs[next()].duplicate());
+	}
+
+	/**
+	 * Serializes a byte array.
+	 * 
+	 * @return the serialized byte array.
+	 */
+	@Benchmark
+	public ByteBuffer serializeByteArray() {
+		return Serializer.BYTE_ARRAY_SERIALIZER.serialize(_arrays[next()]);
+	}
+
+	/**
+	 * Deserializes a byte array.
+	 * 
+	 * @return the byte array.
+	 */
+	@Benchmark
+	public byte[] deserializeByteArray() {
+		return Serializer.BYTE_ARRAY_SERIALIZER.deserialize(_serializedArrays[next()].duplicate());
+	}
+
+	/**
+	 * Compares two strings.
+	 * 
+	 * @return the comparison result.
+	 */
+	@Benchmark
+	public boolean isEqualString() {
+		final int index = next();
+		return Serializer.STRING_SERIALIZER.isEqual(_strings[index], _strings[(index + 1) & SAMPLE_MASK]);
+	}
+
+	/**
+	 * Returns the next position in the samples.
+	 * 
+	 * @return the next position in the samples.
+	 */
+	private int next() {
+		return _cursor++ & SAMPLE_MASK;
+	}
+}
@@ -0,0 +1,32 @@
+package edu.kit.aifb.cumulus.benchmarks;
+
+import edu.kit.aifb.cumulus.framework.datasource.CounterDAO;
+
+/**
+ * An in-process {@link CounterDAO}.
+ * 
+ * @author agent
+ * @since 1.1.0
+ * 
+ * @param <K> the key kind.
+ */
+public class StubCounterDAO<K> extends StubMapDAO<K, Long> implements CounterDAO<K> {
+
+	/**
+	 * Builds a new stub counter data access object.
+	 */
+	public StubCounterDAO() {
+		super(false, false);
+	}
+
+	@Override
+	public synchronized void decrement(final K key, final Long delta) {
+		increment(key, -delta);
+	}
+
+	@Override
+	public synchronized void increment(final K key, final Long delta) {
+		final Long value = _map.get(wrap(key));
+		set(key, (value != null ? value : 0L) + delta);
+	}
+}
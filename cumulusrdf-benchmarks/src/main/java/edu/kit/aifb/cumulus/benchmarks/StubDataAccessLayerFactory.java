@@ -0,0 +1,68 @@
+package edu.kit.aifb.cumulus.benchmarks;
+
+import java.util.Map;
+
+import edu.kit.aifb.cumulus.framework.datasource.CounterDAO;
+import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerFactory;
+import edu.kit.aifb.cumulus.framework.datasource.MapDAO;
+import edu.kit.aifb.cumulus.framework.datasource.QuadIndexDAO;
+import edu.kit.aifb.cumulus.framework.datasource.StorageLayout;
+import edu.kit.aifb.cumulus.framework.datasource.TripleIndexDAO;
+import edu.kit.aifb.cumulus.framework.domain.configuration.Configuration;
+import edu.kit.aifb.cumulus.framework.domain.dictionary.ITopLevelDictionary;
+
+/**
+ * A data access layer factory that provides in-process maps and counters, so that benchmarks measure CumulusRDF 
+ * code and not the storage. Indexes are not supported.
+ * 
+ * @author agent
+ * @since 1.1.0
+ */
+public class StubDataAccessLayerFactory extends DataAccessLayerFactory {
+
+	private final boolean _discardWrites;
+
+	/**
+	 * Builds a new stub factory.
+	 * 
+	 * @param discardWrites true if map writes must be ignored.
+	 */
+	public StubDataAccessLayerFactory(final boolean discardWrites) {
+		super(StorageLayout.TRIPLE);
+		_discardWrites = discardWrites;
+	}
+
+	@Override
+	public void accept(final Configuration<Map<String, Object>> configuration) {
+		// Nothing to be configured here
+	}
+
+	@Override
+	public <K, V> MapDAO<K, V> getMapDAO(
+			final Class<K> keyClass,
+			final Class<V> valueClass,
+			final boolean isBidirectional,
+			final String mapName) {
+		return new StubMapDAO<K, V>(isBidirectional, _discardWrites);
+	}
+
+	@Override
+	public <K> CounterDAO<K> getCounterDAO(final Class<K> keyClass, final String counterName) {
+		return new StubCounterDAO<K>();
+	}
+
+	@Override
+	public TripleIndexDAO getTripleIndexDAO(final ITopLevelDictionary dictionary) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public QuadIndexDAO getQuadIndexDAO(final ITopLevelDictionary dictionary) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public String getUnderlyingStorageInfo() {
+		return "In-process stub";
+	}
+}
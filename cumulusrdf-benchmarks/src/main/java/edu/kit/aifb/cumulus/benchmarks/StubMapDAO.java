@@ -0,0 +1,168 @@
+package edu.kit.aifb.cumulus.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerException;
+import edu.kit.aifb.cumulus.framework.datasource.MapDAO;
+
+/**
+ * An in-process {@link MapDAO}, backed by a {@link ConcurrentHashMap}.
+ * Writes can be discarded: that way a benchmark can assign new identifiers forever, without growing the heap.
+ * 
+ * @author agent
+ * @since 1.1.0
+ * 
+ * @param <K> the key kind.
+ * @param <V> the value kind.
+ */
+public class StubMapDAO<K, V> implements MapDAO<K, V> {
+
+	protected final ConcurrentMap<Object, V> _map = new ConcurrentHashMap<Object, V>();
+	private final ConcurrentMap<Object, K> _reverseMap;
+	private final boolean _discardWrites;
+	private V _defaultValue;
+
+	/**
+	 * Builds a new stub data access object.
+	 * 
+	 * @param isBidirectional true if the map supports value to key lookups.
+	 * @param discardWrites true if writes must be ignored.
+	 */
+	public StubMapDAO(final boolean isBidirectional, final boolean discardWrites) {
+		_reverseMap = isBidirectional ? new ConcurrentHashMap<Object, K>() : null;
+		_discardWrites = discardWrites;
+	}
+
+	@Override
+	public boolean contains(final K key) {
+		return key != null && _map.containsKey(wrap(key));
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public void delete(final K... keys) {
+		for (final K key : keys) {
+			final V value = _map.remove(wrap(key));
+			if (value != null && _reverseMap != null) {
+				_reverseMap.remove(wrap(value));
+			}
+		}
+	}
+
+	@Override
+	public V get(final K key) {
+		final V value = _map.get(wrap(key));
+		return value != null ? value : _defaultValue;
+	}
+
+	@Override
+	public List<V> getAll(final List<K> keys) {
+		final List<V> values = new ArrayList<V>(keys.size());
+		for (final K key : keys) {
+			values.add(get(key));
+		}
+		return values;
+	}
+
+	@Override
+	public ListenableFuture<List<V>> getAllAsync(final List<K> keys) {
+		return Futures.immediateFuture(getAll(keys));
+	}
+
+	@Override
+	public K getKey(final V value) throws DataAccessLayerException {
+		if (_reverseMap != null) {
+			return _reverseMap.get(wrap(value));
+		}
+
+		for (final Entry<Object, V> entry : _map.entrySet()) {
+			if (wrap(entry.getValue()).equals(wrap(value))) {
+				return unwrap(entry.getKey());
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public Iterator<K> keyIterator() {
+		return keySet().iterator();
+	}
+
+	@Override
+	public Set<K> keySet() {
+		final Set<K> keys = new LinkedHashSet<K>();
+		for (final Object key : _map.keySet()) {
+			keys.add(unwrap(key));
+		}
+		return keys;
+	}
+
+	@Override
+	public void set(final K key, final V value) {
+		if (_discardWrites) {
+			return;
+		}
+
+		_map.put(wrap(key), value);
+		if (_reverseMap != null) {
+			_reverseMap.put(wrap(value), key);
+		}
+	}
+
+	@Override
+	public void setAll(final Map<K, V> pairs) {
+		for (final Entry<K, V> pair : pairs.entrySet()) {
+			set(pair.getKey(), pair.getValue());
+		}
+	}
+
+	@Override
+	public ListenableFuture<Void> setAllAsync(final Map<K, V> pairs) {
+		setAll(pairs);
+		return Futures.immediateFuture(null);
+	}
+
+	@Override
+	public void setDefaultValue(final V defaultValue) {
+		_defaultValue = defaultValue;
+	}
+
+	@Override
+	public void createRequiredSchemaEntities() {
+		// Nothing to be done here...
+	}
+
+	/**
+	 * Wraps byte arrays in a {@link ByteBuffer}, which has value semantics.
+	 * 
+	 * @param object the key or the value.
+	 * @return the object that will be used as map key.
+	 */
+	static Object wrap(final Object object) {
+		return object instanceof byte[] ? ByteBuffer.wrap((byte[]) object) : object;
+	}
+
+	/**
+	 * Reverts {@link #wrap(Object)}.
+	 * 
+	 * @param object the map key.
+	 * @return the original key.
+	 * @param <T> the key kind.
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> T unwrap(final Object object) {
+		return (T) (object instanceof ByteBuffer ? ((ByteBuffer) object).array() : object);
+	}
+}
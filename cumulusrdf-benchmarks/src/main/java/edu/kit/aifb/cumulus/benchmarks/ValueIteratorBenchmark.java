@@ -0,0 +1,122 @@
+package edu.kit.aifb.cumulus.benchmarks;
+
+import static edu.kit.aifb.cumulus.benchmarks.Fixtures.SAMPLE_SIZE;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openrdf.model.Resource;
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import edu.kit.aifb.cumulus.framework.domain.dictionary.ITopLevelDictionary;
+import edu.kit.aifb.cumulus.store.sesame.CumulusRDFValueFactory;
+
+/**
+ * Benchmarks for the conversion of identifier triples (as they come out of an index) into statements.
+ * Scores are per triple.
+ * 
+ * @author agent
+ * @since 1.1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValueIteratorBenchmark {
+
+	private ITopLevelDictionary _dictionary;
+	private CumulusRDFValueFactory _valueFactory;
+	private List<byte[][]> _triples;
+
+	/**
+	 * Builds the dictionary and encodes the sample triples.
+	 * 
+	 * @throws Exception hopefully never.
+	 */
+	@Setup
+	public void setUp() throws Exception {
+		_dictionary = Fixtures.threeTieredDictionary(new StubDataAccessLayerFactory(false));
+		_valueFactory = new CumulusRDFValueFactory(_dictionary);
+
+		final URI[] subjects = Fixtures.uris(1);
+		final URI[] predicates = Fixtures.uris(2);
+		final Value[] objects = Fixtures.values(3);
+
+		_triples = new ArrayList<byte[][]>(SAMPLE_SIZE);
+		for (int i = 0; i < SAMPLE_SIZE; i++) {
+			_triples.add(_dictionary.getIDs(subjects[i], predicates[i % 64], objects[i]));
+		}
+	}
+
+	/**
+	 * Closes the dictionary.
+	 */
+	@TearDown
+	public void tearDown() {
+		_dictionary.close();
+	}
+
+	/**
+	 * Decodes triples with {@code ValueDictionaryBase#toValueTripleIterator}.
+	 * 
+	 * @param blackhole the sink for decoded statements.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(SAMPLE_SIZE)
+	public void toValueTripleIterator(final Blackhole blackhole) {
+		final Iterator<Statement> iterator = _dictionary.toValueTripleIterator(_triples.iterator());
+		while (iterator.hasNext()) {
+			blackhole.consume(iterator.next());
+		}
+	}
+
+	/**
+	 * Creates (lazy) statements with {@link CumulusRDFValueFactory#createStatement(byte[][])}.
+	 * 
+	 * @param blackhole the sink for created statements.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(SAMPLE_SIZE)
+	public void createStatement(final Blackhole blackhole) {
+		for (final byte[][] triple : _triples) {
+			blackhole.consume(_valueFactory.createStatement(triple));
+		}
+	}
+
+	/**
+	 * Creates statements with {@link CumulusRDFValueFactory#createStatement(byte[][])}, then reads their values, 
+	 * which forces the decoding of each (lazy) value.
+	 * 
+	 * @param blackhole the sink for the values.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(SAMPLE_SIZE)
+	public void createStatementAndRead(final Blackhole blackhole) {
+		for (final byte[][] triple : _triples) {
+			final Statement statement = _valueFactory.createStatement(triple);
+			final Resource subject = statement.getSubject();
+			blackhole.consume(subject.stringValue());
+			blackhole.consume(statement.getPredicate().stringValue());
+			blackhole.consume(statement.getObject().stringValue());
+		}
+	}
+}
@@ -0,0 +1,7 @@
+/**
+ * JMH microbenchmarks for the CumulusRDF hot paths.
+ * 
+ * @author agent
+ * @since 1.1.0
+ */
+package edu.kit.aifb.cumulus.benchmarks;
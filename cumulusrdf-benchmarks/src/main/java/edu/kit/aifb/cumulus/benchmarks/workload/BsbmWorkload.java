@@ -0,0 +1,338 @@
+package edu.kit.aifb.cumulus.benchmarks.workload;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A BSBM-like (e-commerce) workload: products, with types, features and producers, offered by vendors and reviewed by persons.
+ * The scale factor is the number of products, in hundreds.
+ * The query mix is an adaptation of the BSBM "explore" use case.
+ * 
+ * @author agent
+ * @since 1.1.0
+ */
+public class BsbmWorkload extends Workload {
+
+	static final String BSBM = "http://www4.wiwiss.fu-berlin.de/bizer/bsbm/v01/vocabulary/";
+	static final String INSTANCES = "http://www4.wiwiss.fu-berlin.de/bizer/bsbm/v01/instances/";
+	static final String RDF_TYPE = "http://www.w3.org/1999/02/22-rdf-syntax-ns#type";
+	static final String RDFS_LABEL = "http://www.w3.org/2000/01/rdf-schema#label";
+	static final String RDFS_COMMENT = "http://www.w3.org/2000/01/rdf-schema#comment";
+	static final String DC_DATE = "http://purl.org/dc/elements/1.1/date";
+	static final String REV = "http://purl.org/stuff/rev#";
+	static final String FOAF_NAME = "http://xmlns.com/foaf/0.1/name";
+	static final String XSD = "http://www.w3.org/2001/XMLSchema#";
+
+	static final String PREFIXES = "PREFIX rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#> "
+			+ "PREFIX rdfs: <http://www.w3.org/2000/01/rdf-schema#> "
+			+ "PREFIX xsd: <" + XSD + "> "
+			+ "PREFIX dc: <http://purl.org/dc/elements/1.1/> "
+			+ "PREFIX rev: <" + REV + "> "
+			+ "PREFIX foaf: <http://xmlns.com/foaf/0.1/> "
+			+ "PREFIX bsbm: <" + BSBM + "> ";
+
+	static final int PRODUCTS_PER_SCALE = 100;
+	static final int PRODUCTS_PER_PRODUCER = 20;
+	static final int PRODUCTS_PER_VENDOR = 50;
+	static final int PRODUCT_TYPES = 20;
+	static final int FEATURES_PER_TYPE = 15;
+	static final int OFFERS_PER_PRODUCT = 10;
+	static final int REVIEWS_PER_PRODUCT = 5;
+	static final int REVIEWS_PER_PERSON = 10;
+	static final int MAX_NUMERIC_PROPERTY = 2000;
+
+	static final String[] COUNTRIES = {"US", "GB", "DE", "FR", "IT", "JP", "CN", "RU", "ES", "AT"};
+	static final String[] WORDS = {
+		"alpha", "bravo", "charlie", "delta", "echo", "foxtrot", "golf", "hotel", "india", "juliet",
+		"kilo", "lima", "mike", "november", "oscar", "papa", "quebec", "romeo", "sierra", "tango"
+	};
+
+	/**
+	 * Builds a new BSBM-like workload.
+	 * 
+	 * @param scale the number of products, in hundreds.
+	 */
+	public BsbmWorkload(final int scale) {
+		super(scale);
+	}
+
+	@Override
+	public String getName() {
+		return "bsbm";
+	}
+
+	@Override
+	public long generate(final Writer out, final Random random) throws IOException {
+		long triples = 0;
+
+		for (int t = 0; t < PRODUCT_TYPES; t++) {
+			resource(out, productType(t), RDF_TYPE, BSBM + "ProductType");
+			literal(out, productType(t), RDFS_LABEL, "Product type " + words(random, 2));
+			triples += 2;
+
+			for (int f = 0; f < FEATURES_PER_TYPE; f++) {
+				resource(out, feature(t, f), RDF_TYPE, BSBM + "ProductFeature");
+				literal(out, feature(t, f), RDFS_LABEL, "Feature " + words(random, 2));
+				triples += 2;
+			}
+		}
+
+		final int products = products();
+		for (int p = 0; p < products / PRODUCTS_PER_PRODUCER; p++) {
+			final String producer = INSTANCES + "Producer" + p;
+			resource(out, producer, RDF_TYPE, BSBM + "Producer");
+			literal(out, producer, RDFS_LABEL, "Producer " + words(random, 2));
+			literal(out, producer, BSBM + "country", COUNTRIES[random.nextInt(COUNTRIES.length)]);
+			triples += 3;
+		}
+
+		for (int v = 0; v < Math.max(1, products / PRODUCTS_PER_VENDOR); v++) {
+			final String vendor = INSTANCES + "Vendor" + v;
+			resource(out, vendor, RDF_TYPE, BSBM + "Vendor");
+			literal(out, vendor, RDFS_LABEL, "Vendor " + words(random, 2));
+			literal(out, vendor, BSBM + "country", COUNTRIES[random.nextInt(COUNTRIES.length)]);
+			triples += 3;
+		}
+
+		for (int p = 0; p < products * REVIEWS_PER_PRODUCT / REVIEWS_PER_PERSON; p++) {
+			final String person = INSTANCES + "Reviewer" + p;
+			resource(out, person, RDF_TYPE, "http://xmlns.com/foaf/0.1/Person");
+			literal(out, person, FOAF_NAME, "Reviewer " + words(random, 1));
+			literal(out, person, BSBM + "country", COUNTRIES[random.nextInt(COUNTRIES.length)]);
+			triples += 3;
+		}
+
+		for (int p = 0; p < products; p++) {
+			triples += product(out, random, p);
+		}
+		return triples;
+	}
+
+	/**
+	 * Writes a product, with its offers and reviews.
+	 * 
+	 * @param out the output writer.
+	 * @param random the random generator.
+	 * @param p the product index.
+	 * @return the number of triples that have been written.
+	 * @throws IOException in case of I/O failure.
+	 */
+	long product(final Writer out, final Random random, final int p) throws IOException {
+		long triples = 0;
+		final String product = product(p);
+		final int type = p % PRODUCT_TYPES;
+
+		resource(out, product, RDF_TYPE, BSBM + "Product");
+		resource(out, product, RDF_TYPE, productType(type));
+		literal(out, product, RDFS_LABEL, words(random, 3));
+		literal(out, product, RDFS_COMMENT, words(random, 12));
+		resource(out, product, BSBM + "producer", INSTANCES + "Producer" + (p / PRODUCTS_PER_PRODUCER));
+		for (int i = 1; i <= 3; i++) {
+			literal(out, product, BSBM + "productPropertyNumeric" + i, String.valueOf(1 + random.nextInt(MAX_NUMERIC_PROPERTY)), XSD + "integer");
+		}
+		for (int i = 1; i <= 2; i++) {
+			literal(out, product, BSBM + "productPropertyTextual" + i, words(random, 4));
+		}
+		triples += 10;
+
+		final int features = 3 + random.nextInt(6);
+		final int firstFeature = random.nextInt(FEATURES_PER_TYPE);
+		for (int f = 0; f < features; f++) {
+			resource(out, product, BSBM + "productFeature", feature(type, (firstFeature + f) % FEATURES_PER_TYPE));
+			triples++;
+		}
+
+		for (int o = 0; o < OFFERS_PER_PRODUCT; o++) {
+			final String offer = product + "/Offer" + o;
+			resource(out, offer, RDF_TYPE, BSBM + "Offer");
+			resource(out, offer, BSBM + "product", product);
+			resource(out, offer, BSBM + "vendor", INSTANCES + "Vendor" + random.nextInt(Math.max(1, products() / PRODUCTS_PER_VENDOR)));
+			literal(out, offer, BSBM + "price", (10 + random.nextInt(10000)) + "." + random.nextInt(100), XSD + "double");
+			literal(out, offer, BSBM + "deliveryDays", String.valueOf(1 + random.nextInt(21)), XSD + "integer");
+			literal(out, offer, BSBM + "validTo", date(random), XSD + "date");
+			triples += 6;
+		}
+
+		for (int r = 0; r < REVIEWS_PER_PRODUCT; r++) {
+			final String review = product + "/Review" + r;
+			resource(out, review, RDF_TYPE, REV + "Review");
+			resource(out, review, BSBM + "reviewFor", product);
+			resource(out, review, REV + "reviewer", INSTANCES + "Reviewer" + random.nextInt(Math.max(1, products() * REVIEWS_PER_PRODUCT / REVIEWS_PER_PERSON)));
+			literal(out, review, DC_DATE, date(random), XSD + "date");
+			literal(out, review, "http://purl.org/stuff/rev#title", words(random, 5));
+			literal(out, review, REV + "text", words(random, 30));
+			literal(out, review, BSBM + "rating1", String.valueOf(1 + random.nextInt(10)), XSD + "integer");
+			literal(out, review, BSBM + "rating2", String.valueOf(1 + random.nextInt(10)), XSD + "integer");
+			triples += 8;
+		}
+		return triples;
+	}
+
+	@Override
+	public List<QueryTemplate> getQueryMix() {
+		return Arrays.<QueryTemplate>asList(
+			new QueryTemplate("Q1") {
+				@Override
+				public String instantiate(final Random random) {
+					final int type = random.nextInt(PRODUCT_TYPES);
+					return PREFIXES
+							+ "SELECT DISTINCT ?product ?label WHERE { ?product rdfs:label ?label . ?product rdf:type <" + productType(type) + "> . "
+							+ "?product bsbm:productFeature <" + feature(type, random.nextInt(FEATURES_PER_TYPE)) + "> . "
+							+ "?product bsbm:productPropertyNumeric1 ?value1 . FILTER (?value1 > " + random.nextInt(MAX_NUMERIC_PROPERTY / 2) + ") } "
+							+ "ORDER BY ?label LIMIT 10";
+				}
+			},
+			new QueryTemplate("Q2") {
+				@Override
+				public String instantiate(final Random random) {
+					final String product = "<" + product(random.nextInt(products())) + ">";
+					return PREFIXES
+							+ "SELECT ?label ?comment ?producer ?feature ?propertyTextual1 ?propertyNumeric1 WHERE { "
+							+ product + " rdfs:label ?label . " + product + " rdfs:comment ?comment . "
+							+ product + " bsbm:producer ?p . ?p rdfs:label ?producer . "
+							+ product + " bsbm:productFeature ?f . ?f rdfs:label ?feature . "
+							+ product + " bsbm:productPropertyTextual1 ?propertyTextual1 . "
+							+ product + " bsbm:productPropertyNumeric1 ?propertyNumeric1 }";
+				}
+			},
+			new QueryTemplate("Q3") {
+				@Override
+				public String instantiate(final Random random) {
+					final int type = random.nextInt(PRODUCT_TYPES);
+					return PREFIXES
+							+ "SELECT ?product ?label WHERE { ?product rdfs:label ?label . ?product rdf:type <" + productType(type) + "> . "
+							+ "?product bsbm:productPropertyNumeric1 ?p1 . FILTER (?p1 > " + random.nextInt(MAX_NUMERIC_PROPERTY / 2) + ") "
+							+ "?product bsbm:productPropertyNumeric3 ?p3 . FILTER (?p3 < " + (MAX_NUMERIC_PROPERTY / 2 + random.nextInt(MAX_NUMERIC_PROPERTY / 2)) + ") } "
+							+ "ORDER BY ?label LIMIT 10";
+				}
+			},
+			new QueryTemplate("Q4") {
+				@Override
+				public String instantiate(final Random random) {
+					final int type = random.nextInt(PRODUCT_TYPES);
+					return PREFIXES
+							+ "SELECT DISTINCT ?product ?label WHERE { "
+							+ "{ ?product rdfs:label ?label . ?product rdf:type <" + productType(type) + "> . "
+							+ "?product bsbm:productFeature <" + feature(type, random.nextInt(FEATURES_PER_TYPE)) + "> } UNION "
+							+ "{ ?product rdfs:label ?label . ?product rdf:type <" + productType(type) + "> . "
+							+ "?product bsbm:productFeature <" + feature(type, random.nextInt(FEATURES_PER_TYPE)) + "> } } "
+							+ "ORDER BY ?label LIMIT 10";
+				}
+			},
+			new QueryTemplate("Q5") {
+				@Override
+				public String instantiate(final Random random) {
+					final String product = "<" + product(random.nextInt(products())) + ">";
+					return PREFIXES
+							+ "SELECT DISTINCT ?product ?label WHERE { ?product rdfs:label ?label . FILTER (" + product + " != ?product) "
+							+ product + " bsbm:productFeature ?feature . ?product bsbm:productFeature ?feature . "
+							+ product + " bsbm:productPropertyNumeric1 ?origin1 . ?product bsbm:productPropertyNumeric1 ?simple1 . "
+							+ "FILTER (?simple1 < (?origin1 + 120) && ?simple1 > (?origin1 - 120)) } "
+							+ "ORDER BY ?label LIMIT 5";
+				}
+			},
+			new QueryTemplate("Q7") {
+				@Override
+				public String instantiate(final Random random) {
+					final String product = "<" + product(random.nextInt(products())) + ">";
+					return PREFIXES
+							+ "SELECT ?productLabel ?offer ?price ?vendor ?vendorTitle ?review ?reviewTitle WHERE { "
+							+ product + " rdfs:label ?productLabel . "
+							+ "OPTIONAL { ?offer bsbm:product " + product + " . ?offer bsbm:price ?price . "
+							+ "?offer bsbm:vendor ?vendor . ?vendor rdfs:label ?vendorTitle . ?vendor bsbm:country \"DE\" } "
+							+ "OPTIONAL { ?review bsbm:reviewFor " + product + " . ?review rev:title ?reviewTitle } }";
+				}
+			},
+			new QueryTemplate("Q8") {
+				@Override
+				public String instantiate(final Random random) {
+					return PREFIXES
+							+ "SELECT ?title ?text ?reviewDate ?reviewer ?reviewerName ?rating1 WHERE { "
+							+ "?review bsbm:reviewFor <" + product(random.nextInt(products())) + "> . ?review rev:title ?title . "
+							+ "?review rev:text ?text . ?review dc:date ?reviewDate . ?review rev:reviewer ?reviewer . "
+							+ "?reviewer foaf:name ?reviewerName . OPTIONAL { ?review bsbm:rating1 ?rating1 } } "
+							+ "ORDER BY DESC(?reviewDate) LIMIT 20";
+				}
+			},
+			new QueryTemplate("Q10") {
+				@Override
+				public String instantiate(final Random random) {
+					return PREFIXES
+							+ "SELECT DISTINCT ?offer ?price WHERE { ?offer bsbm:product <" + product(random.nextInt(products())) + "> . "
+							+ "?offer bsbm:price ?price . ?offer bsbm:deliveryDays ?deliveryDays . FILTER (?deliveryDays <= 3) } "
+							+ "ORDER BY xsd:double(str(?price)) LIMIT 10";
+				}
+			});
+	}
+
+	/**
+	 * Returns the number of products.
+	 * 
+	 * @return the number of products.
+	 */
+	int products() {
+		return _scale * PRODUCTS_PER_SCALE;
+	}
+
+	/**
+	 * Returns the URI of a product.
+	 * 
+	 * @param p the product index.
+	 * @return the URI of the product.
+	 */
+	static String product(final int p) {
+		return INSTANCES + "Product" + p;
+	}
+
+	/**
+	 * Returns the URI of a product type.
+	 * 
+	 * @param t the product type index.
+	 * @return the URI of the product type.
+	 */
+	static String productType(final int t) {
+		return INSTANCES + "ProductType" + t;
+	}
+
+	/**
+	 * Returns the URI of a product feature.
+	 * 
+	 * @param t the product type index.
+	 * @param f the feature index (within the product type).
+	 * @return the URI of the product feature.
+	 */
+	static String feature(final int t, final int f) {
+		return INSTANCES + "ProductFeature" + (t * FEATURES_PER_TYPE + f);
+	}
+
+	/**
+	 * Returns a random sequence of words.
+	 * 
+	 * @param random the random generator.
+	 * @param count how many words.
+	 * @return a random sequence of words.
+	 */
+	static String words(final Random random, final int count) {
+		final StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				builder.append(' ');
+			}
+			builder.append(WORDS[random.nextInt(WORDS.length)]);
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Returns a random date (xsd:date lexical form).
+	 * 
+	 * @param random the random generator.
+	 * @return a random date.
+	 */
+	static String date(final Random random) {
+		return String.format("%04d-%02d-%02d", 2005 + random.nextInt(4), 1 + random.nextInt(12), 1 + random.nextInt(28));
+	}
+}
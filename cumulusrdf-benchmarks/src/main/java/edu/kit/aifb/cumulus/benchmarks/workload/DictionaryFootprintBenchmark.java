@@ -0,0 +1,305 @@
+package edu.kit.aifb.cumulus.benchmarks.workload;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.GnuParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.model.vocabulary.RDF;
+import org.openrdf.model.vocabulary.XMLSchema;
+
+import edu.kit.aifb.cumulus.framework.domain.configuration.DefaultConfigurator;
+import edu.kit.aifb.cumulus.store.TripleStore;
+
+/**
+ * Dictionary footprint benchmark: the harness behind src/site/reports/compact-dictionary.md.
+ *
+ * <ol>
+ * 	<li>Loads a synthetic, LUBM-like dataset (students with an xsd:integer age, an xsd:dateTime birth date,
+ * 		a plain literal name, an advisor among 1,000 professors, a type and an xsd:int credit count)
+ * 		in batches of 6,000 triples, with {@link TripleStore#addData(Iterator)};</li>
+ * 	<li>closes the store and measures the on-disk size of each table of the embedded local storage;</li>
+ * 	<li>reopens the store and measures a full scan (best of 5) and random subject lookups, decoding all values;</li>
+ * 	<li>writes the figures as JSON.</li>
+ * </ol>
+ *
+ * Each run uses a fresh data directory and a fixed random seed, so that runs with "-k default" and "-k compact" load
+ * exactly the same triples.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+public final class DictionaryFootprintBenchmark {
+
+	static final String NAMESPACE = "http://example.org/university0/";
+	static final int TRIPLES_PER_STUDENT = 6;
+	static final int BATCH_SIZE = 6000;
+	static final int SCANS = 5;
+
+	private final String _dictionary;
+	private final int _triples;
+	private final int _lookups;
+	private final File _directory;
+	private final long _seed;
+
+	private final ValueFactory _valueFactory = ValueFactoryImpl.getInstance();
+
+	/**
+	 * Builds a new dictionary footprint benchmark.
+	 *
+	 * @param dictionary the dictionary chain ("default" or "compact").
+	 * @param triples the (approximate) number of triples of the dataset.
+	 * @param lookups the number of subject lookups.
+	 * @param directory the working directory.
+	 * @param seed the random seed.
+	 */
+	public DictionaryFootprintBenchmark(final String dictionary, final int triples, final int lookups, final File directory, final long seed) {
+		_dictionary = dictionary;
+		_triples = triples;
+		_lookups = lookups;
+		_directory = directory;
+		_seed = seed;
+	}
+
+	/**
+	 * Main method.
+	 *
+	 * @param args the command line arguments.
+	 * @throws Exception in case the benchmark fails.
+	 */
+	public static void main(final String[] args) throws Exception {
+		final Options options = options();
+		final CommandLine commandLine;
+		try {
+			commandLine = new GnuParser().parse(options, args);
+		} catch (final ParseException exception) {
+			System.err.println(exception.getMessage());
+			new HelpFormatter().printHelp(DictionaryFootprintBenchmark.class.getName(), options);
+			System.exit(1);
+			return;
+		}
+
+		if (commandLine.hasOption("h")) {
+			new HelpFormatter().printHelp(DictionaryFootprintBenchmark.class.getName(), options);
+			return;
+		}
+
+		final String dictionary = commandLine.getOptionValue("k", "default");
+		final File directory = new File(commandLine.getOptionValue("d", "target/dictionary-" + dictionary));
+		final File output = new File(commandLine.getOptionValue("o", new File(directory, "dictionary-" + dictionary + ".json").getPath()));
+
+		final DictionaryFootprintBenchmark benchmark = new DictionaryFootprintBenchmark(
+				dictionary,
+				Integer.parseInt(commandLine.getOptionValue("n", "300000")),
+				Integer.parseInt(commandLine.getOptionValue("l", "20000")),
+				directory,
+				Long.parseLong(commandLine.getOptionValue("r", "42")));
+
+		final String report = Json.toJson(benchmark.run());
+		WorkloadBenchmark.write(output, report);
+		System.out.print(report);
+		System.out.println("Report written to " + output.getAbsolutePath());
+	}
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @return the report.
+	 * @throws Exception in case the benchmark fails.
+	 */
+	public Map<String, Object> run() throws Exception {
+		final File data = configureStorage();
+		final Random random = new Random(_seed);
+		final int students = _triples / TRIPLES_PER_STUDENT;
+
+		final Map<String, Object> report = new LinkedHashMap<String, Object>();
+		report.put("dictionary", _dictionary);
+		report.put("seed", _seed);
+		report.put("triples", students * TRIPLES_PER_STUDENT);
+
+		TripleStore store = new TripleStore("DictionaryFootprintBenchmark");
+		store.open();
+		final long loadBegin = System.nanoTime();
+		try {
+			load(store, students, random);
+		} finally {
+			store.close();
+		}
+		final long load = System.nanoTime() - loadBegin;
+		report.put("triplesPerSecondLoad", WorkloadBenchmark.round(students * TRIPLES_PER_STUDENT / (load / 1000000000d)));
+
+		long total = 0;
+		final Map<String, Object> tables = new TreeMap<String, Object>();
+		final File[] children = data.listFiles();
+		if (children != null) {
+			for (final File table : children) {
+				final long size = size(table);
+				tables.put(table.getName(), size);
+				total += size;
+			}
+		}
+		report.put("bytesOnDisk", total);
+		report.put("bytesPerTriple", WorkloadBenchmark.round(total / (double) (students * TRIPLES_PER_STUDENT)));
+		report.put("bytesPerTable", tables);
+
+		store = new TripleStore("DictionaryFootprintBenchmark");
+		store.open();
+		try {
+			long scan = Long.MAX_VALUE;
+			long scanned = 0;
+			for (int i = 0; i < SCANS; i++) {
+				final long begin = System.nanoTime();
+				scanned = consume(store.query(new Value[] { null, null, null }));
+				scan = Math.min(scan, System.nanoTime() - begin);
+			}
+			report.put("scannedTriples", scanned);
+			report.put("triplesPerSecondScan", WorkloadBenchmark.round(scanned / (scan / 1000000000d)));
+
+			final long begin = System.nanoTime();
+			for (int i = 0; i < _lookups; i++) {
+				consume(store.query(new Value[] { student(random.nextInt(students)), null, null }));
+			}
+			report.put("microsPerSubjectLookup", WorkloadBenchmark.round((System.nanoTime() - begin) / (_lookups * 1000d)));
+		} finally {
+			store.close();
+		}
+		return report;
+	}
+
+	/**
+	 * Loads the dataset.
+	 *
+	 * @param store the store.
+	 * @param students the number of students.
+	 * @param random the random generator.
+	 * @throws Exception in case of load failure.
+	 */
+	void load(final TripleStore store, final int students, final Random random) throws Exception {
+		final URI age = _valueFactory.createURI(NAMESPACE, "age");
+		final URI born = _valueFactory.createURI(NAMESPACE, "born");
+		final URI name = _valueFactory.createURI(NAMESPACE, "name");
+		final URI advisor = _valueFactory.createURI(NAMESPACE, "advisor");
+		final URI credits = _valueFactory.createURI(NAMESPACE, "credits");
+		final URI graduateStudent = _valueFactory.createURI(NAMESPACE, "GraduateStudent");
+
+		final List<Statement> batch = new ArrayList<Statement>(BATCH_SIZE);
+		for (int i = 0; i < students; i++) {
+			final URI student = student(i);
+			batch.add(_valueFactory.createStatement(student, age, _valueFactory.createLiteral(String.valueOf(18 + random.nextInt(40)), XMLSchema.INTEGER)));
+			batch.add(_valueFactory.createStatement(student, born, _valueFactory.createLiteral(
+					new Date(random.nextInt(1000000) * 86400000L / 30).toInstant().toString(),
+					XMLSchema.DATETIME)));
+			batch.add(_valueFactory.createStatement(student, name, _valueFactory.createLiteral("Student name " + i)));
+			batch.add(_valueFactory.createStatement(student, advisor, _valueFactory.createURI(NAMESPACE, "Professor" + random.nextInt(1000))));
+			batch.add(_valueFactory.createStatement(student, RDF.TYPE, graduateStudent));
+			batch.add(_valueFactory.createStatement(student, credits, _valueFactory.createLiteral(String.valueOf(random.nextInt(200)), XMLSchema.INT)));
+
+			if (batch.size() >= BATCH_SIZE) {
+				store.addData(batch.iterator());
+				batch.clear();
+			}
+		}
+		store.addData(batch.iterator());
+	}
+
+	/**
+	 * Returns the URI of a given student.
+	 *
+	 * @param index the student index.
+	 * @return the URI of the student.
+	 */
+	URI student(final int index) {
+		return _valueFactory.createURI(NAMESPACE, "Student" + index);
+	}
+
+	/**
+	 * Consumes an iterator, decoding the object of each statement.
+	 *
+	 * @param iterator the iterator.
+	 * @return the number of statements.
+	 */
+	static long consume(final Iterator<Statement> iterator) {
+		long count = 0;
+		while (iterator.hasNext()) {
+			iterator.next().getObject().stringValue();
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Writes the configuration of the store, with a fresh data directory on the embedded local storage.
+	 *
+	 * @return the data directory of the store.
+	 * @throws Exception in case of I/O failure.
+	 */
+	File configureStorage() throws Exception {
+		System.setProperty(WorkloadBenchmark.FACTORY_SYSTEM_PROPERTY, WorkloadBenchmark.LOCAL_FACTORY);
+
+		final File data = new File(_directory, "data");
+		WorkloadBenchmark.delete(data);
+
+		final File configuration = new File(_directory, DefaultConfigurator.CONFIG_FILE_NAME);
+		WorkloadBenchmark.write(configuration,
+				"dictionary: \"" + _dictionary + "\"\n"
+				+ "local-storage-directory: \"" + data.getAbsolutePath().replace('\\', '/') + "\"\n");
+		System.setProperty(DefaultConfigurator.CONFIG_FILE_SYSTEM_PROPERTY_NAME, configuration.getAbsolutePath());
+
+		// The local storage keeps each store in a subdirectory, named after the storage layout.
+		return new File(data, "triples");
+	}
+
+	/**
+	 * Returns the size of a file or a directory (recursively).
+	 *
+	 * @param file the file or directory.
+	 * @return the size, in bytes, of the given file or directory.
+	 */
+	static long size(final File file) {
+		if (file.isFile()) {
+			return file.length();
+		}
+
+		long size = 0;
+		final File[] children = file.listFiles();
+		if (children != null) {
+			for (final File child : children) {
+				size += size(child);
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Returns the command line options.
+	 *
+	 * @return the command line options.
+	 */
+	static Options options() {
+		final Options options = new Options();
+		options.addOption(new Option("k", true, "dictionary chain (default|compact), default: default"));
+		options.addOption(new Option("n", true, "number of triples, default: 300000"));
+		options.addOption(new Option("l", true, "number of subject lookups, default: 20000"));
+		options.addOption(new Option("r", true, "random seed, default: 42"));
+		options.addOption(new Option("d", true, "working directory (configuration, data), default: target/dictionary-<dictionary>"));
+		options.addOption(new Option("o", true, "JSON report file, default: <working directory>/dictionary-<dictionary>.json"));
+		options.addOption(new Option("h", false, "print help"));
+		return options;
+	}
+}
@@ -0,0 +1,112 @@
+package edu.kit.aifb.cumulus.benchmarks.workload;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A minimal JSON serializer for reports (maps, lists, strings, numbers and booleans).
+ * Maps are written in iteration order and indented, so that reports of different runs can be diffed line by line.
+ * 
+ * @author agent
+ * @since 1.1.0
+ */
+final class Json {
+
+	/**
+	 * No instantiation allowed.
+	 */
+	private Json() {
+		// Nothing
+	}
+
+	/**
+	 * Returns the JSON representation of an object.
+	 * 
+	 * @param object the object.
+	 * @return the JSON representation of the given object.
+	 */
+	static String toJson(final Object object) {
+		final StringBuilder builder = new StringBuilder();
+		write(builder, object, "");
+		return builder.append('\n').toString();
+	}
+
+	/**
+	 * Writes the JSON representation of an object.
+	 * 
+	 * @param builder the output buffer.
+	 * @param object the object.
+	 * @param indent the current indentation.
+	 */
+	private static void write(final StringBuilder builder, final Object object, final String indent) {
+		if (object == null) {
+			builder.append("null");
+		} else if (object instanceof Map) {
+			final Iterator<? extends Map.Entry<?, ?>> iterator = ((Map<?, ?>) object).entrySet().iterator();
+			builder.append('{');
+			while (iterator.hasNext()) {
+				final Map.Entry<?, ?> entry = iterator.next();
+				builder.append('\n').append(indent).append('\t');
+				string(builder, String.valueOf(entry.getKey()));
+				builder.append(": ");
+				write(builder, entry.getValue(), indent + '\t');
+				if (iterator.hasNext()) {
+					builder.append(',');
+				}
+			}
+			builder.append('\n').append(indent).append('}');
+		} else if (object instanceof List) {
+			final Iterator<?> iterator = ((List<?>) object).iterator();
+			builder.append('[');
+			while (iterator.hasNext()) {
+				write(builder, iterator.next(), indent);
+				if (iterator.hasNext()) {
+					builder.append(", ");
+				}
+			}
+			builder.append(']');
+		} else if (object instanceof Number || object instanceof Boolean) {
+			builder.append(object);
+		} else {
+			string(builder, String.valueOf(object));
+		}
+	}
+
+	/**
+	 * Writes a JSON string.
+	 * 
+	 * @param builder the output buffer.
+	 * @param value the string value.
+	 */
+	private static void string(final StringBuilder builder, final String value) {
+		builder.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			final char c = value.charAt(i);
+			switch (c) {
+			case '"':
+				builder.append("\\\"");
+				break;
+			case '\\':
+				builder.append("\\\\");
+				break;
+			case '\n':
+				builder.append("\\n");
+				break;
+			case '\r':
+				builder.append("\\r");
+				break;
+			case '\t':
+				builder.append("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					builder.append(String.format("\\u%04x", (int) c));
+				} else {
+					builder.append(c);
+				}
+			}
+		}
+		builder.append('"');
+	}
+}
@@ -0,0 +1,106 @@
+package edu.kit.aifb.cumulus.benchmarks.workload;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A (growable) sequence of latencies, in nanoseconds.
+ * Not thread-safe: each worker records its own latencies, which are then merged.
+ * 
+ * @author agent
+ * @since 1.1.0
+ */
+public class Latencies {
+
+	private long[] _values = new long[1024];
+	private int _size;
+	private long _results;
+
+	/**
+	 * Records a latency.
+	 * 
+	 * @param nanos the latency, in nanoseconds.
+	 * @param results the number of results of the measured operation.
+	 */
+	public void add(final long nanos, final long results) {
+		if (_size == _values.length) {
+			_values = Arrays.copyOf(_values, _size * 2);
+		}
+		_values[_size++] = nanos;
+		_results += results;
+	}
+
+	/**
+	 * Adds all latencies recorded by another sequence.
+	 * 
+	 * @param other the other sequence.
+	 */
+	public void addAll(final Latencies other) {
+		if (_size + other._size > _values.length) {
+			_values = Arrays.copyOf(_values, Math.max(_values.length * 2, _size + other._size));
+		}
+		System.arraycopy(other._values, 0, _values, _size, other._size);
+		_size += other._size;
+		_results += other._results;
+	}
+
+	/**
+	 * Returns the number of recorded latencies.
+	 * 
+	 * @return the number of recorded latencies.
+	 */
+	public int size() {
+		return _size;
+	}
+
+	/**
+	 * Returns the summary of the recorded latencies, in milliseconds: mean, p50, p95, p99 and max.
+	 * 
+	 * @return the summary of the recorded latencies.
+	 */
+	public Map<String, Object> summary() {
+		final long[] sorted = Arrays.copyOf(_values, _size);
+		Arrays.sort(sorted);
+
+		long total = 0;
+		for (final long value : sorted) {
+			total += value;
+		}
+
+		final Map<String, Object> summary = new LinkedHashMap<String, Object>();
+		summary.put("count", _size);
+		summary.put("averageResults", _size > 0 ? (double) _results / _size : 0);
+		summary.put("meanMillis", millis(_size > 0 ? total / _size : 0));
+		summary.put("p50Millis", millis(percentile(sorted, 50)));
+		summary.put("p95Millis", millis(percentile(sorted, 95)));
+		summary.put("p99Millis", millis(percentile(sorted, 99)));
+		summary.put("maxMillis", millis(_size > 0 ? sorted[_size - 1] : 0));
+		return summary;
+	}
+
+	/**
+	 * Returns a percentile (nearest rank) of sorted values.
+	 * 
+	 * @param sorted the sorted values.
+	 * @param percentile the percentile, between 0 and 100.
+	 * @return the percentile of the given values, 0 if there are no values.
+	 */
+	static long percentile(final long[] sorted, final double percentile) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+		final int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+		return sorted[Math.min(sorted.length, Math.max(1, rank)) - 1];
+	}
+
+	/**
+	 * Converts nanoseconds to milliseconds (with a microsecond precision).
+	 * 
+	 * @param nanos the nanoseconds.
+	 * @return the milliseconds.
+	 */
+	static double millis(final long nanos) {
+		return Math.round(nanos / 1000d) / 1000d;
+	}
+}
@@ -0,0 +1,280 @@
+package edu.kit.aifb.cumulus.benchmarks.workload;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A LUBM-like workload: universities, with departments, faculty, students, courses and publications.
+ * The scale factor is the number of universities. 
+ * Since CumulusRDF doesn't do any reasoning, queries only use the (most specific) asserted classes.
+ * 
+ * @author agent
+ * @since 1.1.0
+ */
+public class LubmWorkload extends Workload {
+
+	static final String UB = "http://swat.cse.lehigh.edu/onto/univ-bench.owl#";
+	static final String RDF_TYPE = "http://www.w3.org/1999/02/22-rdf-syntax-ns#type";
+	static final String PREFIXES = "PREFIX rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#> PREFIX ub: <" + UB + "> ";
+
+	static final int DEPARTMENTS = 15;
+	static final int FULL_PROFESSORS = 8;
+	static final int ASSOCIATE_PROFESSORS = 10;
+	static final int ASSISTANT_PROFESSORS = 8;
+	static final int LECTURERS = 5;
+	static final int COURSES = 20;
+	static final int GRADUATE_COURSES = 10;
+	static final int UNDERGRADUATE_STUDENTS = 100;
+	static final int GRADUATE_STUDENTS = 25;
+	static final int RESEARCH_GROUPS = 10;
+	static final int PUBLICATIONS = 3;
+
+	/**
+	 * Builds a new LUBM-like workload.
+	 * 
+	 * @param scale the number of universities.
+	 */
+	public LubmWorkload(final int scale) {
+		super(scale);
+	}
+
+	@Override
+	public String getName() {
+		return "lubm";
+	}
+
+	@Override
+	public long generate(final Writer out, final Random random) throws IOException {
+		long triples = 0;
+		for (int u = 0; u < _scale; u++) {
+			final String university = university(u);
+			resource(out, university, RDF_TYPE, UB + "University");
+			literal(out, university, UB + "name", "University" + u);
+			triples += 2;
+
+			for (int d = 0; d < DEPARTMENTS; d++) {
+				triples += department(out, random, u, d);
+			}
+		}
+		return triples;
+	}
+
+	/**
+	 * Writes a department, with its members.
+	 * 
+	 * @param out the output writer.
+	 * @param random the random generator.
+	 * @param u the university index.
+	 * @param d the department index.
+	 * @return the number of triples that have been written.
+	 * @throws IOException in case of I/O failure.
+	 */
+	long department(final Writer out, final Random random, final int u, final int d) throws IOException {
+		long triples = 0;
+		final String department = department(u, d);
+		resource(out, department, RDF_TYPE, UB + "Department");
+		resource(out, department, UB + "subOrganizationOf", university(u));
+		literal(out, department, UB + "name", "Department" + d);
+		triples += 3;
+
+		for (int i = 0; i < RESEARCH_GROUPS; i++) {
+			final String group = department + "/ResearchGroup" + i;
+			resource(out, group, RDF_TYPE, UB + "ResearchGroup");
+			resource(out, group, UB + "subOrganizationOf", department);
+			triples += 2;
+		}
+
+		for (int i = 0; i < COURSES; i++) {
+			final String course = department + "/Course" + i;
+			resource(out, course, RDF_TYPE, UB + "Course");
+			literal(out, course, UB + "name", "Course" + i);
+			triples += 2;
+		}
+
+		for (int i = 0; i < GRADUATE_COURSES; i++) {
+			final String course = department + "/GraduateCourse" + i;
+			resource(out, course, RDF_TYPE, UB + "GraduateCourse");
+			literal(out, course, UB + "name", "GraduateCourse" + i);
+			triples += 2;
+		}
+
+		final String[] kinds = {"FullProfessor", "AssociateProfessor", "AssistantProfessor", "Lecturer"};
+		final int[] counts = {FULL_PROFESSORS, ASSOCIATE_PROFESSORS, ASSISTANT_PROFESSORS, LECTURERS};
+		int course = 0;
+		int graduateCourse = 0;
+		for (int k = 0; k < kinds.length; k++) {
+			for (int i = 0; i < counts[k]; i++) {
+				final String faculty = department + "/" + kinds[k] + i;
+				resource(out, faculty, RDF_TYPE, UB + kinds[k]);
+				literal(out, faculty, UB + "name", kinds[k] + i);
+				literal(out, faculty, UB + "emailAddress", kinds[k] + i + "@Department" + d + ".University" + u + ".edu");
+				literal(out, faculty, UB + "telephone", "xxx-xxx-" + random.nextInt(10000));
+				resource(out, faculty, UB + "worksFor", department);
+				resource(out, faculty, UB + "undergraduateDegreeFrom", university(random.nextInt(_scale)));
+				resource(out, faculty, UB + "doctoralDegreeFrom", university(random.nextInt(_scale)));
+				resource(out, faculty, UB + "teacherOf", department + "/Course" + (course++ % COURSES));
+				triples += 8;
+
+				if (k < 3) {
+					resource(out, faculty, UB + "teacherOf", department + "/GraduateCourse" + (graduateCourse++ % GRADUATE_COURSES));
+					triples++;
+				}
+
+				for (int p = 0; p < PUBLICATIONS; p++) {
+					final String publication = faculty + "/Publication" + p;
+					resource(out, publication, RDF_TYPE, UB + "Publication");
+					literal(out, publication, UB + "name", "Publication" + p);
+					resource(out, publication, UB + "publicationAuthor", faculty);
+					triples += 3;
+				}
+			}
+		}
+
+		for (int i = 0; i < UNDERGRADUATE_STUDENTS; i++) {
+			final String student = department + "/UndergraduateStudent" + i;
+			resource(out, student, RDF_TYPE, UB + "UndergraduateStudent");
+			literal(out, student, UB + "name", "UndergraduateStudent" + i);
+			literal(out, student, UB + "emailAddress", "UndergraduateStudent" + i + "@Department" + d + ".University" + u + ".edu");
+			resource(out, student, UB + "memberOf", department);
+			triples += 4;
+
+			final int courses = 2 + random.nextInt(3);
+			final int firstCourse = random.nextInt(COURSES);
+			for (int c = 0; c < courses; c++) {
+				resource(out, student, UB + "takesCourse", department + "/Course" + (firstCourse + c) % COURSES);
+				triples++;
+			}
+
+			if (random.nextInt(5) == 0) {
+				resource(out, student, UB + "advisor", department + "/" + kinds[random.nextInt(3)] + random.nextInt(FULL_PROFESSORS));
+				triples++;
+			}
+		}
+
+		for (int i = 0; i < GRADUATE_STUDENTS; i++) {
+			final String student = department + "/GraduateStudent" + i;
+			resource(out, student, RDF_TYPE, UB + "GraduateStudent");
+			literal(out, student, UB + "name", "GraduateStudent" + i);
+			literal(out, student, UB + "emailAddress", "GraduateStudent" + i + "@Department" + d + ".University" + u + ".edu");
+			resource(out, student, UB + "memberOf", department);
+			resource(out, student, UB + "undergraduateDegreeFrom", university(random.nextInt(_scale)));
+			resource(out, student, UB + "advisor", department + "/" + kinds[random.nextInt(3)] + random.nextInt(FULL_PROFESSORS));
+			triples += 6;
+
+			final int courses = 1 + random.nextInt(3);
+			final int firstCourse = random.nextInt(GRADUATE_COURSES);
+			for (int c = 0; c < courses; c++) {
+				resource(out, student, UB + "takesCourse", department + "/GraduateCourse" + (firstCourse + c) % GRADUATE_COURSES);
+				triples++;
+			}
+		}
+		return triples;
+	}
+
+	@Override
+	public List<QueryTemplate> getQueryMix() {
+		return Arrays.<QueryTemplate>asList(
+			new QueryTemplate("Q1") {
+				@Override
+				public String instantiate(final Random random) {
+					return PREFIXES 
+							+ "SELECT ?x WHERE { ?x rdf:type ub:GraduateStudent . ?x ub:takesCourse <" 
+							+ randomDepartment(random) + "/GraduateCourse" + random.nextInt(GRADUATE_COURSES) + "> }";
+				}
+			},
+			new QueryTemplate("Q2") {
+				@Override
+				public String instantiate(final Random random) {
+					return PREFIXES
+							+ "SELECT ?x ?y WHERE { ?x rdf:type ub:GraduateStudent . ?x ub:memberOf <" + randomDepartment(random) + "> . "
+							+ "?x ub:undergraduateDegreeFrom ?y . ?y rdf:type ub:University }";
+				}
+			},
+			new QueryTemplate("Q3") {
+				@Override
+				public String instantiate(final Random random) {
+					return PREFIXES
+							+ "SELECT ?x WHERE { ?x rdf:type ub:Publication . ?x ub:publicationAuthor <" 
+							+ randomDepartment(random) + "/AssistantProfessor" + random.nextInt(ASSISTANT_PROFESSORS) + "> }";
+				}
+			},
+			new QueryTemplate("Q4") {
+				@Override
+				public String instantiate(final Random random) {
+					return PREFIXES
+							+ "SELECT ?x ?name ?email ?telephone WHERE { ?x rdf:type ub:FullProfessor . ?x ub:worksFor <" + randomDepartment(random) + "> . "
+							+ "?x ub:name ?name . ?x ub:emailAddress ?email . ?x ub:telephone ?telephone }";
+				}
+			},
+			new QueryTemplate("Q5") {
+				@Override
+				public String instantiate(final Random random) {
+					return PREFIXES + "SELECT ?x WHERE { ?x ub:memberOf <" + randomDepartment(random) + "> }";
+				}
+			},
+			new QueryTemplate("Q7") {
+				@Override
+				public String instantiate(final Random random) {
+					return PREFIXES
+							+ "SELECT ?x ?y WHERE { ?x rdf:type ub:UndergraduateStudent . ?y rdf:type ub:Course . ?x ub:takesCourse ?y . <" 
+							+ randomDepartment(random) + "/AssociateProfessor" + random.nextInt(ASSOCIATE_PROFESSORS) + "> ub:teacherOf ?y }";
+				}
+			},
+			new QueryTemplate("Q8") {
+				@Override
+				public String instantiate(final Random random) {
+					return PREFIXES
+							+ "SELECT ?x ?y ?z WHERE { ?x rdf:type ub:UndergraduateStudent . ?y rdf:type ub:Department . ?x ub:memberOf ?y . "
+							+ "?y ub:subOrganizationOf <" + university(random.nextInt(_scale)) + "> . ?x ub:emailAddress ?z } LIMIT 500";
+				}
+			},
+			new QueryTemplate("Q9") {
+				@Override
+				public String instantiate(final Random random) {
+					return PREFIXES
+							+ "SELECT ?x ?y ?z WHERE { ?x ub:memberOf <" + randomDepartment(random) + "> . ?x rdf:type ub:UndergraduateStudent . "
+							+ "?x ub:advisor ?y . ?y ub:teacherOf ?z . ?x ub:takesCourse ?z }";
+				}
+			},
+			new QueryTemplate("Q14") {
+				@Override
+				public String instantiate(final Random random) {
+					return PREFIXES + "SELECT (COUNT(?x) AS ?count) WHERE { ?x rdf:type ub:UndergraduateStudent }";
+				}
+			});
+	}
+
+	/**
+	 * Returns the URI of a randomly chosen department.
+	 * 
+	 * @param random the random generator.
+	 * @return the URI of a randomly chosen department.
+	 */
+	String randomDepartment(final Random random) {
+		return department(random.nextInt(_scale), random.nextInt(DEPARTMENTS));
+	}
+
+	/**
+	 * Returns the URI of a university.
+	 * 
+	 * @param u the university index.
+	 * @return the URI of the university.
+	 */
+	static String university(final int u) {
+		return "http://www.University" + u + ".edu";
+	}
+
+	/**
+	 * Returns the URI of a department.
+	 * 
+	 * @param u the university index.
+	 * @param d the department index.
+	 * @return the URI of the department.
+	 */
+	static String department(final int u, final int d) {
+		return "http://www.Department" + d + ".University" + u + ".edu";
+	}
+}
@@ -0,0 +1,140 @@
+package edu.kit.aifb.cumulus.benchmarks.workload;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A synthetic dataset, scaled by a factor, together with a fixed query mix over it.
+ * Given the same scale and random seed, a workload always generates the same dataset and the same queries.
+ * 
+ * @author agent
+ * @since 1.1.0
+ */
+public abstract class Workload {
+
+	/**
+	 * A parameterized query of a query mix.
+	 * 
+	 * @author agent
+	 * @since 1.1.0
+	 */
+	public abstract static class QueryTemplate {
+		private final String _name;
+
+		/**
+		 * Builds a new query template.
+		 * 
+		 * @param name the query name, as it will appear in reports.
+		 */
+		protected QueryTemplate(final String name) {
+			_name = name;
+		}
+
+		/**
+		 * Returns the query name.
+		 * 
+		 * @return the query name.
+		 */
+		public String getName() {
+			return _name;
+		}
+
+		/**
+		 * Returns a SPARQL query, with parameters picked with the given random generator.
+		 * 
+		 * @param random the random generator.
+		 * @return a SPARQL query.
+		 */
+		public abstract String instantiate(Random random);
+	}
+
+	protected final int _scale;
+
+	/**
+	 * Builds a new workload with the given scale.
+	 * 
+	 * @param scale the scale factor.
+	 */
+	protected Workload(final int scale) {
+		if (scale < 1) {
+			throw new IllegalArgumentException("Scale must be greater than 0: " + scale);
+		}
+		_scale = scale;
+	}
+
+	/**
+	 * Returns the workload name.
+	 * 
+	 * @return the workload name.
+	 */
+	public abstract String getName();
+
+	/**
+	 * Writes the dataset, as N-Triples.
+	 * 
+	 * @param out the output writer.
+	 * @param random the random generator.
+	 * @return the number of triples that have been written.
+	 * @throws IOException in case of I/O failure.
+	 */
+	public abstract long generate(Writer out, Random random) throws IOException;
+
+	/**
+	 * Returns the query mix.
+	 * 
+	 * @return the query mix.
+	 */
+	public abstract List<QueryTemplate> getQueryMix();
+
+	/**
+	 * Returns the scale factor.
+	 * 
+	 * @return the scale factor.
+	 */
+	public int getScale() {
+		return _scale;
+	}
+
+	/**
+	 * Writes a triple whose object is a resource.
+	 * 
+	 * @param out the output writer.
+	 * @param s the subject URI.
+	 * @param p the predicate URI.
+	 * @param o the object URI.
+	 * @throws IOException in case of I/O failure.
+	 */
+	protected static void resource(final Writer out, final String s, final String p, final String o) throws IOException {
+		out.append('<').append(s).append("> <").append(p).append("> <").append(o).append("> .\n");
+	}
+
+	/**
+	 * Writes a triple whose object is a plain literal.
+	 * The literal must not contain characters that need to be escaped.
+	 * 
+	 * @param out the output writer.
+	 * @param s the subject URI.
+	 * @param p the predicate URI.
+	 * @param o the object lexical form.
+	 * @throws IOException in case of I/O failure.
+	 */
+	protected static void literal(final Writer out, final String s, final String p, final String o) throws IOException {
+		out.append('<').append(s).append("> <").append(p).append("> \"").append(o).append("\" .\n");
+	}
+
+	/**
+	 * Writes a triple whose object is a typed literal.
+	 * 
+	 * @param out the output writer.
+	 * @param s the subject URI.
+	 * @param p the predicate URI.
+	 * @param o the object lexical form.
+	 * @param datatype the datatype URI.
+	 * @throws IOException in case of I/O failure.
+	 */
+	protected static void literal(final Writer out, final String s, final String p, final String o, final String datatype) throws IOException {
+		out.append('<').append(s).append("> <").append(p).append("> \"").append(o).append("\"^^<").append(datatype).append("> .\n");
+	}
+}
@@ -0,0 +1,405 @@
+package edu.kit.aifb.cumulus.benchmarks.workload;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.GnuParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.openrdf.query.QueryLanguage;
+import org.openrdf.query.TupleQueryResult;
+import org.openrdf.repository.RepositoryConnection;
+import org.openrdf.repository.sail.SailRepository;
+import org.openrdf.rio.RDFFormat;
+
+import edu.kit.aifb.cumulus.benchmarks.workload.Workload.QueryTemplate;
+import edu.kit.aifb.cumulus.framework.domain.configuration.DefaultConfigurator;
+import edu.kit.aifb.cumulus.store.BulkLoadReport;
+import edu.kit.aifb.cumulus.store.Store;
+import edu.kit.aifb.cumulus.store.TripleStore;
+import edu.kit.aifb.cumulus.store.sesame.CumulusRDFSail;
+
+/**
+ * End-to-end workload benchmark.
+ * 
+ * <ol>
+ * 	<li>Generates a scaled, synthetic dataset ({@link LubmWorkload} or {@link BsbmWorkload});</li>
+ * 	<li>loads it with {@link Store#bulkLoad(File, RDFFormat)};</li>
+ * 	<li>runs the query mix of the workload through a {@link SailRepository} on top of {@link CumulusRDFSail}, 
+ * 		once for each requested concurrency level;</li>
+ * 	<li>writes load throughput, query latencies (p50, p95, p99) and queries per second as JSON.</li>
+ * </ol>
+ * 
+ * Unless a storage and a configuration are given (with the "cdrf.factory.fqdn" and "crdf.config.file" system properties), 
+ * the embedded local storage is used, with a fresh data directory under the working directory.
+ * Datasets and queries are generated with a fixed random seed, so that reports of different builds can be compared.
+ * 
+ * @author agent
+ * @since 1.1.0
+ */
+public final class WorkloadBenchmark {
+
+	static final String FACTORY_SYSTEM_PROPERTY = "cdrf.factory.fqdn";
+	static final String LOCAL_FACTORY = "edu.kit.aifb.cumulus.datasource.local.LocalDataAccessLayerFactory";
+	static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final Workload _workload;
+	private final File _directory;
+	private final long _seed;
+	private final int _warmUpMixes;
+	private final int _mixes;
+
+	/**
+	 * Builds a new workload benchmark.
+	 * 
+	 * @param workload the workload.
+	 * @param directory the working directory.
+	 * @param seed the random seed.
+	 * @param warmUpMixes the number of (not measured) query mixes executed before measurements.
+	 * @param mixes the number of query mixes executed for each concurrency level.
+	 */
+	public WorkloadBenchmark(final Workload workload, final File directory, final long seed, final int warmUpMixes, final int mixes) {
+		_workload = workload;
+		_directory = directory;
+		_seed = seed;
+		_warmUpMixes = warmUpMixes;
+		_mixes = mixes;
+	}
+
+	/**
+	 * Main method.
+	 * 
+	 * @param args the command line arguments.
+	 * @throws Exception in case the benchmark fails.
+	 */
+	public static void main(final String[] args) throws Exception {
+		final Options options = options();
+		final CommandLine commandLine;
+		try {
+			commandLine = new GnuParser().parse(options, args);
+		} catch (final ParseException exception) {
+			System.err.println(exception.getMessage());
+			new HelpFormatter().printHelp(WorkloadBenchmark.class.getName(), options);
+			System.exit(1);
+			return;
+		}
+
+		if (commandLine.hasOption("h")) {
+			new HelpFormatter().printHelp(WorkloadBenchmark.class.getName(), options);
+			return;
+		}
+
+		final String name = commandLine.getOptionValue("w", "lubm");
+		final int scale = Integer.parseInt(commandLine.getOptionValue("s", "1"));
+		final Workload workload;
+		if ("lubm".equalsIgnoreCase(name)) {
+			workload = new LubmWorkload(scale);
+		} else if ("bsbm".equalsIgnoreCase(name)) {
+			workload = new BsbmWorkload(scale);
+		} else {
+			throw new IllegalArgumentException("Unknown workload: " + name);
+		}
+
+		final List<Integer> concurrencyLevels = new ArrayList<Integer>();
+		for (final String level : commandLine.getOptionValue("c", "1,4").split(",")) {
+			concurrencyLevels.add(Integer.parseInt(level.trim()));
+		}
+
+		final File directory = new File(commandLine.getOptionValue("d", "target/workload"));
+		final File output = new File(commandLine.getOptionValue("o", new File(directory, workload.getName() + "-" + scale + ".json").getPath()));
+
+		final WorkloadBenchmark benchmark = new WorkloadBenchmark(
+				workload,
+				directory,
+				Long.parseLong(commandLine.getOptionValue("r", "42")),
+				Integer.parseInt(commandLine.getOptionValue("u", "5")),
+				Integer.parseInt(commandLine.getOptionValue("m", "50")));
+
+		final Map<String, Object> report = benchmark.run(concurrencyLevels);
+		write(output, Json.toJson(report));
+		System.out.println("Report written to " + output.getAbsolutePath());
+	}
+
+	/**
+	 * Runs the benchmark.
+	 * 
+	 * @param concurrencyLevels the concurrency levels (i.e. the number of concurrent clients) of the query runs.
+	 * @return the report.
+	 * @throws Exception in case the benchmark fails.
+	 */
+	public Map<String, Object> run(final List<Integer> concurrencyLevels) throws Exception {
+		_directory.mkdirs();
+		configureStorage();
+
+		final File dataset = new File(_directory, _workload.getName() + "-" + _workload.getScale() + "-" + _seed + ".nt");
+		final long generated = generate(dataset);
+
+		final Map<String, Object> report = new LinkedHashMap<String, Object>();
+		report.put("workload", _workload.getName());
+		report.put("scale", _workload.getScale());
+		report.put("seed", _seed);
+		report.put("storage", System.getProperty(FACTORY_SYSTEM_PROPERTY));
+		report.put("triples", generated);
+
+		final TripleStore store = new TripleStore("WorkloadBenchmark");
+		final SailRepository repository = new SailRepository(new CumulusRDFSail(store));
+		repository.initialize();
+		try {
+			System.out.println("Loading " + dataset + "...");
+			final BulkLoadReport load = store.bulkLoad(dataset, RDFFormat.NTRIPLES);
+
+			final Map<String, Object> loadReport = new LinkedHashMap<String, Object>();
+			loadReport.put("triples", load.getLoaded());
+			loadReport.put("elapsedMillis", load.getElapsed());
+			loadReport.put("triplesPerSecond", round(load.getThroughput()));
+			report.put("load", loadReport);
+			System.out.println("Loaded " + load.getLoaded() + " triples in " + load.getElapsed() + " ms");
+
+			if (_warmUpMixes > 0) {
+				System.out.println("Warming up (" + _warmUpMixes + " query mixes)...");
+				execute(repository, _warmUpMixes, 1);
+			}
+
+			final List<Object> runs = new ArrayList<Object>();
+			for (final int concurrency : concurrencyLevels) {
+				System.out.println("Running " + _mixes + " query mixes with " + concurrency + " client(s)...");
+				runs.add(execute(repository, _mixes, concurrency));
+			}
+			report.put("runs", runs);
+		} finally {
+			repository.shutDown();
+		}
+		return report;
+	}
+
+	/**
+	 * Executes a given number of query mixes with a given number of concurrent clients.
+	 * 
+	 * @param repository the repository.
+	 * @param mixes the number of query mixes.
+	 * @param concurrency the number of concurrent clients.
+	 * @return the run report.
+	 * @throws Exception in case a query fails.
+	 */
+	Map<String, Object> execute(final SailRepository repository, final int mixes, final int concurrency) throws Exception {
+		final List<QueryTemplate> mix = _workload.getQueryMix();
+		final AtomicInteger remaining = new AtomicInteger(mixes);
+		final ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+
+		final List<Future<Map<String, Latencies>>> clients = new ArrayList<Future<Map<String, Latencies>>>(concurrency);
+		final long begin = System.nanoTime();
+		try {
+			for (int i = 0; i < concurrency; i++) {
+				final Random random = new Random(_seed + i);
+				clients.add(executor.submit(new Callable<Map<String, Latencies>>() {
+					@Override
+					public Map<String, Latencies> call() throws Exception {
+						final Map<String, Latencies> latencies = new LinkedHashMap<String, Latencies>();
+						for (final QueryTemplate template : mix) {
+							latencies.put(template.getName(), new Latencies());
+						}
+
+						while (remaining.getAndDecrement() > 0) {
+							final RepositoryConnection connection = repository.getConnection();
+							try {
+								for (final QueryTemplate template : mix) {
+									final String query = template.instantiate(random);
+									final long start = System.nanoTime();
+									final long results = evaluate(connection, query);
+									latencies.get(template.getName()).add(System.nanoTime() - start, results);
+								}
+							} finally {
+								connection.close();
+							}
+						}
+						return latencies;
+					}
+				}));
+			}
+
+			final Map<String, Latencies> merged = new LinkedHashMap<String, Latencies>();
+			for (final QueryTemplate template : mix) {
+				merged.put(template.getName(), new Latencies());
+			}
+			for (final Future<Map<String, Latencies>> client : clients) {
+				for (final Map.Entry<String, Latencies> entry : client.get().entrySet()) {
+					merged.get(entry.getKey()).addAll(entry.getValue());
+				}
+			}
+			final long elapsed = System.nanoTime() - begin;
+
+			final Latencies all = new Latencies();
+			final Map<String, Object> perQuery = new LinkedHashMap<String, Object>();
+			for (final Map.Entry<String, Latencies> entry : merged.entrySet()) {
+				all.addAll(entry.getValue());
+				perQuery.put(entry.getKey(), entry.getValue().summary());
+			}
+
+			final Map<String, Object> run = new LinkedHashMap<String, Object>();
+			run.put("concurrency", concurrency);
+			run.put("mixes", mixes);
+			run.put("queries", all.size());
+			run.put("elapsedMillis", elapsed / 1000000);
+			run.put("queriesPerSecond", round(all.size() / (elapsed / 1000000000d)));
+			run.put("latency", all.summary());
+			run.put("perQuery", perQuery);
+			return run;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Evaluates a SELECT query and consumes all its results.
+	 * 
+	 * @param connection the repository connection.
+	 * @param query the SPARQL query.
+	 * @return the number of results.
+	 * @throws Exception in case of query failure.
+	 */
+	static long evaluate(final RepositoryConnection connection, final String query) throws Exception {
+		final TupleQueryResult result = connection.prepareTupleQuery(QueryLanguage.SPARQL, query).evaluate();
+		long count = 0;
+		try {
+			while (result.hasNext()) {
+				result.next();
+				count++;
+			}
+		} finally {
+			result.close();
+		}
+		return count;
+	}
+
+	/**
+	 * Generates the dataset, if it doesn't already exist (a dataset only depends on workload, scale and seed).
+	 * 
+	 * @param dataset the dataset file.
+	 * @return the number of triples in the dataset.
+	 * @throws IOException in case of I/O failure.
+	 */
+	long generate(final File dataset) throws IOException {
+		final File count = new File(dataset.getPath() + ".count");
+		if (dataset.exists() && count.exists()) {
+			return Long.parseLong(new String(Files.readAllBytes(count.toPath()), UTF8).trim());
+		}
+
+		System.out.println("Generating " + dataset + "...");
+		final Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(dataset), UTF8), 64 * 1024);
+		final long triples;
+		try {
+			triples = _workload.generate(out, new Random(_seed));
+		} finally {
+			out.close();
+		}
+		write(count, String.valueOf(triples));
+		return triples;
+	}
+
+	/**
+	 * Uses the embedded local storage, with a fresh data directory, unless a storage has been explicitly configured.
+	 * 
+	 * @throws IOException in case of I/O failure.
+	 */
+	void configureStorage() throws IOException {
+		if (System.getProperty(FACTORY_SYSTEM_PROPERTY) == null) {
+			System.setProperty(FACTORY_SYSTEM_PROPERTY, LOCAL_FACTORY);
+		}
+
+		if (System.getProperty(DefaultConfigurator.CONFIG_FILE_SYSTEM_PROPERTY_NAME) == null) {
+			final File data = new File(_directory, "data");
+			delete(data);
+
+			final File configuration = new File(_directory, DefaultConfigurator.CONFIG_FILE_NAME);
+			write(configuration, 
+					"storage-layout: \"triple\"\n"
+					+ "storage-index-ranges: true\n"
+					+ "local-storage-directory: \"" + data.getAbsolutePath().replace('\\', '/') + "\"\n");
+			System.setProperty(DefaultConfigurator.CONFIG_FILE_SYSTEM_PROPERTY_NAME, configuration.getAbsolutePath());
+		}
+	}
+
+	/**
+	 * Returns the command line options.
+	 * 
+	 * @return the command line options.
+	 */
+	static Options options() {
+		final Options options = new Options();
+		options.addOption(new Option("w", true, "workload (lubm|bsbm), default: lubm"));
+		options.addOption(new Option("s", true, "scale factor (lubm: universities, bsbm: hundreds of products), default: 1"));
+		options.addOption(new Option("c", true, "comma separated concurrency levels (number of clients), default: 1,4"));
+		options.addOption(new Option("m", true, "query mixes executed for each concurrency level, default: 50"));
+		options.addOption(new Option("u", true, "warm-up query mixes, default: 5"));
+		options.addOption(new Option("r", true, "random seed, default: 42"));
+		options.addOption(new Option("d", true, "working directory (dataset, configuration, data), default: target/workload"));
+		options.addOption(new Option("o", true, "JSON report file, default: <working directory>/<workload>-<scale>.json"));
+		options.addOption(new Option("h", false, "print help"));
+		return options;
+	}
+
+	/**
+	 * Deletes a file or a directory (recursively).
+	 * 
+	 * @param file the file or directory.
+	 */
+	static void delete(final File file) {
+		final File[] children = file.listFiles();
+		if (children != null) {
+			for (final File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	/**
+	 * Writes a string to a file.
+	 * 
+	 * @param file the file.
+	 * @param content the file content.
+	 * @throws IOException in case of I/O failure.
+	 */
+	static void write(final File file, final String content) throws IOException {
+		final File parent = file.getAbsoluteFile().getParentFile();
+		if (parent != null) {
+			parent.mkdirs();
+		}
+
+		final Writer out = new OutputStreamWriter(new FileOutputStream(file), UTF8);
+		try {
+			out.write(content);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Rounds a value to two decimal places.
+	 * 
+	 * @param value the value.
+	 * @return the rounded value.
+	 */
+	static double round(final double value) {
+		return Math.round(value * 100) / 100d;
+	}
+}
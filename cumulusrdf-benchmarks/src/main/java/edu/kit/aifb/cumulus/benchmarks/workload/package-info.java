@@ -0,0 +1,7 @@
+/**
+ * End-to-end workload benchmarks: load and SPARQL query mix, dictionary footprint.
+ * 
+ * @author agent
+ * @since 1.1.0
+ */
+package edu.kit.aifb.cumulus.benchmarks.workload;
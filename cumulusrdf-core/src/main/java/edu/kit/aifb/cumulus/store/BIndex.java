@@ -1,5 +1,9 @@
 package edu.kit.aifb.cumulus.store;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import edu.kit.aifb.cumulus.framework.Initialisable;
 import edu.kit.aifb.cumulus.framework.InitialisationException;
 import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerException;
@@ -58,6 +62,18 @@ public class BIndex implements Initialisable{
 		return _byValue.get(value);
 	}
 
+	/**
+	 * Returns the ids associated with the given values.
+	 * Values that are not in this index are associated with {@link ValueDictionaryBase#NOT_SET}.
+	 * 
+	 * @param values the n3 values.
+	 * @return the ids associated with the given values, in the same order of the input list.
+	 * @throws DataAccessLayerException in case of data access failure.
+	 */
+	public List<byte[]> get(final List<String> values) throws DataAccessLayerException {
+		return _byValue.getAllQuick(values);
+	}
+
 	/**
 	 * Returns the value associated with the given id.
 	 * 
@@ -69,6 +85,18 @@ public class BIndex implements Initialisable{
 		return _byId.getQuick(id);
 	}
 
+	/**
+	 * Returns the values associated with the given ids.
+	 * Ids that are not in this index are associated with an empty string.
+	 * 
+	 * @param ids the Cumulus internal ids.
+	 * @return the values associated with the given ids, in the same order of the input list.
+	 * @throws DataAccessLayerException in case of data access failure.
+	 */
+	public List<String> getQuick(final List<byte[]> ids) throws DataAccessLayerException {
+		return _byId.getAllQuick(ids);
+	}
+
 	/**
 	 * Puts the given pair on this index.
 	 * 
@@ -81,6 +109,27 @@ public class BIndex implements Initialisable{
 		_byId.putQuick(id, value);
 	}
 
+	/**
+	 * Puts the given pairs on this index.
+	 * Each direction of the index is written using a single batch.
+	 * 
+	 * @param pairs the resources with their associated ids.
+	 * @throws DataAccessLayerException in case of data access failure.
+	 */
+	public void putAllQuick(final Map<String, byte[]> pairs) throws DataAccessLayerException {
+		if (pairs.isEmpty()) {
+			return;
+		}
+
+		final Map<byte[], String> reverse = new HashMap<byte[], String>(pairs.size());
+		for (final Map.Entry<String, byte[]> pair : pairs.entrySet()) {
+			reverse.put(pair.getValue(), pair.getKey());
+		}
+
+		_byValue.putAllQuick(pairs);
+		_byId.putAllQuick(reverse);
+	}
+
 	/**
 	 * Returns true if this index contains the given id.
 	 * 
@@ -93,6 +142,23 @@ public class BIndex implements Initialisable{
 		return _byId.containsKey(id);
 	}
 
+	/**
+	 * Checks which of the given ids are already in this index.
+	 * 
+	 * @param ids the ids.
+	 * @return an array where each slot is true if the id at the same position is in this index.
+	 * @throws DataAccessLayerException in case of data access failure.
+	 */
+	public boolean[] contains(final List<byte[]> ids) throws DataAccessLayerException {
+		final List<String> values = _byId.getAllQuick(ids);
+		final boolean[] result = new boolean[values.size()];
+		for (int i = 0; i < result.length; i++) {
+			final String value = values.get(i);
+			result[i] = value != null && !value.isEmpty();
+		}
+		return result;
+	}
+
 	/**
 	 * Removes the given resource from this index.
 	 * 
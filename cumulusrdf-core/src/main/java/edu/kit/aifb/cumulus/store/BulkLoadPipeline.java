@@ -0,0 +1,471 @@
+package edu.kit.aifb.cumulus.store;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.openrdf.model.Statement;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.RDFParseException;
+import org.openrdf.rio.helpers.RDFHandlerBase;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import edu.kit.aifb.cumulus.log.Log;
+import edu.kit.aifb.cumulus.log.MessageCatalog;
+import edu.kit.aifb.cumulus.store.events.AddTripleEvent;
+
+/**
+ * A staged bulk load pipeline.
+ * Statements flow through the following stages:
+ *
+ * <ol>
+ * 	<li><b>parse</b>: one or more RDF parsers collect statements in chunks;</li>
+ * 	<li><b>encode</b>: chunks are translated into identifiers using the store dictionary;</li>
+ * 	<li><b>index-write</b>: identifiers are written in the store indexes;</li>
+ * 	<li><b>stats</b>: store listeners (e.g. the selectivity estimator) are notified about the new triples.</li>
+ * </ol>
+ *
+ * Each stage runs on its own threads and stages are connected by bounded queues:
+ * a slow stage blocks the previous one, so the parser never outruns the storage.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+final class BulkLoadPipeline {
+	static final String PARSE = "parse";
+	static final String ENCODE = "encode";
+	static final String INDEX_WRITE = "index-write";
+	static final String STATS = "stats";
+
+	/**
+	 * Poison pill that signals the end of a stage input: each worker stops once it takes one.
+	 */
+	private static final Object END_OF_INPUT = new Object();
+
+	/**
+	 * A source of statements for the pipeline: one or more RDF parsers.
+	 *
+	 * @author agent
+	 * @since 1.1.0
+	 */
+	interface Parser {
+		/**
+		 * Returns how many threads are used for parsing.
+		 *
+		 * @return how many threads are used for parsing.
+		 */
+		int threads();
+
+		/**
+		 * Parses the data, sending the statements to the given pipeline.
+		 * Each parser thread must use its own {@link BulkLoadPipeline#newHandler() handler}.
+		 *
+		 * @param pipeline the pipeline.
+		 * @throws IOException in case of I/O failure.
+		 * @throws RDFParseException in case of invalid data.
+		 * @throws RDFHandlerException in case of pipeline failure.
+		 */
+		void parse(BulkLoadPipeline pipeline) throws IOException, RDFParseException, RDFHandlerException;
+	}
+
+	/**
+	 * A chunk of statements together with the corresponding identifiers.
+	 *
+	 * @author agent
+	 * @since 1.1.0
+	 */
+	static final class EncodedChunk {
+		final List<Statement> _statements;
+		final List<byte[][]> _ids;
+
+		/**
+		 * Builds a new chunk with the given data.
+		 *
+		 * @param statements the statements.
+		 * @param ids the identifiers of the statements.
+		 */
+		EncodedChunk(final List<Statement> statements, final List<byte[][]> ids) {
+			_statements = statements;
+			_ids = ids;
+		}
+	}
+
+	/**
+	 * A pipeline stage: a pool of workers that consume the stage input queue.
+	 *
+	 * @author agent
+	 * @since 1.1.0
+	 * @param <I> the kind of items processed by this stage.
+	 */
+	abstract class Stage<I> implements Runnable {
+		private final String _name;
+		private final int _threads;
+		private final BlockingQueue<Object> _input;
+		private final Stage<?> _next;
+		private final CountDownLatch _running;
+		private final AtomicLong _processed = new AtomicLong();
+
+		private volatile long _end;
+		private ExecutorService _executor;
+
+		/**
+		 * Builds a new stage.
+		 *
+		 * @param name the stage name.
+		 * @param threads the number of workers of this stage.
+		 * @param next the next stage, null if this is the last one.
+		 */
+		Stage(final String name, final int threads, final Stage<?> next) {
+			_name = name;
+			_threads = Math.max(1, threads);
+			_input = new ArrayBlockingQueue<Object>(_queueSize);
+			_next = next;
+			_running = new CountDownLatch(_threads);
+		}
+
+		/**
+		 * Processes an item.
+		 *
+		 * @param item the item.
+		 * @return how many triples / quads have been processed.
+		 * @throws Exception in case of processing failure.
+		 */
+		abstract int process(I item) throws Exception;
+
+		/**
+		 * Starts the workers of this stage.
+		 */
+		void start() {
+			_executor = Executors.newFixedThreadPool(_threads);
+			for (int i = 0; i < _threads; i++) {
+				_executor.execute(this);
+			}
+			_executor.shutdown();
+		}
+
+		/**
+		 * Puts an item in the input queue of this stage, waiting if the queue is full.
+		 *
+		 * @param item the item.
+		 * @throws InterruptedException if interrupted while waiting.
+		 */
+		void put(final I item) throws InterruptedException {
+			_input.put(item);
+		}
+
+		/**
+		 * Signals that no more items will be put in the input queue of this stage, 
+		 * sending a poison pill to each worker.
+		 * Workers keep draining their input until the end, even after a failure, so this never blocks forever.
+		 */
+		void closeInput() {
+			for (int i = 0; i < _threads; i++) {
+				Uninterruptibles.putUninterruptibly(_input, END_OF_INPUT);
+			}
+		}
+
+		/**
+		 * Waits until all workers of this stage completed.
+		 *
+		 * @throws InterruptedException if interrupted while waiting.
+		 */
+		void await() throws InterruptedException {
+			_running.await();
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public void run() {
+			try {
+				while (true) {
+					final Object item;
+					try {
+						item = _input.take();
+					} catch (final InterruptedException exception) {
+						// Keep draining: the previous stages may be waiting for room in the input queue.
+						fail(_name, exception);
+						continue;
+					}
+
+					if (item == END_OF_INPUT) {
+						break;
+					}
+
+					// After a failure, the remaining items are just drained: that unblocks the previous stages.
+					if (_failure.get() == null) {
+						try {
+							_processed.addAndGet(process((I) item));
+						} catch (final Exception exception) {
+							fail(_name, exception);
+						}
+					}
+				}
+			} finally {
+				_running.countDown();
+				if (_running.getCount() == 0) {
+					_end = System.currentTimeMillis();
+					if (_next != null) {
+						_next.closeInput();
+					}
+				}
+			}
+		}
+
+		/**
+		 * Returns the statistics of this stage.
+		 *
+		 * @return the statistics of this stage.
+		 */
+		BulkLoadReport.StageStats stats() {
+			return new BulkLoadReport.StageStats(_name, _threads, _processed.get(), _end - _begin);
+		}
+	}
+
+	/**
+	 * The parse stage: a (parser) handler that collects statements in chunks and
+	 * sends them to the encode stage.
+	 *
+	 * @author agent
+	 * @since 1.1.0
+	 */
+	final class ChunkingHandler extends RDFHandlerBase {
+		private List<Statement> _chunk = new ArrayList<Statement>(_batchLimit);
+
+		@Override
+		public void handleStatement(final Statement statement) throws RDFHandlerException {
+			final Exception failure = _failure.get();
+			if (failure != null) {
+				throw new RDFHandlerException(failure);
+			}
+
+			_chunk.add(statement);
+			if (_chunk.size() >= _batchLimit) {
+				flush();
+			}
+		}
+
+		@Override
+		public void endRDF() throws RDFHandlerException {
+			if (!_chunk.isEmpty()) {
+				flush();
+			}
+		}
+
+		/**
+		 * Sends the current chunk to the encode stage.
+		 *
+		 * @throws RDFHandlerException if interrupted while waiting for the encode stage.
+		 */
+		private void flush() throws RDFHandlerException {
+			try {
+				_parsed.addAndGet(_chunk.size());
+				_encode.put(_chunk);
+				_chunk = new ArrayList<Statement>(_batchLimit);
+			} catch (final InterruptedException exception) {
+				Thread.currentThread().interrupt();
+				throw new RDFHandlerException(exception);
+			}
+		}
+	}
+
+	private final Log _log = new Log(LoggerFactory.getLogger(BulkLoadPipeline.class));
+
+	private final Store _store;
+	private final int _batchLimit;
+	private final int _queueSize;
+
+	private final AtomicReference<Exception> _failure = new AtomicReference<Exception>();
+	private final AtomicLong _parsed = new AtomicLong();
+	private final AtomicLong _loaded = new AtomicLong();
+	private int _parseThreads = 1;
+
+	private final Stage<List<byte[][]>> _stats;
+	private final Stage<EncodedChunk> _write;
+	private final Stage<List<Statement>> _encode;
+
+	private long _begin;
+	private long _parseEnd;
+	private BulkLoadReport _report;
+
+	/**
+	 * Builds a new pipeline.
+	 *
+	 * @param store the target store.
+	 * @param batchLimit the maximum size of a chunk.
+	 * @param encoders the number of threads of the encode stage.
+	 * @param writers the number of threads of the index-write stage.
+	 * @param queueSize the capacity (in terms of chunks) of the queues between stages.
+	 */
+	BulkLoadPipeline(final Store store, final int batchLimit, final int encoders, final int writers, final int queueSize) {
+		_store = store;
+		_batchLimit = Math.max(1, batchLimit);
+		_queueSize = Math.max(1, queueSize);
+
+		_stats = new Stage<List<byte[][]>>(STATS, 1, null) {
+			@Override
+			int process(final List<byte[][]> ids) {
+				_store.notifyListeners(new AddTripleEvent(Store.DUMMY_SOURCE_EVENT, ids));
+				return ids.size();
+			}
+		};
+
+		_write = new Stage<EncodedChunk>(INDEX_WRITE, writers, _stats) {
+			@Override
+			int process(final EncodedChunk chunk) throws Exception {
+				final List<byte[][]> added = _store.newTriples(chunk._ids);
+				_store.write(chunk._statements, chunk._ids);
+				_loaded.addAndGet(chunk._ids.size());
+				_stats.put(added);
+				return chunk._ids.size();
+			}
+		};
+
+		_encode = new Stage<List<Statement>>(ENCODE, encoders, _write) {
+			@Override
+			int process(final List<Statement> chunk) throws Exception {
+				final List<byte[][]> ids = _store.encode(chunk);
+				_write.put(new EncodedChunk(chunk, ids));
+				return ids.size();
+			}
+		};
+
+		_log.debug(MessageCatalog._00116_BULK_LOAD_PIPELINE, _encode._threads, _write._threads, _queueSize);
+	}
+
+	/**
+	 * Starts the pipeline workers.
+	 *
+	 * @return this pipeline.
+	 */
+	BulkLoadPipeline start() {
+		_begin = System.currentTimeMillis();
+		_stats.start();
+		_write.start();
+		_encode.start();
+		return this;
+	}
+
+	/**
+	 * Loads the data coming from the given parser.
+	 * Starts the pipeline, runs the parser and waits for the completion of all stages.
+	 *
+	 * @param parser the parser.
+	 * @return the statistics of this bulk load.
+	 * @throws CumulusStoreException if the parser or one of the stages failed.
+	 * @throws IOException in case of I/O failure while reading the data.
+	 */
+	BulkLoadReport load(final Parser parser) throws CumulusStoreException, IOException {
+		_parseThreads = Math.max(1, parser.threads());
+		start();
+
+		Exception failure = null;
+		try {
+			parser.parse(this);
+		} catch (final RDFParseException exception) {
+			_log.debug(MessageCatalog._00029_RDF_PARSE_FAILURE, exception);
+			failure = exception;
+		} catch (final RDFHandlerException exception) {
+			_log.debug(MessageCatalog._00029_RDF_PARSE_FAILURE, exception);
+			failure = exception;
+		} catch (final IOException exception) {
+			// The I/O failure is what the caller must see: a stage failure is just attached to it.
+			try {
+				close();
+			} catch (final CumulusStoreException secondary) {
+				exception.addSuppressed(secondary);
+			}
+			throw exception;
+		}
+
+		final BulkLoadReport report = close();
+		if (failure != null) {
+			throw new CumulusStoreException(failure);
+		}
+		return report;
+	}
+
+	/**
+	 * Returns a new handler that feeds this pipeline.
+	 * Each parser must use its own handler.
+	 *
+	 * @return a new handler that feeds this pipeline.
+	 */
+	RDFHandler newHandler() {
+		return new ChunkingHandler();
+	}
+
+	/**
+	 * Waits for the completion of all submitted chunks and stops the pipeline.
+	 * Must be called once all parsers have completed.
+	 *
+	 * @return the statistics of this bulk load.
+	 * @throws CumulusStoreException if one of the stages failed.
+	 */
+	synchronized BulkLoadReport close() throws CumulusStoreException {
+		if (_report == null) {
+			_parseEnd = System.currentTimeMillis();
+			_encode.closeInput();
+			try {
+				_encode.await();
+				_write.await();
+				_stats.await();
+			} catch (final InterruptedException exception) {
+				Thread.currentThread().interrupt();
+				fail(STATS, exception);
+			}
+
+			final long elapsed = System.currentTimeMillis() - _begin;
+
+			_report = new BulkLoadReport();
+			_report.add(new BulkLoadReport.StageStats(PARSE, _parseThreads, _parsed.get(), _parseEnd - _begin));
+			_report.add(_encode.stats());
+			_report.add(_write.stats());
+			_report.add(_stats.stats());
+			_report.completed(_loaded.get(), elapsed);
+
+			for (final BulkLoadReport.StageStats stage : _report.getStages()) {
+				_log.info(
+						MessageCatalog._00117_BULK_LOAD_STAGE_STATS,
+						stage.getName(),
+						stage.getThreads(),
+						stage.getProcessed(),
+						stage.getElapsed(),
+						stage.getThroughput());
+			}
+
+			_log.info(
+					MessageCatalog._00083_TOTAL_INSERT_STATS,
+					_report.getLoaded(),
+					_report.getElapsed(),
+					_report.getThroughput());
+		}
+
+		final Exception failure = _failure.get();
+		if (failure != null) {
+			throw new CumulusStoreException(failure);
+		}
+		return _report;
+	}
+
+	/**
+	 * Records the failure of a stage.
+	 * Only the first failure is retained: it will abort the whole bulk load.
+	 *
+	 * @param stage the name of the failed stage.
+	 * @param exception the failure cause.
+	 */
+	private void fail(final String stage, final Exception exception) {
+		_log.error(MessageCatalog._00118_BULK_LOAD_STAGE_FAILURE, exception, stage);
+		_failure.compareAndSet(null, exception);
+	}
+}
@@ -0,0 +1,148 @@
+package edu.kit.aifb.cumulus.store;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a bulk load.
+ * Collects the statistics of each stage of the bulk load pipeline.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+public class BulkLoadReport {
+
+	/**
+	 * Statistics of a single stage.
+	 *
+	 * @author agent
+	 * @since 1.1.0
+	 */
+	public static class StageStats {
+		private final String _name;
+		private final int _threads;
+		private final long _processed;
+		private final long _elapsed;
+
+		/**
+		 * Builds a new stats object with the given data.
+		 *
+		 * @param name the stage name.
+		 * @param threads the number of threads that worked on the stage.
+		 * @param processed how many triples / quads have been processed by the stage.
+		 * @param elapsed the elapsed time of the stage, in milliseconds.
+		 */
+		StageStats(final String name, final int threads, final long processed, final long elapsed) {
+			_name = name;
+			_threads = threads;
+			_processed = processed;
+			_elapsed = elapsed;
+		}
+
+		/**
+		 * Returns the stage name.
+		 *
+		 * @return the stage name.
+		 */
+		public String getName() {
+			return _name;
+		}
+
+		/**
+		 * Returns the number of threads that worked on the stage.
+		 *
+		 * @return the number of threads that worked on the stage.
+		 */
+		public int getThreads() {
+			return _threads;
+		}
+
+		/**
+		 * Returns how many triples / quads have been processed by the stage.
+		 *
+		 * @return how many triples / quads have been processed by the stage.
+		 */
+		public long getProcessed() {
+			return _processed;
+		}
+
+		/**
+		 * Returns the elapsed time of the stage, in milliseconds.
+		 *
+		 * @return the elapsed time of the stage, in milliseconds.
+		 */
+		public long getElapsed() {
+			return _elapsed;
+		}
+
+		/**
+		 * Returns the stage throughput (in terms of triples / second).
+		 *
+		 * @return the stage throughput (in terms of triples / second).
+		 */
+		public double getThroughput() {
+			return _elapsed > 0 ? (double) _processed / _elapsed * 1000 : 0;
+		}
+	}
+
+	private final List<StageStats> _stages = new ArrayList<StageStats>();
+	private long _elapsed;
+	private long _loaded;
+
+	/**
+	 * Adds the statistics of a stage to this report.
+	 *
+	 * @param stats the stage statistics.
+	 */
+	void add(final StageStats stats) {
+		_stages.add(stats);
+	}
+
+	/**
+	 * Sets the overall results of the bulk load.
+	 *
+	 * @param loaded how many triples / quads have been loaded.
+	 * @param elapsed the overall elapsed time, in milliseconds.
+	 */
+	void completed(final long loaded, final long elapsed) {
+		_loaded = loaded;
+		_elapsed = elapsed;
+	}
+
+	/**
+	 * Returns the statistics of each stage, in pipeline order.
+	 *
+	 * @return the statistics of each stage, in pipeline order.
+	 */
+	public List<StageStats> getStages() {
+		return Collections.unmodifiableList(_stages);
+	}
+
+	/**
+	 * Returns how many triples / quads have been loaded.
+	 *
+	 * @return how many triples / quads have been loaded.
+	 */
+	public long getLoaded() {
+		return _loaded;
+	}
+
+	/**
+	 * Returns the overall elapsed time, in milliseconds.
+	 *
+	 * @return the overall elapsed time, in milliseconds.
+	 */
+	public long getElapsed() {
+		return _elapsed;
+	}
+
+	/**
+	 * Returns the overall throughput (in terms of triples / second).
+	 *
+	 * @return the overall throughput (in terms of triples / second).
+	 */
+	public double getThroughput() {
+		return _elapsed > 0 ? (double) _loaded / _elapsed * 1000 : 0;
+	}
+}
@@ -0,0 +1,292 @@
+package edu.kit.aifb.cumulus.store;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.LoggerFactory;
+
+import edu.kit.aifb.cumulus.framework.domain.dictionary.IDecoratorDictionary;
+import edu.kit.aifb.cumulus.framework.domain.dictionary.IDictionary;
+import edu.kit.aifb.cumulus.log.Log;
+import edu.kit.aifb.cumulus.log.MessageCatalog;
+import edu.kit.aifb.cumulus.store.dict.impl.cache.CacheSnapshot;
+import edu.kit.aifb.cumulus.store.dict.impl.cache.WarmableCache;
+
+/**
+ * Warms up the dictionary caches of a store.
+ *
+ * The hottest entries of each cache in the dictionary chain are periodically saved in a snapshot file
+ * (one file for each cache, named after the cache identifier) and preloaded, in background, when the store opens.
+ * A final snapshot is taken when the store is closed.
+ * Periodic and final snapshots are skipped until the warm-up completes: a store closed right after opening
+ * would otherwise overwrite a full snapshot with the few entries it has loaded so far.
+ * Snapshot files are written atomically, so a directory on a shared file system can be used by all nodes of a cluster.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+public class CacheWarmer {
+
+	static final String SNAPSHOT_EXTENSION = ".snapshot";
+	static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final Log LOGGER = new Log(LoggerFactory.getLogger(CacheWarmer.class));
+
+	private final File _directory;
+	private final int _entries;
+	private final long _interval;
+	private final List<WarmableCache> _caches;
+
+	private final AtomicLong _loadedEntries = new AtomicLong();
+	private final AtomicLong _totalEntries = new AtomicLong();
+	private volatile boolean _running;
+	private volatile boolean _warmedUp;
+
+	private ScheduledExecutorService _executor;
+
+	/**
+	 * Builds a new warmer for the caches of a given dictionary (chain).
+	 *
+	 * @param dictionary the dictionary.
+	 * @param directory the directory where snapshots are saved.
+	 * @param entries the maximum number of entries that will be saved for each cache.
+	 * @param interval the interval, in seconds, between two snapshots. If lesser than 1, there won't be periodic snapshots.
+	 */
+	public CacheWarmer(final IDictionary<?> dictionary, final File directory, final int entries, final long interval) {
+		_directory = directory;
+		_entries = entries;
+		_interval = interval;
+		_caches = caches(dictionary);
+	}
+
+	/**
+	 * Starts the (background) warm-up and schedules the periodic snapshots.
+	 */
+	public void start() {
+		_directory.mkdirs();
+
+		_running = true;
+		_executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(final Runnable task) {
+				final Thread thread = new Thread(task, "cumulusrdf-cache-warmer");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		_executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				warmUp();
+			}
+		});
+
+		if (_interval > 0) {
+			_executor.scheduleWithFixedDelay(new Runnable() {
+				@Override
+				public void run() {
+					snapshotIfWarmedUp();
+				}
+			}, _interval, _interval, TimeUnit.SECONDS);
+		}
+	}
+
+	/**
+	 * Stops the warm-up (if it is still running) and the periodic snapshots, then takes a final snapshot
+	 * if the warm-up completed.
+	 */
+	public void stop() {
+		if (_executor != null) {
+			_executor.shutdownNow();
+			try {
+				_executor.awaitTermination(10, TimeUnit.SECONDS);
+			} catch (final InterruptedException exception) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		_running = false;
+		snapshotIfWarmedUp();
+	}
+
+	/**
+	 * Saves the hottest entries of each cache, if the warm-up completed.
+	 * Otherwise caches hold only part of the existing snapshots, that must not be overwritten.
+	 *
+	 * @return the number of entries that have been saved.
+	 */
+	int snapshotIfWarmedUp() {
+		if (!_warmedUp) {
+			LOGGER.info(MessageCatalog._00132_CACHE_SNAPSHOT_SKIPPED, _directory);
+			return 0;
+		}
+		return snapshot();
+	}
+
+	/**
+	 * Saves the hottest entries of each cache.
+	 *
+	 * @return the number of entries that have been saved.
+	 */
+	public synchronized int snapshot() {
+		final long begin = System.currentTimeMillis();
+		int written = 0;
+		for (final WarmableCache cache : _caches) {
+			try {
+				final File snapshot = snapshotFile(cache);
+				final File tmp = File.createTempFile(cache.getId(), ".tmp", _directory);
+				final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), BUFFER_SIZE));
+				try {
+					written += cache.writeSnapshot(out, _entries);
+				} finally {
+					out.close();
+				}
+				try {
+					Files.move(tmp.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				} finally {
+					tmp.delete();
+				}
+			} catch (final IOException exception) {
+				LOGGER.error(MessageCatalog._00127_CACHE_SNAPSHOT_FAILURE, exception, cache.getId());
+			}
+		}
+
+		LOGGER.info(MessageCatalog._00125_CACHE_SNAPSHOT_WRITTEN, written, _directory, System.currentTimeMillis() - begin);
+		return written;
+	}
+
+	/**
+	 * Preloads each cache with the entries of its snapshot, if it exists.
+	 */
+	void warmUp() {
+		final long begin = System.currentTimeMillis();
+		try {
+			for (final WarmableCache cache : _caches) {
+				final File snapshot = snapshotFile(cache);
+				if (snapshot.exists()) {
+					try {
+						_totalEntries.addAndGet(CacheSnapshot.entriesCount(snapshot));
+					} catch (final IOException exception) {
+						LOGGER.error(MessageCatalog._00126_CACHE_WARM_UP_FAILURE, exception, cache.getId(), snapshot);
+					}
+				}
+			}
+
+			long loaded = 0;
+			for (final WarmableCache cache : _caches) {
+				final File snapshot = snapshotFile(cache);
+				if (Thread.currentThread().isInterrupted() || !snapshot.exists()) {
+					continue;
+				}
+
+				try {
+					final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshot), BUFFER_SIZE));
+					try {
+						loaded += Math.max(0, cache.readSnapshot(in, _loadedEntries));
+					} finally {
+						in.close();
+					}
+				} catch (final Exception exception) {
+					LOGGER.error(MessageCatalog._00126_CACHE_WARM_UP_FAILURE, exception, cache.getId(), snapshot);
+				}
+			}
+
+			_warmedUp = !Thread.currentThread().isInterrupted();
+			LOGGER.info(MessageCatalog._00124_CACHE_WARM_UP_COMPLETED, loaded, _totalEntries.get(), _directory, System.currentTimeMillis() - begin);
+		} finally {
+			_running = false;
+		}
+	}
+
+	/**
+	 * Returns the number of snapshot entries that have been read so far.
+	 *
+	 * @return the number of snapshot entries that have been read so far.
+	 */
+	public long getLoadedEntries() {
+		return _loadedEntries.get();
+	}
+
+	/**
+	 * Returns the number of entries in the snapshots that will be preloaded.
+	 *
+	 * @return the number of entries in the snapshots that will be preloaded.
+	 */
+	public long getTotalEntries() {
+		return _totalEntries.get();
+	}
+
+	/**
+	 * Returns true if the warm-up is in progress.
+	 *
+	 * @return true if the warm-up is in progress.
+	 */
+	public boolean isRunning() {
+		return _running;
+	}
+
+	/**
+	 * Returns the caches managed by this warmer.
+	 *
+	 * @return the caches managed by this warmer.
+	 */
+	List<WarmableCache> getCaches() {
+		return _caches;
+	}
+
+	/**
+	 * Returns the snapshot file of a given cache.
+	 *
+	 * @param cache the cache.
+	 * @return the snapshot file of the given cache.
+	 */
+	File snapshotFile(final WarmableCache cache) {
+		return new File(_directory, cache.getId() + SNAPSHOT_EXTENSION);
+	}
+
+	/**
+	 * Collects all the caches in a dictionary chain.
+	 *
+	 * @param dictionary the first dictionary of the chain.
+	 * @return all the caches in the given dictionary chain.
+	 */
+	static List<WarmableCache> caches(final IDictionary<?> dictionary) {
+		final List<WarmableCache> caches = new ArrayList<WarmableCache>();
+		collect(dictionary, caches);
+		return caches;
+	}
+
+	/**
+	 * Collects the caches in a dictionary (sub)chain.
+	 *
+	 * @param dictionary the first dictionary of the (sub)chain.
+	 * @param caches the caches collected so far.
+	 */
+	private static void collect(final IDictionary<?> dictionary, final List<WarmableCache> caches) {
+		if (dictionary instanceof WarmableCache) {
+			caches.add((WarmableCache) dictionary);
+		}
+
+		if (dictionary instanceof IDecoratorDictionary) {
+			for (final IDictionary<?> decoratee : ((IDecoratorDictionary) dictionary).getDecoratees()) {
+				collect(decoratee, caches);
+			}
+		}
+	}
+}
@@ -8,6 +8,7 @@ import edu.kit.aifb.cumulus.store.dict.impl.string.CacheStringDictionary;
 import edu.kit.aifb.cumulus.store.dict.impl.string.PersistentStringDictionary;
 import edu.kit.aifb.cumulus.store.dict.impl.string.TransientStringDictionary;
 import edu.kit.aifb.cumulus.store.dict.impl.value.CacheValueDictionary;
+import edu.kit.aifb.cumulus.store.dict.impl.value.CompactValueDictionary;
 import edu.kit.aifb.cumulus.store.dict.impl.value.KnownURIsDictionary;
 import edu.kit.aifb.cumulus.store.dict.impl.value.PersistentValueDictionary;
 import edu.kit.aifb.cumulus.store.dict.impl.value.ThreeTieredValueDictionary;
@@ -23,6 +24,29 @@ import edu.kit.aifb.cumulus.store.dict.impl.value.TransientValueDictionary;
  */
 public abstract class Dictionaries {
 
+	static final String DEFAULT = "default";
+	static final String COMPACT = "compact";
+
+	/**
+	 * Creates a new instance of the dictionary selected with the "dictionary" configuration attribute.
+	 * Allowed values are "default" (see {@link #newDefaultDictionary(Configuration)}) and 
+	 * "compact" (see {@link #newCompactDictionary(Configuration)}).
+	 * 
+	 * Note that the dictionary determines the identifiers stored in indexes, so it cannot be changed on a non-empty store.
+	 * 
+	 * @param configuration the configuration of the owning store.
+	 * @return a new instance of the configured dictionary.
+	 */
+	public static ITopLevelDictionary newDictionary(final Configuration<Map<String, Object>> configuration) {
+		final String kind = configuration.getAttribute("dictionary", DEFAULT);
+		if (COMPACT.equalsIgnoreCase(kind)) {
+			return newCompactDictionary(configuration);
+		} else if (DEFAULT.equalsIgnoreCase(kind)) {
+			return newDefaultDictionary(configuration);
+		}
+		throw new IllegalArgumentException("Unknown dictionary: " + kind);
+	}
+
 	/**
 	 * Creates a new CumulusRDF default dictionary.
 	 * 
@@ -50,7 +74,9 @@ public abstract class Dictionaries {
 												new PersistentValueDictionary("LongLiteralsDictionary"),
 												configuration.getAttribute("long-literals-threshold", Integer.valueOf(1000))),
 										configuration.getAttribute("literals-bnodes-id-cache-size", Integer.valueOf(50000)),
-										configuration.getAttribute("literals-bnodes-value-cache-size", Integer.valueOf(50000)),										
+										configuration.getAttribute("literals-bnodes-value-cache-size", Integer.valueOf(50000)),
+										literalsAndBNodesCacheBytes(configuration),
+										configuration.getAttribute("literals-bnodes-cache-off-heap", Boolean.FALSE),
 										true))),
 				configuration.getAttribute("known-uris-id-cache-size", Integer.valueOf(2000)),
 				configuration.getAttribute("known-uris-value-cache-size", Integer.valueOf(2000)),
@@ -70,4 +96,33 @@ public abstract class Dictionaries {
 				50000,
 				true);
 	}
+
+	/**
+	 * Creates a new compact dictionary.
+	 * Each value gets a fixed-width 8 bytes identifier: small numbers, booleans and dates are inlined, 
+	 * everything else is hashed (see {@link CompactValueDictionary}).
+	 * 
+	 * @param configuration the configuration of the owning store.
+	 * @return a new instance of compact dictionary.
+	 */
+	public static ITopLevelDictionary newCompactDictionary(final Configuration<Map<String, Object>> configuration) {
+		return new CacheValueDictionary(
+				"TopLevelCacheDictionary",
+				new CompactValueDictionary("CompactDictionary"),
+				configuration.getAttribute("literals-bnodes-id-cache-size", Integer.valueOf(50000)),
+				configuration.getAttribute("literals-bnodes-value-cache-size", Integer.valueOf(50000)),
+				literalsAndBNodesCacheBytes(configuration),
+				configuration.getAttribute("literals-bnodes-cache-off-heap", Boolean.FALSE),
+				true);
+	}
+
+	/**
+	 * Returns the memory budget of the literals and blank nodes cache.
+	 * 
+	 * @param configuration the configuration of the owning store.
+	 * @return the memory budget, in bytes, of the literals and blank nodes cache, 0 if the cache is bounded by entries count.
+	 */
+	static long literalsAndBNodesCacheBytes(final Configuration<Map<String, Object>> configuration) {
+		return configuration.getAttribute("literals-bnodes-cache-bytes", (Number) Integer.valueOf(0)).longValue();
+	}
 }
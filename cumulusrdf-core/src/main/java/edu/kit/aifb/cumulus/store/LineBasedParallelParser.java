@@ -0,0 +1,273 @@
+package edu.kit.aifb.cumulus.store;
+
+import static edu.kit.aifb.cumulus.framework.Environment.BASE_URI;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.openrdf.model.BNode;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.RDFParseException;
+import org.openrdf.rio.RDFParser;
+import org.openrdf.rio.Rio;
+
+/**
+ * A parallel parser for line-based RDF formats (N-Triples, N-Quads).
+ * The input file is memory mapped and split in line-aligned chunks; each chunk is parsed by its own thread
+ * and its statements go straight to the bulk load pipeline.
+ *
+ * Blank node labels are scoped to the whole file (and not to a single chunk): the same label found
+ * in two different chunks denotes the same blank node.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+final class LineBasedParallelParser implements BulkLoadPipeline.Parser {
+
+	static final long MAX_CHUNK_SIZE = 256 * 1024 * 1024;
+	static final long MIN_CHUNK_SIZE = 1024 * 1024;
+	static final int CHUNKS_PER_THREAD = 4;
+
+	/**
+	 * A value factory that scopes blank node labels to a single bulk load.
+	 *
+	 * @author agent
+	 * @since 1.1.0
+	 */
+	static final class LoadScopedValueFactory extends ValueFactoryImpl {
+		private final String _prefix = UUID.randomUUID().toString().replace("-", "") + "x";
+
+		@Override
+		public BNode createBNode(final String nodeID) {
+			return super.createBNode(_prefix + nodeID);
+		}
+	}
+
+	/**
+	 * An {@link InputStream} that reads a (memory mapped) buffer.
+	 *
+	 * @author agent
+	 * @since 1.1.0
+	 */
+	static final class ByteBufferInputStream extends InputStream {
+		private final ByteBuffer _buffer;
+
+		/**
+		 * Builds a new stream on top of the given buffer.
+		 *
+		 * @param buffer the buffer.
+		 */
+		ByteBufferInputStream(final ByteBuffer buffer) {
+			_buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return _buffer.hasRemaining() ? _buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(final byte[] bytes, final int offset, final int length) {
+			if (!_buffer.hasRemaining()) {
+				return -1;
+			}
+
+			final int howMany = Math.min(length, _buffer.remaining());
+			_buffer.get(bytes, offset, howMany);
+			return howMany;
+		}
+
+		@Override
+		public int available() {
+			return _buffer.remaining();
+		}
+	}
+
+	private final File _file;
+	private final RDFFormat _format;
+	private final int _threads;
+	private final LoadScopedValueFactory _valueFactory = new LoadScopedValueFactory();
+
+	/**
+	 * Builds a new parser for the given file.
+	 *
+	 * @param file the input file.
+	 * @param format the format of the input file.
+	 * @param threads the number of parser threads.
+	 */
+	LineBasedParallelParser(final File file, final RDFFormat format, final int threads) {
+		_file = file;
+		_format = format;
+		_threads = Math.max(1, threads);
+	}
+
+	/**
+	 * Returns true if the given format can be parsed in parallel.
+	 *
+	 * @param format the RDF format.
+	 * @return true if the given format can be parsed in parallel.
+	 */
+	static boolean supports(final RDFFormat format) {
+		return RDFFormat.NTRIPLES.equals(format) || RDFFormat.NQUADS.equals(format);
+	}
+
+	@Override
+	public int threads() {
+		return _threads;
+	}
+
+	@Override
+	public void parse(final BulkLoadPipeline pipeline) throws IOException, RDFParseException, RDFHandlerException {
+		final RandomAccessFile file = new RandomAccessFile(_file, "r");
+		final FileChannel channel = file.getChannel();
+
+		final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+		final ExecutorService executor = Executors.newFixedThreadPool(_threads);
+		try {
+			for (final long[] chunk : chunks(channel, chunkSize(channel.size()))) {
+				final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, chunk[0], chunk[1] - chunk[0]);
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						// After a failure, the remaining chunks are skipped.
+						if (failure.get() == null) {
+							try {
+								parse(buffer, pipeline);
+							} catch (final Exception exception) {
+								failure.compareAndSet(null, exception);
+							}
+						}
+					}
+				});
+			}
+		} finally {
+			executor.shutdown();
+			try {
+				executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+			} catch (final InterruptedException exception) {
+				Thread.currentThread().interrupt();
+				failure.compareAndSet(null, new RDFHandlerException(exception));
+			}
+
+			try {
+				file.close();
+			} catch (final Exception ignore) {
+				// Ignore
+			}
+		}
+
+		final Exception exception = failure.get();
+		if (exception instanceof RDFParseException) {
+			throw (RDFParseException) exception;
+		} else if (exception instanceof RDFHandlerException) {
+			throw (RDFHandlerException) exception;
+		} else if (exception instanceof IOException) {
+			throw (IOException) exception;
+		} else if (exception != null) {
+			throw new RDFHandlerException(exception);
+		}
+	}
+
+	/**
+	 * Parses a single chunk.
+	 *
+	 * @param chunk the chunk data.
+	 * @param pipeline the bulk load pipeline.
+	 * @throws IOException in case of I/O failure.
+	 * @throws RDFParseException in case of invalid data.
+	 * @throws RDFHandlerException in case of pipeline failure.
+	 */
+	void parse(final ByteBuffer chunk, final BulkLoadPipeline pipeline) throws IOException, RDFParseException, RDFHandlerException {
+		final RDFHandler handler = pipeline.newHandler();
+		try {
+			final RDFParser parser = Rio.createParser(_format);
+			parser.setValueFactory(_valueFactory);
+			parser.setPreserveBNodeIDs(true);
+			parser.setRDFHandler(handler);
+			parser.parse(new ByteBufferInputStream(chunk), BASE_URI);
+		} catch (final RDFParseException exception) {
+			// Statements parsed before the error are loaded anyway
+			handler.endRDF();
+			throw exception;
+		}
+	}
+
+	/**
+	 * Returns the target size of a chunk, for a file with the given size.
+	 *
+	 * @param fileSize the file size.
+	 * @return the target size of a chunk.
+	 */
+	long chunkSize(final long fileSize) {
+		final long size = (fileSize + _threads * CHUNKS_PER_THREAD - 1) / (_threads * CHUNKS_PER_THREAD);
+		return Math.min(MAX_CHUNK_SIZE, Math.max(MIN_CHUNK_SIZE, size));
+	}
+
+	/**
+	 * Splits the given file in line-aligned chunks.
+	 * Each chunk is a pair of offsets: start (inclusive) and end (exclusive).
+	 *
+	 * @param channel the file channel.
+	 * @param chunkSize the target size of a chunk.
+	 * @return the chunks of the given file.
+	 * @throws IOException in case of I/O failure.
+	 */
+	static List<long[]> chunks(final FileChannel channel, final long chunkSize) throws IOException {
+		final long size = channel.size();
+		final List<long[]> chunks = new ArrayList<long[]>();
+		final ByteBuffer buffer = ByteBuffer.allocate(8192);
+
+		long start = 0;
+		while (start < size) {
+			long end = Math.min(size, start + chunkSize);
+			if (end < size) {
+				end = nextLine(channel, end - 1, buffer);
+			}
+			chunks.add(new long[] {start, end});
+			start = end;
+		}
+		return chunks;
+	}
+
+	/**
+	 * Returns the offset of the line that follows the given position.
+	 *
+	 * @param channel the file channel.
+	 * @param position the position.
+	 * @param buffer a read buffer.
+	 * @return the offset of the line that follows the given position, or the file size if there's no such line.
+	 * @throws IOException in case of I/O failure.
+	 */
+	private static long nextLine(final FileChannel channel, final long position, final ByteBuffer buffer) throws IOException {
+		long offset = position;
+		while (true) {
+			buffer.clear();
+			final int read = channel.read(buffer, offset);
+			if (read <= 0) {
+				return channel.size();
+			}
+
+			for (int i = 0; i < read; i++) {
+				if (buffer.get(i) == '\n') {
+					return offset + i + 1;
+				}
+			}
+			offset += read;
+		}
+	}
+}
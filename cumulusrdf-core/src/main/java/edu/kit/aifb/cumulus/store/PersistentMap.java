@@ -209,6 +209,17 @@ public class PersistentMap<K, V> implements Initialisable {
 		return _dao.get(key);
 	}
 
+	/**
+	 * Returns the values associated with the given keys.
+	 * 
+	 * @param keys the keys.
+	 * @return the values associated with the given keys, in the same order of the input list.
+	 * @throws DataAccessLayerException in case of data access failure.
+	 */
+	public List<V> getAllQuick(final List<K> keys) throws DataAccessLayerException {
+		return _dao.getAll(keys);
+	}
+
 	/**
 	 * Returns the key associated with the given value.
 	 * 
@@ -332,6 +343,26 @@ public class PersistentMap<K, V> implements Initialisable {
 		_size = -1;
 	}
 
+	/**
+	 * Puts the given entries into this map. If a mapping already exists for a
+	 * key, it will be replaced with the new value.
+	 * <p>
+	 * In contrast to {@link #putAll}, entries are written using one batch.
+	 * 
+	 * @param m the entries to insert.
+	 * @throws DataAccessLayerException in case of data access failure.
+	 */
+	public void putAllQuick(final Map<K, V> m) throws DataAccessLayerException {
+
+		if (m.isEmpty()) {
+			return;
+		}
+
+		_dao.setAll(m);
+
+		_size = -1;
+	}
+
 	/**
 	 * Removes the entry with the given key from the map.
 	 * 
@@ -86,7 +86,7 @@ public class QuadStore extends TripleStore {
 			} else if (Util.ALL_VARS.apply(pattern)) {
 				clear();
 			} else {
-				removeDataWithIDs(queryWithIDs(pattern));
+				removeDataWithIDs(patternIDs(pattern));
 			}
 		} catch (final DataAccessLayerException exception) {
 			_log.error(MessageCatalog._00093_DATA_ACCESS_LAYER_FAILURE, exception);
@@ -98,15 +98,15 @@ public class QuadStore extends TripleStore {
 	}
 	
 	@Override
-	protected Iterator<byte[][]> queryAsIDs(final Value[] query, final int limit) throws CumulusStoreException {
-		try {
-			return queryWithIDs(_dictionary.getIDs(query[0], query[1], query[2], query.length > 3 ? query[3] : null), limit);
-		} catch (final DataAccessLayerException exception) {
-			_log.error(MessageCatalog._00093_DATA_ACCESS_LAYER_FAILURE, exception);
-			throw new CumulusStoreException(exception);
-		}	
+	protected byte[][] patternIDs(final Value[] pattern) throws DataAccessLayerException {
+		return _dictionary.getIDs(pattern[0], pattern[1], pattern[2], pattern.length > 3 ? pattern[3] : null);
 	}
 	
+	@Override
+	protected boolean isValidQuery(final byte[][] query) {
+		return query != null && query.length >= 3 && query.length <= 4;
+	}
+
 	@Override
 	public Iterator<byte[][]> queryWithIDs(final byte[][] query, final int limit) throws CumulusStoreException {
 		try {
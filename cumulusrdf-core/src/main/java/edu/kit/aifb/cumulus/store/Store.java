@@ -11,24 +11,23 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.EventObject;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
 import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
-import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.management.InstanceAlreadyExistsException;
 
@@ -36,12 +35,13 @@ import org.openrdf.model.BNode;
 import org.openrdf.model.Literal;
 import org.openrdf.model.Statement;
 import org.openrdf.model.Value;
+import org.openrdf.query.algebra.TupleExpr;
 import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.RDFHandler;
 import org.openrdf.rio.RDFHandlerException;
 import org.openrdf.rio.RDFParseException;
 import org.openrdf.rio.RDFParser;
 import org.openrdf.rio.Rio;
-import org.openrdf.rio.helpers.RDFHandlerBase;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.AbstractIterator;
@@ -65,7 +65,9 @@ import edu.kit.aifb.cumulus.log.MessageCatalog;
 import edu.kit.aifb.cumulus.store.events.AddTripleEvent;
 import edu.kit.aifb.cumulus.store.events.FinishedChangesEvent;
 import edu.kit.aifb.cumulus.store.events.StartChangesEvent;
-import edu.kit.aifb.cumulus.store.sel.HeuristicsBasedSelectivityEstimator;
+import edu.kit.aifb.cumulus.store.sel.StatisticsBasedSelectivityEstimator;
+import edu.kit.aifb.cumulus.store.sesame.QueryPlanCache;
+import edu.kit.aifb.cumulus.store.sesame.QueryResultCache;
 import edu.kit.aifb.cumulus.util.Util;
 
 /**
@@ -105,194 +107,6 @@ public abstract class Store implements Configurable<Map<String, Object>>, Manage
 		}
 	}
 
-	/**
-	 * A simple value object that encapsulates a change operation result.
-	 * 
-	 * @author Andrea Gazzarini
-	 * @since 1.0.1
-	 */
-	final class ChangeStatResult {
-		private final long _elapsed;
-		private final int _affectedCount;
-
-		/**
-		 * Builds a new result with the given data.
-		 * 
-		 * @param elapsed the elapsed time of the change.
-		 * @param affectedCount how many affected triple / quads by the change.
-		 */
-		ChangeStatResult(final long elapsed, final int affectedCount) {
-			this._elapsed = elapsed;
-			this._affectedCount = affectedCount;
-		}
-	}
-
-	/**
-	 * RDFHandler implementor for bulk data load. 
-	 * The load of data is actually done in chunks, in order to buffer and speedup the
-	 * entire process. Callers can specify the size of those chunks with the batchLimit 
-	 * parameter. 
-	 * 
-	 * @author Sebastian Schmidt
-	 * @author Andrea Gazzarini
-	 * @since 1.0
-	 */
-	final class RDFBulkLoadHandler extends RDFHandlerBase {
-
-		private final Queue<Future<ChangeStatResult>> _futures;
-		private final int _batchLimit;
-
-		private List<Statement> _statementBuffer;
-
-		private long _totalElapsed;
-		private int _estimatedCountOfInsertedStatements;
-
-		private boolean _dequeuerEnabled = true;
-		private Future<?> _dequeuerFuture;
-
-		private final Runnable _dequeuer = new Runnable() {
-
-			@Override
-			public void run() {
-				while (_dequeuerEnabled) {
-					try {
-						final Future<ChangeStatResult> future = _futures.poll();
-
-						if (future != null) {
-							final ChangeStatResult result = future.get();
-							_estimatedCountOfInsertedStatements += result._affectedCount;
-							final double ts = ((double) result._affectedCount / result._elapsed * 1000);
-							_loadWorkerThroughput.set(ts);
-							_log.debug(
-									MessageCatalog._00076_INSERT_STATS,
-									result._affectedCount,
-									result._elapsed,
-									ts);
-						}
-					} catch (final Exception exception) {
-						_log.error(MessageCatalog._00026_NWS_SYSTEM_INTERNAL_FAILURE, exception);
-					}
-				}
-			}
-		};
-
-		/**
-		 * Creates a new handler with the given threads.
-		 * 
-		 * @param batchLimit the maximum size of a chunk.
-		 */
-		public RDFBulkLoadHandler(final int batchLimit) {
-			this._batchLimit = batchLimit;
-			this._futures = new ConcurrentLinkedQueue<Future<ChangeStatResult>>();
-		}
-
-		@Override
-		public void startRDF() throws RDFHandlerException {
-			_dequeuerFuture = _workers.submit(_dequeuer);
-			_statementBuffer = new ArrayList<Statement>(_batchLimit);
-			_totalElapsed = System.currentTimeMillis();
-		}
-
-		@Override
-		public void endRDF() throws RDFHandlerException {
-			if (_dequeuerEnabled) {
-				// Terminate dequeuer
-				_dequeuerEnabled = false;
-
-				try {
-					// Wait until the dequeuer completes before continuing...
-					// This is necessary to ensure that the bulk loading has really been completed once the bulkLoad method returns.
-					// If we wouldn't do that, this method might return while the dequeuer is still executing.
-					_dequeuerFuture.get();
-				} catch (InterruptedException e) {
-					_log.error(MessageCatalog._00026_NWS_SYSTEM_INTERNAL_FAILURE, e);
-				} catch (ExecutionException e) {
-					_log.error(MessageCatalog._00026_NWS_SYSTEM_INTERNAL_FAILURE, e);
-				}
-
-				if (_statementBuffer.size() > 0) {
-					fireAddForCurrentChunk();
-				}
-
-				for (final Future<ChangeStatResult> future : _futures) {
-					try {
-						final ChangeStatResult result = future.get();
-						_estimatedCountOfInsertedStatements += result._affectedCount;
-						final double ts = ((double) result._affectedCount / result._elapsed * 1000);
-						_loadWorkerThroughput.set(ts);
-						_log.debug(
-								MessageCatalog._00076_INSERT_STATS,
-								result._affectedCount,
-								result._elapsed,
-								ts);
-					} catch (final Exception exception) {
-						_log.error(MessageCatalog._00026_NWS_SYSTEM_INTERNAL_FAILURE, exception);
-					}
-				}
-
-				_totalElapsed = System.currentTimeMillis() - _totalElapsed;
-				final double loadThroughput = ((double) _estimatedCountOfInsertedStatements / _totalElapsed * 1000);
-				_loadThroughput.set(loadThroughput);
-				_log.info(
-						MessageCatalog._00083_TOTAL_INSERT_STATS, 
-						_estimatedCountOfInsertedStatements, 
-						_totalElapsed,
-						loadThroughput);
-			}
-		}
-
-		@Override
-		public void handleStatement(final Statement statement) throws RDFHandlerException {
-			_statementBuffer.add(statement);
-
-			if (_statementBuffer.size() >= _batchLimit) {
-				fireAddForCurrentChunk();
-			}
-		}
-
-		/**
-		 * Schedules a new asynchronous task for inserting the current chunk.
-		 */
-		private void fireAddForCurrentChunk() {
-			_futures.offer(_workers.submit(new BulkInsertCallable(_statementBuffer)));
-			_statementBuffer.clear();
-		}
-	}
-
-	/**
-	 * A {@link Callable} implementation for defining a bulk insert task.
-	 * 
-	 * @author Andrea Gazzarini
-	 * @since 1.0.1
-	 */
-	class BulkInsertCallable implements Callable<ChangeStatResult> {
-		private final Iterator<Statement> _statements;
-		private final int _statementsCount;
-
-		/**
-		 * Builds a new task for a given list of statements.
-		 * 
-		 * @param statements the statement that will be inserted.
-		 */
-		public BulkInsertCallable(final List<Statement> statements) {
-			_statementsCount = statements.size();
-			_statements = new ArrayList<Statement>(statements).iterator();
-		}
-
-		/**
-		 * Executes the chunk insert.
-		 * 
-		 * @return a stat object containing (estimated) inserted triples and elapsed time.
-		 * @throws Exception if something goes wrong during the insertion.
-		 */
-		@Override
-		public ChangeStatResult call() throws Exception {
-			long begin = System.currentTimeMillis();
-			batchInsert(_statements, Integer.MAX_VALUE);
-			return new ChangeStatResult(System.currentTimeMillis() - begin, _statementsCount);
-		}
-	}
-
 	/**
 	 * Iterator used in DESCRIBE.
 	 * 
@@ -385,10 +199,31 @@ public abstract class Store implements Configurable<Map<String, Object>>, Manage
 	protected final Log _log = new Log(LoggerFactory.getLogger(getClass()));
 	protected final String _id;
 	protected TripleIndexDAO _rdfIndexDAO;
-	protected ExecutorService _workers;
 	protected int _batchLimit = 1000;
+	protected int _bulkLoadParsers = 1;
+	protected int _bulkLoadEncoders;
+	protected int _bulkLoadWriters;
+	protected int _bulkLoadQueueSize = 16;
+	protected int _bindJoinBatchSize = 32;
+	protected int _hashJoinThreshold = 10000;
+	protected int _queryThreads;
+	protected int _queryParallelism = 4;
+	protected int _queryQueueSize = 256;
+	protected int _materializationBatchSize = 256;
+	protected long _queryResultCacheSize;
+	protected int _queryResultCacheMaxResults = 10000;
+	protected int _queryResultCacheTtl;
+	QueryResultCache _queryResultCache;
+	protected int _queryPlanCacheSize;
+	QueryPlanCache<TupleExpr> _queryPlanCache;
+	ExecutorService _queryExecutor;
 	protected boolean _idxRanges;
 
+	protected String _cacheSnapshotDirectory;
+	protected int _cacheSnapshotEntries = 10000;
+	protected long _cacheSnapshotInterval = 600;
+	CacheWarmer _cacheWarmer;
+
 	protected int _insertRequests;
 	protected int _deleteRequests;
 	protected int _averageInsertedTriplesPerSec;
@@ -413,6 +248,10 @@ public abstract class Store implements Configurable<Map<String, Object>>, Manage
 
 	protected AtomicDouble _loadWorkerThroughput = new AtomicDouble();
 	protected AtomicDouble _loadThroughput = new AtomicDouble();
+	protected AtomicDouble _parseThroughput = new AtomicDouble();
+	protected AtomicDouble _encodeThroughput = new AtomicDouble();
+	protected AtomicDouble _indexWriteThroughput = new AtomicDouble();
+	protected AtomicDouble _statsThroughput = new AtomicDouble();
 	
 	protected AtomicDouble deletedTriplesPerSecond = new AtomicDouble();
 
@@ -487,6 +326,59 @@ public abstract class Store implements Configurable<Map<String, Object>>, Manage
 		return _loadThroughput.get();
 	}	
 
+	@Override
+	public double getParseThroughput() {
+		return _parseThroughput.get();
+	}
+
+	@Override
+	public double getEncodeThroughput() {
+		return _encodeThroughput.get();
+	}
+
+	@Override
+	public double getIndexWriteThroughput() {
+		return _indexWriteThroughput.get();
+	}
+
+	@Override
+	public double getStatsThroughput() {
+		return _statsThroughput.get();
+	}
+
+	@Override
+	public int snapshotDictionaryCaches() {
+		final CacheWarmer warmer = _cacheWarmer;
+		return warmer != null ? warmer.snapshot() : 0;
+	}
+
+	@Override
+	public long getWarmUpLoadedEntries() {
+		final CacheWarmer warmer = _cacheWarmer;
+		return warmer != null ? warmer.getLoadedEntries() : 0;
+	}
+
+	@Override
+	public long getWarmUpTotalEntries() {
+		final CacheWarmer warmer = _cacheWarmer;
+		return warmer != null ? warmer.getTotalEntries() : 0;
+	}
+
+	@Override
+	public double getWarmUpProgress() {
+		final CacheWarmer warmer = _cacheWarmer;
+		if (warmer == null || warmer.getTotalEntries() == 0) {
+			return 0;
+		}
+		return Math.min(100, (warmer.getLoadedEntries() * 100d) / warmer.getTotalEntries());
+	}
+
+	@Override
+	public boolean isWarmUpRunning() {
+		final CacheWarmer warmer = _cacheWarmer;
+		return warmer != null && warmer.isRunning();
+	}
+
 	@Override
 	public boolean equals(final Object anotherStore) {
 		return anotherStore != null
@@ -504,71 +396,66 @@ public abstract class Store implements Configurable<Map<String, Object>>, Manage
 
 	/**
 	 * Adds all triples or quads from the given file to the store.
+	 * Line-based formats (N-Triples, N-Quads) are parsed in parallel, if more than one 
+	 * parser thread has been configured.
 	 * 
 	 * @param file The file to read from.
 	 * @param format The format of the file.
+	 * @return the statistics of the bulk load.
 	 * @throws CumulusStoreException If an error occurs during adding the data.
 	 * @throws IOException If an error occurs during reading from the given file.
 	 */
-	public void bulkLoad(final File file, final RDFFormat format) throws CumulusStoreException, IOException {
+	public BulkLoadReport bulkLoad(final File file, final RDFFormat format) throws CumulusStoreException, IOException {
 		if (file == null || !file.canRead()) {
 			throw new FileNotFoundException(file != null ? file.getAbsolutePath() : "Null input file");
 		}
 		
-		_log.debug(MessageCatalog._00046_BATCH_BULK_LOAD_DATA_STARTS, _batchLimit);
-
-		notifyListeners(_startChangesEvent);
-
-		Reader reader = null;
-		final RDFParser rdfParser = Rio.createParser(format);
-		final RDFBulkLoadHandler handler = new RDFBulkLoadHandler(_batchLimit);
-
+		if (_bulkLoadParsers > 1 && LineBasedParallelParser.supports(format)) {
+			return bulkLoad(new LineBasedParallelParser(file, format, _bulkLoadParsers));
+		}
+		
+		final Reader reader = new BufferedReader(new FileReader(file), 8192 * 4);
 		try {
-			reader = new BufferedReader(new FileReader(file), 8192 * 4);
-			rdfParser.setRDFHandler(handler);
-			rdfParser.parse(reader, BASE_URI);
-		} catch (final RDFParseException exception) {
-			_log.debug(MessageCatalog._00029_RDF_PARSE_FAILURE, exception);
-			try {
-				handler.endRDF();
-			} catch (RDFHandlerException ignore) {
-				_log.debug(MessageCatalog._00029_RDF_PARSE_FAILURE, ignore);
-			}
-			throw new CumulusStoreException(exception);
-		} catch (final RDFHandlerException exception) {
-			_log.debug(MessageCatalog._00029_RDF_PARSE_FAILURE, exception);
-			throw new CumulusStoreException(exception);
+			return bulkLoad(new BulkLoadPipeline.Parser() {
+				@Override
+				public int threads() {
+					return 1;
+				}
+				
+				@Override
+				public void parse(final BulkLoadPipeline pipeline) throws IOException, RDFParseException, RDFHandlerException {
+					final RDFHandler handler = pipeline.newHandler();
+					try {
+						final RDFParser rdfParser = Rio.createParser(format);
+						rdfParser.setRDFHandler(handler);
+						rdfParser.parse(reader, BASE_URI);
+					} catch (final RDFParseException exception) {
+						// Statements parsed before the error are loaded anyway
+						handler.endRDF();
+						throw exception;
+					}
+				}
+			});
 		} finally {
-			
 			try {
-				handler.endRDF();
-			} catch (RDFHandlerException ignore) {
-				_log.debug(MessageCatalog._00029_RDF_PARSE_FAILURE, ignore);
-			}
-
-			if (reader != null) {
-				try {
-					reader.close();
-				} catch (final Exception ignore) {
-					// Ignore
-				}
+				reader.close();
+			} catch (final Exception ignore) {
+				// Ignore
 			}
-			notifyListeners(_finishedChangesEvent);
-		}		
+		}
 	}
 	
 	/**
-	 * Adds all triples or quads from the file at the given path to the store.<br />
-	 * This method uses 2/3 of the connected hosts threads to insert into
-	 * Cassandra.
+	 * Adds all triples or quads from the file at the given path to the store.
 	 * 
 	 * @param file The path to the file to read from.
 	 * @param format The format of the file.
+	 * @return the statistics of the bulk load.
 	 * @throws CumulusStoreException If an error occurs during adding the data.
 	 * @throws IOException If an error occurs during reading from the given file.
 	 */
-	public void bulkLoad(final String file, final RDFFormat format) throws CumulusStoreException, IOException {
-		bulkLoad(new File(file), format);
+	public BulkLoadReport bulkLoad(final String file, final RDFFormat format) throws CumulusStoreException, IOException {
+		return bulkLoad(new File(file), format);
 	}
 
 	/**
@@ -576,28 +463,274 @@ public abstract class Store implements Configurable<Map<String, Object>>, Manage
 	 * 
 	 * @param inputStream The input stream to read from.
 	 * @param format The format of the data from the input stream.
+	 * @return the statistics of the bulk load.
 	 * @throws CumulusStoreException If an error occurs during adding the data.
 	 * @throws IOException If an error occurs during reading from the given file.
 	 */
-	public void bulkLoad(final InputStream inputStream, final RDFFormat format) throws CumulusStoreException, IOException {
+	public BulkLoadReport bulkLoad(final InputStream inputStream, final RDFFormat format) throws CumulusStoreException, IOException {
+		return bulkLoad(new BulkLoadPipeline.Parser() {
+			@Override
+			public int threads() {
+				return 1;
+			}
+			
+			@Override
+			public void parse(final BulkLoadPipeline pipeline) throws IOException, RDFParseException, RDFHandlerException {
+				final RDFParser rdfParser = Rio.createParser(format);
+				rdfParser.setRDFHandler(pipeline.newHandler());
+				rdfParser.parse(inputStream, BASE_URI);
+			}
+		});
+	}
+
+	/**
+	 * Adds all triples or quads coming from the given parser to the store.
+	 * Parsed statements go through the bulk load pipeline: parse, dictionary encoding, index writes and statistics 
+	 * are executed by distinct stages connected by bounded queues.
+	 * 
+	 * @param parser the parser.
+	 * @return the statistics of the bulk load.
+	 * @throws CumulusStoreException If an error occurs during adding the data.
+	 * @throws IOException If an error occurs during reading the data.
+	 */
+	BulkLoadReport bulkLoad(final BulkLoadPipeline.Parser parser) throws CumulusStoreException, IOException {
 		_log.debug(MessageCatalog._00046_BATCH_BULK_LOAD_DATA_STARTS, _batchLimit);
 
 		notifyListeners(_startChangesEvent);
+		try {
+			final BulkLoadReport report = newBulkLoadPipeline().load(parser);
+			collect(report);
+			return report;
+		} finally {
+			notifyListeners(_finishedChangesEvent);
+		}
+	}
+
+	/**
+	 * Creates a new bulk load pipeline, according with the current configuration of this store.
+	 * 
+	 * @return a new (not yet started) bulk load pipeline.
+	 */
+	BulkLoadPipeline newBulkLoadPipeline() {
+		return new BulkLoadPipeline(
+				this, 
+				_batchLimit, 
+				_bulkLoadEncoders > 0 ? _bulkLoadEncoders : computeWorkersPoolSize(), 
+				_bulkLoadWriters > 0 ? _bulkLoadWriters : computeWorkersPoolSize(), 
+				_bulkLoadQueueSize);
+	}
+
+	/**
+	 * Collects the throughput figures of a bulk load.
+	 * 
+	 * @param report the bulk load statistics.
+	 */
+	void collect(final BulkLoadReport report) {
+		_loadThroughput.set(report.getThroughput());
+		for (final BulkLoadReport.StageStats stage : report.getStages()) {
+			if (BulkLoadPipeline.PARSE.equals(stage.getName())) {
+				_parseThroughput.set(stage.getThroughput());
+			} else if (BulkLoadPipeline.ENCODE.equals(stage.getName())) {
+				_encodeThroughput.set(stage.getThroughput());
+			} else if (BulkLoadPipeline.INDEX_WRITE.equals(stage.getName())) {
+				_indexWriteThroughput.set(stage.getThroughput());
+				_loadWorkerThroughput.set(stage.getThroughput() / stage.getThreads());
+			} else if (BulkLoadPipeline.STATS.equals(stage.getName())) {
+				_statsThroughput.set(stage.getThroughput());
+			}
+		}
+	}
 
-		final RDFParser rdfParser = Rio.createParser(format);
-		rdfParser.setRDFHandler(new RDFBulkLoadHandler(_batchLimit));
+	/**
+	 * Sets the parallelism of the bulk load pipeline.
+	 * A value that is less than 1 means "use the default", that is, {@link #computeWorkersPoolSize()}.
+	 * 
+	 * @param encoders the number of threads of the dictionary encoding stage.
+	 * @param writers the number of threads of the index write stage.
+	 */
+	public void setBulkLoadParallelism(final int encoders, final int writers) {
+		_bulkLoadEncoders = encoders;
+		_bulkLoadWriters = writers;
+	}
 
-		try {
-			rdfParser.parse(inputStream, BASE_URI);
-		} catch (final RDFParseException exception) {
-			_log.debug(MessageCatalog._00029_RDF_PARSE_FAILURE, exception);
-			throw new CumulusStoreException(exception);
-		} catch (final RDFHandlerException exception) {
-			_log.debug(MessageCatalog._00029_RDF_PARSE_FAILURE, exception);
-			throw new CumulusStoreException(exception);
+	/**
+	 * Sets the number of threads used for parsing line-based formats (N-Triples, N-Quads).
+	 * Other formats are always parsed by a single thread.
+	 * 
+	 * @param parsers the number of parser threads.
+	 */
+	public void setBulkLoadParsers(final int parsers) {
+		_bulkLoadParsers = parsers;
+	}
+
+	/**
+	 * Returns the number of bindings that a bind join collects before looking up its right-hand pattern.
+	 * 
+	 * @return the bind join batch size, a value lower than 2 disables bind joins.
+	 */
+	public int getBindJoinBatchSize() {
+		return _bindJoinBatchSize;
+	}
+
+	/**
+	 * Sets the number of bindings that a bind join collects before looking up its right-hand pattern.
+	 * 
+	 * @param batchSize the bind join batch size, a value lower than 2 disables bind joins.
+	 */
+	public void setBindJoinBatchSize(final int batchSize) {
+		_bindJoinBatchSize = batchSize;
+	}
+
+	/**
+	 * Returns the estimated cardinality above which both arguments of a join are considered large.
+	 * Joins between large arguments are evaluated as hash or merge joins instead of bind joins.
+	 * 
+	 * @return the hash join threshold, a value lower than 1 disables hash and merge joins.
+	 */
+	public int getHashJoinThreshold() {
+		return _hashJoinThreshold;
+	}
+
+	/**
+	 * Sets the estimated cardinality above which both arguments of a join are considered large.
+	 * 
+	 * @param threshold the hash join threshold, a value lower than 1 disables hash and merge joins.
+	 */
+	public void setHashJoinThreshold(final int threshold) {
+		_hashJoinThreshold = threshold;
+	}
+
+	/**
+	 * Returns the executor that evaluates independent query subtrees (e.g. UNION branches) concurrently.
+	 * 
+	 * @return the query executor, null if parallel query evaluation is disabled.
+	 */
+	public ExecutorService getQueryExecutor() {
+		return _queryExecutor;
+	}
+
+	/**
+	 * Sets the number of threads of the executor that evaluates independent query subtrees concurrently.
+	 * It must be set before opening the store.
+	 * 
+	 * @param threads the number of query threads, a value lower than 1 disables parallel query evaluation.
+	 */
+	public void setQueryThreads(final int threads) {
+		_queryThreads = threads;
+	}
+
+	/**
+	 * Returns the maximum number of subtrees that a single query evaluates concurrently.
+	 * 
+	 * @return the maximum number of subtrees that a single query evaluates concurrently.
+	 */
+	public int getQueryParallelism() {
+		return _queryParallelism;
+	}
+
+	/**
+	 * Sets the maximum number of subtrees that a single query evaluates concurrently.
+	 * 
+	 * @param parallelism the maximum number of subtrees that a single query evaluates concurrently.
+	 */
+	public void setQueryParallelism(final int parallelism) {
+		_queryParallelism = parallelism;
+	}
+
+	/**
+	 * Returns the number of results that are buffered between concurrently evaluated subtrees and their consumer.
+	 * 
+	 * @return the number of buffered results.
+	 */
+	public int getQueryQueueSize() {
+		return _queryQueueSize;
+	}
+
+	/**
+	 * Sets the number of results that are buffered between concurrently evaluated subtrees and their consumer.
+	 * 
+	 * @param size the number of buffered results.
+	 */
+	public void setQueryQueueSize(final int size) {
+		if (size > 0) {
+			_queryQueueSize = size;
 		}
+	}
+
+	/**
+	 * Returns the number of query results whose values are decoded at once, before being returned.
+	 * 
+	 * @return the materialization batch size, a value lower than 1 disables batched decoding.
+	 */
+	public int getMaterializationBatchSize() {
+		return _materializationBatchSize;
+	}
+
+	/**
+	 * Sets the number of query results whose values are decoded at once, before being returned.
+	 * 
+	 * @param batchSize the materialization batch size, a value lower than 1 disables batched decoding.
+	 */
+	public void setMaterializationBatchSize(final int batchSize) {
+		_materializationBatchSize = batchSize;
+	}
+
+	/**
+	 * Returns the cache of query results.
+	 * 
+	 * @return the cache of query results, null if query results are not cached.
+	 */
+	public QueryResultCache getQueryResultCache() {
+		return _queryResultCache;
+	}
+
+	/**
+	 * Returns the maximum number of query plans that are cached.
+	 * 
+	 * @return the maximum number of query plans that are cached, a value lower than 1 means plans are not cached.
+	 */
+	public int getQueryPlanCacheSize() {
+		return _queryPlanCacheSize;
+	}
+
+	/**
+	 * Returns the cache of optimized query plans.
+	 * 
+	 * @return the cache of optimized query plans, null if query plans are not cached.
+	 */
+	public QueryPlanCache<TupleExpr> getQueryPlanCache() {
+		return _queryPlanCache;
+	}
 
-		notifyListeners(_finishedChangesEvent);
+	/**
+	 * Returns the member the results of a given query are sorted by, if any.
+	 * 
+	 * @param query the triple / quad pattern (as identifiers).
+	 * @return the position of the member the results of the given query are sorted by, -1 if results are not sorted.
+	 * @see #getIdentifiersOrder()
+	 */
+	public int sortedBy(final byte[][] query) {
+		return _rdfIndexDAO.sortedBy(query);
+	}
+
+	/**
+	 * Returns the order of identifiers in sorted query results.
+	 * 
+	 * @return the order of identifiers in sorted query results.
+	 */
+	public Comparator<byte[]> getIdentifiersOrder() {
+		return _rdfIndexDAO.getIdentifiersOrder();
+	}
+
+	/**
+	 * Sets the capacity of the queues between the stages of the bulk load pipeline.
+	 * 
+	 * @param chunks the capacity of the queues, in terms of chunks.
+	 */
+	public void setBulkLoadQueueSize(final int chunks) {
+		if (chunks > 0) {
+			_bulkLoadQueueSize = chunks;
+		}
 	}
 
 	/**
@@ -617,6 +750,26 @@ public abstract class Store implements Configurable<Map<String, Object>>, Manage
 			return;
 		}
 
+		if (_cacheWarmer != null) {
+			_cacheWarmer.stop();
+			_cacheWarmer = null;
+		}
+
+		if (_queryExecutor != null) {
+			_queryExecutor.shutdownNow();
+			_queryExecutor = null;
+		}
+
+		if (_queryResultCache != null) {
+			ManagementRegistrar.unregisterQueryResultCache(_queryResultCache);
+			_queryResultCache = null;
+		}
+
+		if (_queryPlanCache != null) {
+			ManagementRegistrar.unregisterQueryPlanCache(_queryPlanCache);
+			_queryPlanCache = null;
+		}
+
 		if (_selectEstimator != null) {
 			_selectEstimator.close();
 		}
@@ -636,8 +789,6 @@ public abstract class Store implements Configurable<Map<String, Object>>, Manage
 				String.valueOf(storageLayout()), 
 				getDataAccessLayerFactory().getUnderlyingStorageInfo());
 
-		_workers.shutdown();
-
 		_dictionary.close();
 		
 		_log.info(MessageCatalog._00085_STORE_HAS_BEEN_CLOSED, this);
@@ -771,7 +922,7 @@ public abstract class Store implements Configurable<Map<String, Object>>, Manage
 		_configurator.configure(this);
 
 		try {
-			_dictionary = Dictionaries.newDefaultDictionary(_configurator);
+			_dictionary = Dictionaries.newDictionary(_configurator);
 			
 			_rdfIndexDAO = getRdfIndexDAO();
 			_rdfIndexDAO.initialiseRdfIndex();
@@ -797,7 +948,14 @@ public abstract class Store implements Configurable<Map<String, Object>>, Manage
 			throw new CumulusStoreException(exception);
 		}
 		
-		_selectEstimator = new HeuristicsBasedSelectivityEstimator(getCounterFactory());
+		try {
+			_selectEstimator = new StatisticsBasedSelectivityEstimator(getCounterFactory(), _dictionary);
+			_selectEstimator.initialise(_factory);
+		} catch (final InitialisationException exception) {
+			_log.error(MessageCatalog._00120_SELECTIVITY_ESTIMATOR_INIT_FAILURE, exception);
+			throw new CumulusStoreException(exception);
+		}
+		
 		_status = new StatusListener();
 		_changeListeners = new LinkedList<ITriplesChangesListener>();
 		_changeListeners.add(_selectEstimator);
@@ -805,18 +963,64 @@ public abstract class Store implements Configurable<Map<String, Object>>, Manage
 		
 		openInternal();
 
-		final int howManyWorkers = computeWorkersPoolSize();
+		if (_cacheSnapshotDirectory != null && _cacheSnapshotDirectory.trim().length() > 0) {
+			_cacheWarmer = new CacheWarmer(_dictionary, new File(_cacheSnapshotDirectory), _cacheSnapshotEntries, _cacheSnapshotInterval);
+			_cacheWarmer.start();
+		}
 
-		final RejectedExecutionHandler rejectedExecutionHandler = new ThreadPoolExecutor.CallerRunsPolicy();
-		_workers = new ThreadPoolExecutor(
-				howManyWorkers,
-				howManyWorkers,
-				0L, TimeUnit.MILLISECONDS,
-				new ArrayBlockingQueue<Runnable>(100),
-				rejectedExecutionHandler);
+		if (_queryThreads > 0) {
+			// Tasks are handed off directly to idle threads, never queued: when all the threads are busy, 
+			// the executor rejects new tasks and queries evaluate their subtrees on the calling thread.
+			final AtomicInteger counter = new AtomicInteger();
+			_queryExecutor = new ThreadPoolExecutor(
+					_queryThreads, 
+					_queryThreads, 
+					0L, 
+					TimeUnit.MILLISECONDS, 
+					new SynchronousQueue<Runnable>(), 
+					new ThreadFactory() {
+						@Override
+						public Thread newThread(final Runnable task) {
+							final Thread thread = new Thread(task, "cumulusrdf-query-" + counter.incrementAndGet());
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+		}
+
+		if (_queryResultCacheSize > 0) {
+			_queryResultCache = new QueryResultCache(
+					_id, 
+					_dictionary, 
+					_queryResultCacheSize, 
+					_queryResultCacheMaxResults, 
+					TimeUnit.SECONDS.toMillis(_queryResultCacheTtl));
+			_changeListeners.add(_queryResultCache);
+			try {
+				ManagementRegistrar.registerQueryResultCache(_queryResultCache);
+			} catch (InstanceAlreadyExistsException exception) {
+				_log.error(MessageCatalog._00111_MBEAN_ALREADY_REGISTERED, _queryResultCache.getId());
+				throw new CumulusStoreException(exception);
+			} catch (final Exception exception) {
+				_log.error(MessageCatalog._00109_UNABLE_TO_REGISTER_MBEAN, exception, _queryResultCache.getId());
+				throw new CumulusStoreException(exception);
+			}
+		}
+
+		if (_queryPlanCacheSize > 0) {
+			_queryPlanCache = new QueryPlanCache<TupleExpr>(_id, _queryPlanCacheSize);
+			_changeListeners.add(_queryPlanCache);
+			try {
+				ManagementRegistrar.registerQueryPlanCache(_queryPlanCache);
+			} catch (InstanceAlreadyExistsException exception) {
+				_log.error(MessageCatalog._00111_MBEAN_ALREADY_REGISTERED, _queryPlanCache.getId());
+				throw new CumulusStoreException(exception);
+			} catch (final Exception exception) {
+				_log.error(MessageCatalog._00109_UNABLE_TO_REGISTER_MBEAN, exception, _queryPlanCache.getId());
+				throw new CumulusStoreException(exception);
+			}
+		}
 
-		_log.info(MessageCatalog._00047_BATCH_BULK_LOAD_DATA_THREAD_POOL_SIZE, howManyWorkers);
-		
 		_isOpen = true;
 		_log.info(MessageCatalog._00052_STORE_OPEN);
 	}
@@ -890,6 +1094,16 @@ public abstract class Store implements Configurable<Map<String, Object>>, Manage
 	 */
 	protected abstract Iterator<byte[][]> queryWithIDs(byte[][] query, int limit) throws CumulusStoreException;
 
+	/**
+	 * Same as {@link #queryWithIDs(byte[][])}, but executes a batch of queries.
+	 * All queries are issued before returning, so that they can be served concurrently.
+	 * 
+	 * @param queries the triple / quad patterns.
+	 * @throws CumulusStoreException If an error occurred while executing the queries.
+	 * @return a list of iterators, the i-th iterator contains the results (as identifiers) of the i-th query.
+	 */
+	public abstract List<Iterator<byte[][]>> queryWithIDs(List<byte[][]> queries) throws CumulusStoreException;
+
 	/**
 	 * Same as {@link query(Value[])}, but takes node ids instead of plain nodes.
 	 * 
@@ -1104,6 +1318,12 @@ public abstract class Store implements Configurable<Map<String, Object>>, Manage
 	 */
 	public void clear() {
 		_rdfIndexDAO.clear();
+		if (_queryResultCache != null) {
+			_queryResultCache.clear();
+		}
+		if (_queryPlanCache != null) {
+			_queryPlanCache.clear();
+		}
 	}
 
 	/**
@@ -1143,53 +1363,106 @@ public abstract class Store implements Configurable<Map<String, Object>>, Manage
 	void batchInsert(final Iterator<Statement> nodes, final int batchSize) throws DataAccessLayerException {
 
 		final List<byte[][]> triples = new ArrayList<byte[][]>(Math.min(1000, batchSize));
+		final List<Statement> chunk = new ArrayList<Statement>(Math.min(1000, batchSize));
 
 		while (nodes.hasNext()) {
+			chunk.clear();
 			for (int i = 0; i < batchSize && nodes.hasNext(); i++) {
+				chunk.add(nodes.next());
+			}
 
-				byte[][] ids;
-				final Statement statement = nodes.next();
-
-				ids = (statement.getContext() != null)
-						? _dictionary.getIDs(
-								statement.getSubject(),
-								statement.getPredicate(),
-								statement.getObject(),
-								statement.getContext())
-						: _dictionary.getIDs(
-								statement.getSubject(),
-								statement.getPredicate(),
-								statement.getObject());
-
-				_rdfIndexDAO.insertTriple(ids);
-
-				if (_idxRanges && statement.getObject() instanceof Literal) {
-					final Literal literal = (Literal) statement.getObject();
-					if (NUMERIC_RANGETYPES.contains(literal.getDatatype())) {
-						try {
-
-							double value = Double.parseDouble(literal.getLabel());
-							_rdfIndexDAO.insertRanges(ids, value);
-						} catch (final NumberFormatException exception) {
-							_log.error(MessageCatalog._00059_BAD_DOUBLE_VALUE, exception, literal);
-						}
-					} else if (DATETIME_RANGETYPES.contains(literal.getDatatype())) {
-						try {
+			final List<byte[][]> chunkIds = encode(chunk);
+			final List<byte[][]> added = newTriples(chunkIds);
+			write(chunk, chunkIds);
+			triples.addAll(added);
+		}
 
-							long value = Util.parseXMLSchemaDateTimeAsMSecs(literal);
-							_rdfIndexDAO.insertRanges(ids, value);
-						} catch (final NumberFormatException exception) {
-							_log.error(MessageCatalog._00060_BAD_LITERAL_VALUE, exception, literal);
-						}
+		notifyListeners(new AddTripleEvent(DUMMY_SOURCE_EVENT, triples));
+	}
+
+	/**
+	 * Translates a chunk of triples/quads into identifiers.
+	 * 
+	 * @param statements the triples/quads.
+	 * @return the identifiers of the given triples/quads, in the same order.
+	 * @throws DataAccessLayerException in case of data access failure.
+	 */
+	List<byte[][]> encode(final List<Statement> statements) throws DataAccessLayerException {
+		return _dictionary.getIDs(statements);
+	}
+
+	/**
+	 * Returns the triples/quads of a chunk that are not in the store yet.
+	 * Re-inserting an existing triple (or repeating it in the same chunk) doesn't change the store,
+	 * so listeners (e.g. statistics) must not be notified of it.
+	 * All lookups are issued at once, so that they can be served concurrently.
+	 *
+	 * @param ids the identifiers of a chunk of triples/quads.
+	 * @return the identifiers of the triples/quads that are not in the store yet, in the same order.
+	 * @throws DataAccessLayerException in case of data access failure.
+	 */
+	List<byte[][]> newTriples(final List<byte[][]> ids) throws DataAccessLayerException {
+		final Set<List<ByteBuffer>> seen = new HashSet<List<ByteBuffer>>(ids.size() * 2);
+		final List<byte[][]> distinct = new ArrayList<byte[][]>(ids.size());
+		for (final byte[][] triple : ids) {
+			final List<ByteBuffer> key = new ArrayList<ByteBuffer>(triple.length);
+			for (final byte[] id : triple) {
+				key.add(ByteBuffer.wrap(id));
+			}
+
+			if (seen.add(key)) {
+				distinct.add(triple);
+			}
+		}
+
+		final List<Iterator<byte[][]>> existing = _rdfIndexDAO.query(distinct, Integer.MAX_VALUE);
+		final List<byte[][]> added = new ArrayList<byte[][]>(distinct.size());
+		for (int i = 0; i < distinct.size(); i++) {
+			if (!existing.get(i).hasNext()) {
+				added.add(distinct.get(i));
+			}
+		}
+		return added;
+	}
+
+	/**
+	 * Writes a chunk of (already encoded) triples/quads in the store indexes.
+	 *
+	 * @param statements the triples/quads.
+	 * @param ids the identifiers of the given triples/quads, in the same order.
+	 * @throws DataAccessLayerException in case of data access failure.
+	 */
+	void write(final List<Statement> statements, final List<byte[][]> ids) throws DataAccessLayerException {
+		for (int i = 0; i < ids.size(); i++) {
+
+			final byte[][] tripleIds = ids.get(i);
+			final Statement statement = statements.get(i);
+
+			_rdfIndexDAO.insertTriple(tripleIds);
+
+			if (_idxRanges && statement.getObject() instanceof Literal) {
+				final Literal literal = (Literal) statement.getObject();
+				if (NUMERIC_RANGETYPES.contains(literal.getDatatype())) {
+					try {
+
+						double value = Double.parseDouble(literal.getLabel());
+						_rdfIndexDAO.insertRanges(tripleIds, value);
+					} catch (final NumberFormatException exception) {
+						_log.error(MessageCatalog._00059_BAD_DOUBLE_VALUE, exception, literal);
+					}
+				} else if (DATETIME_RANGETYPES.contains(literal.getDatatype())) {
+					try {
+
+						long value = Util.parseXMLSchemaDateTimeAsMSecs(literal);
+						_rdfIndexDAO.insertRanges(tripleIds, value);
+					} catch (final NumberFormatException exception) {
+						_log.error(MessageCatalog._00060_BAD_LITERAL_VALUE, exception, literal);
 					}
 				}
-				triples.add(ids);
 			}
-
-			_rdfIndexDAO.executePendingMutations();
 		}
 
-		notifyListeners(new AddTripleEvent(DUMMY_SOURCE_EVENT, triples));
+		_rdfIndexDAO.executePendingMutations();
 	}
 
 	/**
@@ -3,6 +3,7 @@ package edu.kit.aifb.cumulus.store;
 import static edu.kit.aifb.cumulus.util.Util.isVariable;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -173,7 +174,7 @@ public class TripleStore extends Store {
 	@Override
 	protected Iterator<byte[][]> queryAsIDs(final Value[] query, final int limit) throws CumulusStoreException {
 		try {
-			return queryWithIDs(_dictionary.getIDs(query[0], query[1], query[2]), limit);
+			return queryWithIDs(patternIDs(query), limit);
 		} catch (final DataAccessLayerException exception) {
 			_log.error(MessageCatalog._00093_DATA_ACCESS_LAYER_FAILURE, exception);
 			throw new CumulusStoreException(exception);
@@ -185,6 +186,41 @@ public class TripleStore extends Store {
 		return queryWithIDs(query, Integer.MAX_VALUE);
 	}
 
+	@Override
+	public List<Iterator<byte[][]>> queryWithIDs(final List<byte[][]> queries) throws CumulusStoreException {
+		try {
+			final List<byte[][]> validQueries = new ArrayList<byte[][]>(queries.size());
+			for (final byte[][] query : queries) {
+				if (isValidQuery(query)) {
+					validQueries.add(query);
+				}
+			}
+
+			final Iterator<Iterator<byte[][]>> validResults = _rdfIndexDAO.query(validQueries, Integer.MAX_VALUE).iterator();
+			final List<Iterator<byte[][]>> results = new ArrayList<Iterator<byte[][]>>(queries.size());
+			for (final byte[][] query : queries) {
+				results.add(isValidQuery(query) ? validResults.next() : Iterators.<byte[][]>emptyIterator());
+			}
+			return results;
+		} catch (final DataAccessLayerException exception) {
+			_log.error(MessageCatalog._00093_DATA_ACCESS_LAYER_FAILURE, exception);
+			throw new CumulusStoreException(exception);
+		} catch (final Exception exception) {
+			_log.error(MessageCatalog._00026_NWS_SYSTEM_INTERNAL_FAILURE, exception);
+			throw new CumulusStoreException(exception);
+		}
+	}
+
+	/**
+	 * Returns true if the given pattern can be executed by this store.
+	 * 
+	 * @param query the pattern.
+	 * @return true if the given pattern can be executed by this store.
+	 */
+	protected boolean isValidQuery(final byte[][] query) {
+		return query != null && query.length >= 3;
+	}
+
 	@Override
 	protected Iterator<byte[][]> queryWithIDs(final byte[][] query, final int limit) throws CumulusStoreException {
 		try {
@@ -301,7 +337,7 @@ public class TripleStore extends Store {
 			} else if (Util.ALL_VARS.apply(pattern)) {
 				clear();
 			} else {
-				removeDataWithIDs(queryWithIDs(pattern));
+				removeDataWithIDs(patternIDs(pattern));
 			}
 		} catch (final DataAccessLayerException exception) {
 			_log.error(MessageCatalog._00093_DATA_ACCESS_LAYER_FAILURE, exception);
@@ -347,6 +383,25 @@ public class TripleStore extends Store {
 		if (!isRangeIndexesSupportEnabled()) {
 			_idxRanges = configuration.getAttribute("storage-index-ranges", Boolean.FALSE);
 		}
+
+		_bulkLoadParsers = configuration.getAttribute("bulk-load-parser-threads", _bulkLoadParsers);
+		_bulkLoadEncoders = configuration.getAttribute("bulk-load-encoder-threads", _bulkLoadEncoders);
+		_bulkLoadWriters = configuration.getAttribute("bulk-load-writer-threads", _bulkLoadWriters);
+		setBulkLoadQueueSize(configuration.getAttribute("bulk-load-queue-size", _bulkLoadQueueSize));
+		_bindJoinBatchSize = configuration.getAttribute("bind-join-batch-size", _bindJoinBatchSize);
+		_hashJoinThreshold = configuration.getAttribute("hash-join-threshold", _hashJoinThreshold);
+		_queryThreads = configuration.getAttribute("query-threads", _queryThreads);
+		_queryParallelism = configuration.getAttribute("query-parallelism", _queryParallelism);
+		setQueryQueueSize(configuration.getAttribute("query-queue-size", _queryQueueSize));
+		_materializationBatchSize = configuration.getAttribute("materialization-batch-size", _materializationBatchSize);
+		_queryResultCacheSize = configuration.getAttribute("query-result-cache-size", (Number) _queryResultCacheSize).longValue();
+		_queryResultCacheMaxResults = configuration.getAttribute("query-result-cache-max-results", _queryResultCacheMaxResults);
+		_queryResultCacheTtl = configuration.getAttribute("query-result-cache-ttl", _queryResultCacheTtl);
+		_queryPlanCacheSize = configuration.getAttribute("query-plan-cache-size", _queryPlanCacheSize);
+
+		_cacheSnapshotDirectory = configuration.getAttribute("dictionary-cache-snapshot-directory", _cacheSnapshotDirectory);
+		_cacheSnapshotEntries = configuration.getAttribute("dictionary-cache-snapshot-entries", _cacheSnapshotEntries);
+		_cacheSnapshotInterval = configuration.getAttribute("dictionary-cache-snapshot-interval", (Number) _cacheSnapshotInterval).longValue();
 	}
 
 	/**
@@ -368,24 +423,40 @@ public class TripleStore extends Store {
 	/**
 	 * Deletes the given triples/quads from the store.
 	 * The triples/quads are represented as ids.
+	 * Triples are deleted (and notified to listeners) in windows of batchSize triples, 
+	 * so that the deleted triples are never held in memory all at once.
 	 * 
 	 * @param nodes an iterator iterating over the triples/quads to delete.
 	 * @param batchSize the maximum size of a batch query.
 	 * @throws DataAccessLayerException in case of data access failure.
 	 */
 	void batchDeleteWithIDs(final Iterator<byte[][]> nodes, final int batchSize) throws DataAccessLayerException {
-		List<byte[][]> deleted = null;
-		try {
-			deleted = _rdfIndexDAO.deleteTriples(nodes, batchSize, _idxRanges);
-		} catch (final Exception exception) {
-			_log.error(MessageCatalog._00055_DELETION_FAILURE, exception);
-		}
+		while (nodes.hasNext()) {
+			List<byte[][]> deleted = null;
+			try {
+				deleted = _rdfIndexDAO.deleteTriples(Iterators.limit(nodes, batchSize), batchSize, _idxRanges);
+			} catch (final Exception exception) {
+				_log.error(MessageCatalog._00055_DELETION_FAILURE, exception);
+				return;
+			}
 
-		if (deleted != null && !deleted.isEmpty()) {
-			notifyListeners(new RemoveTriplesEvent(this, deleted));
+			if (deleted != null && !deleted.isEmpty()) {
+				notifyListeners(new RemoveTriplesEvent(this, deleted));
+			}
 		}
 	}
 
+	/**
+	 * Returns the identifiers of the given pattern.
+	 * 
+	 * @param pattern the triple pattern.
+	 * @return the identifiers of the given pattern, where variables are null.
+	 * @throws DataAccessLayerException in case of data access failure.
+	 */
+	protected byte[][] patternIDs(final Value[] pattern) throws DataAccessLayerException {
+		return _dictionary.getIDs(pattern[0], pattern[1], pattern[2]);
+	}
+
 
 	@Override
 	TripleIndexDAO getRdfIndexDAO() {
@@ -0,0 +1,205 @@
+package edu.kit.aifb.cumulus.store.dict.impl.cache;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reads and writes snapshots of a pair of dictionary caches (identifier to value and value to identifier).
+ *
+ * A snapshot is a header (magic number, version, a signature of the owner cache and the entries count) followed by
+ * the hottest entries of both caches. Each entry is written once, together with flags that indicate the cache(s)
+ * it comes from, so that it can be preloaded exactly where it was.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+public final class CacheSnapshot {
+
+	static final int MAGIC = 0xCD1C7CAC;
+	static final byte VERSION = 1;
+
+	static final byte ID_CACHE = 1;
+	static final byte VALUE_CACHE = 2;
+
+	/**
+	 * Decides if an entry read from a snapshot can be loaded into a cache.
+	 *
+	 * @author agent
+	 * @since 1.1.0
+	 * @param <V> the value kind.
+	 */
+	public interface Filter<V> {
+
+		/**
+		 * Returns true if the given entry can be loaded.
+		 *
+		 * @param id the identifier.
+		 * @param value the value.
+		 * @return true if the given entry can be loaded.
+		 */
+		boolean accept(byte[] id, V value);
+	}
+
+	/**
+	 * No instantiation allowed.
+	 */
+	private CacheSnapshot() {
+		// Nothing
+	}
+
+	/**
+	 * Writes a snapshot with the hottest entries of a pair of caches.
+	 *
+	 * @param out the output stream.
+	 * @param signature the signature of the owner cache.
+	 * @param id2value the identifier to value cache.
+	 * @param value2id the value to identifier cache.
+	 * @param marshaller the marshaller used for writing values.
+	 * @param limit the maximum number of entries that will be taken from each cache.
+	 * @return the number of entries that have been written.
+	 * @throws IOException in case of I/O failure.
+	 * @param <V> the value kind.
+	 */
+	public static <V> int write(
+			final DataOutputStream out,
+			final String signature,
+			final TinyLfuCache<ByteBuffer, V> id2value,
+			final TinyLfuCache<V, byte[]> value2id,
+			final Marshaller<V> marshaller,
+			final int limit) throws IOException {
+		final Map<ByteBuffer, V> values = new LinkedHashMap<ByteBuffer, V>();
+		final Map<ByteBuffer, Byte> flags = new LinkedHashMap<ByteBuffer, Byte>();
+
+		for (final Entry<ByteBuffer, V> entry : id2value.hottest(limit)) {
+			values.put(entry.getKey(), entry.getValue());
+			flags.put(entry.getKey(), ID_CACHE);
+		}
+
+		for (final Entry<V, byte[]> entry : value2id.hottest(limit)) {
+			final ByteBuffer id = ByteBuffer.wrap(entry.getValue());
+			final Byte previous = flags.get(id);
+			if (previous == null) {
+				values.put(id, entry.getKey());
+				flags.put(id, VALUE_CACHE);
+			} else if (entry.getKey().equals(values.get(id))) {
+				flags.put(id, (byte) (previous | VALUE_CACHE));
+			}
+		}
+
+		out.writeInt(MAGIC);
+		out.writeByte(VERSION);
+		out.writeUTF(signature);
+		out.writeInt(values.size());
+
+		for (final Entry<ByteBuffer, V> entry : values.entrySet()) {
+			final ByteBuffer id = entry.getKey();
+			final byte[] value = marshaller.marshal(entry.getValue());
+
+			out.writeByte(flags.get(id));
+			out.writeInt(id.remaining());
+			out.write(id.array(), id.arrayOffset() + id.position(), id.remaining());
+			out.writeInt(value.length);
+			out.write(value);
+		}
+		return values.size();
+	}
+
+	/**
+	 * Preloads a pair of caches with the entries of a snapshot.
+	 * Entries that are already cached are left untouched.
+	 *
+	 * @param in the input stream.
+	 * @param signature the signature of the owner cache.
+	 * @param id2value the identifier to value cache.
+	 * @param value2id the value to identifier cache.
+	 * @param marshaller the marshaller used for reading values.
+	 * @param filter the filter that decides which entries will be loaded.
+	 * @param progress a counter incremented for each entry read from the snapshot.
+	 * @return the number of entries that have been loaded, -1 if the snapshot doesn't belong to the owner cache.
+	 * @throws IOException in case of I/O failure.
+	 * @param <V> the value kind.
+	 */
+	public static <V> int read(
+			final DataInputStream in,
+			final String signature,
+			final TinyLfuCache<ByteBuffer, V> id2value,
+			final TinyLfuCache<V, byte[]> value2id,
+			final Marshaller<V> marshaller,
+			final Filter<V> filter,
+			final AtomicLong progress) throws IOException {
+		final int count = readHeader(in, signature);
+		if (count < 0) {
+			return -1;
+		}
+
+		int loaded = 0;
+		for (int i = 0; i < count; i++) {
+			final byte flags = in.readByte();
+			final byte[] id = new byte[in.readInt()];
+			in.readFully(id);
+			final byte[] data = new byte[in.readInt()];
+			in.readFully(data);
+			progress.incrementAndGet();
+
+			final V value = marshaller.unmarshal(data);
+			if (!filter.accept(id, value)) {
+				continue;
+			}
+
+			if ((flags & ID_CACHE) != 0) {
+				id2value.putIfAbsent(ByteBuffer.wrap(id), value);
+			}
+
+			if ((flags & VALUE_CACHE) != 0) {
+				value2id.putIfAbsent(value, id);
+			}
+			loaded++;
+		}
+		return loaded;
+	}
+
+	/**
+	 * Returns the number of entries in a snapshot file.
+	 *
+	 * @param file the snapshot file.
+	 * @return the number of entries in the given snapshot file, 0 if the file is not a valid snapshot.
+	 * @throws IOException in case of I/O failure.
+	 */
+	public static int entriesCount(final File file) throws IOException {
+		final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			return Math.max(0, readHeader(in, null));
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Reads the header of a snapshot.
+	 *
+	 * @param in the input stream.
+	 * @param signature the expected signature, null if any signature is accepted.
+	 * @return the number of entries in the snapshot, -1 if the snapshot is not valid or doesn't match the given signature.
+	 * @throws IOException in case of I/O failure.
+	 */
+	static int readHeader(final DataInputStream in, final String signature) throws IOException {
+		if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+			return -1;
+		}
+
+		final String actualSignature = in.readUTF();
+		if (signature != null && !signature.equals(actualSignature)) {
+			return -1;
+		}
+		return in.readInt();
+	}
+}
@@ -0,0 +1,125 @@
+package edu.kit.aifb.cumulus.store.dict.impl.cache;
+
+/**
+ * A Count-Min sketch that estimates the popularity of keys, within a sliding (aging) window.
+ * Each key is mapped to four 4-bits counters; its frequency is the minimum of those counters.
+ * Once the number of recorded accesses reaches a sample size (10 times the capacity), all counters are halved,
+ * so the sketch forgets keys that were popular long ago.
+ *
+ * Not thread-safe: the owning cache is supposed to access it under its eviction lock.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+final class FrequencySketch {
+
+	static final long[] SEEDS = {
+		0xc3a5c85c97cb3127L,
+		0xb492b66fbe98f273L,
+		0x9ae16a3b2f90404fL,
+		0xcbf29ce484222325L};
+
+	static final long RESET_MASK = 0x7777777777777777L;
+	static final int MAX_FREQUENCY = 15;
+
+	private long[] _table = new long[0];
+	private int _mask;
+	private int _sampleSize;
+	private int _size;
+
+	/**
+	 * Resizes the sketch, if needed, so that it can track the given number of keys.
+	 * A resize drops all collected statistics.
+	 *
+	 * @param capacity the expected number of keys.
+	 */
+	void ensureCapacity(final long capacity) {
+		final int maximum = (int) Math.min(Math.max(capacity, 16), 1 << 30);
+		if (_table.length >= maximum) {
+			return;
+		}
+
+		_table = new long[Integer.highestOneBit(maximum - 1) << 1];
+		_mask = _table.length - 1;
+		_sampleSize = 10 * maximum;
+		_size = 0;
+	}
+
+	/**
+	 * Returns the estimated number of occurrences of the given key, up to {@link #MAX_FREQUENCY}.
+	 *
+	 * @param hashCode the key hash code.
+	 * @return the estimated number of occurrences of the given key.
+	 */
+	int frequency(final int hashCode) {
+		final int hash = spread(hashCode);
+		final int start = (hash & 3) << 2;
+		int frequency = MAX_FREQUENCY;
+		for (int i = 0; i < SEEDS.length; i++) {
+			final int offset = (start + i) << 2;
+			final int count = (int) ((_table[indexOf(hash, i)] >>> offset) & 0xFL);
+			frequency = Math.min(frequency, count);
+		}
+		return frequency;
+	}
+
+	/**
+	 * Records an occurrence of the given key.
+	 *
+	 * @param hashCode the key hash code.
+	 */
+	void increment(final int hashCode) {
+		final int hash = spread(hashCode);
+		final int start = (hash & 3) << 2;
+
+		boolean added = false;
+		for (int i = 0; i < SEEDS.length; i++) {
+			final int index = indexOf(hash, i);
+			final int offset = (start + i) << 2;
+			final long mask = 0xFL << offset;
+			if ((_table[index] & mask) != mask) {
+				_table[index] += 1L << offset;
+				added = true;
+			}
+		}
+
+		if (added && ++_size == _sampleSize) {
+			reset();
+		}
+	}
+
+	/**
+	 * Halves all counters.
+	 */
+	private void reset() {
+		for (int i = 0; i < _table.length; i++) {
+			_table[i] = (_table[i] >>> 1) & RESET_MASK;
+		}
+		_size >>>= 1;
+	}
+
+	/**
+	 * Returns the table index of the i-th counter of a given (spread) hash.
+	 *
+	 * @param hash the spread hash.
+	 * @param i the counter index.
+	 * @return the table index of the i-th counter.
+	 */
+	private int indexOf(final int hash, final int i) {
+		long h = (hash + SEEDS[i]) * SEEDS[i];
+		h += h >>> 32;
+		return ((int) h) & _mask;
+	}
+
+	/**
+	 * Applies a supplemental hash function, in order to defend against poor quality hash codes.
+	 *
+	 * @param hashCode the key hash code.
+	 * @return the spread hash.
+	 */
+	private static int spread(final int hashCode) {
+		int h = ((hashCode >>> 16) ^ hashCode) * 0x45d9f3b;
+		h = ((h >>> 16) ^ h) * 0x45d9f3b;
+		return (h >>> 16) ^ h;
+	}
+}
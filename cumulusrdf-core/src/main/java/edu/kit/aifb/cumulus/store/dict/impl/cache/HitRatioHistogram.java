@@ -0,0 +1,103 @@
+package edu.kit.aifb.cumulus.store.dict.impl.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Distribution of the hit ratio of a cache over time.
+ * Lookups are grouped in fixed intervals (1 second by default); once an interval is over, its hit ratio falls
+ * into one of {@link #BUCKETS} buckets ([0%, 10%), [10%, 20%), ..., [90%, 100%]), whose counter is incremented.
+ * So, a cache that works well has most of its intervals in the last buckets, while a scan shows up as a
+ * (temporary) shift towards the first buckets.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+public class HitRatioHistogram {
+
+	public static final int BUCKETS = 10;
+	static final long DEFAULT_INTERVAL = 1000;
+
+	private final long _interval;
+	private final AtomicLongArray _buckets = new AtomicLongArray(BUCKETS);
+	private final AtomicLong _hits = new AtomicLong();
+	private final AtomicLong _lookups = new AtomicLong();
+	private volatile long _intervalStart = System.currentTimeMillis();
+
+	/**
+	 * Builds a new histogram with 1 second intervals.
+	 */
+	public HitRatioHistogram() {
+		this(DEFAULT_INTERVAL);
+	}
+
+	/**
+	 * Builds a new histogram.
+	 *
+	 * @param interval the sampling interval, in milliseconds.
+	 */
+	public HitRatioHistogram(final long interval) {
+		_interval = interval;
+	}
+
+	/**
+	 * Records a cache lookup.
+	 *
+	 * @param hit true if the lookup found a cached entry.
+	 */
+	public void record(final boolean hit) {
+		record(hit ? 1 : 0, 1);
+	}
+
+	/**
+	 * Records several cache lookups.
+	 *
+	 * @param hits how many lookups found a cached entry.
+	 * @param lookups the total number of lookups.
+	 */
+	public void record(final long hits, final long lookups) {
+		final long now = System.currentTimeMillis();
+		if (now - _intervalStart >= _interval) {
+			roll(now);
+		}
+
+		_lookups.addAndGet(lookups);
+		if (hits > 0) {
+			_hits.addAndGet(hits);
+		}
+	}
+
+	/**
+	 * Returns the number of intervals in each hit ratio bucket.
+	 * The interval currently in progress is not included.
+	 *
+	 * @return the number of intervals in each hit ratio bucket.
+	 */
+	public long[] buckets() {
+		roll(System.currentTimeMillis());
+
+		final long[] result = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			result[i] = _buckets.get(i);
+		}
+		return result;
+	}
+
+	/**
+	 * Closes the current interval, if it is over.
+	 *
+	 * @param now the current time.
+	 */
+	private synchronized void roll(final long now) {
+		if (now - _intervalStart < _interval) {
+			return;
+		}
+
+		_intervalStart = now;
+		final long lookups = _lookups.getAndSet(0);
+		final long hits = _hits.getAndSet(0);
+		if (lookups > 0) {
+			_buckets.incrementAndGet((int) Math.min(BUCKETS - 1, Math.min(hits, lookups) * BUCKETS / lookups));
+		}
+	}
+}
@@ -0,0 +1,27 @@
+package edu.kit.aifb.cumulus.store.dict.impl.cache;
+
+/**
+ * Converts cached values from / to their byte representation, so that they can be kept outside the heap.
+ *
+ * @author agent
+ * @since 1.1.0
+ * @param <V> the value kind.
+ */
+public interface Marshaller<V> {
+
+	/**
+	 * Returns the byte representation of the given value.
+	 *
+	 * @param value the value.
+	 * @return the byte representation of the given value.
+	 */
+	byte[] marshal(V value);
+
+	/**
+	 * Rebuilds a value from its byte representation.
+	 *
+	 * @param data the byte representation of the value.
+	 * @return the value.
+	 */
+	V unmarshal(byte[] data);
+}
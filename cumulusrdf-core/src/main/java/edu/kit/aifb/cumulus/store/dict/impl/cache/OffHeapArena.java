@@ -0,0 +1,167 @@
+package edu.kit.aifb.cumulus.store.dict.impl.cache;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A slab allocator that keeps byte arrays outside the Java heap.
+ * Memory is reserved in direct pages of {@link #PAGE_SIZE} bytes; each page is carved into slots of a single size class
+ * (a power of two between {@link #MIN_SLOT_SIZE} and {@link #MAX_SLOT_SIZE}). Freed slots are recycled within their class.
+ *
+ * Allocations, writes and frees are supposed to happen under the lock of the owning cache, while reads are lock-free:
+ * readers must check that the entry they read has not been released in the meantime.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+final class OffHeapArena {
+
+	static final int PAGE_SIZE = 1 << 20;
+	static final int MIN_SLOT_SIZE = 16;
+	static final int MAX_SLOT_SIZE = 1 << 16;
+
+	static final long NONE = -1;
+
+	private final List<ByteBuffer> _pages = new ArrayList<ByteBuffer>();
+	private volatile ByteBuffer[] _readablePages = new ByteBuffer[0];
+
+	private final long[][] _freeSlots = new long[sizeClass(MAX_SLOT_SIZE) + 1][];
+	private final int[] _freeSlotsCount = new int[_freeSlots.length];
+	private final int[] _currentPage = new int[_freeSlots.length];
+	private final int[] _currentOffset = new int[_freeSlots.length];
+
+	/**
+	 * Builds a new (empty) arena.
+	 */
+	OffHeapArena() {
+		clear();
+	}
+
+	/**
+	 * Copies the given data outside the heap.
+	 *
+	 * @param data the data.
+	 * @return the handle of the allocated slot, {@link #NONE} if data is too big for this arena.
+	 */
+	long allocate(final byte[] data) {
+		if (data.length > MAX_SLOT_SIZE) {
+			return NONE;
+		}
+
+		final int sizeClass = sizeClass(data.length);
+		final long handle;
+		if (_freeSlotsCount[sizeClass] > 0) {
+			handle = _freeSlots[sizeClass][--_freeSlotsCount[sizeClass]];
+		} else {
+			final int slotSize = MIN_SLOT_SIZE << sizeClass;
+			if (_currentPage[sizeClass] < 0 || _currentOffset[sizeClass] + slotSize > PAGE_SIZE) {
+				_pages.add(ByteBuffer.allocateDirect(PAGE_SIZE));
+				_readablePages = _pages.toArray(new ByteBuffer[_pages.size()]);
+				_currentPage[sizeClass] = _pages.size() - 1;
+				_currentOffset[sizeClass] = 0;
+			}
+			handle = ((long) _currentPage[sizeClass] << 32) | _currentOffset[sizeClass];
+			_currentOffset[sizeClass] += slotSize;
+		}
+
+		final ByteBuffer page = _pages.get(page(handle)).duplicate();
+		page.position(offset(handle));
+		page.put(data);
+		return handle;
+	}
+
+	/**
+	 * Reads the data stored in a given slot.
+	 *
+	 * @param handle the slot handle.
+	 * @param length the length of the stored data.
+	 * @return a copy of the stored data, null if the arena has been cleared in the meantime.
+	 */
+	byte[] read(final long handle, final int length) {
+		final ByteBuffer[] pages = _readablePages;
+		if (page(handle) >= pages.length) {
+			return null;
+		}
+
+		final ByteBuffer page = pages[page(handle)].duplicate();
+		page.position(offset(handle));
+
+		final byte[] data = new byte[length];
+		page.get(data);
+		return data;
+	}
+
+	/**
+	 * Releases a slot.
+	 *
+	 * @param handle the slot handle.
+	 * @param length the length of the stored data.
+	 */
+	void free(final long handle, final int length) {
+		final int sizeClass = sizeClass(length);
+		long[] slots = _freeSlots[sizeClass];
+		if (_freeSlotsCount[sizeClass] == slots.length) {
+			final long[] grown = new long[Math.max(16, slots.length * 2)];
+			System.arraycopy(slots, 0, grown, 0, slots.length);
+			_freeSlots[sizeClass] = grown;
+			slots = grown;
+		}
+		slots[_freeSlotsCount[sizeClass]++] = handle;
+	}
+
+	/**
+	 * Releases all pages.
+	 * The memory is given back to the system once pages are garbage collected.
+	 */
+	void clear() {
+		_pages.clear();
+		_readablePages = new ByteBuffer[0];
+		for (int i = 0; i < _freeSlots.length; i++) {
+			_freeSlots[i] = new long[0];
+			_freeSlotsCount[i] = 0;
+			_currentPage[i] = -1;
+			_currentOffset[i] = 0;
+		}
+	}
+
+	/**
+	 * Returns the number of bytes reserved outside the heap.
+	 *
+	 * @return the number of bytes reserved outside the heap.
+	 */
+	long reservedBytes() {
+		return (long) _readablePages.length * PAGE_SIZE;
+	}
+
+	/**
+	 * Returns the size class of a given length.
+	 *
+	 * @param length the data length.
+	 * @return the index of the smallest slot size that can hold the given length.
+	 */
+	static int sizeClass(final int length) {
+		final int size = Math.max(MIN_SLOT_SIZE, length);
+		return 32 - Integer.numberOfLeadingZeros(size - 1) - 4;
+	}
+
+	/**
+	 * Returns the page of a given handle.
+	 *
+	 * @param handle the slot handle.
+	 * @return the page index.
+	 */
+	private static int page(final long handle) {
+		return (int) (handle >>> 32);
+	}
+
+	/**
+	 * Returns the offset (within its page) of a given handle.
+	 *
+	 * @param handle the slot handle.
+	 * @return the slot offset.
+	 */
+	private static int offset(final long handle) {
+		return (int) handle;
+	}
+}
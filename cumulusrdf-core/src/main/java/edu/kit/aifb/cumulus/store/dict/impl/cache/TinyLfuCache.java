@@ -0,0 +1,899 @@
+package edu.kit.aifb.cumulus.store.dict.impl.cache;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.googlecode.concurrentlinkedhashmap.EntryWeigher;
+import com.googlecode.concurrentlinkedhashmap.EvictionListener;
+
+/**
+ * A bounded, concurrent cache with a W-TinyLFU eviction policy.
+ *
+ * New entries are admitted in a small LRU window (1% of the capacity). Entries leaving the window compete for a place
+ * in the main space with the eviction candidate of the main space, and win only if they have been used more frequently,
+ * according with a {@link FrequencySketch}. The main space is a segmented LRU: entries hit while on probation are
+ * promoted to the protected segment (80% of the main space).
+ * As a consequence, a scan over a lot of entries that are used only once cannot flush the hot entries out of the cache.
+ *
+ * The capacity is expressed in terms of weight: by default each entry weighs 1 (i.e. the cache is bounded by the number
+ * of entries), but a custom {@link EntryWeigher} allows to bound the cache by (estimated) memory size.
+ * Optionally, values can be kept outside the heap: they are marshalled in direct memory slabs and unmarshalled at each hit.
+ *
+ * Reads and writes are lock-free: the hash table is updated right away, while accesses (in a lossy buffer) and writes
+ * (in a buffer that never drops anything) are recorded and applied to the eviction policy in batches, by whichever thread
+ * acquires the policy lock with a {@link ReentrantLock#tryLock()}. Writers wait for that lock only when the write buffer
+ * is full, so the cache may briefly exceed its capacity under heavy write contention.
+ * Eviction listeners are notified under that lock, so they must be cheap.
+ *
+ * @author agent
+ * @since 1.1.0
+ * @param <K> the key kind.
+ * @param <V> the value kind.
+ */
+public class TinyLfuCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+
+	static final double WINDOW_PERCENTAGE = 0.01;
+	static final double PROTECTED_PERCENTAGE = 0.8;
+
+	static final int READ_BUFFER_SIZE = 1024;
+	static final int READ_BUFFER_DRAIN_THRESHOLD = 32;
+	static final int WRITE_BUFFER_SIZE = 1024;
+
+	static final int ADMIT_HASHDOS_THRESHOLD = 6;
+
+	static final byte NEW = -1;
+	static final byte WINDOW = 0;
+	static final byte PROBATION = 1;
+	static final byte PROTECTED = 2;
+	static final byte DEAD = 3;
+
+	/**
+	 * A cache entry.
+	 * An entry enters the eviction policy (and, if the cache keeps values outside the heap, moves its value there)
+	 * when its write is applied: until then it is {@link #NEW}. Once removed or evicted, it is {@link #DEAD}.
+	 *
+	 * @param <K> the key kind.
+	 * @param <V> the value kind.
+	 */
+	static final class Node<K, V> {
+		final K _key;
+		final int _hash;
+		final int _weight;
+
+		volatile V _value;
+		long _handle = OffHeapArena.NONE;
+		int _length;
+		byte[] _marshalled;
+
+		volatile boolean _alive = true;
+		byte _queue = NEW;
+		Node<K, V> _previous;
+		Node<K, V> _next;
+
+		/**
+		 * Builds a new cache entry.
+		 *
+		 * @param key the key.
+		 * @param value the value.
+		 * @param marshalled the marshalled value, that will be moved outside the heap, null if the value is kept on heap.
+		 * @param weight the weight of this entry.
+		 */
+		Node(final K key, final V value, final byte[] marshalled, final int weight) {
+			_key = key;
+			_hash = key.hashCode();
+			_value = value;
+			_marshalled = marshalled;
+			_weight = weight;
+		}
+	}
+
+	/**
+	 * A doubly-linked list of cache entries, in access order (the least recently used entry comes first).
+	 *
+	 * @param <K> the key kind.
+	 * @param <V> the value kind.
+	 */
+	static final class AccessOrderDeque<K, V> {
+		private Node<K, V> _first;
+		private Node<K, V> _last;
+
+		/**
+		 * Appends a node to this list.
+		 *
+		 * @param node the node.
+		 */
+		void add(final Node<K, V> node) {
+			node._previous = _last;
+			node._next = null;
+			if (_last == null) {
+				_first = node;
+			} else {
+				_last._next = node;
+			}
+			_last = node;
+		}
+
+		/**
+		 * Removes a node from this list.
+		 *
+		 * @param node the node, that must belong to this list.
+		 */
+		void remove(final Node<K, V> node) {
+			if (node._previous == null) {
+				_first = node._next;
+			} else {
+				node._previous._next = node._next;
+			}
+
+			if (node._next == null) {
+				_last = node._previous;
+			} else {
+				node._next._previous = node._previous;
+			}
+			node._previous = null;
+			node._next = null;
+		}
+
+		/**
+		 * Moves a node at the end of this list.
+		 *
+		 * @param node the node, that must belong to this list.
+		 */
+		void moveToBack(final Node<K, V> node) {
+			if (node != _last) {
+				remove(node);
+				add(node);
+			}
+		}
+
+		/**
+		 * Returns the least recently used node.
+		 *
+		 * @return the least recently used node, null if the list is empty.
+		 */
+		Node<K, V> first() {
+			return _first;
+		}
+
+		/**
+		 * Returns the most recently used node.
+		 *
+		 * @return the most recently used node, null if the list is empty.
+		 */
+		Node<K, V> last() {
+			return _last;
+		}
+
+		/**
+		 * Removes all nodes from this list.
+		 */
+		void clear() {
+			_first = null;
+			_last = null;
+		}
+	}
+
+	/**
+	 * Builder for {@link TinyLfuCache} instances.
+	 *
+	 * @param <K> the key kind.
+	 * @param <V> the value kind.
+	 */
+	public static final class Builder<K, V> {
+		private long _maximumWeight = -1;
+		private EntryWeigher<? super K, ? super V> _weigher = new EntryWeigher<Object, Object>() {
+			@Override
+			public int weightOf(final Object key, final Object value) {
+				return 1;
+			}
+		};
+		private EvictionListener<K, V> _listener = new EvictionListener<K, V>() {
+			@Override
+			public void onEviction(final K key, final V value) {
+				// Nothing to be done here...
+			}
+		};
+		private Marshaller<V> _marshaller;
+
+		/**
+		 * Sets the maximum weight of the cache.
+		 *
+		 * @param maximumWeight the maximum weight of the cache.
+		 * @return this builder.
+		 */
+		public Builder<K, V> maximumWeight(final long maximumWeight) {
+			_maximumWeight = maximumWeight;
+			return this;
+		}
+
+		/**
+		 * Sets the function that computes the weight of each entry.
+		 *
+		 * @param weigher the weigher.
+		 * @return this builder.
+		 */
+		public Builder<K, V> weigher(final EntryWeigher<? super K, ? super V> weigher) {
+			_weigher = weigher;
+			return this;
+		}
+
+		/**
+		 * Sets the listener that will be notified about evictions.
+		 *
+		 * @param listener the eviction listener.
+		 * @return this builder.
+		 */
+		public Builder<K, V> listener(final EvictionListener<K, V> listener) {
+			_listener = listener;
+			return this;
+		}
+
+		/**
+		 * Keeps values outside the heap, using the given marshaller.
+		 *
+		 * @param marshaller the marshaller used for moving values from / to the heap.
+		 * @return this builder.
+		 */
+		public Builder<K, V> offHeap(final Marshaller<V> marshaller) {
+			_marshaller = marshaller;
+			return this;
+		}
+
+		/**
+		 * Builds a new cache.
+		 *
+		 * @return a new cache.
+		 */
+		public TinyLfuCache<K, V> build() {
+			if (_maximumWeight <= 0) {
+				throw new IllegalStateException("Maximum weight must be greater than 0.");
+			}
+			return new TinyLfuCache<K, V>(this);
+		}
+	}
+
+	private final ConcurrentHashMap<K, Node<K, V>> _data = new ConcurrentHashMap<K, Node<K, V>>();
+	private final ReentrantLock _lock = new ReentrantLock();
+
+	private final ConcurrentLinkedQueue<Node<K, V>> _reads = new ConcurrentLinkedQueue<Node<K, V>>();
+	private final AtomicInteger _pendingReads = new AtomicInteger();
+
+	private final ConcurrentLinkedQueue<Node<K, V>> _additions = new ConcurrentLinkedQueue<Node<K, V>>();
+	private final ConcurrentLinkedQueue<Node<K, V>> _removals = new ConcurrentLinkedQueue<Node<K, V>>();
+	private final AtomicInteger _pendingWrites = new AtomicInteger();
+
+	private final AccessOrderDeque<K, V> _window = new AccessOrderDeque<K, V>();
+	private final AccessOrderDeque<K, V> _probation = new AccessOrderDeque<K, V>();
+	private final AccessOrderDeque<K, V> _protected = new AccessOrderDeque<K, V>();
+	private final FrequencySketch _sketch = new FrequencySketch();
+	private long _sketchCapacity;
+
+	private final long _maximum;
+	private final long _maximumWindow;
+	private final long _maximumProtected;
+	private volatile long _weight;
+	private long _windowWeight;
+	private long _protectedWeight;
+
+	private final EntryWeigher<? super K, ? super V> _weigher;
+	private final EvictionListener<K, V> _listener;
+	private final Marshaller<V> _marshaller;
+	private final OffHeapArena _arena;
+
+	/**
+	 * Builds a new cache with the given builder settings.
+	 *
+	 * @param builder the builder.
+	 */
+	TinyLfuCache(final Builder<K, V> builder) {
+		_maximum = builder._maximumWeight;
+		_maximumWindow = Math.max(1, (long) (_maximum * WINDOW_PERCENTAGE));
+		_maximumProtected = (long) ((_maximum - _maximumWindow) * PROTECTED_PERCENTAGE);
+		_weigher = builder._weigher;
+		_listener = builder._listener;
+		_marshaller = builder._marshaller;
+		_arena = _marshaller != null ? new OffHeapArena() : null;
+
+		_sketchCapacity = Math.min(_maximum, 1024);
+		_sketch.ensureCapacity(_sketchCapacity);
+	}
+
+	@Override
+	public V get(final Object key) {
+		final Node<K, V> node = _data.get(key);
+		if (node == null) {
+			return null;
+		}
+
+		final V value = valueOf(node);
+		if (value != null) {
+			afterRead(node);
+		}
+		return value;
+	}
+
+	@Override
+	public boolean containsKey(final Object key) {
+		return _data.containsKey(key);
+	}
+
+	@Override
+	public V put(final K key, final V value) {
+		return put(key, value, false, false);
+	}
+
+	@Override
+	public V putIfAbsent(final K key, final V value) {
+		return put(key, value, true, false);
+	}
+
+	@Override
+	public V remove(final Object key) {
+		while (true) {
+			final Node<K, V> node = _data.get(key);
+			if (node == null) {
+				return null;
+			}
+
+			final V value = valueOf(node);
+			if (value != null && _data.remove(key, node)) {
+				afterWrite(null, node);
+				return value;
+			}
+		}
+	}
+
+	@Override
+	public boolean remove(final Object key, final Object value) {
+		while (true) {
+			final Node<K, V> node = _data.get(key);
+			if (node == null) {
+				return false;
+			}
+
+			final V current = valueOf(node);
+			if (current != null) {
+				if (!current.equals(value)) {
+					return false;
+				}
+
+				if (_data.remove(key, node)) {
+					afterWrite(null, node);
+					return true;
+				}
+			}
+		}
+	}
+
+	@Override
+	public V replace(final K key, final V value) {
+		return put(key, value, false, true);
+	}
+
+	@Override
+	public boolean replace(final K key, final V oldValue, final V newValue) {
+		if (oldValue == null) {
+			throw new NullPointerException();
+		}
+
+		while (true) {
+			final Node<K, V> node = _data.get(key);
+			if (node == null) {
+				return false;
+			}
+
+			final V current = valueOf(node);
+			if (current != null) {
+				if (!current.equals(oldValue)) {
+					return false;
+				}
+
+				if (replace(key, node, newValue)) {
+					return true;
+				}
+			}
+		}
+	}
+
+	@Override
+	public int size() {
+		return _data.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return _data.isEmpty();
+	}
+
+	@Override
+	public void clear() {
+		_lock.lock();
+		try {
+			drainBuffers();
+			for (final Node<K, V> node : _data.values()) {
+				if (_data.remove(node._key, node)) {
+					unlink(node);
+				}
+			}
+		} finally {
+			_lock.unlock();
+		}
+		scheduleDrain();
+	}
+
+	/**
+	 * Returns a snapshot of the entries of this cache.
+	 *
+	 * @return a snapshot of the entries of this cache.
+	 */
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		final Map<K, V> snapshot = new HashMap<K, V>(_data.size());
+		for (final Node<K, V> node : _data.values()) {
+			final V value = valueOf(node);
+			if (value != null) {
+				snapshot.put(node._key, value);
+			}
+		}
+		return Collections.unmodifiableMap(snapshot).entrySet();
+	}
+
+	/**
+	 * Returns the maximum weight of this cache.
+	 *
+	 * @return the maximum weight of this cache.
+	 */
+	public long capacity() {
+		return _maximum;
+	}
+
+	/**
+	 * Returns the current weight of this cache.
+	 *
+	 * @return the current weight of this cache.
+	 */
+	public long weightedSize() {
+		return _weight;
+	}
+
+	/**
+	 * Returns true if this cache keeps values outside the heap.
+	 *
+	 * @return true if this cache keeps values outside the heap.
+	 */
+	public boolean isOffHeap() {
+		return _arena != null;
+	}
+
+	/**
+	 * Returns the most frequently used entries of this cache, hottest first.
+	 * Entries with the same (estimated) frequency are ordered from the most to the least recently used.
+	 *
+	 * @param limit the maximum number of entries that will be returned.
+	 * @return the most frequently used entries of this cache.
+	 */
+	public List<Map.Entry<K, V>> hottest(final int limit) {
+		final List<Node<K, V>> candidates = new ArrayList<Node<K, V>>(_data.size());
+		final Map<Node<K, V>, Integer> frequencies = new HashMap<Node<K, V>, Integer>(_data.size());
+
+		_lock.lock();
+		try {
+			drainBuffers();
+			collect(_protected, candidates, frequencies);
+			collect(_probation, candidates, frequencies);
+			collect(_window, candidates, frequencies);
+		} finally {
+			_lock.unlock();
+		}
+		scheduleDrain();
+
+		Collections.sort(candidates, new Comparator<Node<K, V>>() {
+			@Override
+			public int compare(final Node<K, V> node1, final Node<K, V> node2) {
+				return frequencies.get(node2).compareTo(frequencies.get(node1));
+			}
+		});
+
+		final List<Map.Entry<K, V>> result = new ArrayList<Map.Entry<K, V>>(Math.min(limit, candidates.size()));
+		for (final Node<K, V> node : candidates) {
+			if (result.size() >= limit) {
+				break;
+			}
+
+			final V value = valueOf(node);
+			if (value != null) {
+				result.add(new AbstractMap.SimpleImmutableEntry<K, V>(node._key, value));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Inserts or updates an entry.
+	 * The hash table is updated right away, the eviction policy when the write is drained.
+	 *
+	 * @param key the key.
+	 * @param value the value.
+	 * @param onlyIfAbsent if true, an existing entry is left untouched.
+	 * @param onlyIfPresent if true, nothing is inserted if there's no existing entry.
+	 * @return the previous value associated with the given key, null if there was no previous value.
+	 */
+	private V put(final K key, final V value, final boolean onlyIfAbsent, final boolean onlyIfPresent) {
+		if (key == null || value == null) {
+			throw new NullPointerException();
+		}
+
+		while (true) {
+			final Node<K, V> existing = _data.get(key);
+			if (existing == null) {
+				if (onlyIfPresent) {
+					return null;
+				}
+
+				final int weight = _weigher.weightOf(key, value);
+				if (weight > _maximum) {
+					return null;
+				}
+
+				final Node<K, V> node = newNode(key, value, weight);
+				if (_data.putIfAbsent(key, node) == null) {
+					afterWrite(node, null);
+					return null;
+				}
+			} else {
+				// A null value means that the existing entry has just been removed: retry
+				final V previous = valueOf(existing);
+				if (previous != null && (onlyIfAbsent || replace(key, existing, value))) {
+					return previous;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Replaces an existing entry, if it is still associated with its key.
+	 * A value heavier than the whole cache is not cached at all: the existing entry is removed.
+	 *
+	 * @param key the key.
+	 * @param existing the existing entry.
+	 * @param value the new value.
+	 * @return true if the existing entry has been replaced (or removed).
+	 */
+	private boolean replace(final K key, final Node<K, V> existing, final V value) {
+		final int weight = _weigher.weightOf(key, value);
+		final Node<K, V> node = weight > _maximum ? null : newNode(key, value, weight);
+		if (node == null ? _data.remove(key, existing) : _data.replace(key, existing, node)) {
+			afterWrite(node, existing);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Creates a new entry.
+	 * If the cache keeps values outside the heap, the value is marshalled here, outside the lock, and moved
+	 * outside the heap when the entry is linked.
+	 *
+	 * @param key the key.
+	 * @param value the value.
+	 * @param weight the entry weight.
+	 * @return a new entry.
+	 */
+	private Node<K, V> newNode(final K key, final V value, final int weight) {
+		return new Node<K, V>(key, value, _marshaller != null ? _marshaller.marshal(value) : null, weight);
+	}
+
+	/**
+	 * Returns the value of a given entry.
+	 *
+	 * @param node the entry.
+	 * @return the value of a given entry, null if the entry has been evicted (and its off-heap memory released).
+	 */
+	private V valueOf(final Node<K, V> node) {
+		final V value = node._value;
+		if (value != null) {
+			return value;
+		}
+
+		// The value has been moved outside the heap: the handle has been set before the value was cleared
+		final byte[] data = _arena.read(node._handle, node._length);
+
+		// The slot could have been released (and reused) while we were reading it
+		return data != null && node._alive ? _marshaller.unmarshal(data) : null;
+	}
+
+	/**
+	 * Records a write: the added and the removed entries are buffered and applied to the eviction policy
+	 * by the thread that holds the lock. If the write buffer is full, waits for the lock.
+	 *
+	 * @param added the added entry, null if nothing has been added.
+	 * @param removed the removed entry, null if nothing has been removed.
+	 */
+	private void afterWrite(final Node<K, V> added, final Node<K, V> removed) {
+		if (added != null) {
+			_additions.add(added);
+			_pendingWrites.incrementAndGet();
+		}
+
+		if (removed != null) {
+			_removals.add(removed);
+			_pendingWrites.incrementAndGet();
+		}
+
+		if (_pendingWrites.get() > WRITE_BUFFER_SIZE) {
+			_lock.lock();
+			try {
+				drainBuffers();
+			} finally {
+				_lock.unlock();
+			}
+		}
+		scheduleDrain();
+	}
+
+	/**
+	 * Drains the buffers, unless another thread holds the lock.
+	 * The check is repeated after releasing the lock, so that writes buffered while the lock was held are not left behind.
+	 */
+	private void scheduleDrain() {
+		while (_pendingWrites.get() > 0 && _lock.tryLock()) {
+			try {
+				drainBuffers();
+			} finally {
+				_lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Records an access to the given entry.
+	 * The access is buffered and (possibly) applied later, by the thread that holds the lock.
+	 *
+	 * @param node the accessed entry.
+	 */
+	private void afterRead(final Node<K, V> node) {
+		if (_pendingReads.get() < READ_BUFFER_SIZE) {
+			_pendingReads.incrementAndGet();
+			_reads.add(node);
+		}
+
+		if (_pendingReads.get() >= READ_BUFFER_DRAIN_THRESHOLD && _lock.tryLock()) {
+			try {
+				drainBuffers();
+			} finally {
+				_lock.unlock();
+			}
+			scheduleDrain();
+		}
+	}
+
+	/**
+	 * Collects the nodes of a segment, from the most to the least recently used, with their estimated frequency.
+	 * Must be called under lock.
+	 *
+	 * @param segment the segment.
+	 * @param nodes the target list.
+	 * @param frequencies the target frequencies.
+	 */
+	private void collect(final AccessOrderDeque<K, V> segment, final List<Node<K, V>> nodes, final Map<Node<K, V>, Integer> frequencies) {
+		for (Node<K, V> node = segment.last(); node != null; node = node._previous) {
+			nodes.add(node);
+			frequencies.put(node, _sketch.frequency(node._hash));
+		}
+	}
+
+	/**
+	 * Applies the buffered accesses and writes to the eviction policy, then evicts entries until the cache fits its capacity.
+	 * Must be called under lock.
+	 */
+	private void drainBuffers() {
+		Node<K, V> node = null;
+		while ((node = _reads.poll()) != null) {
+			_pendingReads.decrementAndGet();
+			onAccess(node);
+		}
+
+		// An entry could be removed before its addition is drained: link() skips dead entries
+		while ((node = _additions.poll()) != null) {
+			_pendingWrites.decrementAndGet();
+			link(node);
+		}
+
+		while ((node = _removals.poll()) != null) {
+			_pendingWrites.decrementAndGet();
+			unlink(node);
+		}
+
+		evict();
+	}
+
+	/**
+	 * Adds a new entry to the eviction policy (in the window) and, if needed, moves its value outside the heap.
+	 *
+	 * @param node the entry.
+	 */
+	private void link(final Node<K, V> node) {
+		if (node._queue != NEW) {
+			return;
+		}
+
+		if (node._marshalled != null) {
+			final long handle = _arena.allocate(node._marshalled);
+			if (handle != OffHeapArena.NONE) {
+				node._handle = handle;
+				node._length = node._marshalled.length;
+				node._value = null;
+			}
+			node._marshalled = null;
+		}
+
+		node._queue = WINDOW;
+		_window.add(node);
+		_windowWeight += node._weight;
+		_weight += node._weight;
+		_sketch.increment(node._hash);
+
+		if (_data.size() > _sketchCapacity && _sketchCapacity < _maximum) {
+			_sketchCapacity = Math.min(_maximum, _sketchCapacity * 2);
+			_sketch.ensureCapacity(_sketchCapacity);
+		}
+	}
+
+	/**
+	 * Updates the eviction policy after an access to the given entry.
+	 *
+	 * @param node the accessed entry.
+	 */
+	private void onAccess(final Node<K, V> node) {
+		if (!node._alive || node._queue == NEW) {
+			return;
+		}
+
+		_sketch.increment(node._hash);
+		switch (node._queue) {
+		case WINDOW:
+			_window.moveToBack(node);
+			break;
+		case PROBATION:
+			_probation.remove(node);
+			node._queue = PROTECTED;
+			_protected.add(node);
+			_protectedWeight += node._weight;
+			demoteProtected();
+			break;
+		default:
+			_protected.moveToBack(node);
+		}
+	}
+
+	/**
+	 * Moves the least recently used protected entries on probation, until the protected segment fits its capacity.
+	 */
+	private void demoteProtected() {
+		while (_protectedWeight > _maximumProtected) {
+			final Node<K, V> node = _protected.first();
+			_protected.remove(node);
+			_protectedWeight -= node._weight;
+			node._queue = PROBATION;
+			_probation.add(node);
+		}
+	}
+
+	/**
+	 * Evicts entries until the cache fits its capacity.
+	 * Entries that overflow the window become candidates for the main space: each candidate is compared with
+	 * the least recently used entry on probation (the victim) and the less frequently used of them is evicted.
+	 */
+	private void evict() {
+		int candidates = 0;
+		while (_windowWeight > _maximumWindow) {
+			final Node<K, V> node = _window.first();
+			_window.remove(node);
+			_windowWeight -= node._weight;
+			node._queue = PROBATION;
+			_probation.add(node);
+			candidates++;
+		}
+
+		while (_weight > _maximum) {
+			Node<K, V> victim = _probation.first();
+			final Node<K, V> candidate = candidates > 0 ? _probation.last() : null;
+			if (victim == null) {
+				victim = _protected.first() != null ? _protected.first() : _window.first();
+				evictNode(victim);
+			} else if (candidate == null || candidate == victim) {
+				if (candidate == victim) {
+					candidates--;
+				}
+				evictNode(victim);
+			} else if (admit(candidate, victim)) {
+				evictNode(victim);
+			} else {
+				evictNode(candidate);
+				candidates--;
+			}
+		}
+	}
+
+	/**
+	 * Decides if a candidate should replace a victim in the main space.
+	 * A small amount of randomness protects from attacks that artificially raise the frequency of the victim.
+	 *
+	 * @param candidate the candidate entry.
+	 * @param victim the victim entry.
+	 * @return true if the candidate should be admitted (and the victim evicted).
+	 */
+	private boolean admit(final Node<K, V> candidate, final Node<K, V> victim) {
+		final int candidateFrequency = _sketch.frequency(candidate._hash);
+		final int victimFrequency = _sketch.frequency(victim._hash);
+		if (candidateFrequency > victimFrequency) {
+			return true;
+		} else if (candidateFrequency < ADMIT_HASHDOS_THRESHOLD) {
+			return false;
+		}
+		return (ThreadLocalRandom.current().nextInt() & 127) == 0;
+	}
+
+	/**
+	 * Evicts an entry.
+	 *
+	 * @param node the entry.
+	 */
+	private void evictNode(final Node<K, V> node) {
+		final V value = valueOf(node);
+		final boolean removed = _data.remove(node._key, node);
+		unlink(node);
+
+		// Otherwise the entry has been replaced or removed in the meantime, and its removal is still buffered
+		if (removed) {
+			_listener.onEviction(node._key, value);
+		}
+	}
+
+	/**
+	 * Detaches an entry from the eviction policy and releases its off-heap memory.
+	 * Detaching an entry twice, or an entry that has not been linked yet, is allowed.
+	 *
+	 * @param node the entry.
+	 */
+	private void unlink(final Node<K, V> node) {
+		node._alive = false;
+		switch (node._queue) {
+		case DEAD:
+			return;
+		case NEW:
+			node._marshalled = null;
+			break;
+		case WINDOW:
+			_window.remove(node);
+			_windowWeight -= node._weight;
+			_weight -= node._weight;
+			break;
+		case PROBATION:
+			_probation.remove(node);
+			_weight -= node._weight;
+			break;
+		default:
+			_protected.remove(node);
+			_protectedWeight -= node._weight;
+			_weight -= node._weight;
+		}
+		node._queue = DEAD;
+
+		if (node._handle != OffHeapArena.NONE) {
+			_arena.free(node._handle, node._length);
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package edu.kit.aifb.cumulus.store.dict.impl.cache;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cache whose hottest entries can be saved in a snapshot and preloaded later, in order to avoid a cold start.
+ * 
+ * @see CacheSnapshot
+ * @author agent
+ * @since 1.1.0
+ */
+public interface WarmableCache {
+
+	/**
+	 * Returns the identifier of this cache.
+	 * 
+	 * @return the identifier of this cache.
+	 */
+	String getId();
+
+	/**
+	 * Writes the hottest entries of this cache.
+	 * 
+	 * @param out the snapshot output stream.
+	 * @param limit the maximum number of entries, for each cache layer, that will be written.
+	 * @return the number of entries that have been written.
+	 * @throws IOException in case of I/O failure.
+	 */
+	int writeSnapshot(DataOutputStream out, int limit) throws IOException;
+
+	/**
+	 * Preloads this cache with the entries of a snapshot.
+	 * 
+	 * @param in the snapshot input stream.
+	 * @param progress a counter incremented for each entry read from the snapshot.
+	 * @return the number of entries that have been loaded, -1 if the snapshot doesn't belong to this cache.
+	 * @throws IOException in case of I/O failure.
+	 */
+	int readSnapshot(DataInputStream in, AtomicLong progress) throws IOException;
+}
@@ -0,0 +1,7 @@
+/**
+ * Caches used by dictionary decorators.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+package edu.kit.aifb.cumulus.store.dict.impl.cache;
\ No newline at end of file
@@ -1,10 +1,16 @@
 package edu.kit.aifb.cumulus.store.dict.impl.string;
 
+import static edu.kit.aifb.cumulus.framework.Environment.CHARSET_UTF8;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.util.concurrent.ConcurrentMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
-import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
 import com.googlecode.concurrentlinkedhashmap.EvictionListener;
 
 import edu.kit.aifb.cumulus.framework.InitialisationException;
@@ -12,22 +18,30 @@ import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerException;
 import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerFactory;
 import edu.kit.aifb.cumulus.framework.domain.dictionary.DictionaryRuntimeContext;
 import edu.kit.aifb.cumulus.framework.domain.dictionary.ICacheStrategy;
+import edu.kit.aifb.cumulus.framework.domain.dictionary.IDecoratorDictionary;
 import edu.kit.aifb.cumulus.framework.domain.dictionary.IDictionary;
 import edu.kit.aifb.cumulus.framework.mx.ManageableCacheDictionary;
 import edu.kit.aifb.cumulus.log.MessageCatalog;
+import edu.kit.aifb.cumulus.store.dict.impl.cache.CacheSnapshot;
+import edu.kit.aifb.cumulus.store.dict.impl.cache.HitRatioHistogram;
+import edu.kit.aifb.cumulus.store.dict.impl.cache.Marshaller;
+import edu.kit.aifb.cumulus.store.dict.impl.cache.TinyLfuCache;
+import edu.kit.aifb.cumulus.store.dict.impl.cache.WarmableCache;
 
 
 /**
  * A dictionary decorator that adds caching capability to another string dictionary. 
  * Note that although this class "is a" dictionary, due to its Decorator nature, 
  * is supposed to be used in conjunction with a concrete dictionary.
+ * Caches use a W-TinyLFU policy (see {@link TinyLfuCache}), bounded by the number of entries.
+ * The hottest entries can be saved in a snapshot and preloaded later (see {@link WarmableCache}).
  * 
  * @see http://en.wikipedia.org/wiki/Decorator_pattern
  * @author Andreas Wagner
  * @author Andrea Gazzarini
  * @since 1.1.0
  */
-public class CacheStringDictionary extends StringDictionaryBase implements ManageableCacheDictionary {
+public class CacheStringDictionary extends StringDictionaryBase implements ManageableCacheDictionary, IDecoratorDictionary, WarmableCache {
 	/**
 	 * First level strategy allows caching only for results that directly comes from the next decoratee in the chain.
 	 * This is useful in case you have an articulated decorator chain and you want to activate several caches in the chain
@@ -55,6 +69,32 @@ public class CacheStringDictionary extends StringDictionaryBase implements Manag
 				_node2id_cache.put(value, id);
 			}
 		}
+
+		@Override
+		public void cacheValues(final List<String> values, final byte[][] ids) {
+			final boolean[] firstLevelResults = RUNTIME_CONTEXTS.get().firstLevelResults;
+			if (firstLevelResults != null) {
+				for (int i = 0; i < ids.length; i++) {
+					if (firstLevelResults[i] && ids[i] != null) {
+						firstLevelResults[i] = false;
+						_node2id_cache.put(values.get(i), ids[i]);
+					}
+				}
+			}
+		}
+
+		@Override
+		public void cacheIds(final List<ByteBuffer> ids, final List<String> values) {
+			final boolean[] firstLevelResults = RUNTIME_CONTEXTS.get().firstLevelResults;
+			if (firstLevelResults != null) {
+				for (int i = 0; i < ids.size(); i++) {
+					if (firstLevelResults[i] && values.get(i) != null) {
+						firstLevelResults[i] = false;
+						_id2node_cache.put(ids.get(i), values.get(i));
+					}
+				}
+			}
+		}
 	}
 
 	/**
@@ -76,18 +116,59 @@ public class CacheStringDictionary extends StringDictionaryBase implements Manag
 			_node2id_cache.put(value, id);
 			RUNTIME_CONTEXTS.get().isFirstLevelResult = null;
 		}
+
+		@Override
+		public void cacheValues(final List<String> values, final byte[][] ids) {
+			for (int i = 0; i < ids.length; i++) {
+				if (ids[i] != null) {
+					_node2id_cache.put(values.get(i), ids[i]);
+				}
+			}
+			RUNTIME_CONTEXTS.get().firstLevelResults = null;
+		}
+
+		@Override
+		public void cacheIds(final List<ByteBuffer> ids, final List<String> values) {
+			for (int i = 0; i < ids.size(); i++) {
+				if (values.get(i) != null) {
+					_id2node_cache.put(ids.get(i), values.get(i));
+				}
+			}
+			RUNTIME_CONTEXTS.get().firstLevelResults = null;
+		}
 	}
 
 	static final int DEFAULT_CACHE_SIZE = 1000;
+
+	static final Marshaller<String> STRING_MARSHALLER = new Marshaller<String>() {
+		@Override
+		public byte[] marshal(final String value) {
+			return value.getBytes(CHARSET_UTF8);
+		}
+
+		@Override
+		public String unmarshal(final byte[] data) {
+			return new String(data, CHARSET_UTF8);
+		}
+	};
+
+	static final CacheSnapshot.Filter<String> ACCEPT_ALL = new CacheSnapshot.Filter<String>() {
+		@Override
+		public boolean accept(final byte[] id, final String value) {
+			return true;
+		}
+	};
 	
-	final ConcurrentMap<ByteBuffer, String> _id2node_cache;
-	final ConcurrentMap<String, byte[]> _node2id_cache;
+	final TinyLfuCache<ByteBuffer, String> _id2node_cache;
+	final TinyLfuCache<String, byte[]> _node2id_cache;
 	final ICacheStrategy<String> _cacheStrategy;
 
 	private final IDictionary<String> _decoratee;
 
 	private final int _idCacheMaxSize;
 	private final int _valueCacheMaxSize;
+	private final HitRatioHistogram _idHitsRatioHistogram = new HitRatioHistogram();
+	private final HitRatioHistogram _valueHitsRatioHistogram = new HitRatioHistogram();
 	private final AtomicLong _idHitsCount = new AtomicLong();
 	private final AtomicLong _valueHitsCount = new AtomicLong();
 	private final AtomicLong _idEvictionsCount = new AtomicLong();
@@ -132,14 +213,14 @@ public class CacheStringDictionary extends StringDictionaryBase implements Manag
 		_decoratee = decoratee;		
 		_idCacheMaxSize = cacheSize(idCacheSize);
 		_valueCacheMaxSize = cacheSize(valueCacheSize);
-		_id2node_cache = new ConcurrentLinkedHashMap
+		_id2node_cache = new TinyLfuCache
 				.Builder<ByteBuffer, String>()
-				.maximumWeightedCapacity(_idCacheMaxSize)
+				.maximumWeight(_idCacheMaxSize)
 				.listener(_idEvictionListener)
 				.build();
-		_node2id_cache = new ConcurrentLinkedHashMap
+		_node2id_cache = new TinyLfuCache
 				.Builder<String, byte[]>()
-				.maximumWeightedCapacity(_valueCacheMaxSize)
+				.maximumWeight(_valueCacheMaxSize)
 				.listener(_valueEvictionListener)
 				.build();
 		_cacheStrategy = isFirstLevelCache ? new FirstLevelCacheStrategy() : new CumulativeCacheStrategy();
@@ -169,13 +250,58 @@ public class CacheStringDictionary extends StringDictionaryBase implements Manag
 		if (id == null) {
 			id = _decoratee.getID(value, p);
 			_cacheStrategy.cacheValue(value, id);
+			_idHitsRatioHistogram.record(false);
 		} else {
 			_idHitsCount.incrementAndGet();
+			_idHitsRatioHistogram.record(true);
 		}
 
 		return id;
 	}
 
+	@Override
+	protected byte[][] getIdsInternal(final List<String> values, final boolean p) throws DataAccessLayerException {
+		final byte[][] ids = new byte[values.size()][];
+		final int[] missesPositions = new int[ids.length];
+		final List<String> misses = new ArrayList<String>();
+
+		for (int i = 0; i < ids.length; i++) {
+			final String value = values.get(i);
+			ids[i] = _node2id_cache.get(value);
+			if (ids[i] == null) {
+				missesPositions[misses.size()] = i;
+				misses.add(value);
+			} else {
+				_idHitsCount.incrementAndGet();
+			}
+		}
+
+		_idHitsRatioHistogram.record(ids.length - misses.size(), ids.length);
+
+		final DictionaryRuntimeContext context = RUNTIME_CONTEXTS.get();
+		boolean[] firstLevelResults = null;
+		if (!misses.isEmpty()) {
+			context.firstLevelResults = null;
+			final byte[][] missesIds = _decoratee.getIDs(misses, p);
+			_cacheStrategy.cacheValues(misses, missesIds);
+
+			final boolean[] missesFirstLevelResults = context.firstLevelResults;
+			if (missesFirstLevelResults != null) {
+				firstLevelResults = new boolean[ids.length];
+			}
+
+			for (int i = 0; i < missesIds.length; i++) {
+				ids[missesPositions[i]] = missesIds[i];
+				if (firstLevelResults != null) {
+					firstLevelResults[missesPositions[i]] = missesFirstLevelResults[i];
+				}
+			}
+		}
+
+		context.firstLevelResults = firstLevelResults;
+		return ids;
+	}
+
 	@Override
 	protected String getValueInternal(final byte[] id, final boolean p) throws DataAccessLayerException {
 		final ByteBuffer key = ByteBuffer.wrap(id);
@@ -184,12 +310,86 @@ public class CacheStringDictionary extends StringDictionaryBase implements Manag
 		if (value == null) {
 			value = _decoratee.getValue(id, p);
 			_cacheStrategy.cacheId(key, value);
+			_valueHitsRatioHistogram.record(false);
 		} else {
 			_valueHitsCount.incrementAndGet();
+			_valueHitsRatioHistogram.record(true);
 		}
 		return value;
 	}
+
+	@Override
+	protected List<String> getValuesInternal(final List<byte[]> ids, final boolean p) throws DataAccessLayerException {
+		final List<String> values = new ArrayList<String>(ids.size());
+		final int[] missesPositions = new int[ids.size()];
+		final List<byte[]> misses = new ArrayList<byte[]>();
+		final List<ByteBuffer> missesKeys = new ArrayList<ByteBuffer>();
+
+		for (int i = 0; i < ids.size(); i++) {
+			final byte[] id = ids.get(i);
+			final ByteBuffer key = id != null ? ByteBuffer.wrap(id) : null;
+			final String value = key != null ? _id2node_cache.get(key) : null;
+			values.add(value);
+			if (value == null && key != null) {
+				missesPositions[misses.size()] = i;
+				misses.add(id);
+				missesKeys.add(key);
+			} else if (value != null) {
+				_valueHitsCount.incrementAndGet();
+			}
+		}
+
+		_valueHitsRatioHistogram.record(ids.size() - misses.size(), ids.size());
+
+		final DictionaryRuntimeContext context = RUNTIME_CONTEXTS.get();
+		boolean[] firstLevelResults = null;
+		if (!misses.isEmpty()) {
+			context.firstLevelResults = null;
+			final List<String> missesValues = _decoratee.getValues(misses, p);
+			_cacheStrategy.cacheIds(missesKeys, missesValues);
+
+			final boolean[] missesFirstLevelResults = context.firstLevelResults;
+			if (missesFirstLevelResults != null) {
+				firstLevelResults = new boolean[ids.size()];
+			}
+
+			for (int i = 0; i < missesValues.size(); i++) {
+				values.set(missesPositions[i], missesValues.get(i));
+				if (firstLevelResults != null) {
+					firstLevelResults[missesPositions[i]] = missesFirstLevelResults[i];
+				}
+			}
+		}
+
+		context.firstLevelResults = firstLevelResults;
+		return values;
+	}
 	
+	@Override
+	public List<IDictionary<?>> getDecoratees() {
+		return Collections.<IDictionary<?>> singletonList(_decoratee);
+	}
+
+	@Override
+	public int writeSnapshot(final DataOutputStream out, final int limit) throws IOException {
+		return CacheSnapshot.write(out, snapshotSignature(), _id2node_cache, _node2id_cache, STRING_MARSHALLER, limit);
+	}
+
+	@Override
+	public int readSnapshot(final DataInputStream in, final AtomicLong progress) throws IOException {
+		return CacheSnapshot.read(in, snapshotSignature(), _id2node_cache, _node2id_cache, STRING_MARSHALLER, ACCEPT_ALL, progress);
+	}
+
+	/**
+	 * Returns the signature of the snapshots written by this cache.
+	 * A snapshot can be preloaded only by a cache that decorates the same kind of dictionary.
+	 * 
+	 * @return the signature of the snapshots written by this cache.
+	 */
+	String snapshotSignature() {
+		return getClass().getName() + ":" + _decoratee.getClass().getName();
+	}
+
 	/**
 	 * Computes the cache size according with a given input.
 	 * If input size is <=0 then default value for cache size will be used.
@@ -263,4 +463,19 @@ public class CacheStringDictionary extends StringDictionaryBase implements Manag
 	public long getValueEvictionsCount() {
 		return _valueEvictionsCount.get();
 	}
-}
\ No newline at end of file
+
+	@Override
+	public long[] getIdHitsRatioHistogram() {
+		return _idHitsRatioHistogram.buckets();
+	}
+
+	@Override
+	public long[] getValueHitsRatioHistogram() {
+		return _valueHitsRatioHistogram.buckets();
+	}
+
+	@Override
+	public boolean isOffHeap() {
+		return false;
+	}
+}
@@ -1,9 +1,22 @@
 package edu.kit.aifb.cumulus.store.dict.impl.string;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+
+import com.google.common.util.concurrent.Striped;
+
 import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerException;
 
 /**
  * A persistent string dictionary.
+ * New identifiers are assigned under striped locks (keyed by value), so concurrent 
+ * loaders only contend when they meet the same new values.
  * 
  * @author Andrea Gazzarini
  * @since 1.1.0
@@ -12,6 +25,9 @@ public class PersistentStringDictionary extends SingleIndexStringDictionary {
 
 	static final int ID_LENGTH = 8;
 	static final byte[] EMPTY_VALUE = new byte[ID_LENGTH];
+	static final int LOCK_STRIPES = 256;
+
+	private final Striped<Lock> _locks = Striped.lock(LOCK_STRIPES);
 
 	/**
 	 * Builds a new known dictionary for namespaces.
@@ -29,22 +45,120 @@ public class PersistentStringDictionary extends SingleIndexStringDictionary {
 			return EMPTY_VALUE;
 		}
 		
-		byte[] id = null;
-
-		synchronized (this) {
-			id = _index.get(value);
-			if (id[0] == NOT_SET[0]) {
-				id = newId(value, _index);
-				_index.putQuick(value, id);
+		byte[] id = _index.get(value);
+		if (id[0] == NOT_SET[0]) {
+			final Lock lock = _locks.get(value);
+			lock.lock();
+			try {
+				id = _index.get(value);
+				if (id[0] == NOT_SET[0]) {
+					id = newId(value, _index);
+					_index.putQuick(value, id);
+				}
+			} finally {
+				lock.unlock();
 			}
 		}
 		RUNTIME_CONTEXTS.get().isFirstLevelResult = true;
 		return id;
 	}
 
+	@Override
+	protected byte[][] getIdsInternal(final List<String> values, final boolean p) throws DataAccessLayerException {
+		final byte[][] ids = new byte[values.size()][];
+		final int[] lookupsPositions = new int[ids.length];
+		final List<String> lookups = new ArrayList<String>(ids.length);
+
+		for (int i = 0; i < ids.length; i++) {
+			final String value = values.get(i);
+			if (value.trim().length() == 0) {
+				ids[i] = EMPTY_VALUE;
+			} else {
+				lookupsPositions[lookups.size()] = i;
+				lookups.add(value);
+			}
+		}
+
+		if (!lookups.isEmpty()) {
+			final List<byte[]> found = _index.get(lookups);
+			final Set<String> misses = new LinkedHashSet<String>();
+			for (int i = 0; i < found.size(); i++) {
+				final byte[] id = found.get(i);
+				if (id[0] == NOT_SET[0]) {
+					misses.add(lookups.get(i));
+				} else {
+					ids[lookupsPositions[i]] = id;
+				}
+			}
+
+			if (!misses.isEmpty()) {
+				final Map<String, byte[]> newIds = assignIds(misses);
+				for (int i = 0; i < found.size(); i++) {
+					if (ids[lookupsPositions[i]] == null) {
+						ids[lookupsPositions[i]] = newIds.get(lookups.get(i));
+					}
+				}
+			}
+		}
+
+		final boolean[] firstLevelResults = new boolean[ids.length];
+		Arrays.fill(firstLevelResults, true);
+		RUNTIME_CONTEXTS.get().firstLevelResults = firstLevelResults;
+		return ids;
+	}
+
+	/**
+	 * Assigns identifiers to values that weren't found in the underlying index.
+	 * Only the stripes guarding those values are locked, always in the same order, so 
+	 * concurrent bulk requests cannot deadlock.
+	 * 
+	 * @param misses the values without an identifier.
+	 * @return the identifiers of the given values.
+	 * @throws DataAccessLayerException in case of data access failure.
+	 */
+	private Map<String, byte[]> assignIds(final Set<String> misses) throws DataAccessLayerException {
+		final Map<String, byte[]> result = new HashMap<String, byte[]>(misses.size());
+		final List<Lock> locks = new ArrayList<Lock>(misses.size());
+		try {
+			for (final Lock lock : _locks.bulkGet(misses)) {
+				lock.lock();
+				locks.add(lock);
+			}
+
+			// Another thread could have assigned some of those values in the meantime
+			final List<String> values = new ArrayList<String>(misses);
+			final List<byte[]> found = _index.get(values);
+			final Map<String, byte[]> newIds = new HashMap<String, byte[]>();
+			for (int i = 0; i < values.size(); i++) {
+				final String value = values.get(i);
+				byte[] id = found.get(i);
+				if (id[0] == NOT_SET[0]) {
+					id = newId(value, _index);
+					newIds.put(value, id);
+				}
+				result.put(value, id);
+			}
+			_index.putAllQuick(newIds);
+		} finally {
+			for (int i = locks.size() - 1; i >= 0; i--) {
+				locks.get(i).unlock();
+			}
+		}
+		return result;
+	}
+
 	@Override
 	protected String getValueInternal(final byte[] id, final boolean p) throws DataAccessLayerException {
 		RUNTIME_CONTEXTS.get().isFirstLevelResult = true;
 		return _index.getQuick(id);
 	}
+
+	@Override
+	protected List<String> getValuesInternal(final List<byte[]> ids, final boolean p) throws DataAccessLayerException {
+		final List<String> values = _index.getQuick(ids);
+		final boolean[] firstLevelResults = new boolean[values.size()];
+		Arrays.fill(firstLevelResults, true);
+		RUNTIME_CONTEXTS.get().firstLevelResults = firstLevelResults;
+		return values;
+	}
 }
\ No newline at end of file
@@ -1,12 +1,23 @@
 package edu.kit.aifb.cumulus.store.dict.impl.value;
 
+import static edu.kit.aifb.cumulus.framework.Environment.CHARSET_UTF8;
+import static edu.kit.aifb.cumulus.store.sesame.CumulusRDFSesameUtil.SESAME_VALUE_FACTORY;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.util.concurrent.ConcurrentMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
+import org.openrdf.model.BNode;
+import org.openrdf.model.Literal;
 import org.openrdf.model.Value;
+import org.openrdf.rio.ntriples.NTriplesUtil;
 
-import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
+import com.googlecode.concurrentlinkedhashmap.EntryWeigher;
 import com.googlecode.concurrentlinkedhashmap.EvictionListener;
 
 import edu.kit.aifb.cumulus.framework.InitialisationException;
@@ -14,9 +25,16 @@ import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerException;
 import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerFactory;
 import edu.kit.aifb.cumulus.framework.domain.dictionary.DictionaryRuntimeContext;
 import edu.kit.aifb.cumulus.framework.domain.dictionary.ICacheStrategy;
+import edu.kit.aifb.cumulus.framework.domain.dictionary.IDecoratorDictionary;
+import edu.kit.aifb.cumulus.framework.domain.dictionary.IDictionary;
 import edu.kit.aifb.cumulus.framework.domain.dictionary.ITopLevelDictionary;
 import edu.kit.aifb.cumulus.framework.mx.ManageableCacheDictionary;
 import edu.kit.aifb.cumulus.log.MessageCatalog;
+import edu.kit.aifb.cumulus.store.dict.impl.cache.CacheSnapshot;
+import edu.kit.aifb.cumulus.store.dict.impl.cache.HitRatioHistogram;
+import edu.kit.aifb.cumulus.store.dict.impl.cache.Marshaller;
+import edu.kit.aifb.cumulus.store.dict.impl.cache.TinyLfuCache;
+import edu.kit.aifb.cumulus.store.dict.impl.cache.WarmableCache;
 
 
 /**
@@ -24,12 +42,16 @@ import edu.kit.aifb.cumulus.log.MessageCatalog;
  * Note that although this class "is a" dictionary, due to its Decorator nature, 
  * is supposed to be used in conjunction with a concrete dictionary.
  * 
+ * Caches use a W-TinyLFU policy (see {@link TinyLfuCache}) and can be bounded either by the number of entries 
+ * or by their (estimated) size in bytes. Optionally, cached values can be kept outside the heap.
+ * The hottest entries can be saved in a snapshot and preloaded later (see {@link WarmableCache}).
+ * 
  * @see http://en.wikipedia.org/wiki/Decorator_pattern
  * @author Andreas Wagner
  * @author Andrea Gazzarini
  * @since 1.1.0
  */
-public class CacheValueDictionary extends ValueDictionaryBase implements ManageableCacheDictionary {
+public class CacheValueDictionary extends ValueDictionaryBase implements ManageableCacheDictionary, IDecoratorDictionary, WarmableCache {
 
 	/**
 	 * First level strategy allows caching only for results that directly comes from the next decoratee in the chain.
@@ -58,6 +80,32 @@ public class CacheValueDictionary extends ValueDictionaryBase implements Managea
 				_node2id_cache.put(value, id);
 			}
 		}
+
+		@Override
+		public void cacheValues(final List<Value> values, final byte[][] ids) {
+			final boolean[] firstLevelResults = RUNTIME_CONTEXTS.get().firstLevelResults;
+			if (firstLevelResults != null) {
+				for (int i = 0; i < ids.length; i++) {
+					if (firstLevelResults[i] && ids[i] != null) {
+						firstLevelResults[i] = false;
+						_node2id_cache.put(values.get(i), ids[i]);
+					}
+				}
+			}
+		}
+
+		@Override
+		public void cacheIds(final List<ByteBuffer> ids, final List<Value> values) {
+			final boolean[] firstLevelResults = RUNTIME_CONTEXTS.get().firstLevelResults;
+			if (firstLevelResults != null) {
+				for (int i = 0; i < ids.size(); i++) {
+					if (firstLevelResults[i] && values.get(i) != null) {
+						firstLevelResults[i] = false;
+						_id2node_cache.put(ids.get(i), values.get(i));
+					}
+				}
+			}
+		}
 	}
 
 	/**
@@ -79,19 +127,93 @@ public class CacheValueDictionary extends ValueDictionaryBase implements Managea
 			_node2id_cache.put(value, id);
 			RUNTIME_CONTEXTS.get().isFirstLevelResult = null;
 		}
+
+		@Override
+		public void cacheValues(final List<Value> values, final byte[][] ids) {
+			for (int i = 0; i < ids.length; i++) {
+				if (ids[i] != null) {
+					_node2id_cache.put(values.get(i), ids[i]);
+				}
+			}
+			RUNTIME_CONTEXTS.get().firstLevelResults = null;
+		}
+
+		@Override
+		public void cacheIds(final List<ByteBuffer> ids, final List<Value> values) {
+			for (int i = 0; i < ids.size(); i++) {
+				if (values.get(i) != null) {
+					_id2node_cache.put(ids.get(i), values.get(i));
+				}
+			}
+			RUNTIME_CONTEXTS.get().firstLevelResults = null;
+		}
 	}
 
 	static final int DEFAULT_CACHE_SIZE = 1000;
+
+	static final int ENTRY_OVERHEAD = 96;
+	static final int VALUE_OVERHEAD = 56;
+	static final int ID_OVERHEAD = 16;
+	static final int ID_KEY_OVERHEAD = 64;
+
+	static final EntryWeigher<ByteBuffer, Value> ID_WEIGHER = new EntryWeigher<ByteBuffer, Value>() {
+		@Override
+		public int weightOf(final ByteBuffer key, final Value value) {
+			return ENTRY_OVERHEAD + ID_KEY_OVERHEAD + key.capacity() + sizeOf(value);
+		}
+	};
+
+	static final EntryWeigher<Value, byte[]> VALUE_WEIGHER = new EntryWeigher<Value, byte[]>() {
+		@Override
+		public int weightOf(final Value key, final byte[] value) {
+			return ENTRY_OVERHEAD + sizeOf(key) + ID_OVERHEAD + value.length;
+		}
+	};
+
+	static final Marshaller<Value> VALUE_MARSHALLER = new Marshaller<Value>() {
+		@Override
+		public byte[] marshal(final Value value) {
+			return NTriplesUtil.toNTriplesString(value).getBytes(CHARSET_UTF8);
+		}
+
+		@Override
+		public Value unmarshal(final byte[] data) {
+			final String n3 = new String(data, CHARSET_UTF8);
+			switch (n3.charAt(0)) {
+			case '<':
+				return NTriplesUtil.parseURI(n3, SESAME_VALUE_FACTORY);
+			case '_':
+				return NTriplesUtil.parseBNode(n3, SESAME_VALUE_FACTORY);
+			default:
+				return NTriplesUtil.parseLiteral(n3, SESAME_VALUE_FACTORY);
+			}
+		}
+	};
+
+	static final Marshaller<byte[]> ID_MARSHALLER = new Marshaller<byte[]>() {
+		@Override
+		public byte[] marshal(final byte[] value) {
+			return value;
+		}
+
+		@Override
+		public byte[] unmarshal(final byte[] data) {
+			return data;
+		}
+	};
 	
-	final ConcurrentMap<ByteBuffer, Value> _id2node_cache;
-	final ConcurrentMap<Value, byte[]> _node2id_cache;
+	final TinyLfuCache<ByteBuffer, Value> _id2node_cache;
+	final TinyLfuCache<Value, byte[]> _node2id_cache;
 	final ICacheStrategy<Value> _cacheStrategy;
 
 	private final ITopLevelDictionary _decoratee;
 
 	private final int _idCacheMaxSize;
 	private final int _valueCacheMaxSize;	
+	private final boolean _offHeap;
 	
+	private final HitRatioHistogram _idHitsRatioHistogram = new HitRatioHistogram();
+	private final HitRatioHistogram _valueHitsRatioHistogram = new HitRatioHistogram();
 	private final AtomicLong _idHitsCount = new AtomicLong();
 	private final AtomicLong _valueHitsCount = new AtomicLong();
 	private final AtomicLong _idEvictionsCount = new AtomicLong();
@@ -127,6 +249,30 @@ public class CacheValueDictionary extends ValueDictionaryBase implements Managea
 			final int idCacheSize, 
 			final int valueCacheSize, 			
 			final boolean isFirstLevelCache) {
+		this(id, decoratee, idCacheSize, valueCacheSize, 0, false, isFirstLevelCache);
+	}
+
+	/**
+	 * Builds and initializes a cache capability on top of a given dictionary.
+	 * 
+	 * @param id the dictionary identifier.
+	 * @param decoratee the decorated dictionary.
+	 * @param idCacheSize the identifier cache size. In case <=0 It defaults to {@link #DEFAULT_CACHE_SIZE}
+	 * @param valueCacheSize the value cache size. In case <=0 It defaults to {@link #DEFAULT_CACHE_SIZE}
+	 * @param cacheBytes 
+	 * 				the memory budget, in bytes, shared (in equal parts) by the identifier and the value cache. 
+	 * 				If greater than 0, caches are bounded by (estimated) entries size, instead of by entries count.
+	 * @param offHeap if true, cached values are kept outside the heap.
+	 * @param isFirstLevelCache a boolean that marks this cache as first level (or cumulative).
+	 */
+	public CacheValueDictionary(
+			final String id, 
+			final ITopLevelDictionary decoratee, 
+			final int idCacheSize, 
+			final int valueCacheSize, 
+			final long cacheBytes,
+			final boolean offHeap,
+			final boolean isFirstLevelCache) {
 		super(id);
 		if (decoratee == null) {
 			throw new IllegalArgumentException(MessageCatalog._00091_NULL_DECORATEE_DICT);
@@ -135,16 +281,30 @@ public class CacheValueDictionary extends ValueDictionaryBase implements Managea
 		_idCacheMaxSize = cacheSize(idCacheSize);
 		_valueCacheMaxSize = cacheSize(valueCacheSize);
 		
-		_id2node_cache = new ConcurrentLinkedHashMap
+		_offHeap = offHeap;
+
+		final TinyLfuCache.Builder<ByteBuffer, Value> id2node = new TinyLfuCache
 				.Builder<ByteBuffer, Value>()
-				.maximumWeightedCapacity(_idCacheMaxSize)
-				.listener(_idEvictionListener)
-				.build();
-		_node2id_cache = new ConcurrentLinkedHashMap
+				.listener(_idEvictionListener);
+		final TinyLfuCache.Builder<Value, byte[]> node2id = new TinyLfuCache
 				.Builder<Value, byte[]>()
-				.maximumWeightedCapacity(_valueCacheMaxSize)
-				.listener(_valueEvictionListener)
-				.build();
+				.listener(_valueEvictionListener);
+
+		if (cacheBytes > 0) {
+			id2node.maximumWeight(Math.max(1, cacheBytes / 2)).weigher(ID_WEIGHER);
+			node2id.maximumWeight(Math.max(1, cacheBytes / 2)).weigher(VALUE_WEIGHER);
+		} else {
+			id2node.maximumWeight(_idCacheMaxSize);
+			node2id.maximumWeight(_valueCacheMaxSize);
+		}
+
+		if (offHeap) {
+			id2node.offHeap(VALUE_MARSHALLER);
+			node2id.offHeap(ID_MARSHALLER);
+		}
+
+		_id2node_cache = id2node.build();
+		_node2id_cache = node2id.build();
 		_cacheStrategy = isFirstLevelCache ? new FirstLevelCacheStrategy() : new CumulativeCacheStrategy();
 	}
 
@@ -167,13 +327,58 @@ public class CacheValueDictionary extends ValueDictionaryBase implements Managea
 		if (id == null) {
 			id = _decoratee.getID(value, p);
 			_cacheStrategy.cacheValue(value, id);
+			_idHitsRatioHistogram.record(false);
 		} else {
 			_idHitsCount.incrementAndGet();
+			_idHitsRatioHistogram.record(true);
 		}
 
 		return id;
 	}
 
+	@Override
+	protected byte[][] getIdsInternal(final List<Value> values, final boolean p) throws DataAccessLayerException {
+		final byte[][] ids = new byte[values.size()][];
+		final int[] missesPositions = new int[ids.length];
+		final List<Value> misses = new ArrayList<Value>();
+
+		for (int i = 0; i < ids.length; i++) {
+			final Value value = values.get(i);
+			ids[i] = _node2id_cache.get(value);
+			if (ids[i] == null) {
+				missesPositions[misses.size()] = i;
+				misses.add(value);
+			} else {
+				_idHitsCount.incrementAndGet();
+			}
+		}
+
+		_idHitsRatioHistogram.record(ids.length - misses.size(), ids.length);
+
+		final DictionaryRuntimeContext context = RUNTIME_CONTEXTS.get();
+		boolean[] firstLevelResults = null;
+		if (!misses.isEmpty()) {
+			context.firstLevelResults = null;
+			final byte[][] missesIds = _decoratee.getIDs(misses, p);
+			_cacheStrategy.cacheValues(misses, missesIds);
+
+			final boolean[] missesFirstLevelResults = context.firstLevelResults;
+			if (missesFirstLevelResults != null) {
+				firstLevelResults = new boolean[ids.length];
+			}
+
+			for (int i = 0; i < missesIds.length; i++) {
+				ids[missesPositions[i]] = missesIds[i];
+				if (firstLevelResults != null) {
+					firstLevelResults[missesPositions[i]] = missesFirstLevelResults[i];
+				}
+			}
+		}
+
+		context.firstLevelResults = firstLevelResults;
+		return ids;
+	}
+
 	@Override
 	protected Value getValueInternal(final byte[] id, final boolean p) throws DataAccessLayerException {
 		final ByteBuffer key = ByteBuffer.wrap(id);
@@ -182,12 +387,61 @@ public class CacheValueDictionary extends ValueDictionaryBase implements Managea
 		if (value == null) {
 			value = _decoratee.getValue(id, p);
 			_cacheStrategy.cacheId(key, value);
+			_valueHitsRatioHistogram.record(false);
 		} else {
 			_valueHitsCount.incrementAndGet();
+			_valueHitsRatioHistogram.record(true);
 		}
 		return value;
 	}
 
+	@Override
+	protected List<Value> getValuesInternal(final List<byte[]> ids, final boolean p) throws DataAccessLayerException {
+		final List<Value> values = new ArrayList<Value>(ids.size());
+		final int[] missesPositions = new int[ids.size()];
+		final List<byte[]> misses = new ArrayList<byte[]>();
+		final List<ByteBuffer> missesKeys = new ArrayList<ByteBuffer>();
+
+		for (int i = 0; i < ids.size(); i++) {
+			final byte[] id = ids.get(i);
+			final ByteBuffer key = id != null ? ByteBuffer.wrap(id) : null;
+			final Value value = key != null ? _id2node_cache.get(key) : null;
+			values.add(value);
+			if (value == null && key != null) {
+				missesPositions[misses.size()] = i;
+				misses.add(id);
+				missesKeys.add(key);
+			} else if (value != null) {
+				_valueHitsCount.incrementAndGet();
+			}
+		}
+
+		_valueHitsRatioHistogram.record(ids.size() - misses.size(), ids.size());
+
+		final DictionaryRuntimeContext context = RUNTIME_CONTEXTS.get();
+		boolean[] firstLevelResults = null;
+		if (!misses.isEmpty()) {
+			context.firstLevelResults = null;
+			final List<Value> missesValues = _decoratee.getValues(misses, p);
+			_cacheStrategy.cacheIds(missesKeys, missesValues);
+
+			final boolean[] missesFirstLevelResults = context.firstLevelResults;
+			if (missesFirstLevelResults != null) {
+				firstLevelResults = new boolean[ids.size()];
+			}
+
+			for (int i = 0; i < missesValues.size(); i++) {
+				values.set(missesPositions[i], missesValues.get(i));
+				if (firstLevelResults != null) {
+					firstLevelResults[missesPositions[i]] = missesFirstLevelResults[i];
+				}
+			}
+		}
+
+		context.firstLevelResults = firstLevelResults;
+		return values;
+	}
+
 	@Override
 	public void removeValue(final Value value, final boolean p) throws DataAccessLayerException {
 		if (value != null) {
@@ -227,6 +481,43 @@ public class CacheValueDictionary extends ValueDictionaryBase implements Managea
 		return _decoratee.isResource(id);
 	}
 
+	@Override
+	public List<IDictionary<?>> getDecoratees() {
+		return Collections.<IDictionary<?>> singletonList(_decoratee);
+	}
+
+	@Override
+	public int writeSnapshot(final DataOutputStream out, final int limit) throws IOException {
+		return CacheSnapshot.write(out, snapshotSignature(), _id2node_cache, _node2id_cache, VALUE_MARSHALLER, limit);
+	}
+
+	@Override
+	public int readSnapshot(final DataInputStream in, final AtomicLong progress) throws IOException {
+		return CacheSnapshot.read(in, snapshotSignature(), _id2node_cache, _node2id_cache, VALUE_MARSHALLER, new CacheSnapshot.Filter<Value>() {
+			@Override
+			public boolean accept(final byte[] id, final Value value) {
+				if (value instanceof Literal) {
+					return _decoratee.isLiteral(id);
+				}
+
+				if (value instanceof BNode) {
+					return _decoratee.isBNode(id);
+				}
+				return _decoratee.isResource(id);
+			}
+		}, progress);
+	}
+
+	/**
+	 * Returns the signature of the snapshots written by this cache.
+	 * A snapshot can be preloaded only by a cache that decorates the same kind of dictionary.
+	 * 
+	 * @return the signature of the snapshots written by this cache.
+	 */
+	String snapshotSignature() {
+		return getClass().getName() + ":" + _decoratee.getClass().getName();
+	}
+
 	/**
 	 * Computes the cache size according with a given input.
 	 * If input size is <=0 then default value for cache size will be used.
@@ -238,6 +529,22 @@ public class CacheValueDictionary extends ValueDictionaryBase implements Managea
 		return inputSize > 0 ? inputSize : DEFAULT_CACHE_SIZE;
 	}
 
+	/**
+	 * Estimates the heap size, in bytes, of a given value.
+	 * 
+	 * @param value the value.
+	 * @return the estimated heap size of the given value.
+	 */
+	static int sizeOf(final Value value) {
+		if (value instanceof Literal) {
+			final Literal literal = (Literal) value;
+			return VALUE_OVERHEAD 
+					+ 2 * literal.getLabel().length() 
+					+ (literal.getLanguage() != null ? VALUE_OVERHEAD + 2 * literal.getLanguage().length() : 0);
+		}
+		return VALUE_OVERHEAD + 2 * value.stringValue().length();
+	}
+
 	@Override
 	public int getIdCacheMaxSize() {
 		return _idCacheMaxSize;
@@ -300,4 +607,19 @@ public class CacheValueDictionary extends ValueDictionaryBase implements Managea
 	public long getValueEvictionsCount() {
 		return _valueEvictionsCount.get();
 	}
-}
\ No newline at end of file
+
+	@Override
+	public long[] getIdHitsRatioHistogram() {
+		return _idHitsRatioHistogram.buckets();
+	}
+
+	@Override
+	public long[] getValueHitsRatioHistogram() {
+		return _valueHitsRatioHistogram.buckets();
+	}
+
+	@Override
+	public boolean isOffHeap() {
+		return _offHeap;
+	}
+}
@@ -0,0 +1,269 @@
+package edu.kit.aifb.cumulus.store.dict.impl.value;
+
+import static edu.kit.aifb.cumulus.store.sesame.CumulusRDFSesameUtil.SESAME_VALUE_FACTORY;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openrdf.model.Literal;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.vocabulary.XMLSchema;
+
+import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerException;
+import edu.kit.aifb.cumulus.store.BIndex;
+
+/**
+ * Dictionary that assigns a compact, fixed-width identifier (8 bytes) to each value.
+ *
+ * Small integers, booleans and (UTC) dateTimes are inlined in the identifier, so they never hit the storage:
+ * the first byte is a literal tag that encodes the datatype, the remaining 7 bytes hold the (order preserving) value.
+ * A value is inlined only if its lexical form is the canonical one, so that decoding gives back exactly the
+ * same literal. All other values get a flag byte followed by 7 bytes of their hash;
+ * collisions, which are more likely than with the default 17 bytes identifiers, are resolved by linear probing.
+ *
+ * Fixed-width identifiers mean that compound identifiers can be decomposed without any length prefix and that
+ * index entries have a predictable (and small) size.
+ *
+ * @see PersistentValueDictionary
+ * @author agent
+ * @since 1.1.0
+ */
+public class CompactValueDictionary extends PersistentValueDictionary {
+	static final int ID_LENGTH = 8;
+
+	static final URI[] INLINE_DATATYPES = {
+		XMLSchema.INTEGER,
+		XMLSchema.LONG,
+		XMLSchema.INT,
+		XMLSchema.SHORT,
+		XMLSchema.BYTE,
+		XMLSchema.BOOLEAN,
+		XMLSchema.DATETIME
+	};
+
+	static final int BOOLEAN = 5;
+	static final int DATETIME = 6;
+
+	static final long PAYLOAD_OFFSET = 1L << 55;
+	static final long MAX_INLINE_VALUE = PAYLOAD_OFFSET - 1;
+	static final long MIN_INLINE_VALUE = -PAYLOAD_OFFSET;
+
+	/**
+	 * Builds a new compact dictionary.
+	 *
+	 * @param id the dictionary identifier.
+	 */
+	public CompactValueDictionary(final String id) {
+		super(id, ID_LENGTH);
+	}
+
+	@Override
+	protected BIndex createIndex(final String name) {
+		// Don't share indexes with the default dictionary: identifiers have a different layout.
+		return super.createIndex(name + "_COMPACT");
+	}
+
+	@Override
+	protected byte[] getIdInternal(final Value value, final boolean p) throws DataAccessLayerException {
+		final byte[] id = inlineId(value);
+		return id != null ? id : super.getIdInternal(value, p);
+	}
+
+	@Override
+	protected byte[][] getIdsInternal(final List<Value> values, final boolean p) throws DataAccessLayerException {
+		final byte[][] ids = new byte[values.size()][];
+		final List<Value> others = new ArrayList<Value>(values.size());
+		final int[] othersPositions = new int[ids.length];
+
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = inlineId(values.get(i));
+			if (ids[i] == null) {
+				othersPositions[others.size()] = i;
+				others.add(values.get(i));
+			}
+		}
+
+		if (!others.isEmpty()) {
+			final byte[][] othersIds = super.getIdsInternal(others, p);
+			for (int i = 0; i < othersIds.length; i++) {
+				ids[othersPositions[i]] = othersIds[i];
+			}
+		}
+		return ids;
+	}
+
+	@Override
+	protected Value getValueInternal(final byte[] id, final boolean p) throws DataAccessLayerException {
+		return isInline(id) ? inlineValue(id) : super.getValueInternal(id, p);
+	}
+
+	@Override
+	protected List<Value> getValuesInternal(final List<byte[]> ids, final boolean p) throws DataAccessLayerException {
+		final List<Value> values = new ArrayList<Value>(ids.size());
+		final List<byte[]> others = new ArrayList<byte[]>(ids.size());
+		final int[] othersPositions = new int[ids.size()];
+
+		for (int i = 0; i < ids.size(); i++) {
+			final byte[] id = ids.get(i);
+			if (isInline(id)) {
+				values.add(inlineValue(id));
+			} else {
+				values.add(null);
+				othersPositions[others.size()] = i;
+				others.add(id);
+			}
+		}
+
+		if (!others.isEmpty()) {
+			final List<Value> othersValues = super.getValuesInternal(others, p);
+			for (int i = 0; i < othersValues.size(); i++) {
+				values.set(othersPositions[i], othersValues.get(i));
+			}
+		}
+		return values;
+	}
+
+	@Override
+	public void removeValue(final Value value, final boolean p) throws DataAccessLayerException {
+		if (value != null && inlineId(value) == null) {
+			super.removeValue(value, p);
+		}
+	}
+
+	@Override
+	public boolean isLiteral(final byte[] id) {
+		return super.isLiteral(id) || isInline(id);
+	}
+
+	/**
+	 * Returns true if the given identifier holds an inline value.
+	 *
+	 * @param id the identifier.
+	 * @return true if the given identifier holds an inline value.
+	 */
+	static boolean isInline(final byte[] id) {
+		return id != null
+				&& id.length == ID_LENGTH
+				&& id[0] > LITERAL_BYTE_FLAG
+				&& id[0] <= LITERAL_BYTE_FLAG + INLINE_DATATYPES.length;
+	}
+
+	/**
+	 * Returns the inline identifier of the given value.
+	 *
+	 * @param value the value.
+	 * @return the inline identifier of the given value, null if the value cannot be inlined.
+	 */
+	static byte[] inlineId(final Value value) {
+		if (!(value instanceof Literal)) {
+			return null;
+		}
+
+		final Literal literal = (Literal) value;
+		final URI datatype = literal.getDatatype();
+		if (datatype == null) {
+			return null;
+		}
+
+		for (int i = 0; i < INLINE_DATATYPES.length; i++) {
+			if (INLINE_DATATYPES[i].equals(datatype)) {
+				final String label = literal.getLabel();
+				final Long payload = i == BOOLEAN
+						? parseBoolean(label)
+						: i == DATETIME ? parseDateTime(label) : parseLong(label);
+				return payload != null ? newInlineId(i, payload) : null;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Decodes the value of an inline identifier.
+	 *
+	 * @param id the inline identifier.
+	 * @return the value encoded in the given identifier.
+	 */
+	static Value inlineValue(final byte[] id) {
+		final int datatype = id[0] - LITERAL_BYTE_FLAG - 1;
+
+		long payload = 0;
+		for (int i = 1; i < ID_LENGTH; i++) {
+			payload = (payload << 8) | (id[i] & 0xFF);
+		}
+		payload -= PAYLOAD_OFFSET;
+
+		final String label = datatype == BOOLEAN
+				? String.valueOf(payload != 0)
+				: datatype == DATETIME ? Instant.ofEpochMilli(payload).toString() : String.valueOf(payload);
+		return SESAME_VALUE_FACTORY.createLiteral(label, INLINE_DATATYPES[datatype]);
+	}
+
+	/**
+	 * Builds an inline identifier.
+	 * The payload is shifted into the unsigned 7 bytes range, so identifiers of the same datatype sort like their values.
+	 *
+	 * @param datatype the datatype index, in {@link #INLINE_DATATYPES}.
+	 * @param payload the value.
+	 * @return the inline identifier.
+	 */
+	private static byte[] newInlineId(final int datatype, final long payload) {
+		final byte[] id = new byte[ID_LENGTH];
+		id[0] = (byte) (LITERAL_BYTE_FLAG + datatype + 1);
+
+		long shifted = payload + PAYLOAD_OFFSET;
+		for (int i = ID_LENGTH - 1; i > 0; i--) {
+			id[i] = (byte) shifted;
+			shifted >>>= 8;
+		}
+		return id;
+	}
+
+	/**
+	 * Parses a canonical integer lexical form.
+	 *
+	 * @param label the lexical form.
+	 * @return the integer value, null if the label is not canonical or the value doesn't fit in 7 bytes.
+	 */
+	private static Long parseLong(final String label) {
+		try {
+			final long value = Long.parseLong(label);
+			return value >= MIN_INLINE_VALUE && value <= MAX_INLINE_VALUE && String.valueOf(value).equals(label)
+					? value
+					: null;
+		} catch (final NumberFormatException exception) {
+			return null;
+		}
+	}
+
+	/**
+	 * Parses a canonical boolean lexical form.
+	 *
+	 * @param label the lexical form.
+	 * @return 1 for true, 0 for false, null if the label is not canonical.
+	 */
+	private static Long parseBoolean(final String label) {
+		return "true".equals(label) ? Long.valueOf(1) : "false".equals(label) ? Long.valueOf(0) : null;
+	}
+
+	/**
+	 * Parses a UTC dateTime lexical form, with an optional milliseconds fraction.
+	 *
+	 * @param label the lexical form.
+	 * @return the epoch milliseconds, null if the label is not canonical.
+	 */
+	private static Long parseDateTime(final String label) {
+		try {
+			final Instant instant = Instant.parse(label);
+			final long millis = instant.toEpochMilli();
+			return millis >= MIN_INLINE_VALUE
+					&& millis <= MAX_INLINE_VALUE
+					&& Instant.ofEpochMilli(millis).toString().equals(label)
+					? millis
+					: null;
+		} catch (final RuntimeException exception) {
+			return null;
+		}
+	}
+}
@@ -4,6 +4,13 @@ import static edu.kit.aifb.cumulus.framework.Environment.CHARSET_UTF8;
 import static edu.kit.aifb.cumulus.store.sesame.CumulusRDFSesameUtil.SESAME_VALUE_FACTORY;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.openrdf.model.URI;
@@ -22,6 +29,9 @@ import org.openrdf.rio.ntriples.NTriplesUtil;
 import edu.kit.aifb.cumulus.framework.InitialisationException;
 import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerException;
 import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerFactory;
+import edu.kit.aifb.cumulus.framework.domain.dictionary.DictionaryRuntimeContext;
+import edu.kit.aifb.cumulus.framework.domain.dictionary.IDecoratorDictionary;
+import edu.kit.aifb.cumulus.framework.domain.dictionary.IDictionary;
 import edu.kit.aifb.cumulus.framework.domain.dictionary.ITopLevelDictionary;
 import edu.kit.aifb.cumulus.framework.util.Utility;
 import edu.kit.aifb.cumulus.log.MessageCatalog;
@@ -39,7 +49,7 @@ import edu.kit.aifb.cumulus.store.mx.ManageableKnownURIsDictionary;
  * @author Andrea Gazzarini
  * @since 1.1.0
  */
-public class KnownURIsDictionary extends SingleIndexValueDictionary implements ManageableKnownURIsDictionary {
+public class KnownURIsDictionary extends SingleIndexValueDictionary implements ManageableKnownURIsDictionary, IDecoratorDictionary {
 
 	static final byte KNOWN_URI_MARKER = 31;
 	static final int ID_LENGTH = 19;
@@ -116,6 +126,73 @@ public class KnownURIsDictionary extends SingleIndexValueDictionary implements M
 		}
 	}
 
+	@Override
+	protected byte[][] getIdsInternal(final List<Value> values, final boolean p) throws DataAccessLayerException {
+		final byte[][] ids = new byte[values.size()][];
+		final boolean[] firstLevelResults = new boolean[ids.length];
+
+		final int[] knownPositions = new int[ids.length];
+		final List<String> known = new ArrayList<String>();
+		final int[] othersPositions = new int[ids.length];
+		final List<Value> others = new ArrayList<Value>();
+
+		for (int i = 0; i < ids.length; i++) {
+			final Value value = values.get(i);
+			if (value instanceof URI && contains(((URI) value).getNamespace())) {
+				knownPositions[known.size()] = i;
+				known.add(NTriplesUtil.toNTriplesString(value));
+			} else {
+				othersPositions[others.size()] = i;
+				others.add(value);
+			}
+		}
+
+		if (!known.isEmpty()) {
+			_idKnownURIsHitsCount.addAndGet(known.size());
+
+			synchronized (this) {
+				final List<byte[]> found = _index.get(known);
+				final Set<String> misses = new LinkedHashSet<String>();
+				for (int i = 0; i < found.size(); i++) {
+					final byte[] id = found.get(i);
+					if (id[0] == NOT_SET[0]) {
+						misses.add(known.get(i));
+					} else {
+						ids[knownPositions[i]] = id;
+					}
+				}
+
+				if (!misses.isEmpty()) {
+					final Map<String, byte[]> newIds = newIds(misses, _index);
+					_index.putAllQuick(newIds);
+					for (int i = 0; i < found.size(); i++) {
+						if (ids[knownPositions[i]] == null) {
+							ids[knownPositions[i]] = newIds.get(known.get(i));
+						}
+					}
+				}
+			}
+
+			for (int i = 0; i < known.size(); i++) {
+				firstLevelResults[knownPositions[i]] = true;
+			}
+		}
+
+		final DictionaryRuntimeContext context = RUNTIME_CONTEXTS.get();
+		if (!others.isEmpty()) {
+			context.firstLevelResults = null;
+			final byte[][] othersIds = _decoratee.getIDs(others, p);
+			final boolean[] othersFirstLevelResults = context.firstLevelResults;
+			for (int i = 0; i < othersIds.length; i++) {
+				ids[othersPositions[i]] = othersIds[i];
+				firstLevelResults[othersPositions[i]] = othersFirstLevelResults != null && othersFirstLevelResults[i];
+			}
+		}
+
+		context.firstLevelResults = firstLevelResults;
+		return ids;
+	}
+
 	@Override
 	protected Value getValueInternal(final byte[] id, final boolean p) throws DataAccessLayerException {
 		if (id[0] == KNOWN_URI_MARKER && id.length == ID_LENGTH) {
@@ -128,6 +205,58 @@ public class KnownURIsDictionary extends SingleIndexValueDictionary implements M
 		}
 	}
 
+	@Override
+	protected List<Value> getValuesInternal(final List<byte[]> ids, final boolean p) throws DataAccessLayerException {
+		final List<Value> values = new ArrayList<Value>(ids.size());
+		final boolean[] firstLevelResults = new boolean[ids.size()];
+
+		final int[] knownPositions = new int[ids.size()];
+		final List<byte[]> known = new ArrayList<byte[]>();
+		final int[] othersPositions = new int[ids.size()];
+		final List<byte[]> others = new ArrayList<byte[]>();
+
+		for (int i = 0; i < ids.size(); i++) {
+			final byte[] id = ids.get(i);
+			values.add(null);
+			if (id != null && id[0] == KNOWN_URI_MARKER && id.length == ID_LENGTH) {
+				knownPositions[known.size()] = i;
+				known.add(id);
+			} else {
+				othersPositions[others.size()] = i;
+				others.add(id);
+			}
+		}
+
+		if (!known.isEmpty()) {
+			_valueknownURIsHitsCount.addAndGet(known.size());
+
+			final List<String> n3s = _index.getQuick(known);
+			for (int i = 0; i < n3s.size(); i++) {
+				final String n3 = n3s.get(i);
+				if (n3 == null || n3.isEmpty()) {
+					_log.error(MessageCatalog._00086_NODE_NOT_FOUND_IN_DICTIONARY, Arrays.toString(known.get(i)));
+				} else {
+					values.set(knownPositions[i], NTriplesUtil.parseResource(n3, SESAME_VALUE_FACTORY));
+				}
+				firstLevelResults[knownPositions[i]] = true;
+			}
+		}
+
+		final DictionaryRuntimeContext context = RUNTIME_CONTEXTS.get();
+		if (!others.isEmpty()) {
+			context.firstLevelResults = null;
+			final List<Value> othersValues = _decoratee.getValues(others, p);
+			final boolean[] othersFirstLevelResults = context.firstLevelResults;
+			for (int i = 0; i < othersValues.size(); i++) {
+				values.set(othersPositions[i], othersValues.get(i));
+				firstLevelResults[othersPositions[i]] = othersFirstLevelResults != null && othersFirstLevelResults[i];
+			}
+		}
+
+		context.firstLevelResults = firstLevelResults;
+		return values;
+	}
+
 	@Override
 	public void removeValue(final Value value, final boolean p) throws DataAccessLayerException {
 		if (value instanceof URI && contains(((URI) value).getNamespace())) {
@@ -199,5 +328,10 @@ public class KnownURIsDictionary extends SingleIndexValueDictionary implements M
 	@Override
 	protected void closeInternal() {
 		_decoratee.close();
+	}
+
+	@Override
+	public List<IDictionary<?>> getDecoratees() {
+		return Collections.<IDictionary<?>> singletonList(_decoratee);
 	}	
 }
\ No newline at end of file
@@ -6,13 +6,26 @@ import static edu.kit.aifb.cumulus.framework.util.Bytes.subarray;
 import static edu.kit.aifb.cumulus.store.sesame.CumulusRDFSesameUtil.SESAME_VALUE_FACTORY;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
 
 import org.openrdf.model.BNode;
 import org.openrdf.model.Literal;
 import org.openrdf.model.Value;
 import org.openrdf.rio.ntriples.NTriplesUtil;
 
+import com.google.common.util.concurrent.Striped;
+
 import edu.kit.aifb.cumulus.framework.InitialisationException;
 import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerException;
 import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerFactory;
@@ -23,6 +36,8 @@ import edu.kit.aifb.cumulus.store.BIndex;
 /**
  * Simple implementation of a node dictionary. 
  * Uses MurmurHash3 hashing and linear probing for hash collision resolution.
+ * Identifiers are assigned under striped locks (keyed by resource) so concurrent 
+ * loaders only contend when they meet the same new resources.
  * 
  * @author Andreas Wagner
  * @author Andrea Gazzarini
@@ -32,27 +47,56 @@ import edu.kit.aifb.cumulus.store.BIndex;
 public class PersistentValueDictionary extends ValueDictionaryBase {
 	static final int ID_LENGTH = 17;
 
+	static final int LOCK_STRIPES = 256;
+
+	private final int _idLength;
 	private BIndex _soIndex;
 	private BIndex _pIndex;
 
+	private final Striped<Lock> _locks = Striped.lock(LOCK_STRIPES);
+	private final Set<ByteBuffer> _soReservedIds = Collections.newSetFromMap(new ConcurrentHashMap<ByteBuffer, Boolean>());
+	private final Set<ByteBuffer> _pReservedIds = Collections.newSetFromMap(new ConcurrentHashMap<ByteBuffer, Boolean>());
+
 	/**
 	 * Builds a new dictionary.
 	 * 
 	 * @param id the dictionary identifier.
 	 */
 	public PersistentValueDictionary(final String id) {
-		super(id);
+		this(id, ID_LENGTH);
 	} 
+
+	/**
+	 * Builds a new dictionary with a given identifier length.
+	 * Identifiers are made of a type flag and the first (idLength - 1) bytes of the resource hash.
+	 * 
+	 * @param id the dictionary identifier.
+	 * @param idLength the length of the identifiers assigned by this dictionary, between 8 and {@link #ID_LENGTH}.
+	 */
+	protected PersistentValueDictionary(final String id, final int idLength) {
+		super(id);
+		_idLength = idLength;
+	}
 	
 	@Override
 	public void initialiseInternal(final DataAccessLayerFactory factory) throws InitialisationException {		
-		_soIndex = new BIndex("DICT_SO");
+		_soIndex = createIndex("DICT_SO");
 		_soIndex.initialise(factory);
 		
-		_pIndex = new BIndex("DICT_P");	
+		_pIndex = createIndex("DICT_P");	
 		_pIndex.initialise(factory);
 	}
 
+	/**
+	 * Creates an index with the given name.
+	 * 
+	 * @param name the index name.
+	 * @return a new (not yet initialised) index.
+	 */
+	protected BIndex createIndex(final String name) {
+		return new BIndex(name);
+	}
+
 	@Override
 	public void closeInternal() {
 		// Nothing to be done here...
@@ -60,7 +104,47 @@ public class PersistentValueDictionary extends ValueDictionaryBase {
 	
 	@Override
 	protected Value getValueInternal(final byte[] id, final boolean p) throws DataAccessLayerException {
-		final String n3 = getN3(id, p);
+		return parse(id, getN3(id, p));
+	}
+
+	@Override
+	protected List<Value> getValuesInternal(final List<byte[]> ids, final boolean p) throws DataAccessLayerException {
+		final List<Value> values = new ArrayList<Value>(ids.size());
+		final int[] lookupsPositions = new int[ids.size()];
+		final List<byte[]> lookups = new ArrayList<byte[]>(ids.size());
+
+		for (int i = 0; i < ids.size(); i++) {
+			final byte[] id = ids.get(i);
+			values.add(null);
+			if (id != null && id.length > 0) {
+				lookupsPositions[lookups.size()] = i;
+				lookups.add(id);
+			}
+		}
+
+		if (!lookups.isEmpty()) {
+			final List<String> n3s = p ? _pIndex.getQuick(lookups) : _soIndex.getQuick(lookups);
+			for (int i = 0; i < n3s.size(); i++) {
+				final String n3 = n3s.get(i);
+				final byte[] id = lookups.get(i);
+				if (n3 == null || n3.isEmpty()) {
+					_log.error(MessageCatalog._00086_NODE_NOT_FOUND_IN_DICTIONARY, Arrays.toString(id));
+				} else {
+					values.set(lookupsPositions[i], parse(id, n3));
+				}
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Parses the N3 representation of a resource, according with the kind encoded in its identifier.
+	 * 
+	 * @param id the identifier of the resource.
+	 * @param n3 the resource (N3 representation).
+	 * @return the resource.
+	 */
+	private Value parse(final byte[] id, final String n3) {
 		if (id[0] == RESOURCE_BYTE_FLAG) {
 			return NTriplesUtil.parseResource(n3, SESAME_VALUE_FACTORY);
 		} else if (id[0] == LITERAL_BYTE_FLAG) {
@@ -87,42 +171,260 @@ public class PersistentValueDictionary extends ValueDictionaryBase {
 	@Override
 	protected byte[] getIdInternal(final Value value, final boolean p) throws DataAccessLayerException {		
 		final String n3 = NTriplesUtil.toNTriplesString(value);
-		byte[] id = null;
+		byte[] id = getID(n3, p);
+
+		if (id[0] == NOT_SET[0]) {
+			final Lock lock = _locks.get(n3);
+			lock.lock();
+			try {
+				id = getID(n3, p);
+				if (id[0] == NOT_SET[0]) {
+					final BIndex index = p ? _pIndex : _soIndex;
+					final Set<ByteBuffer> reservedIds = p ? _pReservedIds : _soReservedIds;
+					final Set<ByteBuffer> reserved = new HashSet<ByteBuffer>(1);
+					id = newId(value, n3, index, reservedIds, reserved);
+					try {
+						index.putQuick(n3, id);
+					} finally {
+						reservedIds.removeAll(reserved);
+					}
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+		return id;
+	}
 
-		synchronized (this) {
-			
-			id = value != null ? getID(NTriplesUtil.toNTriplesString(value), p) : null;
+	@Override
+	protected byte[][] getIdsInternal(final List<Value> values, final boolean p) throws DataAccessLayerException {
+		final BIndex index = p ? _pIndex : _soIndex;
+		final List<String> n3s = new ArrayList<String>(values.size());
+		for (final Value value : values) {
+			n3s.add(NTriplesUtil.toNTriplesString(value));
+		}
+
+		final byte[][] ids = new byte[n3s.size()][];
+		final Map<String, Value> misses = new LinkedHashMap<String, Value>();
 
+		final List<byte[]> found = index.get(n3s);
+		for (int i = 0; i < ids.length; i++) {
+			final byte[] id = found.get(i);
 			if (id[0] == NOT_SET[0]) {
-				final BIndex index = p ? _pIndex : _soIndex;
-				id = newId(value, n3, index);
-				index.putQuick(n3, id);
+				misses.put(n3s.get(i), values.get(i));
+			} else {
+				ids[i] = id;
 			}
 		}
-		return id;
+
+		if (!misses.isEmpty()) {
+			final Map<String, byte[]> newIds = new HashMap<String, byte[]>(misses.size());
+			final List<Lock> locks = lock(misses.keySet());
+			try {
+				// Another thread could have assigned some of those values in the meantime
+				final List<String> keys = new ArrayList<String>(misses.keySet());
+				final List<byte[]> recheck = index.get(keys);
+				for (int i = 0; i < keys.size(); i++) {
+					final byte[] id = recheck.get(i);
+					if (id[0] != NOT_SET[0]) {
+						newIds.put(keys.get(i), id);
+						misses.remove(keys.get(i));
+					}
+				}
+
+				if (!misses.isEmpty()) {
+					final Set<ByteBuffer> reservedIds = p ? _pReservedIds : _soReservedIds;
+					final Set<ByteBuffer> reserved = new HashSet<ByteBuffer>(misses.size());
+					final Map<String, byte[]> assigned = newIds(misses, index, reservedIds, reserved);
+					try {
+						index.putAllQuick(assigned);
+					} finally {
+						reservedIds.removeAll(reserved);
+					}
+					newIds.putAll(assigned);
+				}
+			} finally {
+				unlock(locks);
+			}
+
+			for (int i = 0; i < ids.length; i++) {
+				if (ids[i] == null) {
+					ids[i] = newIds.get(n3s.get(i));
+				}
+			}
+		}
+		return ids;
+	}
+
+	/**
+	 * Returns the stripe guarding the identifier assignment of a given resource.
+	 * 
+	 * @param n3 the resource, in N3 format.
+	 * @return the stripe guarding the identifier assignment of the given resource.
+	 */
+	Lock stripe(final String n3) {
+		return _locks.get(n3);
+	}
+
+	/**
+	 * Returns the identifiers currently being assigned.
+	 * 
+	 * @param p a flag indicating if the identifiers are predicate identifiers.
+	 * @return the identifiers currently being assigned.
+	 */
+	Set<ByteBuffer> reservedIds(final boolean p) {
+		return p ? _pReservedIds : _soReservedIds;
+	}
+
+	/**
+	 * Acquires the stripes guarding the given resources.
+	 * Stripes are always acquired in the same order, so concurrent bulk requests cannot deadlock.
+	 * 
+	 * @param n3s the N3 representations of the resources.
+	 * @return the acquired locks, that must be released using {@link #unlock(List)}.
+	 */
+	private List<Lock> lock(final Collection<String> n3s) {
+		final List<Lock> locks = new ArrayList<Lock>(n3s.size());
+		for (final Lock lock : _locks.bulkGet(n3s)) {
+			lock.lock();
+			locks.add(lock);
+		}
+		return locks;
+	}
+
+	/**
+	 * Releases the given locks, in reverse acquisition order.
+	 * 
+	 * @param locks the locks previously acquired with {@link #lock(Collection)}.
+	 */
+	private void unlock(final List<Lock> locks) {
+		for (int i = locks.size() - 1; i >= 0; i--) {
+			locks.get(i).unlock();
+		}
+	}
+
+	/**
+	 * Reserves a candidate identifier.
+	 * A reservation succeeds only if the identifier is not in the index and no other thread is 
+	 * currently assigning it to a different resource.
+	 * 
+	 * @param id the candidate identifier.
+	 * @param index the dictionary index that could already hold that id.
+	 * @param reservedIds the identifiers currently being assigned.
+	 * @return true if the identifier has been reserved, false in case of collision.
+	 * @throws DataAccessLayerException in case of data access failure. 
+	 */
+	private boolean reserve(final byte[] id, final BIndex index, final Set<ByteBuffer> reservedIds) throws DataAccessLayerException {
+		final ByteBuffer key = ByteBuffer.wrap(id);
+		if (!reservedIds.add(key)) {
+			return false;
+		}
+		
+		if (index.contains(id)) {
+			reservedIds.remove(key);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Creates new identifiers for a given set of resources.
+	 * This is the bulk version of {@link #newId(Value, String, BIndex, Set, Set)}: each probing step 
+	 * checks all pending candidates using a single multi-key read.
+	 * The identifiers reserved by this call are collected in the given set: the caller must release 
+	 * them (and only them) once they have been stored.
+	 * 
+	 * @param resources the resources, mapped by their N3 representation.
+	 * @param index the dictionary index that could already hold those resources / ids.
+	 * @param reservedIds the identifiers currently being assigned.
+	 * @param reserved the identifiers reserved by this call.
+	 * @return the new identifiers, mapped by the N3 representation of the corresponding resource.
+	 * @throws DataAccessLayerException in case of data access failure. 
+	 */
+	private Map<String, byte[]> newIds(
+			final Map<String, Value> resources, 
+			final BIndex index, 
+			final Set<ByteBuffer> reservedIds,
+			final Set<ByteBuffer> reserved) throws DataAccessLayerException {
+		final Map<String, byte[]> result = new HashMap<String, byte[]>(resources.size());
+
+		List<String> pending = new ArrayList<String>(resources.keySet());
+		List<byte[]> candidates = new ArrayList<byte[]>(pending.size());
+		for (final String n3 : pending) {
+			candidates.add(makeNewHashID(resources.get(n3), n3));
+		}
+
+		for (int i = 0; !pending.isEmpty(); i++) {
+			final boolean[] reservations = new boolean[candidates.size()];
+			for (int j = 0; j < reservations.length; j++) {
+				reservations[j] = reservedIds.add(ByteBuffer.wrap(candidates.get(j)));
+			}
+			
+			final boolean[] collisions = index.contains(candidates);
+			final List<String> stillPending = new ArrayList<String>();
+			final List<byte[]> nextCandidates = new ArrayList<byte[]>();
+
+			for (int j = 0; j < collisions.length; j++) {
+				final String n3 = pending.get(j);
+				final byte[] candidate = candidates.get(j);
+				final boolean collision = collisions[j] || !reservations[j];
+				if (collision && reservations[j]) {
+					reservedIds.remove(ByteBuffer.wrap(candidate));
+				} else if (!collision) {
+					reserved.add(ByteBuffer.wrap(candidate));
+				}
+
+				if (collision && i < 100) {
+					stillPending.add(n3);
+					nextCandidates.add(resolveHashCollision(candidate, i));
+				} else {
+					if (collision) {
+						_log.error(MessageCatalog._00071_UNABLE_TO_RESOLVE_COLLISION, n3, i);
+					}
+					result.put(n3, candidate);
+				}
+			}
+
+			pending = stillPending;
+			candidates = nextCandidates;
+		}
+		return result;
 	}
 
 	/**
 	 * Creates a new identifier for a given resource.
 	 * The method takes care about (eventual) hash collision.
+	 * If the identifier has been reserved, it is added to the given set: the caller must release it once 
+	 * it has been stored. An identifier returned after giving up on the collision is not reserved.
 	 * 
 	 * @param value the resource. 
 	 * @param n3 the N3 representation of resource.
 	 * @param index the dictionary index that could already hold that resource / id.
+	 * @param reservedIds the identifiers currently being assigned.
+	 * @param reserved the identifiers reserved by this call.
 	 * @return a new identifier for the given resource.
 	 * @throws DataAccessLayerException in case of data access failure. 
 	 */
-	private byte[] newId(final Value value, final String n3, final BIndex index) throws DataAccessLayerException {
+	private byte[] newId(
+			final Value value, 
+			final String n3, 
+			final BIndex index, 
+			final Set<ByteBuffer> reservedIds,
+			final Set<ByteBuffer> reserved) throws DataAccessLayerException {
 		byte[] id = makeNewHashID(value, n3);
-		for (int i = 0; index.contains(id) && i <= 100; i++) {
-
-			id = resolveHashCollision(id, i);
+		for (int i = 0;; i++) {
+			if (reserve(id, index, reservedIds)) {
+				reserved.add(ByteBuffer.wrap(id));
+				return id;
+			}
 
 			if (i == 100) {
 				_log.error(MessageCatalog._00071_UNABLE_TO_RESOLVE_COLLISION, n3, i);
+				return id;
 			}
+
+			id = resolveHashCollision(id, i);
 		}
-		return id;
 	}
 
 	/**
@@ -132,11 +434,11 @@ public class PersistentValueDictionary extends ValueDictionaryBase {
 	 * @param n3 the N3 representation of the resource.
 	 * @return a new (hash) identifier for the given resource.
 	 */
-	private static byte[] makeNewHashID(final Value node, final String n3) {
+	private byte[] makeNewHashID(final Value node, final String n3) {
 
 		final byte[] hash = Utility.murmurHash3(n3.getBytes(CHARSET_UTF8)).asBytes();
 
-		final ByteBuffer buffer = ByteBuffer.allocate(ID_LENGTH);
+		final ByteBuffer buffer = ByteBuffer.allocate(_idLength);
 
 		if (node instanceof Literal) {
 			buffer.put(LITERAL_BYTE_FLAG);
@@ -146,7 +448,7 @@ public class PersistentValueDictionary extends ValueDictionaryBase {
 			buffer.put(RESOURCE_BYTE_FLAG);
 		}
 
-		buffer.put(hash);
+		buffer.put(hash, 0, _idLength - 1);
 		buffer.flip();
 		return buffer.array();
 	}
@@ -175,6 +477,15 @@ public class PersistentValueDictionary extends ValueDictionaryBase {
 	 */
 	private byte[] resolveHashCollision(final byte[] id, final int step) {
 
+		if (id.length <= Long.SIZE / Byte.SIZE) {
+			// linear probing on a hash that doesn't fill a long: increment with carry, leaving the flag untouched
+			final byte[] next = id.clone();
+			for (int i = next.length - 1; i > 0 && ++next[i] == 0; i--) {
+				// carry
+			}
+			return next;
+		}
+
 		final ByteBuffer buffer = ByteBuffer.wrap(id);
 		long hash = buffer.getLong(1);
 		// linear probing
@@ -185,10 +496,10 @@ public class PersistentValueDictionary extends ValueDictionaryBase {
 	@Override
 	public byte[][] decompose(final byte[] compositeId) {
 		if (compositeId != null && compositeId.length > 0) {
-			final int howManyValues = compositeId.length / ID_LENGTH;
+			final int howManyValues = compositeId.length / _idLength;
 			final byte[][] tuple = new byte[howManyValues][];
 			for (int i = 0; i < howManyValues; i++) {
-				tuple[i] = subarray(compositeId, i * ID_LENGTH, ID_LENGTH);
+				tuple[i] = subarray(compositeId, i * _idLength, _idLength);
 			}
 			return tuple;
 		}
@@ -214,17 +525,17 @@ public class PersistentValueDictionary extends ValueDictionaryBase {
 
 	@Override
 	public boolean isBNode(final byte[] id) {
-		return id != null && id.length == ID_LENGTH && id[0] == BNODE_BYTE_FLAG;
+		return id != null && id.length == _idLength && id[0] == BNODE_BYTE_FLAG;
 	}
 
 	@Override
 	public boolean isLiteral(final byte[] id) {
-		return id != null && id.length == ID_LENGTH && id[0] == LITERAL_BYTE_FLAG;
+		return id != null && id.length == _idLength && id[0] == LITERAL_BYTE_FLAG;
 	}
 
 	@Override
 	public boolean isResource(final byte[] id) {
-		return id != null && id.length == ID_LENGTH && id[0] == RESOURCE_BYTE_FLAG;
+		return id != null && id.length == _idLength && id[0] == RESOURCE_BYTE_FLAG;
 	}
 
 	/**
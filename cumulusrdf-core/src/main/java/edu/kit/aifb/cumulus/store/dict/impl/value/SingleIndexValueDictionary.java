@@ -1,7 +1,14 @@
 package edu.kit.aifb.cumulus.store.dict.impl.value;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import edu.kit.aifb.cumulus.framework.InitialisationException;
 import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerException;
@@ -88,6 +95,52 @@ public abstract class SingleIndexValueDictionary extends ValueDictionaryBase {
 		return id;
 	}
 
+	/**
+	 * Creates new identifiers for a given set of resources.
+	 * This is the bulk version of {@link #newId(String, BIndex)}: each probing step 
+	 * checks all pending candidates using a single multi-key read.
+	 * 
+	 * @param n3s the N3 representations of the resources.
+	 * @param index the dictionary index that could already hold those resources / ids.
+	 * @return the new identifiers, mapped by the N3 representation of the corresponding resource.
+	 * @throws DataAccessLayerException in case of data access failure.
+	 */
+	protected Map<String, byte[]> newIds(final Collection<String> n3s, final BIndex index) throws DataAccessLayerException {
+		final Map<String, byte[]> result = new HashMap<String, byte[]>(n3s.size());
+		final Set<ByteBuffer> assigned = new HashSet<ByteBuffer>(n3s.size());
+
+		List<String> pending = new ArrayList<String>(n3s);
+		List<byte[]> candidates = new ArrayList<byte[]>(pending.size());
+		for (final String n3 : pending) {
+			candidates.add(makeNewHashID(n3));
+		}
+
+		for (int i = 0; !pending.isEmpty(); i++) {
+			final boolean[] collisions = index.contains(candidates);
+			final List<String> stillPending = new ArrayList<String>();
+			final List<byte[]> nextCandidates = new ArrayList<byte[]>();
+
+			for (int j = 0; j < collisions.length; j++) {
+				final String n3 = pending.get(j);
+				final byte[] candidate = candidates.get(j);
+				final boolean collision = collisions[j] || !assigned.add(ByteBuffer.wrap(candidate));
+				if (collision && i < 100) {
+					stillPending.add(n3);
+					nextCandidates.add(resolveHashCollision(candidate, i));
+				} else {
+					if (collision) {
+						_log.error(MessageCatalog._00071_UNABLE_TO_RESOLVE_COLLISION, n3, i);
+					}
+					result.put(n3, candidate);
+				}
+			}
+
+			pending = stillPending;
+			candidates = nextCandidates;
+		}
+		return result;
+	}
+
 	/**
 	 * Makes a new hash identifier.
 	 * 
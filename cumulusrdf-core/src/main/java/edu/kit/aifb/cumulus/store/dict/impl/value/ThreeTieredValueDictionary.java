@@ -4,12 +4,24 @@ import static edu.kit.aifb.cumulus.framework.util.Bytes.concat;
 import static edu.kit.aifb.cumulus.framework.util.Bytes.subarray;
 import static edu.kit.aifb.cumulus.store.sesame.CumulusRDFSesameUtil.SESAME_VALUE_FACTORY;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import org.openrdf.model.URI;
 import org.openrdf.model.Value;
 
 import edu.kit.aifb.cumulus.framework.InitialisationException;
 import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerException;
 import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerFactory;
+import edu.kit.aifb.cumulus.framework.domain.dictionary.DictionaryRuntimeContext;
+import edu.kit.aifb.cumulus.framework.domain.dictionary.IDecoratorDictionary;
 import edu.kit.aifb.cumulus.framework.domain.dictionary.IDictionary;
 import edu.kit.aifb.cumulus.framework.domain.dictionary.ITopLevelDictionary;
 import edu.kit.aifb.cumulus.log.MessageCatalog;
@@ -28,7 +40,7 @@ import edu.kit.aifb.cumulus.log.MessageCatalog;
  * @author Andrea Gazzarini
  * @since 1.1.0
  */
-public class ThreeTieredValueDictionary extends ValueDictionaryBase {
+public class ThreeTieredValueDictionary extends ValueDictionaryBase implements IDecoratorDictionary {
 	static final byte MARKER = 30;
 
 	private final IDictionary<String> _namespaces;
@@ -79,17 +91,148 @@ public class ThreeTieredValueDictionary extends ValueDictionaryBase {
 		}
 	}
 
+	@Override
+	protected byte[][] getIdsInternal(final List<Value> values, final boolean p) throws DataAccessLayerException {
+		final byte[][] ids = new byte[values.size()][];
+		final boolean[] firstLevelResults = new boolean[ids.length];
+
+		final int[] urisPositions = new int[ids.length];
+		final List<URI> uris = new ArrayList<URI>();
+		final int[] othersPositions = new int[ids.length];
+		final List<Value> others = new ArrayList<Value>();
+
+		for (int i = 0; i < ids.length; i++) {
+			final Value value = values.get(i);
+			if (value instanceof URI) {
+				urisPositions[uris.size()] = i;
+				uris.add((URI) value);
+			} else {
+				othersPositions[others.size()] = i;
+				others.add(value);
+			}
+		}
+
+		if (!uris.isEmpty()) {
+			final Set<String> distinctNamespaces = new LinkedHashSet<String>();
+			final List<String> localNames = new ArrayList<String>(uris.size());
+			for (final URI uri : uris) {
+				distinctNamespaces.add(uri.getNamespace());
+				localNames.add(uri.getLocalName());
+			}
+
+			final List<String> namespaces = new ArrayList<String>(distinctNamespaces);
+			final byte[][] namespacesIds = _namespaces.getIDs(namespaces, p);
+			final Map<String, byte[]> namespaceIdsMap = new HashMap<String, byte[]>(namespaces.size());
+			for (int i = 0; i < namespacesIds.length; i++) {
+				namespaceIdsMap.put(namespaces.get(i), namespacesIds[i]);
+			}
+
+			final byte[][] localNamesIds = _localNames.getIDs(localNames, p);
+			for (int i = 0; i < localNamesIds.length; i++) {
+				ids[urisPositions[i]] = concat(MARKER, namespaceIdsMap.get(uris.get(i).getNamespace()), localNamesIds[i]);
+			}
+		}
+
+		final DictionaryRuntimeContext context = RUNTIME_CONTEXTS.get();
+		if (!others.isEmpty()) {
+			context.firstLevelResults = null;
+			final byte[][] othersIds = _bNodesAndLiterals.getIDs(others, p);
+			final boolean[] othersFirstLevelResults = context.firstLevelResults;
+			for (int i = 0; i < othersIds.length; i++) {
+				ids[othersPositions[i]] = othersIds[i];
+				firstLevelResults[othersPositions[i]] = othersFirstLevelResults != null && othersFirstLevelResults[i];
+			}
+		}
+
+		context.firstLevelResults = firstLevelResults;
+		return ids;
+	}
+
 	@Override
 	protected Value getValueInternal(final byte[] id, final boolean p) throws DataAccessLayerException {
 		if (id[0] == MARKER) {
-			return SESAME_VALUE_FACTORY.createURI(
-					_namespaces.getValue(subarray(id, 1, 8), p),
-					_localNames.getValue(subarray(id, 9, id.length - 9), p));
+			return uri(id, _namespaces.getValue(subarray(id, 1, 8), p), _localNames.getValue(subarray(id, 9, id.length - 9), p));
 		} else {
 			return _bNodesAndLiterals.getValue(id, p);
 		}
 	}
 
+	@Override
+	protected List<Value> getValuesInternal(final List<byte[]> ids, final boolean p) throws DataAccessLayerException {
+		final List<Value> values = new ArrayList<Value>(ids.size());
+		final boolean[] firstLevelResults = new boolean[ids.size()];
+
+		final int[] urisPositions = new int[ids.size()];
+		final List<byte[]> uris = new ArrayList<byte[]>();
+		final int[] othersPositions = new int[ids.size()];
+		final List<byte[]> others = new ArrayList<byte[]>();
+
+		for (int i = 0; i < ids.size(); i++) {
+			final byte[] id = ids.get(i);
+			values.add(null);
+			if (id != null && id[0] == MARKER) {
+				urisPositions[uris.size()] = i;
+				uris.add(id);
+			} else {
+				othersPositions[others.size()] = i;
+				others.add(id);
+			}
+		}
+
+		if (!uris.isEmpty()) {
+			final Map<ByteBuffer, byte[]> distinctNamespacesIds = new LinkedHashMap<ByteBuffer, byte[]>();
+			final List<byte[]> localNamesIds = new ArrayList<byte[]>(uris.size());
+			for (final byte[] id : uris) {
+				final byte[] namespaceId = subarray(id, 1, 8);
+				distinctNamespacesIds.put(ByteBuffer.wrap(namespaceId), namespaceId);
+				localNamesIds.add(subarray(id, 9, id.length - 9));
+			}
+
+			final List<byte[]> namespacesIds = new ArrayList<byte[]>(distinctNamespacesIds.values());
+			final List<String> namespaces = _namespaces.getValues(namespacesIds, p);
+			final Map<ByteBuffer, String> namespacesMap = new HashMap<ByteBuffer, String>(namespaces.size());
+			for (int i = 0; i < namespaces.size(); i++) {
+				namespacesMap.put(ByteBuffer.wrap(namespacesIds.get(i)), namespaces.get(i));
+			}
+
+			final List<String> localNames = _localNames.getValues(localNamesIds, p);
+			for (int i = 0; i < localNames.size(); i++) {
+				final String namespace = namespacesMap.get(ByteBuffer.wrap(uris.get(i), 1, 8));
+				values.set(urisPositions[i], uri(uris.get(i), namespace, localNames.get(i)));
+			}
+		}
+
+		final DictionaryRuntimeContext context = RUNTIME_CONTEXTS.get();
+		if (!others.isEmpty()) {
+			context.firstLevelResults = null;
+			final List<Value> othersValues = _bNodesAndLiterals.getValues(others, p);
+			final boolean[] othersFirstLevelResults = context.firstLevelResults;
+			for (int i = 0; i < othersValues.size(); i++) {
+				values.set(othersPositions[i], othersValues.get(i));
+				firstLevelResults[othersPositions[i]] = othersFirstLevelResults != null && othersFirstLevelResults[i];
+			}
+		}
+
+		context.firstLevelResults = firstLevelResults;
+		return values;
+	}
+
+	/**
+	 * Creates the URI with a given identifier from its namespace and local name.
+	 * 
+	 * @param id the URI identifier.
+	 * @param namespace the namespace, null or empty if the namespace identifier is unknown.
+	 * @param localName the local name, null or empty if the local name is empty (or its identifier is unknown).
+	 * @return the URI, null if the namespace identifier is unknown.
+	 */
+	private URI uri(final byte[] id, final String namespace, final String localName) {
+		if (namespace == null || namespace.isEmpty()) {
+			_log.error(MessageCatalog._00086_NODE_NOT_FOUND_IN_DICTIONARY, Arrays.toString(id));
+			return null;
+		}
+		return SESAME_VALUE_FACTORY.createURI(namespace, localName != null ? localName : "");
+	}
+
 	@Override
 	public void removeValue(final Value value, final boolean p) throws DataAccessLayerException {
 		if (value != null && !(value instanceof URI)) {
@@ -104,6 +247,11 @@ public class ThreeTieredValueDictionary extends ValueDictionaryBase {
 		_bNodesAndLiterals.close();
 	}
 
+	@Override
+	public List<IDictionary<?>> getDecoratees() {
+		return Arrays.<IDictionary<?>> asList(_namespaces, _localNames, _bNodesAndLiterals);
+	}
+
 	@Override
 	public boolean isBNode(final byte[] id) {
 		return id != null && id[0] != MARKER && _bNodesAndLiterals.isBNode(id);
@@ -5,6 +5,9 @@ import static edu.kit.aifb.cumulus.framework.util.Bytes.fillIn;
 import static edu.kit.aifb.cumulus.framework.util.Bytes.subarray;
 import static edu.kit.aifb.cumulus.store.sesame.CumulusRDFSesameUtil.SESAME_VALUE_FACTORY;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 
 import org.openrdf.model.BNode;
@@ -15,6 +18,8 @@ import org.openrdf.rio.ntriples.NTriplesUtil;
 import edu.kit.aifb.cumulus.framework.InitialisationException;
 import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerException;
 import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerFactory;
+import edu.kit.aifb.cumulus.framework.domain.dictionary.IDecoratorDictionary;
+import edu.kit.aifb.cumulus.framework.domain.dictionary.IDictionary;
 import edu.kit.aifb.cumulus.framework.domain.dictionary.ITopLevelDictionary;
 import edu.kit.aifb.cumulus.log.MessageCatalog;
 
@@ -39,7 +44,7 @@ import edu.kit.aifb.cumulus.log.MessageCatalog;
  * @author Andrea Gazzarini
  * @since 1.1.0
  */
-public class TransientValueDictionary extends ValueDictionaryBase {
+public class TransientValueDictionary extends ValueDictionaryBase implements IDecoratorDictionary {
 
 	static final int DEFAULT_THRESHOLD = 1000; // 1K
 	
@@ -103,6 +108,11 @@ public class TransientValueDictionary extends ValueDictionaryBase {
 		_longLiteralsDictionary.close();
 	}
 
+	@Override
+	public List<IDictionary<?>> getDecoratees() {
+		return Collections.<IDictionary<?>> singletonList(_longLiteralsDictionary);
+	}
+
 	@Override
 	public Value getValueInternal(final byte[] id, final boolean p) throws DataAccessLayerException {
 		switch (id[0]) {
@@ -111,15 +121,58 @@ public class TransientValueDictionary extends ValueDictionaryBase {
 			return _longLiteralsDictionary.getValue(subarray(id, 1, id.length - 1), p);
 		default:
 			RUNTIME_CONTEXTS.get().isFirstLevelResult = true;
-			final String n3 = new String(id, 2, id.length - 2, CHARSET_UTF8);
-			if (id[1] == RESOURCE_BYTE_FLAG) {
-				return NTriplesUtil.parseResource(n3, SESAME_VALUE_FACTORY);
-			} else if (id[1] == LITERAL_BYTE_FLAG) {
-				return NTriplesUtil.parseLiteral(n3, SESAME_VALUE_FACTORY);
+			return n3Value(id);
+		}
+	}
+
+	@Override
+	protected List<Value> getValuesInternal(final List<byte[]> ids, final boolean p) throws DataAccessLayerException {
+		final List<Value> values = new ArrayList<Value>(ids.size());
+		final boolean[] firstLevelResults = new boolean[ids.size()];
+
+		final int[] longLiteralsPositions = new int[ids.size()];
+		final List<byte[]> longLiterals = new ArrayList<byte[]>();
+
+		for (int i = 0; i < ids.size(); i++) {
+			final byte[] id = ids.get(i);
+			if (id == null) {
+				values.add(null);
+			} else if (id[0] == THRESHOLD_EXCEEDED) {
+				values.add(null);
+				longLiteralsPositions[longLiterals.size()] = i;
+				longLiterals.add(subarray(id, 1, id.length - 1));
 			} else {
-				return NTriplesUtil.parseBNode(n3, SESAME_VALUE_FACTORY);
+				values.add(n3Value(id));
+				firstLevelResults[i] = true;
+			}
+		}
+
+		if (!longLiterals.isEmpty()) {
+			final List<Value> valuesFromEmbeddedDictionary = _longLiteralsDictionary.getValues(longLiterals, p);
+			for (int i = 0; i < valuesFromEmbeddedDictionary.size(); i++) {
+				values.set(longLiteralsPositions[i], valuesFromEmbeddedDictionary.get(i));
 			}
 		}
+
+		RUNTIME_CONTEXTS.get().firstLevelResults = firstLevelResults;
+		return values;
+	}
+
+	/**
+	 * Decodes a value whose N3 representation is embedded in its identifier.
+	 * 
+	 * @param id the identifier.
+	 * @return the value.
+	 */
+	private Value n3Value(final byte[] id) {
+		final String n3 = new String(id, 2, id.length - 2, CHARSET_UTF8);
+		if (id[1] == RESOURCE_BYTE_FLAG) {
+			return NTriplesUtil.parseResource(n3, SESAME_VALUE_FACTORY);
+		} else if (id[1] == LITERAL_BYTE_FLAG) {
+			return NTriplesUtil.parseLiteral(n3, SESAME_VALUE_FACTORY);
+		} else {
+			return NTriplesUtil.parseBNode(n3, SESAME_VALUE_FACTORY);
+		}
 	}
 
 	@Override
@@ -132,18 +185,76 @@ public class TransientValueDictionary extends ValueDictionaryBase {
 
 	@Override
 	protected byte[] getIdInternal(final Value value, final boolean p) throws DataAccessLayerException {		
-		if (value instanceof Literal) {
-			final Literal literal = (Literal) value;
-			if (literal.getLabel().length() > _threshold) {
-				final byte[] idFromEmbeddedDictionary = _longLiteralsDictionary.getID(value, p);
-				final byte [] result = new byte[idFromEmbeddedDictionary.length + 1];
-				result[0] = THRESHOLD_EXCEEDED;
-				fillIn(result, 1, idFromEmbeddedDictionary);
-				RUNTIME_CONTEXTS.get().isFirstLevelResult = false;
-				return result;
-			}
+		if (isLongLiteral(value)) {
+			final byte[] result = embeddedId(_longLiteralsDictionary.getID(value, p));
+			RUNTIME_CONTEXTS.get().isFirstLevelResult = false;
+			return result;
 		} 
 		 
+		RUNTIME_CONTEXTS.get().isFirstLevelResult = true;
+		return n3Id(value);			
+	}
+
+	@Override
+	protected byte[][] getIdsInternal(final List<Value> values, final boolean p) throws DataAccessLayerException {
+		final byte[][] ids = new byte[values.size()][];
+		final boolean[] firstLevelResults = new boolean[ids.length];
+
+		final int[] longLiteralsPositions = new int[ids.length];
+		final List<Value> longLiterals = new ArrayList<Value>();
+
+		for (int i = 0; i < ids.length; i++) {
+			final Value value = values.get(i);
+			if (isLongLiteral(value)) {
+				longLiteralsPositions[longLiterals.size()] = i;
+				longLiterals.add(value);
+			} else {
+				ids[i] = n3Id(value);
+				firstLevelResults[i] = true;
+			}
+		}
+
+		if (!longLiterals.isEmpty()) {
+			final byte[][] idsFromEmbeddedDictionary = _longLiteralsDictionary.getIDs(longLiterals, p);
+			for (int i = 0; i < idsFromEmbeddedDictionary.length; i++) {
+				ids[longLiteralsPositions[i]] = embeddedId(idsFromEmbeddedDictionary[i]);
+			}
+		}
+
+		RUNTIME_CONTEXTS.get().firstLevelResults = firstLevelResults;
+		return ids;
+	}
+
+	/**
+	 * Returns true if the given value is a literal that needs to be managed by the long literals dictionary.
+	 * 
+	 * @param value the value.
+	 * @return true if the given value is a literal that needs to be managed by the long literals dictionary.
+	 */
+	private boolean isLongLiteral(final Value value) {
+		return value instanceof Literal && ((Literal) value).getLabel().length() > _threshold;
+	}
+
+	/**
+	 * Builds the identifier of a long literal, starting from the identifier assigned by the long literals dictionary.
+	 * 
+	 * @param idFromEmbeddedDictionary the identifier assigned by the long literals dictionary.
+	 * @return the identifier of the long literal.
+	 */
+	private byte[] embeddedId(final byte[] idFromEmbeddedDictionary) {
+		final byte [] result = new byte[idFromEmbeddedDictionary.length + 1];
+		result[0] = THRESHOLD_EXCEEDED;
+		fillIn(result, 1, idFromEmbeddedDictionary);
+		return result;
+	}
+
+	/**
+	 * Builds the identifier of a given value, using its N3 representation.
+	 * 
+	 * @param value the value.
+	 * @return the identifier of the given value.
+	 */
+	private byte[] n3Id(final Value value) {
 		final String n3 = NTriplesUtil.toNTriplesString(value);
 
 		final byte[] n3b = n3.getBytes(CHARSET_UTF8);
@@ -161,8 +272,7 @@ public class TransientValueDictionary extends ValueDictionaryBase {
 		}		
 		
 		fillIn(id, 2, n3b);
-		RUNTIME_CONTEXTS.get().isFirstLevelResult = true;
-		return id;			
+		return id;
 	}
 
 	@Override
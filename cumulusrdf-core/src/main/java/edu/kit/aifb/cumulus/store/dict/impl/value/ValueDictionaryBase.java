@@ -5,7 +5,13 @@ import static edu.kit.aifb.cumulus.framework.util.Bytes.encode;
 import static edu.kit.aifb.cumulus.framework.util.Bytes.fillIn;
 import static edu.kit.aifb.cumulus.store.sesame.CumulusRDFSesameUtil.SESAME_VALUE_FACTORY;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.openrdf.model.Resource;
 import org.openrdf.model.Statement;
@@ -62,6 +68,57 @@ public abstract class ValueDictionaryBase extends DictionaryBase<Value> implemen
 				getID(c, false) };
 	}
 
+	@Override
+	public List<byte[][]> getIDs(final List<Statement> statements) throws DataAccessLayerException {
+		final Set<Value> values = new LinkedHashSet<Value>();
+		final Set<Value> predicates = new LinkedHashSet<Value>();
+		for (final Statement statement : statements) {
+			values.add(statement.getSubject());
+			predicates.add(statement.getPredicate());
+			values.add(statement.getObject());
+			if (statement.getContext() != null) {
+				values.add(statement.getContext());
+			}
+		}
+
+		final Map<Value, byte[]> valueIds = resolve(values, false);
+		final Map<Value, byte[]> predicateIds = resolve(predicates, true);
+
+		final List<byte[][]> result = new ArrayList<byte[][]>(statements.size());
+		for (final Statement statement : statements) {
+			result.add((statement.getContext() != null)
+					? new byte[][] {
+						valueIds.get(statement.getSubject()),
+						predicateIds.get(statement.getPredicate()),
+						valueIds.get(statement.getObject()),
+						valueIds.get(statement.getContext()) }
+					: new byte[][] {
+						valueIds.get(statement.getSubject()),
+						predicateIds.get(statement.getPredicate()),
+						valueIds.get(statement.getObject()) });
+		}
+		return result;
+	}
+
+	/**
+	 * Resolves, in bulk, the identifiers of a given set of (distinct) values.
+	 * 
+	 * @param values the values.
+	 * @param p the predicate flag.
+	 * @return a map containing the given values with their identifiers.
+	 * @throws DataAccessLayerException in case of data access failure.
+	 */
+	private Map<Value, byte[]> resolve(final Set<Value> values, final boolean p) throws DataAccessLayerException {
+		final List<Value> list = new ArrayList<Value>(values);
+		final byte[][] ids = getIDs(list, p);
+
+		final Map<Value, byte[]> result = new HashMap<Value, byte[]>(list.size());
+		for (int i = 0; i < ids.length; i++) {
+			result.put(list.get(i), ids[i]);
+		}
+		return result;
+	}
+
 	@Override
 	public Statement getValues(final byte[] s, final byte[] p, final byte[] o) throws DataAccessLayerException {
 		return SESAME_VALUE_FACTORY.createStatement(
@@ -0,0 +1,259 @@
+package edu.kit.aifb.cumulus.store.sel;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Statistics about the triples with a given predicate: number of triples, distinct subjects and objects
+ * (HyperLogLog sketches) and most frequent objects (Space-Saving algorithm).
+ *
+ * Sketches cannot forget: after removals, the number of distinct subjects and objects is an upper bound.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+final class PredicateStatistics {
+	static final int TOP_K = 16;
+
+	private long _count;
+	private final HyperLogLog _subjects;
+	private final HyperLogLog _objects;
+	private final Map<ByteBuffer, Long> _topObjects;
+
+	/**
+	 * Builds new (empty) statistics.
+	 */
+	PredicateStatistics() {
+		this(new HyperLogLog(), new HyperLogLog(), new HashMap<ByteBuffer, Long>(TOP_K * 2));
+	}
+
+	/**
+	 * Builds new statistics with the given data.
+	 *
+	 * @param subjects the distinct subjects sketch.
+	 * @param objects the distinct objects sketch.
+	 * @param topObjects the most frequent objects, with their frequency.
+	 */
+	private PredicateStatistics(final HyperLogLog subjects, final HyperLogLog objects, final Map<ByteBuffer, Long> topObjects) {
+		_subjects = subjects;
+		_objects = objects;
+		_topObjects = topObjects;
+	}
+
+	/**
+	 * Records a new triple.
+	 *
+	 * @param subject the subject identifier.
+	 * @param object the object identifier.
+	 */
+	void add(final byte[] subject, final byte[] object) {
+		_count++;
+		_subjects.add(subject);
+		_objects.add(object);
+
+		final ByteBuffer key = ByteBuffer.wrap(object);
+		final Long frequency = _topObjects.get(key);
+		if (frequency != null) {
+			_topObjects.put(key, frequency + 1);
+		} else if (_topObjects.size() < TOP_K) {
+			_topObjects.put(key, 1L);
+		} else {
+			// Space-Saving: the new object replaces the least frequent one, inheriting its frequency.
+			Entry<ByteBuffer, Long> min = null;
+			for (final Entry<ByteBuffer, Long> entry : _topObjects.entrySet()) {
+				if (min == null || entry.getValue() < min.getValue()) {
+					min = entry;
+				}
+			}
+			_topObjects.remove(min.getKey());
+			_topObjects.put(key, min.getValue() + 1);
+		}
+	}
+
+	/**
+	 * Records the removal of a triple.
+	 *
+	 * @param object the object identifier.
+	 */
+	void remove(final byte[] object) {
+		_count = Math.max(0, _count - 1);
+
+		final ByteBuffer key = ByteBuffer.wrap(object);
+		final Long frequency = _topObjects.get(key);
+		if (frequency != null) {
+			if (frequency > 1) {
+				_topObjects.put(key, frequency - 1);
+			} else {
+				_topObjects.remove(key);
+			}
+		}
+	}
+
+	/**
+	 * Merges the sketches of other statistics (e.g. written by another node) into these statistics.
+	 * Distinct subjects and objects are merged exactly; for each of the most frequent objects,
+	 * the highest frequency is kept. The triple count doesn't change.
+	 *
+	 * @param other the statistics to merge.
+	 */
+	void merge(final PredicateStatistics other) {
+		_subjects.merge(other._subjects);
+		_objects.merge(other._objects);
+
+		for (final Entry<ByteBuffer, Long> entry : other._topObjects.entrySet()) {
+			final Long frequency = _topObjects.get(entry.getKey());
+			if (frequency == null || frequency < entry.getValue()) {
+				_topObjects.put(entry.getKey(), entry.getValue());
+			}
+		}
+
+		while (_topObjects.size() > TOP_K) {
+			Entry<ByteBuffer, Long> min = null;
+			for (final Entry<ByteBuffer, Long> entry : _topObjects.entrySet()) {
+				if (min == null || entry.getValue() < min.getValue()) {
+					min = entry;
+				}
+			}
+			_topObjects.remove(min.getKey());
+		}
+	}
+
+	/**
+	 * Returns the number of triples.
+	 *
+	 * @return the number of triples.
+	 */
+	long count() {
+		return _count;
+	}
+
+	/**
+	 * Sets the number of triples.
+	 *
+	 * @param count the number of triples.
+	 */
+	void setCount(final long count) {
+		_count = Math.max(0, count);
+	}
+
+	/**
+	 * Returns the estimated number of distinct subjects.
+	 *
+	 * @return the estimated number of distinct subjects, at least 1.
+	 */
+	long distinctSubjects() {
+		return Math.max(1, Math.min(_count, _subjects.cardinality()));
+	}
+
+	/**
+	 * Returns the estimated number of distinct objects.
+	 *
+	 * @return the estimated number of distinct objects, at least 1.
+	 */
+	long distinctObjects() {
+		return Math.max(1, Math.min(_count, _objects.cardinality()));
+	}
+
+	/**
+	 * Returns the frequency of a given object, if it is one of the most frequent.
+	 *
+	 * @param object the object identifier.
+	 * @return the frequency of the given object, or -1 if it isn't one of the most frequent objects.
+	 */
+	long frequency(final byte[] object) {
+		final Long frequency = _topObjects.get(ByteBuffer.wrap(object));
+		return frequency != null ? frequency : -1;
+	}
+
+	/**
+	 * Returns the estimated number of triples with the given object.
+	 *
+	 * @param object the object identifier.
+	 * @return the estimated number of triples with the given object.
+	 */
+	double objectCardinality(final byte[] object) {
+		final long frequency = frequency(object);
+		if (frequency >= 0) {
+			return frequency;
+		}
+
+		// Not among the most frequent objects: spread the remaining triples over the remaining objects.
+		long topCount = 0;
+		for (final Long topFrequency : _topObjects.values()) {
+			topCount += topFrequency;
+		}
+		final long others = Math.max(1, distinctObjects() - _topObjects.size());
+		return Math.max(0, _count - topCount) / (double) others;
+	}
+
+	/**
+	 * Returns the distinct subjects sketch.
+	 *
+	 * @return the distinct subjects sketch.
+	 */
+	HyperLogLog subjects() {
+		return _subjects;
+	}
+
+	/**
+	 * Returns the distinct objects sketch.
+	 *
+	 * @return the distinct objects sketch.
+	 */
+	HyperLogLog objects() {
+		return _objects;
+	}
+
+	/**
+	 * Serializes the sketches (but not the triple count) of these statistics.
+	 *
+	 * @return the serialized sketches.
+	 */
+	byte[] serialize() {
+		int size = 2 * HyperLogLog.REGISTERS + 4;
+		for (final ByteBuffer object : _topObjects.keySet()) {
+			size += 4 + object.remaining() + 8;
+		}
+
+		final ByteBuffer buffer = ByteBuffer.allocate(size);
+		buffer.put(_subjects.registers());
+		buffer.put(_objects.registers());
+		buffer.putInt(_topObjects.size());
+		for (final Entry<ByteBuffer, Long> entry : _topObjects.entrySet()) {
+			buffer.putInt(entry.getKey().remaining());
+			buffer.put(entry.getKey().duplicate());
+			buffer.putLong(entry.getValue());
+		}
+		return buffer.array();
+	}
+
+	/**
+	 * Deserializes statistics.
+	 *
+	 * @param data the serialized sketches, as returned by {@link #serialize()}.
+	 * @param count the number of triples.
+	 * @return the statistics.
+	 */
+	static PredicateStatistics deserialize(final byte[] data, final long count) {
+		final ByteBuffer buffer = ByteBuffer.wrap(data);
+
+		final byte[] subjects = new byte[HyperLogLog.REGISTERS];
+		buffer.get(subjects);
+		final byte[] objects = new byte[HyperLogLog.REGISTERS];
+		buffer.get(objects);
+
+		final int howManyTopObjects = buffer.getInt();
+		final Map<ByteBuffer, Long> topObjects = new HashMap<ByteBuffer, Long>(TOP_K * 2);
+		for (int i = 0; i < howManyTopObjects; i++) {
+			final byte[] object = new byte[buffer.getInt()];
+			buffer.get(object);
+			topObjects.put(ByteBuffer.wrap(object), buffer.getLong());
+		}
+
+		final PredicateStatistics statistics = new PredicateStatistics(new HyperLogLog(subjects), new HyperLogLog(objects), topObjects);
+		statistics.setCount(count);
+		return statistics;
+	}
+}
@@ -0,0 +1,378 @@
+package edu.kit.aifb.cumulus.store.sel;
+
+import java.nio.ByteBuffer;
+import java.util.EventObject;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.openrdf.model.Value;
+import org.openrdf.query.algebra.Join;
+import org.openrdf.query.algebra.StatementPattern;
+import org.openrdf.query.algebra.TupleExpr;
+import org.openrdf.query.algebra.Var;
+
+import edu.kit.aifb.cumulus.framework.InitialisationException;
+import edu.kit.aifb.cumulus.framework.datasource.CounterDAO;
+import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerException;
+import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerFactory;
+import edu.kit.aifb.cumulus.framework.datasource.MapDAO;
+import edu.kit.aifb.cumulus.framework.domain.dictionary.ITopLevelDictionary;
+import edu.kit.aifb.cumulus.log.MessageCatalog;
+import edu.kit.aifb.cumulus.store.CounterFactory;
+import edu.kit.aifb.cumulus.store.events.AddTripleEvent;
+import edu.kit.aifb.cumulus.store.events.FinishedChangesEvent;
+import edu.kit.aifb.cumulus.store.events.RemoveTriplesEvent;
+import edu.kit.aifb.cumulus.store.sesame.RangeStatementPattern;
+
+/**
+ * Selectivity estimation based on statistics collected while data changes.
+ * For each predicate, the estimator keeps the number of triples, the number of distinct subjects and objects
+ * (HyperLogLog sketches) and the most frequent objects.
+ *
+ * Triple counts are persisted through a {@link CounterDAO}, sketches through a {@link MapDAO}.
+ * Both are written when a set of changes is completed (or every {@link #FLUSH_THRESHOLD} changes) and on close.
+ * Writes happen outside the estimator lock, so estimations are never blocked by I/O.
+ * Since several nodes may share the same storage, sketches are merged with the stored ones before being written.
+ *
+ * Until some statistics have been collected (e.g. on a store loaded with a previous version), the heuristics of
+ * the superclass are used.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+public class StatisticsBasedSelectivityEstimator extends HeuristicsBasedSelectivityEstimator {
+
+	static final String COUNTS = "PREDICATE_COUNTS";
+	static final String SKETCHES = "PREDICATE_SKETCHES";
+	static final int FLUSH_THRESHOLD = 100000;
+
+	private final ITopLevelDictionary _dictionary;
+
+	private final Map<ByteBuffer, PredicateStatistics> _statistics = new HashMap<ByteBuffer, PredicateStatistics>();
+	private final Map<ByteBuffer, Long> _pendingCounts = new HashMap<ByteBuffer, Long>();
+	private final HyperLogLog _subjects = new HyperLogLog();
+	private final HyperLogLog _objects = new HyperLogLog();
+	private long _triples;
+	private int _pendingChanges;
+
+	// Serializes flushes: I/O is done while holding this lock, but not the estimator lock.
+	private final Object _flushLock = new Object();
+
+	private CounterDAO<byte[]> _countsDAO;
+	private MapDAO<byte[], byte[]> _sketchesDAO;
+
+	/**
+	 * Builds a new estimator with the given data.
+	 *
+	 * @param factory the counter factory.
+	 * @param dictionary the dictionary in use.
+	 */
+	public StatisticsBasedSelectivityEstimator(final CounterFactory factory, final ITopLevelDictionary dictionary) {
+		super(factory);
+		_dictionary = dictionary;
+	}
+
+	@Override
+	public void initialise(final DataAccessLayerFactory factory) throws InitialisationException {
+		try {
+			_countsDAO = factory.getCounterDAO(byte[].class, COUNTS);
+			_countsDAO.setDefaultValue(0L);
+			_countsDAO.createRequiredSchemaEntities();
+
+			_sketchesDAO = factory.getMapDAO(byte[].class, byte[].class, false, SKETCHES);
+			_sketchesDAO.createRequiredSchemaEntities();
+
+			synchronized (this) {
+				for (final byte[] predicate : _sketchesDAO.keySet()) {
+					final PredicateStatistics statistics = PredicateStatistics.deserialize(_sketchesDAO.get(predicate), _countsDAO.get(predicate));
+					_statistics.put(ByteBuffer.wrap(predicate), statistics);
+					_subjects.merge(statistics.subjects());
+					_objects.merge(statistics.objects());
+					_triples += statistics.count();
+				}
+			}
+		} catch (final DataAccessLayerException exception) {
+			throw new InitialisationException(exception);
+		}
+	}
+
+	@Override
+	public void close() {
+		try {
+			flush();
+		} catch (final DataAccessLayerException exception) {
+			_log.error(MessageCatalog._00093_DATA_ACCESS_LAYER_FAILURE, exception);
+		}
+	}
+
+	@Override
+	public void update(final EventObject event) {
+		super.update(event);
+
+		boolean flush = false;
+		synchronized (this) {
+			try {
+				if (event instanceof AddTripleEvent) {
+					for (final byte[][] triple : ((AddTripleEvent) event).getChangedTriples()) {
+						if (triple != null && triple.length >= 3) {
+							final ByteBuffer predicate = ByteBuffer.wrap(triple[1]);
+							PredicateStatistics statistics = _statistics.get(predicate);
+							if (statistics == null) {
+								statistics = new PredicateStatistics();
+								_statistics.put(predicate, statistics);
+							}
+
+							statistics.add(triple[0], triple[2]);
+							_subjects.add(triple[0]);
+							_objects.add(triple[2]);
+							_triples++;
+							changed(predicate, 1);
+						}
+					}
+				} else if (event instanceof RemoveTriplesEvent) {
+					for (final byte[][] triple : ((RemoveTriplesEvent) event).getChangedTriples()) {
+						if (triple != null && triple.length >= 3) {
+							final ByteBuffer predicate = ByteBuffer.wrap(triple[1]);
+							final PredicateStatistics statistics = _statistics.get(predicate);
+							if (statistics != null && statistics.count() > 0) {
+								statistics.remove(triple[2]);
+								_triples = Math.max(0, _triples - 1);
+								changed(predicate, -1);
+							}
+						}
+					}
+				}
+
+				flush = event instanceof FinishedChangesEvent || _pendingChanges >= FLUSH_THRESHOLD;
+			} catch (final Exception exception) {
+				_log.error(MessageCatalog._00026_NWS_SYSTEM_INTERNAL_FAILURE, exception);
+			}
+		}
+
+		if (flush) {
+			try {
+				flush();
+			} catch (final DataAccessLayerException exception) {
+				_log.error(MessageCatalog._00093_DATA_ACCESS_LAYER_FAILURE, exception);
+			} catch (final Exception exception) {
+				_log.error(MessageCatalog._00026_NWS_SYSTEM_INTERNAL_FAILURE, exception);
+			}
+		}
+	}
+
+	@Override
+	public synchronized double getCardinality(final TupleExpr expr) {
+		if (expr instanceof Join && _triples > 0) {
+			return equiJoinCardinality(expr);
+		}
+		return super.getCardinality(expr);
+	}
+
+	@Override
+	public synchronized double triplePatternCardinality(final TupleExpr expr) {
+		if (_triples == 0) {
+			return super.triplePatternCardinality(expr);
+		}
+
+		final StatementPattern pattern = (StatementPattern) expr;
+		final Value subject = value(pattern.getSubjectVar());
+		final Value predicate = value(pattern.getPredicateVar());
+		final Value object = value(pattern.getObjectVar());
+
+		try {
+			if (predicate != null) {
+				final PredicateStatistics statistics = statistics(predicate);
+				if (statistics == null) {
+					return 1d;
+				}
+
+				if (subject == null && object == null) {
+					return statistics.count();
+				} else if (object == null) {
+					return statistics.count() / (double) statistics.distinctSubjects();
+				} else if (subject == null) {
+					return statistics.objectCardinality(_dictionary.getID(object, false));
+				} else {
+					return Math.min(1d, statistics.objectCardinality(_dictionary.getID(object, false)));
+				}
+			}
+
+			if (subject == null && object == null) {
+				return _triples;
+			} else if (object == null) {
+				return _triples / (double) Math.max(1, _subjects.cardinality());
+			} else {
+				final byte[] id = _dictionary.getID(object, false);
+				long frequent = 0;
+				for (final PredicateStatistics statistics : _statistics.values()) {
+					frequent += Math.max(0, statistics.frequency(id));
+				}
+
+				final double cardinality = Math.max(frequent, _triples / (double) Math.max(1, _objects.cardinality()));
+				return subject == null ? cardinality : Math.min(1d, cardinality);
+			}
+		} catch (final DataAccessLayerException exception) {
+			_log.error(MessageCatalog._00093_DATA_ACCESS_LAYER_FAILURE, exception);
+			return super.triplePatternCardinality(expr);
+		}
+	}
+
+	/**
+	 * Estimates the cardinality of a join, assuming that values of shared variables are uniformly distributed:
+	 * |L join R| = |L| * |R| / max(distinct values of the join variable in L, distinct values of the join variable in R).
+	 */
+	@Override
+	public synchronized double equiJoinCardinality(final TupleExpr expr) {
+		final Join join = (Join) expr;
+		final TupleExpr left = join.getLeftArg();
+		final TupleExpr right = join.getRightArg();
+
+		final double leftCardinality = getCardinality(left);
+		final double rightCardinality = getCardinality(right);
+
+		final Set<String> shared = new HashSet<String>(left.getBindingNames());
+		shared.retainAll(right.getBindingNames());
+
+		double distinct = 1;
+		for (final String name : shared) {
+			distinct = Math.max(
+					distinct,
+					Math.max(
+							distinctValues(left, name, leftCardinality),
+							distinctValues(right, name, rightCardinality)));
+		}
+		return leftCardinality * rightCardinality / distinct;
+	}
+
+	/**
+	 * Returns the estimated number of distinct values of a variable in the results of a given expression.
+	 *
+	 * @param expr the expression.
+	 * @param name the variable name.
+	 * @param cardinality the cardinality of the expression.
+	 * @return the estimated number of distinct values of a variable in the results of a given expression.
+	 */
+	private double distinctValues(final TupleExpr expr, final String name, final double cardinality) {
+		if (!(expr instanceof StatementPattern) || expr instanceof RangeStatementPattern) {
+			return cardinality;
+		}
+
+		final StatementPattern pattern = (StatementPattern) expr;
+		try {
+			final Value predicate = value(pattern.getPredicateVar());
+			final PredicateStatistics statistics = predicate != null ? statistics(predicate) : null;
+
+			if (isVar(pattern.getSubjectVar(), name)) {
+				return Math.min(cardinality, statistics != null ? statistics.distinctSubjects() : _subjects.cardinality());
+			} else if (isVar(pattern.getObjectVar(), name)) {
+				return Math.min(cardinality, statistics != null ? statistics.distinctObjects() : _objects.cardinality());
+			} else if (isVar(pattern.getPredicateVar(), name)) {
+				return Math.min(cardinality, _statistics.size());
+			}
+		} catch (final DataAccessLayerException exception) {
+			_log.error(MessageCatalog._00093_DATA_ACCESS_LAYER_FAILURE, exception);
+		}
+		return cardinality;
+	}
+
+	/**
+	 * Returns the statistics of a given predicate.
+	 *
+	 * @param predicate the predicate.
+	 * @return the statistics of the given predicate, null if there are no triples with that predicate.
+	 * @throws DataAccessLayerException in case of data access failure.
+	 */
+	private PredicateStatistics statistics(final Value predicate) throws DataAccessLayerException {
+		final byte[] id = _dictionary.getID(predicate, true);
+		return id != null ? _statistics.get(ByteBuffer.wrap(id)) : null;
+	}
+
+	/**
+	 * Records a change in the number of triples with a given predicate.
+	 *
+	 * @param predicate the predicate identifier.
+	 * @param delta the change.
+	 */
+	private void changed(final ByteBuffer predicate, final long delta) {
+		final Long pending = _pendingCounts.get(predicate);
+		_pendingCounts.put(predicate, pending != null ? pending + delta : delta);
+		_pendingChanges++;
+	}
+
+	/**
+	 * Writes the pending changes.
+	 * Pending changes are swapped out under the estimator lock, then written without holding it.
+	 * Each sketch is merged with the stored one (written by other nodes, if any), and the merged sketch is
+	 * also merged back in memory.
+	 *
+	 * @throws DataAccessLayerException in case of data access failure.
+	 */
+	void flush() throws DataAccessLayerException {
+		synchronized (_flushLock) {
+			final Map<ByteBuffer, Long> counts;
+			final Map<ByteBuffer, byte[]> sketches = new HashMap<ByteBuffer, byte[]>();
+			synchronized (this) {
+				if (_countsDAO == null || _pendingCounts.isEmpty()) {
+					return;
+				}
+
+				counts = new HashMap<ByteBuffer, Long>(_pendingCounts);
+				for (final ByteBuffer predicate : counts.keySet()) {
+					sketches.put(predicate, _statistics.get(predicate).serialize());
+				}
+				_pendingCounts.clear();
+				_pendingChanges = 0;
+			}
+
+			for (final Entry<ByteBuffer, Long> entry : counts.entrySet()) {
+				final byte[] predicate = entry.getKey().array();
+				final long delta = entry.getValue();
+				if (delta > 0) {
+					_countsDAO.increment(predicate, delta);
+				} else if (delta < 0) {
+					_countsDAO.decrement(predicate, -delta);
+				}
+
+				byte[] sketch = sketches.get(entry.getKey());
+				final byte[] stored = _sketchesDAO.get(predicate);
+				if (stored != null && stored.length > 0) {
+					final PredicateStatistics others = PredicateStatistics.deserialize(stored, 0);
+					final PredicateStatistics merged = PredicateStatistics.deserialize(sketch, 0);
+					merged.merge(others);
+					sketch = merged.serialize();
+
+					synchronized (this) {
+						_statistics.get(entry.getKey()).merge(others);
+						_subjects.merge(others.subjects());
+						_objects.merge(others.objects());
+					}
+				}
+				_sketchesDAO.set(predicate, sketch);
+			}
+		}
+	}
+
+	/**
+	 * Returns the value of a given variable.
+	 *
+	 * @param var the variable.
+	 * @return the value of the variable, null if it is unbound.
+	 */
+	private Value value(final Var var) {
+		return var != null && var.hasValue() ? var.getValue() : null;
+	}
+
+	/**
+	 * Returns true if the given variable is an unbound variable with the given name.
+	 *
+	 * @param var the variable.
+	 * @param name the name.
+	 * @return true if the given variable is an unbound variable with the given name.
+	 */
+	private boolean isVar(final Var var, final String name) {
+		return var != null && !var.hasValue() && name.equals(var.getName());
+	}
+}
@@ -0,0 +1,194 @@
+package edu.kit.aifb.cumulus.store.sesame;
+
+import info.aduna.iteration.CloseableIteration;
+import info.aduna.iteration.LookAheadIteration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.openrdf.model.Resource;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.QueryEvaluationException;
+import org.openrdf.query.algebra.StatementPattern;
+import org.openrdf.query.algebra.Var;
+import org.openrdf.query.algebra.evaluation.QueryBindingSet;
+
+import edu.kit.aifb.cumulus.store.sesame.model.INativeCumulusValue;
+
+/**
+ * A join between a (left) tuple expression and a (right) statement pattern, evaluated as a bind join.
+ * Instead of looking up the right pattern once for each left binding (nested loop), left bindings are collected in
+ * batches and the lookups of a whole batch are issued at once, so that they can be served concurrently.
+ *
+ * Results are returned in the same order of a nested loop join: all the results of the first left binding, then
+ * all the results of the second one, and so on.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+public class BindJoinIteration extends LookAheadIteration<BindingSet, QueryEvaluationException> {
+
+	private final CloseableIteration<BindingSet, QueryEvaluationException> _left;
+	private final StatementPattern _right;
+	private final CumulusRDFSailConnection.CumulusRDFTripleSource _tripleSource;
+	private final int _batchSize;
+
+	private final List<BindingSet> _batch;
+	private List<Iterator<byte[][]>> _results;
+	private int _position;
+
+	/**
+	 * Builds a new bind join.
+	 *
+	 * @param left the left argument results.
+	 * @param right the right argument.
+	 * @param tripleSource the triple source used for looking up the right argument.
+	 * @param batchSize how many left bindings are collected before looking up the right argument.
+	 */
+	public BindJoinIteration(
+			final CloseableIteration<BindingSet, QueryEvaluationException> left,
+			final StatementPattern right,
+			final CumulusRDFSailConnection.CumulusRDFTripleSource tripleSource,
+			final int batchSize) {
+		_left = left;
+		_right = right;
+		_tripleSource = tripleSource;
+		_batchSize = batchSize;
+		_batch = new ArrayList<BindingSet>(batchSize);
+	}
+
+	@Override
+	protected BindingSet getNextElement() throws QueryEvaluationException {
+		while (true) {
+			while (_results != null && _position < _batch.size()) {
+				final Iterator<byte[][]> rows = _results.get(_position);
+				while (rows.hasNext()) {
+					final BindingSet result = join(_batch.get(_position), rows.next());
+					if (result != null) {
+						return result;
+					}
+				}
+
+				_position++;
+			}
+
+			if (!nextBatch()) {
+				return null;
+			}
+		}
+	}
+
+	@Override
+	protected void handleClose() throws QueryEvaluationException {
+		try {
+			super.handleClose();
+			_results = null;
+		} finally {
+			_left.close();
+		}
+	}
+
+	/**
+	 * Collects the next batch of left bindings and looks up the right argument for each of them.
+	 *
+	 * @return false if the left argument has no more bindings.
+	 * @throws QueryEvaluationException in case of evaluation failure.
+	 */
+	private boolean nextBatch() throws QueryEvaluationException {
+		_batch.clear();
+		_results = null;
+		_position = 0;
+
+		while (_batch.size() < _batchSize && _left.hasNext()) {
+			_batch.add(_left.next());
+		}
+
+		if (_batch.isEmpty()) {
+			return false;
+		}
+
+		final List<Value[]> patterns = new ArrayList<Value[]>(_batch.size());
+		for (final BindingSet bindings : _batch) {
+			patterns.add(pattern(bindings));
+		}
+
+		_results = _tripleSource.getIdentifiers(patterns);
+		return true;
+	}
+
+	/**
+	 * Returns the right argument pattern, with variables replaced by their value in the given bindings.
+	 *
+	 * @param bindings the left bindings.
+	 * @return the pattern (where unbound variables are null), or null if the pattern cannot match any statement.
+	 */
+	private Value[] pattern(final BindingSet bindings) {
+		final Value subject = value(_right.getSubjectVar(), bindings);
+		final Value predicate = value(_right.getPredicateVar(), bindings);
+		if ((subject != null && !(subject instanceof Resource)) || (predicate != null && !(predicate instanceof URI))) {
+			return null;
+		}
+		return new Value[] {subject, predicate, value(_right.getObjectVar(), bindings)};
+	}
+
+	/**
+	 * Joins the given left bindings with a statement (identifiers) that matches the right argument.
+	 *
+	 * @param bindings the left bindings.
+	 * @param row the statement identifiers.
+	 * @return the joined bindings, or null if the statement doesn't match (e.g. with repeated variables).
+	 */
+	private BindingSet join(final BindingSet bindings, final byte[][] row) {
+		final QueryBindingSet result = new QueryBindingSet(bindings);
+		if (bind(result, _right.getSubjectVar(), row[0], false)
+				&& bind(result, _right.getPredicateVar(), row[1], true)
+				&& bind(result, _right.getObjectVar(), row[2], false)) {
+			return result;
+		}
+		return null;
+	}
+
+	/**
+	 * Binds a variable to the value with a given identifier.
+	 *
+	 * @param bindings the bindings.
+	 * @param var the variable.
+	 * @param id the value identifier.
+	 * @param isPredicate true if the identifier has been read in the predicate position.
+	 * @return false if the variable is already bound to a different value.
+	 */
+	private boolean bind(final QueryBindingSet bindings, final Var var, final byte[] id, final boolean isPredicate) {
+		if (var == null || var.hasValue()) {
+			return true;
+		}
+
+		final Value current = bindings.getValue(var.getName());
+		if (current == null) {
+			bindings.addBinding(var.getName(), _tripleSource.createValue(id, isPredicate));
+			return true;
+		}
+
+		if (current instanceof INativeCumulusValue && ((INativeCumulusValue) current).hasInternalID()) {
+			return Arrays.equals(((INativeCumulusValue) current).getInternalID(), id);
+		}
+		return current.equals(_tripleSource.createValue(id, isPredicate));
+	}
+
+	/**
+	 * Returns the value of a given variable.
+	 *
+	 * @param var the variable.
+	 * @param bindings the bindings.
+	 * @return the value of the variable, null if it is unbound.
+	 */
+	private Value value(final Var var, final BindingSet bindings) {
+		if (var == null) {
+			return null;
+		}
+		return var.hasValue() ? var.getValue() : bindings.getValue(var.getName());
+	}
+}
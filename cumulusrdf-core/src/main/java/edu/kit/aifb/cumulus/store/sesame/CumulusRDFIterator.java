@@ -2,9 +2,14 @@ package edu.kit.aifb.cumulus.store.sesame;
 
 import info.aduna.iteration.LookAheadIteration;
 
+import java.io.Closeable;
 import java.util.Iterator;
 
 import org.openrdf.model.Statement;
+import org.slf4j.LoggerFactory;
+
+import edu.kit.aifb.cumulus.log.Log;
+import edu.kit.aifb.cumulus.log.MessageCatalog;
 
 /**
  * CumulusRDF implementation of {@link LookAheadIteration}.
@@ -13,6 +18,8 @@ import org.openrdf.model.Statement;
  * @param <X> the exception kind that will be eventually raised during the iteration.
  */
 public class CumulusRDFIterator<X extends Exception> extends LookAheadIteration<Statement, X> {
+	private static final Log LOGGER = new Log(LoggerFactory.getLogger(CumulusRDFIterator.class));
+
 	private final Iterator<byte[][]> _iterator;
 	private final CumulusRDFValueFactory _valueFactory;
 
@@ -33,4 +40,19 @@ public class CumulusRDFIterator<X extends Exception> extends LookAheadIteration<
 			? _valueFactory.createStatement(_iterator.next())
 			: null;
 	}
+
+	/**
+	 * Closes the underlying iterator too, if it holds resources (e.g. a result page in flight).
+	 */
+	@Override
+	protected void handleClose() throws X {
+		super.handleClose();
+		if (_iterator instanceof Closeable) {
+			try {
+				((Closeable) _iterator).close();
+			} catch (final Exception exception) {
+				LOGGER.error(MessageCatalog._00025_CUMULUS_SYSTEM_INTERNAL_FAILURE, exception);
+			}
+		}
+	}
 }
\ No newline at end of file
@@ -4,11 +4,16 @@ import static edu.kit.aifb.cumulus.framework.Environment.DATETIME_RANGETYPES_AS_
 import static edu.kit.aifb.cumulus.framework.Environment.NUMERIC_RANGETYPES_AS_STRING;
 import info.aduna.iteration.CloseableIteration;
 import info.aduna.iteration.CloseableIterationBase;
+import info.aduna.iteration.CloseableIteratorIteration;
 import info.aduna.iteration.EmptyIteration;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutorService;
 
 import org.openrdf.model.Literal;
 import org.openrdf.model.Namespace;
@@ -104,6 +109,120 @@ public class CumulusRDFSailConnection extends NotifyingSailConnectionBase {
 			}
 		}
 
+		/**
+		 * Returns the identifiers of the statements that match the given (triple) patterns.
+		 * All lookups are issued at once, so that they can be served concurrently.
+		 * 
+		 * @param patterns the patterns, where variables are null. A null pattern doesn't match any statement.
+		 * @return a list of iterators, the i-th iterator contains the identifiers of the statements that match the i-th pattern.
+		 * @throws QueryEvaluationException in case of evaluation failure.
+		 */
+		public List<Iterator<byte[][]>> getIdentifiers(final List<Value[]> patterns) throws QueryEvaluationException {
+			try {
+				final List<byte[][]> queries = new ArrayList<byte[][]>(patterns.size());
+				for (final Value[] pattern : patterns) {
+					queries.add(pattern != null ? new byte[][] {id(pattern[0]), id(pattern[1]), id(pattern[2])} : null);
+				}
+				return _crdf.queryWithIDs(queries);
+			} catch (final Exception exception) {
+				LOGGER.error(MessageCatalog._00025_CUMULUS_SYSTEM_INTERNAL_FAILURE, exception);
+				throw new QueryEvaluationException(exception);
+			}
+		}
+
+		/**
+		 * Creates a value from its identifier. 
+		 * The value is not decoded until its data is needed.
+		 * 
+		 * @param id the identifier.
+		 * @param isPredicate true if the identifier has been read in the predicate position.
+		 * @return the value.
+		 */
+		public Value createValue(final byte[] id, final boolean isPredicate) {
+			return _factory.createValue(id, isPredicate);
+		}
+
+		/**
+		 * Returns the number of bindings that a bind join collects before looking up its right-hand pattern.
+		 * 
+		 * @return the bind join batch size.
+		 */
+		public int getBindJoinBatchSize() {
+			return _crdf.getBindJoinBatchSize();
+		}
+
+		/**
+		 * Returns the estimated cardinality above which both arguments of a join are considered large.
+		 * 
+		 * @return the hash join threshold, a value lower than 1 disables hash and merge joins.
+		 */
+		public int getHashJoinThreshold() {
+			return _crdf.getHashJoinThreshold();
+		}
+
+		/**
+		 * Returns the executor that evaluates independent query subtrees concurrently.
+		 * 
+		 * @return the query executor, null if parallel query evaluation is disabled.
+		 */
+		public ExecutorService getQueryExecutor() {
+			return _crdf.getQueryExecutor();
+		}
+
+		/**
+		 * Returns the maximum number of subtrees that a single query evaluates concurrently.
+		 * 
+		 * @return the maximum number of subtrees that a single query evaluates concurrently.
+		 */
+		public int getQueryParallelism() {
+			return _crdf.getQueryParallelism();
+		}
+
+		/**
+		 * Returns the number of results that are buffered between concurrently evaluated subtrees and their consumer.
+		 * 
+		 * @return the number of buffered results.
+		 */
+		public int getQueryQueueSize() {
+			return _crdf.getQueryQueueSize();
+		}
+
+		/**
+		 * Returns the estimated cardinality of a given expression.
+		 * 
+		 * @param expr the expression.
+		 * @return the estimated cardinality of the given expression.
+		 */
+		public double getCardinality(final TupleExpr expr) {
+			return _select_est.getCardinality(expr);
+		}
+
+		/**
+		 * Returns the member the statements that match a given (triple) pattern are sorted by.
+		 * 
+		 * @param pattern the pattern, where variables are null.
+		 * @return the position (0 is the subject, 1 the predicate and 2 the object) of the member the statements are sorted by, 
+		 * 			-1 if they are not sorted.
+		 * @throws QueryEvaluationException in case of evaluation failure.
+		 */
+		public int sortedBy(final Value[] pattern) throws QueryEvaluationException {
+			try {
+				return _crdf.sortedBy(new byte[][] {id(pattern[0]), id(pattern[1]), id(pattern[2])});
+			} catch (final DataAccessLayerException exception) {
+				LOGGER.error(MessageCatalog._00093_DATA_ACCESS_LAYER_FAILURE, exception);
+				throw new QueryEvaluationException(exception);
+			}
+		}
+
+		/**
+		 * Returns the order of identifiers in sorted statements.
+		 * 
+		 * @return the order of identifiers in sorted statements.
+		 */
+		public Comparator<byte[]> getIdentifiersOrder() {
+			return _crdf.getIdentifiersOrder();
+		}
+
 		@Override
 		public ValueFactory getValueFactory() {
 			return _factory;
@@ -151,9 +270,59 @@ public class CumulusRDFSailConnection extends NotifyingSailConnectionBase {
 			tupleExpr = new QueryRoot(tupleExpr);
 		}
 
+		final QueryResultCache cache = _crdf.getQueryResultCache();
+		QueryResultCache.Key key = null;
+		if (cache != null) {
+			key = cache.key(tupleExpr, dataset, bindings, includeInferred);
+			final List<BindingSet> cached = cache.get(key);
+			if (cached != null) {
+				return new CloseableIteratorIteration<BindingSet, QueryEvaluationException>(cached.iterator());
+			}
+		}
+
 		TripleSource tripleSource = new CumulusRDFTripleSource();
 		EvaluationStrategy strategy = new RangeEvaluationStrategy(tripleSource, dataset);
 
+		final QueryPlanCache<TupleExpr> plans = _crdf.getQueryPlanCache();
+		BindingSet evaluationBindings = EmptyBindingSet.getInstance();
+		if (plans != null) {
+			// Cached plans are optimized without bindings, which are applied on evaluation.
+			// As a consequence, filters that compare a variable with a bound variable are not rewritten into range
+			// scans by the CumulusQueryOptimizer: they are evaluated as filters.
+			final String planKey = QueryPlanCache.key(tupleExpr, dataset);
+			TupleExpr plan = plans.get(planKey);
+			if (plan == null) {
+				plan = optimize(tupleExpr, dataset, EmptyBindingSet.getInstance(), strategy);
+				plans.put(planKey, plan, _crdf.triplesCount());
+			}
+			tupleExpr = plan.clone();
+			evaluationBindings = bindings;
+		} else {
+			tupleExpr = optimize(tupleExpr, dataset, bindings, strategy);
+		}
+
+		try {
+			final CloseableIteration<BindingSet, QueryEvaluationException> results = strategy.evaluate(tupleExpr, evaluationBindings);
+			final CloseableIteration<BindingSet, QueryEvaluationException> materialized = _crdf.getMaterializationBatchSize() > 0
+					? new MaterializingIteration(results, _crdf.getDictionary(), _crdf.getMaterializationBatchSize())
+					: results;
+			return cache != null ? cache.cache(key, materialized) : materialized;
+		} catch (QueryEvaluationException e) {
+			e.printStackTrace();
+			throw new SailException(e);
+		}
+	}
+
+	/**
+	 * Optimizes a given query.
+	 * 
+	 * @param tupleExpr the query, it will be modified by optimizers.
+	 * @param dataset the dataset of the query.
+	 * @param bindings the bindings that are assigned to the query.
+	 * @param strategy the evaluation strategy.
+	 * @return the optimized query.
+	 */
+	TupleExpr optimize(final TupleExpr tupleExpr, final Dataset dataset, final BindingSet bindings, final EvaluationStrategy strategy) {
 		new BindingAssigner().optimize(tupleExpr, dataset, bindings);
 		new ConstantOptimizer(strategy).optimize(tupleExpr, dataset, bindings);
 		new CompareOptimizer().optimize(tupleExpr, dataset, bindings);
@@ -168,13 +337,7 @@ public class CumulusRDFSailConnection extends NotifyingSailConnectionBase {
 		new FilterOptimizer().optimize(tupleExpr, dataset, bindings);
 		new IterativeEvaluationOptimizer().optimize(tupleExpr, dataset, bindings);
 		new OrderLimitOptimizer().optimize(tupleExpr, dataset, bindings);
-
-		try {
-			return strategy.evaluate(tupleExpr, EmptyBindingSet.getInstance());
-		} catch (QueryEvaluationException e) {
-			e.printStackTrace();
-			throw new SailException(e);
-		}
+		return tupleExpr;
 	}
 
 	@Override
@@ -476,7 +639,9 @@ public class CumulusRDFSailConnection extends NotifyingSailConnectionBase {
 			return null;
 		}
 		
-		final INativeCumulusValue nativeValue = (INativeCumulusValue) value;
+		// Values bound by a (bind) join may come from another value factory (e.g. query constants or client bindings).
+		// Their identifier can still be resolved, but it is cached on a native copy only.
+		final INativeCumulusValue nativeValue = (INativeCumulusValue) CumulusRDFValueFactory.makeNativeValue(value);
 		if (nativeValue.hasInternalID()) {
 			return nativeValue.getInternalID();
 		} else {
@@ -0,0 +1,197 @@
+package edu.kit.aifb.cumulus.store.sesame;
+
+import info.aduna.iteration.CloseableIteration;
+import info.aduna.iteration.LookAheadIteration;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openrdf.model.Value;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.QueryEvaluationException;
+import org.openrdf.query.algebra.evaluation.QueryBindingSet;
+
+import edu.kit.aifb.cumulus.store.sesame.model.INativeCumulusValue;
+
+/**
+ * A join between two (independent) tuple expressions, evaluated as a symmetric hash join.
+ * The results of both arguments are read alternately and each result is hashed on the join variables, then probed
+ * against the results of the other argument read so far, so that results are returned as soon as both sides of a
+ * match have been read. Unlike a nested loop or bind join, each argument is evaluated exactly once.
+ *
+ * Once an argument has no more results, the results of the other argument are no longer hashed (they are only probed) and
+ * the hash table of the other argument is dropped; if the exhausted argument had no results at all, the join stops
+ * without reading the rest of the other argument.
+ * That bounds the memory of the join to about twice the results of its smaller argument.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+public class HashJoinIteration extends LookAheadIteration<BindingSet, QueryEvaluationException> {
+
+	private final CloseableIteration<BindingSet, QueryEvaluationException> _left;
+	private final CloseableIteration<BindingSet, QueryEvaluationException> _right;
+	private final String[] _joinVariables;
+
+	private Map<List<Object>, List<BindingSet>> _leftTable = new HashMap<List<Object>, List<BindingSet>>();
+	private Map<List<Object>, List<BindingSet>> _rightTable = new HashMap<List<Object>, List<BindingSet>>();
+	private boolean _leftExhausted;
+	private boolean _rightExhausted;
+	private boolean _readLeft = true;
+
+	private BindingSet _current;
+	private List<BindingSet> _matches = Collections.emptyList();
+	private int _position;
+
+	/**
+	 * Builds a new hash join.
+	 *
+	 * @param left the results of the left argument.
+	 * @param right the results of the right argument.
+	 * @param joinVariables the variables shared by both arguments.
+	 */
+	public HashJoinIteration(
+			final CloseableIteration<BindingSet, QueryEvaluationException> left,
+			final CloseableIteration<BindingSet, QueryEvaluationException> right,
+			final String[] joinVariables) {
+		_left = left;
+		_right = right;
+		_joinVariables = joinVariables;
+	}
+
+	@Override
+	protected BindingSet getNextElement() throws QueryEvaluationException {
+		while (true) {
+			while (_position < _matches.size()) {
+				final BindingSet result = join(_matches.get(_position++), _current);
+				if (result != null) {
+					return result;
+				}
+			}
+
+			if (!nextResult()) {
+				return null;
+			}
+		}
+	}
+
+	@Override
+	protected void handleClose() throws QueryEvaluationException {
+		try {
+			super.handleClose();
+			_leftTable = null;
+			_rightTable = null;
+			_left.close();
+		} finally {
+			_right.close();
+		}
+	}
+
+	/**
+	 * Reads the next result of one of the arguments, hashes it (if the other argument has more results) and collects
+	 * its matches among the results of the other argument read so far.
+	 *
+	 * @return false if the join has no more results.
+	 * @throws QueryEvaluationException in case of evaluation failure.
+	 */
+	private boolean nextResult() throws QueryEvaluationException {
+		while (true) {
+			if ((_leftExhausted && (_rightExhausted || _leftTable.isEmpty()))
+					|| (_rightExhausted && _rightTable.isEmpty())) {
+				return false;
+			}
+
+			final boolean readLeft = _rightExhausted || (!_leftExhausted && _readLeft);
+			_readLeft = !readLeft;
+
+			final CloseableIteration<BindingSet, QueryEvaluationException> argument = readLeft ? _left : _right;
+			if (!argument.hasNext()) {
+				argument.close();
+				if (readLeft) {
+					_leftExhausted = true;
+					_rightTable = null;
+				} else {
+					_rightExhausted = true;
+					_leftTable = null;
+				}
+				continue;
+			}
+
+			_current = argument.next();
+			final List<Object> key = key(_current);
+			if (!(readLeft ? _rightExhausted : _leftExhausted)) {
+				add(readLeft ? _leftTable : _rightTable, key, _current);
+			}
+
+			final List<BindingSet> matches = (readLeft ? _rightTable : _leftTable).get(key);
+			_matches = matches != null ? matches : Collections.<BindingSet>emptyList();
+			_position = 0;
+			return true;
+		}
+	}
+
+	/**
+	 * Adds the given bindings to a hash table.
+	 *
+	 * @param table the hash table.
+	 * @param key the hash key of the given bindings.
+	 * @param bindings the bindings.
+	 */
+	private static void add(final Map<List<Object>, List<BindingSet>> table, final List<Object> key, final BindingSet bindings) {
+		List<BindingSet> bucket = table.get(key);
+		if (bucket == null) {
+			bucket = new ArrayList<BindingSet>(2);
+			table.put(key, bucket);
+		}
+		bucket.add(bindings);
+	}
+
+	/**
+	 * Returns the hash key of the given bindings: the values of the join variables.
+	 * Values that come from the store are compared by identifier, without materializing them.
+	 *
+	 * @param bindings the bindings.
+	 * @return the hash key of the given bindings.
+	 */
+	private List<Object> key(final BindingSet bindings) {
+		final List<Object> key = new ArrayList<Object>(_joinVariables.length);
+		for (final String name : _joinVariables) {
+			final Value value = bindings.getValue(name);
+			if (value instanceof INativeCumulusValue && ((INativeCumulusValue) value).hasInternalID()) {
+				key.add(ByteBuffer.wrap(((INativeCumulusValue) value).getInternalID()));
+			} else {
+				key.add(value);
+			}
+		}
+		return key;
+	}
+
+	/**
+	 * Joins two compatible bindings.
+	 *
+	 * @param left the left bindings.
+	 * @param right the right bindings.
+	 * @return the joined bindings, or null if the given bindings have different values for the same variable.
+	 */
+	static BindingSet join(final BindingSet left, final BindingSet right) {
+		final QueryBindingSet result = new QueryBindingSet(left);
+		for (final String name : right.getBindingNames()) {
+			final Value value = right.getValue(name);
+			if (value == null) {
+				continue;
+			}
+
+			final Value current = result.getValue(name);
+			if (current == null) {
+				result.addBinding(name, value);
+			} else if (!current.equals(value)) {
+				return null;
+			}
+		}
+		return result;
+	}
+}
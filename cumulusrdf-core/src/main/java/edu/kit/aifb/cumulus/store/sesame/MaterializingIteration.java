@@ -0,0 +1,168 @@
+package edu.kit.aifb.cumulus.store.sesame;
+
+import info.aduna.iteration.CloseableIteration;
+import info.aduna.iteration.LookAheadIteration;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openrdf.model.Value;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.QueryEvaluationException;
+import org.slf4j.LoggerFactory;
+
+import edu.kit.aifb.cumulus.framework.domain.dictionary.ITopLevelDictionary;
+import edu.kit.aifb.cumulus.log.Log;
+import edu.kit.aifb.cumulus.log.MessageCatalog;
+import edu.kit.aifb.cumulus.store.sesame.model.INativeCumulusValue;
+import edu.kit.aifb.cumulus.store.sesame.model.NativeCumulusURI;
+
+/**
+ * Decodes the values of query results, just before they are returned to the client.
+ * During evaluation, values that come from the store are identifiers only: joins, DISTINCT and (in)equality tests
+ * compare them by identifier. This iteration reads results in batches and decodes all the (distinct) values of a
+ * batch at once, with a single (bulk) dictionary lookup, instead of letting each value load its own data when it
+ * is first serialized.
+ *
+ * Values that have been projected out are never decoded.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+public class MaterializingIteration extends LookAheadIteration<BindingSet, QueryEvaluationException> {
+
+	private static final Log LOGGER = new Log(LoggerFactory.getLogger(MaterializingIteration.class));
+
+	private final CloseableIteration<? extends BindingSet, QueryEvaluationException> _results;
+	private final ITopLevelDictionary _dictionary;
+	private final int _batchSize;
+
+	private final List<BindingSet> _batch;
+	private int _position;
+
+	/**
+	 * Builds a new materializing iteration.
+	 *
+	 * @param results the query results.
+	 * @param dictionary the dictionary used for decoding values.
+	 * @param batchSize how many results are decoded at once.
+	 */
+	public MaterializingIteration(
+			final CloseableIteration<? extends BindingSet, QueryEvaluationException> results,
+			final ITopLevelDictionary dictionary,
+			final int batchSize) {
+		_results = results;
+		_dictionary = dictionary;
+		_batchSize = batchSize;
+		_batch = new ArrayList<BindingSet>(batchSize);
+	}
+
+	@Override
+	protected BindingSet getNextElement() throws QueryEvaluationException {
+		if (_position == _batch.size()) {
+			_batch.clear();
+			_position = 0;
+
+			while (_batch.size() < _batchSize && _results.hasNext()) {
+				_batch.add(_results.next());
+			}
+
+			if (_batch.isEmpty()) {
+				return null;
+			}
+
+			materialize();
+		}
+		return _batch.get(_position++);
+	}
+
+	@Override
+	protected void handleClose() throws QueryEvaluationException {
+		try {
+			super.handleClose();
+		} finally {
+			_results.close();
+		}
+	}
+
+	/**
+	 * Decodes the values of the current batch that haven't been decoded yet.
+	 * Each distinct identifier is decoded only once.
+	 */
+	private void materialize() {
+		final Map<ByteBuffer, List<INativeCumulusValue>> values = new HashMap<ByteBuffer, List<INativeCumulusValue>>();
+		final Map<ByteBuffer, List<INativeCumulusValue>> predicates = new HashMap<ByteBuffer, List<INativeCumulusValue>>();
+		for (final BindingSet bindings : _batch) {
+			for (final String name : bindings.getBindingNames()) {
+				final Value value = bindings.getValue(name);
+				if (value instanceof INativeCumulusValue
+						&& ((INativeCumulusValue) value).hasInternalID()
+						&& !((INativeCumulusValue) value).hasData()) {
+					collect(
+							(value instanceof NativeCumulusURI && ((NativeCumulusURI) value).isPredicate()) ? predicates : values,
+							(INativeCumulusValue) value);
+				}
+			}
+		}
+
+		decode(values, false);
+		decode(predicates, true);
+	}
+
+	/**
+	 * Decodes the given values, grouped by identifier, with one (bulk) dictionary lookup.
+	 * Values that cannot be decoded are left untouched, so they will try again (and log the failure) when used.
+	 *
+	 * @param values the values, grouped by identifier.
+	 * @param p the predicate flag.
+	 */
+	private void decode(final Map<ByteBuffer, List<INativeCumulusValue>> values, final boolean p) {
+		if (values.isEmpty()) {
+			return;
+		}
+
+		final List<List<INativeCumulusValue>> groups = new ArrayList<List<INativeCumulusValue>>(values.values());
+		final List<byte[]> ids = new ArrayList<byte[]>(groups.size());
+		for (final List<INativeCumulusValue> group : groups) {
+			ids.add(group.get(0).getInternalID());
+		}
+
+		try {
+			final List<Value> decoded = _dictionary.getValues(ids, p);
+			for (int i = 0; i < decoded.size(); i++) {
+				final Value value = decoded.get(i);
+				if (value != null) {
+					for (final INativeCumulusValue member : groups.get(i)) {
+						member.setData(value);
+					}
+				}
+			}
+		} catch (final Exception exception) {
+			final List<String> printableIds = new ArrayList<String>(ids.size());
+			for (final byte[] id : ids) {
+				printableIds.add(Arrays.toString(id));
+			}
+			LOGGER.error(MessageCatalog._00131_COULDNT_LOAD_NODES, exception, ids.size(), printableIds);
+		}
+	}
+
+	/**
+	 * Adds a value to the group of its identifier.
+	 *
+	 * @param values the values, grouped by identifier.
+	 * @param value the value.
+	 */
+	private static void collect(final Map<ByteBuffer, List<INativeCumulusValue>> values, final INativeCumulusValue value) {
+		final ByteBuffer key = ByteBuffer.wrap(value.getInternalID());
+		List<INativeCumulusValue> group = values.get(key);
+		if (group == null) {
+			group = new ArrayList<INativeCumulusValue>(2);
+			values.put(key, group);
+		}
+		group.add(value);
+	}
+}
@@ -0,0 +1,160 @@
+package edu.kit.aifb.cumulus.store.sesame;
+
+import info.aduna.iteration.CloseableIteration;
+import info.aduna.iteration.LookAheadIteration;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.openrdf.model.Value;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.QueryEvaluationException;
+
+import edu.kit.aifb.cumulus.store.sesame.model.INativeCumulusValue;
+
+/**
+ * A join between two tuple expressions whose results come sorted on the (same) join variable, evaluated as a merge join.
+ * Both arguments are read once, in parallel, and only the results with the same value of the join variable are buffered.
+ * Values of the join variable are compared by identifier, so they are never materialized.
+ *
+ * Results are returned in the order of the join variable.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+public class MergeJoinIteration extends LookAheadIteration<BindingSet, QueryEvaluationException> {
+
+	private final CloseableIteration<BindingSet, QueryEvaluationException> _left;
+	private final CloseableIteration<BindingSet, QueryEvaluationException> _right;
+	private final String _joinVariable;
+	private final Comparator<byte[]> _order;
+
+	private BindingSet _nextLeft;
+	private BindingSet _nextRight;
+	private boolean _started;
+
+	private final List<BindingSet> _leftGroup = new ArrayList<BindingSet>();
+	private final List<BindingSet> _rightGroup = new ArrayList<BindingSet>();
+	private int _leftPosition;
+	private int _rightPosition;
+
+	/**
+	 * Builds a new merge join.
+	 *
+	 * @param left the left argument results, sorted on the join variable.
+	 * @param right the right argument results, sorted on the join variable.
+	 * @param joinVariable the join variable.
+	 * @param order the order of the join variable (identifiers) in both arguments.
+	 */
+	public MergeJoinIteration(
+			final CloseableIteration<BindingSet, QueryEvaluationException> left,
+			final CloseableIteration<BindingSet, QueryEvaluationException> right,
+			final String joinVariable,
+			final Comparator<byte[]> order) {
+		_left = left;
+		_right = right;
+		_joinVariable = joinVariable;
+		_order = order;
+	}
+
+	@Override
+	protected BindingSet getNextElement() throws QueryEvaluationException {
+		if (!_started) {
+			_nextLeft = next(_left);
+			_nextRight = next(_right);
+			_started = true;
+		}
+
+		while (true) {
+			while (_leftPosition < _leftGroup.size()) {
+				if (_rightPosition == _rightGroup.size()) {
+					_rightPosition = 0;
+					_leftPosition++;
+					continue;
+				}
+
+				final BindingSet result = HashJoinIteration.join(_leftGroup.get(_leftPosition), _rightGroup.get(_rightPosition++));
+				if (result != null) {
+					return result;
+				}
+			}
+
+			if (!nextGroups()) {
+				return null;
+			}
+		}
+	}
+
+	@Override
+	protected void handleClose() throws QueryEvaluationException {
+		try {
+			super.handleClose();
+			_left.close();
+		} finally {
+			_right.close();
+		}
+	}
+
+	/**
+	 * Skips ahead to the next value of the join variable that is in both arguments and collects the
+	 * results of each argument with that value.
+	 *
+	 * @return false if one of the arguments has no more results.
+	 * @throws QueryEvaluationException in case of evaluation failure.
+	 */
+	private boolean nextGroups() throws QueryEvaluationException {
+		_leftGroup.clear();
+		_rightGroup.clear();
+		_leftPosition = 0;
+		_rightPosition = 0;
+
+		while (_nextLeft != null && _nextRight != null) {
+			final byte[] leftId = id(_nextLeft);
+			final int comparison = _order.compare(leftId, id(_nextRight));
+			if (comparison < 0) {
+				_nextLeft = next(_left);
+			} else if (comparison > 0) {
+				_nextRight = next(_right);
+			} else {
+				while (_nextLeft != null && _order.compare(leftId, id(_nextLeft)) == 0) {
+					_leftGroup.add(_nextLeft);
+					_nextLeft = next(_left);
+				}
+
+				while (_nextRight != null && _order.compare(leftId, id(_nextRight)) == 0) {
+					_rightGroup.add(_nextRight);
+					_nextRight = next(_right);
+				}
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the identifier of the join variable value in the given bindings.
+	 *
+	 * @param bindings the bindings.
+	 * @return the identifier of the join variable value in the given bindings.
+	 * @throws QueryEvaluationException if the value doesn't come from the store.
+	 */
+	private byte[] id(final BindingSet bindings) throws QueryEvaluationException {
+		final Value value = bindings.getValue(_joinVariable);
+		if (value instanceof INativeCumulusValue && ((INativeCumulusValue) value).hasInternalID()) {
+			return ((INativeCumulusValue) value).getInternalID();
+		}
+		throw new QueryEvaluationException("Merge join on a value without identifier: " + value);
+	}
+
+	/**
+	 * Returns the next result of a given argument.
+	 *
+	 * @param argument the argument results.
+	 * @return the next result of the given argument, null if there are no more results.
+	 * @throws QueryEvaluationException in case of evaluation failure.
+	 */
+	private static BindingSet next(final CloseableIteration<BindingSet, QueryEvaluationException> argument) throws QueryEvaluationException {
+		return argument.hasNext() ? argument.next() : null;
+	}
+}
@@ -0,0 +1,314 @@
+package edu.kit.aifb.cumulus.store.sesame;
+
+import info.aduna.iteration.CloseableIteration;
+import info.aduna.iteration.LookAheadIteration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.QueryEvaluationException;
+import org.openrdf.query.algebra.TupleExpr;
+import org.openrdf.query.algebra.evaluation.EvaluationStrategy;
+
+/**
+ * Evaluates a set of independent tuple expressions (e.g. the branches of a UNION) concurrently.
+ * Branches are shared among a bounded number of workers, running on the (shared) query executor.
+ * Each worker evaluates one branch at a time and pushes its results in a bounded queue, which this iteration drains.
+ *
+ * The number of workers is bounded by the permits of the query, so that a single heavy query cannot take
+ * all the threads of the query executor. Workers never start other workers: expressions within a branch
+ * are evaluated sequentially.
+ *
+ * Workers that are rejected by the query executor are not started: when no worker can be started, the expressions 
+ * are evaluated by the calling thread. If the query executor is shut down before a worker starts, the worker is cancelled
+ * and this iteration fails, as it does when a worker fails or is interrupted.
+ *
+ * Results of different branches are interleaved, results of the same branch keep their order.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+public class ParallelIteration extends LookAheadIteration<BindingSet, QueryEvaluationException> {
+
+	private static final Object END_OF_BRANCHES = new Object();
+	private static final ThreadLocal<Boolean> WORKER = new ThreadLocal<Boolean>();
+	private static final long POLL_INTERVAL = 100;
+
+	private final EvaluationStrategy _strategy;
+	private final List<TupleExpr> _branches;
+	private final BindingSet _bindings;
+	private final ExecutorService _executor;
+	private final Semaphore _permits;
+	private final BlockingQueue<Object> _queue;
+	private final AtomicInteger _nextBranch = new AtomicInteger();
+	private final List<Worker> _workers = new ArrayList<Worker>();
+	private final AtomicReference<Exception> _failure = new AtomicReference<Exception>();
+
+	private int _runningWorkers;
+	private volatile boolean _closed;
+
+	/**
+	 * Evaluates the given expressions concurrently, if permits are available.
+	 *
+	 * @param strategy the evaluation strategy.
+	 * @param branches the (independent) expressions.
+	 * @param bindings the current bindings.
+	 * @param executor the query executor.
+	 * @param permits the permits of the current query, one for each worker.
+	 * @param queueSize the number of results that are buffered.
+	 * @return the results of all the given expressions, null if they cannot be evaluated concurrently
+	 * 			(no permits are available, the query executor rejected all workers or the calling thread is a worker).
+	 */
+	public static ParallelIteration evaluate(
+			final EvaluationStrategy strategy,
+			final List<TupleExpr> branches,
+			final BindingSet bindings,
+			final ExecutorService executor,
+			final Semaphore permits,
+			final int queueSize) {
+		if (isWorker()) {
+			return null;
+		}
+
+		final ParallelIteration iteration = new ParallelIteration(strategy, branches, bindings, executor, permits, queueSize);
+		for (int i = 0; i < branches.size() && permits.tryAcquire(); i++) {
+			final Worker worker = iteration.new Worker();
+			try {
+				executor.execute(worker);
+				iteration._workers.add(worker);
+				iteration._runningWorkers++;
+			} catch (final RejectedExecutionException exception) {
+				permits.release();
+				break;
+			}
+		}
+		return iteration._runningWorkers > 0 ? iteration : null;
+	}
+
+	/**
+	 * Returns true if the calling thread is a worker of a parallel iteration.
+	 *
+	 * @return true if the calling thread is a worker of a parallel iteration.
+	 */
+	static boolean isWorker() {
+		return WORKER.get() != null;
+	}
+
+	/**
+	 * Builds a new parallel iteration.
+	 *
+	 * @param strategy the evaluation strategy.
+	 * @param branches the (independent) expressions.
+	 * @param bindings the current bindings.
+	 * @param executor the query executor.
+	 * @param permits the permits of the current query, one for each worker.
+	 * @param queueSize the number of results that are buffered.
+	 */
+	private ParallelIteration(
+			final EvaluationStrategy strategy,
+			final List<TupleExpr> branches,
+			final BindingSet bindings,
+			final ExecutorService executor,
+			final Semaphore permits,
+			final int queueSize) {
+		_strategy = strategy;
+		_branches = branches;
+		_bindings = bindings;
+		_executor = executor;
+		_permits = permits;
+		_queue = new ArrayBlockingQueue<Object>(Math.max(queueSize, 1));
+	}
+
+	@Override
+	protected BindingSet getNextElement() throws QueryEvaluationException {
+		try {
+			while (_runningWorkers > 0) {
+				rethrowFailure();
+
+				final Object next = _queue.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+				if (next == END_OF_BRANCHES) {
+					_runningWorkers--;
+				} else if (next != null) {
+					return (BindingSet) next;
+				} else if (_closed) {
+					return null;
+				} else if (_executor.isShutdown()) {
+					final int cancelled = cancelWorkers();
+					if (cancelled > 0) {
+						_runningWorkers -= cancelled;
+						fail(new QueryEvaluationException("The query executor has been shut down."));
+					}
+				}
+			}
+
+			rethrowFailure();
+			return null;
+		} catch (final InterruptedException exception) {
+			Thread.currentThread().interrupt();
+			throw new QueryEvaluationException(exception);
+		}
+	}
+
+	@Override
+	protected void handleClose() throws QueryEvaluationException {
+		_closed = true;
+		cancelWorkers();
+		_queue.clear();
+		super.handleClose();
+	}
+
+	/**
+	 * Cancels the workers that have not been started yet (e.g. because the query executor has been shut down).
+	 *
+	 * @return the number of cancelled workers.
+	 */
+	private int cancelWorkers() {
+		int cancelled = 0;
+		for (final Worker worker : _workers) {
+			if (worker._started.compareAndSet(false, true)) {
+				_permits.release();
+				cancelled++;
+			}
+		}
+		return cancelled;
+	}
+
+	/**
+	 * Records the failure of a worker. Only the first failure is reported.
+	 *
+	 * @param failure the failure.
+	 */
+	void fail(final Exception failure) {
+		_failure.compareAndSet(null, failure);
+	}
+
+	/**
+	 * Rethrows the failure of a worker, if any.
+	 *
+	 * @throws QueryEvaluationException if a worker failed.
+	 */
+	private void rethrowFailure() throws QueryEvaluationException {
+		final Exception failure = _failure.get();
+		if (failure instanceof QueryEvaluationException) {
+			throw (QueryEvaluationException) failure;
+		} else if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		}
+	}
+
+	/**
+	 * Pushes a result in the queue, waiting for space unless this iteration has been closed.
+	 *
+	 * @param element the result.
+	 * @return false if this iteration has been closed.
+	 * @throws InterruptedException if the worker has been interrupted.
+	 */
+	boolean push(final Object element) throws InterruptedException {
+		while (!_closed) {
+			if (_queue.offer(element, POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Tells the consumer that a worker has no more results, waiting for space (even if the worker has been interrupted)
+	 * unless this iteration has been closed.
+	 */
+	void pushEndOfBranches() {
+		boolean interrupted = Thread.interrupted();
+		try {
+			while (true) {
+				try {
+					push(END_OF_BRANCHES);
+					return;
+				} catch (final InterruptedException exception) {
+					interrupted = true;
+				}
+			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * A worker, evaluating branches until there are no more branches.
+	 *
+	 * @author agent
+	 * @since 1.1.0
+	 */
+	class Worker implements Runnable {
+		private final AtomicBoolean _started = new AtomicBoolean();
+
+		@Override
+		public void run() {
+			if (!_started.compareAndSet(false, true)) {
+				// Cancelled by the consumer.
+				return;
+			}
+
+			WORKER.set(Boolean.TRUE);
+			try {
+				for (int index = _nextBranch.getAndIncrement(); index < _branches.size() && !_closed; index = _nextBranch.getAndIncrement()) {
+					if (!evaluate(_branches.get(index))) {
+						break;
+					}
+				}
+			} catch (final InterruptedException exception) {
+				fail(new QueryEvaluationException(exception));
+				Thread.currentThread().interrupt();
+			} finally {
+				WORKER.remove();
+				_permits.release();
+				pushEndOfBranches();
+			}
+		}
+
+		/**
+		 * Evaluates a branch, pushing its results in the queue.
+		 *
+		 * @param branch the branch.
+		 * @return false if the branch evaluation failed or this iteration has been closed.
+		 * @throws InterruptedException if the worker has been interrupted.
+		 */
+		private boolean evaluate(final TupleExpr branch) throws InterruptedException {
+			CloseableIteration<BindingSet, QueryEvaluationException> results = null;
+			try {
+				results = _strategy.evaluate(branch, _bindings);
+				while (results.hasNext()) {
+					if (!push(results.next())) {
+						return false;
+					}
+				}
+				return true;
+			} catch (final QueryEvaluationException exception) {
+				fail(exception);
+				return false;
+			} catch (final RuntimeException exception) {
+				fail(exception);
+				return false;
+			} finally {
+				if (results != null) {
+					try {
+						results.close();
+					} catch (final QueryEvaluationException ignore) {
+						// Nothing to be done here...
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,206 @@
+package edu.kit.aifb.cumulus.store.sesame;
+
+import java.util.EventObject;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openrdf.query.Dataset;
+import org.openrdf.query.algebra.TupleExpr;
+import org.openrdf.query.impl.EmptyBindingSet;
+
+import edu.kit.aifb.cumulus.framework.events.ITriplesChangesListener;
+import edu.kit.aifb.cumulus.framework.events.TriplesChangedEvent;
+import edu.kit.aifb.cumulus.framework.mx.ManageableQueryPlanCache;
+
+/**
+ * A (least recently used) cache of query plans, e.g. parsed or optimized queries.
+ * Plans are parameterized: they don't depend on the bindings of a query, so the same plan is shared by all
+ * the executions of a query, whatever its bindings are.
+ *
+ * Plans that depend on the data statistics (e.g. optimized queries) are put with the number of triples they
+ * have been planned on: once the triples changed since then exceed a {@link #STALE_PLAN_FRACTION}th of that number,
+ * the plan is considered stale and it is removed, so that the query is planned again.
+ *
+ * @author agent
+ * @since 1.1.0
+ * @param <P> the plan kind.
+ */
+public class QueryPlanCache<P> implements ManageableQueryPlanCache, ITriplesChangesListener {
+
+	static final int STALE_PLAN_FRACTION = 10;
+
+	/**
+	 * A cached plan.
+	 *
+	 * @author agent
+	 * @since 1.1.0
+	 * @param <P> the plan kind.
+	 */
+	static final class Entry<P> {
+		private final P _plan;
+		private final long _changesCount;
+		private final long _maxChanges;
+
+		/**
+		 * Builds a new entry.
+		 *
+		 * @param plan the query plan.
+		 * @param changesCount the number of changed triples when the plan has been cached.
+		 * @param maxChanges the number of changed triples after which the plan is stale.
+		 */
+		Entry(final P plan, final long changesCount, final long maxChanges) {
+			_plan = plan;
+			_changesCount = changesCount;
+			_maxChanges = maxChanges;
+		}
+	}
+
+	private final String _id;
+	private final int _maxSize;
+
+	private final AtomicLong _changesCount = new AtomicLong();
+
+	private final AtomicLong _hitsCount = new AtomicLong();
+	private final AtomicLong _missesCount = new AtomicLong();
+	private final AtomicLong _evictionsCount = new AtomicLong();
+	private final AtomicLong _invalidationsCount = new AtomicLong();
+
+	private final Map<String, Entry<P>> _plans = new LinkedHashMap<String, Entry<P>>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<String, Entry<P>> eldest) {
+			if (size() > _maxSize) {
+				_evictionsCount.incrementAndGet();
+				return true;
+			}
+			return false;
+		}
+	};
+
+	/**
+	 * Builds a new query plan cache.
+	 *
+	 * @param id the identifier of this cache.
+	 * @param maxSize the maximum number of plans in this cache.
+	 */
+	public QueryPlanCache(final String id, final int maxSize) {
+		_id = id;
+		_maxSize = maxSize;
+	}
+
+	/**
+	 * Returns the key of a given query, before optimization.
+	 * Anonymous and constant variables are renamed in order of appearance.
+	 *
+	 * @param query the query (not yet optimized).
+	 * @param dataset the dataset of the query.
+	 * @return the key of the given query.
+	 */
+	public static String key(final TupleExpr query, final Dataset dataset) {
+		final TupleExpr normalized = query.clone();
+		normalized.visit(new QueryResultCache.Normalizer(EmptyBindingSet.getInstance()));
+		return normalized.toString() + dataset;
+	}
+
+	/**
+	 * Returns the cached plan of a given query.
+	 *
+	 * @param key the query key.
+	 * @return the cached plan of the given query, null if the query is not in cache (or its plan is stale).
+	 */
+	public synchronized P get(final String key) {
+		Entry<P> entry = _plans.get(key);
+		if (entry != null && _changesCount.get() - entry._changesCount > entry._maxChanges) {
+			_plans.remove(key);
+			_invalidationsCount.incrementAndGet();
+			entry = null;
+		}
+
+		if (entry == null) {
+			_missesCount.incrementAndGet();
+			return null;
+		}
+
+		_hitsCount.incrementAndGet();
+		return entry._plan;
+	}
+
+	/**
+	 * Caches the plan of a given query, that doesn't depend on the data.
+	 * The least recently used plan is evicted, if needed.
+	 *
+	 * @param key the query key.
+	 * @param plan the query plan.
+	 */
+	public synchronized void put(final String key, final P plan) {
+		_plans.put(key, new Entry<P>(plan, _changesCount.get(), Long.MAX_VALUE));
+	}
+
+	/**
+	 * Caches the plan of a given query, that depends on the data statistics.
+	 * The least recently used plan is evicted, if needed.
+	 *
+	 * @param key the query key.
+	 * @param plan the query plan.
+	 * @param triplesCount the number of triples in the store when the query has been planned.
+	 */
+	public synchronized void put(final String key, final P plan, final long triplesCount) {
+		_plans.put(key, new Entry<P>(plan, _changesCount.get(), Math.max(triplesCount, 0) / STALE_PLAN_FRACTION));
+	}
+
+	@Override
+	public void update(final EventObject event) {
+		if (event instanceof TriplesChangedEvent) {
+			_changesCount.addAndGet(((TriplesChangedEvent) event).numOfChanges());
+		}
+	}
+
+	@Override
+	public synchronized void clear() {
+		_plans.clear();
+	}
+
+	@Override
+	public String getId() {
+		return _id;
+	}
+
+	@Override
+	public int getMaxSize() {
+		return _maxSize;
+	}
+
+	@Override
+	public synchronized int getCachedPlansCount() {
+		return _plans.size();
+	}
+
+	@Override
+	public long getHitsCount() {
+		return _hitsCount.get();
+	}
+
+	@Override
+	public long getMissesCount() {
+		return _missesCount.get();
+	}
+
+	@Override
+	public double getHitsRatio() {
+		final long hits = _hitsCount.get();
+		final long lookups = hits + _missesCount.get();
+		return lookups != 0 ? (double) hits / lookups * 100 : 0;
+	}
+
+	@Override
+	public long getEvictionsCount() {
+		return _evictionsCount.get();
+	}
+
+	@Override
+	public long getInvalidationsCount() {
+		return _invalidationsCount.get();
+	}
+}
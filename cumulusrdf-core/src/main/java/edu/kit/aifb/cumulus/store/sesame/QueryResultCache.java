@@ -0,0 +1,511 @@
+package edu.kit.aifb.cumulus.store.sesame;
+
+import info.aduna.iteration.CloseableIteration;
+import info.aduna.iteration.LookAheadIteration;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EventObject;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openrdf.model.Value;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.Dataset;
+import org.openrdf.query.QueryEvaluationException;
+import org.openrdf.query.algebra.StatementPattern;
+import org.openrdf.query.algebra.TupleExpr;
+import org.openrdf.query.algebra.Var;
+import org.openrdf.query.algebra.helpers.QueryModelVisitorBase;
+import org.slf4j.LoggerFactory;
+
+import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerException;
+import edu.kit.aifb.cumulus.framework.domain.dictionary.ITopLevelDictionary;
+import edu.kit.aifb.cumulus.framework.events.ITriplesChangesListener;
+import edu.kit.aifb.cumulus.framework.events.TriplesChangedEvent;
+import edu.kit.aifb.cumulus.framework.mx.ManageableQueryResultCache;
+import edu.kit.aifb.cumulus.log.Log;
+import edu.kit.aifb.cumulus.log.MessageCatalog;
+import edu.kit.aifb.cumulus.store.sesame.model.INativeCumulusValue;
+
+/**
+ * A cache of query results, bounded by (approximate) memory size.
+ * Queries are keyed by their (normalized) algebra, dataset and bindings, before any optimization, so a hit skips
+ * both optimization and evaluation.
+ *
+ * Each entry remembers the predicates of the triple patterns of its query: when triples are added or removed, only
+ * the entries of queries that could match those triples (i.e. with one of the changed predicates or with a variable
+ * predicate) are invalidated.
+ * Changes made by other writers on the same storage (e.g. other CumulusRDF instances) are not notified: in that
+ * case entries must be given a time to live, so that they are eventually reloaded.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+public class QueryResultCache implements ITriplesChangesListener, ManageableQueryResultCache {
+
+	static final long ENTRY_OVERHEAD = 256;
+	static final long RESULT_OVERHEAD = 32;
+	static final long BINDING_OVERHEAD = 48;
+	static final int MAX_ENTRY_FRACTION = 8;
+
+	private static final Log LOGGER = new Log(LoggerFactory.getLogger(QueryResultCache.class));
+
+	/**
+	 * The key of a cached query.
+	 *
+	 * @author agent
+	 * @since 1.1.0
+	 */
+	static final class Key {
+		private final String _query;
+		private final Set<String> _predicates;
+		private final long _generation;
+
+		/**
+		 * Builds a new key.
+		 *
+		 * @param query the normalized query (algebra, dataset and bindings).
+		 * @param predicates the predicates of the query, null if the query has a variable predicate.
+		 * @param generation the generation of the cache when the query started.
+		 */
+		Key(final String query, final Set<String> predicates, final long generation) {
+			_query = query;
+			_predicates = predicates;
+			_generation = generation;
+		}
+
+		@Override
+		public boolean equals(final Object object) {
+			return object instanceof Key && ((Key) object)._query.equals(_query);
+		}
+
+		@Override
+		public int hashCode() {
+			return _query.hashCode();
+		}
+	}
+
+	/**
+	 * A cached query.
+	 *
+	 * @author agent
+	 * @since 1.1.0
+	 */
+	static final class Entry {
+		private final List<BindingSet> _results;
+		private final Set<String> _predicates;
+		private final long _size;
+		private final long _expiration;
+
+		/**
+		 * Builds a new entry.
+		 *
+		 * @param results the query results.
+		 * @param predicates the predicates of the query, null if the query has a variable predicate.
+		 * @param size the (approximate) size of the query results, in bytes.
+		 * @param expiration the time (in milliseconds) when this entry expires.
+		 */
+		Entry(final List<BindingSet> results, final Set<String> predicates, final long size, final long expiration) {
+			_results = results;
+			_predicates = predicates;
+			_size = size;
+			_expiration = expiration;
+		}
+	}
+
+	/**
+	 * Normalizes a query and collects the predicates of its triple patterns.
+	 * Anonymous and constant variables are named by the parser, so they are renamed in order of appearance.
+	 *
+	 * @author agent
+	 * @since 1.1.0
+	 */
+	static final class Normalizer extends QueryModelVisitorBase<RuntimeException> {
+		private final BindingSet _bindings;
+		private final Map<String, String> _names = new HashMap<String, String>();
+		private Set<String> _predicates = new HashSet<String>();
+
+		/**
+		 * Builds a new normalizer.
+		 *
+		 * @param bindings the bindings of the query.
+		 */
+		Normalizer(final BindingSet bindings) {
+			_bindings = bindings;
+		}
+
+		@Override
+		public void meet(final StatementPattern pattern) {
+			final Var predicate = pattern.getPredicateVar();
+			final Value value = predicate.hasValue() ? predicate.getValue() : _bindings.getValue(predicate.getName());
+			if (value == null) {
+				_predicates = null;
+			} else if (_predicates != null) {
+				_predicates.add(value.stringValue());
+			}
+			super.meet(pattern);
+		}
+
+		@Override
+		public void meet(final Var var) {
+			if (var.isAnonymous() || var.getName().startsWith("-")) {
+				String name = _names.get(var.getName());
+				if (name == null) {
+					name = "-var-" + _names.size();
+					_names.put(var.getName(), name);
+				}
+				var.setName(name);
+			}
+		}
+	}
+
+	/**
+	 * An iteration that collects the results of a query while they are consumed and caches them once
+	 * all results have been consumed.
+	 *
+	 * @author agent
+	 * @since 1.1.0
+	 */
+	class CachingIteration extends LookAheadIteration<BindingSet, QueryEvaluationException> {
+		private final CloseableIteration<? extends BindingSet, QueryEvaluationException> _results;
+		private final Key _key;
+
+		private List<BindingSet> _collected = new ArrayList<BindingSet>();
+		private long _collectedSize = ENTRY_OVERHEAD;
+
+		/**
+		 * Builds a new caching iteration.
+		 *
+		 * @param key the query key.
+		 * @param results the query results.
+		 */
+		CachingIteration(final Key key, final CloseableIteration<? extends BindingSet, QueryEvaluationException> results) {
+			_key = key;
+			_results = results;
+		}
+
+		@Override
+		protected BindingSet getNextElement() throws QueryEvaluationException {
+			if (_results.hasNext()) {
+				final BindingSet result = _results.next();
+				if (_collected != null) {
+					_collectedSize += sizeOf(result);
+					if (_collected.size() < _maxResults && _collectedSize <= _maxEntrySize) {
+						_collected.add(result);
+					} else {
+						_collected = null;
+					}
+				}
+				return result;
+			}
+
+			if (_collected != null) {
+				put(_key, _collected, _collectedSize);
+				_collected = null;
+			}
+			return null;
+		}
+
+		@Override
+		protected void handleClose() throws QueryEvaluationException {
+			try {
+				super.handleClose();
+				_collected = null;
+			} finally {
+				_results.close();
+			}
+		}
+	}
+
+	private final String _id;
+	private final ITopLevelDictionary _dictionary;
+	private final long _maxSize;
+	private final long _maxEntrySize;
+	private final int _maxResults;
+	private final long _ttl;
+
+	private final LinkedHashMap<Key, Entry> _entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+	private long _size;
+	private long _generation;
+
+	private final AtomicLong _hitsCount = new AtomicLong();
+	private final AtomicLong _missesCount = new AtomicLong();
+	private final AtomicLong _evictionsCount = new AtomicLong();
+	private final AtomicLong _invalidationsCount = new AtomicLong();
+
+	/**
+	 * Builds a new query result cache.
+	 *
+	 * @param id the identifier of this cache.
+	 * @param dictionary the dictionary, used for decoding the predicates of changed triples.
+	 * @param maxSize the (approximate) maximum size of this cache, in bytes. A cached query takes at most a {@link #MAX_ENTRY_FRACTION}th of it.
+	 * @param maxResults the maximum number of results that a cached query can have.
+	 * @param ttl the time to live of cached queries, in milliseconds, a value lower than 1 means cached queries never expire.
+	 */
+	public QueryResultCache(
+			final String id, 
+			final ITopLevelDictionary dictionary, 
+			final long maxSize, 
+			final int maxResults, 
+			final long ttl) {
+		_id = id;
+		_dictionary = dictionary;
+		_maxSize = maxSize;
+		_maxEntrySize = maxSize / MAX_ENTRY_FRACTION;
+		_maxResults = maxResults;
+		_ttl = ttl;
+	}
+
+	/**
+	 * Returns the key of a given query.
+	 * The key must be created before the query is evaluated: results of queries that run while the
+	 * underlying data changes are not cached.
+	 *
+	 * @param query the query (not yet optimized).
+	 * @param dataset the dataset of the query.
+	 * @param bindings the bindings of the query.
+	 * @param includeInferred the include inferred flag.
+	 * @return the key of the given query.
+	 */
+	Key key(final TupleExpr query, final Dataset dataset, final BindingSet bindings, final boolean includeInferred) {
+		final long generation;
+		synchronized (this) {
+			generation = _generation;
+		}
+
+		final TupleExpr normalized = query.clone();
+		final Normalizer normalizer = new Normalizer(bindings);
+		normalized.visit(normalizer);
+
+		final StringBuilder builder = new StringBuilder(normalized.toString());
+		for (final String name : new TreeSet<String>(bindings.getBindingNames())) {
+			builder.append(name).append('=').append(bindings.getValue(name)).append('\n');
+		}
+		builder.append(dataset).append('\n').append(includeInferred);
+
+		return new Key(builder.toString(), normalizer._predicates, generation);
+	}
+
+	/**
+	 * Returns the cached results of a given query.
+	 *
+	 * @param key the query key.
+	 * @return the cached results of the given query, null if the query is not in cache (or it expired).
+	 */
+	synchronized List<BindingSet> get(final Key key) {
+		Entry entry = _entries.get(key);
+		if (entry != null && entry._expiration <= now()) {
+			_entries.remove(key);
+			_size -= entry._size;
+			_invalidationsCount.incrementAndGet();
+			entry = null;
+		}
+
+		if (entry == null) {
+			_missesCount.incrementAndGet();
+			return null;
+		}
+
+		_hitsCount.incrementAndGet();
+		return entry._results;
+	}
+
+	/**
+	 * Wraps the results of a given query, so that they will be cached once consumed.
+	 *
+	 * @param key the query key.
+	 * @param results the query results.
+	 * @return the query results.
+	 */
+	CloseableIteration<BindingSet, QueryEvaluationException> cache(
+			final Key key,
+			final CloseableIteration<? extends BindingSet, QueryEvaluationException> results) {
+		return new CachingIteration(key, results);
+	}
+
+	/**
+	 * Caches the results of a given query, unless the underlying data changed since the query started or the
+	 * results are too big. Least recently used entries are evicted, if needed.
+	 *
+	 * @param key the query key.
+	 * @param results the query results.
+	 * @param size the (approximate) size of the query results, in bytes.
+	 */
+	synchronized void put(final Key key, final List<BindingSet> results, final long size) {
+		if (key._generation != _generation || size > _maxEntrySize) {
+			return;
+		}
+
+		final long expiration = _ttl > 0 ? now() + _ttl : Long.MAX_VALUE;
+		final Entry previous = _entries.put(key, new Entry(results, key._predicates, size, expiration));
+		if (previous != null) {
+			_size -= previous._size;
+		}
+		_size += size;
+
+		for (final Iterator<Entry> iterator = _entries.values().iterator(); _size > _maxSize && iterator.hasNext();) {
+			_size -= iterator.next()._size;
+			iterator.remove();
+			_evictionsCount.incrementAndGet();
+		}
+	}
+
+	@Override
+	public void update(final EventObject event) {
+		if (event instanceof TriplesChangedEvent) {
+			invalidate(((TriplesChangedEvent) event).getChangedTriples());
+		}
+	}
+
+	/**
+	 * Invalidates the cached queries that could match the given (changed) triples.
+	 *
+	 * @param triples the changed triples, as identifiers.
+	 */
+	void invalidate(final List<byte[][]> triples) {
+		synchronized (this) {
+			_generation++;
+			if (_entries.isEmpty()) {
+				return;
+			}
+		}
+
+		final Map<ByteBuffer, byte[]> ids = new LinkedHashMap<ByteBuffer, byte[]>();
+		for (final byte[][] triple : triples) {
+			if (triple != null && triple.length > 1 && triple[1] != null) {
+				ids.put(ByteBuffer.wrap(triple[1]), triple[1]);
+			}
+		}
+
+		final Set<String> predicates = new HashSet<String>(ids.size());
+		try {
+			for (final Value predicate : _dictionary.getValues(new ArrayList<byte[]>(ids.values()), true)) {
+				if (predicate == null) {
+					clear();
+					return;
+				}
+				predicates.add(predicate.stringValue());
+			}
+		} catch (final DataAccessLayerException exception) {
+			LOGGER.error(MessageCatalog._00093_DATA_ACCESS_LAYER_FAILURE, exception);
+			clear();
+			return;
+		}
+
+		synchronized (this) {
+			for (final Iterator<Entry> iterator = _entries.values().iterator(); iterator.hasNext();) {
+				final Entry entry = iterator.next();
+				if (entry._predicates == null || !Collections.disjoint(entry._predicates, predicates)) {
+					_size -= entry._size;
+					iterator.remove();
+					_invalidationsCount.incrementAndGet();
+				}
+			}
+		}
+	}
+
+	@Override
+	public synchronized void clear() {
+		_generation++;
+		_invalidationsCount.addAndGet(_entries.size());
+		_entries.clear();
+		_size = 0;
+	}
+
+	@Override
+	public String getId() {
+		return _id;
+	}
+
+	@Override
+	public long getMaxSize() {
+		return _maxSize;
+	}
+
+	@Override
+	public long getTtl() {
+		return _ttl;
+	}
+
+	@Override
+	public synchronized long getSize() {
+		return _size;
+	}
+
+	@Override
+	public int getMaxResults() {
+		return _maxResults;
+	}
+
+	@Override
+	public synchronized int getCachedQueriesCount() {
+		return _entries.size();
+	}
+
+	@Override
+	public long getHitsCount() {
+		return _hitsCount.get();
+	}
+
+	@Override
+	public long getMissesCount() {
+		return _missesCount.get();
+	}
+
+	@Override
+	public double getHitsRatio() {
+		final long hits = _hitsCount.get();
+		final long lookups = hits + _missesCount.get();
+		return lookups != 0 ? (double) hits / lookups * 100 : 0;
+	}
+
+	@Override
+	public long getEvictionsCount() {
+		return _evictionsCount.get();
+	}
+
+	@Override
+	public long getInvalidationsCount() {
+		return _invalidationsCount.get();
+	}
+
+	/**
+	 * Returns the current time, in milliseconds.
+	 *
+	 * @return the current time, in milliseconds.
+	 */
+	long now() {
+		return System.currentTimeMillis();
+	}
+
+	/**
+	 * Returns the (approximate) size of a query result, in bytes.
+	 * Values that haven't been decoded yet are accounted with the size of their identifier.
+	 *
+	 * @param result the query result.
+	 * @return the (approximate) size of the given query result, in bytes.
+	 */
+	static long sizeOf(final BindingSet result) {
+		long size = RESULT_OVERHEAD;
+		for (final String name : result.getBindingNames()) {
+			final Value value = result.getValue(name);
+			size += BINDING_OVERHEAD + 2 * name.length();
+			if (value instanceof INativeCumulusValue && !((INativeCumulusValue) value).hasData()) {
+				final byte[] id = ((INativeCumulusValue) value).getInternalID();
+				size += id != null ? id.length : 0;
+			} else if (value != null) {
+				size += 2 * value.stringValue().length();
+			}
+		}
+		return size;
+	}
+}
@@ -2,28 +2,65 @@ package edu.kit.aifb.cumulus.store.sesame;
 
 import info.aduna.iteration.CloseableIteration;
 import info.aduna.iteration.ConvertingIteration;
+import info.aduna.iteration.SingletonIteration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
 
 import org.openrdf.model.Resource;
 import org.openrdf.model.Statement;
 import org.openrdf.model.URI;
 import org.openrdf.model.Value;
+import org.openrdf.model.impl.BooleanLiteralImpl;
 import org.openrdf.query.BindingSet;
 import org.openrdf.query.Dataset;
 import org.openrdf.query.QueryEvaluationException;
+import org.openrdf.query.algebra.Compare;
+import org.openrdf.query.algebra.Compare.CompareOp;
+import org.openrdf.query.algebra.Join;
 import org.openrdf.query.algebra.StatementPattern;
+import org.openrdf.query.algebra.TupleExpr;
+import org.openrdf.query.algebra.Union;
 import org.openrdf.query.algebra.Var;
 import org.openrdf.query.algebra.evaluation.QueryBindingSet;
 import org.openrdf.query.algebra.evaluation.TripleSource;
+import org.openrdf.query.algebra.evaluation.ValueExprEvaluationException;
 import org.openrdf.query.algebra.evaluation.impl.EvaluationStrategyImpl;
+import org.openrdf.query.algebra.evaluation.util.QueryEvaluationUtil;
+import org.openrdf.query.algebra.helpers.QueryModelVisitorBase;
+
+import edu.kit.aifb.cumulus.store.sesame.model.INativeCumulusResource;
 
 public class RangeEvaluationStrategy extends EvaluationStrategyImpl {
 
+	private final Semaphore _permits;
+
 	public RangeEvaluationStrategy(TripleSource tripleSource, Dataset dataset) {
 		super(tripleSource, dataset);
+		_permits = permits(tripleSource);
 	}
 
 	public RangeEvaluationStrategy(TripleSource tripleSource) {
 		super(tripleSource);
+		_permits = permits(tripleSource);
+	}
+
+	/**
+	 * Returns the permits that bound the number of subtrees a query (i.e. this strategy) evaluates concurrently.
+	 * 
+	 * @param tripleSource the triple source.
+	 * @return the permits of the query, null if the given triple source doesn't support parallel evaluation.
+	 */
+	private static Semaphore permits(final TripleSource tripleSource) {
+		return tripleSource instanceof CumulusRDFSailConnection.CumulusRDFTripleSource 
+				? new Semaphore(Math.max(((CumulusRDFSailConnection.CumulusRDFTripleSource) tripleSource).getQueryParallelism(), 0))
+				: null;
 	}
 
 	public CloseableIteration<BindingSet, QueryEvaluationException> evaluate(RangeStatementPattern sp, final BindingSet bindings)
@@ -77,12 +114,333 @@ public class RangeEvaluationStrategy extends EvaluationStrategyImpl {
 
 	}
 
+	/**
+	 * Evaluates a join choosing the physical operator from the estimated cardinalities of its arguments.
+	 * When both arguments are large and the current bindings don't bind their join variables, the join is evaluated as a 
+	 * merge join (if both arguments are triple patterns whose results come sorted on the same join variable) or as a 
+	 * (symmetric) hash join. Bound join variables restrict both arguments, so their estimated cardinalities don't apply.
+	 * Arguments without shared variables (a cartesian product) are evaluated once, concurrently, when parallel evaluation is enabled.
+	 * Otherwise, the join is evaluated as a bind join, when its right argument is a (plain) statement pattern, 
+	 * or falls back to the default (nested loop) join.
+	 */
+	@Override
+	public CloseableIteration<BindingSet, QueryEvaluationException> evaluate(final Join join, final BindingSet bindings)
+			throws QueryEvaluationException {
+		if (isHashJoinCandidate(join)) {
+			final CumulusRDFSailConnection.CumulusRDFTripleSource source = (CumulusRDFSailConnection.CumulusRDFTripleSource) tripleSource;
+			final String[] joinVariables = joinVariables(join);
+			final int threshold = source.getHashJoinThreshold();
+
+			if (!bindsAny(bindings, joinVariables)
+					&& source.getCardinality(join.getLeftArg()) >= threshold 
+					&& source.getCardinality(join.getRightArg()) >= threshold) {
+				final String mergeVariable = mergeJoinVariable(join, bindings);
+				if (mergeVariable != null) {
+					return new MergeJoinIteration(
+							prefetch(join.getLeftArg(), bindings), 
+							prefetch(join.getRightArg(), bindings), 
+							mergeVariable, 
+							source.getIdentifiersOrder());
+				}
+
+				return new HashJoinIteration(
+						prefetch(join.getLeftArg(), bindings),
+						prefetch(join.getRightArg(), bindings),
+						joinVariables);
+			}
+		}
+
+		if (isParallelEvaluationEnabled() && isCartesianProduct(join)) {
+			return new HashJoinIteration(
+					prefetch(join.getLeftArg(), bindings),
+					prefetch(join.getRightArg(), bindings),
+					new String[0]);
+		}
+
+		if (isBindJoinCandidate(join)) {
+			final CumulusRDFSailConnection.CumulusRDFTripleSource source = (CumulusRDFSailConnection.CumulusRDFTripleSource) tripleSource;
+			return new BindJoinIteration(
+					evaluate(join.getLeftArg(), bindings), 
+					(StatementPattern) join.getRightArg(), 
+					source, 
+					source.getBindJoinBatchSize());
+		}
+		return super.evaluate(join, bindings);
+	}
+
+	/**
+	 * Evaluates a union, running its branches concurrently when parallel evaluation is enabled.
+	 */
+	@Override
+	public CloseableIteration<BindingSet, QueryEvaluationException> evaluate(final Union union, final BindingSet bindings)
+			throws QueryEvaluationException {
+		if (isParallelEvaluationEnabled()) {
+			final List<TupleExpr> branches = new ArrayList<TupleExpr>();
+			collectBranches(union, branches);
+
+			final CloseableIteration<BindingSet, QueryEvaluationException> results = parallel(branches, bindings);
+			if (results != null) {
+				return results;
+			}
+		}
+		return super.evaluate(union, bindings);
+	}
+
+	/**
+	 * Returns true if independent subtrees of the current query can be evaluated concurrently.
+	 * That requires a query executor and a calling thread that is not already evaluating a concurrent subtree.
+	 * 
+	 * @return true if independent subtrees of the current query can be evaluated concurrently.
+	 */
+	boolean isParallelEvaluationEnabled() {
+		return _permits != null
+				&& ((CumulusRDFSailConnection.CumulusRDFTripleSource) tripleSource).getQueryExecutor() != null
+				&& !ParallelIteration.isWorker();
+	}
+
+	/**
+	 * Evaluates the given (independent) expressions concurrently.
+	 * 
+	 * @param branches the expressions.
+	 * @param bindings the current bindings.
+	 * @return the results of all the given expressions, null if they cannot be evaluated concurrently.
+	 */
+	private CloseableIteration<BindingSet, QueryEvaluationException> parallel(final List<TupleExpr> branches, final BindingSet bindings) {
+		final CumulusRDFSailConnection.CumulusRDFTripleSource source = (CumulusRDFSailConnection.CumulusRDFTripleSource) tripleSource;
+		final ExecutorService executor = source.getQueryExecutor();
+		return executor != null 
+				? ParallelIteration.evaluate(this, branches, bindings, executor, _permits, source.getQueryQueueSize())
+				: null;
+	}
+
+	/**
+	 * Evaluates a given expression in background, if parallel evaluation is enabled and the query has free permits.
+	 * 
+	 * @param expr the expression.
+	 * @param bindings the current bindings.
+	 * @return the results of the given expression.
+	 * @throws QueryEvaluationException in case of evaluation failure.
+	 */
+	private CloseableIteration<BindingSet, QueryEvaluationException> prefetch(final TupleExpr expr, final BindingSet bindings) 
+			throws QueryEvaluationException {
+		if (isParallelEvaluationEnabled()) {
+			final CloseableIteration<BindingSet, QueryEvaluationException> results = parallel(Collections.singletonList(expr), bindings);
+			if (results != null) {
+				return results;
+			}
+		}
+		return evaluate(expr, bindings);
+	}
+
+	/**
+	 * Collects the branches of a (nested) union.
+	 * 
+	 * @param expr the union or one of its branches.
+	 * @param branches the list where branches are collected.
+	 */
+	static void collectBranches(final TupleExpr expr, final List<TupleExpr> branches) {
+		if (expr instanceof Union) {
+			collectBranches(((Union) expr).getLeftArg(), branches);
+			collectBranches(((Union) expr).getRightArg(), branches);
+		} else {
+			branches.add(expr);
+		}
+	}
+
+	/**
+	 * Returns true if the arguments of a given join don't share any variable, so that they can be evaluated independently.
+	 * 
+	 * @param join the join.
+	 * @return true if the arguments of the given join don't share any variable.
+	 */
+	static boolean isCartesianProduct(final Join join) {
+		return Collections.disjoint(join.getLeftArg().getBindingNames(), join.getRightArg().getBindingNames());
+	}
+
+	/**
+	 * Returns true if the given join can be evaluated as a hash (or merge) join.
+	 * That requires arguments that are basic graph patterns (so they can be evaluated independently), no dataset and 
+	 * a positive hash join threshold.
+	 * 
+	 * @param join the join.
+	 * @return true if the given join can be evaluated as a hash (or merge) join.
+	 */
+	boolean isHashJoinCandidate(final Join join) {
+		if (!(tripleSource instanceof CumulusRDFSailConnection.CumulusRDFTripleSource) || dataset != null) {
+			return false;
+		}
+
+		return ((CumulusRDFSailConnection.CumulusRDFTripleSource) tripleSource).getHashJoinThreshold() > 0
+				&& isBasicGraphPattern(join.getLeftArg()) 
+				&& isBasicGraphPattern(join.getRightArg());
+	}
+
+	/**
+	 * Returns true if the given expression is a basic graph pattern: a statement pattern without context or a join of basic graph patterns.
+	 * 
+	 * @param expr the expression.
+	 * @return true if the given expression is a basic graph pattern.
+	 */
+	static boolean isBasicGraphPattern(final TupleExpr expr) {
+		if (expr instanceof StatementPattern) {
+			return ((StatementPattern) expr).getContextVar() == null;
+		}
+
+		if (expr instanceof Join) {
+			return isBasicGraphPattern(((Join) expr).getLeftArg()) && isBasicGraphPattern(((Join) expr).getRightArg());
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the variable a join can be evaluated on as a merge join.
+	 * That requires two (plain) statement patterns whose results come sorted, in the same order, on the same unbound variable.
+	 * 
+	 * @param join the join.
+	 * @param bindings the current bindings.
+	 * @return the merge join variable, null if the given join cannot be evaluated as a merge join.
+	 * @throws QueryEvaluationException in case of evaluation failure.
+	 */
+	String mergeJoinVariable(final Join join, final BindingSet bindings) throws QueryEvaluationException {
+		if (join.getLeftArg().getClass() != StatementPattern.class || join.getRightArg().getClass() != StatementPattern.class) {
+			return null;
+		}
+
+		final Var left = sortedBy((StatementPattern) join.getLeftArg(), bindings);
+		final Var right = sortedBy((StatementPattern) join.getRightArg(), bindings);
+		return left != null && right != null && left.getName().equals(right.getName()) ? left.getName() : null;
+	}
+
+	/**
+	 * Returns the variable the results of a given statement pattern are sorted by.
+	 * 
+	 * @param pattern the statement pattern.
+	 * @param bindings the current bindings.
+	 * @return the variable the results of the given statement pattern are sorted by, null if they are not sorted.
+	 * @throws QueryEvaluationException in case of evaluation failure.
+	 */
+	private Var sortedBy(final StatementPattern pattern, final BindingSet bindings) throws QueryEvaluationException {
+		final Var[] vars = {pattern.getSubjectVar(), pattern.getPredicateVar(), pattern.getObjectVar()};
+		final Value[] values = {getVarValue(vars[0], bindings), getVarValue(vars[1], bindings), getVarValue(vars[2], bindings)};
+		if ((values[0] != null && !(values[0] instanceof Resource)) || (values[1] != null && !(values[1] instanceof URI))) {
+			return null;
+		}
+
+		final int position = ((CumulusRDFSailConnection.CumulusRDFTripleSource) tripleSource).sortedBy(values);
+		return position >= 0 && values[position] == null ? vars[position] : null;
+	}
+
+	/**
+	 * Returns the (unbound) variables shared by both arguments of a given join.
+	 * 
+	 * @param join the join.
+	 * @return the variables shared by both arguments of the given join.
+	 */
+	static String[] joinVariables(final Join join) {
+		final Set<String> shared = variables(join.getLeftArg());
+		shared.retainAll(variables(join.getRightArg()));
+		return shared.toArray(new String[shared.size()]);
+	}
+
+	/**
+	 * Returns true if the given bindings bind at least one of the given variables.
+	 * 
+	 * @param bindings the bindings.
+	 * @param variables the variables.
+	 * @return true if the given bindings bind at least one of the given variables.
+	 */
+	static boolean bindsAny(final BindingSet bindings, final String[] variables) {
+		for (final String variable : variables) {
+			if (bindings.getValue(variable) != null) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the (unbound) variables of a given basic graph pattern.
+	 * 
+	 * @param expr the basic graph pattern.
+	 * @return the variables of the given basic graph pattern.
+	 */
+	private static Set<String> variables(final TupleExpr expr) {
+		final Set<String> variables = new HashSet<String>();
+		expr.visit(new QueryModelVisitorBase<RuntimeException>() {
+			@Override
+			public void meet(final Var var) {
+				if (!var.hasValue()) {
+					variables.add(var.getName());
+				}
+			}
+		});
+		return variables;
+	}
+
+	/**
+	 * Returns true if the given join can be evaluated as a bind join.
+	 * That requires a right argument that is a statement pattern without context and range restrictions, and no dataset.
+	 * 
+	 * @param join the join.
+	 * @return true if the given join can be evaluated as a bind join.
+	 */
+	boolean isBindJoinCandidate(final Join join) {
+		if (!(tripleSource instanceof CumulusRDFSailConnection.CumulusRDFTripleSource) || dataset != null) {
+			return false;
+		}
+
+		if (join.getRightArg().getClass() != StatementPattern.class) {
+			return false;
+		}
+
+		return ((StatementPattern) join.getRightArg()).getContextVar() == null 
+				&& ((CumulusRDFSailConnection.CumulusRDFTripleSource) tripleSource).getBindJoinBatchSize() > 1;
+	}
+
+	/**
+	 * Evaluates a statement pattern.
+	 * Plain triple patterns are evaluated on identifiers: index rows are turned into bindings directly, without 
+	 * building statements, and values are created (but not decoded) only for unbound variables.
+	 */
 	public CloseableIteration<BindingSet, QueryEvaluationException> evaluate(StatementPattern sp, final BindingSet bindings)
 			throws QueryEvaluationException {
 		if (sp instanceof RangeStatementPattern) {
 			return evaluate((RangeStatementPattern) sp, bindings);
+		} else if (sp.getClass() == StatementPattern.class 
+				&& sp.getContextVar() == null 
+				&& dataset == null
+				&& tripleSource instanceof CumulusRDFSailConnection.CumulusRDFTripleSource) {
+			// A bind join with a single left binding.
+			return new BindJoinIteration(
+					new SingletonIteration<BindingSet, QueryEvaluationException>(bindings), 
+					sp, 
+					(CumulusRDFSailConnection.CumulusRDFTripleSource) tripleSource, 
+					1);
 		} else {
 			return super.evaluate(sp, bindings);
 		}
 	}
+
+	/**
+	 * Evaluates a comparison.
+	 * (In)equality between resources that come from the store is decided on identifiers, without decoding them.
+	 */
+	@Override
+	public Value evaluate(final Compare node, final BindingSet bindings) throws ValueExprEvaluationException, QueryEvaluationException {
+		if (node.getOperator() == CompareOp.EQ || node.getOperator() == CompareOp.NE) {
+			final Value left = evaluate(node.getLeftArg(), bindings);
+			final Value right = evaluate(node.getRightArg(), bindings);
+			if (left instanceof INativeCumulusResource
+					&& right instanceof INativeCumulusResource
+					&& ((INativeCumulusResource) left).hasInternalID()
+					&& ((INativeCumulusResource) right).hasInternalID()) {
+				final boolean equals = Arrays.equals(
+						((INativeCumulusResource) left).getInternalID(), 
+						((INativeCumulusResource) right).getInternalID());
+				return BooleanLiteralImpl.valueOf(node.getOperator() == CompareOp.EQ ? equals : !equals);
+			}
+			return BooleanLiteralImpl.valueOf(QueryEvaluationUtil.compare(left, right, node.getOperator()));
+		}
+		return super.evaluate(node, bindings);
+	}
 }
@@ -1,5 +1,7 @@
 package edu.kit.aifb.cumulus.store.sesame.model;
 
+import org.openrdf.model.Value;
+
 /**
  * CumulusRDF value interface.
  * 
@@ -30,4 +32,18 @@ public interface INativeCumulusValue {
 	 * @return true if an identifier has been associated with this value, false otherwise.
 	 */
 	boolean hasInternalID();
-}
\ No newline at end of file
+
+	/**
+	 * Returns true if the data of this value (e.g. the URI string, the literal label) is available without a dictionary lookup.
+	 * 
+	 * @return true if the data of this value is available without a dictionary lookup.
+	 */
+	boolean hasData();
+
+	/**
+	 * Injects the data of this value, already decoded from the dictionary.
+	 * 
+	 * @param value the decoded value.
+	 */
+	void setData(Value value);
+}
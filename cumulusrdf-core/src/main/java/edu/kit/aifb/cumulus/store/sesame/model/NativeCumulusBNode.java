@@ -3,6 +3,7 @@ package edu.kit.aifb.cumulus.store.sesame.model;
 import java.util.Arrays;
 
 import org.openrdf.model.BNode;
+import org.openrdf.model.Value;
 import org.openrdf.model.impl.BNodeImpl;
 import org.slf4j.LoggerFactory;
 
@@ -130,6 +131,17 @@ public class NativeCumulusBNode extends BNodeImpl implements INativeCumulusResou
 		_has_data = true;
 	}
 
+	@Override
+	public boolean hasData() {
+		return _has_data;
+	}
+
+	@Override
+	public synchronized void setData(final Value value) {
+		super.setID(((BNode) value).getID());
+		_has_data = true;
+	}
+
 	@Override
 	public void setInternalID(final byte[] internalID) {
 		_internalID = internalID;
@@ -4,6 +4,7 @@ import java.util.Arrays;
 
 import org.openrdf.model.Literal;
 import org.openrdf.model.URI;
+import org.openrdf.model.Value;
 import org.openrdf.model.impl.LiteralImpl;
 import org.slf4j.LoggerFactory;
 
@@ -180,6 +181,20 @@ public class NativeCumulusLiteral extends LiteralImpl implements INativeCumulusV
 		_has_data = true;
 	}
 
+	@Override
+	public boolean hasData() {
+		return _has_data;
+	}
+
+	@Override
+	public synchronized void setData(final Value value) {
+		final Literal literal = (Literal) value;
+		super.setDatatype(literal.getDatatype());
+		super.setLabel(literal.getLabel());
+		super.setLanguage(literal.getLanguage());
+		_has_data = true;
+	}
+
 	@Override
 	public void setInternalID(final byte[] internalID) {
 		_internalID = internalID;
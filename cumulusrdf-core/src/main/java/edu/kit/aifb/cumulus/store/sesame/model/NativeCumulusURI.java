@@ -3,6 +3,7 @@ package edu.kit.aifb.cumulus.store.sesame.model;
 import java.util.Arrays;
 
 import org.openrdf.model.URI;
+import org.openrdf.model.Value;
 import org.openrdf.model.impl.URIImpl;
 import org.slf4j.LoggerFactory;
 
@@ -133,6 +134,26 @@ public class NativeCumulusURI extends URIImpl implements INativeCumulusResource
 		_has_data = true;
 	}
 
+	@Override
+	public boolean hasData() {
+		return _has_data;
+	}
+
+	/**
+	 * Returns true if this URI has been read in the predicate position.
+	 * 
+	 * @return true if this URI has been read in the predicate position.
+	 */
+	public boolean isPredicate() {
+		return _p;
+	}
+
+	@Override
+	public synchronized void setData(final Value value) {
+		super.setURIString(value.stringValue());
+		_has_data = true;
+	}
+
 	@Override
 	public void setInternalID(final byte[] internalID) {
 		_internalID = internalID;
@@ -0,0 +1,222 @@
+package edu.kit.aifb.cumulus.store;
+
+import static edu.kit.aifb.cumulus.TestUtils.VALUE_FACTORY;
+import static edu.kit.aifb.cumulus.TestUtils.randomString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EventObject;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openrdf.model.Statement;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFHandlerException;
+
+import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerException;
+import edu.kit.aifb.cumulus.store.events.AddTripleEvent;
+
+/**
+ * Test case for {@link BulkLoadPipeline}.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+public class BulkLoadPipelineTest {
+
+	private static final int BATCH_LIMIT = 10;
+	private static final int HOW_MANY_STATEMENTS = 1005;
+
+	private final AtomicInteger _encoding = new AtomicInteger();
+	private final AtomicInteger _written = new AtomicInteger();
+	private final AtomicInteger _notified = new AtomicInteger();
+	private final AtomicInteger _maxInFlight = new AtomicInteger();
+
+	private volatile long _writeLatency;
+	private volatile boolean _failOnWrite;
+
+	private Store _store;
+
+	/**
+	 * Setup fixture for this test case.
+	 */
+	@Before
+	public void setUp() {
+		_store = new TripleStore(randomString()) {
+			@Override
+			List<byte[][]> encode(final List<Statement> statements) {
+				_encoding.addAndGet(statements.size());
+
+				final List<byte[][]> ids = new ArrayList<byte[][]>(statements.size());
+				for (int i = 0; i < statements.size(); i++) {
+					ids.add(new byte[][] { { 1 }, { 2 }, { 3 } });
+				}
+				return ids;
+			}
+
+			@Override
+			List<byte[][]> newTriples(final List<byte[][]> ids) {
+				return ids;
+			}
+
+			@Override
+			void write(final List<Statement> statements, final List<byte[][]> ids) throws DataAccessLayerException {
+				final int inFlight = _encoding.get() - _written.get();
+				if (inFlight > _maxInFlight.get()) {
+					_maxInFlight.set(inFlight);
+				}
+
+				if (_failOnWrite) {
+					throw new DataAccessLayerException(new IllegalStateException(randomString()));
+				}
+
+				try {
+					Thread.sleep(_writeLatency);
+				} catch (final InterruptedException exception) {
+					throw new DataAccessLayerException(exception);
+				}
+				_written.addAndGet(ids.size());
+			}
+
+			@Override
+			void notifyListeners(final EventObject event) {
+				if (event instanceof AddTripleEvent) {
+					_notified.addAndGet(((AddTripleEvent) event).numOfChanges());
+				}
+			}
+		};
+	}
+
+	/**
+	 * All parsed statements must go through all stages.
+	 *
+	 * @throws Exception never otherwise the test fails.
+	 */
+	@Test
+	public void allStatementsAreLoaded() throws Exception {
+		final BulkLoadPipeline pipeline = new BulkLoadPipeline(_store, BATCH_LIMIT, 3, 4, 2).start();
+		feed(pipeline.newHandler(), HOW_MANY_STATEMENTS);
+
+		final BulkLoadReport report = pipeline.close();
+
+		assertEquals(HOW_MANY_STATEMENTS, report.getLoaded());
+		assertEquals(HOW_MANY_STATEMENTS, _written.get());
+		assertEquals(HOW_MANY_STATEMENTS, _notified.get());
+
+		assertEquals(4, report.getStages().size());
+		for (final BulkLoadReport.StageStats stage : report.getStages()) {
+			assertEquals(stage.getName(), HOW_MANY_STATEMENTS, stage.getProcessed());
+		}
+
+		assertEquals(BulkLoadPipeline.ENCODE, report.getStages().get(1).getName());
+		assertEquals(3, report.getStages().get(1).getThreads());
+		assertEquals(BulkLoadPipeline.INDEX_WRITE, report.getStages().get(2).getName());
+		assertEquals(4, report.getStages().get(2).getThreads());
+	}
+
+	/**
+	 * A slow index write stage must slow down the previous stages, instead of letting chunks pile up.
+	 *
+	 * @throws Exception never otherwise the test fails.
+	 */
+	@Test
+	public void slowWritersBlockTheParser() throws Exception {
+		_writeLatency = 5;
+		final int encoders = 2;
+		final int writers = 1;
+		final int queueSize = 1;
+
+		final BulkLoadPipeline pipeline = new BulkLoadPipeline(_store, BATCH_LIMIT, encoders, writers, queueSize).start();
+		feed(pipeline.newHandler(), HOW_MANY_STATEMENTS);
+		pipeline.close();
+
+		// Chunks between the encode stage and the writers: the ones being encoded, the queued ones and the ones being written.
+		final int maxChunksInFlight = encoders + queueSize + writers;
+		assertTrue(
+				"Max in flight: " + _maxInFlight.get(),
+				_maxInFlight.get() <= maxChunksInFlight * BATCH_LIMIT);
+		assertEquals(HOW_MANY_STATEMENTS, _written.get());
+	}
+
+	/**
+	 * A stage failure must abort the parser and must be reported once the pipeline is closed.
+	 *
+	 * @throws Exception never otherwise the test fails.
+	 */
+	@Test
+	public void failureAbortsTheLoad() throws Exception {
+		_failOnWrite = true;
+
+		final BulkLoadPipeline pipeline = new BulkLoadPipeline(_store, BATCH_LIMIT, 1, 1, 1).start();
+		try {
+			feed(pipeline.newHandler(), HOW_MANY_STATEMENTS * 10);
+			fail("The parser should have been stopped by the write failure.");
+		} catch (final RDFHandlerException expected) {
+			// Nothing, this is the expected behaviour
+		}
+
+		try {
+			pipeline.close();
+			fail("The write failure should have been reported.");
+		} catch (final CumulusStoreException expected) {
+			assertTrue(expected.getCause() instanceof DataAccessLayerException);
+		}
+		assertEquals(0, _notified.get());
+	}
+
+	/**
+	 * An I/O failure of the parser must be reported as is, even if a stage failed too: 
+	 * the stage failure is attached to it as a suppressed exception.
+	 *
+	 * @throws Exception never otherwise the test fails.
+	 */
+	@Test
+	public void ioFailureIsNotReplacedByStageFailure() throws Exception {
+		_failOnWrite = true;
+		final IOException ioFailure = new IOException(randomString());
+
+		try {
+			new BulkLoadPipeline(_store, BATCH_LIMIT, 1, 1, 1).load(new BulkLoadPipeline.Parser() {
+				@Override
+				public int threads() {
+					return 1;
+				}
+
+				@Override
+				public void parse(final BulkLoadPipeline pipeline) throws IOException, RDFHandlerException {
+					feed(pipeline.newHandler(), BATCH_LIMIT);
+					throw ioFailure;
+				}
+			});
+			fail("The I/O failure should have been reported.");
+		} catch (final IOException expected) {
+			assertSame(ioFailure, expected);
+			assertEquals(1, expected.getSuppressed().length);
+			assertTrue(expected.getSuppressed()[0] instanceof CumulusStoreException);
+		}
+	}
+
+	/**
+	 * Sends a given number of statements to the given handler, like a parser would do.
+	 *
+	 * @param handler the pipeline handler.
+	 * @param howMany how many statements will be sent.
+	 * @throws RDFHandlerException in case of pipeline failure.
+	 */
+	private void feed(final RDFHandler handler, final int howMany) throws RDFHandlerException {
+		handler.startRDF();
+		for (int i = 0; i < howMany; i++) {
+			handler.handleStatement(VALUE_FACTORY.createStatement(
+					VALUE_FACTORY.createURI("http://cumulus.test/s" + i),
+					VALUE_FACTORY.createURI("http://cumulus.test/p"),
+					VALUE_FACTORY.createLiteral(i)));
+		}
+		handler.endRDF();
+	}
+}
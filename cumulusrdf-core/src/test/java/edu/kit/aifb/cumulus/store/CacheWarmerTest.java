@@ -0,0 +1,255 @@
+package edu.kit.aifb.cumulus.store;
+
+import static edu.kit.aifb.cumulus.TestUtils.VALUE_FACTORY;
+import static edu.kit.aifb.cumulus.TestUtils.randomString;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openrdf.model.Value;
+
+import edu.kit.aifb.cumulus.framework.domain.dictionary.ITopLevelDictionary;
+import edu.kit.aifb.cumulus.store.dict.impl.cache.CacheSnapshot;
+import edu.kit.aifb.cumulus.store.dict.impl.cache.WarmableCache;
+import edu.kit.aifb.cumulus.store.dict.impl.string.CacheStringDictionary;
+import edu.kit.aifb.cumulus.store.dict.impl.string.PersistentStringDictionary;
+import edu.kit.aifb.cumulus.store.dict.impl.value.CacheValueDictionary;
+import edu.kit.aifb.cumulus.store.dict.impl.value.KnownURIsDictionary;
+import edu.kit.aifb.cumulus.store.dict.impl.value.PersistentValueDictionary;
+import edu.kit.aifb.cumulus.store.dict.impl.value.ThreeTieredValueDictionary;
+import edu.kit.aifb.cumulus.store.dict.impl.value.TransientValueDictionary;
+
+/**
+ * Test case for {@link CacheWarmer}.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+public class CacheWarmerTest {
+
+	private File _directory;
+	private final List<Value> _values = new ArrayList<Value>();
+
+	/**
+	 * Setup fixture for this test.
+	 *
+	 * @throws Exception never, otherwise the corresponding test will fail.
+	 */
+	@Before
+	public void setUp() throws Exception {
+		_directory = Files.createTempDirectory("cumulus-warmer").toFile();
+
+		for (int i = 0; i < 100; i++) {
+			_values.add(VALUE_FACTORY.createLiteral("literal #" + i));
+			_values.add(VALUE_FACTORY.createBNode("bnode" + i));
+			_values.add(VALUE_FACTORY.createLiteral(i));
+		}
+	}
+
+	/**
+	 * Removes the snapshot files.
+	 */
+	@After
+	public void tearDown() {
+		final File[] files = _directory.listFiles();
+		if (files != null) {
+			for (final File file : files) {
+				file.delete();
+			}
+		}
+		_directory.delete();
+	}
+
+	/**
+	 * All the caches in a dictionary chain must be found.
+	 */
+	@Test
+	public void cachesInDictionaryChain() {
+		final ITopLevelDictionary dictionary = new CacheValueDictionary(
+				"TopLevelCacheDictionary",
+				new KnownURIsDictionary(
+						"KnownURIsDictionary",
+						new ThreeTieredValueDictionary(
+								"ThreeTieredDictionary",
+								new CacheStringDictionary(
+										"NamespacesCacheDictionary",
+										new PersistentStringDictionary("NamespacesDictionary", "DICT_NAMESPACES"),
+										100, 100, false),
+								new PersistentStringDictionary("LocalNamesDictionary", "DICT_LOCALNAMES"),
+								newLiteralsCache())),
+				100, 100, false);
+
+		final List<WarmableCache> caches = CacheWarmer.caches(dictionary);
+		assertEquals(3, caches.size());
+		assertEquals("TopLevelCacheDictionary", caches.get(0).getId());
+		assertEquals("NamespacesCacheDictionary", caches.get(1).getId());
+		assertEquals("LiteralsAndBNodesCacheDictionary", caches.get(2).getId());
+	}
+
+	/**
+	 * A cache must be preloaded with the entries of the snapshot taken by another (same kind of) cache.
+	 *
+	 * @throws Exception never, otherwise the corresponding test will fail.
+	 */
+	@Test
+	public void snapshotAndWarmUp() throws Exception {
+		final CacheValueDictionary hot = newLiteralsCache();
+		final List<byte[]> ids = new ArrayList<byte[]>();
+		for (final Value value : _values) {
+			final byte[] id = hot.getID(value, false);
+			ids.add(id);
+			assertEquals(value, hot.getValue(id, false));
+		}
+
+		final CacheWarmer hotWarmer = new CacheWarmer(hot, _directory, 1000, 0);
+		assertEquals(_values.size(), hotWarmer.snapshot());
+		assertTrue(hotWarmer.snapshotFile(hot).exists());
+
+		final CacheValueDictionary cold = newLiteralsCache();
+		assertEquals(0, cold.getCachedIdentifiersCount());
+		assertEquals(0, cold.getCachedValuesCount());
+
+		final CacheWarmer coldWarmer = new CacheWarmer(cold, _directory, 1000, 0);
+		coldWarmer.warmUp();
+
+		assertFalse(coldWarmer.isRunning());
+		assertEquals(_values.size(), coldWarmer.getTotalEntries());
+		assertEquals(_values.size(), coldWarmer.getLoadedEntries());
+		assertEquals(_values.size(), cold.getCachedIdentifiersCount());
+		assertEquals(_values.size(), cold.getCachedValuesCount());
+
+		for (int i = 0; i < _values.size(); i++) {
+			assertArrayEquals(ids.get(i), cold.getID(_values.get(i), false));
+			assertEquals(_values.get(i), cold.getValue(ids.get(i), false));
+		}
+		assertEquals(_values.size(), cold.getIdHitsCount());
+		assertEquals(_values.size(), cold.getValueHitsCount());
+	}
+
+	/**
+	 * Only the hottest entries must be saved in a snapshot.
+	 *
+	 * @throws Exception never, otherwise the corresponding test will fail.
+	 */
+	@Test
+	public void snapshotLimit() throws Exception {
+		final CacheValueDictionary cache = newLiteralsCache();
+		for (final Value value : _values) {
+			cache.getID(value, false);
+		}
+
+		final Value hottest = _values.get(_values.size() / 2);
+		for (int i = 0; i < 10; i++) {
+			cache.getID(hottest, false);
+		}
+
+		assertEquals(1, new CacheWarmer(cache, _directory, 1, 0).snapshot());
+
+		final CacheValueDictionary cold = newLiteralsCache();
+		new CacheWarmer(cold, _directory, 1, 0).warmUp();
+		assertEquals(1, cold.getCachedValuesCount());
+		cold.getID(hottest, false);
+		assertEquals(1, cold.getIdHitsCount());
+	}
+
+	/**
+	 * A snapshot taken by a cache that decorates a different kind of dictionary must be ignored.
+	 *
+	 * @throws Exception never, otherwise the corresponding test will fail.
+	 */
+	@Test
+	public void signatureMismatch() throws Exception {
+		final CacheValueDictionary cache = newLiteralsCache();
+		for (final Value value : _values) {
+			cache.getID(value, false);
+		}
+		new CacheWarmer(cache, _directory, 1000, 0).snapshot();
+
+		final CacheValueDictionary another = new CacheValueDictionary(
+				"LiteralsAndBNodesCacheDictionary",
+				new PersistentValueDictionary(randomString()),
+				1000,
+				1000,
+				false);
+		final CacheWarmer warmer = new CacheWarmer(another, _directory, 1000, 0);
+		warmer.warmUp();
+
+		assertEquals(_values.size(), warmer.getTotalEntries());
+		assertEquals(0, warmer.getLoadedEntries());
+		assertEquals(0, another.getCachedValuesCount());
+	}
+
+	/**
+	 * A store closed right after opening interrupts the warm-up: 
+	 * its (almost empty) caches must not overwrite the existing snapshot.
+	 *
+	 * @throws Exception never, otherwise the corresponding test will fail.
+	 */
+	@Test
+	public void stopBeforeWarmUpCompletes() throws Exception {
+		final CacheValueDictionary hot = newLiteralsCache();
+		for (final Value value : _values) {
+			hot.getID(value, false);
+		}
+		final CacheWarmer hotWarmer = new CacheWarmer(hot, _directory, 1000, 0);
+		assertEquals(_values.size(), hotWarmer.snapshot());
+
+		final CacheValueDictionary slow = new CacheValueDictionary(
+				"LiteralsAndBNodesCacheDictionary",
+				new TransientValueDictionary(
+						"TransientDictionary",
+						new PersistentValueDictionary(randomString()),
+						0),
+				1000,
+				1000,
+				false) {
+			@Override
+			public int readSnapshot(final DataInputStream in, final AtomicLong progress) throws IOException {
+				try {
+					Thread.sleep(10000);
+				} catch (final InterruptedException exception) {
+					Thread.currentThread().interrupt();
+					return 0;
+				}
+				return super.readSnapshot(in, progress);
+			}
+		};
+		slow.getID(_values.get(0), false);
+
+		final CacheWarmer warmer = new CacheWarmer(slow, _directory, 1000, 1);
+		warmer.start();
+		warmer.stop();
+
+		assertEquals(0, warmer.snapshotIfWarmedUp());
+		assertEquals(_values.size(), CacheSnapshot.entriesCount(hotWarmer.snapshotFile(hot)));
+	}
+
+	/**
+	 * Builds a new literals and blank nodes cache, on top of a transient dictionary.
+	 *
+	 * @return a new literals and blank nodes cache.
+	 */
+	private CacheValueDictionary newLiteralsCache() {
+		return new CacheValueDictionary(
+				"LiteralsAndBNodesCacheDictionary",
+				new TransientValueDictionary(
+						"TransientDictionary",
+						new PersistentValueDictionary(randomString()),
+						0),
+				1000,
+				1000,
+				false);
+	}
+}
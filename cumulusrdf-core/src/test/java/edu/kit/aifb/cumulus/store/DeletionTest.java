@@ -10,7 +10,10 @@ import static edu.kit.aifb.cumulus.util.Util.parseNX;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EventObject;
+import java.util.List;
 
 import org.junit.After;
 import org.junit.Before;
@@ -23,6 +26,8 @@ import org.openrdf.model.vocabulary.RDFS;
 import org.openrdf.rio.RDFFormat;
 
 import edu.kit.aifb.cumulus.AbstractCumulusTest;
+import edu.kit.aifb.cumulus.framework.events.ITriplesChangesListener;
+import edu.kit.aifb.cumulus.store.events.RemoveTriplesEvent;
 
 /**
  * Test case for triple deletion.
@@ -231,6 +236,49 @@ public class DeletionTest extends AbstractCumulusTest {
 		assertEquals(0, numOfRes(_tripleStore.query(_query_pattern_no_results)));
 	}
 
+	/**
+	 * Triples matching a pattern must be deleted (and notified to listeners) in windows of at most batch limit triples.
+	 * 
+	 * @throws Exception never, otherwise the tests fail.
+	 */
+	@Test
+	public void testRemovePatternInWindows() throws Exception {
+		final Value[] pattern = { buildResource("http://gridpedia.org/id/Driver"), null, null };
+		final int howManyTriples = numOfRes(_tripleStore.query(pattern));
+		final int batchLimit = 2;
+		assertTrue(howManyTriples > batchLimit);
+
+		final List<Integer> windows = new ArrayList<Integer>();
+		final ITriplesChangesListener listener = new ITriplesChangesListener() {
+			@Override
+			public void update(final EventObject event) {
+				if (event instanceof RemoveTriplesEvent) {
+					windows.add(((RemoveTriplesEvent) event).numOfChanges());
+				}
+			}
+		};
+
+		final int previousBatchLimit = _tripleStore._batchLimit;
+		_tripleStore.setDefaultBatchLimit(batchLimit);
+		_tripleStore._changeListeners.add(listener);
+		try {
+			_tripleStore.removeData(pattern);
+		} finally {
+			_tripleStore._changeListeners.remove(listener);
+			_tripleStore.setDefaultBatchLimit(previousBatchLimit);
+		}
+
+		assertEquals(0, numOfRes(_tripleStore.query(pattern)));
+		assertEquals(_howManyTriplesInDataset - howManyTriples, numOfRes(_tripleStore.query(SELECT_ALL_TRIPLES_PATTERN)));
+
+		int deleted = 0;
+		for (final int window : windows) {
+			assertTrue(window <= batchLimit);
+			deleted += window;
+		}
+		assertEquals(howManyTriples, deleted);
+	}
+
 	/**
 	 * Tests if the normal indexes are cleared correctly.
 	 * 
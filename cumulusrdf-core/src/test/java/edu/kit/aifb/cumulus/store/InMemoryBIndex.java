@@ -0,0 +1,164 @@
+package edu.kit.aifb.cumulus.store;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import edu.kit.aifb.cumulus.framework.InitialisationException;
+import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerFactory;
+import edu.kit.aifb.cumulus.store.dict.impl.value.ValueDictionaryBase;
+
+/**
+ * An in-memory {@link BIndex} that simulates the latency of a remote storage.
+ * Each access sleeps for a given amount of time, like a network round trip would do.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+public class InMemoryBIndex extends BIndex {
+
+	private final ConcurrentMap<String, byte[]> _idsByValue = new ConcurrentHashMap<String, byte[]>();
+	private final ConcurrentMap<ByteBuffer, String> _valuesById = new ConcurrentHashMap<ByteBuffer, String>();
+	private final long _latency;
+
+	private final AtomicInteger _writes = new AtomicInteger();
+	private final AtomicInteger _reads = new AtomicInteger();
+
+	/**
+	 * Builds a new index with the given latency.
+	 *
+	 * @param indexName the name associated with this index.
+	 * @param latency the latency, in milliseconds, of each access.
+	 */
+	public InMemoryBIndex(final String indexName, final long latency) {
+		super(indexName);
+		_latency = latency;
+	}
+
+	@Override
+	public void initialise(final DataAccessLayerFactory factory) throws InitialisationException {
+		// Nothing to be done here...
+	}
+
+	@Override
+	public byte[] get(final String value) {
+		roundTrip();
+		final byte[] id = _idsByValue.get(value);
+		return id != null ? id : ValueDictionaryBase.NOT_SET;
+	}
+
+	@Override
+	public List<byte[]> get(final List<String> values) {
+		roundTrip();
+		final List<byte[]> result = new ArrayList<byte[]>(values.size());
+		for (final String value : values) {
+			final byte[] id = _idsByValue.get(value);
+			result.add(id != null ? id : ValueDictionaryBase.NOT_SET);
+		}
+		return result;
+	}
+
+	@Override
+	public String getQuick(final byte[] id) {
+		roundTrip();
+		_reads.incrementAndGet();
+		return _valuesById.get(ByteBuffer.wrap(id));
+	}
+
+	@Override
+	public List<String> getQuick(final List<byte[]> ids) {
+		roundTrip();
+		_reads.incrementAndGet();
+		final List<String> result = new ArrayList<String>(ids.size());
+		for (final byte[] id : ids) {
+			final String value = _valuesById.get(ByteBuffer.wrap(id));
+			result.add(value != null ? value : "");
+		}
+		return result;
+	}
+
+	@Override
+	public void putQuick(final String value, final byte[] id) {
+		roundTrip();
+		_writes.incrementAndGet();
+		_idsByValue.put(value, id);
+		_valuesById.put(ByteBuffer.wrap(id), value);
+	}
+
+	@Override
+	public void putAllQuick(final Map<String, byte[]> pairs) {
+		roundTrip();
+		_writes.addAndGet(pairs.size());
+		for (final Map.Entry<String, byte[]> pair : pairs.entrySet()) {
+			_idsByValue.put(pair.getKey(), pair.getValue());
+			_valuesById.put(ByteBuffer.wrap(pair.getValue()), pair.getKey());
+		}
+	}
+
+	@Override
+	public boolean contains(final byte[] id) {
+		roundTrip();
+		return _valuesById.containsKey(ByteBuffer.wrap(id));
+	}
+
+	@Override
+	public boolean[] contains(final List<byte[]> ids) {
+		roundTrip();
+		final boolean[] result = new boolean[ids.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = _valuesById.containsKey(ByteBuffer.wrap(ids.get(i)));
+		}
+		return result;
+	}
+
+	@Override
+	public void remove(final String value) {
+		roundTrip();
+		final byte[] id = _idsByValue.remove(value);
+		if (id != null) {
+			_valuesById.remove(ByteBuffer.wrap(id));
+		}
+	}
+
+	/**
+	 * Returns the number of values written in this index.
+	 *
+	 * @return the number of values written in this index.
+	 */
+	public int writes() {
+		return _writes.get();
+	}
+
+	/**
+	 * Returns the number of lookups by identifier (each lookup of a batch of identifiers counts once).
+	 *
+	 * @return the number of lookups by identifier.
+	 */
+	public int reads() {
+		return _reads.get();
+	}
+
+	/**
+	 * Returns the number of values currently held by this index.
+	 *
+	 * @return the number of values currently held by this index.
+	 */
+	public int size() {
+		return _idsByValue.size();
+	}
+
+	/**
+	 * Simulates a round trip to the storage.
+	 */
+	private void roundTrip() {
+		try {
+			Thread.sleep(_latency);
+		} catch (final InterruptedException exception) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,154 @@
+package edu.kit.aifb.cumulus.store;
+
+import static edu.kit.aifb.cumulus.TestUtils.randomString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EventObject;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+import org.openrdf.model.BNode;
+import org.openrdf.model.Statement;
+import org.openrdf.rio.RDFFormat;
+
+/**
+ * Test case for {@link LineBasedParallelParser}.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+public class LineBasedParallelParserTest {
+
+	/**
+	 * Chunks must cover the whole file and each chunk must start at the beginning of a line.
+	 *
+	 * @throws Exception never otherwise the test fails.
+	 */
+	@Test
+	public void chunksAreLineAligned() throws Exception {
+		final File data = ntriples(1000);
+
+		final RandomAccessFile file = new RandomAccessFile(data, "r");
+		try {
+			final FileChannel channel = file.getChannel();
+			final List<long[]> chunks = LineBasedParallelParser.chunks(channel, 100);
+
+			assertTrue(chunks.size() > 1);
+
+			long expectedStart = 0;
+			for (final long[] chunk : chunks) {
+				assertEquals(expectedStart, chunk[0]);
+				assertTrue(chunk[1] > chunk[0]);
+
+				final ByteBuffer lastByte = ByteBuffer.allocate(1);
+				channel.read(lastByte, chunk[1] - 1);
+				assertEquals('\n', lastByte.get(0));
+
+				expectedStart = chunk[1];
+			}
+			assertEquals(channel.size(), expectedStart);
+		} finally {
+			file.close();
+		}
+	}
+
+	/**
+	 * The same blank node label must denote the same blank node within a load, and a different one across loads.
+	 */
+	@Test
+	public void blankNodesAreScopedToTheLoad() {
+		final String label = randomString();
+
+		final LineBasedParallelParser.LoadScopedValueFactory load = new LineBasedParallelParser.LoadScopedValueFactory();
+		final LineBasedParallelParser.LoadScopedValueFactory anotherLoad = new LineBasedParallelParser.LoadScopedValueFactory();
+
+		assertEquals(load.createBNode(label), load.createBNode(label));
+		assertFalse(load.createBNode(label).equals(anotherLoad.createBNode(label)));
+	}
+
+	/**
+	 * All statements must be loaded, and blank nodes shared by distinct chunks must be the same.
+	 *
+	 * @throws Exception never otherwise the test fails.
+	 */
+	@Test
+	public void allStatementsAreLoaded() throws Exception {
+		final int howManyStatements = 50000;
+		final File data = ntriples(howManyStatements);
+
+		final List<Statement> loaded = Collections.synchronizedList(new ArrayList<Statement>());
+		final Store store = new TripleStore(randomString()) {
+			@Override
+			List<byte[][]> encode(final List<Statement> statements) {
+				final List<byte[][]> ids = new ArrayList<byte[][]>(statements.size());
+				for (int i = 0; i < statements.size(); i++) {
+					ids.add(new byte[][] { { 1 }, { 2 }, { 3 } });
+				}
+				return ids;
+			}
+
+			@Override
+			void write(final List<Statement> statements, final List<byte[][]> ids) {
+				loaded.addAll(statements);
+			}
+
+			@Override
+			void notifyListeners(final EventObject event) {
+				// Nothing to be done here...
+			}
+		};
+
+		final LineBasedParallelParser parser = new LineBasedParallelParser(data, RDFFormat.NTRIPLES, 4);
+		assertTrue(parser.chunkSize(data.length()) < data.length());
+
+		final BulkLoadReport report = store.bulkLoad(parser);
+
+		assertEquals(howManyStatements, report.getLoaded());
+		assertEquals(howManyStatements, loaded.size());
+		assertEquals(4, report.getStages().get(0).getThreads());
+
+		final Set<BNode> bnodes = new HashSet<BNode>();
+		for (final Statement statement : loaded) {
+			if (statement.getObject() instanceof BNode) {
+				bnodes.add((BNode) statement.getObject());
+			}
+		}
+		assertEquals(1, bnodes.size());
+	}
+
+	/**
+	 * Creates a N-Triples file with the given number of statements.
+	 * All statements share the same blank node as object.
+	 *
+	 * @param howMany how many statements will be written.
+	 * @return the N-Triples file.
+	 * @throws IOException in case of I/O failure.
+	 */
+	private File ntriples(final int howMany) throws IOException {
+		final File file = File.createTempFile("cumulus", ".nt");
+		file.deleteOnExit();
+
+		final BufferedWriter writer = new BufferedWriter(new FileWriter(file));
+		try {
+			for (int i = 0; i < howMany; i++) {
+				writer.write("<http://cumulus.test/s" + i + "> <http://cumulus.test/p" + (i % 7) + "> _:shared .\n");
+			}
+		} finally {
+			writer.close();
+		}
+		return file;
+	}
+}
@@ -11,6 +11,8 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
+import java.util.EventObject;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.After;
 import org.junit.Before;
@@ -23,6 +25,8 @@ import org.openrdf.model.vocabulary.RDFS;
 import org.openrdf.rio.RDFFormat;
 
 import edu.kit.aifb.cumulus.AbstractCumulusTest;
+import edu.kit.aifb.cumulus.framework.events.ITriplesChangesListener;
+import edu.kit.aifb.cumulus.store.events.AddTripleEvent;
 
 /**
  * Test case for triple deletion.
@@ -210,6 +214,39 @@ public class RemoveTest extends AbstractCumulusTest {
 		assertEquals(1, numOfRes(_tripleStore.query(new Value[] { null, RDF.TYPE, buildResource("http://gridpedia.org/id/TestType") })));
 	}
 
+	/**
+	 * Listeners must be notified only of triples that weren't in the store.
+	 * 
+	 * @throws Exception never, otherwise the tests fail.	 
+	 */
+	@Test
+	public void testAddExistingData() throws Exception {
+		final AtomicInteger added = new AtomicInteger();
+		final ITriplesChangesListener listener = new ITriplesChangesListener() {
+			@Override
+			public void update(final EventObject event) {
+				if (event instanceof AddTripleEvent) {
+					added.addAndGet(((AddTripleEvent) event).numOfChanges());
+				}
+			}
+		};
+
+		_tripleStore._changeListeners.add(listener);
+		try {
+			_tripleStore.addData(_tripleStore.query(_query_pattern_results));
+			assertEquals(0, added.get());
+
+			_tripleStore.addData(parseNX(
+					"<http://izeus1.scc.kit.edu/id/i1> <http://www.w3.org/1999/02/22-rdf-syntax-ns#type> <http://gridpedia.org/id/TestType> . \n"
+					+ "<http://izeus1.scc.kit.edu/id/i1> <http://www.w3.org/1999/02/22-rdf-syntax-ns#type> <http://gridpedia.org/id/TestType> . ")
+					.iterator());
+			assertEquals(1, added.get());
+			assertEquals(_howManyTriplesInDataset + 1, numOfRes(_tripleStore.query(SELECT_ALL_TRIPLES_PATTERN)));
+		} finally {
+			_tripleStore._changeListeners.remove(listener);
+		}
+	}
+
 	/**
 	 * If a valid triple pattern is removed then all matching triples will be removed.
 	 * 
@@ -0,0 +1,271 @@
+package edu.kit.aifb.cumulus.store.dict.impl.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.googlecode.concurrentlinkedhashmap.EntryWeigher;
+import com.googlecode.concurrentlinkedhashmap.EvictionListener;
+
+/**
+ * Test case for {@link TinyLfuCache}.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+public class TinyLfuCacheTest {
+
+	static final Charset UTF8 = Charset.forName("UTF-8");
+
+	static final EntryWeigher<Integer, String> LENGTH_WEIGHER = new EntryWeigher<Integer, String>() {
+		@Override
+		public int weightOf(final Integer key, final String value) {
+			return value.length();
+		}
+	};
+
+	static final Marshaller<String> STRING_MARSHALLER = new Marshaller<String>() {
+		@Override
+		public byte[] marshal(final String value) {
+			return value.getBytes(UTF8);
+		}
+
+		@Override
+		public String unmarshal(final byte[] data) {
+			return new String(data, UTF8);
+		}
+	};
+
+	/**
+	 * A cache bounded by entries count must never hold more entries than its capacity.
+	 * Each eviction must be notified to the listener.
+	 */
+	@Test
+	public void boundedByCount() {
+		final AtomicInteger evictions = new AtomicInteger();
+		final TinyLfuCache<Integer, String> cache = new TinyLfuCache.Builder<Integer, String>()
+				.maximumWeight(100)
+				.listener(new EvictionListener<Integer, String>() {
+					@Override
+					public void onEviction(final Integer key, final String value) {
+						assertEquals(String.valueOf(key), value);
+						evictions.incrementAndGet();
+					}
+				})
+				.build();
+
+		for (int i = 0; i < 1000; i++) {
+			cache.put(i, String.valueOf(i));
+			assertEquals(String.valueOf(i), cache.get(i));
+			assertTrue(cache.size() <= 100);
+		}
+
+		assertEquals(100, cache.size());
+		assertEquals(900, evictions.get());
+	}
+
+	/**
+	 * A scan over entries that are used once must not evict frequently used entries.
+	 */
+	@Test
+	public void scanResistance() {
+		final TinyLfuCache<Integer, String> cache = new TinyLfuCache.Builder<Integer, String>().maximumWeight(1000).build();
+
+		final int hotSetSize = 500;
+		for (int round = 0; round < 10; round++) {
+			for (int i = 0; i < hotSetSize; i++) {
+				if (cache.get(i) == null) {
+					cache.put(i, String.valueOf(i));
+				}
+			}
+		}
+
+		for (int i = hotSetSize; i < 100000; i++) {
+			cache.put(i, String.valueOf(i));
+		}
+
+		int retained = 0;
+		for (int i = 0; i < hotSetSize; i++) {
+			if (cache.containsKey(i)) {
+				retained++;
+			}
+		}
+		assertTrue("Only " + retained + " hot entries survived the scan.", retained >= hotSetSize * 0.9);
+	}
+
+	/**
+	 * A cache bounded by weight must never exceed its maximum weight.
+	 * Entries heavier than the whole cache must not be cached at all.
+	 */
+	@Test
+	public void boundedByWeight() {
+		final TinyLfuCache<Integer, String> cache = new TinyLfuCache.Builder<Integer, String>()
+				.maximumWeight(1000)
+				.weigher(LENGTH_WEIGHER)
+				.build();
+
+		for (int i = 0; i < 1000; i++) {
+			cache.put(i, value(i % 50 + 1));
+			assertTrue(cache.weightedSize() <= cache.capacity());
+		}
+
+		cache.put(-1, value(1001));
+		assertNull(cache.get(-1));
+		assertTrue(cache.weightedSize() <= cache.capacity());
+
+		cache.clear();
+		assertEquals(0, cache.weightedSize());
+		assertTrue(cache.isEmpty());
+	}
+
+	/**
+	 * Off-heap values must be read back unchanged, also after updates and removals.
+	 */
+	@Test
+	public void offHeap() {
+		final TinyLfuCache<Integer, String> cache = new TinyLfuCache.Builder<Integer, String>()
+				.maximumWeight(1000000)
+				.weigher(LENGTH_WEIGHER)
+				.offHeap(STRING_MARSHALLER)
+				.build();
+		assertTrue(cache.isOffHeap());
+
+		for (int i = 0; i < 1000; i++) {
+			cache.put(i, value(i % 100 + 1));
+		}
+
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(value(i % 100 + 1), cache.get(i));
+		}
+
+		assertEquals(value(4), cache.put(3, "updated"));
+		assertEquals("updated", cache.get(3));
+		assertFalse(cache.remove(3, "something else"));
+		assertTrue(cache.remove(3, "updated"));
+		assertNull(cache.get(3));
+
+		assertEquals(value(5), cache.putIfAbsent(4, "ignored"));
+		assertEquals(value(5), cache.remove(4));
+		assertFalse(cache.containsKey(4));
+
+		// A value that doesn't fit in a slab is kept on heap
+		final String big = value(OffHeapArena.MAX_SLOT_SIZE + 1);
+		cache.put(-1, big);
+		assertEquals(big, cache.get(-1));
+	}
+
+	/**
+	 * Concurrent writers must never see a value of another key and, once they are done, all buffered writes must have
+	 * been applied: the cache must fit its capacity and its weight must be the weight of its entries.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void concurrentWrites() throws Exception {
+		final TinyLfuCache<Integer, String> cache = new TinyLfuCache.Builder<Integer, String>()
+				.maximumWeight(5000)
+				.weigher(LENGTH_WEIGHER)
+				.offHeap(STRING_MARSHALLER)
+				.build();
+
+		final int threads = 8;
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		final List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+		for (int t = 0; t < threads; t++) {
+			final int seed = t;
+			results.add(executor.submit(new Callable<Integer>() {
+				@Override
+				public Integer call() {
+					final Random random = new Random(seed);
+					int mismatches = 0;
+					for (int i = 0; i < 50000; i++) {
+						final int key = random.nextInt(2000);
+						switch (random.nextInt(4)) {
+						case 0:
+							cache.put(key, value(key % 50 + 1));
+							break;
+						case 1:
+							cache.putIfAbsent(key, value(key % 50 + 1));
+							break;
+						case 2:
+							cache.remove(key);
+							break;
+						default:
+							final String value = cache.get(key);
+							if (value != null && !value.equals(value(key % 50 + 1))) {
+								mismatches++;
+							}
+						}
+					}
+					return mismatches;
+				}
+			}));
+		}
+
+		for (final Future<Integer> result : results) {
+			assertEquals(Integer.valueOf(0), result.get(1, TimeUnit.MINUTES));
+		}
+		executor.shutdown();
+
+		long weight = 0;
+		for (final Map.Entry<Integer, String> entry : cache.entrySet()) {
+			assertEquals(value(entry.getKey() % 50 + 1), entry.getValue());
+			weight += entry.getValue().length();
+		}
+		assertEquals(weight, cache.weightedSize());
+		assertTrue(cache.weightedSize() <= cache.capacity());
+	}
+
+	/**
+	 * The frequency sketch must count occurrences and halve its counters once the sample size has been reached.
+	 */
+	@Test
+	public void frequencySketch() {
+		final FrequencySketch sketch = new FrequencySketch();
+		sketch.ensureCapacity(64);
+
+		for (int i = 0; i < 5; i++) {
+			sketch.increment(42);
+		}
+		assertEquals(5, sketch.frequency(42));
+
+		for (int i = 0; i < 100; i++) {
+			sketch.increment(42);
+		}
+		assertEquals(FrequencySketch.MAX_FREQUENCY, sketch.frequency(42));
+
+		for (int i = 0; i < 640; i++) {
+			sketch.increment(1000 + i);
+		}
+		assertTrue(sketch.frequency(42) < FrequencySketch.MAX_FREQUENCY);
+	}
+
+	/**
+	 * Builds a string with the given length.
+	 *
+	 * @param length the string length.
+	 * @return a string with the given length.
+	 */
+	private String value(final int length) {
+		final StringBuilder builder = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			builder.append((char) ('a' + i % 26));
+		}
+		return builder.toString();
+	}
+}
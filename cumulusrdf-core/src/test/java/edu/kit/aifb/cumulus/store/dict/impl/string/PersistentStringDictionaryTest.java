@@ -6,16 +6,31 @@ import static edu.kit.aifb.cumulus.TestUtils.randomString;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import org.junit.Before;
 import org.junit.Test;
 
 import edu.kit.aifb.cumulus.framework.domain.dictionary.IDictionary;
 import edu.kit.aifb.cumulus.store.BIndex;
+import edu.kit.aifb.cumulus.store.InMemoryBIndex;
 
 /**
  * Test case for {@link PersistentStringDictionary}.
@@ -83,7 +98,7 @@ public class PersistentStringDictionaryTest {
 		byte[] result = _cut.getID(aValue, RANDOMIZER.nextBoolean());
 		assertEquals(PersistentStringDictionary.ID_LENGTH, result.length);
 
-		verify(_dummyIndex).get(aValue);
+		verify(_dummyIndex, times(2)).get(aValue);
 		verify(_dummyIndex).putQuick(aValue, result);
 	}
 
@@ -158,4 +173,66 @@ public class PersistentStringDictionaryTest {
 
 		verify(_dummyIndex).remove(aValue);
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Concurrent requests for the same new values must get the same identifiers 
+	 * and each value must be stored once.
+	 * 
+	 * @throws Exception never otherwise the test fails.
+	 */
+	@Test
+	public void concurrentIdAssignment() throws Exception {
+		final InMemoryBIndex index = new InMemoryBIndex(randomString(), 0);
+		final PersistentStringDictionary dictionary = new PersistentStringDictionary(randomString(), randomString()) {
+			@Override
+			protected BIndex createIndex() {
+				return index;
+			}
+		};
+		dictionary.initialise(T_DATA_ACCESS_LAYER_FACTORY);
+
+		final List<String> values = new ArrayList<String>();
+		for (int i = 0; i < 200; i++) {
+			values.add(i + randomString());
+		}
+
+		final int workers = Runtime.getRuntime().availableProcessors() + 2;
+		final ExecutorService executor = Executors.newFixedThreadPool(workers);
+		try {
+			final List<Future<byte[][]>> results = new ArrayList<Future<byte[][]>>();
+			for (int i = 0; i < workers; i++) {
+				final List<String> shuffled = new ArrayList<String>(values);
+				Collections.shuffle(shuffled, RANDOMIZER);
+				final boolean bulk = i % 2 == 0;
+				results.add(executor.submit(new Callable<byte[][]>() {
+					@Override
+					public byte[][] call() throws Exception {
+						final byte[][] ids = new byte[values.size()][];
+						final byte[][] shuffledIds = bulk ? dictionary.getIDs(shuffled, false) : null;
+						for (int j = 0; j < shuffled.size(); j++) {
+							ids[values.indexOf(shuffled.get(j))] = bulk 
+									? shuffledIds[j] 
+									: dictionary.getID(shuffled.get(j), false);
+						}
+						return ids;
+					}
+				}));
+			}
+
+			final byte[][] expected = results.get(0).get();
+			final Set<ByteBuffer> distinct = new HashSet<ByteBuffer>();
+			for (final byte[] id : expected) {
+				distinct.add(ByteBuffer.wrap(id));
+			}
+
+			for (final Future<byte[][]> result : results) {
+				assertTrue(Arrays.deepEquals(expected, result.get()));
+			}
+
+			assertEquals(values.size(), distinct.size());
+			assertEquals(values.size(), index.writes());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
@@ -14,6 +14,8 @@ import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Date;
 
 import org.junit.Before;
@@ -135,6 +137,55 @@ public class CacheValueDictionaryTest {
 		verify(_decoratee).getID(_aValue, false);
 	}
 
+	/**
+	 * Bulk ID lookups must involve the decoratee only for values that are not in cache.
+	 * 
+	 * @throws Exception never otherwise the test fails.
+	 */
+	@Test
+	public void getIDs() throws Exception {
+		final Value anotherValue = VALUE_FACTORY.createLiteral(randomString());
+		final byte[] anotherId = { 2, 3, 4, 5, 6, 7, 8, 9 };
+
+		when(_decoratee.getID(_aValue, false)).thenReturn(_id);
+		when(_decoratee.getIDs(Arrays.asList(anotherValue), false)).thenReturn(new byte[][] { anotherId });
+
+		_cut.getID(_aValue, false);
+
+		final byte[][] ids = _cut.getIDs(Arrays.asList(_aValue, anotherValue), false);
+
+		assertArrayEquals(_id, ids[0]);
+		assertArrayEquals(anotherId, ids[1]);
+		assertEquals(anotherId, _cut._node2id_cache.get(anotherValue));
+
+		verify(_decoratee).getID(_aValue, false);
+		verify(_decoratee).getIDs(Arrays.asList(anotherValue), false);
+	}
+
+	/**
+	 * Bulk value lookups must involve the decoratee only for identifiers that are not in cache.
+	 * 
+	 * @throws Exception never otherwise the test fails.
+	 */
+	@Test
+	public void getValues() throws Exception {
+		final Value anotherValue = VALUE_FACTORY.createLiteral(randomString());
+		final byte[] anotherId = { 2, 3, 4, 5, 6, 7, 8, 9 };
+
+		when(_decoratee.getValue(_id, false)).thenReturn(_aValue);
+		when(_decoratee.getValues(Arrays.asList(anotherId), false)).thenReturn(Arrays.asList(anotherValue));
+
+		_cut.getValue(_id, false);
+
+		final List<Value> values = _cut.getValues(Arrays.asList(_id, anotherId), false);
+
+		assertEquals(Arrays.asList(_aValue, anotherValue), values);
+		assertEquals(anotherValue, _cut._id2node_cache.get(ByteBuffer.wrap(anotherId)));
+
+		verify(_decoratee).getValue(_id, false);
+		verify(_decoratee).getValues(Arrays.asList(anotherId), false);
+	}
+
 	/**
 	 * Tests ID creation and caching.
 	 * 
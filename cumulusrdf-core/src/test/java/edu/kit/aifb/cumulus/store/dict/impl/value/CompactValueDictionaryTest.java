@@ -0,0 +1,249 @@
+package edu.kit.aifb.cumulus.store.dict.impl.value;
+
+import static edu.kit.aifb.cumulus.TestUtils.RANDOMIZER;
+import static edu.kit.aifb.cumulus.TestUtils.T_DATA_ACCESS_LAYER_FACTORY;
+import static edu.kit.aifb.cumulus.TestUtils.VALUE_FACTORY;
+import static edu.kit.aifb.cumulus.TestUtils.randomString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openrdf.model.Value;
+import org.openrdf.model.vocabulary.XMLSchema;
+
+import edu.kit.aifb.cumulus.framework.domain.dictionary.IDictionary;
+import edu.kit.aifb.cumulus.store.BIndex;
+import edu.kit.aifb.cumulus.store.InMemoryBIndex;
+
+/**
+ * Test case for {@link CompactValueDictionary}.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+public class CompactValueDictionaryTest {
+
+	private InMemoryBIndex _index;
+	private CompactValueDictionary _cut;
+
+	/**
+	 * Setup fixture for this test case.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Before
+	public void setUp() throws Exception {
+		_index = new InMemoryBIndex(randomString(), 0);
+		_cut = newDictionary(_index);
+	}
+
+	/**
+	 * Small numbers, booleans and dates must be inlined in their identifier, without hitting the index.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void inlineValues() throws Exception {
+		final List<Value> values = Arrays.<Value> asList(
+				VALUE_FACTORY.createLiteral("0", XMLSchema.INTEGER),
+				VALUE_FACTORY.createLiteral("-42", XMLSchema.INTEGER),
+				VALUE_FACTORY.createLiteral(String.valueOf(CompactValueDictionary.MAX_INLINE_VALUE), XMLSchema.LONG),
+				VALUE_FACTORY.createLiteral(String.valueOf(CompactValueDictionary.MIN_INLINE_VALUE), XMLSchema.LONG),
+				VALUE_FACTORY.createLiteral("2147483647", XMLSchema.INT),
+				VALUE_FACTORY.createLiteral("-1", XMLSchema.SHORT),
+				VALUE_FACTORY.createLiteral("127", XMLSchema.BYTE),
+				VALUE_FACTORY.createLiteral("true", XMLSchema.BOOLEAN),
+				VALUE_FACTORY.createLiteral("false", XMLSchema.BOOLEAN),
+				VALUE_FACTORY.createLiteral("2014-03-01T10:15:30Z", XMLSchema.DATETIME),
+				VALUE_FACTORY.createLiteral("1969-12-31T23:59:59.999Z", XMLSchema.DATETIME));
+
+		final byte[][] ids = _cut.getIDs(values, false);
+		for (int i = 0; i < ids.length; i++) {
+			final byte[] id = ids[i];
+			assertEquals(CompactValueDictionary.ID_LENGTH, id.length);
+			assertTrue(CompactValueDictionary.isInline(id));
+			assertTrue(_cut.isLiteral(id));
+			assertFalse(_cut.isResource(id));
+			assertFalse(_cut.isBNode(id));
+			assertEquals(ByteBuffer.wrap(id), ByteBuffer.wrap(_cut.getID(values.get(i), false)));
+			assertEquals(values.get(i), _cut.getValue(id, false));
+		}
+
+		assertEquals(0, _index.size());
+	}
+
+	/**
+	 * Values whose lexical form is not canonical (or that don't fit in the identifier) must not be inlined,
+	 * otherwise decoding wouldn't give back the same literal.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void nonCanonicalValuesAreNotInlined() throws Exception {
+		final List<Value> values = Arrays.<Value> asList(
+				VALUE_FACTORY.createLiteral("007", XMLSchema.INTEGER),
+				VALUE_FACTORY.createLiteral("+1", XMLSchema.INTEGER),
+				VALUE_FACTORY.createLiteral("1.0", XMLSchema.INTEGER),
+				VALUE_FACTORY.createLiteral(String.valueOf(CompactValueDictionary.MAX_INLINE_VALUE + 1), XMLSchema.LONG),
+				VALUE_FACTORY.createLiteral("99999999999999999999", XMLSchema.INTEGER),
+				VALUE_FACTORY.createLiteral("TRUE", XMLSchema.BOOLEAN),
+				VALUE_FACTORY.createLiteral("2014-03-01T10:15:30+01:00", XMLSchema.DATETIME),
+				VALUE_FACTORY.createLiteral("2014-03-01T10:15:30.000Z", XMLSchema.DATETIME),
+				VALUE_FACTORY.createLiteral("12", XMLSchema.DECIMAL),
+				VALUE_FACTORY.createLiteral("12"));
+
+		for (final Value value : values) {
+			assertNull(value.toString(), CompactValueDictionary.inlineId(value));
+
+			final byte[] id = _cut.getID(value, false);
+			assertEquals(CompactValueDictionary.ID_LENGTH, id.length);
+			assertEquals(IDictionary.LITERAL_BYTE_FLAG, id[0]);
+			assertEquals(value, _cut.getValue(id, false));
+		}
+
+		assertEquals(values.size(), _index.size());
+	}
+
+	/**
+	 * Inline identifiers of the same datatype must sort (as unsigned bytes) like the values they hold.
+	 */
+	@Test
+	public void inlineIdsAreOrderPreserving() {
+		final long[] values = {CompactValueDictionary.MIN_INLINE_VALUE, -256, -1, 0, 1, 255, 256, CompactValueDictionary.MAX_INLINE_VALUE};
+		for (int i = 1; i < values.length; i++) {
+			final byte[] previous = CompactValueDictionary.inlineId(VALUE_FACTORY.createLiteral(String.valueOf(values[i - 1]), XMLSchema.LONG));
+			final byte[] current = CompactValueDictionary.inlineId(VALUE_FACTORY.createLiteral(String.valueOf(values[i]), XMLSchema.LONG));
+			assertTrue(values[i - 1] + " vs " + values[i], compare(previous, current) < 0);
+		}
+	}
+
+	/**
+	 * All other values must get distinct, fixed-width identifiers.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void hashedValues() throws Exception {
+		final Set<ByteBuffer> ids = new HashSet<ByteBuffer>();
+		for (int i = 0; i < 1000; i++) {
+			final Value[] values = {
+				VALUE_FACTORY.createURI("http://cumulus.test/" + i + "/" + randomString()),
+				VALUE_FACTORY.createBNode(randomString()),
+				VALUE_FACTORY.createLiteral(randomString(), "en")};
+
+			for (final Value value : values) {
+				final byte[] id = _cut.getID(value, false);
+				assertEquals(CompactValueDictionary.ID_LENGTH, id.length);
+				assertTrue(ids.add(ByteBuffer.wrap(id)));
+				assertEquals(value, _cut.getValue(id, false));
+			}
+		}
+	}
+
+	/**
+	 * A collision on the (7 bytes) hash must be resolved by probing.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void hashCollision() throws Exception {
+		final Value value = VALUE_FACTORY.createURI("http://cumulus.test/" + randomString());
+		final byte[] id = newDictionary(new InMemoryBIndex(randomString(), 0)).getID(value, false);
+
+		_index.putQuick("<http://cumulus.test/squatter>", id);
+
+		final byte[] probed = _cut.getID(value, false);
+		assertEquals(CompactValueDictionary.ID_LENGTH, probed.length);
+		assertEquals(IDictionary.RESOURCE_BYTE_FLAG, probed[0]);
+		assertFalse(ByteBuffer.wrap(id).equals(ByteBuffer.wrap(probed)));
+		assertEquals(value, _cut.getValue(probed, false));
+	}
+
+	/**
+	 * Inline and hashed values of a batch must be returned in the order of their identifiers, 
+	 * with hashed values looked up in one round trip.
+	 * Null and unknown identifiers must be associated with a null value.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void getValues() throws Exception {
+		final List<Value> values = Arrays.<Value> asList(
+				VALUE_FACTORY.createLiteral("12", XMLSchema.INTEGER),
+				VALUE_FACTORY.createURI("http://cumulus.test/" + randomString()),
+				VALUE_FACTORY.createLiteral("true", XMLSchema.BOOLEAN),
+				VALUE_FACTORY.createBNode(randomString()),
+				VALUE_FACTORY.createLiteral(randomString(), "en"));
+		final byte[][] ids = _cut.getIDs(values, false);
+
+		final byte[] unknown = new byte[CompactValueDictionary.ID_LENGTH];
+		RANDOMIZER.nextBytes(unknown);
+		unknown[0] = IDictionary.RESOURCE_BYTE_FLAG;
+
+		final int reads = _index.reads();
+		final List<Value> decoded = _cut.getValues(Arrays.asList(ids[4], null, ids[0], unknown, ids[1], ids[2], ids[3]), false);
+
+		assertEquals(Arrays.asList(values.get(4), null, values.get(0), null, values.get(1), values.get(2), values.get(3)), decoded);
+		assertEquals(reads + 1, _index.reads());
+	}
+
+	/**
+	 * Compound identifiers must be decomposed in fixed-width identifiers.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void decompose() throws Exception {
+		final byte[] s = _cut.getID(VALUE_FACTORY.createURI("http://cumulus.test/s"), false);
+		final byte[] o = _cut.getID(VALUE_FACTORY.createLiteral("12", XMLSchema.INTEGER), false);
+
+		final byte[][] ids = _cut.decompose(_cut.compose(s, o));
+		assertEquals(2, ids.length);
+		assertEquals(ByteBuffer.wrap(s), ByteBuffer.wrap(ids[0]));
+		assertEquals(ByteBuffer.wrap(o), ByteBuffer.wrap(ids[1]));
+	}
+
+	/**
+	 * Compares two identifiers as unsigned byte sequences.
+	 *
+	 * @param first the first identifier.
+	 * @param second the second identifier.
+	 * @return a negative value, zero or a positive value if the first identifier is lower, equal or greater than the second.
+	 */
+	private int compare(final byte[] first, final byte[] second) {
+		for (int i = 0; i < Math.min(first.length, second.length); i++) {
+			final int diff = (first[i] & 0xFF) - (second[i] & 0xFF);
+			if (diff != 0) {
+				return diff;
+			}
+		}
+		return first.length - second.length;
+	}
+
+	/**
+	 * Creates a dictionary backed by the given index.
+	 *
+	 * @param index the index used for both subjects / objects and predicates.
+	 * @return a new (initialised) dictionary.
+	 * @throws Exception in case of initialisation failure.
+	 */
+	private CompactValueDictionary newDictionary(final BIndex index) throws Exception {
+		final CompactValueDictionary dictionary = new CompactValueDictionary(randomString()) {
+			@Override
+			protected BIndex createIndex(final String name) {
+				return index;
+			}
+		};
+		dictionary.initialise(T_DATA_ACCESS_LAYER_FACTORY);
+		return dictionary;
+	}
+}
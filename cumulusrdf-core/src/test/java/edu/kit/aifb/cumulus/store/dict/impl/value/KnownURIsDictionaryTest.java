@@ -22,6 +22,10 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.openrdf.model.URI;
@@ -34,7 +38,9 @@ import org.openrdf.rio.ntriples.NTriplesUtil;
 
 import edu.kit.aifb.cumulus.framework.domain.dictionary.IDictionary;
 import edu.kit.aifb.cumulus.framework.domain.dictionary.ITopLevelDictionary;
+import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerException;
 import edu.kit.aifb.cumulus.store.BIndex;
+import edu.kit.aifb.cumulus.store.InMemoryBIndex;
 
 /**
  * Test case for {@link KnownURIsDictionary}.
@@ -566,4 +572,56 @@ public class KnownURIsDictionaryTest {
 			// Nothing, this is the expected behaviour
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Known URIs of a batch of identifiers must be loaded in one lookup, the other identifiers must be delegated (in order) to the decoratee.
+	 * Values must be returned in the same order of the identifiers, null and unknown identifiers must be decoded as null.
+	 * 
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void getValues() throws Exception {
+		final List<List<byte[]>> decorateeLookups = new ArrayList<List<byte[]>>();
+		final InMemoryBIndex index = new InMemoryBIndex(randomString(), 0);
+		final KnownURIsDictionary dictionary = new KnownURIsDictionary(randomString(), new PersistentValueDictionary(randomString()) {
+			@Override
+			protected BIndex createIndex(final String name) {
+				return new InMemoryBIndex(name, 0);
+			}
+			
+			@Override
+			protected List<Value> getValuesInternal(final List<byte[]> ids, final boolean p) throws DataAccessLayerException {
+				decorateeLookups.add(new ArrayList<byte[]>(ids));
+				return super.getValuesInternal(ids, p);
+			}
+		}) {
+			@Override
+			protected BIndex createIndex() {
+				return index;
+			}
+		};
+		dictionary.initialise(T_DATA_ACCESS_LAYER_FACTORY);
+
+		final List<Value> values = Arrays.asList(
+				FOAF.PERSON, 
+				_firstMember, 
+				VALUE_FACTORY.createLiteral(randomString()), 
+				VALUE_FACTORY.createBNode(randomString()),
+				RDFS.LABEL);
+		final byte[][] ids = dictionary.getIDs(values, false);
+		assertEquals(KnownURIsDictionary.KNOWN_URI_MARKER, ids[0][0]);
+		assertEquals(KnownURIsDictionary.KNOWN_URI_MARKER, ids[4][0]);
+
+		final byte[] unknown = new byte[KnownURIsDictionary.ID_LENGTH];
+		RANDOMIZER.nextBytes(unknown);
+		unknown[0] = KnownURIsDictionary.KNOWN_URI_MARKER;
+
+		final int reads = index.reads();
+		final List<Value> decoded = dictionary.getValues(Arrays.asList(ids[2], ids[0], null, unknown, ids[1], ids[4], ids[3]), false);
+
+		assertEquals(Arrays.asList(values.get(2), values.get(0), null, null, values.get(1), values.get(4), values.get(3)), decoded);
+		assertEquals(reads + 1, index.reads());
+		assertEquals(1, decorateeLookups.size());
+		assertTrue(Arrays.deepEquals(new byte[][] {ids[2], null, ids[1], ids[3] }, decorateeLookups.get(0).toArray()));
+	}
+}
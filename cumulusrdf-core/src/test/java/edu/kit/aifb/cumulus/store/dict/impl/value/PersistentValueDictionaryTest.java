@@ -1,14 +1,38 @@
 package edu.kit.aifb.cumulus.store.dict.impl.value;
 
 import static edu.kit.aifb.cumulus.TestUtils.RANDOMIZER;
+import static edu.kit.aifb.cumulus.TestUtils.T_DATA_ACCESS_LAYER_FACTORY;
+import static edu.kit.aifb.cumulus.TestUtils.VALUE_FACTORY;
 import static edu.kit.aifb.cumulus.TestUtils.randomString;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.Before;
 import org.junit.Test;
+import org.openrdf.model.Value;
+import org.openrdf.rio.ntriples.NTriplesUtil;
 
 import edu.kit.aifb.cumulus.framework.domain.dictionary.IDictionary;
+import edu.kit.aifb.cumulus.store.BIndex;
+import edu.kit.aifb.cumulus.store.InMemoryBIndex;
+import edu.kit.aifb.cumulus.store.TripleStore;
 
 /**
  * Test case for {@link PersistentValueDictionary}.
@@ -18,6 +42,9 @@ import edu.kit.aifb.cumulus.framework.domain.dictionary.IDictionary;
  */
 public class PersistentValueDictionaryTest {
 
+	private static final long TIMEOUT = 10;
+	private static final int HOW_MANY_VALUES = 400;
+
 	private PersistentValueDictionary _cut;
 
 	/**
@@ -93,4 +120,233 @@ public class PersistentValueDictionaryTest {
 		id[0] = IDictionary.RESOURCE_BYTE_FLAG;
 		assertTrue(_cut.isResource(id));
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Concurrent loaders that meet the same new values must agree on their identifiers, 
+	 * each value must be stored once and distinct values must have distinct identifiers.
+	 * 
+	 * @throws Exception never otherwise the test fails.
+	 */
+	@Test
+	public void concurrentIdAssignment() throws Exception {
+		final InMemoryBIndex index = new InMemoryBIndex(randomString(), 0);
+		final PersistentValueDictionary dictionary = newDictionary(index);
+		final List<Value> values = values(HOW_MANY_VALUES);
+		final int workers = workers();
+
+		final ExecutorService executor = Executors.newFixedThreadPool(workers);
+		try {
+			final List<Future<byte[][]>> results = new ArrayList<Future<byte[][]>>();
+			for (int i = 0; i < workers; i++) {
+				final List<Value> shuffled = new ArrayList<Value>(values);
+				Collections.shuffle(shuffled, RANDOMIZER);
+				final boolean bulk = i % 2 == 0;
+				results.add(executor.submit(new Callable<byte[][]>() {
+					@Override
+					public byte[][] call() throws Exception {
+						final byte[][] ids = new byte[values.size()][];
+						if (bulk) {
+							final byte[][] shuffledIds = dictionary.getIDs(shuffled, false);
+							for (int j = 0; j < shuffledIds.length; j++) {
+								ids[values.indexOf(shuffled.get(j))] = shuffledIds[j];
+							}
+						} else {
+							for (final Value value : shuffled) {
+								ids[values.indexOf(value)] = dictionary.getID(value, false);
+							}
+						}
+						return ids;
+					}
+				}));
+			}
+
+			final byte[][] expected = results.get(0).get();
+			for (final Future<byte[][]> result : results) {
+				final byte[][] ids = result.get();
+				for (int i = 0; i < ids.length; i++) {
+					assertArrayEquals(expected[i], ids[i]);
+				}
+			}
+
+			final Set<ByteBuffer> distinct = new HashSet<ByteBuffer>();
+			for (final byte[] id : expected) {
+				distinct.add(ByteBuffer.wrap(id));
+			}
+
+			assertEquals(values.size(), distinct.size());
+			assertEquals(values.size(), index.size());
+			assertEquals(values.size(), index.writes());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Loaders working on values guarded by distinct stripes must not queue on a single monitor: 
+	 * two identifier assignments must be able to reach the index at the same time.
+	 * The index blocks each write until the other one arrives, so the test fails if writes are serialized.
+	 * 
+	 * @throws Exception never otherwise the test fails.
+	 */
+	@Test
+	public void distinctStripesAssignIdsConcurrently() throws Exception {
+		final CyclicBarrier bothWriting = new CyclicBarrier(2);
+		final PersistentValueDictionary dictionary = newDictionary(new InMemoryBIndex(randomString(), 0) {
+			@Override
+			public void putQuick(final String value, final byte[] id) {
+				try {
+					bothWriting.await(TIMEOUT, TimeUnit.SECONDS);
+				} catch (final Exception exception) {
+					throw new IllegalStateException("Identifier assignments have been serialized.", exception);
+				}
+				super.putQuick(value, id);
+			}
+		});
+
+		final Value first = VALUE_FACTORY.createURI("http://cumulus.test/" + randomString());
+		Value second;
+		do {
+			second = VALUE_FACTORY.createURI("http://cumulus.test/" + randomString());
+		} while (dictionary.stripe(NTriplesUtil.toNTriplesString(first)) == dictionary.stripe(NTriplesUtil.toNTriplesString(second)));
+
+		final ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			final List<Future<byte[]>> results = new ArrayList<Future<byte[]>>();
+			for (final Value value : new Value[] { first, second }) {
+				results.add(executor.submit(new Callable<byte[]>() {
+					@Override
+					public byte[] call() throws Exception {
+						return dictionary.getID(value, false);
+					}
+				}));
+			}
+
+			for (final Future<byte[]> result : results) {
+				assertNotNull(result.get(TIMEOUT * 2, TimeUnit.SECONDS));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * When collision resolution gives up, the returned identifier has not been reserved by the assigning thread:
+	 * the reservation of another thread on that identifier must survive the assignment.
+	 * 
+	 * @throws Exception never otherwise the test fails.
+	 */
+	@Test
+	public void unresolvedCollisionKeepsOtherReservations() throws Exception {
+		final Value value = VALUE_FACTORY.createURI("http://cumulus.test/" + randomString());
+		final byte[] givenUp = newDictionary(collidingIndex()).getID(value, false);
+
+		PersistentValueDictionary dictionary = newDictionary(collidingIndex());
+		final ByteBuffer reservation = ByteBuffer.wrap(givenUp);
+		dictionary.reservedIds(false).add(reservation);
+
+		assertArrayEquals(givenUp, dictionary.getID(value, false));
+		assertEquals(Collections.singleton(reservation), dictionary.reservedIds(false));
+
+		dictionary = newDictionary(collidingIndex());
+		dictionary.reservedIds(false).add(reservation);
+
+		assertArrayEquals(givenUp, dictionary.getIDs(Arrays.asList(value), false)[0]);
+		assertEquals(Collections.singleton(reservation), dictionary.reservedIds(false));
+	}
+
+	/**
+	 * Values of a batch must be returned in the order of their identifiers.
+	 * Null, empty and unknown identifiers must be associated with a null value.
+	 * 
+	 * @throws Exception never otherwise the test fails.
+	 */
+	@Test
+	public void getValues() throws Exception {
+		final PersistentValueDictionary dictionary = newDictionary(new InMemoryBIndex(randomString(), 0));
+		final Value uri = VALUE_FACTORY.createURI("http://cumulus.test/" + randomString());
+		final Value literal = VALUE_FACTORY.createLiteral(randomString());
+		final Value typedLiteral = VALUE_FACTORY.createLiteral(42);
+		final Value bnode = VALUE_FACTORY.createBNode(randomString());
+		final byte[][] ids = dictionary.getIDs(Arrays.asList(uri, literal, typedLiteral, bnode), false);
+
+		final byte[] unknown = new byte[PersistentValueDictionary.ID_LENGTH];
+		RANDOMIZER.nextBytes(unknown);
+		unknown[0] = IDictionary.LITERAL_BYTE_FLAG;
+
+		final List<Value> values = dictionary.getValues(
+				Arrays.asList(ids[3], null, ids[0], unknown, new byte[0], ids[1], ids[2], ids[0]), 
+				false);
+
+		assertEquals(Arrays.asList(bnode, null, uri, null, null, literal, typedLiteral, uri), values);
+		final int[] positions = {2, 5, 6, 0 };
+		for (int i = 0; i < ids.length; i++) {
+			assertEquals(dictionary.getValue(ids[i], false), values.get(positions[i]));
+		}
+	}
+
+	/**
+	 * Creates a dictionary backed by the given index.
+	 * 
+	 * @param index the index used for both subjects / objects and predicates.
+	 * @return a new (initialised) dictionary.
+	 * @throws Exception in case of initialisation failure.
+	 */
+	private PersistentValueDictionary newDictionary(final BIndex index) throws Exception {
+		final PersistentValueDictionary dictionary = new PersistentValueDictionary(randomString()) {
+			@Override
+			protected BIndex createIndex(final String name) {
+				return index;
+			}
+		};
+		dictionary.initialise(T_DATA_ACCESS_LAYER_FACTORY);
+		return dictionary;
+	}
+
+	/**
+	 * Creates an index where every candidate identifier collides with an existing one.
+	 * 
+	 * @return an index where every candidate identifier collides with an existing one.
+	 */
+	private BIndex collidingIndex() {
+		return new InMemoryBIndex(randomString(), 0) {
+			@Override
+			public boolean contains(final byte[] id) {
+				return true;
+			}
+
+			@Override
+			public boolean[] contains(final List<byte[]> ids) {
+				final boolean[] result = new boolean[ids.size()];
+				Arrays.fill(result, true);
+				return result;
+			}
+		};
+	}
+
+	/**
+	 * Creates a given number of distinct values.
+	 * 
+	 * @param howMany how many values will be created.
+	 * @return a list of distinct values.
+	 */
+	private List<Value> values(final int howMany) {
+		final List<Value> values = new ArrayList<Value>(howMany);
+		for (int i = 0; i < howMany; i++) {
+			values.add(VALUE_FACTORY.createURI("http://cumulus.test/" + i + "/" + randomString()));
+		}
+		return values;
+	}
+
+	/**
+	 * Returns the size of the loader pool used by the store.
+	 * 
+	 * @return the size of the loader pool used by the store.
+	 */
+	private int workers() {
+		return new TripleStore() {
+			int workers() {
+				return computeWorkersPoolSize();
+			}
+		}.workers();
+	}
+}
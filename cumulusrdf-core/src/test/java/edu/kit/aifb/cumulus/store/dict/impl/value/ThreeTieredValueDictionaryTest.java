@@ -4,6 +4,7 @@ import static edu.kit.aifb.cumulus.TestUtils.RANDOMIZER;
 import static edu.kit.aifb.cumulus.TestUtils.T_DATA_ACCESS_LAYER_FACTORY;
 import static edu.kit.aifb.cumulus.TestUtils.VALUE_FACTORY;
 import static edu.kit.aifb.cumulus.TestUtils.randomString;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -13,13 +14,21 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.openrdf.model.Value;
 
 import edu.kit.aifb.cumulus.framework.InitialisationException;
+import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerException;
 import edu.kit.aifb.cumulus.framework.domain.dictionary.IDictionary;
 import edu.kit.aifb.cumulus.framework.domain.dictionary.ITopLevelDictionary;
+import edu.kit.aifb.cumulus.store.BIndex;
+import edu.kit.aifb.cumulus.store.InMemoryBIndex;
+import edu.kit.aifb.cumulus.store.dict.impl.string.PersistentStringDictionary;
 
 /**
  * Test case for {@link ThreeTieredValueDictionary}.
@@ -227,4 +236,81 @@ public class ThreeTieredValueDictionaryTest {
 		verify(_localNamesDictionary, times(0)).removeValue(anyString(), eq(isPredicate));
 		verify(_bnodesAndLiteralsDictionary).removeValue(_aLiteral, isPredicate);
 	}
-}
\ No newline at end of file
+
+	/**
+	 * URIs of a batch of identifiers must be decoded with one lookup per distinct namespace, the other identifiers must be delegated (in order) 
+	 * to the bnodes and literals dictionary.
+	 * Values must be returned in the same order of the identifiers, null and unknown identifiers must be decoded as null.
+	 * 
+	 * @throws Exception never otherwise the test fails.
+	 */
+	@Test
+	public void getValues() throws Exception {
+		final List<List<byte[]>> namespacesLookups = new ArrayList<List<byte[]>>();
+		final List<List<byte[]>> bnodesAndLiteralsLookups = new ArrayList<List<byte[]>>();
+		_cut = new ThreeTieredValueDictionary(
+				randomString(), 
+				new PersistentStringDictionary(randomString(), randomString()) {
+					@Override
+					protected BIndex createIndex() {
+						return new InMemoryBIndex(randomString(), 0);
+					}
+					
+					@Override
+					protected List<String> getValuesInternal(final List<byte[]> ids, final boolean p) throws DataAccessLayerException {
+						namespacesLookups.add(new ArrayList<byte[]>(ids));
+						return super.getValuesInternal(ids, p);
+					}
+				}, 
+				new PersistentStringDictionary(randomString(), randomString()) {
+					@Override
+					protected BIndex createIndex() {
+						return new InMemoryBIndex(randomString(), 0);
+					}
+				}, 
+				new PersistentValueDictionary(randomString()) {
+					@Override
+					protected BIndex createIndex(final String name) {
+						return new InMemoryBIndex(name, 0);
+					}
+					
+					@Override
+					protected List<Value> getValuesInternal(final List<byte[]> ids, final boolean p) throws DataAccessLayerException {
+						bnodesAndLiteralsLookups.add(new ArrayList<byte[]>(ids));
+						return super.getValuesInternal(ids, p);
+					}
+				});
+		_cut.initialise(T_DATA_ACCESS_LAYER_FACTORY);
+		
+		final List<Value> values = Arrays.asList(
+				_aURI, 
+				_aLiteral, 
+				VALUE_FACTORY.createURI("http://pippo.pluto.paperino#second"), 
+				VALUE_FACTORY.createURI("http://cumulus.test/", randomString()), 
+				_aBNode, 
+				VALUE_FACTORY.createURI("http://pippo.pluto.paperino#third"));
+		final byte[][] ids = _cut.getIDs(values, false);
+		
+		final byte[] unknownURI = new byte[ids[0].length];
+		RANDOMIZER.nextBytes(unknownURI);
+		unknownURI[0] = ThreeTieredValueDictionary.MARKER;
+		
+		final byte[] unknownLiteral = new byte[PersistentValueDictionary.ID_LENGTH];
+		RANDOMIZER.nextBytes(unknownLiteral);
+		unknownLiteral[0] = IDictionary.LITERAL_BYTE_FLAG;
+		
+		final List<Value> decoded = _cut.getValues(
+				Arrays.asList(ids[4], ids[0], null, unknownURI, ids[3], ids[1], ids[2], unknownLiteral, ids[5]), 
+				false);
+		
+		assertEquals(
+				Arrays.asList(values.get(4), values.get(0), null, null, values.get(3), values.get(1), values.get(2), null, values.get(5)), 
+				decoded);
+		
+		assertEquals(1, namespacesLookups.size());
+		assertEquals(3, namespacesLookups.get(0).size());
+		
+		assertEquals(1, bnodesAndLiteralsLookups.size());
+		assertTrue(Arrays.deepEquals(new byte[][] {ids[4], null, ids[1], unknownLiteral }, bnodesAndLiteralsLookups.get(0).toArray()));
+	}
+}
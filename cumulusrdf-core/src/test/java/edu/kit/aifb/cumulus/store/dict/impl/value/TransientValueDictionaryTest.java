@@ -1,5 +1,6 @@
 package edu.kit.aifb.cumulus.store.dict.impl.value;
 
+import static edu.kit.aifb.cumulus.TestUtils.RANDOMIZER;
 import static edu.kit.aifb.cumulus.TestUtils.T_DATA_ACCESS_LAYER_FACTORY;
 import static edu.kit.aifb.cumulus.TestUtils.VALUE_FACTORY;
 import static edu.kit.aifb.cumulus.TestUtils.randomString;
@@ -18,6 +19,8 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
 
 import org.junit.Before;
@@ -31,6 +34,8 @@ import edu.kit.aifb.cumulus.framework.InitialisationException;
 import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerFactory;
 import edu.kit.aifb.cumulus.framework.domain.dictionary.IDictionary;
 import edu.kit.aifb.cumulus.framework.domain.dictionary.ITopLevelDictionary;
+import edu.kit.aifb.cumulus.store.BIndex;
+import edu.kit.aifb.cumulus.store.InMemoryBIndex;
 
 /**
  * Test case for {@link TransientValueDictionary}.
@@ -548,6 +553,48 @@ public class TransientValueDictionaryTest {
 		assertArrayEquals(expected, _cut.getID(value, false));
 	}
 	
+	/**
+	 * Values of a batch of identifiers must be returned in the same order, with long literals loaded in one lookup.
+	 * Null and unknown identifiers must be decoded as null.
+	 * 
+	 * @throws Exception never otherwise the test fails.
+	 */
+	@Test
+	public void getValues() throws Exception {
+		final InMemoryBIndex index = new InMemoryBIndex(randomString(), 0);
+		final TransientValueDictionary dictionary = new TransientValueDictionary(
+				randomString(), 
+				new PersistentValueDictionary(randomString()) {
+					@Override
+					protected BIndex createIndex(final String name) {
+						return index;
+					}
+				}, 
+				20);
+		dictionary.initialise(T_DATA_ACCESS_LAYER_FACTORY);
+		
+		final List<Value> values = Arrays.asList(
+				_firstMember, 
+				_fourthMember, 
+				VALUE_FACTORY.createLiteral("This literal is longer than the threshold " + randomString()), 
+				_fifthMember, 
+				VALUE_FACTORY.createLiteral("This literal is longer than the threshold too " + randomString()));
+		final byte[][] ids = dictionary.getIDs(values, false);
+		assertEquals(TransientValueDictionary.THRESHOLD_EXCEEDED, ids[2][0]);
+		assertEquals(TransientValueDictionary.THRESHOLD_EXCEEDED, ids[4][0]);
+		
+		final byte[] unknown = new byte[PersistentValueDictionary.ID_LENGTH + 1];
+		RANDOMIZER.nextBytes(unknown);
+		unknown[0] = TransientValueDictionary.THRESHOLD_EXCEEDED;
+		unknown[1] = ValueDictionaryBase.LITERAL_BYTE_FLAG;
+		
+		final int reads = index.reads();
+		final List<Value> decoded = dictionary.getValues(Arrays.asList(ids[4], null, ids[0], unknown, ids[1], ids[2], ids[3]), false);
+		
+		assertEquals(Arrays.asList(values.get(4), null, values.get(0), null, values.get(1), values.get(2), values.get(3)), decoded);
+		assertEquals(reads + 1, index.reads());
+	}
+	
 	/**
 	 * Internal method used for asserting a failure in case of invalid input arguments.
 	 * 
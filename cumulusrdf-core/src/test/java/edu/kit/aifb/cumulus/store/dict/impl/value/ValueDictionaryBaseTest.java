@@ -1,15 +1,23 @@
 package edu.kit.aifb.cumulus.store.dict.impl.value;
 
 import static edu.kit.aifb.cumulus.TestUtils.RANDOMIZER;
+import static edu.kit.aifb.cumulus.TestUtils.VALUE_FACTORY;
 import static edu.kit.aifb.cumulus.TestUtils.buildResource;
 import static edu.kit.aifb.cumulus.TestUtils.randomString;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertSame;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
+import org.openrdf.model.Resource;
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
 import org.openrdf.model.Value;
 
 import edu.kit.aifb.cumulus.framework.InitialisationException;
@@ -140,6 +148,34 @@ public class ValueDictionaryBaseTest {
 		verify(_cut).getID(c, false);
 	}
 	
+	/**
+	 * Bulk getIDs must resolve each distinct value just once, separating predicates from the other members.
+	 * 
+	 * @throws Exception never otherwise the test fails.
+	 */
+	@Test
+	public void getStatementsIDs() throws Exception {
+		final Value s = buildResource(randomString());
+		final Value p = buildResource(randomString());
+		final Value o = buildResource(randomString());
+		final Value c = buildResource(randomString());
+
+		final List<Statement> statements = Arrays.asList(
+				VALUE_FACTORY.createStatement((Resource) s, (URI) p, o),
+				VALUE_FACTORY.createStatement((Resource) o, (URI) p, s),
+				VALUE_FACTORY.createStatement((Resource) s, (URI) p, o, (Resource) c));
+
+		final List<byte[][]> ids = _cut.getIDs(statements);
+
+		assertEquals(statements.size(), ids.size());
+		assertEquals(3, ids.get(0).length);
+		assertEquals(3, ids.get(1).length);
+		assertEquals(4, ids.get(2).length);
+
+		verify(_cut).getIDs(Arrays.asList(s, o, c), false);
+		verify(_cut).getIDs(Arrays.asList(p), true);
+	}
+
 	/**
 	 * getValues must forward to the getValue concrete implementation.
 	 * 
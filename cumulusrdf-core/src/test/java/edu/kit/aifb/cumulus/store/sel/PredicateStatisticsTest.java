@@ -0,0 +1,119 @@
+package edu.kit.aifb.cumulus.store.sel;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test case for {@link PredicateStatistics}.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+public class PredicateStatisticsTest {
+
+	private static final int HOW_MANY_TRIPLES = 100000;
+	private static final int HOW_MANY_OBJECTS = 5000;
+
+	private PredicateStatistics _cut;
+
+	/**
+	 * Setup fixture for this test case.
+	 */
+	@Before
+	public void setUp() {
+		_cut = new PredicateStatistics();
+	}
+
+	/**
+	 * Distinct subjects and objects must be estimated within a few percent.
+	 */
+	@Test
+	public void distinctValues() {
+		for (int i = 0; i < HOW_MANY_TRIPLES; i++) {
+			_cut.add(id(i), id(HOW_MANY_TRIPLES + i % HOW_MANY_OBJECTS));
+		}
+
+		assertEquals(HOW_MANY_TRIPLES, _cut.count());
+		assertEquals(HOW_MANY_TRIPLES, _cut.distinctSubjects(), HOW_MANY_TRIPLES * 0.05);
+		assertEquals(HOW_MANY_OBJECTS, _cut.distinctObjects(), HOW_MANY_OBJECTS * 0.05);
+	}
+
+	/**
+	 * A frequent object must be detected, with its frequency.
+	 */
+	@Test
+	public void frequentObject() {
+		final byte[] frequent = id(-1);
+		for (int i = 0; i < 1000; i++) {
+			_cut.add(id(i), id(HOW_MANY_TRIPLES + i));
+			_cut.add(id(i), frequent);
+		}
+
+		assertTrue(_cut.frequency(frequent) >= 1000);
+		assertTrue(_cut.objectCardinality(frequent) > _cut.objectCardinality(id(HOW_MANY_TRIPLES * 2)));
+
+		_cut.remove(frequent);
+		assertEquals(1999, _cut.count());
+	}
+
+	/**
+	 * Deserialized statistics must be equal to the serialized ones.
+	 */
+	@Test
+	public void serialization() {
+		for (int i = 0; i < 1000; i++) {
+			_cut.add(id(i), id(i % 10));
+		}
+
+		final PredicateStatistics statistics = PredicateStatistics.deserialize(_cut.serialize(), _cut.count());
+
+		assertEquals(_cut.count(), statistics.count());
+		assertArrayEquals(_cut.subjects().registers(), statistics.subjects().registers());
+		assertArrayEquals(_cut.objects().registers(), statistics.objects().registers());
+		for (int i = 0; i < 10; i++) {
+			assertEquals(_cut.frequency(id(i)), statistics.frequency(id(i)));
+		}
+	}
+
+	/**
+	 * Merging must keep the union of distinct values and the highest frequencies, but not the count.
+	 */
+	@Test
+	public void merge() {
+		final byte[] frequent = id(-1);
+		final PredicateStatistics other = new PredicateStatistics();
+		for (int i = 0; i < 1000; i++) {
+			_cut.add(id(i), id(HOW_MANY_TRIPLES + i));
+			other.add(id(1000 + i), frequent);
+		}
+
+		_cut.merge(other);
+
+		assertEquals(1000, _cut.count());
+		assertEquals(2000, _cut.subjects().cardinality(), 2000 * 0.05);
+		assertEquals(1001, _cut.objects().cardinality(), 1001 * 0.05);
+		assertEquals(other.frequency(frequent), _cut.frequency(frequent));
+
+		// Merging twice must not change anything.
+		final byte[] registers = _cut.subjects().registers().clone();
+		_cut.merge(other);
+		assertArrayEquals(registers, _cut.subjects().registers());
+		assertEquals(other.frequency(frequent), _cut.frequency(frequent));
+	}
+
+	/**
+	 * Returns an 8 bytes identifier.
+	 *
+	 * @param value the identifier value.
+	 * @return the identifier.
+	 */
+	private byte[] id(final long value) {
+		return ByteBuffer.allocate(8).putLong(value).array();
+	}
+}
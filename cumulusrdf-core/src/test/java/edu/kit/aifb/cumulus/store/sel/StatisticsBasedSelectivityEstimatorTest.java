@@ -0,0 +1,363 @@
+package edu.kit.aifb.cumulus.store.sel;
+
+import static edu.kit.aifb.cumulus.TestUtils.VALUE_FACTORY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.query.algebra.StatementPattern;
+import org.openrdf.query.algebra.Var;
+
+import edu.kit.aifb.cumulus.framework.datasource.CounterDAO;
+import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerFactory;
+import edu.kit.aifb.cumulus.framework.datasource.MapDAO;
+import edu.kit.aifb.cumulus.framework.domain.dictionary.ITopLevelDictionary;
+import edu.kit.aifb.cumulus.store.CounterFactory;
+import edu.kit.aifb.cumulus.store.events.AddTripleEvent;
+import edu.kit.aifb.cumulus.store.events.FinishedChangesEvent;
+
+/**
+ * Test case for {@link StatisticsBasedSelectivityEstimator}.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+public class StatisticsBasedSelectivityEstimatorTest {
+
+	private static final String NS = "http://example.org/";
+	private static final long PREDICATE = 1;
+
+	private final URI _predicate = VALUE_FACTORY.createURI(NS + PREDICATE);
+
+	private DataAccessLayerFactory _factory;
+	private ITopLevelDictionary _dictionary;
+	private Map<String, Map<Object, Object>> _storage;
+	private CountDownLatch _writing;
+	private CountDownLatch _writeAllowed;
+
+	/**
+	 * Setup fixture for this test case.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Before
+	public void setUp() throws Exception {
+		_storage = new HashMap<String, Map<Object, Object>>();
+
+		_factory = mock(DataAccessLayerFactory.class);
+		when(_factory.getCounterDAO(any(Class.class), anyString())).thenAnswer(new Answer<CounterDAO<?>>() {
+			@Override
+			public CounterDAO<?> answer(final InvocationOnMock invocation) throws Throwable {
+				return counterDAO((String) invocation.getArguments()[1]);
+			}
+		});
+		when(_factory.getMapDAO(any(Class.class), any(Class.class), anyBoolean(), anyString())).thenAnswer(new Answer<MapDAO<?, ?>>() {
+			@Override
+			public MapDAO<?, ?> answer(final InvocationOnMock invocation) throws Throwable {
+				return mapDAO((String) invocation.getArguments()[3]);
+			}
+		});
+
+		_dictionary = mock(ITopLevelDictionary.class);
+		when(_dictionary.getID(any(Value.class), anyBoolean())).thenAnswer(new Answer<byte[]>() {
+			@Override
+			public byte[] answer(final InvocationOnMock invocation) {
+				return id(Long.parseLong(((Value) invocation.getArguments()[0]).stringValue().substring(NS.length())));
+			}
+		});
+
+		CounterFactory.getInstance().initialise(_factory);
+	}
+
+	/**
+	 * Cardinalities must be estimated from the added triples.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void cardinalities() throws Exception {
+		final StatisticsBasedSelectivityEstimator cut = estimator();
+		cut.update(new AddTripleEvent(this, triples(0, 100, 10)));
+
+		assertEquals(1000, cut.triplePatternCardinality(pattern(null, null)), 0);
+		assertEquals(10, cut.triplePatternCardinality(pattern(uri(1000), null)), 1);
+		assertEquals(1, cut.triplePatternCardinality(pattern(uri(1000), uri(1000000))), 0);
+	}
+
+	/**
+	 * Sketches written by several estimators sharing the same storage must be merged, not overwritten.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void sketchesAreMerged() throws Exception {
+		final StatisticsBasedSelectivityEstimator first = estimator();
+		final StatisticsBasedSelectivityEstimator second = estimator();
+
+		first.update(new AddTripleEvent(this, triples(1000, 100, 1)));
+		first.update(FinishedChangesEvent.newEvent(this));
+
+		second.update(new AddTripleEvent(this, triples(2000, 100, 1)));
+		second.update(FinishedChangesEvent.newEvent(this));
+
+		final StatisticsBasedSelectivityEstimator cut = estimator();
+
+		// 200 triples and 200 distinct subjects: one triple per subject.
+		assertEquals(200, cut.triplePatternCardinality(pattern(null, null)), 0);
+		assertEquals(1, cut.triplePatternCardinality(pattern(uri(1000), null)), 0.1);
+
+		// The second estimator must see the subjects of the first one too.
+		assertEquals(1, second.triplePatternCardinality(pattern(uri(1000), null)), 0.1);
+	}
+
+	/**
+	 * Estimations must not wait for statistics being written.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void flushDoesNotBlockEstimations() throws Exception {
+		final StatisticsBasedSelectivityEstimator cut = estimator();
+		cut.update(new AddTripleEvent(this, triples(0, 100, 1)));
+
+		_writing = new CountDownLatch(1);
+		_writeAllowed = new CountDownLatch(1);
+
+		final Thread flush = new Thread() {
+			@Override
+			public void run() {
+				cut.update(FinishedChangesEvent.newEvent(this));
+			}
+		};
+		flush.start();
+
+		try {
+			assertTrue(_writing.await(10, TimeUnit.SECONDS));
+			assertEquals(100, cut.triplePatternCardinality(pattern(null, null)), 0);
+			assertEquals(1, cut.getCardinality(pattern(uri(0), null)), 0.1);
+		} finally {
+			_writeAllowed.countDown();
+		}
+
+		flush.join(10000);
+		assertEquals(100L, _storage.get(StatisticsBasedSelectivityEstimator.COUNTS).get(ByteBuffer.wrap(id(PREDICATE))));
+	}
+
+	/**
+	 * Creates a new estimator on top of the fake storage.
+	 *
+	 * @return a new estimator.
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	private StatisticsBasedSelectivityEstimator estimator() throws Exception {
+		final StatisticsBasedSelectivityEstimator estimator = new StatisticsBasedSelectivityEstimator(CounterFactory.getInstance(), _dictionary);
+		estimator.initialise(_factory);
+		return estimator;
+	}
+
+	/**
+	 * Creates triples with the test predicate.
+	 *
+	 * @param firstSubject the identifier of the first subject.
+	 * @param subjects the number of subjects.
+	 * @param objectsPerSubject the number of (distinct) objects of each subject.
+	 * @return the triples.
+	 */
+	private List<byte[][]> triples(final long firstSubject, final int subjects, final int objectsPerSubject) {
+		final List<byte[][]> triples = new ArrayList<byte[][]>();
+		for (int i = 0; i < subjects; i++) {
+			for (int j = 0; j < objectsPerSubject; j++) {
+				triples.add(new byte[][] { id(firstSubject + i), id(PREDICATE), id(1000000 + j) });
+			}
+		}
+		return triples;
+	}
+
+	/**
+	 * Creates a pattern with the test predicate.
+	 *
+	 * @param subject the subject, null if unbound.
+	 * @param object the object, null if unbound.
+	 * @return the pattern.
+	 */
+	private StatementPattern pattern(final Value subject, final Value object) {
+		return new StatementPattern(var("s", subject), var("p", _predicate), var("o", object));
+	}
+
+	/**
+	 * Creates a variable.
+	 *
+	 * @param name the variable name.
+	 * @param value the value, null if unbound.
+	 * @return the variable.
+	 */
+	private Var var(final String name, final Value value) {
+		return value != null ? new Var("const-" + name, value) : new Var(name);
+	}
+
+	/**
+	 * Returns the URI with a given identifier.
+	 *
+	 * @param id the identifier.
+	 * @return the URI with a given identifier.
+	 */
+	private URI uri(final long id) {
+		return VALUE_FACTORY.createURI(NS + id);
+	}
+
+	/**
+	 * Returns an 8 bytes identifier.
+	 *
+	 * @param value the identifier value.
+	 * @return the identifier.
+	 */
+	private byte[] id(final long value) {
+		return ByteBuffer.allocate(8).putLong(value).array();
+	}
+
+	/**
+	 * Returns the data of a given map, creating it if needed.
+	 *
+	 * @param name the map name.
+	 * @return the data of the given map.
+	 */
+	private synchronized Map<Object, Object> storage(final String name) {
+		Map<Object, Object> data = _storage.get(name);
+		if (data == null) {
+			data = new HashMap<Object, Object>();
+			_storage.put(name, data);
+		}
+		return data;
+	}
+
+	/**
+	 * Returns the key used in the fake storage: byte arrays are compared by content.
+	 *
+	 * @param key the key.
+	 * @return the key used in the fake storage.
+	 */
+	private static Object key(final Object key) {
+		return key instanceof byte[] ? ByteBuffer.wrap((byte[]) key) : key;
+	}
+
+	/**
+	 * Creates a counter DAO backed by the fake storage.
+	 *
+	 * @param name the counter name.
+	 * @return a counter DAO backed by the fake storage.
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@SuppressWarnings("unchecked")
+	private CounterDAO<Object> counterDAO(final String name) throws Exception {
+		final Map<Object, Object> data = storage(name);
+		final long[] defaultValue = new long[1];
+
+		final CounterDAO<Object> dao = mock(CounterDAO.class);
+		doAnswer(new Answer<Void>() {
+			@Override
+			public Void answer(final InvocationOnMock invocation) {
+				defaultValue[0] = (Long) invocation.getArguments()[0];
+				return null;
+			}
+		}).when(dao).setDefaultValue(any(Long.class));
+		when(dao.get(any())).thenAnswer(new Answer<Long>() {
+			@Override
+			public Long answer(final InvocationOnMock invocation) {
+				synchronized (data) {
+					final Long value = (Long) data.get(key(invocation.getArguments()[0]));
+					return value != null ? value : defaultValue[0];
+				}
+			}
+		});
+
+		final Answer<Void> update = new Answer<Void>() {
+			@Override
+			public Void answer(final InvocationOnMock invocation) {
+				final Object key = key(invocation.getArguments()[0]);
+				final long value = (Long) invocation.getArguments()[1];
+				synchronized (data) {
+					final Long current = (Long) data.get(key);
+					final long base = current != null ? current : defaultValue[0];
+					final String method = invocation.getMethod().getName();
+					data.put(key, "set".equals(method) ? value : "increment".equals(method) ? base + value : base - value);
+				}
+				return null;
+			}
+		};
+		doAnswer(update).when(dao).set(any(), any(Long.class));
+		doAnswer(update).when(dao).increment(any(), any(Long.class));
+		doAnswer(update).when(dao).decrement(any(), any(Long.class));
+		return dao;
+	}
+
+	/**
+	 * Creates a map DAO backed by the fake storage.
+	 * Writes wait, if requested by the test, until they are allowed.
+	 *
+	 * @param name the map name.
+	 * @return a map DAO backed by the fake storage.
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@SuppressWarnings("unchecked")
+	private MapDAO<byte[], byte[]> mapDAO(final String name) throws Exception {
+		final Map<Object, Object> data = storage(name);
+
+		final MapDAO<byte[], byte[]> dao = mock(MapDAO.class);
+		when(dao.get(any(byte[].class))).thenAnswer(new Answer<byte[]>() {
+			@Override
+			public byte[] answer(final InvocationOnMock invocation) {
+				synchronized (data) {
+					return (byte[]) data.get(key(invocation.getArguments()[0]));
+				}
+			}
+		});
+		when(dao.keySet()).thenAnswer(new Answer<Set<byte[]>>() {
+			@Override
+			public Set<byte[]> answer(final InvocationOnMock invocation) {
+				final Set<byte[]> keys = new HashSet<byte[]>();
+				synchronized (data) {
+					for (final Object key : data.keySet()) {
+						keys.add(((ByteBuffer) key).array());
+					}
+				}
+				return keys;
+			}
+		});
+		doAnswer(new Answer<Void>() {
+			@Override
+			public Void answer(final InvocationOnMock invocation) throws Throwable {
+				if (_writing != null) {
+					_writing.countDown();
+					_writeAllowed.await();
+				}
+
+				synchronized (data) {
+					data.put(key(invocation.getArguments()[0]), invocation.getArguments()[1]);
+				}
+				return null;
+			}
+		}).when(dao).set(any(byte[].class), any(byte[].class));
+		return dao;
+	}
+}
@@ -0,0 +1,294 @@
+package edu.kit.aifb.cumulus.store.sesame;
+
+import static edu.kit.aifb.cumulus.TestUtils.VALUE_FACTORY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import info.aduna.iteration.CloseableIteratorIteration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.QueryEvaluationException;
+import org.openrdf.query.algebra.StatementPattern;
+import org.openrdf.query.algebra.Var;
+import org.openrdf.query.impl.MapBindingSet;
+
+/**
+ * Test case for {@link BindJoinIteration}.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+public class BindJoinIterationTest {
+
+	private static final String NS = "http://example.org/";
+
+	private final URI _predicate = uri(0);
+
+	private CumulusRDFSailConnection.CumulusRDFTripleSource _tripleSource;
+	private Map<Value, List<byte[][]>> _statements;
+	private List<List<Value[]>> _lookups;
+
+	/**
+	 * Setup fixture for this test case.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Before
+	public void setUp() throws Exception {
+		_statements = new HashMap<Value, List<byte[][]>>();
+		_lookups = new ArrayList<List<Value[]>>();
+
+		_tripleSource = mock(CumulusRDFSailConnection.CumulusRDFTripleSource.class);
+		when(_tripleSource.getIdentifiers(any(List.class))).thenAnswer(new Answer<List<Iterator<byte[][]>>>() {
+			@Override
+			public List<Iterator<byte[][]>> answer(final InvocationOnMock invocation) {
+				@SuppressWarnings("unchecked")
+				final List<Value[]> patterns = new ArrayList<Value[]>((List<Value[]>) invocation.getArguments()[0]);
+				_lookups.add(patterns);
+
+				final List<Iterator<byte[][]>> results = new ArrayList<Iterator<byte[][]>>(patterns.size());
+				for (final Value[] pattern : patterns) {
+					final List<byte[][]> statements = pattern != null ? _statements.get(pattern[0]) : null;
+					results.add(statements != null ? statements.iterator() : Collections.<byte[][]> emptyList().iterator());
+				}
+				return results;
+			}
+		});
+		when(_tripleSource.createValue(any(byte[].class), anyBoolean())).thenAnswer(new Answer<Value>() {
+			@Override
+			public Value answer(final InvocationOnMock invocation) {
+				return uri(((byte[]) invocation.getArguments()[0])[0]);
+			}
+		});
+	}
+
+	/**
+	 * Lookups must be issued in batches and results must be returned in nested loop order.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void batchesInNestedLoopOrder() throws Exception {
+		addStatement(1, 10);
+		addStatement(1, 11);
+		addStatement(3, 12);
+		addStatement(5, 13);
+
+		final BindJoinIteration cut = new BindJoinIteration(
+				left(bindings("x", 1), bindings("x", 2), bindings("x", 3), bindings("x", 4), bindings("x", 5)),
+				new StatementPattern(new Var("x"), constant(_predicate), new Var("y")),
+				_tripleSource,
+				2);
+
+		final List<BindingSet> results = consume(cut);
+
+		assertEquals(4, results.size());
+		assertResult(results.get(0), 1, 10);
+		assertResult(results.get(1), 1, 11);
+		assertResult(results.get(2), 3, 12);
+		assertResult(results.get(3), 5, 13);
+
+		assertEquals(3, _lookups.size());
+		assertEquals(2, _lookups.get(0).size());
+		assertEquals(2, _lookups.get(1).size());
+		assertEquals(1, _lookups.get(2).size());
+
+		final Value[] pattern = _lookups.get(0).get(1);
+		assertEquals(uri(2), pattern[0]);
+		assertEquals(_predicate, pattern[1]);
+		assertNull(pattern[2]);
+	}
+
+	/**
+	 * A variable repeated in the right pattern must be bound to the same value in all positions.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void repeatedVariables() throws Exception {
+		addStatement(1, 1);
+		addStatement(1, 2);
+
+		final BindJoinIteration cut = new BindJoinIteration(
+				left(bindings("x", 1)),
+				new StatementPattern(new Var("x"), constant(_predicate), new Var("x")),
+				_tripleSource,
+				10);
+
+		final List<BindingSet> results = consume(cut);
+
+		assertEquals(1, results.size());
+		assertEquals(uri(1), results.get(0).getValue("x"));
+	}
+
+	/**
+	 * A left binding that cannot be a subject (e.g. a literal) must not match any statement.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void literalSubject() throws Exception {
+		final MapBindingSet literal = new MapBindingSet();
+		literal.addBinding("x", VALUE_FACTORY.createLiteral("1"));
+
+		final BindJoinIteration cut = new BindJoinIteration(
+				left(literal),
+				new StatementPattern(new Var("x"), constant(_predicate), new Var("y")),
+				_tripleSource,
+				10);
+
+		assertTrue(consume(cut).isEmpty());
+		assertEquals(1, _lookups.size());
+		assertNull(_lookups.get(0).get(0));
+	}
+
+	/**
+	 * An empty left argument must not issue any lookup.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void emptyLeft() throws Exception {
+		final BindJoinIteration cut = new BindJoinIteration(
+				left(),
+				new StatementPattern(new Var("x"), constant(_predicate), new Var("y")),
+				_tripleSource,
+				10);
+
+		assertFalse(cut.hasNext());
+		verify(_tripleSource, never()).getIdentifiers(any(List.class));
+	}
+
+	/**
+	 * Closing the join must close the left argument.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void closePropagation() throws Exception {
+		addStatement(1, 10);
+		addStatement(1, 11);
+
+		final CloseableIteratorIteration<BindingSet, QueryEvaluationException> left = left(bindings("x", 1), bindings("x", 2));
+		final BindJoinIteration cut = new BindJoinIteration(
+				left,
+				new StatementPattern(new Var("x"), constant(_predicate), new Var("y")),
+				_tripleSource,
+				10);
+
+		assertTrue(cut.hasNext());
+		cut.next();
+		cut.close();
+
+		assertTrue(left.isClosed());
+		assertFalse(cut.hasNext());
+	}
+
+	/**
+	 * Adds a statement (subject, predicate, object) to the fake store.
+	 *
+	 * @param subject the subject identifier.
+	 * @param object the object identifier.
+	 */
+	private void addStatement(final int subject, final int object) {
+		List<byte[][]> statements = _statements.get(uri(subject));
+		if (statements == null) {
+			statements = new ArrayList<byte[][]>();
+			_statements.put(uri(subject), statements);
+		}
+		statements.add(new byte[][] {{(byte) subject }, {0 }, {(byte) object } });
+	}
+
+	/**
+	 * Asserts that a given result binds x and y to the given values.
+	 *
+	 * @param result the result.
+	 * @param x the expected x identifier.
+	 * @param y the expected y identifier.
+	 */
+	private void assertResult(final BindingSet result, final int x, final int y) {
+		assertEquals(uri(x), result.getValue("x"));
+		assertEquals(uri(y), result.getValue("y"));
+	}
+
+	/**
+	 * Returns the URI with a given identifier.
+	 *
+	 * @param id the identifier.
+	 * @return the URI with a given identifier.
+	 */
+	private static URI uri(final int id) {
+		return VALUE_FACTORY.createURI(NS + id);
+	}
+
+	/**
+	 * Creates a constant variable.
+	 *
+	 * @param value the value.
+	 * @return a constant variable.
+	 */
+	private Var constant(final Value value) {
+		final Var var = new Var("const-" + value.stringValue(), value);
+		var.setAnonymous(true);
+		return var;
+	}
+
+	/**
+	 * Creates bindings with one variable.
+	 *
+	 * @param name the variable name.
+	 * @param id the identifier of the bound URI.
+	 * @return bindings with one variable.
+	 */
+	private BindingSet bindings(final String name, final int id) {
+		final MapBindingSet bindings = new MapBindingSet();
+		bindings.addBinding(name, uri(id));
+		return bindings;
+	}
+
+	/**
+	 * Creates the left argument of a join.
+	 *
+	 * @param bindings the left bindings.
+	 * @return the left argument of a join.
+	 */
+	private CloseableIteratorIteration<BindingSet, QueryEvaluationException> left(final BindingSet... bindings) {
+		return new CloseableIteratorIteration<BindingSet, QueryEvaluationException>(Arrays.asList(bindings).iterator());
+	}
+
+	/**
+	 * Reads all the results of a given iteration.
+	 *
+	 * @param iteration the iteration.
+	 * @return the results.
+	 * @throws QueryEvaluationException in case of evaluation failure.
+	 */
+	private List<BindingSet> consume(final BindJoinIteration iteration) throws QueryEvaluationException {
+		final List<BindingSet> results = new ArrayList<BindingSet>();
+		while (iteration.hasNext()) {
+			results.add(iteration.next());
+		}
+		return results;
+	}
+}
@@ -0,0 +1,292 @@
+package edu.kit.aifb.cumulus.store.sesame;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import info.aduna.iteration.CloseableIteratorIteration;
+import info.aduna.iteration.Iteration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+import org.openrdf.model.Value;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.QueryEvaluationException;
+import org.openrdf.query.impl.MapBindingSet;
+
+import edu.kit.aifb.cumulus.store.sesame.model.NativeCumulusURI;
+
+/**
+ * Test case for {@link HashJoinIteration}.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+public class HashJoinIterationTest {
+
+	/**
+	 * Results with the same join key on both sides must be joined pairwise.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void duplicateKeys() throws Exception {
+		final HashJoinIteration cut = new HashJoinIteration(
+				argument(bindings("x", 1, "a", 11), bindings("x", 1, "a", 12), bindings("x", 2, "a", 13)),
+				argument(bindings("x", 1, "b", 21), bindings("x", 3, "b", 22), bindings("x", 1, "b", 23)),
+				new String[] {"x" });
+
+		final Set<String> results = pairs(consume(cut), "a", "b");
+
+		assertEquals(new HashSet<String>(Arrays.asList("11-21", "11-23", "12-21", "12-23")), results);
+	}
+
+	/**
+	 * Results must match on all the join variables.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void multipleJoinVariables() throws Exception {
+		final HashJoinIteration cut = new HashJoinIteration(
+				argument(bindings("x", 1, "y", 1, "a", 11), bindings("x", 1, "y", 2, "a", 12)),
+				argument(bindings("x", 1, "y", 1, "b", 21), bindings("x", 2, "y", 1, "b", 22), bindings("x", 1, "y", 2, "b", 23)),
+				new String[] {"x", "y" });
+
+		final Set<String> results = pairs(consume(cut), "a", "b");
+
+		assertEquals(new HashSet<String>(Arrays.asList("11-21", "12-23")), results);
+	}
+
+	/**
+	 * A variable bound on both sides, but not among the join variables, must be bound to the same value.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void repeatedVariables() throws Exception {
+		final HashJoinIteration cut = new HashJoinIteration(
+				argument(bindings("x", 1, "z", 5)),
+				argument(bindings("x", 1, "z", 5), bindings("x", 1, "z", 6)),
+				new String[] {"x" });
+
+		final List<BindingSet> results = consume(cut);
+
+		assertEquals(1, results.size());
+		assertEquals(uri(5), results.get(0).getValue("z"));
+	}
+
+	/**
+	 * A join without join variables must return the cartesian product of its arguments.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void cartesianProduct() throws Exception {
+		final HashJoinIteration cut = new HashJoinIteration(
+				argument(bindings("a", 11), bindings("a", 12)),
+				argument(bindings("b", 21), bindings("b", 22)),
+				new String[0]);
+
+		final Set<String> results = pairs(consume(cut), "a", "b");
+
+		assertEquals(new HashSet<String>(Arrays.asList("11-21", "11-22", "12-21", "12-22")), results);
+	}
+
+	/**
+	 * Results must be returned as soon as both sides of a match have been read.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void symmetric() throws Exception {
+		final CountingIterator left = new CountingIterator(bindings("x", 1, "a", 11), bindings("x", 2, "a", 12), bindings("x", 3, "a", 13));
+		final CountingIterator right = new CountingIterator(bindings("x", 1, "b", 21), bindings("x", 2, "b", 22), bindings("x", 3, "b", 23));
+		final HashJoinIteration cut = new HashJoinIteration(
+				new CloseableIteratorIteration<BindingSet, QueryEvaluationException>(left),
+				new CloseableIteratorIteration<BindingSet, QueryEvaluationException>(right),
+				new String[] {"x" });
+
+		assertTrue(cut.hasNext());
+		assertEquals(uri(1), cut.next().getValue("x"));
+		assertEquals(1, left._count);
+		assertEquals(1, right._count);
+
+		assertEquals(3, consume(cut).size() + 1);
+	}
+
+	/**
+	 * An empty left argument must stop the join without reading the right argument and close both arguments.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void emptyLeft() throws Exception {
+		final CountingIterator rightResults = new CountingIterator(bindings("x", 1), bindings("x", 2));
+		final CloseableIteratorIteration<BindingSet, QueryEvaluationException> left = argument();
+		final CloseableIteratorIteration<BindingSet, QueryEvaluationException> right =
+				new CloseableIteratorIteration<BindingSet, QueryEvaluationException>(rightResults);
+		final HashJoinIteration cut = new HashJoinIteration(left, right, new String[] {"x" });
+
+		assertFalse(cut.hasNext());
+		assertEquals(0, rightResults._count);
+		assertTrue(left.isClosed());
+		assertTrue(right.isClosed());
+	}
+
+	/**
+	 * An empty right argument must stop the join and close both arguments.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void emptyRight() throws Exception {
+		final CountingIterator leftResults = new CountingIterator(bindings("x", 1), bindings("x", 2), bindings("x", 3));
+		final CloseableIteratorIteration<BindingSet, QueryEvaluationException> left =
+				new CloseableIteratorIteration<BindingSet, QueryEvaluationException>(leftResults);
+		final CloseableIteratorIteration<BindingSet, QueryEvaluationException> right = argument();
+		final HashJoinIteration cut = new HashJoinIteration(left, right, new String[] {"x" });
+
+		assertFalse(cut.hasNext());
+		assertEquals(1, leftResults._count);
+		assertTrue(left.isClosed());
+		assertTrue(right.isClosed());
+	}
+
+	/**
+	 * Closing the join must close both arguments.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void closePropagation() throws Exception {
+		final CloseableIteratorIteration<BindingSet, QueryEvaluationException> left = argument(bindings("x", 1), bindings("x", 2));
+		final CloseableIteratorIteration<BindingSet, QueryEvaluationException> right = argument(bindings("x", 1), bindings("x", 2));
+		final HashJoinIteration cut = new HashJoinIteration(left, right, new String[] {"x" });
+
+		assertTrue(cut.hasNext());
+		cut.next();
+		cut.close();
+
+		assertTrue(left.isClosed());
+		assertTrue(right.isClosed());
+		assertFalse(cut.hasNext());
+	}
+
+	/**
+	 * An iterator that counts the returned elements.
+	 */
+	private static class CountingIterator implements Iterator<BindingSet> {
+		private final Iterator<BindingSet> _delegate;
+		private int _count;
+
+		/**
+		 * Builds a new iterator on the given elements.
+		 *
+		 * @param elements the elements.
+		 */
+		CountingIterator(final BindingSet... elements) {
+			_delegate = Arrays.asList(elements).iterator();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return _delegate.hasNext();
+		}
+
+		@Override
+		public BindingSet next() {
+			_count++;
+			return _delegate.next();
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/**
+	 * Returns the URI with a given identifier, as it comes from the store.
+	 *
+	 * @param id the identifier.
+	 * @return the URI with a given identifier.
+	 */
+	static Value uri(final int id) {
+		return new NativeCumulusURI(new byte[] {(byte) id }, null, false);
+	}
+
+	/**
+	 * Creates bindings from (name, identifier) pairs.
+	 *
+	 * @param pairs the variable names, each one followed by the identifier of the bound URI.
+	 * @return the bindings.
+	 */
+	static BindingSet bindings(final Object... pairs) {
+		final MapBindingSet bindings = new MapBindingSet();
+		for (int i = 0; i < pairs.length; i += 2) {
+			bindings.addBinding((String) pairs[i], uri((Integer) pairs[i + 1]));
+		}
+		return bindings;
+	}
+
+	/**
+	 * Creates the results of a join argument.
+	 *
+	 * @param bindings the results.
+	 * @return the results of a join argument.
+	 */
+	static CloseableIteratorIteration<BindingSet, QueryEvaluationException> argument(final BindingSet... bindings) {
+		return new CloseableIteratorIteration<BindingSet, QueryEvaluationException>(Arrays.asList(bindings).iterator());
+	}
+
+	/**
+	 * Returns the identifiers of two variables in the given results, as "first-second" strings.
+	 *
+	 * @param results the results.
+	 * @param first the first variable.
+	 * @param second the second variable.
+	 * @return the identifiers of the given variables in the given results.
+	 */
+	static Set<String> pairs(final List<BindingSet> results, final String first, final String second) {
+		final Set<String> pairs = new HashSet<String>();
+		for (final BindingSet result : results) {
+			assertTrue(pairs.add(pair(result, first, second)));
+		}
+		return pairs;
+	}
+
+	/**
+	 * Returns the identifiers of two variables in the given result, as a "first-second" string.
+	 *
+	 * @param result the result.
+	 * @param first the first variable.
+	 * @param second the second variable.
+	 * @return the identifiers of the given variables in the given result.
+	 */
+	static String pair(final BindingSet result, final String first, final String second) {
+		return ((NativeCumulusURI) result.getValue(first)).getInternalID()[0]
+				+ "-" + ((NativeCumulusURI) result.getValue(second)).getInternalID()[0];
+	}
+
+	/**
+	 * Reads all the results of a given iteration.
+	 *
+	 * @param iteration the iteration.
+	 * @return the results.
+	 * @throws QueryEvaluationException in case of evaluation failure.
+	 */
+	static List<BindingSet> consume(final Iteration<BindingSet, QueryEvaluationException> iteration)
+			throws QueryEvaluationException {
+		final List<BindingSet> results = new ArrayList<BindingSet>();
+		while (iteration.hasNext()) {
+			results.add(iteration.next());
+		}
+		return results;
+	}
+}
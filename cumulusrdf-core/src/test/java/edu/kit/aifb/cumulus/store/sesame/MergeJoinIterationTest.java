@@ -0,0 +1,130 @@
+package edu.kit.aifb.cumulus.store.sesame;
+
+import static edu.kit.aifb.cumulus.TestUtils.VALUE_FACTORY;
+import static edu.kit.aifb.cumulus.store.sesame.HashJoinIterationTest.argument;
+import static edu.kit.aifb.cumulus.store.sesame.HashJoinIterationTest.bindings;
+import static edu.kit.aifb.cumulus.store.sesame.HashJoinIterationTest.consume;
+import static edu.kit.aifb.cumulus.store.sesame.HashJoinIterationTest.pair;
+import static edu.kit.aifb.cumulus.store.sesame.HashJoinIterationTest.uri;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import info.aduna.iteration.CloseableIteratorIteration;
+
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.Test;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.QueryEvaluationException;
+import org.openrdf.query.impl.MapBindingSet;
+
+/**
+ * Test case for {@link MergeJoinIteration}.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+public class MergeJoinIterationTest {
+
+	private static final Comparator<byte[]> ORDER = new Comparator<byte[]>() {
+		@Override
+		public int compare(final byte[] first, final byte[] second) {
+			return (first[0] & 0xFF) - (second[0] & 0xFF);
+		}
+	};
+
+	/**
+	 * Results with the same join value on both sides must be joined pairwise, in the order of the join variable.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void duplicateKeys() throws Exception {
+		final MergeJoinIteration cut = new MergeJoinIteration(
+				argument(bindings("x", 1, "a", 11), bindings("x", 1, "a", 12), bindings("x", 2, "a", 13), bindings("x", 4, "a", 14)),
+				argument(bindings("x", 1, "b", 21), bindings("x", 1, "b", 22), bindings("x", 3, "b", 23), bindings("x", 4, "b", 24)),
+				"x",
+				ORDER);
+
+		final List<BindingSet> results = consume(cut);
+
+		assertEquals(5, results.size());
+		assertEquals("11-21", pair(results.get(0), "a", "b"));
+		assertEquals("11-22", pair(results.get(1), "a", "b"));
+		assertEquals("12-21", pair(results.get(2), "a", "b"));
+		assertEquals("12-22", pair(results.get(3), "a", "b"));
+		assertEquals("14-24", pair(results.get(4), "a", "b"));
+	}
+
+	/**
+	 * A variable bound on both sides, other than the join variable, must be bound to the same value.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void repeatedVariables() throws Exception {
+		final MergeJoinIteration cut = new MergeJoinIteration(
+				argument(bindings("x", 1, "z", 5)),
+				argument(bindings("x", 1, "z", 6), bindings("x", 1, "z", 5)),
+				"x",
+				ORDER);
+
+		final List<BindingSet> results = consume(cut);
+
+		assertEquals(1, results.size());
+		assertEquals(uri(5), results.get(0).getValue("z"));
+	}
+
+	/**
+	 * An empty argument must produce no results.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void emptySides() throws Exception {
+		assertFalse(new MergeJoinIteration(argument(), argument(bindings("x", 1)), "x", ORDER).hasNext());
+		assertFalse(new MergeJoinIteration(argument(bindings("x", 1)), argument(), "x", ORDER).hasNext());
+		assertFalse(new MergeJoinIteration(argument(bindings("x", 1)), argument(bindings("x", 2)), "x", ORDER).hasNext());
+	}
+
+	/**
+	 * Closing the join must close both arguments.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void closePropagation() throws Exception {
+		final CloseableIteratorIteration<BindingSet, QueryEvaluationException> left = argument(bindings("x", 1), bindings("x", 2));
+		final CloseableIteratorIteration<BindingSet, QueryEvaluationException> right = argument(bindings("x", 1), bindings("x", 2));
+		final MergeJoinIteration cut = new MergeJoinIteration(left, right, "x", ORDER);
+
+		assertTrue(cut.hasNext());
+		cut.next();
+		cut.close();
+
+		assertTrue(left.isClosed());
+		assertTrue(right.isClosed());
+		assertFalse(cut.hasNext());
+	}
+
+	/**
+	 * A join value that doesn't come from the store cannot be merged.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void valueWithoutIdentifier() throws Exception {
+		final MapBindingSet plain = new MapBindingSet();
+		plain.addBinding("x", VALUE_FACTORY.createURI("http://example.org/1"));
+
+		final MergeJoinIteration cut = new MergeJoinIteration(argument(plain), argument(bindings("x", 1)), "x", ORDER);
+		try {
+			cut.hasNext();
+			fail();
+		} catch (final QueryEvaluationException expected) {
+			// Nothing, this is the expected behaviour
+		}
+	}
+}
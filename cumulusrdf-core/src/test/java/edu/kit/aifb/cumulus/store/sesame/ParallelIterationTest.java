@@ -0,0 +1,344 @@
+package edu.kit.aifb.cumulus.store.sesame;
+
+import static edu.kit.aifb.cumulus.TestUtils.VALUE_FACTORY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import info.aduna.iteration.CloseableIteration;
+import info.aduna.iteration.CloseableIteratorIteration;
+import info.aduna.iteration.LookAheadIteration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.QueryEvaluationException;
+import org.openrdf.query.algebra.SingletonSet;
+import org.openrdf.query.algebra.TupleExpr;
+import org.openrdf.query.algebra.evaluation.EvaluationStrategy;
+import org.openrdf.query.impl.EmptyBindingSet;
+import org.openrdf.query.impl.MapBindingSet;
+
+/**
+ * Test case for {@link ParallelIteration}.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+public class ParallelIterationTest {
+
+	private static final int PERMITS = 2;
+
+	private EvaluationStrategy _strategy;
+	private Map<TupleExpr, Object> _branches;
+	private Semaphore _permits;
+	private ExecutorService _executor;
+
+	/**
+	 * Setup fixture for this test case.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Before
+	public void setUp() throws Exception {
+		_branches = new IdentityHashMap<TupleExpr, Object>();
+		_permits = new Semaphore(PERMITS);
+		_executor = new ThreadPoolExecutor(PERMITS, PERMITS, 0L, TimeUnit.MILLISECONDS, new SynchronousQueue<Runnable>());
+
+		_strategy = mock(EvaluationStrategy.class);
+		when(_strategy.evaluate(any(TupleExpr.class), any(BindingSet.class))).thenAnswer(
+				new Answer<CloseableIteration<BindingSet, QueryEvaluationException>>() {
+					@SuppressWarnings("unchecked")
+					@Override
+					public CloseableIteration<BindingSet, QueryEvaluationException> answer(final InvocationOnMock invocation)
+							throws Exception {
+						final Object branch = _branches.get(invocation.getArguments()[0]);
+						if (branch instanceof Exception) {
+							throw (Exception) branch;
+						}
+						return (CloseableIteration<BindingSet, QueryEvaluationException>) branch;
+					}
+				});
+	}
+
+	/**
+	 * Shutdown fixture for this test case.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@After
+	public void tearDown() throws Exception {
+		_executor.shutdownNow();
+	}
+
+	/**
+	 * The results of all branches must be returned, even if there are more branches than workers.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test(timeout = 10000)
+	public void resultsOfAllBranches() throws Exception {
+		final List<TupleExpr> branches = Arrays.asList(
+				branch(results(1, 2)),
+				branch(results(3)),
+				branch(results()),
+				branch(results(4, 5, 6)));
+
+		final ParallelIteration cut = evaluate(branches, 1);
+		assertNotNull(cut);
+
+		final Set<String> results = new HashSet<String>();
+		while (cut.hasNext()) {
+			results.add(cut.next().getValue("x").stringValue());
+		}
+
+		assertEquals(new HashSet<String>(Arrays.asList("1", "2", "3", "4", "5", "6")), results);
+		assertPermitsReleased();
+	}
+
+	/**
+	 * Closing the iteration must stop the workers, even if they are waiting for space in the queue.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test(timeout = 10000)
+	public void close() throws Exception {
+		final EndlessIteration endless = new EndlessIteration();
+		final ParallelIteration cut = evaluate(Collections.singletonList(branch(endless)), 1);
+
+		assertTrue(cut.hasNext());
+		cut.next();
+		cut.close();
+
+		assertPermitsReleased();
+		assertTrue(endless.isClosed());
+		assertFalse(cut.hasNext());
+	}
+
+	/**
+	 * The failure of a worker must be rethrown by the iteration, even when the queue is full of results of other branches.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test(timeout = 10000)
+	public void workerFailure() throws Exception {
+		final QueryEvaluationException failure = new QueryEvaluationException("Branch failure");
+		final EndlessIteration endless = new EndlessIteration();
+		final ParallelIteration cut = evaluate(Arrays.asList(branch(endless), branch(failure)), 1);
+
+		assertSame(failure, drain(cut));
+
+		cut.close();
+		assertPermitsReleased();
+	}
+
+	/**
+	 * A runtime failure of a worker must be rethrown by the iteration.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test(timeout = 10000)
+	public void workerRuntimeFailure() throws Exception {
+		final IllegalStateException failure = new IllegalStateException("Branch failure");
+		final ParallelIteration cut = evaluate(Arrays.asList(branch(results(1, 2)), branch(failure)), 16);
+
+		assertSame(failure, drain(cut));
+		assertPermitsReleased();
+	}
+
+	/**
+	 * When all the threads of the query executor are busy, workers must be rejected and the expressions evaluated by the caller.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test(timeout = 10000)
+	public void busyExecutor() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountDownLatch started = new CountDownLatch(PERMITS);
+		for (int i = 0; i < PERMITS; i++) {
+			_executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					started.countDown();
+					try {
+						release.await();
+					} catch (final InterruptedException exception) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			});
+		}
+		started.await();
+
+		assertNull(evaluate(Collections.singletonList(branch(results(1))), 1));
+		assertPermitsReleased();
+		release.countDown();
+	}
+
+	/**
+	 * Workers that are queued on a query executor that is shut down before running them must be cancelled.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test(timeout = 10000)
+	public void shutdownBeforeStart() throws Exception {
+		_executor.shutdownNow();
+		_executor = Executors.newSingleThreadExecutor();
+
+		final CountDownLatch started = new CountDownLatch(1);
+		_executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				started.countDown();
+				try {
+					new CountDownLatch(1).await();
+				} catch (final InterruptedException exception) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		started.await();
+
+		final ParallelIteration cut = evaluate(Collections.singletonList(branch(results(1))), 1);
+		assertNotNull(cut);
+
+		_executor.shutdownNow();
+
+		assertTrue(drain(cut) instanceof QueryEvaluationException);
+		assertPermitsReleased();
+	}
+
+	/**
+	 * Workers that are interrupted by the shutdown of the query executor (i.e. when the store is closed) must fail the iteration.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test(timeout = 10000)
+	public void shutdownWhileRunning() throws Exception {
+		final EndlessIteration endless = new EndlessIteration();
+		final ParallelIteration cut = evaluate(Collections.singletonList(branch(endless)), 1);
+
+		assertTrue(cut.hasNext());
+		cut.next();
+
+		_executor.shutdownNow();
+
+		assertTrue(drain(cut) instanceof QueryEvaluationException);
+		assertTrue(endless.isClosed());
+		assertPermitsReleased();
+	}
+
+	/**
+	 * Evaluates the given branches.
+	 *
+	 * @param branches the branches.
+	 * @param queueSize the number of results that are buffered.
+	 * @return the parallel iteration, null if the branches cannot be evaluated concurrently.
+	 */
+	private ParallelIteration evaluate(final List<TupleExpr> branches, final int queueSize) {
+		return ParallelIteration.evaluate(_strategy, branches, EmptyBindingSet.getInstance(), _executor, _permits, queueSize);
+	}
+
+	/**
+	 * Creates a branch.
+	 *
+	 * @param evaluation the results of the branch, or the exception thrown when evaluating the branch.
+	 * @return the branch.
+	 */
+	private TupleExpr branch(final Object evaluation) {
+		final TupleExpr branch = new SingletonSet();
+		_branches.put(branch, evaluation);
+		return branch;
+	}
+
+	/**
+	 * Creates the results of a branch, binding x to the given literals.
+	 *
+	 * @param values the values of x.
+	 * @return the results of a branch.
+	 */
+	private static CloseableIteration<BindingSet, QueryEvaluationException> results(final int... values) {
+		final List<BindingSet> results = new ArrayList<BindingSet>();
+		for (final int value : values) {
+			results.add(bindings(value));
+		}
+		return new CloseableIteratorIteration<BindingSet, QueryEvaluationException>(results.iterator());
+	}
+
+	/**
+	 * Creates bindings where x is bound to the given literal.
+	 *
+	 * @param value the value of x.
+	 * @return the bindings.
+	 */
+	private static BindingSet bindings(final int value) {
+		final MapBindingSet bindings = new MapBindingSet();
+		bindings.addBinding("x", VALUE_FACTORY.createLiteral(value));
+		return bindings;
+	}
+
+	/**
+	 * Reads a given iteration until it fails.
+	 *
+	 * @param iteration the iteration.
+	 * @return the failure of the given iteration.
+	 */
+	private static Exception drain(final ParallelIteration iteration) {
+		try {
+			while (iteration.hasNext()) {
+				iteration.next();
+			}
+			fail();
+			return null;
+		} catch (final Exception expected) {
+			return expected;
+		}
+	}
+
+	/**
+	 * Asserts that all the permits are (eventually) released.
+	 *
+	 * @throws InterruptedException if the test has been interrupted.
+	 */
+	private void assertPermitsReleased() throws InterruptedException {
+		assertTrue(_permits.tryAcquire(PERMITS, 5, TimeUnit.SECONDS));
+		_permits.release(PERMITS);
+	}
+
+	/**
+	 * Results of a branch that never ends.
+	 */
+	private static class EndlessIteration extends LookAheadIteration<BindingSet, QueryEvaluationException> {
+		private int _next;
+
+		@Override
+		protected BindingSet getNextElement() {
+			return bindings(_next++);
+		}
+	}
+}
@@ -0,0 +1,136 @@
+package edu.kit.aifb.cumulus.store.sesame;
+
+import static edu.kit.aifb.cumulus.TestUtils.VALUE_FACTORY;
+import static edu.kit.aifb.cumulus.TestUtils.randomString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openrdf.query.algebra.StatementPattern;
+import org.openrdf.query.algebra.TupleExpr;
+import org.openrdf.query.algebra.Var;
+
+import edu.kit.aifb.cumulus.store.events.AddTripleEvent;
+import edu.kit.aifb.cumulus.store.events.RemoveTriplesEvent;
+
+/**
+ * Test case for {@link QueryPlanCache}.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+public class QueryPlanCacheTest {
+
+	private QueryPlanCache<TupleExpr> _cut;
+
+	/**
+	 * Setup fixture for this test.
+	 */
+	@Before
+	public void setUp() {
+		_cut = new QueryPlanCache<TupleExpr>(randomString(), 2);
+	}
+
+	/**
+	 * Plans are returned once they have been cached.
+	 */
+	@Test
+	public void cachedPlans() {
+		final TupleExpr plan = pattern("o");
+		final String key = QueryPlanCache.key(plan, null);
+
+		assertNull(_cut.get(key));
+		_cut.put(key, plan);
+		assertSame(plan, _cut.get(QueryPlanCache.key(plan.clone(), null)));
+
+		assertEquals(1, _cut.getCachedPlansCount());
+		assertEquals(1, _cut.getHitsCount());
+		assertEquals(1, _cut.getMissesCount());
+		assertEquals(50, _cut.getHitsRatio(), 0);
+	}
+
+	/**
+	 * Queries that differ only in the names of anonymous variables must have the same key.
+	 * Queries that differ in other variables must have different keys.
+	 */
+	@Test
+	public void normalizedKey() {
+		final StatementPattern anonymous = pattern("-anon-" + randomString());
+		anonymous.getObjectVar().setAnonymous(true);
+
+		final StatementPattern anotherAnonymous = pattern("-anon-" + randomString());
+		anotherAnonymous.getObjectVar().setAnonymous(true);
+
+		assertEquals(QueryPlanCache.key(anonymous, null), QueryPlanCache.key(anotherAnonymous, null));
+		assertFalse(QueryPlanCache.key(pattern("o"), null).equals(QueryPlanCache.key(pattern("x"), null)));
+	}
+
+	/**
+	 * Least recently used plans are evicted when the cache is full.
+	 */
+	@Test
+	public void eviction() {
+		final String first = QueryPlanCache.key(pattern("a"), null);
+		final String second = QueryPlanCache.key(pattern("b"), null);
+		final String third = QueryPlanCache.key(pattern("c"), null);
+
+		_cut.put(first, pattern("a"));
+		_cut.put(second, pattern("b"));
+		_cut.get(first);
+		_cut.put(third, pattern("c"));
+
+		assertEquals(2, _cut.getCachedPlansCount());
+		assertEquals(1, _cut.getEvictionsCount());
+		assertNull(_cut.get(second));
+
+		_cut.clear();
+		assertEquals(0, _cut.getCachedPlansCount());
+	}
+
+	/**
+	 * Plans that depend on the data statistics are stale once the changed triples exceed a fraction of the triples
+	 * they have been planned on. Plans that don't depend on the data never become stale.
+	 */
+	@Test
+	public void stalePlans() {
+		final String planned = QueryPlanCache.key(pattern("a"), null);
+		final String parsed = QueryPlanCache.key(pattern("b"), null);
+
+		_cut.put(planned, pattern("a"), 20 * QueryPlanCache.STALE_PLAN_FRACTION);
+		_cut.put(parsed, pattern("b"));
+
+		_cut.update(new AddTripleEvent(this, Collections.nCopies(15, new byte[][] { { 1 }, { 2 }, { 3 } })));
+		_cut.update(new RemoveTriplesEvent(this, Collections.nCopies(5, new byte[][] { { 1 }, { 2 }, { 3 } })));
+		assertNotNull(_cut.get(planned));
+
+		_cut.update(new AddTripleEvent(this, new byte[][] { { 1 }, { 2 }, { 3 } }));
+		assertNull(_cut.get(planned));
+		assertNotNull(_cut.get(parsed));
+		assertEquals(1, _cut.getInvalidationsCount());
+		assertEquals(1, _cut.getCachedPlansCount());
+
+		_cut.put(planned, pattern("a"), 0);
+		assertNotNull(_cut.get(planned));
+		_cut.update(new AddTripleEvent(this, new byte[][] { { 1 }, { 2 }, { 3 } }));
+		assertNull(_cut.get(planned));
+	}
+
+	/**
+	 * Creates a triple pattern with a given object variable.
+	 *
+	 * @param object the name of the object variable.
+	 * @return a triple pattern with the given object variable.
+	 */
+	private StatementPattern pattern(final String object) {
+		return new StatementPattern(
+				new Var("s"),
+				new Var("-const-1", VALUE_FACTORY.createURI("http://example.org/p")),
+				new Var(object));
+	}
+}
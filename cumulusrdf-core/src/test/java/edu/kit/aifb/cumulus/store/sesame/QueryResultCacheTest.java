@@ -0,0 +1,306 @@
+package edu.kit.aifb.cumulus.store.sesame;
+
+import static edu.kit.aifb.cumulus.TestUtils.VALUE_FACTORY;
+import static edu.kit.aifb.cumulus.TestUtils.randomString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import info.aduna.iteration.CloseableIteration;
+import info.aduna.iteration.CloseableIteratorIteration;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.QueryEvaluationException;
+import org.openrdf.query.algebra.StatementPattern;
+import org.openrdf.query.algebra.TupleExpr;
+import org.openrdf.query.algebra.Var;
+import org.openrdf.query.impl.EmptyBindingSet;
+import org.openrdf.query.impl.MapBindingSet;
+
+import edu.kit.aifb.cumulus.framework.domain.dictionary.ITopLevelDictionary;
+import edu.kit.aifb.cumulus.store.events.AddTripleEvent;
+import edu.kit.aifb.cumulus.store.events.RemoveTriplesEvent;
+
+/**
+ * Test case for {@link QueryResultCache}.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+public class QueryResultCacheTest {
+
+	final URI _aPredicate = VALUE_FACTORY.createURI("http://example.org/a");
+	final URI _anotherPredicate = VALUE_FACTORY.createURI("http://example.org/b");
+	final byte[] _aPredicateId = { 1, 2, 3, 4, 5, 6, 7, 8 };
+	final byte[] _anotherPredicateId = { 8, 7, 6, 5, 4, 3, 2, 1 };
+
+	private ITopLevelDictionary _dictionary;
+	private QueryResultCache _cut;
+
+	/**
+	 * Setup fixture for this test.
+	 *
+	 * @throws Exception never, otherwise the corresponding test will fail.
+	 */
+	@Before
+	public void setUp() throws Exception {
+		_dictionary = mock(ITopLevelDictionary.class);
+		when(_dictionary.getValues(eq(Collections.singletonList(_aPredicateId)), eq(true))).thenReturn(Arrays.<Value> asList(_aPredicate));
+		when(_dictionary.getValues(eq(Collections.singletonList(_anotherPredicateId)), eq(true))).thenReturn(Arrays.<Value> asList(_anotherPredicate));
+
+		_cut = new QueryResultCache(randomString(), _dictionary, 1024 * 1024, 100, 0);
+	}
+
+	/**
+	 * Results are cached once they have been consumed.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void cacheConsumedResults() throws Exception {
+		final TupleExpr query = pattern(_aPredicate);
+		final List<BindingSet> results = results(3);
+
+		final QueryResultCache.Key key = _cut.key(query, null, EmptyBindingSet.getInstance(), false);
+		assertNull(_cut.get(key));
+
+		final CloseableIteration<BindingSet, QueryEvaluationException> iteration = _cut.cache(key, iteration(results));
+		assertNull(_cut.get(_cut.key(query, null, EmptyBindingSet.getInstance(), false)));
+
+		consume(iteration);
+
+		assertEquals(results, _cut.get(_cut.key(query.clone(), null, EmptyBindingSet.getInstance(), false)));
+		assertEquals(1, _cut.getCachedQueriesCount());
+		assertEquals(1, _cut.getHitsCount());
+		assertEquals(2, _cut.getMissesCount());
+	}
+
+	/**
+	 * Queries with the same algebra but different bindings must have different keys.
+	 * Queries that differ only in the names of anonymous variables must have the same key.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void normalizedKey() throws Exception {
+		final MapBindingSet bindings = new MapBindingSet();
+		bindings.addBinding("s", VALUE_FACTORY.createURI("http://example.org/s"));
+
+		final StatementPattern anonymous = pattern(_aPredicate);
+		anonymous.getObjectVar().setName("-anon-" + randomString());
+		anonymous.getObjectVar().setAnonymous(true);
+
+		final StatementPattern anotherAnonymous = pattern(_aPredicate);
+		anotherAnonymous.getObjectVar().setName("-anon-" + randomString());
+		anotherAnonymous.getObjectVar().setAnonymous(true);
+
+		assertEquals(_cut.key(anonymous, null, EmptyBindingSet.getInstance(), false), _cut.key(anotherAnonymous, null, EmptyBindingSet.getInstance(), false));
+		assertFalse(_cut.key(anonymous, null, EmptyBindingSet.getInstance(), false).equals(_cut.key(anonymous, null, bindings, false)));
+	}
+
+	/**
+	 * Changes must invalidate only the queries with the changed predicates or with a variable predicate.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void invalidation() throws Exception {
+		final TupleExpr aQuery = pattern(_aPredicate);
+		final TupleExpr anotherQuery = pattern(_anotherPredicate);
+		final TupleExpr anyPredicateQuery = pattern(null);
+
+		consume(_cut.cache(_cut.key(aQuery, null, EmptyBindingSet.getInstance(), false), iteration(results(1))));
+		consume(_cut.cache(_cut.key(anotherQuery, null, EmptyBindingSet.getInstance(), false), iteration(results(1))));
+		consume(_cut.cache(_cut.key(anyPredicateQuery, null, EmptyBindingSet.getInstance(), false), iteration(results(1))));
+		assertEquals(3, _cut.getCachedQueriesCount());
+
+		_cut.update(new AddTripleEvent(this, new byte[][] { { 1 }, _aPredicateId, { 2 } }));
+
+		assertNull(_cut.get(_cut.key(aQuery, null, EmptyBindingSet.getInstance(), false)));
+		assertNull(_cut.get(_cut.key(anyPredicateQuery, null, EmptyBindingSet.getInstance(), false)));
+		assertNotNull(_cut.get(_cut.key(anotherQuery, null, EmptyBindingSet.getInstance(), false)));
+		assertEquals(2, _cut.getInvalidationsCount());
+
+		_cut.update(new RemoveTriplesEvent(this, new byte[][] { { 1 }, _anotherPredicateId, { 2 } }));
+		assertEquals(0, _cut.getCachedQueriesCount());
+	}
+
+	/**
+	 * Results of queries that were running while the data changed must not be cached.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void changesDuringEvaluation() throws Exception {
+		final TupleExpr query = pattern(_anotherPredicate);
+		final CloseableIteration<BindingSet, QueryEvaluationException> iteration = _cut.cache(
+				_cut.key(query, null, EmptyBindingSet.getInstance(), false),
+				iteration(results(1)));
+
+		_cut.update(new AddTripleEvent(this, new byte[][] { { 1 }, _aPredicateId, { 2 } }));
+		consume(iteration);
+
+		assertEquals(0, _cut.getCachedQueriesCount());
+	}
+
+	/**
+	 * Least recently used queries are evicted when the cache is full.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void bounds() throws Exception {
+		final long size = QueryResultCache.ENTRY_OVERHEAD + QueryResultCache.sizeOf(results(1).get(0));
+		_cut = new QueryResultCache(randomString(), _dictionary, QueryResultCache.MAX_ENTRY_FRACTION * size, 100, 0);
+
+		for (int i = 0; i < QueryResultCache.MAX_ENTRY_FRACTION; i++) {
+			consume(_cut.cache(key(i), iteration(results(1))));
+		}
+		assertEquals(QueryResultCache.MAX_ENTRY_FRACTION, _cut.getCachedQueriesCount());
+		assertEquals(0, _cut.getEvictionsCount());
+		assertNotNull(_cut.get(key(0)));
+
+		consume(_cut.cache(key(QueryResultCache.MAX_ENTRY_FRACTION), iteration(results(1))));
+
+		assertEquals(QueryResultCache.MAX_ENTRY_FRACTION, _cut.getCachedQueriesCount());
+		assertEquals(1, _cut.getEvictionsCount());
+		assertNotNull(_cut.get(key(0)));
+		assertNull(_cut.get(key(1)));
+	}
+
+	/**
+	 * Queries with too many results are never cached.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void maxResults() throws Exception {
+		_cut = new QueryResultCache(randomString(), _dictionary, 1024 * 1024, 1, 0);
+
+		consume(_cut.cache(key(0), iteration(results(2))));
+		assertEquals(0, _cut.getCachedQueriesCount());
+
+		consume(_cut.cache(key(0), iteration(results(1))));
+		assertEquals(1, _cut.getCachedQueriesCount());
+	}
+
+	/**
+	 * Queries whose results take more than a fraction of the cache are never cached, even if the cache is empty.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void maxEntrySize() throws Exception {
+		final long size = QueryResultCache.ENTRY_OVERHEAD + QueryResultCache.sizeOf(results(1).get(0));
+		_cut = new QueryResultCache(randomString(), _dictionary, QueryResultCache.MAX_ENTRY_FRACTION * size, 100, 0);
+
+		consume(_cut.cache(key(0), iteration(results(2))));
+		assertEquals(0, _cut.getCachedQueriesCount());
+
+		consume(_cut.cache(key(0), iteration(results(1))));
+		assertEquals(1, _cut.getCachedQueriesCount());
+	}
+
+	/**
+	 * Cached queries expire once their time to live elapsed.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void ttl() throws Exception {
+		final long[] now = {0 };
+		_cut = new QueryResultCache(randomString(), _dictionary, 1024 * 1024, 100, 1000) {
+			@Override
+			long now() {
+				return now[0];
+			}
+		};
+
+		consume(_cut.cache(key(0), iteration(results(1))));
+
+		now[0] = 999;
+		assertNotNull(_cut.get(key(0)));
+
+		now[0] = 1000;
+		assertNull(_cut.get(key(0)));
+		assertEquals(0, _cut.getCachedQueriesCount());
+		assertEquals(0, _cut.getSize());
+		assertEquals(1, _cut.getInvalidationsCount());
+	}
+
+	/**
+	 * Returns the key of a query with a given binding.
+	 *
+	 * @param binding the value of the subject binding.
+	 * @return the key of a query with the given binding.
+	 */
+	private QueryResultCache.Key key(final int binding) {
+		final MapBindingSet bindings = new MapBindingSet();
+		bindings.addBinding("s", VALUE_FACTORY.createURI("http://example.org/s" + binding));
+		return _cut.key(pattern(_aPredicate), null, bindings, false);
+	}
+
+	/**
+	 * Creates a triple pattern with a given predicate.
+	 *
+	 * @param predicate the predicate, null for a variable predicate.
+	 * @return a triple pattern with the given predicate.
+	 */
+	private StatementPattern pattern(final URI predicate) {
+		return new StatementPattern(
+				new Var("s"),
+				predicate != null ? new Var("-const-1", predicate) : new Var("p"),
+				new Var("o"));
+	}
+
+	/**
+	 * Creates a list of query results.
+	 *
+	 * @param count how many results.
+	 * @return a list of query results.
+	 */
+	private List<BindingSet> results(final int count) {
+		final BindingSet[] results = new BindingSet[count];
+		for (int i = 0; i < count; i++) {
+			final MapBindingSet result = new MapBindingSet();
+			result.addBinding("s", VALUE_FACTORY.createURI("http://example.org/s" + i));
+			result.addBinding("o", VALUE_FACTORY.createLiteral(i));
+			results[i] = result;
+		}
+		return Arrays.asList(results);
+	}
+
+	/**
+	 * Returns an iteration over the given results.
+	 *
+	 * @param results the results.
+	 * @return an iteration over the given results.
+	 */
+	private CloseableIteration<BindingSet, QueryEvaluationException> iteration(final List<BindingSet> results) {
+		return new CloseableIteratorIteration<BindingSet, QueryEvaluationException>(results.iterator());
+	}
+
+	/**
+	 * Consumes all the results of a given iteration.
+	 *
+	 * @param iteration the iteration.
+	 * @throws QueryEvaluationException in case of evaluation failure.
+	 */
+	private void consume(final CloseableIteration<BindingSet, QueryEvaluationException> iteration) throws QueryEvaluationException {
+		while (iteration.hasNext()) {
+			iteration.next();
+		}
+		iteration.close();
+	}
+}
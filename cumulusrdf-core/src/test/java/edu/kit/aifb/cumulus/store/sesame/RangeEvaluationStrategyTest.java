@@ -0,0 +1,197 @@
+package edu.kit.aifb.cumulus.store.sesame;
+
+import static edu.kit.aifb.cumulus.TestUtils.VALUE_FACTORY;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import info.aduna.iteration.CloseableIteration;
+
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.openrdf.model.Value;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.QueryEvaluationException;
+import org.openrdf.query.algebra.Join;
+import org.openrdf.query.algebra.StatementPattern;
+import org.openrdf.query.algebra.TupleExpr;
+import org.openrdf.query.algebra.Var;
+import org.openrdf.query.impl.EmptyBindingSet;
+import org.openrdf.query.impl.MapBindingSet;
+
+/**
+ * Test case for the choice of the join operator in {@link RangeEvaluationStrategy}.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+public class RangeEvaluationStrategyTest {
+
+	private static final String NS = "http://example.org/";
+	private static final int THRESHOLD = 100;
+
+	private CumulusRDFSailConnection.CumulusRDFTripleSource _tripleSource;
+	private Map<TupleExpr, Double> _cardinalities;
+	private int _sortedBy;
+
+	private RangeEvaluationStrategy _cut;
+
+	/**
+	 * Setup fixture for this test case.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Before
+	public void setUp() throws Exception {
+		_cardinalities = new IdentityHashMap<TupleExpr, Double>();
+		_sortedBy = -1;
+
+		_tripleSource = mock(CumulusRDFSailConnection.CumulusRDFTripleSource.class);
+		when(_tripleSource.getHashJoinThreshold()).thenReturn(THRESHOLD);
+		when(_tripleSource.getBindJoinBatchSize()).thenReturn(32);
+		when(_tripleSource.getCardinality(any(TupleExpr.class))).thenAnswer(new Answer<Double>() {
+			@Override
+			public Double answer(final InvocationOnMock invocation) {
+				return _cardinalities.get(invocation.getArguments()[0]);
+			}
+		});
+		when(_tripleSource.sortedBy(any(Value[].class))).thenAnswer(new Answer<Integer>() {
+			@Override
+			public Integer answer(final InvocationOnMock invocation) {
+				return _sortedBy;
+			}
+		});
+		when(_tripleSource.getIdentifiersOrder()).thenReturn(new Comparator<byte[]>() {
+			@Override
+			public int compare(final byte[] first, final byte[] second) {
+				return 0;
+			}
+		});
+
+		_cut = new RangeEvaluationStrategy(_tripleSource);
+	}
+
+	/**
+	 * Two large arguments sorted on the same join variable must be evaluated as a merge join.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void mergeJoin() throws Exception {
+		_sortedBy = 0;
+
+		assertTrue(evaluate(join(pattern("x", "p", "a", 1000), pattern("x", "q", "b", 1000))) instanceof MergeJoinIteration);
+	}
+
+	/**
+	 * Two large arguments that are not sorted on the same join variable must be evaluated as a hash join.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void hashJoin() throws Exception {
+		assertTrue(evaluate(join(pattern("x", "p", "a", 1000), pattern("x", "q", "b", 1000))) instanceof HashJoinIteration);
+
+		_sortedBy = 0;
+		assertTrue(evaluate(join(pattern("x", "p", "y", 1000), pattern("y", "q", "x", 1000))) instanceof HashJoinIteration);
+		assertTrue(evaluate(join(join(pattern("x", "p", "a", 1000), pattern("x", "q", "b", 1000)), pattern("x", "r", "c", 1000)))
+				instanceof HashJoinIteration);
+	}
+
+	/**
+	 * A small argument must be evaluated as a bind join.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void bindJoin() throws Exception {
+		_sortedBy = 0;
+
+		assertTrue(evaluate(join(pattern("x", "p", "a", 1000), pattern("x", "q", "b", 10))) instanceof BindJoinIteration);
+		assertTrue(evaluate(join(pattern("x", "p", "a", 10), pattern("x", "q", "b", 1000))) instanceof BindJoinIteration);
+	}
+
+	/**
+	 * Join variables bound by the current bindings must disable hash and merge joins.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void boundJoinVariables() throws Exception {
+		_sortedBy = 0;
+		final MapBindingSet bindings = new MapBindingSet();
+		bindings.addBinding("x", VALUE_FACTORY.createURI(NS + "x"));
+
+		final Join join = join(pattern("x", "p", "a", 1000), pattern("x", "q", "b", 1000));
+
+		assertTrue(_cut.evaluate(join, bindings) instanceof BindJoinIteration);
+
+		final MapBindingSet unrelated = new MapBindingSet();
+		unrelated.addBinding("z", VALUE_FACTORY.createURI(NS + "z"));
+		assertTrue(_cut.evaluate(join, unrelated) instanceof MergeJoinIteration);
+	}
+
+	/**
+	 * Joins that are neither hash, merge nor bind join candidates must fall back to the default join.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void defaultJoin() throws Exception {
+		final CloseableIteration<BindingSet, QueryEvaluationException> result = evaluate(
+				join(pattern("x", "p", "a", 10), join(pattern("x", "q", "b", 10), pattern("x", "r", "c", 10))));
+
+		assertFalse(result instanceof HashJoinIteration);
+		assertFalse(result instanceof MergeJoinIteration);
+		assertFalse(result instanceof BindJoinIteration);
+	}
+
+	/**
+	 * Evaluates a join without bindings.
+	 *
+	 * @param join the join.
+	 * @return the join results.
+	 * @throws QueryEvaluationException in case of evaluation failure.
+	 */
+	private CloseableIteration<BindingSet, QueryEvaluationException> evaluate(final Join join) throws QueryEvaluationException {
+		return _cut.evaluate(join, EmptyBindingSet.getInstance());
+	}
+
+	/**
+	 * Creates a join, with an estimated cardinality equal to the product of the cardinalities of its arguments.
+	 *
+	 * @param left the left argument.
+	 * @param right the right argument.
+	 * @return the join.
+	 */
+	private Join join(final TupleExpr left, final TupleExpr right) {
+		final Join join = new Join(left, right);
+		_cardinalities.put(join, _cardinalities.get(left) * _cardinalities.get(right));
+		return join;
+	}
+
+	/**
+	 * Creates a statement pattern (?subject predicate ?object) with a given estimated cardinality.
+	 *
+	 * @param subject the subject variable.
+	 * @param predicate the local name of the predicate.
+	 * @param object the object variable.
+	 * @param cardinality the estimated cardinality.
+	 * @return the statement pattern.
+	 */
+	private StatementPattern pattern(final String subject, final String predicate, final String object, final double cardinality) {
+		final Var constant = new Var("const-" + predicate, VALUE_FACTORY.createURI(NS + predicate));
+		constant.setAnonymous(true);
+
+		final StatementPattern pattern = new StatementPattern(new Var(subject), constant, new Var(object));
+		_cardinalities.put(pattern, cardinality);
+		return pattern;
+	}
+}
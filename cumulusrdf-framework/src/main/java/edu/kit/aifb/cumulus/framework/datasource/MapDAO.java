@@ -1,9 +1,12 @@
 package edu.kit.aifb.cumulus.framework.datasource;
 
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
 /**
  * Data access object interface for persistent maps.
  * Note that *ALL* methods throws {@link DataAccessLayerException} because 
@@ -45,6 +48,26 @@ public interface MapDAO<K, V> {
 	 * @throws DataAccessLayerException in case of data access failure.
 	 */
 	V get(K key) throws DataAccessLayerException;
+
+	/**
+	 * Returns the values associated with the given keys.
+	 * This is the multi-key version of {@link #get(Object)}: the same "default value" rule applies to each missing key.
+	 * 
+	 * @param keys the keys.
+	 * @return the values associated with the given keys, in the same order of the input list.
+	 * @throws DataAccessLayerException in case of data access failure.
+	 */
+	List<V> getAll(List<K> keys) throws DataAccessLayerException;
+
+	/**
+	 * Asynchronous version of {@link #getAll(List)}.
+	 * Lookups are pipelined: they are all issued without waiting for the previous ones to complete.
+	 * 
+	 * @param keys the keys.
+	 * @return a future holding the values associated with the given keys, in the same order of the input list.
+	 * @throws DataAccessLayerException in case of data access failure.
+	 */
+	ListenableFuture<List<V>> getAllAsync(List<K> keys) throws DataAccessLayerException;
 	
 	/**
 	 * Returns the key associated with a given value.
@@ -87,6 +110,16 @@ public interface MapDAO<K, V> {
 	 * @throws DataAccessLayerException in case of data access failure.
 	 */
 	void setAll(Map<K, V> pairs) throws DataAccessLayerException;
+
+	/**
+	 * Asynchronous version of {@link #setAll(Map)}.
+	 * Writes are pipelined: they are all issued without waiting for the previous ones to complete.
+	 * 
+	 * @param pairs the key/value pairs to be persisted.
+	 * @return a future that completes once all pairs have been persisted.
+	 * @throws DataAccessLayerException in case of data access failure.
+	 */
+	ListenableFuture<Void> setAllAsync(Map<K, V> pairs) throws DataAccessLayerException;
 	
 	/**
 	 * Injects the default value that will be used as result in case of empty search.
@@ -1,5 +1,6 @@
 package edu.kit.aifb.cumulus.framework.datasource;
 
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 
@@ -83,6 +84,36 @@ public interface TripleIndexDAO {
 	 */
 	Iterator<byte[][]> query(byte[][] query, int limit) throws DataAccessLayerException;
 	
+	/**
+	 * Executes a batch of queries.
+	 * All queries are issued before returning, so that they can be served concurrently. 
+	 * 
+	 * @param queries the query patterns.
+	 * @param limit the max number of triples in result, for each query.
+	 * @return a list of iterators, the i-th iterator contains the results of the i-th query.
+	 * @throws DataAccessLayerException in case of data access failure.
+	 */
+	List<Iterator<byte[][]>> query(List<byte[][]> queries, int limit) throws DataAccessLayerException;
+
+	/**
+	 * Returns the member the results of a given query are sorted by, if any.
+	 * Results are usually read from an index where the bound members of the query make a prefix, so they come 
+	 * sorted by the (unbound) member that follows that prefix. Query engines use that information for merge joins.
+	 * 
+	 * @param query the query pattern.
+	 * @return the position (0 is the subject, 1 the predicate and 2 the object) of the member the results of the 
+	 * 			given query are sorted by, according with {@link #getIdentifiersOrder()}; -1 if results are not sorted.
+	 */
+	int sortedBy(byte[][] query);
+
+	/**
+	 * Returns the order of identifiers in sorted query results.
+	 * 
+	 * @return the order of identifiers in sorted query results.
+	 * @see #sortedBy(byte[][])
+	 */
+	Comparator<byte[]> getIdentifiersOrder();
+	
 	/**
 	 * Executes a numeric range query.
 	 * 
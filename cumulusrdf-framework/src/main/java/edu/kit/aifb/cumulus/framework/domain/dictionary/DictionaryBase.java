@@ -1,5 +1,7 @@
 package edu.kit.aifb.cumulus.framework.domain.dictionary;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.LoggerFactory;
@@ -65,6 +67,12 @@ public abstract class DictionaryBase<V> implements IDictionary<V>, ManageableDic
 		return getIdInternal(value, p);
 	};
 	
+	@Override
+	public final byte[][] getIDs(final List<V> values, final boolean p) throws DataAccessLayerException {
+		_idLookupsCount.addAndGet(values.size());
+		return getIdsInternal(values, p);
+	}
+	
 	@Override
 	public final V getValue(final byte[] id, final boolean p) throws DataAccessLayerException {
 		_valueLookupsCount.incrementAndGet();
@@ -75,6 +83,12 @@ public abstract class DictionaryBase<V> implements IDictionary<V>, ManageableDic
 		return getValueInternal(id, p);
 	}
 	
+	@Override
+	public final List<V> getValues(final List<byte[]> ids, final boolean p) throws DataAccessLayerException {
+		_valueLookupsCount.addAndGet(ids.size());
+		return getValuesInternal(ids, p);
+	}
+
 	@Override
 	public long getValueLookupsCount() {
 		return _valueLookupsCount.get();
@@ -125,6 +139,27 @@ public abstract class DictionaryBase<V> implements IDictionary<V>, ManageableDic
 	 * @throws DataAccessLayerException in case of data access failure.
 	 */
 	protected abstract byte[] getIdInternal(V value, boolean p) throws DataAccessLayerException;
+
+	/**
+	 * Internal method where each concrete implementor defines how to retrieve several identifiers at once.
+	 * The default implementation simply loops over the input values and calls {@link #getIdInternal(Object, boolean)}; 
+	 * implementors that are backed by a (remote) storage should override this method in order to minimize round-trips.
+	 * 
+	 * @param values the values.
+	 * @param p the predicate flag.
+	 * @return the identifiers associated with the given values, in the same order of the input list.
+	 * @throws DataAccessLayerException in case of data access failure.
+	 */
+	protected byte[][] getIdsInternal(final List<V> values, final boolean p) throws DataAccessLayerException {
+		final byte[][] ids = new byte[values.size()][];
+		for (int i = 0; i < ids.length; i++) {
+			final V value = values.get(i);
+			if (value != null) {
+				ids[i] = getIdInternal(value, p);
+			}
+		}
+		return ids;
+	}
 	
 	/**
 	 * Internal method where each concrete implementor must define for retrieving values.
@@ -135,4 +170,22 @@ public abstract class DictionaryBase<V> implements IDictionary<V>, ManageableDic
 	 * @throws DataAccessLayerException in case of data access failure.
 	 */
 	protected abstract V getValueInternal(byte[] id, boolean p) throws DataAccessLayerException;	
+
+	/**
+	 * Internal method where each concrete implementor defines how to retrieve several values at once.
+	 * The default implementation simply loops over the input identifiers and calls {@link #getValueInternal(byte[], boolean)}; 
+	 * implementors that are backed by a (remote) storage should override this method in order to minimize round-trips.
+	 * 
+	 * @param ids the identifiers.
+	 * @param p the predicate flag.
+	 * @return the values associated with the given identifiers, in the same order of the input list.
+	 * @throws DataAccessLayerException in case of data access failure.
+	 */
+	protected List<V> getValuesInternal(final List<byte[]> ids, final boolean p) throws DataAccessLayerException {
+		final List<V> values = new ArrayList<V>(ids.size());
+		for (final byte[] id : ids) {
+			values.add(id != null ? getValueInternal(id, p) : null);
+		}
+		return values;
+	}
 }
\ No newline at end of file
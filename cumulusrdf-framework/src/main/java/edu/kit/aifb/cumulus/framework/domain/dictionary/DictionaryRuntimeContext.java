@@ -9,5 +9,8 @@ package edu.kit.aifb.cumulus.framework.domain.dictionary;
 public class DictionaryRuntimeContext {
 	// CHECKSTYLE:OFF
 	public Boolean isFirstLevelResult;
+	
+	/* Same as above, but used in bulk lookups: each entry refers to the value at the same position in the request. */
+	public boolean[] firstLevelResults;
 	// CHECKSTYLE:ON
 }
\ No newline at end of file
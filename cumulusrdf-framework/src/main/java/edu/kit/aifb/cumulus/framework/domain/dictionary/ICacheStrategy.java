@@ -1,6 +1,7 @@
 package edu.kit.aifb.cumulus.framework.domain.dictionary;
 
 import java.nio.ByteBuffer;
+import java.util.List;
 
 /**
  * Interface for defining cache strategies behaviour.
@@ -26,4 +27,22 @@ public interface ICacheStrategy<V> {
 	 * @param id the value identifier.
 	 */
 	void cacheValue(V value, byte[] id);
+
+	/**
+	 * Caches a list of values and their corresponding identifiers.
+	 * This is the bulk version of {@link #cacheValue(Object, byte[])}.
+	 * 
+	 * @param values the values.
+	 * @param ids the value identifiers, in the same order of values.
+	 */
+	void cacheValues(List<V> values, byte[][] ids);
+
+	/**
+	 * Caches a list of identifiers and their corresponding values.
+	 * This is the bulk version of {@link #cacheId(ByteBuffer, Object)}.
+	 * 
+	 * @param ids the value identifiers.
+	 * @param values the values, in the same order of identifiers.
+	 */
+	void cacheIds(List<ByteBuffer> ids, List<V> values);
 }
\ No newline at end of file
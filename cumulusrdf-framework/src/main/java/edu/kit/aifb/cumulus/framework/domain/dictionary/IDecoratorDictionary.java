@@ -0,0 +1,20 @@
+package edu.kit.aifb.cumulus.framework.domain.dictionary;
+
+import java.util.List;
+
+/**
+ * A dictionary that decorates one or more other dictionaries.
+ * Allows to walk a dictionary chain, in order to find a given kind of dictionary (e.g. a cache).
+ * 
+ * @author agent
+ * @since 1.1.0
+ */
+public interface IDecoratorDictionary {
+
+	/**
+	 * Returns the dictionaries decorated by this dictionary.
+	 * 
+	 * @return the dictionaries decorated by this dictionary.
+	 */
+	List<IDictionary<?>> getDecoratees();
+}
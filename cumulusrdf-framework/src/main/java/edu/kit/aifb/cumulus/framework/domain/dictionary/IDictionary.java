@@ -1,5 +1,7 @@
 package edu.kit.aifb.cumulus.framework.domain.dictionary;
 
+import java.util.List;
+
 import edu.kit.aifb.cumulus.framework.Initialisable;
 import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerException;
 
@@ -34,6 +36,18 @@ public interface IDictionary<V> extends Initialisable {
 	 * @throws DataAccessLayerException in case of data access failure.
 	 */
 	byte[] getID(V node, boolean p) throws DataAccessLayerException;
+
+	/**
+	 * Returns the identifiers of the given resources.
+	 * This is the bulk version of {@link #getID(Object, boolean)}: implementors are supposed to 
+	 * resolve the whole list with as few storage round-trips as possible.
+	 * 
+	 * @param nodes the resources (not null).
+	 * @param p a flag indicating if the resources are predicates.
+	 * @return the identifiers of the given resources, in the same order of the input list.
+	 * @throws DataAccessLayerException in case of data access failure.
+	 */
+	byte[][] getIDs(List<V> nodes, boolean p) throws DataAccessLayerException;
 	
 	/**
 	 * Returns the value associated with the given identifier.
@@ -45,6 +59,18 @@ public interface IDictionary<V> extends Initialisable {
 	 */
 	V getValue(byte[] id, boolean p) throws DataAccessLayerException;
 
+	/**
+	 * Returns the values associated with the given identifiers.
+	 * This is the bulk version of {@link #getValue(byte[], boolean)}: implementors are supposed to 
+	 * resolve the whole list with as few storage round-trips as possible.
+	 * 
+	 * @param ids the identifiers (not null).
+	 * @param p a flag indicating if the identifiers correspond to predicates.
+	 * @return the values associated with the given identifiers, in the same order of the input list.
+	 * @throws DataAccessLayerException in case of data access failure.
+	 */
+	List<V> getValues(List<byte[]> ids, boolean p) throws DataAccessLayerException;
+
 	/**
 	 * Removes a given value from this dictionary.
 	 *  
@@ -1,6 +1,7 @@
 package edu.kit.aifb.cumulus.framework.domain.dictionary;
 
 import java.util.Iterator;
+import java.util.List;
 
 import org.openrdf.model.Statement;
 import org.openrdf.model.Value;
@@ -38,6 +39,18 @@ public interface ITopLevelDictionary extends IDictionary<Value> {
 	 * @throws DataAccessLayerException in case of data access failure.
 	 */
 	byte[][] getIDs(Value s, Value p, Value o, Value c) throws DataAccessLayerException;
+
+	/**
+	 * Returns the identifiers of the given statements.
+	 * Statements with a context are translated in quads (4 identifiers), the others in triples (3 identifiers).
+	 * This is the bulk version of {@link #getIDs(Value, Value, Value)} and {@link #getIDs(Value, Value, Value, Value)}: 
+	 * values are deduplicated and resolved in bulk, so the whole chunk costs (at most) a few storage round-trips.
+	 * 
+	 * @param statements the statements.
+	 * @return the identifiers of the given statements, in the same order of the input list.
+	 * @throws DataAccessLayerException in case of data access failure.
+	 */
+	List<byte[][]> getIDs(List<Statement> statements) throws DataAccessLayerException;
 	
 	/**
 	 * Converts the given identifiers in a statement.
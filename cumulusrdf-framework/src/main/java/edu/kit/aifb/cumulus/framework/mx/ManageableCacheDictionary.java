@@ -87,5 +87,30 @@ public interface ManageableCacheDictionary extends ManageableDictionary {
 	 * 
 	 * @return the total number of value evictions.
 	 */
-	long getValueEvictionsCount();	
-}
\ No newline at end of file
+	long getValueEvictionsCount();
+	
+	/**
+	 * Distribution of the id hits ratio over time.
+	 * Lookups are grouped in 1 second intervals: the i-th element is the number of intervals 
+	 * whose hits ratio was between i * 10% and (i + 1) * 10%.
+	 * 
+	 * @return the id hits ratio histogram.
+	 */
+	long[] getIdHitsRatioHistogram();
+	
+	/**
+	 * Distribution of the value hits ratio over time.
+	 * Lookups are grouped in 1 second intervals: the i-th element is the number of intervals 
+	 * whose hits ratio was between i * 10% and (i + 1) * 10%.
+	 * 
+	 * @return the value hits ratio histogram.
+	 */
+	long[] getValueHitsRatioHistogram();
+	
+	/**
+	 * Returns true if cached values are kept outside the Java heap.
+	 * 
+	 * @return true if cached values are kept outside the Java heap.
+	 */
+	boolean isOffHeap();
+}
@@ -0,0 +1,66 @@
+package edu.kit.aifb.cumulus.framework.mx;
+
+import javax.management.MXBean;
+
+/**
+ * Management interface of a query plan cache.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+@MXBean
+public interface ManageableQueryPlanCache extends Manageable {
+	/**
+	 * Returns the maximum number of plans in this cache.
+	 *
+	 * @return the maximum number of plans in this cache.
+	 */
+	int getMaxSize();
+
+	/**
+	 * Returns the total count of currently cached plans.
+	 *
+	 * @return the total count of currently cached plans.
+	 */
+	int getCachedPlansCount();
+
+	/**
+	 * The total number of hits (i.e. queries whose plan was in cache) occurred since this cache has been created.
+	 *
+	 * @return the total number of hits occurred since this cache has been created.
+	 */
+	long getHitsCount();
+
+	/**
+	 * The total number of misses (i.e. queries that have been planned) occurred since this cache has been created.
+	 *
+	 * @return the total number of misses occurred since this cache has been created.
+	 */
+	long getMissesCount();
+
+	/**
+	 * Hits ratio (percentage of hits over total lookups).
+	 *
+	 * @return the hits ratio.
+	 */
+	double getHitsRatio();
+
+	/**
+	 * The total number of evictions (i.e. least recently used plans removed for making room to other plans).
+	 *
+	 * @return the total number of evictions.
+	 */
+	long getEvictionsCount();
+
+	/**
+	 * The total number of invalidations (i.e. plans removed because the data changed too much since they have been planned).
+	 *
+	 * @return the total number of invalidations.
+	 */
+	long getInvalidationsCount();
+
+	/**
+	 * Removes all cached plans.
+	 */
+	void clear();
+}
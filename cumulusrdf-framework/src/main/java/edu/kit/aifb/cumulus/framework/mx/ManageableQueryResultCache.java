@@ -0,0 +1,87 @@
+package edu.kit.aifb.cumulus.framework.mx;
+
+import javax.management.MXBean;
+
+/**
+ * Management interface of the query result cache.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+@MXBean
+public interface ManageableQueryResultCache extends Manageable {
+	/**
+	 * Returns the (approximate) maximum size of this cache, in bytes.
+	 *
+	 * @return the (approximate) maximum size of this cache, in bytes.
+	 */
+	long getMaxSize();
+
+	/**
+	 * Returns the (approximate) current size of this cache, in bytes.
+	 *
+	 * @return the (approximate) current size of this cache, in bytes.
+	 */
+	long getSize();
+
+	/**
+	 * Returns the maximum number of results that a cached query can have.
+	 *
+	 * @return the maximum number of results that a cached query can have.
+	 */
+	int getMaxResults();
+
+	/**
+	 * Returns the time to live of cached queries, in milliseconds.
+	 *
+	 * @return the time to live of cached queries, in milliseconds, a value lower than 1 means cached queries never expire.
+	 */
+	long getTtl();
+
+	/**
+	 * Returns the total count of currently cached queries.
+	 *
+	 * @return the total count of currently cached queries.
+	 */
+	int getCachedQueriesCount();
+
+	/**
+	 * The total number of hits (i.e. queries whose results were in cache) occurred since this cache has been created.
+	 *
+	 * @return the total number of hits occurred since this cache has been created.
+	 */
+	long getHitsCount();
+
+	/**
+	 * The total number of misses (i.e. queries that have been evaluated) occurred since this cache has been created.
+	 *
+	 * @return the total number of misses occurred since this cache has been created.
+	 */
+	long getMissesCount();
+
+	/**
+	 * Hits ratio (percentage of hits over total lookups).
+	 *
+	 * @return the hits ratio.
+	 */
+	double getHitsRatio();
+
+	/**
+	 * The total number of evictions (i.e. cached results removed for making room to other results).
+	 *
+	 * @return the total number of evictions.
+	 */
+	long getEvictionsCount();
+
+	/**
+	 * The total number of invalidations (i.e. cached results removed because the underlying data changed or they expired).
+	 *
+	 * @return the total number of invalidations.
+	 */
+	long getInvalidationsCount();
+
+	/**
+	 * Removes all cached results.
+	 */
+	void clear();
+}
@@ -73,4 +73,68 @@ public interface ManageableStore extends Manageable {
 	 * @return the overall throughput of the latest bulk load.
 	 */
 	double getLoadThroughput();	
-}
\ No newline at end of file
+
+	/**
+	 * Returns the throughput of the parse stage of the latest bulk load (in terms of triples / second).
+	 * 
+	 * @return the throughput of the parse stage of the latest bulk load.
+	 */
+	double getParseThroughput();
+
+	/**
+	 * Returns the throughput of the dictionary encoding stage of the latest bulk load (in terms of triples / second).
+	 * 
+	 * @return the throughput of the dictionary encoding stage of the latest bulk load.
+	 */
+	double getEncodeThroughput();
+
+	/**
+	 * Returns the throughput of the index write stage of the latest bulk load (in terms of triples / second).
+	 * 
+	 * @return the throughput of the index write stage of the latest bulk load.
+	 */
+	double getIndexWriteThroughput();
+
+	/**
+	 * Returns the throughput of the statistics stage of the latest bulk load (in terms of triples / second).
+	 * 
+	 * @return the throughput of the statistics stage of the latest bulk load.
+	 */
+	double getStatsThroughput();
+
+	/**
+	 * Saves the hottest entries of the dictionary caches in snapshot files, that will be used for warming up the caches
+	 * the next time the store opens.
+	 * 
+	 * @return the number of entries that have been saved, 0 if cache snapshots are not enabled.
+	 */
+	int snapshotDictionaryCaches();
+
+	/**
+	 * Returns the number of snapshot entries that have been preloaded so far in dictionary caches.
+	 * 
+	 * @return the number of snapshot entries that have been preloaded so far in dictionary caches.
+	 */
+	long getWarmUpLoadedEntries();
+
+	/**
+	 * Returns the number of entries in the snapshots that will be preloaded in dictionary caches.
+	 * 
+	 * @return the number of entries in the snapshots that will be preloaded in dictionary caches.
+	 */
+	long getWarmUpTotalEntries();
+
+	/**
+	 * Returns the progress (as a percentage) of the dictionary caches warm-up.
+	 * 
+	 * @return the progress (as a percentage) of the dictionary caches warm-up.
+	 */
+	double getWarmUpProgress();
+
+	/**
+	 * Returns true if the dictionary caches warm-up is in progress.
+	 * 
+	 * @return true if the dictionary caches warm-up is in progress.
+	 */
+	boolean isWarmUpRunning();
+}
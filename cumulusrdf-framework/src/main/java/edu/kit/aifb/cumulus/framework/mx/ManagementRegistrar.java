@@ -51,6 +51,28 @@ public abstract class ManagementRegistrar {
 		register(dictionary, createDictionaryObjectName(dictionary.getId()));
 	}
 
+	/**
+	 * Registers a query result cache management interface.
+	 * 
+	 * @param cache the query result cache.
+	 * @throws JMException in case of registration failure.
+	 * @throws InstanceAlreadyExistsException in case the cache has been already registered.
+	 */
+	public static void registerQueryResultCache(final ManageableQueryResultCache cache) throws InstanceAlreadyExistsException, JMException {
+		register(cache, createQueryResultCacheObjectName(cache.getId()));
+	}
+
+	/**
+	 * Registers a query plan cache management interface.
+	 * 
+	 * @param cache the query plan cache.
+	 * @throws JMException in case of registration failure.
+	 * @throws InstanceAlreadyExistsException in case the cache has been already registered.
+	 */
+	public static void registerQueryPlanCache(final ManageableQueryPlanCache cache) throws InstanceAlreadyExistsException, JMException {
+		register(cache, createQueryPlanCacheObjectName(cache.getId()));
+	}
+
 	/**
 	 * General purposes registration method.
 	 * Note that we usually prefer specific registration methods.
@@ -84,6 +106,24 @@ public abstract class ManagementRegistrar {
 	public static void unregisterDictionary(final ManageableDictionary dictionary) {
 		unregister(createDictionaryObjectName(dictionary.getId()));
 	}
+	/**
+	 * Unregisters a query result cache management interface.
+	 * 
+	 * @param cache the query result cache.
+	 */
+	public static void unregisterQueryResultCache(final ManageableQueryResultCache cache) {
+		unregister(createQueryResultCacheObjectName(cache.getId()));
+	}
+
+	/**
+	 * Unregisters a query plan cache management interface.
+	 * 
+	 * @param cache the query plan cache.
+	 */
+	public static void unregisterQueryPlanCache(final ManageableQueryPlanCache cache) {
+		unregister(createQueryPlanCacheObjectName(cache.getId()));
+	}
+
 	/**
 	 * General purposes unregistration method.
 	 * Note that we usually prefer specific registration methods.
@@ -117,6 +157,34 @@ public abstract class ManagementRegistrar {
 		}
 	}
 	
+	/**
+	 * ObjectNames (i.e. management names) factory for query result caches.
+	 * 
+	 * @param id the cache identifier.
+	 * @return the {@link ObjectName} associated with the given identifier. 
+	 */
+	static ObjectName createQueryResultCacheObjectName(final String id) {
+		try {
+			return new ObjectName(DOMAIN + "Type=QueryResultCache,ID=" + id);
+		} catch (final Exception exception) {
+			throw new RuntimeException(exception);
+		}
+	}
+	
+	/**
+	 * ObjectNames (i.e. management names) factory for query plan caches.
+	 * 
+	 * @param id the cache identifier.
+	 * @return the {@link ObjectName} associated with the given identifier. 
+	 */
+	static ObjectName createQueryPlanCacheObjectName(final String id) {
+		try {
+			return new ObjectName(DOMAIN + "Type=QueryPlanCache,ID=" + id);
+		} catch (final Exception exception) {
+			throw new RuntimeException(exception);
+		}
+	}
+	
 	/**
 	 * ObjectNames (i.e. management names) factory for stores.
 	 * 
@@ -133,4 +133,21 @@ public interface MessageCatalog {
 	String _00114_UNDERLYING_STORAGE = PREFIX + "-00114> : Store #%s, underlying storage: %s";
 	
 	String _00115_WEB_MODULE_REQUEST_NOT_VALID = PREFIX + "-00115> : Servlet request was not valid.";
-}
\ No newline at end of file
+	String _00116_BULK_LOAD_PIPELINE = PREFIX + "-00116> : Bulk load pipeline: %s encoder(s), %s index writer(s), queues of %s chunks.";
+	String _00117_BULK_LOAD_STAGE_STATS = PREFIX + "-00117> : Bulk load stage '%s' (%s threads): %s triples in %s ms (%s triples/s)";
+	String _00118_BULK_LOAD_STAGE_FAILURE = PREFIX + "-00118> : Bulk load stage '%s' failed. The load will be aborted. See below for further details.";
+	String _00119_CASSANDRA_WRITE_MODE = PREFIX + "-00119> : Cassandra write mode: %s (max %s asynchronous writes in flight).";
+	String _00120_SELECTIVITY_ESTIMATOR_INIT_FAILURE = PREFIX + "-00120> : System was unable to initialise the selectivity estimator. See below for further details.";
+	String _00121_LOCAL_TABLE_OPENED = PREFIX + "-00121> : Local table %s opened: %s segment(s), %s mutation(s) recovered from logs.";
+	String _00122_LOCAL_TABLE_COMPACTED = PREFIX + "-00122> : Local table %s: %s segments compacted in %s ms.";
+	String _00123_IN_MEMORY_INDEX_FULL = PREFIX + "-00123> : In-memory index %s cannot hold more than %s tuples.";
+	String _00124_CACHE_WARM_UP_COMPLETED = PREFIX + "-00124> : Dictionary caches warm-up completed: %s entries (out of %s) loaded from %s in %s ms.";
+	String _00125_CACHE_SNAPSHOT_WRITTEN = PREFIX + "-00125> : Dictionary caches snapshot: %s entries written in %s in %s ms.";
+	String _00126_CACHE_WARM_UP_FAILURE = PREFIX + "-00126> : Unable to preload dictionary cache %s from snapshot %s. See below for further details.";
+	String _00127_CACHE_SNAPSHOT_FAILURE = PREFIX + "-00127> : Unable to write the snapshot of dictionary cache %s. See below for further details.";
+	String _00128_CLIENT_DISCONNECTED = PREFIX + "-00128> : Client disconnected after %s results, query evaluation has been cancelled.";
+	String _00129_LOCAL_TABLE_COMPACTION_FAILURE = PREFIX + "-00129> : Local table %s: background compaction failed. See below for further details.";
+	String _00130_REVERSE_TABLE_FILLED = PREFIX + "-00130> : Reverse lookup table %s filled with %s entries, the old value index has been dropped.";
+	String _00131_COULDNT_LOAD_NODES = PREFIX + "-00131> : Could not load a batch of %s nodes %s. See below for further details.";
+	String _00132_CACHE_SNAPSHOT_SKIPPED = PREFIX + "-00132> : Dictionary caches snapshot skipped: the warm-up from %s did not complete.";
+}
@@ -4,6 +4,10 @@ import static edu.kit.aifb.cumulus.datasource.impl.Cassandra12xHectorConstants.S
 import static edu.kit.aifb.cumulus.datasource.impl.Utils.hasColumnFamily;
 import static me.prettyprint.hector.api.factory.HFactory.createCounterColumn;
 import static me.prettyprint.hector.api.factory.HFactory.createMutator;
+
+import java.util.ArrayList;
+import java.util.List;
+
 import me.prettyprint.cassandra.model.thrift.ThriftCounterColumnQuery;
 import me.prettyprint.hector.api.beans.HCounterColumn;
 import me.prettyprint.hector.api.ddl.ColumnFamilyDefinition;
@@ -72,6 +76,15 @@ public class Cassandra12xCounterDAO<K> extends Cassandra12xMapDAO<K, Long> imple
 		}
 	}
 
+	@Override
+	public List<Long> getAll(final List<K> keys) {
+		final List<Long> values = new ArrayList<Long>(keys.size());
+		for (final K key : keys) {
+			values.add(get(key));
+		}
+		return values;
+	}
+
 	@Override
 	public void increment(final K key, final Long delta) {
 		createMutator(_keyspace, _serializer_k).incrementCounter(key, _cf_name, COLUMN_NAME_AS_STRING, delta);
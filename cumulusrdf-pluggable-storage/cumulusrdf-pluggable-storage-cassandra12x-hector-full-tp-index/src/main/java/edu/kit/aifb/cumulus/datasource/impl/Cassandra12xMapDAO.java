@@ -6,6 +6,8 @@ import static me.prettyprint.hector.api.factory.HFactory.createColumn;
 import static me.prettyprint.hector.api.factory.HFactory.createColumnQuery;
 import static me.prettyprint.hector.api.factory.HFactory.createMutator;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -13,6 +15,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
 import me.prettyprint.cassandra.model.BasicColumnDefinition;
 import me.prettyprint.cassandra.serializers.BytesArraySerializer;
 import me.prettyprint.cassandra.serializers.SerializerTypeInferer;
@@ -22,6 +27,7 @@ import me.prettyprint.hector.api.Keyspace;
 import me.prettyprint.hector.api.Serializer;
 import me.prettyprint.hector.api.beans.HColumn;
 import me.prettyprint.hector.api.beans.Row;
+import me.prettyprint.hector.api.beans.Rows;
 import me.prettyprint.hector.api.ddl.ColumnFamilyDefinition;
 import me.prettyprint.hector.api.ddl.ColumnIndexType;
 import me.prettyprint.hector.api.ddl.ColumnType;
@@ -30,6 +36,7 @@ import me.prettyprint.hector.api.ddl.KeyspaceDefinition;
 import me.prettyprint.hector.api.factory.HFactory;
 import me.prettyprint.hector.api.mutation.Mutator;
 import me.prettyprint.hector.api.query.ColumnQuery;
+import me.prettyprint.hector.api.query.MultigetSliceQuery;
 import me.prettyprint.hector.api.query.QueryResult;
 import me.prettyprint.hector.api.query.RangeSlicesQuery;
 
@@ -145,6 +152,34 @@ public class Cassandra12xMapDAO<K, V> implements MapDAO<K, V> {
 		}
 	}
 
+	@Override
+	public List<V> getAll(final List<K> keys) throws DataAccessLayerException {
+		final MultigetSliceQuery<K, byte[], V> q = HFactory.createMultigetSliceQuery(_keyspace, _serializer_k, BYTE_SERIALIZER, _serializer_v);
+		q.setKeys(keys).setColumnFamily(_cf_name).setColumnNames(COLUMN_NAME);
+		final Rows<K, byte[], V> rows = q.execute().get();
+
+		// Keys could be arrays, so rows are matched using their serialized form.
+		final Map<ByteBuffer, V> found = new HashMap<ByteBuffer, V>(rows.getCount());
+		for (final Row<K, byte[], V> row : rows) {
+			final HColumn<byte[], V> c = row.getColumnSlice().getColumnByName(COLUMN_NAME);
+			if (c != null) {
+				found.put(_serializer_k.toByteBuffer(row.getKey()), c.getValue());
+			}
+		}
+
+		final List<V> values = new ArrayList<V>(keys.size());
+		for (final K key : keys) {
+			final V value = found.get(_serializer_k.toByteBuffer(key));
+			values.add(value != null ? value : _default_value);
+		}
+		return values;
+	}
+
+	@Override
+	public ListenableFuture<List<V>> getAllAsync(final List<K> keys) throws DataAccessLayerException {
+		return Futures.immediateFuture(getAll(keys));
+	}
+
 	@Override
 	public Iterator<K> keyIterator() {
 		return new Builder<K>(_keyspace, _cf_name, _serializer_k).build().iterator();
@@ -187,6 +222,12 @@ public class Cassandra12xMapDAO<K, V> implements MapDAO<K, V> {
 		}
 	}
 
+	@Override
+	public ListenableFuture<Void> setAllAsync(final Map<K, V> pairs) throws DataAccessLayerException {
+		setAll(pairs);
+		return Futures.immediateFuture(null);
+	}
+
 	@Override
 	public void setDefaultValue(final V defaultValue) {
 		_default_value = defaultValue;
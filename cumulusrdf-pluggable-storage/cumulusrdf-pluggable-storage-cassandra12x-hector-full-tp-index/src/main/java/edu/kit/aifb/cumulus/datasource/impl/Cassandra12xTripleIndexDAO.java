@@ -28,6 +28,7 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -64,6 +65,7 @@ import org.openrdf.model.Value;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.AbstractIterator;
+import com.google.common.primitives.UnsignedBytes;
 
 import edu.kit.aifb.cumulus.datasource.ColumnFamily;
 import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerException;
@@ -1000,6 +1002,28 @@ public class Cassandra12xTripleIndexDAO implements TripleIndexDAO {
 		}
 	}
 
+	@Override
+	public List<Iterator<byte[][]>> query(final List<byte[][]> queries, final int limit) throws DataAccessLayerException {
+		final List<Iterator<byte[][]>> results = new ArrayList<Iterator<byte[][]>>(queries.size());
+		for (final byte[][] query : queries) {
+			results.add(query(query, limit));
+		}
+		return results;
+	}
+
+	/**
+	 * Results are not sorted: rows are spread by the partitioner and composite columns mix identifiers with markers.
+	 */
+	@Override
+	public int sortedBy(final byte[][] query) {
+		return -1;
+	}
+
+	@Override
+	public Comparator<byte[]> getIdentifiersOrder() {
+		return UnsignedBytes.lexicographicalComparator();
+	}
+
 	@SuppressWarnings("unchecked")
 	@Override
 	public Iterator<byte[][]> query(final byte[][] query, final int limit) throws DataAccessLayerException {
@@ -24,6 +24,9 @@ public interface ConfigurationParameter {
 	String SERIAL_CONSISTENCY_LEVEL = "cassandra-serial-consistency-level";
 	String FETCH_SIZE = "cassandra-fetch-size";
 	
+	// Paging options: FETCH_SIZE + "-" + shape (e.g. cassandra-fetch-size-po) overrides the fetch size for a query shape
+	String PREFETCH_PERCENT = "cassandra-prefetch-percent";
+	
 	String RETRY_POLICY = "cassandra-retry-policy";
 	String RECONNECTION_POLICY = "cassandra-reconnection-policy";
 	String LOAD_BALANCING_POLICY = "cassandra-load-balancing-policy";
@@ -43,4 +46,8 @@ public interface ConfigurationParameter {
 	String REPLICATION_FACTOR = "cassandra-replication-factor";
 	
 	String TTL = "cassandra-ttl-value";
+	
+	// Write options
+	String WRITE_MODE = "cassandra-write-mode";
+	String MAX_ASYNC_WRITES = "cassandra-max-async-writes";
 }
\ No newline at end of file
@@ -0,0 +1,50 @@
+package edu.kit.aifb.cumulus.datasource;
+
+/**
+ * How index mutations are sent to Cassandra.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+public enum WriteMode {
+	/** All pending mutations are sent in one LOGGED batch (the historical behaviour). */
+	LOGGED_BATCH("logged-batch"),
+
+	/** Pending mutations are grouped by partition: each group is sent as an UNLOGGED batch. */
+	UNLOGGED_BATCH("unlogged-batch"),
+
+	/** Each mutation is sent as soon as it is collected, as an asynchronous single statement. */
+	ASYNC("async");
+
+	private final String _name;
+
+	/**
+	 * Builds a new write mode with the given (configuration) name.
+	 *
+	 * @param name the name used in configuration for this mode.
+	 */
+	private WriteMode(final String name) {
+		_name = name;
+	}
+
+	/**
+	 * Returns the write mode associated with the given configuration value.
+	 *
+	 * @param name the configuration value.
+	 * @param defaultMode the mode that will be returned in case the name is null or unknown.
+	 * @return the write mode associated with the given configuration value.
+	 */
+	public static WriteMode forName(final String name, final WriteMode defaultMode) {
+		for (final WriteMode mode : values()) {
+			if (mode._name.equalsIgnoreCase(name)) {
+				return mode;
+			}
+		}
+		return defaultMode;
+	}
+
+	@Override
+	public String toString() {
+		return _name;
+	}
+}
@@ -1,13 +1,18 @@
 package edu.kit.aifb.cumulus.datasource.impl;
 
+import java.io.Closeable;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.concurrent.ExecutionException;
 
 import org.slf4j.LoggerFactory;
 
+import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Row;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
 
 import edu.kit.aifb.cumulus.datasource.serializer.Serializer;
 import edu.kit.aifb.cumulus.log.Log;
@@ -15,15 +20,23 @@ import edu.kit.aifb.cumulus.log.MessageCatalog;
 
 /**
  * An iterator that converts {@link Row}s to arrays of ids.
+ * If a prefetch threshold has been set, the next page is (asynchronously) requested as soon as the rows
+ * left in the current page are less than or equal to that threshold: at most one page is read ahead.
+ * A failure of the prefetched page is raised as soon as the current page has been consumed.
+ * Closing the iterator cancels the page in flight, if any.
  * 
  * @author Sebastian Schmidt
  * @since 1.1
  */
-public abstract class AbstractResultIterator implements Iterator<byte[][]> {
+public abstract class AbstractResultIterator implements Iterator<byte[][]>, Closeable {
 	private static final Log LOG = new Log(LoggerFactory.getLogger(AbstractResultIterator.class));
 
 	private final ResultSetFuture _resultSetFuture;
+	private final int _prefetchThreshold;
+	private ResultSet _resultSet;
 	private Iterator<Row> _resultIterator;
+	private ListenableFuture<ResultSet> _nextPage;
+	private volatile boolean _closed;
 	protected final Serializer<byte[]> _idSerializer = Serializer.BYTE_ARRAY_SERIALIZER;
 
 	/**
@@ -33,20 +46,79 @@ public abstract class AbstractResultIterator implements Iterator<byte[][]> {
 	 * @param resultSetFuture The result set to iterate through.
 	 */
 	public AbstractResultIterator(final ResultSetFuture resultSetFuture) {
+		this(resultSetFuture, 0);
+	}
+
+	/**
+	 * Creates a new result iterator that prefetches the next page of the given result set.
+	 * 
+	 * @param resultSetFuture The result set to iterate through.
+	 * @param prefetchThreshold The number of rows left in the current page that triggers the fetch of the next page, 0 disables prefetching.
+	 */
+	public AbstractResultIterator(final ResultSetFuture resultSetFuture, final int prefetchThreshold) {
 		_resultSetFuture = resultSetFuture;
+		_prefetchThreshold = prefetchThreshold;
 	}
 
 	@Override
 	public boolean hasNext() {
+		if (_closed) {
+			return false;
+		}
+
 		ensureResultIteratorExists();
 
 		if (_resultIterator != null) {
+			// The prefetched page is waited for when the current page has been consumed.
+			// If it arrived before, the rows above the threshold tell that it succeeded: a new page can be prefetched.
+			if (_nextPage != null) {
+				final int available = _resultSet.getAvailableWithoutFetching();
+				if (available == 0 || (_nextPage.isDone() && available > _prefetchThreshold)) {
+					awaitNextPage();
+				}
+			}
+
+			if (_prefetchThreshold > 0 
+					&& _nextPage == null
+					&& _resultSet.getAvailableWithoutFetching() <= _prefetchThreshold 
+					&& !_resultSet.isFullyFetched()) {
+				// Non blocking.
+				_nextPage = _resultSet.fetchMoreResults();
+			}
 			return _resultIterator.hasNext();
 		} else {
 			return false;
 		}
 	}
 
+	/**
+	 * Waits for the prefetched page, raising its failure (if any).
+	 */
+	private void awaitNextPage() {
+		final ListenableFuture<ResultSet> nextPage = _nextPage;
+		_nextPage = null;
+		try {
+			Uninterruptibles.getUninterruptibly(nextPage);
+		} catch (final ExecutionException exception) {
+			LOG.error(MessageCatalog._00106_ERROR_FETCHING_QUERY_RESULT, exception.getCause());
+			throw Throwables.propagate(exception.getCause());
+		}
+	}
+
+	/**
+	 * Closes this iterator, cancelling the pending request (first or prefetched page), if any.
+	 */
+	@Override
+	public void close() {
+		_closed = true;
+		_resultSetFuture.cancel(true);
+
+		final ListenableFuture<ResultSet> nextPage = _nextPage;
+		if (nextPage != null) {
+			nextPage.cancel(true);
+		}
+	}
+
 	@Override
 	public byte[][] next() {
 		if (!hasNext()) {
@@ -77,7 +149,8 @@ public abstract class AbstractResultIterator implements Iterator<byte[][]> {
 			// Only synchronized if necessary.
 			synchronized (this) {
 				try {
-					_resultIterator = _resultSetFuture.get().iterator();
+					_resultSet = _resultSetFuture.get();
+					_resultIterator = _resultSet.iterator();
 				} catch (InterruptedException e) {
 					LOG.error(MessageCatalog._00106_ERROR_FETCHING_QUERY_RESULT, e);
 				} catch (ExecutionException e) {
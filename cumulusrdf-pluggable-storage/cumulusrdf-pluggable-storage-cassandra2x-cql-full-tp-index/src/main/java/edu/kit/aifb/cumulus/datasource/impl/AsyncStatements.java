@@ -0,0 +1,95 @@
+package edu.kit.aifb.cumulus.datasource.impl;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerException;
+
+/**
+ * Helpers for pipelined (asynchronous) statements.
+ * Statements are prepared, so the driver knows their routing key and (with a token aware load balancing policy)
+ * sends each of them directly to a replica.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+final class AsyncStatements {
+
+	static final Function<List<ResultSet>, Void> TO_VOID = new Function<List<ResultSet>, Void>() {
+		@Override
+		public Void apply(final List<ResultSet> input) {
+			return null;
+		}
+	};
+
+	/**
+	 * No instantiation allowed.
+	 */
+	private AsyncStatements() {
+		// Nothing
+	}
+
+	/**
+	 * Sends a statement asynchronously, waiting if too many requests are in flight.
+	 *
+	 * @param session the Cassandra session.
+	 * @param statement the statement.
+	 * @param inFlight the semaphore that bounds the number of requests in flight.
+	 * @return the future result of the statement.
+	 * @throws DataAccessLayerException if interrupted while waiting.
+	 */
+	static ResultSetFuture executeAsync(final Session session, final Statement statement, final Semaphore inFlight) throws DataAccessLayerException {
+		try {
+			inFlight.acquire();
+		} catch (final InterruptedException exception) {
+			Thread.currentThread().interrupt();
+			throw new DataAccessLayerException(exception);
+		}
+
+		final ResultSetFuture future = session.executeAsync(statement);
+		future.addListener(new Runnable() {
+			@Override
+			public void run() {
+				inFlight.release();
+			}
+		}, MoreExecutors.sameThreadExecutor());
+		return future;
+	}
+
+	/**
+	 * Returns a future that completes once all the given statements have been executed.
+	 *
+	 * @param futures the future results of the statements.
+	 * @return a future that completes once all the given statements have been executed.
+	 */
+	static ListenableFuture<Void> whenAll(final List<ResultSetFuture> futures) {
+		return Futures.transform(Futures.allAsList(futures), TO_VOID);
+	}
+
+	/**
+	 * Waits for a future result.
+	 *
+	 * @param future the future result.
+	 * @return the result.
+	 * @throws DataAccessLayerException in case the computation of the result failed.
+	 * @param <T> the result kind.
+	 */
+	static <T> T get(final ListenableFuture<T> future) throws DataAccessLayerException {
+		try {
+			return Uninterruptibles.getUninterruptibly(future);
+		} catch (final ExecutionException exception) {
+			throw new DataAccessLayerException(exception.getCause());
+		}
+	}
+}
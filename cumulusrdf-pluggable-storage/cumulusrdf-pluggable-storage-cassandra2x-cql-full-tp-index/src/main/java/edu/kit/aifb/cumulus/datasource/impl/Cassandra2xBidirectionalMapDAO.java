@@ -1,19 +1,30 @@
 package edu.kit.aifb.cumulus.datasource.impl;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Semaphore;
 
 import org.slf4j.LoggerFactory;
 
-import com.datastax.driver.core.BatchStatement;
 import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.KeyspaceMetadata;
 import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
+import com.datastax.driver.core.TableMetadata;
+import com.google.common.base.Function;
 import com.google.common.collect.AbstractIterator;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 
 import edu.kit.aifb.cumulus.datasource.serializer.Serializer;
 import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerException;
@@ -26,6 +37,14 @@ import edu.kit.aifb.cumulus.log.MessageCatalog;
  * A DAO that is able to do bidirectional lookups with any value size.
  * This is a workaround for a limit of Cassandra. In Cassandra, anything that gets indexed must not be greater than 64KB.
  * 
+ * Reverse lookups use a dedicated table, partitioned by the hash of the values: colliding values simply share the 
+ * same partition and are told apart by comparing them. Writing pairs reads the current values of their keys (with 
+ * pipelined reads), then writes the direct and the reverse entries with two (asynchronous) INSERTs; if the key 
+ * was mapped to a different value, the stale reverse entry is deleted too.
+ * 
+ * Tables created by previous versions have no reverse table, and index the hash of the values with a secondary index: 
+ * the reverse table is filled from the existing entries when the DAO is initialized, then the old index is dropped.
+ * 
  * @author Sebastian Schmidt
  * @since 1.1.0
  * 
@@ -34,11 +53,17 @@ import edu.kit.aifb.cumulus.log.MessageCatalog;
  */
 class Cassandra2xBidirectionalMapDAO<K, V> implements MapDAO<K, V> {
 
-	private static final Log LOG = new Log(LoggerFactory.getLogger(Cassandra2xBidirectionalMapDAO.class));
+	static final String REVERSE_TABLE_SUFFIX = "_reverse";
+	static final String LEGACY_INDEX_SUFFIX = "_value_index";
+	static final String LEGACY_HASH_COLUMN = "valuehash";
+
+	private static final Log LOGGER = new Log(LoggerFactory.getLogger(Cassandra2xBidirectionalMapDAO.class));
 
 	private final Session _session;
 	private final String _tableName;
+	private final String _reverseTableName;
 	private final int _ttl;
+	private final Semaphore _inFlightWrites;
 
 	private final Serializer<K> _keySerializer;
 	private final Serializer<V> _valueSerializer;
@@ -46,11 +71,12 @@ class Cassandra2xBidirectionalMapDAO<K, V> implements MapDAO<K, V> {
 	private V _defaultValue;
 
 	private PreparedStatement _insertStatement;
+	private PreparedStatement _insertReverseStatement;
 	private PreparedStatement _deleteStatement;
+	private PreparedStatement _deleteReverseStatement;
 	private PreparedStatement _getValueStatement;
 	private PreparedStatement _getKeyStatement;
 	private PreparedStatement _getAllStatement;
-	private PreparedStatement _checkHashStatement;
 
 	/**
 	 * Creates a new bidirectional DAO.
@@ -61,7 +87,7 @@ class Cassandra2xBidirectionalMapDAO<K, V> implements MapDAO<K, V> {
 	 * @param valueSerializer The serializer for the values.
 	 */
 	Cassandra2xBidirectionalMapDAO(final Session session, final String tableName, final Serializer<K> keySerializer, final Serializer<V> valueSerializer) {
-		this(session, tableName, -1, keySerializer, valueSerializer);
+		this(session, tableName, -1, keySerializer, valueSerializer, new Semaphore(Cassandra2xDefaultMapDAO.DEFAULT_MAX_ASYNC_WRITES));
 	}
 
 	/**
@@ -72,36 +98,95 @@ class Cassandra2xBidirectionalMapDAO<K, V> implements MapDAO<K, V> {
 	 * @param ttl The TTL for the entries.
 	 * @param keySerializer The serializer for the keys.
 	 * @param valueSerializer The serializer for the values.
+	 * @param inFlightWrites The semaphore that bounds the number of asynchronous writes in flight.
 	 */
 	public Cassandra2xBidirectionalMapDAO(final Session session, final String tableName,
-			final int ttl, final Serializer<K> keySerializer, final Serializer<V> valueSerializer) {
+			final int ttl, final Serializer<K> keySerializer, final Serializer<V> valueSerializer, final Semaphore inFlightWrites) {
 
 		_tableName = tableName;
+		_reverseTableName = tableName + REVERSE_TABLE_SUFFIX;
 		_session = session;
 		_ttl = ttl;
 		_keySerializer = keySerializer;
 		_valueSerializer = valueSerializer;
+		_inFlightWrites = inFlightWrites;
 	}
 
 	@Override
 	public void createRequiredSchemaEntities() throws DataAccessLayerException {
-		_session.execute("CREATE TABLE IF NOT EXISTS " + _tableName + " (key BLOB, valueHash LONG, value BLOB, PRIMARY KEY (key))"
+		_session.execute("CREATE TABLE IF NOT EXISTS " + _tableName + " (key BLOB, value BLOB, PRIMARY KEY (key))"
 				+ " WITH compaction = {'class': 'LeveledCompactionStrategy'}"
 				+ " AND compression = {'sstable_compression' : 'SnappyCompressor'}");
 
-		_session.execute("CREATE INDEX IF NOT EXISTS " + _tableName + "_value_index ON " + _tableName + " (valueHash)");
+		_session.execute("CREATE TABLE IF NOT EXISTS " + _reverseTableName + " (valueHash BIGINT, key BLOB, value BLOB, PRIMARY KEY (valueHash, key))"
+				+ " WITH compaction = {'class': 'LeveledCompactionStrategy'}"
+				+ " AND compression = {'sstable_compression' : 'SnappyCompressor'}");
 
-		if (_ttl != -1) {
-			_insertStatement = _session.prepare("INSERT INTO " + _tableName + " (key, valueHash, value) VALUES (?, ?, ?) USING TTL " + _ttl);
-		} else {
-			_insertStatement = _session.prepare("INSERT INTO " + _tableName + " (key, valueHash, value) VALUES (?, ?, ?)");
-		}
+		final String ttl = _ttl != -1 ? " USING TTL " + _ttl : "";
+		_insertStatement = _session.prepare("INSERT INTO " + _tableName + " (key, value) VALUES (?, ?)" + ttl);
+		_insertReverseStatement = _session.prepare("INSERT INTO " + _reverseTableName + " (valueHash, key, value) VALUES (?, ?, ?)" + ttl);
 
 		_deleteStatement = _session.prepare("DELETE FROM " + _tableName + " WHERE key = ?");
+		_deleteReverseStatement = _session.prepare("DELETE FROM " + _reverseTableName + " WHERE valueHash = ? AND key = ?");
 		_getValueStatement = _session.prepare("SELECT value FROM " + _tableName + " WHERE key = ?");
-		_getKeyStatement = _session.prepare("SELECT key FROM " + _tableName + " WHERE valueHash = ?");
+		_getKeyStatement = _session.prepare("SELECT key, value FROM " + _reverseTableName + " WHERE valueHash = ?");
 		_getAllStatement = _session.prepare("SELECT key, value FROM " + _tableName);
-		_checkHashStatement = _session.prepare("SELECT value FROM " + _tableName + " WHERE valueHash = ?");
+
+		if (isLegacyTable()) {
+			fillReverseTable();
+		}
+	}
+
+	/**
+	 * Returns true if the direct table has been created by a previous version, that indexed the hash of the values
+	 * with a secondary index instead of using a reverse table.
+	 * 
+	 * @return true if the direct table has been created by a previous version.
+	 */
+	private boolean isLegacyTable() {
+		final String keyspace = _session.getLoggedKeyspace();
+		if (keyspace == null || _session.getCluster() == null) {
+			return false;
+		}
+
+		final KeyspaceMetadata keyspaceMetadata = _session.getCluster().getMetadata().getKeyspace(keyspace);
+		final TableMetadata table = keyspaceMetadata != null ? keyspaceMetadata.getTable(_tableName) : null;
+		return table != null && table.getColumn(LEGACY_HASH_COLUMN) != null;
+	}
+
+	/**
+	 * Fills the reverse table with all the entries of the direct table, then drops the old secondary index 
+	 * (and the hash column). Inserts are idempotent, so an interrupted migration is simply done again at next startup.
+	 * 
+	 * @throws DataAccessLayerException in case of data access failure.
+	 */
+	private void fillReverseTable() throws DataAccessLayerException {
+		long count = 0;
+		final List<ResultSetFuture> futures = new ArrayList<ResultSetFuture>();
+		for (final Row row : _session.execute(_getAllStatement.bind())) {
+			final ByteBuffer value = row.getBytesUnsafe(1);
+			if (value == null) {
+				continue;
+			}
+
+			futures.add(AsyncStatements.executeAsync(
+					_session, 
+					insertReverseStatement(row.getBytesUnsafe(0), value, getValueHash(_valueSerializer.deserialize(value))), 
+					_inFlightWrites));
+			count++;
+
+			// Completed futures are not needed anymore: the semaphore bounds the ones in flight
+			if (futures.size() >= 1024) {
+				AsyncStatements.get(AsyncStatements.whenAll(futures));
+				futures.clear();
+			}
+		}
+		AsyncStatements.get(AsyncStatements.whenAll(futures));
+
+		_session.execute("DROP INDEX IF EXISTS " + _tableName + LEGACY_INDEX_SUFFIX);
+		_session.execute("ALTER TABLE " + _tableName + " DROP " + LEGACY_HASH_COLUMN);
+
+		LOGGER.info(MessageCatalog._00130_REVERSE_TABLE_FILLED, _reverseTableName, count);
 	}
 
 	@Override
@@ -127,21 +212,56 @@ class Cassandra2xBidirectionalMapDAO<K, V> implements MapDAO<K, V> {
 	}
 
 	@Override
-	public K getKey(final V value) {
-		if (value == null) {
-			return null;
+	public List<V> getAll(final List<K> keys) throws DataAccessLayerException {
+		return AsyncStatements.get(getAllAsync(keys));
+	}
+
+	@Override
+	public ListenableFuture<List<V>> getAllAsync(final List<K> keys) throws DataAccessLayerException {
+		final List<ResultSetFuture> futures = new ArrayList<ResultSetFuture>(keys.size());
+		for (final K key : keys) {
+			futures.add(AsyncStatements.executeAsync(_session, getValueStatement(key), _inFlightWrites));
 		}
 
-		long valueHash = getValueHash(value);
-		BoundStatement getKeyStatement = _getKeyStatement.bind(valueHash);
+		return Futures.transform(Futures.allAsList(futures), new Function<List<ResultSet>, List<V>>() {
+			@Override
+			public List<V> apply(final List<ResultSet> results) {
+				final List<V> values = new ArrayList<V>(results.size());
+				for (final ResultSet resultSet : results) {
+					final Row result = resultSet.one();
+					values.add(result != null ? _valueSerializer.deserialize(result.getBytesUnsafe(0)) : _defaultValue);
+				}
+				return values;
+			}
+		});
+	}
 
-		ByteBuffer result = _session.execute(getKeyStatement).one().getBytesUnsafe(0);
+	/**
+	 * Returns a {@link BoundStatement} that selects the value associated with the given key.
+	 * 
+	 * @param key the key.
+	 * @return a {@link BoundStatement} that selects the value associated with the given key.
+	 */
+	private BoundStatement getValueStatement(final K key) {
+		final BoundStatement getValueStatement = _getValueStatement.bind();
+		getValueStatement.setBytesUnsafe(0, _keySerializer.serialize(key));
+		return getValueStatement;
+	}
 
-		if (result != null) {
-			return _keySerializer.deserialize(result);
-		} else {
+	@Override
+	public K getKey(final V value) {
+		if (value == null) {
 			return null;
 		}
+
+		final BoundStatement getKeyStatement = _getKeyStatement.bind();
+		getKeyStatement.setLong(0, getValueHash(value));
+		for (final Row row : _session.execute(getKeyStatement)) {
+			if (_valueSerializer.isEqual(value, _valueSerializer.deserialize(row.getBytesUnsafe(1)))) {
+				return _keySerializer.deserialize(row.getBytesUnsafe(0));
+			}
+		}
+		return null;
 	}
 
 	@Override
@@ -178,68 +298,114 @@ class Cassandra2xBidirectionalMapDAO<K, V> implements MapDAO<K, V> {
 	}
 
 	/**
-	 * Calculates the hash of this value. If the calculated hash collides, the collision is solved.
-	 * If the given object is already inserted, the hash of the inserted object will be returned.
+	 * Calculates the hash of this value.
+	 * Colliding values are stored in the same partition of the reverse table.
 	 * 
 	 * @param value The value to be hashed.
-	 * @return A non-colliding hash of the value.
+	 * @return The hash of the value.
 	 */
 	private long getValueHash(final V value) {
-		byte[] serializedValue = _valueSerializer.serializeDirect(value);
-		long hash = Utility.murmurHash3(serializedValue).asLong();
+		return Utility.murmurHash3(_valueSerializer.serializeDirect(value)).asLong();
+	}
 
-		boolean hashFound = false;
+	@SuppressWarnings("unchecked")
+	@Override
+	public void delete(final K... keys) throws DataAccessLayerException {
+		if (keys == null || keys.length == 0) {
+			return;
+		}
 
-		for (int iterations = 0; iterations < 100 && !hashFound; hash++, iterations++) {
-			BoundStatement checkHashStatement = _checkHashStatement.bind(hash);
-			Row result = _session.execute(checkHashStatement).one();
+		final List<K> keyList = Arrays.asList(keys);
+		final List<V> values = getAll(keyList);
 
-			if (result == null) {
-				hashFound = true;
-			} else {
-				V mappedValue = _valueSerializer.deserialize(result.getBytesUnsafe(0));
+		final List<ResultSetFuture> futures = new ArrayList<ResultSetFuture>(keys.length * 2);
+		for (int i = 0; i < keys.length; i++) {
+			final ByteBuffer key = _keySerializer.serialize(keys[i]);
+			final BoundStatement deleteStatement = _deleteStatement.bind();
+			deleteStatement.setBytesUnsafe(0, key);
+			futures.add(AsyncStatements.executeAsync(_session, deleteStatement, _inFlightWrites));
 
-				if (_valueSerializer.isEqual(value, mappedValue)) {
-					hashFound = true;
-				}
+			final V value = values.get(i);
+			if (value != null && value != _defaultValue) {
+				futures.add(AsyncStatements.executeAsync(_session, deleteReverseStatement(key, value), _inFlightWrites));
 			}
 		}
+		AsyncStatements.get(AsyncStatements.whenAll(futures));
+	}
 
-		if (hashFound) {
-			return hash;
-		} else {
-			LOG.error(MessageCatalog._00105_COULD_NOT_GET_HASH, value);
-			return -1;
-		}
+	/**
+	 * Returns a {@link BoundStatement} that deletes the reverse entry of a given pair.
+	 * 
+	 * @param key the serialized key.
+	 * @param value the value.
+	 * @return a {@link BoundStatement} that deletes the reverse entry of the given pair.
+	 */
+	private BoundStatement deleteReverseStatement(final ByteBuffer key, final V value) {
+		final BoundStatement deleteReverseStatement = _deleteReverseStatement.bind();
+		deleteReverseStatement.setLong(0, getValueHash(value));
+		deleteReverseStatement.setBytesUnsafe(1, key);
+		return deleteReverseStatement;
+	}
+
+	/**
+	 * Returns a {@link BoundStatement} that inserts the reverse entry of a given pair.
+	 * 
+	 * @param key the serialized key.
+	 * @param value the serialized value.
+	 * @param valueHash the hash of the value.
+	 * @return a {@link BoundStatement} that inserts the reverse entry of the given pair.
+	 */
+	private BoundStatement insertReverseStatement(final ByteBuffer key, final ByteBuffer value, final long valueHash) {
+		final BoundStatement insertReverseStatement = _insertReverseStatement.bind();
+		insertReverseStatement.setLong(0, valueHash);
+		insertReverseStatement.setBytesUnsafe(1, key);
+		insertReverseStatement.setBytesUnsafe(2, value);
+		return insertReverseStatement;
 	}
 
-	@SuppressWarnings("unchecked")
 	@Override
-	public void delete(final K... keys) {
-		BatchStatement batchStatement = new BatchStatement();
-		
-		for (K key : keys) {
-			BoundStatement deleteStatement = _deleteStatement.bind();
-			deleteStatement.setBytesUnsafe(0, _keySerializer.serialize(key));
-			batchStatement.add(deleteStatement);
-		}
-		
-		_session.execute(batchStatement);
+	public void set(final K key, final V value) throws DataAccessLayerException {
+		AsyncStatements.get(setAllAsync(Collections.singletonMap(key, value)));
 	}
 
 	@Override
-	public void set(final K key, final V value) {
-		BoundStatement insertStatement = _insertStatement.bind();
-		insertStatement.setBytesUnsafe(0, _keySerializer.serialize(key));
-		insertStatement.setLong(1, getValueHash(value));
-		insertStatement.setBytesUnsafe(2, _valueSerializer.serialize(value));
-		_session.execute(insertStatement);
+	public void setAll(final Map<K, V> pairs) throws DataAccessLayerException {
+		if (pairs.isEmpty()) {
+			return;
+		}
+
+		AsyncStatements.get(setAllAsync(pairs));
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * The current values of the given keys are read (with pipelined reads) before sending the writes, in the calling 
+	 * thread: sending statements may wait for the in-flight semaphore, which must never happen in a driver thread.
+	 */
 	@Override
-	public void setAll(final Map<K, V> pairs) {
-		for (Map.Entry<K, V> e : pairs.entrySet()) {
-			set(e.getKey(), e.getValue());
+	public ListenableFuture<Void> setAllAsync(final Map<K, V> pairs) throws DataAccessLayerException {
+		final List<K> keys = new ArrayList<K>(pairs.keySet());
+		final List<V> currentValues = getAll(keys);
+
+		final List<ResultSetFuture> futures = new ArrayList<ResultSetFuture>(keys.size() * 2);
+		for (int i = 0; i < keys.size(); i++) {
+			final V newValue = pairs.get(keys.get(i));
+			final ByteBuffer key = _keySerializer.serialize(keys.get(i));
+			final ByteBuffer value = _valueSerializer.serialize(newValue);
+
+			final BoundStatement insertStatement = _insertStatement.bind();
+			insertStatement.setBytesUnsafe(0, key);
+			insertStatement.setBytesUnsafe(1, value);
+			futures.add(AsyncStatements.executeAsync(_session, insertStatement, _inFlightWrites));
+			futures.add(AsyncStatements.executeAsync(_session, insertReverseStatement(key, value, getValueHash(newValue)), _inFlightWrites));
+
+			// The key has been remapped: the reverse entry of its old value is stale
+			final V currentValue = currentValues.get(i);
+			if (currentValue != null && currentValue != _defaultValue && !_valueSerializer.isEqual(currentValue, newValue)) {
+				futures.add(AsyncStatements.executeAsync(_session, deleteReverseStatement(key, currentValue), _inFlightWrites));
+			}
 		}
+		return AsyncStatements.whenAll(futures);
 	}
-}
\ No newline at end of file
+}
@@ -1,12 +1,16 @@
 package edu.kit.aifb.cumulus.datasource.impl;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 
 import edu.kit.aifb.cumulus.datasource.serializer.Serializer;
 import edu.kit.aifb.cumulus.framework.datasource.CounterDAO;
@@ -84,6 +88,20 @@ public class Cassandra2xCounterDAO<K> implements CounterDAO<K> {
 		}
 	}
 
+	@Override
+	public List<Long> getAll(final List<K> keys) throws DataAccessLayerException {
+		final List<Long> values = new ArrayList<Long>(keys.size());
+		for (final K key : keys) {
+			values.add(get(key));
+		}
+		return values;
+	}
+
+	@Override
+	public ListenableFuture<List<Long>> getAllAsync(final List<K> keys) throws DataAccessLayerException {
+		return Futures.immediateFuture(getAll(keys));
+	}
+
 	@Override
 	public K getKey(final Long value) throws DataAccessLayerException {
 		throw new UnsupportedOperationException();
@@ -121,6 +139,12 @@ public class Cassandra2xCounterDAO<K> implements CounterDAO<K> {
 		}
 	}
 
+	@Override
+	public ListenableFuture<Void> setAllAsync(final Map<K, Long> pairs) throws DataAccessLayerException {
+		setAll(pairs);
+		return Futures.immediateFuture(null);
+	}
+
 	@Override
 	public void setDefaultValue(final Long defaultValue) throws DataAccessLayerException {
 		_defaultValue = defaultValue;
@@ -1,24 +1,29 @@
 package edu.kit.aifb.cumulus.datasource.impl;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-
-import org.slf4j.LoggerFactory;
+import java.util.concurrent.Semaphore;
 
 import com.datastax.driver.core.BatchStatement;
 import com.datastax.driver.core.BoundStatement;
 import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
+import com.google.common.base.Function;
 import com.google.common.collect.AbstractIterator;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 
 import edu.kit.aifb.cumulus.datasource.serializer.Serializer;
 import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerException;
 import edu.kit.aifb.cumulus.framework.datasource.MapDAO;
-import edu.kit.aifb.cumulus.log.Log;
 
 /**
  * A map DAO that operates on a Cassandra table.
@@ -31,7 +36,7 @@ import edu.kit.aifb.cumulus.log.Log;
  */
 class Cassandra2xDefaultMapDAO<K, V> implements MapDAO<K, V> {
 
-	private final Log _log = new Log(LoggerFactory.getLogger(getClass()));
+	static final int DEFAULT_MAX_ASYNC_WRITES = 256;
 
 	private final Session _session;
 	private final String _tableName;
@@ -41,6 +46,7 @@ class Cassandra2xDefaultMapDAO<K, V> implements MapDAO<K, V> {
 	private V _defaultValue;
 	private K _defaultKey;
 	private final int _ttl;
+	private final Semaphore _inFlightWrites;
 
 	private PreparedStatement _insertStatement;
 	private PreparedStatement _deleteStatement;
@@ -98,12 +104,30 @@ class Cassandra2xDefaultMapDAO<K, V> implements MapDAO<K, V> {
 	public Cassandra2xDefaultMapDAO(
 			final Session session, final String tableName, final boolean bidirectional,
 			final int ttl, final Serializer<K> keySerializer, final Serializer<V> valueSerializer) {
+		this(session, tableName, bidirectional, ttl, keySerializer, valueSerializer, new Semaphore(DEFAULT_MAX_ASYNC_WRITES));
+	}
+
+	/**
+	 * Creates a new simple DAO.
+	 * 
+	 * @param session The connection to Cassandra.
+	 * @param tableName The name of the table that the DAO should operate on.
+	 * @param bidirectional True if the DAO should allow reverse lookups. Note that reverse lookups for values > 64KB are not possible.
+	 * @param ttl The TTL for the entries.
+	 * @param keySerializer The serializer for the keys.
+	 * @param valueSerializer The serializer for the values.
+	 * @param inFlightWrites The semaphore that bounds the number of asynchronous writes in flight.
+	 */
+	public Cassandra2xDefaultMapDAO(
+			final Session session, final String tableName, final boolean bidirectional,
+			final int ttl, final Serializer<K> keySerializer, final Serializer<V> valueSerializer, final Semaphore inFlightWrites) {
 		_session = session;
 		_tableName = tableName;
 		_bidirectional = bidirectional;
 		_keySerializer = keySerializer;
 		_valueSerializer = valueSerializer;
 		_ttl = ttl;
+		_inFlightWrites = inFlightWrites;
 	}
 
 	@Override
@@ -171,6 +195,31 @@ class Cassandra2xDefaultMapDAO<K, V> implements MapDAO<K, V> {
 		}
 	}
 
+	@Override
+	public List<V> getAll(final List<K> keys) throws DataAccessLayerException {
+		return AsyncStatements.get(getAllAsync(keys));
+	}
+
+	@Override
+	public ListenableFuture<List<V>> getAllAsync(final List<K> keys) throws DataAccessLayerException {
+		final List<ResultSetFuture> futures = new ArrayList<ResultSetFuture>(keys.size());
+		for (final K key : keys) {
+			futures.add(AsyncStatements.executeAsync(_session, _getValueStatement.bind(_keySerializer.serialize(key)), _inFlightWrites));
+		}
+
+		return Futures.transform(Futures.allAsList(futures), new Function<List<ResultSet>, List<V>>() {
+			@Override
+			public List<V> apply(final List<ResultSet> results) {
+				final List<V> values = new ArrayList<V>(results.size());
+				for (final ResultSet resultSet : results) {
+					final Row result = resultSet.one();
+					values.add(result != null ? _valueSerializer.deserialize(result.getBytesUnsafe(0)) : _defaultValue);
+				}
+				return values;
+			}
+		});
+	}
+
 	@Override
 	public K getKey(final V value) {
 		if (!_bidirectional) {
@@ -260,22 +309,21 @@ class Cassandra2xDefaultMapDAO<K, V> implements MapDAO<K, V> {
 	}
 
 	@Override
-	public void setAll(final Map<K, V> pairs) {
-		if (pairs.size() == 0) {
+	public void setAll(final Map<K, V> pairs) throws DataAccessLayerException {
+		if (pairs.isEmpty()) {
 			return;
 		}
 
-		BatchStatement batchStatement = new BatchStatement();
-
-		for (Map.Entry<K, V> entry : pairs.entrySet()) {
-			batchStatement.add(getInsertStatement(entry.getKey(), entry.getValue()));
-		}
+		AsyncStatements.get(setAllAsync(pairs));
+	}
 
-		try {
-			_session.execute(batchStatement);
-		} catch (Exception e) {
-			_log.error("failed to insert batch of " + pairs.size() + " dictionary entries", e);
+	@Override
+	public ListenableFuture<Void> setAllAsync(final Map<K, V> pairs) throws DataAccessLayerException {
+		final List<ResultSetFuture> futures = new ArrayList<ResultSetFuture>(pairs.size());
+		for (final Map.Entry<K, V> entry : pairs.entrySet()) {
+			futures.add(AsyncStatements.executeAsync(_session, getInsertStatement(entry.getKey(), entry.getValue()), _inFlightWrites));
 		}
+		return AsyncStatements.whenAll(futures);
 	}
 
 	@Override
@@ -1,9 +1,12 @@
 package edu.kit.aifb.cumulus.datasource.impl;
 
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
 import edu.kit.aifb.cumulus.datasource.serializer.Serializer;
 import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerException;
 import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerFactory;
@@ -46,8 +49,8 @@ public class Cassandra2xMapDAO<K, V> implements MapDAO<K, V> {
 		_factory = (CumulusDataAccessLayerFactory) factory;
 		_isBidirectional = isBidirectional;
 		_delegate = _isBidirectional
-				? new Cassandra2xBidirectionalMapDAO<K, V>(_factory.getSession(), name, ttl, keySerializer, valueSerializer)
-				: new Cassandra2xDefaultMapDAO<K, V>(_factory.getSession(), name, _isBidirectional, ttl, keySerializer, valueSerializer);
+				? new Cassandra2xBidirectionalMapDAO<K, V>(_factory.getSession(), name, ttl, keySerializer, valueSerializer, _factory.getInFlightWrites())
+				: new Cassandra2xDefaultMapDAO<K, V>(_factory.getSession(), name, _isBidirectional, ttl, keySerializer, valueSerializer, _factory.getInFlightWrites());
 	}
 	
 	@Override
@@ -70,6 +73,16 @@ public class Cassandra2xMapDAO<K, V> implements MapDAO<K, V> {
 		return _delegate.get(key);
 	}
 
+	@Override
+	public List<V> getAll(final List<K> keys) throws DataAccessLayerException {
+		return _delegate.getAll(keys);
+	}
+
+	@Override
+	public ListenableFuture<List<V>> getAllAsync(final List<K> keys) throws DataAccessLayerException {
+		return _delegate.getAllAsync(keys);
+	}
+
 	@Override
 	public K getKey(final V value) throws DataAccessLayerException {
 		return _delegate.getKey(value);
@@ -95,6 +108,11 @@ public class Cassandra2xMapDAO<K, V> implements MapDAO<K, V> {
 		_delegate.setAll(pairs);
 	}
 
+	@Override
+	public ListenableFuture<Void> setAllAsync(final Map<K, V> pairs) throws DataAccessLayerException {
+		return _delegate.setAllAsync(pairs);
+	}
+
 	@Override
 	public void setDefaultValue(final V defaultValue) throws DataAccessLayerException {
 		_delegate.setDefaultValue(defaultValue);
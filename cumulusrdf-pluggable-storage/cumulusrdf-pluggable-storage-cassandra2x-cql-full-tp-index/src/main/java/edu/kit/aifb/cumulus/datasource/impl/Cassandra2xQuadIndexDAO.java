@@ -7,9 +7,7 @@ import static edu.kit.aifb.cumulus.datasource.Table.TABLE_SPC_O;
 import static edu.kit.aifb.cumulus.datasource.Table.TABLE_SPC_O_INDEX_PC;
 import static edu.kit.aifb.cumulus.framework.util.Utility.isVariable;
 
-import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.List;
 
 import com.datastax.driver.core.BoundStatement;
 import com.datastax.driver.core.PreparedStatement;
@@ -41,6 +39,9 @@ public class Cassandra2xQuadIndexDAO extends Cassandra2xTripleIndexDAO implement
 
 	private PreparedStatement[] _queries;
 
+	// Same layout as _queries: the position of the member the results of a query are sorted by.
+	private static final int[] SORTED_BY = {-1, 2, 1, 2, 0, -1, 1, -1};
+
 	/**
 	 * Buils a new dao with the given data.
 	 * 
@@ -63,7 +64,7 @@ public class Cassandra2xQuadIndexDAO extends Cassandra2xTripleIndexDAO implement
 		ocpsStatement.setBytesUnsafe(3, ID_SERIALIZER.serialize(ids[0]));
 		ocpsStatement.setBytesUnsafe(4, ID_SERIALIZER.serialize(ids[3]));
 
-		_batchStatements.get().add(ocpsStatement);
+		_mutations.get().add(ocpsStatement);
 
 		// Insert in SC_OP
 		final BoundStatement scopStatement = _insertSCOPStatement.bind();
@@ -72,7 +73,7 @@ public class Cassandra2xQuadIndexDAO extends Cassandra2xTripleIndexDAO implement
 		scopStatement.setBytesUnsafe(2, ID_SERIALIZER.serialize(ids[2]));
 		scopStatement.setBytesUnsafe(3, ID_SERIALIZER.serialize(ids[1]));
 
-		_batchStatements.get().add(scopStatement);
+		_mutations.get().add(scopStatement);
 
 		// Insert in SPC_O
 		final BoundStatement spcoStatement = _insertSPCOStatement.bind();
@@ -82,61 +83,47 @@ public class Cassandra2xQuadIndexDAO extends Cassandra2xTripleIndexDAO implement
 		spcoStatement.setBytesUnsafe(3, ID_SERIALIZER.serialize(ids[2]));
 		spcoStatement.setBytesUnsafe(4, ID_SERIALIZER.serialize(_dictionary.compose(ids[1], ids[3])));
 
-		_batchStatements.get().add(spcoStatement);
+		_mutations.get().add(spcoStatement);
 	}
 
 	@Override
-	public List<byte[][]> deleteTriples(
-			final Iterator<byte[][]> nodes,
-			final int batchSize,
-			final boolean rangesEnabled) throws DataAccessLayerException {
-		final List<byte[][]> deleted = new ArrayList<byte[][]>(batchSize);
-
-		while (nodes.hasNext()) {
-			for (int i = 0; i < batchSize && nodes.hasNext(); i++) {
-
-				final byte[][] ids = nodes.next();
-
-				// check if valid triple or quad
-				if (ids == null || ids.length < 3) {
-					continue;
-				}
-
-				internalDelete(ids, rangesEnabled);
-
-				// Delete from OC_PS index
-				final BoundStatement ocpsStatement = _deleteOCPSStatement.bind();
-				ocpsStatement.setBytesUnsafe(0, ID_SERIALIZER.serialize(ids[2]));
-				ocpsStatement.setBytesUnsafe(1, ID_SERIALIZER.serialize(ids[3]));
-				ocpsStatement.setBytesUnsafe(2, ID_SERIALIZER.serialize(ids[1]));
-				ocpsStatement.setBytesUnsafe(3, ID_SERIALIZER.serialize(ids[0]));
-
-				_batchStatements.get().add(ocpsStatement);
-
-				// Delete from SC_OP index
-				final BoundStatement scopStatement = _deleteSCOPStatement.bind();
-				scopStatement.setBytesUnsafe(0, ID_SERIALIZER.serialize(ids[0]));
-				scopStatement.setBytesUnsafe(1, ID_SERIALIZER.serialize(ids[3]));
-				scopStatement.setBytesUnsafe(2, ID_SERIALIZER.serialize(ids[2]));
-				scopStatement.setBytesUnsafe(3, ID_SERIALIZER.serialize(ids[1]));
+	void internalDelete(
+			final byte[][] ids, 
+			final RangeDeletions ranges, 
+			final PendingMutations mutations) throws DataAccessLayerException {
+		super.internalDelete(ids, ranges, mutations);
+		
+		// Quad indexes require the context
+		if (ids.length < 4) {
+			return;
+		}
+		
+		// Delete from OC_PS index
+		final BoundStatement ocpsStatement = _deleteOCPSStatement.bind();
+		ocpsStatement.setBytesUnsafe(0, ID_SERIALIZER.serialize(ids[2]));
+		ocpsStatement.setBytesUnsafe(1, ID_SERIALIZER.serialize(ids[3]));
+		ocpsStatement.setBytesUnsafe(2, ID_SERIALIZER.serialize(ids[1]));
+		ocpsStatement.setBytesUnsafe(3, ID_SERIALIZER.serialize(ids[0]));
 
-				_batchStatements.get().add(scopStatement);
+		mutations.add(ocpsStatement);
 
-				// Delete from SPC_O
-				final BoundStatement spcoStatement = _deleteSPCOStatement.bind();
-				spcoStatement.setBytesUnsafe(0, ID_SERIALIZER.serialize(ids[0]));
-				spcoStatement.setBytesUnsafe(1, ID_SERIALIZER.serialize(ids[1]));
-				spcoStatement.setBytesUnsafe(2, ID_SERIALIZER.serialize(ids[3]));
-				spcoStatement.setBytesUnsafe(3, ID_SERIALIZER.serialize(ids[2]));
+		// Delete from SC_OP index
+		final BoundStatement scopStatement = _deleteSCOPStatement.bind();
+		scopStatement.setBytesUnsafe(0, ID_SERIALIZER.serialize(ids[0]));
+		scopStatement.setBytesUnsafe(1, ID_SERIALIZER.serialize(ids[3]));
+		scopStatement.setBytesUnsafe(2, ID_SERIALIZER.serialize(ids[2]));
+		scopStatement.setBytesUnsafe(3, ID_SERIALIZER.serialize(ids[1]));
 
-				_batchStatements.get().add(spcoStatement);
-				deleted.add(ids);
+		mutations.add(scopStatement);
 
-				executePendingMutations();
-			}
-		}
+		// Delete from SPC_O
+		final BoundStatement spcoStatement = _deleteSPCOStatement.bind();
+		spcoStatement.setBytesUnsafe(0, ID_SERIALIZER.serialize(ids[0]));
+		spcoStatement.setBytesUnsafe(1, ID_SERIALIZER.serialize(ids[1]));
+		spcoStatement.setBytesUnsafe(2, ID_SERIALIZER.serialize(ids[3]));
+		spcoStatement.setBytesUnsafe(3, ID_SERIALIZER.serialize(ids[2]));
 
-		return deleted;
+		mutations.add(spcoStatement);
 	}
 
 	@Override
@@ -169,7 +156,7 @@ public class Cassandra2xQuadIndexDAO extends Cassandra2xTripleIndexDAO implement
 		// Set the limit, it is always the last variable
 		statement.setInt(queryVariableIndex, limit);
 
-		return new SPOCResultIterator(_session.executeAsync(statement), true);
+		return execute(statement, shape(query), true);
 	}
 
 	@Override
@@ -223,6 +210,11 @@ public class Cassandra2xQuadIndexDAO extends Cassandra2xTripleIndexDAO implement
 		_queries[7] = _session.prepare("SELECT s, p, o, c FROM " + TABLE_OC_PS + " WHERE                         c_index = ? LIMIT ?"); // (?, ?, ?, c)
 	}
 
+	@Override
+	public int sortedBy(final byte[][] query) {
+		return query.length == 3 || isVariable(query[3]) ? super.sortedBy(query) : sortedBy(query, SORTED_BY);
+	}
+
 	@Override
 	int getQueryIndex(final byte[][] quadPattern) {
 		int index = 0;
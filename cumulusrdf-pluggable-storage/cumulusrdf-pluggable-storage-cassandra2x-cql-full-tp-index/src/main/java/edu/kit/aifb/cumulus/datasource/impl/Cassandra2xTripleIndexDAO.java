@@ -10,24 +10,31 @@ import static edu.kit.aifb.cumulus.datasource.Table.TABLE_RN_SP_O;
 import static edu.kit.aifb.cumulus.datasource.Table.TABLE_S_POC;
 import static edu.kit.aifb.cumulus.datasource.impl.Cassandra2xConstants.EMPTY_VAL;
 import static edu.kit.aifb.cumulus.framework.util.Utility.isVariable;
-import static edu.kit.aifb.cumulus.framework.util.Utility.parseXMLSchemaDateTimeAsMSecs;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
-import org.openrdf.model.Literal;
-import org.openrdf.model.URI;
 import org.openrdf.model.Value;
 
-import com.datastax.driver.core.BatchStatement;
 import com.datastax.driver.core.BoundStatement;
 import com.datastax.driver.core.ConsistencyLevel;
 import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
+import com.google.common.primitives.UnsignedBytes;
 
 import edu.kit.aifb.cumulus.datasource.serializer.Serializer;
-import edu.kit.aifb.cumulus.framework.Environment;
 import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerException;
 import edu.kit.aifb.cumulus.framework.datasource.TripleIndexDAO;
 import edu.kit.aifb.cumulus.framework.domain.dictionary.ITopLevelDictionary;
@@ -44,9 +51,15 @@ public class Cassandra2xTripleIndexDAO implements TripleIndexDAO {
 	protected final Session _session;
 	protected final CumulusDataAccessLayerFactory _factory;
 	
-	protected final ThreadLocal<BatchStatement> _batchStatements = new ThreadLocal<BatchStatement>() {
-		protected BatchStatement initialValue() {
-			return new BatchStatement();
+	protected final ThreadLocal<PendingMutations> _mutations = new ThreadLocal<PendingMutations>() {
+		protected PendingMutations initialValue() {
+			return _factory.newPendingMutations();
+		}
+	};
+	
+	protected final ThreadLocal<PendingMutations> _deletions = new ThreadLocal<PendingMutations>() {
+		protected PendingMutations initialValue() {
+			return _factory.newPendingDeletions();
 		}
 	};
 	
@@ -65,6 +78,9 @@ public class Cassandra2xTripleIndexDAO implements TripleIndexDAO {
 	private PreparedStatement _deleteNPOSStatement;
 	private PreparedStatement _deleteDSPOStatement;
 	private PreparedStatement _deleteDPOSStatement;
+	
+	private PreparedStatement _selectNSPOStatement;
+	private PreparedStatement _selectDSPOStatement;
 
 	private PreparedStatement _clearSPOCStatement;
 	private PreparedStatement _clearOSPCStatement;
@@ -79,6 +95,16 @@ public class Cassandra2xTripleIndexDAO implements TripleIndexDAO {
 	// If S is variable, add 4, if P is variable, add 2, if O is variable, add 1.
 	private PreparedStatement[] _queries;
 
+	// Same layout as _queries: the IN-list variant of a query, if the table layout allows it (IN on the partition key).
+	private PreparedStatement[] _inQueries;
+
+	// For each IN-list query, the position (in the result triple) of the column restricted by the IN-list.
+	private static final int[] IN_LIST_POSITION = {0, 0, -1, 0, 2, -1, 2, -1};
+
+	// For each query, the position of the member its results are sorted by (the first clustering column that is not bound).
+	// Blob clustering columns are sorted by unsigned lexicographic order.
+	private static final int[] SORTED_BY = {-1, 2, 1, 1, 0, -1, 0, -1};
+
 	// Filled with the 32 possible different range queries.
 	// To calculate the position of a query int the array, use a binary conversation like this:
 	// If result should be reversed, add 16, if S is variable, add 8, if type is double, add 4, if upper bound is open, add 2, if lower bound is open, add 1.
@@ -128,7 +154,7 @@ public class Cassandra2xTripleIndexDAO implements TripleIndexDAO {
 
 		poscStatement.setBytesUnsafe(4, ID_SERIALIZER.serialize(ids[1]));
 
-		_batchStatements.get().add(poscStatement);
+		_mutations.get().add(poscStatement);
 
 		// insert in CF_S_POC
 		BoundStatement spocStatement = _insertSPOCStatement.bind();
@@ -143,7 +169,7 @@ public class Cassandra2xTripleIndexDAO implements TripleIndexDAO {
 			spocStatement.setBytesUnsafe(3, ID_SERIALIZER.serialize(EMPTY_VAL));
 		}
 
-		_batchStatements.get().add(spocStatement);
+		_mutations.get().add(spocStatement);
 
 		// insert in CF_O_SPC
 		final BoundStatement ospcStatement = _insertOSPCStatement.bind();
@@ -158,7 +184,7 @@ public class Cassandra2xTripleIndexDAO implements TripleIndexDAO {
 			ospcStatement.setBytesUnsafe(3, ID_SERIALIZER.serialize(EMPTY_VAL));
 		}
 		
-		_batchStatements.get().add(ospcStatement);
+		_mutations.get().add(ospcStatement);
 	}
 
 	@Override
@@ -171,7 +197,7 @@ public class Cassandra2xTripleIndexDAO implements TripleIndexDAO {
 		nspoStatement.setBytesUnsafe(1, ID_SERIALIZER.serialize(ids[1]));
 		nspoStatement.setBytesUnsafe(2, ID_SERIALIZER.serialize(ids[2]));
 		nspoStatement.setDouble(3, value);
-		_batchStatements.get().add(nspoStatement);
+		_mutations.get().add(nspoStatement);
 
 		/*
 		 * insert in CF_RN_P_OS
@@ -181,7 +207,7 @@ public class Cassandra2xTripleIndexDAO implements TripleIndexDAO {
 		nposStatement.setBytesUnsafe(1, ID_SERIALIZER.serialize(ids[2]));
 		nposStatement.setBytesUnsafe(2, ID_SERIALIZER.serialize(ids[0]));
 		nposStatement.setDouble(3, value);
-		_batchStatements.get().add(nposStatement);
+		_mutations.get().add(nposStatement);
 	}
 
 	@Override
@@ -195,7 +221,7 @@ public class Cassandra2xTripleIndexDAO implements TripleIndexDAO {
 		dspoStatement.setBytesUnsafe(1, ID_SERIALIZER.serialize(ids[1]));
 		dspoStatement.setBytesUnsafe(2, ID_SERIALIZER.serialize(ids[2]));
 		dspoStatement.setLong(3, value);
-		_batchStatements.get().add(dspoStatement);
+		_mutations.get().add(dspoStatement);
 
 		/*
 		 * insert in: CF_RDT_P_OS
@@ -205,7 +231,7 @@ public class Cassandra2xTripleIndexDAO implements TripleIndexDAO {
 		dposStatement.setBytesUnsafe(1, ID_SERIALIZER.serialize(ids[2]));
 		dposStatement.setBytesUnsafe(2, ID_SERIALIZER.serialize(ids[0]));
 		dposStatement.setLong(3, value);
-		_batchStatements.get().add(dposStatement);
+		_mutations.get().add(dposStatement);
 
 	}
 
@@ -214,24 +240,47 @@ public class Cassandra2xTripleIndexDAO implements TripleIndexDAO {
 			final Iterator<byte[][]> nodes, 
 			final int batchSize, 
 			final boolean rangesEnabled) throws DataAccessLayerException {
+		return delete(nodes, batchSize, rangesEnabled);
+	}
 
+	/**
+	 * Deletes the given triples.
+	 * Deletions are collected for each window of batchSize triples, sent asynchronously and 
+	 * awaited once the window has been completed.
+	 * 
+	 * @param nodes the iterator containing the triple identifiers.
+	 * @param batchSize the batch size we will use in deletion.
+	 * @param rangesEnabled if ranges have been enabled on the current store.
+	 * @return the list of triples (as identifiers) that have been deleted.
+	 * @throws DataAccessLayerException in case of data access failure.
+	 */
+	List<byte[][]> delete(
+			final Iterator<byte[][]> nodes, 
+			final int batchSize, 
+			final boolean rangesEnabled) throws DataAccessLayerException {
+		
 		final List<byte[][]> deleted = new ArrayList<byte[][]>(batchSize);
+		final PendingMutations deletions = _deletions.get();
+		final RangeDeletions ranges = rangesEnabled ? new RangeDeletions() : null;
 		
 		while (nodes.hasNext()) {
 			for (int i = 0; i < batchSize && nodes.hasNext(); i++) {
 
-				byte[][] ids = nodes.next();
+				final byte[][] ids = nodes.next();
 
 				// check if valid triple or quad
 				if (ids == null || ids.length < 3) {
 					continue;
 				}
 
-				internalDelete(ids, rangesEnabled);
-				
+				internalDelete(ids, ranges, deletions);
 				deleted.add(ids);
-				executePendingMutations();
 			}
+			
+			if (ranges != null && !ranges.isEmpty()) {
+				deleteRanges(ranges, deletions);
+			}
+			deletions.execute();
 		}
 		
 		return deleted;
@@ -239,12 +288,7 @@ public class Cassandra2xTripleIndexDAO implements TripleIndexDAO {
 
 	@Override
 	public void executePendingMutations() throws DataAccessLayerException {
-		try {
-			_session.execute(_batchStatements.get());
-			_batchStatements.get().clear();
-		} catch (final Exception exception) {
-			throw new DataAccessLayerException(exception);
-		}
+		_mutations.get().execute();
 	}
 
 	@Override
@@ -263,7 +307,157 @@ public class Cassandra2xTripleIndexDAO implements TripleIndexDAO {
 		statement.setInt(queryVariableIndex, limit);
 
 		// Execute query and convert result set to ids
-		return new SPOCResultIterator(_session.executeAsync(statement), true);
+		return execute(statement, shape(query), true);
+	}
+
+	/**
+	 * Executes a batch of queries.
+	 * Queries with the same shape, that differ only in the partition key, are merged in one IN-list query (when the
+	 * table layout allows it and there's no limit); the remaining queries are executed concurrently.
+	 * Results of an IN-list query are read entirely and then distributed to the queries of the batch.
+	 */
+	@Override
+	public List<Iterator<byte[][]>> query(final List<byte[][]> queries, final int limit) throws DataAccessLayerException {
+		final List<Iterator<byte[][]>> results = new ArrayList<Iterator<byte[][]>>(queries.size());
+		final Map<List<ByteBuffer>, List<Integer>> inLists = new LinkedHashMap<List<ByteBuffer>, List<Integer>>();
+		
+		for (int i = 0; i < queries.size(); i++) {
+			final byte[][] query = queries.get(i);
+			final int index = getQueryIndex(query);
+			if (limit == Integer.MAX_VALUE && _inQueries[index] != null && (query.length == 3 || isVariable(query[3]))) {
+				final List<ByteBuffer> shape = inListShape(query, index);
+				List<Integer> positions = inLists.get(shape);
+				if (positions == null) {
+					positions = new ArrayList<Integer>();
+					inLists.put(shape, positions);
+				}
+				positions.add(i);
+				results.add(null);
+			} else {
+				results.add(query(query, limit));
+			}
+		}
+
+		final List<Iterator<byte[][]>> inListResults = new ArrayList<Iterator<byte[][]>>(inLists.size());
+		for (final List<Integer> positions : inLists.values()) {
+			if (positions.size() == 1) {
+				final int position = positions.get(0);
+				results.set(position, query(queries.get(position), limit));
+				inListResults.add(null);
+			} else {
+				inListResults.add(inListQuery(queries, positions));
+			}
+		}
+
+		int group = 0;
+		for (final List<Integer> positions : inLists.values()) {
+			final Iterator<byte[][]> iterator = inListResults.get(group++);
+			if (iterator != null) {
+				distribute(iterator, queries, positions, results);
+			}
+		}
+		return results;
+	}
+
+	@Override
+	public int sortedBy(final byte[][] query) {
+		return sortedBy(query, SORTED_BY);
+	}
+
+	/**
+	 * Returns the member the results of a given query are sorted by.
+	 * 
+	 * @param query the query pattern.
+	 * @param sortedBy for each query index, the position of the member its results are sorted by.
+	 * @return the position of the member the results of the given query are sorted by, -1 if results are not sorted.
+	 */
+	int sortedBy(final byte[][] query, final int[] sortedBy) {
+		return sortedBy[getQueryIndex(query)];
+	}
+
+	@Override
+	public Comparator<byte[]> getIdentifiersOrder() {
+		return UnsignedBytes.lexicographicalComparator();
+	}
+
+	/**
+	 * Returns the shape of the given query for IN-list grouping: the query index and all bound positions but the partition key.
+	 * 
+	 * @param query the query pattern.
+	 * @param index the query index.
+	 * @return the shape of the given query for IN-list grouping.
+	 */
+	private List<ByteBuffer> inListShape(final byte[][] query, final int index) {
+		final List<ByteBuffer> shape = new ArrayList<ByteBuffer>(3);
+		shape.add(ByteBuffer.wrap(new byte[] {(byte) index}));
+		for (int i = 0; i < 3; i++) {
+			if (i != IN_LIST_POSITION[index] && !isVariable(query[i])) {
+				shape.add(ByteBuffer.wrap(query[i]));
+			}
+		}
+		return shape;
+	}
+
+	/**
+	 * Executes the IN-list query that merges the given queries.
+	 * 
+	 * @param queries the queries of the batch.
+	 * @param positions the positions of the queries (with the same shape) that will be merged.
+	 * @return an iterator over the results of the IN-list query.
+	 */
+	private Iterator<byte[][]> inListQuery(final List<byte[][]> queries, final List<Integer> positions) {
+		final byte[][] first = queries.get(positions.get(0));
+		final int index = getQueryIndex(first);
+		final int inListPosition = IN_LIST_POSITION[index];
+
+		final Set<ByteBuffer> keys = new LinkedHashSet<ByteBuffer>();
+		for (final int position : positions) {
+			keys.add(ID_SERIALIZER.serialize(queries.get(position)[inListPosition]));
+		}
+
+		final BoundStatement statement = _inQueries[index].bind();
+		int queryVariableIndex = 0;
+		for (int i = 0; i < 3; i++) {
+			if (i == inListPosition) {
+				statement.setList(queryVariableIndex++, new ArrayList<ByteBuffer>(keys));
+			} else if (!isVariable(first[i])) {
+				statement.setBytesUnsafe(queryVariableIndex++, ID_SERIALIZER.serialize(first[i]));
+			}
+		}
+		return execute(statement, shape(first), true);
+	}
+
+	/**
+	 * Distributes the results of an IN-list query to the queries it merges.
+	 * 
+	 * @param iterator the results of the IN-list query.
+	 * @param queries the queries of the batch.
+	 * @param positions the positions of the merged queries.
+	 * @param results the results of the batch.
+	 */
+	private void distribute(
+			final Iterator<byte[][]> iterator, 
+			final List<byte[][]> queries, 
+			final List<Integer> positions, 
+			final List<Iterator<byte[][]>> results) {
+		final int inListPosition = IN_LIST_POSITION[getQueryIndex(queries.get(positions.get(0)))];
+		
+		final Map<ByteBuffer, List<byte[][]>> resultsByKey = new HashMap<ByteBuffer, List<byte[][]>>();
+		while (iterator.hasNext()) {
+			final byte[][] triple = iterator.next();
+			final ByteBuffer key = ByteBuffer.wrap(triple[inListPosition]);
+			List<byte[][]> triples = resultsByKey.get(key);
+			if (triples == null) {
+				triples = new ArrayList<byte[][]>();
+				resultsByKey.put(key, triples);
+			}
+			triples.add(triple);
+		}
+
+		for (final int position : positions) {
+			final List<byte[][]> triples = resultsByKey.get(ByteBuffer.wrap(queries.get(position)[inListPosition]));
+			results.set(position, triples != null ? triples.iterator() : Arrays.<byte[][]>asList().iterator());
+		}
 	}
 
 	@Override
@@ -292,7 +486,7 @@ public class Cassandra2xTripleIndexDAO implements TripleIndexDAO {
 		statement.setDouble(queryParameterIndex++, upperBound);
 		statement.setInt(queryParameterIndex, limit);
 
-		return new SPOCResultIterator(_session.executeAsync(statement), false);
+		return execute(statement, "range", false);
 	}
 
 	@Override
@@ -317,11 +511,11 @@ public class Cassandra2xTripleIndexDAO implements TripleIndexDAO {
 		}
 
 		statement.setBytesUnsafe(queryParameterIndex++, ID_SERIALIZER.serialize(p));
-		statement.setDouble(queryParameterIndex++, lowerBound);
-		statement.setDouble(queryParameterIndex++, upperBound);
+		statement.setLong(queryParameterIndex++, lowerBound);
+		statement.setLong(queryParameterIndex++, upperBound);
 		statement.setInt(queryParameterIndex, limit);
 
-		return new SPOCResultIterator(_session.executeAsync(statement), false);
+		return execute(statement, "range", false);
 	}
 
 	@Override
@@ -388,6 +582,10 @@ public class Cassandra2xTripleIndexDAO implements TripleIndexDAO {
 		_deleteNPOSStatement = _session.prepare("DELETE FROM " + TABLE_RN_P_OS + " WHERE p = ? AND o = ? AND s = ?");
 		_deleteDSPOStatement = _session.prepare("DELETE FROM " + TABLE_RDT_SP_O + " WHERE s = ? AND p = ? AND o = ?");
 		_deleteDPOSStatement = _session.prepare("DELETE FROM " + TABLE_RDT_P_OS + " WHERE p = ? AND o = ? AND s = ?");
+		
+		// Range values of a given subject and predicate (used for cleaning up range indexes)
+		_selectNSPOStatement = _session.prepare("SELECT o, o_id FROM " + TABLE_RN_SP_O + " WHERE s = ? AND p = ?");
+		_selectDSPOStatement = _session.prepare("SELECT o, o_id FROM " + TABLE_RDT_SP_O + " WHERE s = ? AND p = ?");
 
 		// Clearing
 		_clearSPOCStatement = _session.prepare("TRUNCATE " + TABLE_S_POC);
@@ -409,6 +607,13 @@ public class Cassandra2xTripleIndexDAO implements TripleIndexDAO {
 		_queries[6] = _session.prepare("SELECT s, p, o, c FROM " + TABLE_O_SPC + " WHERE                     o = ? LIMIT ?"); // (?, ?, o)
 		_queries[7] = _session.prepare("SELECT s, p, o, c FROM " + TABLE_S_POC + "                                 LIMIT ?"); // (?, ?, ?)
 
+		_inQueries = new PreparedStatement[8];
+		_inQueries[0] = _session.prepare("SELECT s, p, o, c FROM " + TABLE_S_POC + " WHERE s IN ? AND p = ? AND o = ?"); // (s, p, o)
+		_inQueries[1] = _session.prepare("SELECT s, p, o, c FROM " + TABLE_S_POC + " WHERE s IN ? AND p = ?          "); // (s, p, ?)
+		_inQueries[3] = _session.prepare("SELECT s, p, o, c FROM " + TABLE_S_POC + " WHERE s IN ?                    "); // (s, ?, ?)
+		_inQueries[4] = _session.prepare("SELECT s, p, o, c FROM " + TABLE_PO_SC + " WHERE           p = ? AND o IN ?"); // (?, p, o)
+		_inQueries[6] = _session.prepare("SELECT s, p, o, c FROM " + TABLE_O_SPC + " WHERE                     o IN ?"); // (?, ?, o)
+
 		_rangeQueries = new PreparedStatement[32];
 		_rangeQueries[0] = _session.prepare("SELECT s, p, o_id, o FROM " + TABLE_RDT_SP_O + " WHERE s = ? AND p = ? AND o >= ? AND o <= ? LIMIT ?");
 		_rangeQueries[1] = _session.prepare("SELECT s, p, o_id, o FROM " + TABLE_RDT_SP_O + " WHERE s = ? AND p = ? AND o > ? AND o <= ? LIMIT ?");
@@ -444,6 +649,36 @@ public class Cassandra2xTripleIndexDAO implements TripleIndexDAO {
 		_rangeQueries[31] = _session.prepare("SELECT s, p, o_id, o FROM " + TABLE_RN_P_OS + " WHERE p = ? AND o > ? AND o < ? ORDER BY o DESC LIMIT ?");
 	}	
 	
+	/**
+	 * Executes the given query, using the page size configured for its shape.
+	 * 
+	 * @param statement the query.
+	 * @param shape the query shape.
+	 * @param hasContext true if result rows include the context.
+	 * @return an iterator over the query results, that prefetches the next page.
+	 */
+	Iterator<byte[][]> execute(final BoundStatement statement, final String shape, final boolean hasContext) {
+		final int fetchSize = _factory.getFetchSize(shape);
+		statement.setFetchSize(fetchSize);
+		return new SPOCResultIterator(_session.executeAsync(statement), hasContext, _factory.getPrefetchThreshold(fetchSize));
+	}
+
+	/**
+	 * Returns the shape of a given pattern, that is, its bound positions (e.g. "sp" for (s, p, ?)).
+	 * 
+	 * @param pattern the triple or quad pattern.
+	 * @return the shape of the pattern, "none" if all positions are variables.
+	 */
+	static String shape(final byte[][] pattern) {
+		final StringBuilder shape = new StringBuilder(4);
+		for (int i = 0; i < pattern.length; i++) {
+			if (!isVariable(pattern[i])) {
+				shape.append("spoc".charAt(i));
+			}
+		}
+		return shape.length() == 0 ? "none" : shape.toString();
+	}
+
 	/**
 	 * Returns the index of the prepared statement to handle a given triple pattern query.
 	 * 
@@ -513,10 +748,14 @@ public class Cassandra2xTripleIndexDAO implements TripleIndexDAO {
 	 * Internal method used for reuse delete stuff.
 	 * 
 	 * @param ids the triple identifiers.
-	 * @param rangesEnabled if ranges have been enabled on the current store.
+	 * @param ranges the collector of the range index deletions, null if ranges are not enabled on the current store.
+	 * @param mutations the collector of the deletions.
 	 * @throws DataAccessLayerException in case of data access failure.
 	 */
-	void internalDelete(final byte [][]ids, final boolean rangesEnabled) throws DataAccessLayerException {
+	void internalDelete(
+			final byte [][]ids, 
+			final RangeDeletions ranges, 
+			final PendingMutations mutations) throws DataAccessLayerException {
 		// delete in CF_PO_SC
 		final BoundStatement poscStatement = _deletePOSCStatement.bind();
 		poscStatement.setBytesUnsafe(0, ID_SERIALIZER.serialize(ids[1]));
@@ -529,7 +768,7 @@ public class Cassandra2xTripleIndexDAO implements TripleIndexDAO {
 			poscStatement.setBytesUnsafe(3, ID_SERIALIZER.serialize(EMPTY_VAL));
 		}
 
-		_batchStatements.get().add(poscStatement);
+		mutations.add(poscStatement);
 
 		// delete in CF_S_POC
 		final BoundStatement spocStatement = _deleteSPOCStatement.bind();
@@ -543,7 +782,7 @@ public class Cassandra2xTripleIndexDAO implements TripleIndexDAO {
 			spocStatement.setBytesUnsafe(3, ID_SERIALIZER.serialize(EMPTY_VAL));
 		}
 
-		_batchStatements.get().add(spocStatement);
+		mutations.add(spocStatement);
 
 		// delete in CF_O_SPC
 		final BoundStatement ospcStatement = _deleteOSPCStatement.bind();
@@ -557,55 +796,111 @@ public class Cassandra2xTripleIndexDAO implements TripleIndexDAO {
 			ospcStatement.setBytesUnsafe(3, ID_SERIALIZER.serialize(EMPTY_VAL));
 		}
 
-		_batchStatements.get().add(ospcStatement);
-
-		/*
-		 * delete in: CF_RN_SP_O + CF_RN_PO_S
-		 */
-		if (rangesEnabled && _dictionary.isLiteral(ids[2])) {
-			final Literal lit = (Literal) _dictionary.getValue(ids[2], false);
-			final URI dt = lit.getDatatype();
-
-			if (Environment.NUMERIC_RANGETYPES.contains(dt)) {
+		mutations.add(ospcStatement);
 
-				double number = Double.parseDouble(lit.getLabel());
-
-				// delete in CF_RN_SP_O
-				final BoundStatement nspoStatement = _deleteNSPOStatement.bind();
-				nspoStatement.setBytesUnsafe(0, ID_SERIALIZER.serialize(ids[0]));
-				nspoStatement.setBytesUnsafe(1, ID_SERIALIZER.serialize(ids[1]));
-				nspoStatement.setDouble(2, number);
-
-				_batchStatements.get().add(nspoStatement);
-
-				// delete in CF_RN_PO_S
-				final BoundStatement nposStatement = _deleteNPOSStatement.bind();
-				nposStatement.setBytesUnsafe(0, ID_SERIALIZER.serialize(ids[1]));
-				nposStatement.setDouble(1, number);
-				nposStatement.setBytesUnsafe(2, ID_SERIALIZER.serialize(ids[0]));
-
-				_batchStatements.get().add(nposStatement);
-
-			} else if (Environment.DATETIME_RANGETYPES.contains(dt)) {
-
-				long ms = parseXMLSchemaDateTimeAsMSecs(lit);
-
-				// delete in CF_RN_SP_O
-				final BoundStatement dspoStatement = _deleteDSPOStatement.bind();
-				dspoStatement.setBytesUnsafe(0, ID_SERIALIZER.serialize(ids[0]));
-				dspoStatement.setBytesUnsafe(1, ID_SERIALIZER.serialize(ids[1]));
-				dspoStatement.setLong(2, ms);
+		// Range indexes are cleaned once the whole window has been collected
+		if (ranges != null && _dictionary.isLiteral(ids[2])) {
+			ranges.add(ids);
+		}
+	}
 
-				_batchStatements.get().add(dspoStatement);
+	/**
+	 * Deletes the range index entries of the collected triples.
+	 * The collected literals are first classified by datatype (one bulk dictionary lookup), so that only 
+	 * the range index that actually holds their entries is involved. Then range values are read from its (s, p) 
+	 * partitions: that means at most one (asynchronous) read for each distinct subject / predicate pair.
+	 * 
+	 * @param ranges the collected triples.
+	 * @param mutations the collector of the deletions.
+	 * @throws DataAccessLayerException in case of data access failure.
+	 */
+	void deleteRanges(final RangeDeletions ranges, final PendingMutations mutations) throws DataAccessLayerException {
+		try {
+			ranges.classify(_dictionary);
+			
+			final List<ResultSetFuture> numbers = new ArrayList<ResultSetFuture>(ranges.size());
+			final List<ResultSetFuture> dates = new ArrayList<ResultSetFuture>(ranges.size());
+			
+			for (final RangeDeletions.SubjectPredicate key : ranges.keys()) {
+				numbers.add(ranges.hasNumbers(key) ? selectRanges(_selectNSPOStatement, key) : null);
+				dates.add(ranges.hasDates(key) ? selectRanges(_selectDSPOStatement, key) : null);
+			}
+			
+			int index = 0;
+			for (final RangeDeletions.SubjectPredicate key : ranges.keys()) {
+				final Set<ByteBuffer> objects = ranges.objects(key);
+				
+				for (final Row row : rows(numbers.get(index))) {
+					if (objects.contains(ByteBuffer.wrap(ID_SERIALIZER.deserialize(row.getBytesUnsafe(1))))) {
+						final double number = row.getDouble(0);
+						
+						// delete in CF_RN_SP_O
+						final BoundStatement nspoStatement = _deleteNSPOStatement.bind();
+						nspoStatement.setBytesUnsafe(0, ID_SERIALIZER.serialize(key._subject));
+						nspoStatement.setBytesUnsafe(1, ID_SERIALIZER.serialize(key._predicate));
+						nspoStatement.setDouble(2, number);
+						mutations.add(nspoStatement);
+						
+						// delete in CF_RN_P_OS
+						final BoundStatement nposStatement = _deleteNPOSStatement.bind();
+						nposStatement.setBytesUnsafe(0, ID_SERIALIZER.serialize(key._predicate));
+						nposStatement.setDouble(1, number);
+						nposStatement.setBytesUnsafe(2, ID_SERIALIZER.serialize(key._subject));
+						mutations.add(nposStatement);
+					}
+				}
+				
+				for (final Row row : rows(dates.get(index))) {
+					if (objects.contains(ByteBuffer.wrap(ID_SERIALIZER.deserialize(row.getBytesUnsafe(1))))) {
+						final long ms = row.getLong(0);
+						
+						// delete in CF_RDT_SP_O
+						final BoundStatement dspoStatement = _deleteDSPOStatement.bind();
+						dspoStatement.setBytesUnsafe(0, ID_SERIALIZER.serialize(key._subject));
+						dspoStatement.setBytesUnsafe(1, ID_SERIALIZER.serialize(key._predicate));
+						dspoStatement.setLong(2, ms);
+						mutations.add(dspoStatement);
+						
+						// delete in CF_RDT_P_OS
+						final BoundStatement dposStatement = _deleteDPOSStatement.bind();
+						dposStatement.setBytesUnsafe(0, ID_SERIALIZER.serialize(key._predicate));
+						dposStatement.setLong(1, ms);
+						dposStatement.setBytesUnsafe(2, ID_SERIALIZER.serialize(key._subject));
+						mutations.add(dposStatement);
+					}
+				}
+				index++;
+			}
+		} catch (final DataAccessLayerException exception) {
+			throw exception;
+		} catch (final Exception exception) {
+			throw new DataAccessLayerException(exception);
+		} finally {
+			ranges.clear();
+		}
+	}
 
-				// delete in CF_RN_PO_S
-				final BoundStatement dposStatement = _deleteDPOSStatement.bind();
-				dposStatement.setBytesUnsafe(0, ID_SERIALIZER.serialize(ids[1]));
-				dposStatement.setLong(1, ms);
-				dposStatement.setBytesUnsafe(2, ID_SERIALIZER.serialize(ids[0]));
+	/**
+	 * Reads (asynchronously) the entries of a given subject / predicate pair from a SP_O range index.
+	 * 
+	 * @param select the select statement of the range index.
+	 * @param key the subject / predicate pair.
+	 * @return the future result of the read.
+	 */
+	private ResultSetFuture selectRanges(final PreparedStatement select, final RangeDeletions.SubjectPredicate key) {
+		final BoundStatement statement = select.bind();
+		statement.setBytesUnsafe(0, ID_SERIALIZER.serialize(key._subject));
+		statement.setBytesUnsafe(1, ID_SERIALIZER.serialize(key._predicate));
+		return _session.executeAsync(statement);
+	}
 
-				_batchStatements.get().add(dposStatement);
-			}		
-		}
+	/**
+	 * Waits for the result of a range index read.
+	 * 
+	 * @param future the future result, null if the range index hasn't been read.
+	 * @return the rows of the given result.
+	 */
+	private Iterable<Row> rows(final ResultSetFuture future) {
+		return future != null ? future.getUninterruptibly() : Collections.<Row> emptyList();
 	}
 }
\ No newline at end of file
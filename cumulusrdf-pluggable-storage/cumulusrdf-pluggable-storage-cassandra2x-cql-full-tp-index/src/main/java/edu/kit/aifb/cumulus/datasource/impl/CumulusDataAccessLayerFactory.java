@@ -11,6 +11,8 @@ import static edu.kit.aifb.cumulus.datasource.ConfigurationParameter.LOCAL_CORE_
 import static edu.kit.aifb.cumulus.datasource.ConfigurationParameter.LOCAL_MAX_CONNECTIONS_PER_HOST;
 import static edu.kit.aifb.cumulus.datasource.ConfigurationParameter.LOCAL_MAX_SIMULTANEOUS_REQUEST_PER_CONNECTION_THRESHOLD;
 import static edu.kit.aifb.cumulus.datasource.ConfigurationParameter.LOCAL_MIN_SIMULTANEOUS_REQUEST_PER_CONNECTION_THRESHOLD;
+import static edu.kit.aifb.cumulus.datasource.ConfigurationParameter.MAX_ASYNC_WRITES;
+import static edu.kit.aifb.cumulus.datasource.ConfigurationParameter.PREFETCH_PERCENT;
 import static edu.kit.aifb.cumulus.datasource.ConfigurationParameter.READ_TIMEOUT_MILLIS;
 import static edu.kit.aifb.cumulus.datasource.ConfigurationParameter.RECEIVE_BUFFER_SIZE;
 import static edu.kit.aifb.cumulus.datasource.ConfigurationParameter.RECONNECTION_POLICY;
@@ -26,8 +28,10 @@ import static edu.kit.aifb.cumulus.datasource.ConfigurationParameter.SO_LINGER;
 import static edu.kit.aifb.cumulus.datasource.ConfigurationParameter.TCP_NO_DELAY;
 import static edu.kit.aifb.cumulus.datasource.ConfigurationParameter.TRANSPORT_COMPRESSION;
 import static edu.kit.aifb.cumulus.datasource.ConfigurationParameter.TTL;
+import static edu.kit.aifb.cumulus.datasource.ConfigurationParameter.WRITE_MODE;
 
 import java.util.Map;
+import java.util.concurrent.Semaphore;
 
 import org.slf4j.LoggerFactory;
 
@@ -44,6 +48,7 @@ import com.datastax.driver.core.policies.Policies;
 import com.datastax.driver.core.policies.ReconnectionPolicy;
 import com.datastax.driver.core.policies.RetryPolicy;
 
+import edu.kit.aifb.cumulus.datasource.WriteMode;
 import edu.kit.aifb.cumulus.datasource.serializer.Serializer;
 import edu.kit.aifb.cumulus.datasource.serializer.SerializerTypeInferer;
 import edu.kit.aifb.cumulus.framework.datasource.CounterDAO;
@@ -72,6 +77,11 @@ public class CumulusDataAccessLayerFactory extends DataAccessLayerFactory implem
 	private String _keyspaceName;
 	private int _replicationFactor;
 	private int _ttl = -1;
+	private WriteMode _writeMode = WriteMode.LOGGED_BATCH;
+	private Semaphore _inFlightWrites;
+	private Configuration<Map<String, Object>> _configuration;
+	private int _fetchSize = QueryOptions.DEFAULT_FETCH_SIZE;
+	private int _prefetchPercent = 50;
 	
 	private static Cluster cluster = null;
 	private static int daoCount = 0;
@@ -124,6 +134,16 @@ public class CumulusDataAccessLayerFactory extends DataAccessLayerFactory implem
 		_keyspaceName = configuration.getAttribute(KEYSPACE, "KeyspaceCumulus") + _keyspaceNameSuffix;
 		_replicationFactor = configuration.getAttribute(REPLICATION_FACTOR, Integer.valueOf(1));
 		_ttl = configuration.getAttribute(TTL, Integer.valueOf(-1));
+
+		_writeMode = WriteMode.forName(configuration.getAttribute(WRITE_MODE, (String) null), WriteMode.LOGGED_BATCH);
+		final int maxAsyncWrites = configuration.getAttribute(MAX_ASYNC_WRITES, Integer.valueOf(256));
+		_inFlightWrites = new Semaphore(Math.max(1, maxAsyncWrites));
+		
+		LOGGER.info(MessageCatalog._00119_CASSANDRA_WRITE_MODE, _writeMode, maxAsyncWrites);
+
+		_configuration = configuration;
+		_fetchSize = configuration.getAttribute(FETCH_SIZE, (Integer) QueryOptions.DEFAULT_FETCH_SIZE);
+		_prefetchPercent = Math.min(100, Math.max(0, configuration.getAttribute(PREFETCH_PERCENT, Integer.valueOf(50))));
 	}
 
 	@SuppressWarnings("unchecked")
@@ -209,6 +229,62 @@ public class CumulusDataAccessLayerFactory extends DataAccessLayerFactory implem
 		return _ttl;
 	}
 
+	/**
+	 * Returns the semaphore that bounds the number of asynchronous writes in flight.
+	 * 
+	 * @return the semaphore that bounds the number of asynchronous writes in flight.
+	 */
+	Semaphore getInFlightWrites() {
+		return _inFlightWrites;
+	}
+
+	/**
+	 * Creates a new (empty) set of pending mutations, according with the write mode in use.
+	 * 
+	 * @return a new (empty) set of pending mutations.
+	 */
+	PendingMutations newPendingMutations() {
+		return new PendingMutations(_session, _writeMode, _inFlightWrites);
+	}
+
+	/**
+	 * Creates a new (empty) set of pending deletions.
+	 * Deletions never use a LOGGED batch: in that case they are sent asynchronously.
+	 * 
+	 * @return a new (empty) set of pending deletions.
+	 */
+	PendingMutations newPendingDeletions() {
+		return new PendingMutations(
+				_session, 
+				_writeMode == WriteMode.LOGGED_BATCH ? WriteMode.ASYNC : _writeMode, 
+				_inFlightWrites);
+	}
+
+	/**
+	 * Returns the fetch (page) size for queries with the given shape.
+	 * The shape is made of the bound positions of the query (e.g. "po", "s", "spoc") or it is "none" (no bound positions)
+	 * or "range" (range queries). If no specific page size has been configured, the global fetch size applies.
+	 * 
+	 * @param shape the query shape.
+	 * @return the fetch (page) size for queries with the given shape.
+	 */
+	int getFetchSize(final String shape) {
+		if (_configuration == null) {
+			return _fetchSize;
+		}
+		return Math.max(1, _configuration.getAttribute(FETCH_SIZE + "-" + shape, Integer.valueOf(_fetchSize)));
+	}
+
+	/**
+	 * Returns the number of rows that, when left in the current page, trigger the fetch of the next page.
+	 * 
+	 * @param fetchSize the fetch (page) size.
+	 * @return the prefetch threshold, 0 if prefetching is disabled.
+	 */
+	int getPrefetchThreshold(final int fetchSize) {
+		return (int) ((long) fetchSize * _prefetchPercent / 100);
+	}
+
 	@Override
 	public void daoWasClosed() {
 		synchronized (CLUSTER_LOCK) {
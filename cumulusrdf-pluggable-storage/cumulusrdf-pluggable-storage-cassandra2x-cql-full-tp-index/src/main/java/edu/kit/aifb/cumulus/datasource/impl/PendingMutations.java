@@ -0,0 +1,179 @@
+package edu.kit.aifb.cumulus.datasource.impl;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+
+import edu.kit.aifb.cumulus.datasource.WriteMode;
+import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerException;
+
+/**
+ * Mutations collected by a single thread and not yet executed.
+ * Depending on the {@link WriteMode}, mutations are sent:
+ *
+ * <ul>
+ * 	<li>in one LOGGED batch;</li>
+ * 	<li>in UNLOGGED batches, one for each partition;</li>
+ * 	<li>as single asynchronous statements, as soon as they are added.</li>
+ * </ul>
+ *
+ * In the last two cases, the number of requests in flight is bounded by a semaphore shared by all threads.
+ * In any case, once {@link #execute()} returns, all mutations have been acknowledged.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+final class PendingMutations {
+
+	/**
+	 * The partition a mutation belongs to: table and routing key.
+	 *
+	 * @author agent
+	 * @since 1.1.0
+	 */
+	static final class Partition {
+		private final String _table;
+		private final ByteBuffer _key;
+
+		/**
+		 * Builds a new partition with the given data.
+		 *
+		 * @param table the table name.
+		 * @param key the routing (partition) key.
+		 */
+		Partition(final String table, final ByteBuffer key) {
+			_table = table;
+			_key = key;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (!(obj instanceof Partition)) {
+				return false;
+			}
+
+			final Partition partition = (Partition) obj;
+			return _table.equals(partition._table) && _key.equals(partition._key);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * _table.hashCode() + _key.hashCode();
+		}
+	}
+
+	private final Session _session;
+	private final WriteMode _mode;
+	private final Semaphore _inFlight;
+
+	private final BatchStatement _batch = new BatchStatement();
+	private final Map<Partition, BatchStatement> _partitions = new LinkedHashMap<Partition, BatchStatement>();
+	private final List<ResultSetFuture> _futures = new ArrayList<ResultSetFuture>();
+
+	/**
+	 * Builds a new (empty) set of pending mutations.
+	 *
+	 * @param session the Cassandra session.
+	 * @param mode the write mode.
+	 * @param inFlight the semaphore that bounds the number of requests in flight.
+	 */
+	PendingMutations(final Session session, final WriteMode mode, final Semaphore inFlight) {
+		_session = session;
+		_mode = mode;
+		_inFlight = inFlight;
+	}
+
+	/**
+	 * Adds a mutation.
+	 *
+	 * @param statement the mutation.
+	 * @throws DataAccessLayerException in case of data access failure.
+	 */
+	void add(final BoundStatement statement) throws DataAccessLayerException {
+		switch (_mode) {
+		case ASYNC:
+			executeAsync(statement);
+			break;
+		case UNLOGGED_BATCH:
+			final ByteBuffer key = statement.getRoutingKey();
+			if (key == null) {
+				executeAsync(statement);
+				break;
+			}
+
+			final Partition partition = new Partition(statement.preparedStatement().getVariables().getTable(0), key);
+			BatchStatement batch = _partitions.get(partition);
+			if (batch == null) {
+				batch = new BatchStatement(BatchStatement.Type.UNLOGGED);
+				_partitions.put(partition, batch);
+			}
+			batch.add(statement);
+			break;
+		default:
+			_batch.add(statement);
+		}
+	}
+
+	/**
+	 * Executes all pending mutations, waiting for their completion.
+	 *
+	 * @throws DataAccessLayerException in case of data access failure.
+	 */
+	void execute() throws DataAccessLayerException {
+		try {
+			if (_batch.size() > 0) {
+				_session.execute(_batch);
+			}
+
+			for (final BatchStatement batch : _partitions.values()) {
+				if (batch.size() == 1) {
+					executeAsync(batch.getStatements().iterator().next());
+				} else {
+					executeAsync(batch);
+				}
+			}
+
+			Exception failure = null;
+			for (final ResultSetFuture future : _futures) {
+				try {
+					future.getUninterruptibly();
+				} catch (final Exception exception) {
+					if (failure == null) {
+						failure = exception;
+					}
+				}
+			}
+
+			if (failure != null) {
+				throw new DataAccessLayerException(failure);
+			}
+		} catch (final DataAccessLayerException exception) {
+			throw exception;
+		} catch (final Exception exception) {
+			throw new DataAccessLayerException(exception);
+		} finally {
+			_batch.clear();
+			_partitions.clear();
+			_futures.clear();
+		}
+	}
+
+	/**
+	 * Sends a statement asynchronously, waiting if too many requests are in flight.
+	 *
+	 * @param statement the statement.
+	 * @throws DataAccessLayerException if interrupted while waiting.
+	 */
+	private void executeAsync(final Statement statement) throws DataAccessLayerException {
+		_futures.add(AsyncStatements.executeAsync(_session, statement, _inFlight));
+	}
+}
@@ -0,0 +1,201 @@
+package edu.kit.aifb.cumulus.datasource.impl;
+
+import static edu.kit.aifb.cumulus.framework.Environment.DATETIME_RANGETYPES;
+import static edu.kit.aifb.cumulus.framework.Environment.NUMERIC_RANGETYPES;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.openrdf.model.Literal;
+import org.openrdf.model.Value;
+
+import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerException;
+import edu.kit.aifb.cumulus.framework.domain.dictionary.ITopLevelDictionary;
+
+/**
+ * Triples whose range index entries have to be deleted, grouped by subject and predicate.
+ * Once classified, the collected objects tell which range index (numeric or date/time) holds an entry for them.
+ * 
+ * @author agent
+ * @since 1.1.0
+ */
+final class RangeDeletions {
+
+	/**
+	 * A subject / predicate pair, that is, the partition key of the SP_O range indexes.
+	 * 
+	 * @author agent
+	 * @since 1.1.0
+	 */
+	static final class SubjectPredicate {
+		final byte[] _subject;
+		final byte[] _predicate;
+
+		/**
+		 * Builds a new pair with the given identifiers.
+		 * 
+		 * @param subject the subject identifier.
+		 * @param predicate the predicate identifier.
+		 */
+		SubjectPredicate(final byte[] subject, final byte[] predicate) {
+			_subject = subject;
+			_predicate = predicate;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (!(obj instanceof SubjectPredicate)) {
+				return false;
+			}
+
+			final SubjectPredicate pair = (SubjectPredicate) obj;
+			return Arrays.equals(_subject, pair._subject) && Arrays.equals(_predicate, pair._predicate);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * Arrays.hashCode(_subject) + Arrays.hashCode(_predicate);
+		}
+	}
+
+	private final Map<SubjectPredicate, Set<ByteBuffer>> _objects = new LinkedHashMap<SubjectPredicate, Set<ByteBuffer>>();
+	private final Set<ByteBuffer> _allObjects = new LinkedHashSet<ByteBuffer>();
+	private final Set<ByteBuffer> _numbers = new HashSet<ByteBuffer>();
+	private final Set<ByteBuffer> _dates = new HashSet<ByteBuffer>();
+
+	/**
+	 * Adds a triple.
+	 * 
+	 * @param ids the triple identifiers.
+	 */
+	void add(final byte[][] ids) {
+		final SubjectPredicate key = new SubjectPredicate(ids[0], ids[1]);
+		Set<ByteBuffer> objects = _objects.get(key);
+		if (objects == null) {
+			objects = new HashSet<ByteBuffer>();
+			_objects.put(key, objects);
+		}
+		final ByteBuffer object = ByteBuffer.wrap(ids[2]);
+		objects.add(object);
+		_allObjects.add(object);
+	}
+
+	/**
+	 * Classifies the collected objects by datatype, with one bulk dictionary lookup.
+	 * Only numeric and date/time literals have range index entries.
+	 * 
+	 * @param dictionary the dictionary.
+	 * @throws DataAccessLayerException in case of data access failure.
+	 */
+	void classify(final ITopLevelDictionary dictionary) throws DataAccessLayerException {
+		final List<byte[]> ids = new ArrayList<byte[]>(_allObjects.size());
+		for (final ByteBuffer object : _allObjects) {
+			ids.add(object.array());
+		}
+
+		final List<Value> values = dictionary.getValues(ids, false);
+		for (int i = 0; i < ids.size(); i++) {
+			final Value value = values.get(i);
+			if (value instanceof Literal) {
+				final Literal literal = (Literal) value;
+				if (NUMERIC_RANGETYPES.contains(literal.getDatatype())) {
+					_numbers.add(ByteBuffer.wrap(ids.get(i)));
+				} else if (DATETIME_RANGETYPES.contains(literal.getDatatype())) {
+					_dates.add(ByteBuffer.wrap(ids.get(i)));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns true if a numeric literal has been collected for a given subject / predicate pair.
+	 * 
+	 * @param key the subject / predicate pair.
+	 * @return true if a numeric literal has been collected for a given subject / predicate pair.
+	 */
+	boolean hasNumbers(final SubjectPredicate key) {
+		return containsAny(_objects.get(key), _numbers);
+	}
+
+	/**
+	 * Returns true if a date/time literal has been collected for a given subject / predicate pair.
+	 * 
+	 * @param key the subject / predicate pair.
+	 * @return true if a date/time literal has been collected for a given subject / predicate pair.
+	 */
+	boolean hasDates(final SubjectPredicate key) {
+		return containsAny(_objects.get(key), _dates);
+	}
+
+	/**
+	 * Returns true if the given objects contain at least one of the given (classified) objects.
+	 * 
+	 * @param objects the objects.
+	 * @param classified the classified objects.
+	 * @return true if the given objects contain at least one of the given (classified) objects.
+	 */
+	private boolean containsAny(final Set<ByteBuffer> objects, final Set<ByteBuffer> classified) {
+		if (objects != null) {
+			for (final ByteBuffer object : objects) {
+				if (classified.contains(object)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the collected subject / predicate pairs.
+	 * 
+	 * @return the collected subject / predicate pairs.
+	 */
+	Set<SubjectPredicate> keys() {
+		return _objects.keySet();
+	}
+
+	/**
+	 * Returns the objects collected for a given subject / predicate pair.
+	 * 
+	 * @param key the subject / predicate pair.
+	 * @return the objects collected for a given subject / predicate pair.
+	 */
+	Set<ByteBuffer> objects(final SubjectPredicate key) {
+		return _objects.get(key);
+	}
+
+	/**
+	 * Returns the number of collected subject / predicate pairs.
+	 * 
+	 * @return the number of collected subject / predicate pairs.
+	 */
+	int size() {
+		return _objects.size();
+	}
+
+	/**
+	 * Returns true if nothing has been collected.
+	 * 
+	 * @return true if nothing has been collected.
+	 */
+	boolean isEmpty() {
+		return _objects.isEmpty();
+	}
+
+	/**
+	 * Removes all collected triples.
+	 */
+	void clear() {
+		_objects.clear();
+		_allObjects.clear();
+		_numbers.clear();
+		_dates.clear();
+	}
+}
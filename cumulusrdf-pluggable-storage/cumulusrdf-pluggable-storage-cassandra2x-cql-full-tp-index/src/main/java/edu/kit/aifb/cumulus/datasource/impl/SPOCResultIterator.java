@@ -21,7 +21,18 @@ public class SPOCResultIterator extends AbstractResultIterator {
 	 * @param hasContext True if the given result iterator should be tested for a context.
 	 */
 	SPOCResultIterator(final ResultSetFuture resultSetFuture, final boolean hasContext) {
-		super(resultSetFuture);
+		this(resultSetFuture, hasContext, 0);
+	}
+
+	/**
+	 * Creates a new {@link SPOCResultIterator} that prefetches the next page of results.
+	 * 
+	 * @param resultSetFuture The result set to iterate through.
+	 * @param hasContext True if the given result iterator should be tested for a context.
+	 * @param prefetchThreshold The number of rows left in the current page that triggers the fetch of the next page, 0 disables prefetching.
+	 */
+	SPOCResultIterator(final ResultSetFuture resultSetFuture, final boolean hasContext, final int prefetchThreshold) {
+		super(resultSetFuture, prefetchThreshold);
 
 		_hasContext = hasContext;
 	}
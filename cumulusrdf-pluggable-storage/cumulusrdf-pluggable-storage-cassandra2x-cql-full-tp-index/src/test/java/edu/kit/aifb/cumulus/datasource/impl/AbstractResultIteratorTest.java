@@ -0,0 +1,342 @@
+package edu.kit.aifb.cumulus.datasource.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.Test;
+
+import com.datastax.driver.core.ColumnDefinitions;
+import com.datastax.driver.core.ExecutionInfo;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Row;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import edu.kit.aifb.cumulus.datasource.impl.PendingMutationsTest.TestFuture;
+
+/**
+ * Test case for {@link AbstractResultIterator}.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+public class AbstractResultIteratorTest {
+
+	private static final int PAGE_SIZE = 4;
+	private static final int THRESHOLD = 1;
+
+	/**
+	 * A result set made of pages, whose (asynchronous) fetches are completed by the test.
+	 * Like the driver, its iterator waits for the page in flight once the current page has been consumed,
+	 * and fetches synchronously the next page if no request is in flight.
+	 *
+	 * @author agent
+	 * @since 1.1.0
+	 */
+	static class PagedResultSet implements ResultSet {
+		private final Deque<Row> _rows = new ArrayDeque<Row>();
+		private final Deque<List<Row>> _pages = new ArrayDeque<List<Row>>();
+		private SettableFuture<ResultSet> _fetch;
+		private int _asyncFetches;
+		private int _syncFetches;
+
+		/**
+		 * Builds a new result set with the given number of pages.
+		 *
+		 * @param pages the number of pages.
+		 */
+		PagedResultSet(final int pages) {
+			for (int i = 0; i < pages; i++) {
+				final List<Row> page = new ArrayList<Row>(PAGE_SIZE);
+				for (int j = 0; j < PAGE_SIZE; j++) {
+					page.add(mock(Row.class));
+				}
+				_pages.add(page);
+			}
+			_rows.addAll(_pages.poll());
+		}
+
+		/**
+		 * Completes the fetch in flight.
+		 */
+		synchronized void deliver() {
+			_rows.addAll(_pages.poll());
+			_fetch.set(this);
+		}
+
+		/**
+		 * Fails the fetch in flight.
+		 *
+		 * @param failure the failure.
+		 */
+		synchronized void fail(final Throwable failure) {
+			_fetch.setException(failure);
+		}
+
+		@Override
+		public synchronized int getAvailableWithoutFetching() {
+			return _rows.size();
+		}
+
+		@Override
+		public synchronized boolean isFullyFetched() {
+			return _pages.isEmpty();
+		}
+
+		@Override
+		public synchronized ListenableFuture<ResultSet> fetchMoreResults() {
+			if (_fetch == null || _fetch.isDone()) {
+				_asyncFetches++;
+				_fetch = SettableFuture.create();
+			}
+			return _fetch;
+		}
+
+		@Override
+		public boolean isExhausted() {
+			if (getAvailableWithoutFetching() > 0 || isFullyFetched()) {
+				return getAvailableWithoutFetching() == 0;
+			}
+
+			final SettableFuture<ResultSet> fetch;
+			synchronized (this) {
+				fetch = _fetch;
+			}
+
+			if (fetch != null && !fetch.isDone()) {
+				try {
+					Uninterruptibles.getUninterruptibly(fetch);
+				} catch (final Exception exception) {
+					throw Throwables.propagate(exception.getCause());
+				}
+			} else {
+				synchronized (this) {
+					_syncFetches++;
+					_rows.addAll(_pages.poll());
+				}
+			}
+			return getAvailableWithoutFetching() == 0;
+		}
+
+		@Override
+		public Iterator<Row> iterator() {
+			return new Iterator<Row>() {
+				@Override
+				public boolean hasNext() {
+					return !isExhausted();
+				}
+
+				@Override
+				public Row next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					synchronized (PagedResultSet.this) {
+						return _rows.poll();
+					}
+				}
+
+				@Override
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+
+		@Override
+		public ColumnDefinitions getColumnDefinitions() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Row one() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public List<Row> all() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public ExecutionInfo getExecutionInfo() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public List<ExecutionInfo> getAllExecutionInfo() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean wasApplied() {
+			return true;
+		}
+	}
+
+	/**
+	 * The next page must be requested (once) as soon as the rows left in the current page reach the threshold.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void prefetchNextPage() throws Exception {
+		final PagedResultSet resultSet = new PagedResultSet(2);
+		final AbstractResultIterator cut = iterator(resultSet, THRESHOLD);
+
+		consume(cut, PAGE_SIZE - THRESHOLD);
+		assertEquals(0, resultSet._asyncFetches);
+
+		assertTrue(cut.hasNext());
+		assertEquals(1, resultSet._asyncFetches);
+
+		// Still in flight: no other request.
+		assertTrue(cut.hasNext());
+		assertEquals(1, resultSet._asyncFetches);
+
+		resultSet.deliver();
+
+		assertEquals(THRESHOLD + PAGE_SIZE, consumeAll(cut));
+		assertEquals(1, resultSet._asyncFetches);
+		assertEquals(0, resultSet._syncFetches);
+	}
+
+	/**
+	 * Without a threshold, pages must be fetched synchronously, when the current page has been consumed.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void noPrefetch() throws Exception {
+		final PagedResultSet resultSet = new PagedResultSet(3);
+		final AbstractResultIterator cut = iterator(resultSet, 0);
+
+		assertEquals(3 * PAGE_SIZE, consumeAll(cut));
+		assertEquals(0, resultSet._asyncFetches);
+		assertEquals(2, resultSet._syncFetches);
+	}
+
+	/**
+	 * Closing the iterator must cancel the page in flight and end the iteration.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void closeWithPageInFlight() throws Exception {
+		final PagedResultSet resultSet = new PagedResultSet(2);
+		final AbstractResultIterator cut = iterator(resultSet, THRESHOLD);
+
+		consume(cut, PAGE_SIZE - THRESHOLD);
+		assertTrue(cut.hasNext());
+
+		final SettableFuture<ResultSet> inFlight = resultSet._fetch;
+		assertFalse(inFlight.isDone());
+
+		cut.close();
+
+		assertTrue(inFlight.isCancelled());
+		assertFalse(cut.hasNext());
+	}
+
+	/**
+	 * Closing the iterator before the first page has been read must cancel the request.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void closeBeforeFirstPage() throws Exception {
+		final TestFuture firstPage = new TestFuture();
+		final AbstractResultIterator cut = new SPOCResultIterator(firstPage, false, THRESHOLD);
+
+		cut.close();
+
+		assertTrue(firstPage.isCancelled());
+		assertFalse(cut.hasNext());
+	}
+
+	/**
+	 * A failure of the prefetched page must be raised once the current page has been consumed.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void prefetchFailure() throws Exception {
+		final PagedResultSet resultSet = new PagedResultSet(2);
+		final AbstractResultIterator cut = iterator(resultSet, THRESHOLD);
+
+		consume(cut, PAGE_SIZE - THRESHOLD);
+		assertTrue(cut.hasNext());
+
+		final RuntimeException failure = new RuntimeException("Read timeout");
+		resultSet.fail(failure);
+
+		// Rows of the current page are still available.
+		consume(cut, THRESHOLD);
+
+		try {
+			cut.hasNext();
+			fail();
+		} catch (final RuntimeException expected) {
+			assertSame(failure, expected);
+		}
+	}
+
+	/**
+	 * Creates an iterator over the given result set.
+	 *
+	 * @param resultSet the result set.
+	 * @param prefetchThreshold the prefetch threshold.
+	 * @return an iterator over the given result set.
+	 */
+	private AbstractResultIterator iterator(final ResultSet resultSet, final int prefetchThreshold) {
+		final TestFuture future = new TestFuture();
+		future.complete(resultSet);
+		return new AbstractResultIterator(future, prefetchThreshold) {
+			@Override
+			protected byte[][] convertRow(final Row row) {
+				return new byte[][] {};
+			}
+		};
+	}
+
+	/**
+	 * Reads the given number of results.
+	 *
+	 * @param iterator the iterator.
+	 * @param howMany the number of results to read.
+	 */
+	private void consume(final Iterator<byte[][]> iterator, final int howMany) {
+		for (int i = 0; i < howMany; i++) {
+			assertTrue(iterator.hasNext());
+			iterator.next();
+		}
+	}
+
+	/**
+	 * Reads all the results.
+	 *
+	 * @param iterator the iterator.
+	 * @return the number of results.
+	 */
+	private int consumeAll(final Iterator<byte[][]> iterator) {
+		int count = 0;
+		while (iterator.hasNext()) {
+			iterator.next();
+			count++;
+		}
+		return count;
+	}
+}
@@ -0,0 +1,401 @@
+package edu.kit.aifb.cumulus.datasource.impl;
+
+import static edu.kit.aifb.cumulus.datasource.serializer.Serializer.STRING_SERIALIZER;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.ColumnMetadata;
+import com.datastax.driver.core.KeyspaceMetadata;
+import com.datastax.driver.core.Metadata;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.TableMetadata;
+
+import edu.kit.aifb.cumulus.datasource.impl.PendingMutationsTest.TestFuture;
+
+/**
+ * Test case for {@link Cassandra2xBidirectionalMapDAO}.
+ * The session is a fake, that keeps the direct and the reverse tables in memory.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+public class Cassandra2xBidirectionalMapDAOTest {
+
+	private static final String TABLE = "DICT";
+
+	private final Map<ByteBuffer, ByteBuffer> _direct = new LinkedHashMap<ByteBuffer, ByteBuffer>();
+	private final Map<Long, Map<ByteBuffer, ByteBuffer>> _reverse = new HashMap<Long, Map<ByteBuffer, ByteBuffer>>();
+	private final Map<BoundStatement, String> _queries = new HashMap<BoundStatement, String>();
+	private final Map<BoundStatement, Object[]> _parameters = new HashMap<BoundStatement, Object[]>();
+	private final List<String> _ddl = new ArrayList<String>();
+
+	private Session _session;
+	private Semaphore _inFlight;
+	private Cassandra2xBidirectionalMapDAO<String, String> _cut;
+
+	/**
+	 * Setup fixture for this test case.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Before
+	public void setUp() throws Exception {
+		_session = mock(Session.class);
+		when(_session.prepare(anyString())).thenAnswer(new Answer<PreparedStatement>() {
+			@Override
+			public PreparedStatement answer(final InvocationOnMock invocation) {
+				return prepared((String) invocation.getArguments()[0]);
+			}
+		});
+		when(_session.execute(anyString())).thenAnswer(new Answer<ResultSet>() {
+			@Override
+			public ResultSet answer(final InvocationOnMock invocation) {
+				_ddl.add((String) invocation.getArguments()[0]);
+				return null;
+			}
+		});
+		when(_session.execute(any(Statement.class))).thenAnswer(new Answer<ResultSet>() {
+			@Override
+			public ResultSet answer(final InvocationOnMock invocation) {
+				return resultSet(execute((BoundStatement) invocation.getArguments()[0]));
+			}
+		});
+		when(_session.executeAsync(any(Statement.class))).thenAnswer(new Answer<ResultSetFuture>() {
+			@Override
+			public ResultSetFuture answer(final InvocationOnMock invocation) {
+				final TestFuture future = new TestFuture();
+				future.complete(resultSet(execute((BoundStatement) invocation.getArguments()[0])));
+				return future;
+			}
+		});
+
+		_inFlight = new Semaphore(16);
+		_cut = new Cassandra2xBidirectionalMapDAO<String, String>(_session, TABLE, -1, STRING_SERIALIZER, STRING_SERIALIZER, _inFlight);
+	}
+
+	/**
+	 * Pairs must be found by key and by value.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void roundTrip() throws Exception {
+		_cut.createRequiredSchemaEntities();
+
+		final Map<String, String> pairs = new LinkedHashMap<String, String>();
+		pairs.put("k1", "v1");
+		pairs.put("k2", "v2");
+		_cut.setAll(pairs);
+		_cut.set("k3", "v3");
+
+		assertEquals(Arrays.asList("v1", "v2", "v3", null), _cut.getAll(Arrays.asList("k1", "k2", "k3", "k4")));
+		assertEquals("k1", _cut.getKey("v1"));
+		assertEquals("k2", _cut.getKey("v2"));
+		assertEquals("k3", _cut.getKey("v3"));
+		assertNull(_cut.getKey("v4"));
+		assertTrue(_cut.contains("k1"));
+		assertEquals(16, _inFlight.availablePermits());
+	}
+
+	/**
+	 * Remapping a key must remove the reverse entry of its old value.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void remappedKey() throws Exception {
+		_cut.createRequiredSchemaEntities();
+
+		_cut.set("k1", "v1");
+		_cut.set("k1", "v2");
+
+		assertEquals(Collections.singletonList("v2"), _cut.getAll(Collections.singletonList("k1")));
+		assertNull(_cut.getKey("v1"));
+		assertEquals("k1", _cut.getKey("v2"));
+		assertEquals(1, reverseEntries());
+	}
+
+	/**
+	 * Deleting a key must remove both the direct and the reverse entry.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void delete() throws Exception {
+		_cut.createRequiredSchemaEntities();
+
+		_cut.set("k1", "v1");
+		_cut.set("k2", "v2");
+		_cut.delete("k1");
+
+		assertFalse(_cut.contains("k1"));
+		assertNull(_cut.getKey("v1"));
+		assertEquals("k2", _cut.getKey("v2"));
+		assertEquals(1, reverseEntries());
+	}
+
+	/**
+	 * A table created by a previous version (with the value hash column and its secondary index) must be migrated:
+	 * the reverse table is filled with the existing entries, then the old index and column are dropped.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void legacyTableIsMigrated() throws Exception {
+		for (int i = 0; i < 10; i++) {
+			_direct.put(STRING_SERIALIZER.serialize("k" + i), STRING_SERIALIZER.serialize("v" + i));
+		}
+
+		final TableMetadata table = mock(TableMetadata.class);
+		when(table.getColumn(Cassandra2xBidirectionalMapDAO.LEGACY_HASH_COLUMN)).thenReturn(mock(ColumnMetadata.class));
+		final KeyspaceMetadata keyspace = mock(KeyspaceMetadata.class);
+		when(keyspace.getTable(TABLE)).thenReturn(table);
+		final Metadata metadata = mock(Metadata.class);
+		when(metadata.getKeyspace("ks")).thenReturn(keyspace);
+		final Cluster cluster = mock(Cluster.class);
+		when(cluster.getMetadata()).thenReturn(metadata);
+		when(_session.getCluster()).thenReturn(cluster);
+		when(_session.getLoggedKeyspace()).thenReturn("ks");
+
+		_cut.createRequiredSchemaEntities();
+
+		assertEquals(10, reverseEntries());
+		for (int i = 0; i < 10; i++) {
+			assertEquals("k" + i, _cut.getKey("v" + i));
+		}
+		assertTrue(_ddl.contains("DROP INDEX IF EXISTS " + TABLE + Cassandra2xBidirectionalMapDAO.LEGACY_INDEX_SUFFIX));
+		assertTrue(_ddl.contains("ALTER TABLE " + TABLE + " DROP " + Cassandra2xBidirectionalMapDAO.LEGACY_HASH_COLUMN));
+	}
+
+	/**
+	 * A table without the old value hash column must not be migrated.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void currentTableIsNotMigrated() throws Exception {
+		_direct.put(STRING_SERIALIZER.serialize("k1"), STRING_SERIALIZER.serialize("v1"));
+
+		final KeyspaceMetadata keyspace = mock(KeyspaceMetadata.class);
+		when(keyspace.getTable(TABLE)).thenReturn(mock(TableMetadata.class));
+		final Metadata metadata = mock(Metadata.class);
+		when(metadata.getKeyspace("ks")).thenReturn(keyspace);
+		final Cluster cluster = mock(Cluster.class);
+		when(cluster.getMetadata()).thenReturn(metadata);
+		when(_session.getCluster()).thenReturn(cluster);
+		when(_session.getLoggedKeyspace()).thenReturn("ks");
+
+		_cut.createRequiredSchemaEntities();
+
+		assertEquals(0, reverseEntries());
+		assertEquals(2, _ddl.size());
+	}
+
+	/**
+	 * Pipelined reads must not exceed the in-flight limit.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void readsAreBounded() throws Exception {
+		_cut = new Cassandra2xBidirectionalMapDAO<String, String>(_session, TABLE, -1, STRING_SERIALIZER, STRING_SERIALIZER, new Semaphore(2));
+		_cut.createRequiredSchemaEntities();
+
+		final List<TestFuture> pending = Collections.synchronizedList(new ArrayList<TestFuture>());
+		doAnswer(new Answer<ResultSetFuture>() {
+			@Override
+			public ResultSetFuture answer(final InvocationOnMock invocation) {
+				final TestFuture future = new TestFuture();
+				pending.add(future);
+				return future;
+			}
+		}).when(_session).executeAsync(any(Statement.class));
+
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			final Future<List<String>> values = executor.submit(new Callable<List<String>>() {
+				@Override
+				public List<String> call() throws Exception {
+					return _cut.getAll(Arrays.asList("k1", "k2", "k3", "k4"));
+				}
+			});
+
+			Thread.sleep(200);
+			assertEquals(2, pending.size());
+
+			for (int i = 0; i < 4; i++) {
+				while (pending.size() <= i) {
+					Thread.sleep(10);
+				}
+				pending.get(i).complete(resultSet(Collections.<Row> emptyList()));
+			}
+			assertEquals(Arrays.asList(null, null, null, null), values.get(1, TimeUnit.MINUTES));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Returns the number of entries in the reverse table.
+	 *
+	 * @return the number of entries in the reverse table.
+	 */
+	private int reverseEntries() {
+		int count = 0;
+		for (final Map<ByteBuffer, ByteBuffer> partition : _reverse.values()) {
+			count += partition.size();
+		}
+		return count;
+	}
+
+	/**
+	 * Executes a statement against the in-memory tables.
+	 *
+	 * @param statement the statement.
+	 * @return the resulting rows.
+	 */
+	private List<Row> execute(final BoundStatement statement) {
+		final String query = _queries.get(statement);
+		final Object[] parameters = _parameters.get(statement);
+		final List<Row> rows = new ArrayList<Row>();
+
+		if (query.startsWith("INSERT INTO " + TABLE + Cassandra2xBidirectionalMapDAO.REVERSE_TABLE_SUFFIX + " ")) {
+			partition((Long) parameters[0]).put((ByteBuffer) parameters[1], (ByteBuffer) parameters[2]);
+		} else if (query.startsWith("INSERT INTO " + TABLE + " ")) {
+			_direct.put((ByteBuffer) parameters[0], (ByteBuffer) parameters[1]);
+		} else if (query.startsWith("DELETE FROM " + TABLE + Cassandra2xBidirectionalMapDAO.REVERSE_TABLE_SUFFIX + " ")) {
+			partition((Long) parameters[0]).remove(parameters[1]);
+		} else if (query.startsWith("DELETE FROM " + TABLE + " ")) {
+			_direct.remove(parameters[0]);
+		} else if (query.startsWith("SELECT value FROM " + TABLE + " WHERE key = ?")) {
+			final ByteBuffer value = _direct.get(parameters[0]);
+			if (value != null) {
+				rows.add(row(value));
+			}
+		} else if (query.startsWith("SELECT key, value FROM " + TABLE + Cassandra2xBidirectionalMapDAO.REVERSE_TABLE_SUFFIX + " WHERE valueHash = ?")) {
+			for (final Map.Entry<ByteBuffer, ByteBuffer> entry : partition((Long) parameters[0]).entrySet()) {
+				rows.add(row(entry.getKey(), entry.getValue()));
+			}
+		} else if (query.equals("SELECT key, value FROM " + TABLE)) {
+			for (final Map.Entry<ByteBuffer, ByteBuffer> entry : _direct.entrySet()) {
+				rows.add(row(entry.getKey(), entry.getValue()));
+			}
+		} else {
+			throw new IllegalArgumentException(query);
+		}
+		return rows;
+	}
+
+	/**
+	 * Returns a partition of the reverse table.
+	 *
+	 * @param valueHash the partition key.
+	 * @return the partition of the reverse table.
+	 */
+	private Map<ByteBuffer, ByteBuffer> partition(final long valueHash) {
+		Map<ByteBuffer, ByteBuffer> partition = _reverse.get(valueHash);
+		if (partition == null) {
+			partition = new LinkedHashMap<ByteBuffer, ByteBuffer>();
+			_reverse.put(valueHash, partition);
+		}
+		return partition;
+	}
+
+	/**
+	 * Creates a row with the given columns.
+	 *
+	 * @param columns the columns.
+	 * @return a row with the given columns.
+	 */
+	private Row row(final ByteBuffer... columns) {
+		final Row row = mock(Row.class);
+		for (int i = 0; i < columns.length; i++) {
+			when(row.getBytesUnsafe(i)).thenReturn(columns[i].duplicate());
+		}
+		return row;
+	}
+
+	/**
+	 * Creates a result set with the given rows.
+	 *
+	 * @param rows the rows.
+	 * @return a result set with the given rows.
+	 */
+	private ResultSet resultSet(final List<Row> rows) {
+		final ResultSet resultSet = mock(ResultSet.class);
+		when(resultSet.iterator()).thenReturn(rows.iterator());
+		when(resultSet.one()).thenReturn(rows.isEmpty() ? null : rows.get(0));
+		when(resultSet.getAvailableWithoutFetching()).thenReturn(rows.size());
+		return resultSet;
+	}
+
+	/**
+	 * Creates a prepared statement for the given query, whose bound statements record their parameters.
+	 *
+	 * @param query the CQL query.
+	 * @return a prepared statement for the given query.
+	 */
+	private PreparedStatement prepared(final String query) {
+		final PreparedStatement prepared = mock(PreparedStatement.class);
+		when(prepared.getQueryString()).thenReturn(query);
+		when(prepared.bind()).thenAnswer(new Answer<BoundStatement>() {
+			@Override
+			public BoundStatement answer(final InvocationOnMock invocation) {
+				final BoundStatement statement = mock(BoundStatement.class);
+				final Object[] parameters = new Object[3];
+				final Answer<BoundStatement> setter = new Answer<BoundStatement>() {
+					@Override
+					public BoundStatement answer(final InvocationOnMock invocation) {
+						parameters[(Integer) invocation.getArguments()[0]] = invocation.getArguments()[1];
+						return statement;
+					}
+				};
+				doAnswer(setter).when(statement).setBytesUnsafe(anyInt(), any(ByteBuffer.class));
+				doAnswer(setter).when(statement).setLong(anyInt(), anyLong());
+
+				synchronized (_queries) {
+					_queries.put(statement, query);
+					_parameters.put(statement, parameters);
+				}
+				return statement;
+			}
+		});
+		return prepared;
+	}
+}
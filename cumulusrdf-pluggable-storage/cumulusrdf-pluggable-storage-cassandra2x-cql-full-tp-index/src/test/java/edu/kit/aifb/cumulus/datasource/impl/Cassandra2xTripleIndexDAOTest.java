@@ -0,0 +1,340 @@
+package edu.kit.aifb.cumulus.datasource.impl;
+
+import static edu.kit.aifb.cumulus.datasource.Table.TABLE_PO_SC;
+import static edu.kit.aifb.cumulus.datasource.Table.TABLE_RDT_SP_O;
+import static edu.kit.aifb.cumulus.datasource.Table.TABLE_RN_SP_O;
+import static edu.kit.aifb.cumulus.datasource.Table.TABLE_S_POC;
+import static edu.kit.aifb.cumulus.datasource.impl.Cassandra2xConstants.EMPTY_VAL;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyDouble;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.openrdf.model.Value;
+import org.openrdf.model.impl.LiteralImpl;
+import org.openrdf.model.impl.URIImpl;
+import org.openrdf.model.vocabulary.XMLSchema;
+
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+
+import edu.kit.aifb.cumulus.datasource.WriteMode;
+import edu.kit.aifb.cumulus.datasource.impl.PendingMutationsTest.TestFuture;
+import edu.kit.aifb.cumulus.framework.domain.dictionary.ITopLevelDictionary;
+
+/**
+ * Test case for {@link Cassandra2xTripleIndexDAO}.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+public class Cassandra2xTripleIndexDAOTest {
+
+	private static final String SELECT_NUMBERS = "SELECT o, o_id FROM " + TABLE_RN_SP_O + " WHERE s = ? AND p = ?";
+	private static final String SELECT_DATES = "SELECT o, o_id FROM " + TABLE_RDT_SP_O + " WHERE s = ? AND p = ?";
+	private static final String SELECT_SP = "SELECT s, p, o, c FROM " + TABLE_S_POC + " WHERE s = ? AND p = ?           LIMIT ?";
+	private static final String SELECT_P = "SELECT s, p, o, c FROM " + TABLE_PO_SC + " WHERE           p_index = ?     LIMIT ?";
+	private static final String SELECT_SP_IN = "SELECT s, p, o, c FROM " + TABLE_S_POC + " WHERE s IN ? AND p = ?          ";
+
+	private final byte[] _predicate = { 1 };
+	private final byte[] _subject1 = { 2 };
+	private final byte[] _subject2 = { 3 };
+	private final byte[] _subject3 = { 4 };
+	private final byte[] _number = { 5 };
+	private final byte[] _date = { 6 };
+	private final byte[] _plain = { 7 };
+	private final byte[] _anotherPredicate = { 8 };
+
+	private final Map<ByteBuffer, Value> _values = new HashMap<ByteBuffer, Value>();
+
+	private Session _session;
+	private ITopLevelDictionary _dictionary;
+	private List<BoundStatement> _sent;
+	private Map<BoundStatement, String> _queries;
+	private Map<String, List<Row>> _rows;
+
+	private Cassandra2xTripleIndexDAO _cut;
+
+	/**
+	 * Setup fixture for this test case.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Before
+	public void setUp() throws Exception {
+		_values.put(ByteBuffer.wrap(_number), new LiteralImpl("12", XMLSchema.INT));
+		_values.put(ByteBuffer.wrap(_date), new LiteralImpl("2014-04-01T10:00:00", XMLSchema.DATETIME));
+		_values.put(ByteBuffer.wrap(_plain), new LiteralImpl("12"));
+
+		_sent = new ArrayList<BoundStatement>();
+		_queries = new HashMap<BoundStatement, String>();
+		_rows = new HashMap<String, List<Row>>();
+
+		_session = mock(Session.class);
+		when(_session.prepare(anyString())).thenAnswer(new Answer<PreparedStatement>() {
+			@Override
+			public PreparedStatement answer(final InvocationOnMock invocation) {
+				return prepared((String) invocation.getArguments()[0]);
+			}
+		});
+		when(_session.executeAsync(any(Statement.class))).thenAnswer(new Answer<ResultSetFuture>() {
+			@Override
+			public ResultSetFuture answer(final InvocationOnMock invocation) {
+				final BoundStatement statement = (BoundStatement) invocation.getArguments()[0];
+				_sent.add(statement);
+
+				final List<Row> result = _rows.get(_queries.get(statement));
+				final ResultSet rows = mock(ResultSet.class);
+				when(rows.iterator()).thenReturn(result != null ? result.iterator() : Collections.<Row> emptyList().iterator());
+
+				final TestFuture future = new TestFuture();
+				future.complete(rows);
+				return future;
+			}
+		});
+
+		_dictionary = mock(ITopLevelDictionary.class);
+		when(_dictionary.getValues(any(List.class), anyBoolean())).thenAnswer(new Answer<List<Value>>() {
+			@Override
+			public List<Value> answer(final InvocationOnMock invocation) {
+				@SuppressWarnings("unchecked")
+				final List<byte[]> ids = (List<byte[]>) invocation.getArguments()[0];
+				final List<Value> values = new ArrayList<Value>(ids.size());
+				for (final byte[] id : ids) {
+					values.add(_values.get(ByteBuffer.wrap(id)));
+				}
+				return values;
+			}
+		});
+
+		final CumulusDataAccessLayerFactory factory = mock(CumulusDataAccessLayerFactory.class);
+		when(factory.getSession()).thenReturn(_session);
+
+		_cut = new Cassandra2xTripleIndexDAO(factory, _dictionary);
+		_cut.prepareStatements();
+	}
+
+	/**
+	 * Range index entries must be looked up only in the index that matches the datatype of the deleted literals.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void deleteRangesByDatatype() throws Exception {
+		final RangeDeletions ranges = new RangeDeletions();
+		ranges.add(new byte[][] {_subject1, _predicate, _number });
+		ranges.add(new byte[][] {_subject2, _predicate, _date });
+		ranges.add(new byte[][] {_subject3, _predicate, _plain });
+
+		_cut.deleteRanges(ranges, new PendingMutations(_session, WriteMode.ASYNC, new Semaphore(1)));
+
+		assertEquals(2, _sent.size());
+		assertEquals(SELECT_NUMBERS, _queries.get(_sent.get(0)));
+		verify(_sent.get(0)).setBytesUnsafe(0, ByteBuffer.wrap(_subject1));
+		assertEquals(SELECT_DATES, _queries.get(_sent.get(1)));
+		verify(_sent.get(1)).setBytesUnsafe(0, ByteBuffer.wrap(_subject2));
+
+		verify(_dictionary).getValues(any(List.class), eq(false));
+	}
+
+	/**
+	 * A subject / predicate pair with both numeric and date/time literals must be looked up in both range indexes.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void deleteRangesWithMixedDatatypes() throws Exception {
+		final RangeDeletions ranges = new RangeDeletions();
+		ranges.add(new byte[][] {_subject1, _predicate, _number });
+		ranges.add(new byte[][] {_subject1, _predicate, _date });
+		ranges.add(new byte[][] {_subject1, _predicate, _plain });
+
+		_cut.deleteRanges(ranges, new PendingMutations(_session, WriteMode.ASYNC, new Semaphore(1)));
+
+		assertEquals(2, _sent.size());
+		assertEquals(SELECT_NUMBERS, _queries.get(_sent.get(0)));
+		assertEquals(SELECT_DATES, _queries.get(_sent.get(1)));
+	}
+
+	/**
+	 * Date/time range index entries are stored as milliseconds (bigint), so the query bounds must be bound as longs.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void dateRangeQueryBindsLongBounds() throws Exception {
+		final Value subject = new URIImpl("http://example.org/s");
+		final Value predicate = new URIImpl("http://example.org/p");
+		when(_dictionary.getID(subject, false)).thenReturn(_subject1);
+		when(_dictionary.getID(predicate, true)).thenReturn(_predicate);
+
+		final long lowerBound = 1396346400000L;
+		final long upperBound = 1396350000000L;
+		final Iterator<byte[][]> result = _cut.dateRangeQuery(new Value[] {subject, predicate, null }, lowerBound, true, upperBound, true, false, 10);
+		result.hasNext();
+
+		assertEquals(1, _sent.size());
+		final BoundStatement statement = _sent.get(0);
+		verify(statement).setLong(2, lowerBound);
+		verify(statement).setLong(3, upperBound);
+		verify(statement).setInt(4, 10);
+		verify(statement, never()).setDouble(anyInt(), anyDouble());
+	}
+
+	/**
+	 * Queries of a batch with the same shape, that differ only in the partition key, must be merged in one IN-list query.
+	 * Its results must be distributed to each query.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void batchQueryWithInList() throws Exception {
+		_rows.put(SELECT_SP_IN, Arrays.asList(
+				row(_subject1, _predicate, _number),
+				row(_subject2, _predicate, _date),
+				row(_subject1, _predicate, _plain)));
+
+		final List<Iterator<byte[][]>> results = _cut.query(Arrays.asList(
+				new byte[][] {_subject1, _predicate, null },
+				new byte[][] {_subject2, _predicate, null },
+				new byte[][] {_subject3, _predicate, null },
+				new byte[][] {_subject1, _predicate, null }), Integer.MAX_VALUE);
+
+		assertEquals(1, _sent.size());
+		assertEquals(SELECT_SP_IN, _queries.get(_sent.get(0)));
+		verify(_sent.get(0)).setList(0, Arrays.asList(ByteBuffer.wrap(_subject1), ByteBuffer.wrap(_subject2), ByteBuffer.wrap(_subject3)));
+		verify(_sent.get(0)).setBytesUnsafe(1, ByteBuffer.wrap(_predicate));
+
+		assertEquals(4, results.size());
+		assertObjects(results.get(0), _number, _plain);
+		assertObjects(results.get(1), _date);
+		assertObjects(results.get(2));
+		assertObjects(results.get(3), _number, _plain);
+	}
+
+	/**
+	 * Queries that cannot be merged (a different shape, no IN-list variant, a group of one query) 
+	 * must be executed as single queries, together with the IN-list queries of the batch.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void batchQueryMixed() throws Exception {
+		_rows.put(SELECT_SP_IN, Arrays.asList(row(_subject1, _predicate, _number), row(_subject2, _predicate, _date)));
+		_rows.put(SELECT_SP, Arrays.asList(row(_subject3, _anotherPredicate, _plain)));
+
+		final List<Iterator<byte[][]>> results = _cut.query(Arrays.asList(
+				new byte[][] {_subject1, _predicate, null },
+				new byte[][] {_subject3, _anotherPredicate, null },
+				new byte[][] {null, _predicate, null },
+				new byte[][] {_subject2, _predicate, null }), Integer.MAX_VALUE);
+
+		// The query without an IN-list variant is executed first, then the groups (in order): the IN-list and the single query.
+		assertEquals(3, _sent.size());
+		assertEquals(SELECT_P, _queries.get(_sent.get(0)));
+		assertEquals(SELECT_SP_IN, _queries.get(_sent.get(1)));
+		assertEquals(SELECT_SP, _queries.get(_sent.get(2)));
+		verify(_sent.get(1)).setList(0, Arrays.asList(ByteBuffer.wrap(_subject1), ByteBuffer.wrap(_subject2)));
+
+		assertObjects(results.get(0), _number);
+		assertObjects(results.get(1), _plain);
+		assertObjects(results.get(2));
+		assertObjects(results.get(3), _date);
+	}
+
+	/**
+	 * With a limit, queries must never be merged, as the limit applies to each of them.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void batchQueryWithLimit() throws Exception {
+		_cut.query(Arrays.asList(
+				new byte[][] {_subject1, _predicate, null },
+				new byte[][] {_subject2, _predicate, null }), 10);
+
+		assertEquals(2, _sent.size());
+		assertEquals(SELECT_SP, _queries.get(_sent.get(0)));
+		assertEquals(SELECT_SP, _queries.get(_sent.get(1)));
+		verify(_sent.get(1)).setInt(2, 10);
+	}
+
+	/**
+	 * Asserts that the given triples have the given objects, in order.
+	 *
+	 * @param triples the triples.
+	 * @param objects the expected objects.
+	 */
+	private void assertObjects(final Iterator<byte[][]> triples, final byte[]... objects) {
+		for (final byte[] object : objects) {
+			assertArrayEquals(object, triples.next()[2]);
+		}
+		assertFalse(triples.hasNext());
+	}
+
+	/**
+	 * Creates a S_POC row.
+	 *
+	 * @param s the subject.
+	 * @param p the predicate.
+	 * @param o the object.
+	 * @return a S_POC row.
+	 */
+	private Row row(final byte[] s, final byte[] p, final byte[] o) {
+		final Row row = mock(Row.class);
+		when(row.getBytesUnsafe(0)).thenReturn(ByteBuffer.wrap(s));
+		when(row.getBytesUnsafe(1)).thenReturn(ByteBuffer.wrap(p));
+		when(row.getBytesUnsafe(2)).thenReturn(ByteBuffer.wrap(o));
+		when(row.getBytesUnsafe(3)).thenReturn(ByteBuffer.wrap(EMPTY_VAL));
+		return row;
+	}
+
+	/**
+	 * Creates a prepared statement for the given query.
+	 * Each bound statement created from it is associated with the query text.
+	 *
+	 * @param query the CQL query.
+	 * @return a prepared statement for the given query.
+	 */
+	private PreparedStatement prepared(final String query) {
+		final PreparedStatement prepared = mock(PreparedStatement.class);
+		when(prepared.getQueryString()).thenReturn(query);
+		when(prepared.bind()).thenAnswer(new Answer<BoundStatement>() {
+			@Override
+			public BoundStatement answer(final InvocationOnMock invocation) {
+				final BoundStatement statement = mock(BoundStatement.class);
+				_queries.put(statement, query);
+				return statement;
+			}
+		});
+		return prepared;
+	}
+}
@@ -0,0 +1,346 @@
+package edu.kit.aifb.cumulus.datasource.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.ColumnDefinitions;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.AbstractFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import edu.kit.aifb.cumulus.datasource.WriteMode;
+import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerException;
+
+/**
+ * Test case for {@link PendingMutations}.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+public class PendingMutationsTest {
+
+	private static final int MAX_IN_FLIGHT = 10;
+	private static final long TIMEOUT = 10;
+
+	private final ByteBuffer _key1 = ByteBuffer.wrap(new byte[] { 1, 2, 3 });
+	private final ByteBuffer _key2 = ByteBuffer.wrap(new byte[] { 4, 5, 6 });
+
+	private Session _session;
+	private Semaphore _inFlight;
+	private List<Statement> _sent;
+	private List<TestFuture> _futures;
+	private volatile DataAccessLayerException _failure;
+
+	/**
+	 * A future result whose completion is driven by the test.
+	 *
+	 * @author agent
+	 * @since 1.1.0
+	 */
+	static class TestFuture extends AbstractFuture<ResultSet> implements ResultSetFuture {
+
+		/**
+		 * Completes this future.
+		 */
+		void complete() {
+			complete(null);
+		}
+
+		/**
+		 * Completes this future with the given result.
+		 *
+		 * @param result the result.
+		 */
+		void complete(final ResultSet result) {
+			set(result);
+		}
+
+		/**
+		 * Completes this future with a failure.
+		 *
+		 * @param failure the failure.
+		 */
+		void fail(final Throwable failure) {
+			setException(failure);
+		}
+
+		@Override
+		public ResultSet getUninterruptibly() {
+			try {
+				return Uninterruptibles.getUninterruptibly(this);
+			} catch (final ExecutionException exception) {
+				throw Throwables.propagate(exception.getCause());
+			}
+		}
+
+		@Override
+		public ResultSet getUninterruptibly(final long timeout, final TimeUnit unit) throws TimeoutException {
+			try {
+				return Uninterruptibles.getUninterruptibly(this, timeout, unit);
+			} catch (final ExecutionException exception) {
+				throw Throwables.propagate(exception.getCause());
+			}
+		}
+	}
+
+	/**
+	 * Setup fixture for this test case.
+	 */
+	@Before
+	public void setUp() {
+		_inFlight = new Semaphore(MAX_IN_FLIGHT);
+		_sent = Collections.synchronizedList(new ArrayList<Statement>());
+		_futures = Collections.synchronizedList(new ArrayList<TestFuture>());
+
+		_session = mock(Session.class);
+		when(_session.executeAsync(any(Statement.class))).thenAnswer(new Answer<ResultSetFuture>() {
+			@Override
+			public ResultSetFuture answer(final InvocationOnMock invocation) {
+				_sent.add((Statement) invocation.getArguments()[0]);
+				final TestFuture future = new TestFuture();
+				_futures.add(future);
+				return future;
+			}
+		});
+	}
+
+	/**
+	 * With UNLOGGED_BATCH, mutations must be grouped by partition (table and routing key).
+	 * Each group is sent in its own batch and a group with only one mutation is sent as a single statement.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void unloggedBatchGroupsByPartition() throws Exception {
+		final BoundStatement first = statement("T1", _key1);
+		final BoundStatement second = statement("T1", _key1);
+		final BoundStatement otherKey = statement("T1", _key2);
+		final BoundStatement otherTable = statement("T2", _key1);
+
+		final PendingMutations cut = new PendingMutations(_session, WriteMode.UNLOGGED_BATCH, _inFlight);
+		cut.add(first);
+		cut.add(otherKey);
+		cut.add(second);
+		cut.add(otherTable);
+
+		assertTrue(_sent.isEmpty());
+
+		completeAllFrom(executeInBackground(cut), 3);
+
+		assertEquals(3, _sent.size());
+		assertTrue(_sent.get(0) instanceof BatchStatement);
+
+		final BatchStatement batch = (BatchStatement) _sent.get(0);
+		assertEquals(Arrays.<Statement> asList(first, second), new ArrayList<Statement>(batch.getStatements()));
+		assertSame(otherKey, _sent.get(1));
+		assertSame(otherTable, _sent.get(2));
+
+		verify(_session, never()).execute(any(Statement.class));
+		assertEquals(MAX_IN_FLIGHT, _inFlight.availablePermits());
+	}
+
+	/**
+	 * With UNLOGGED_BATCH, a mutation without a routing key cannot be grouped, so it must be sent immediately.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void unloggedBatchWithoutRoutingKey() throws Exception {
+		final BoundStatement statement = statement("T1", null);
+
+		final PendingMutations cut = new PendingMutations(_session, WriteMode.UNLOGGED_BATCH, _inFlight);
+		cut.add(statement);
+
+		assertEquals(Arrays.<Statement> asList(statement), _sent);
+
+		_futures.get(0).complete();
+		cut.execute();
+		assertEquals(MAX_IN_FLIGHT, _inFlight.availablePermits());
+	}
+
+	/**
+	 * With LOGGED_BATCH, all mutations must be sent in one synchronous batch.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void loggedBatch() throws Exception {
+		final PendingMutations cut = new PendingMutations(_session, WriteMode.LOGGED_BATCH, _inFlight);
+		cut.add(statement("T1", _key1));
+		cut.add(statement("T2", _key2));
+		cut.execute();
+
+		verify(_session).execute(any(BatchStatement.class));
+		assertTrue(_sent.isEmpty());
+	}
+
+	/**
+	 * With ASYNC, a failure of any mutation must be reported by {@link PendingMutations#execute()},
+	 * but only after all the other mutations completed.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void asyncFailurePropagation() throws Exception {
+		final PendingMutations cut = new PendingMutations(_session, WriteMode.ASYNC, _inFlight);
+		for (int i = 0; i < 3; i++) {
+			cut.add(statement("T1", _key1));
+		}
+
+		assertEquals(3, _sent.size());
+		assertEquals(MAX_IN_FLIGHT - 3, _inFlight.availablePermits());
+
+		final RuntimeException failure = new RuntimeException("Write timeout");
+		_futures.get(1).fail(failure);
+		_futures.get(0).complete();
+
+		final Thread executor = executeInBackground(cut);
+		assertTrue(executor.isAlive());
+
+		_futures.get(2).complete();
+		executor.join(TimeUnit.SECONDS.toMillis(TIMEOUT));
+		assertFalse(executor.isAlive());
+
+		assertSame(failure, _failure.getCause());
+		assertEquals(MAX_IN_FLIGHT, _inFlight.availablePermits());
+
+		// Pending state has been cleared, even in case of failure.
+		cut.execute();
+	}
+
+	/**
+	 * The number of requests in flight must be bounded by the semaphore.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void inFlightRequestsAreBounded() throws Exception {
+		_inFlight = new Semaphore(1);
+
+		final PendingMutations cut = new PendingMutations(_session, WriteMode.ASYNC, _inFlight);
+		cut.add(statement("T1", _key1));
+
+		final CountDownLatch added = new CountDownLatch(1);
+		final Thread adder = new Thread() {
+			@Override
+			public void run() {
+				try {
+					cut.add(statement("T1", _key2));
+					added.countDown();
+				} catch (final DataAccessLayerException exception) {
+					// Nothing, the latch won't be released.
+				}
+			}
+		};
+		adder.start();
+
+		assertFalse(added.await(100, TimeUnit.MILLISECONDS));
+		assertEquals(1, _sent.size());
+
+		_futures.get(0).complete();
+		assertTrue(added.await(TIMEOUT, TimeUnit.SECONDS));
+		assertEquals(2, _sent.size());
+
+		_futures.get(1).complete();
+		cut.execute();
+		assertEquals(1, _inFlight.availablePermits());
+	}
+
+	/**
+	 * Executes the given mutations in a background thread, recording the failure (if any).
+	 *
+	 * @param mutations the pending mutations.
+	 * @return the background thread.
+	 * @throws InterruptedException if interrupted while waiting for the thread to block.
+	 */
+	private Thread executeInBackground(final PendingMutations mutations) throws InterruptedException {
+		final Thread executor = new Thread() {
+			@Override
+			public void run() {
+				try {
+					mutations.execute();
+				} catch (final DataAccessLayerException exception) {
+					_failure = exception;
+				}
+			}
+		};
+		executor.start();
+
+		final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT);
+		while (executor.getState() != Thread.State.WAITING && executor.isAlive() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		return executor;
+	}
+
+	/**
+	 * Waits until the given number of statements has been sent, completes them and waits for the executor.
+	 *
+	 * @param executor the thread executing the mutations.
+	 * @param expected the expected number of sent statements.
+	 * @throws InterruptedException if interrupted while waiting.
+	 */
+	private void completeAllFrom(final Thread executor, final int expected) throws InterruptedException {
+		assertEquals(expected, _futures.size());
+		for (final TestFuture future : new ArrayList<TestFuture>(_futures)) {
+			future.complete();
+		}
+
+		executor.join(TimeUnit.SECONDS.toMillis(TIMEOUT));
+		assertFalse(executor.isAlive());
+		if (_failure != null) {
+			fail(_failure.getMessage());
+		}
+	}
+
+	/**
+	 * Creates a mutation on a given partition.
+	 *
+	 * @param table the table name.
+	 * @param key the routing key.
+	 * @return a mutation on the given partition.
+	 */
+	private BoundStatement statement(final String table, final ByteBuffer key) {
+		final ColumnDefinitions variables = mock(ColumnDefinitions.class);
+		when(variables.getTable(0)).thenReturn(table);
+
+		final PreparedStatement prepared = mock(PreparedStatement.class);
+		when(prepared.getVariables()).thenReturn(variables);
+
+		final BoundStatement statement = mock(BoundStatement.class);
+		when(statement.preparedStatement()).thenReturn(prepared);
+		when(statement.getRoutingKey()).thenReturn(key == null ? null : key.duplicate());
+		return statement;
+	}
+}
@@ -0,0 +1,50 @@
+package edu.kit.aifb.cumulus.datasource.inmemory;
+
+import java.util.concurrent.ConcurrentMap;
+
+import edu.kit.aifb.cumulus.framework.datasource.CounterDAO;
+
+/**
+ * {@link CounterDAO} implementation for the in-memory storage module.
+ * 
+ * @author agent
+ * @since 1.1.0
+ * @param <K> The key class.
+ */
+public class InMemoryCounterDAO<K> extends InMemoryMapDAO<K, Long> implements CounterDAO<K> {
+
+	/**
+	 * Creates a new {@link InMemoryCounterDAO}.
+	 * 
+	 * @param map the map that holds counters.
+	 */
+	InMemoryCounterDAO(final ConcurrentMap<Object, Object> map) {
+		super(map, null);
+	}
+
+	@Override
+	public void decrement(final K key, final Long delta) {
+		add(key, -delta);
+	}
+
+	@Override
+	public void increment(final K key, final Long delta) {
+		add(key, delta);
+	}
+
+	/**
+	 * Atomically adds a given delta to a counter.
+	 * 
+	 * @param key the key of the counter.
+	 * @param delta the delta.
+	 */
+	private void add(final K key, final long delta) {
+		final Object wrapped = wrap(key);
+		while (true) {
+			final Long current = (Long) _map.putIfAbsent(wrapped, delta);
+			if (current == null || _map.replace(wrapped, current, current + delta)) {
+				return;
+			}
+		}
+	}
+}
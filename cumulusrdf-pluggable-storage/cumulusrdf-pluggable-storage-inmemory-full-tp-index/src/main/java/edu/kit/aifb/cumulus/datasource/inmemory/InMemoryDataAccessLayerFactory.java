@@ -0,0 +1,73 @@
+package edu.kit.aifb.cumulus.datasource.inmemory;
+
+import java.util.Map;
+
+import edu.kit.aifb.cumulus.framework.datasource.CounterDAO;
+import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerFactory;
+import edu.kit.aifb.cumulus.framework.datasource.MapDAO;
+import edu.kit.aifb.cumulus.framework.datasource.QuadIndexDAO;
+import edu.kit.aifb.cumulus.framework.datasource.StorageLayout;
+import edu.kit.aifb.cumulus.framework.datasource.TripleIndexDAO;
+import edu.kit.aifb.cumulus.framework.domain.configuration.Configuration;
+import edu.kit.aifb.cumulus.framework.domain.dictionary.ITopLevelDictionary;
+
+/**
+ * Concrete factory for creating members of the in-memory data access layer family.
+ * The whole index is held in memory (see {@link TupleIndex}), so it is meant for datasets that fit in RAM 
+ * and as a stand-in for Cassandra in tests. Data lives as long as the JVM and it is shared by all stores with the same layout.
+ *
+ * In order to use this factory, set the "cdrf.factory.fqdn" system property to the FQDN of this class.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+public class InMemoryDataAccessLayerFactory extends DataAccessLayerFactory {
+
+	private final InMemoryStorage _storage;
+
+	/**
+	 * Builds a new in-memory data access layer factory.
+	 *
+	 * @param layout the storage layout.
+	 */
+	public InMemoryDataAccessLayerFactory(final StorageLayout layout) {
+		super(layout);
+		_storage = InMemoryStorage.get(layout);
+	}
+
+	@Override
+	public void accept(final Configuration<Map<String, Object>> configuration) {
+		// Nothing to be configured here
+	}
+
+	@Override
+	public <K> CounterDAO<K> getCounterDAO(final Class<K> keyClass, final String counterName) {
+		return new InMemoryCounterDAO<K>(_storage.map("counter-" + counterName));
+	}
+
+	@Override
+	public <K, V> MapDAO<K, V> getMapDAO(
+			final Class<K> keyClass,
+			final Class<V> valueClass,
+			final boolean isBidirectional,
+			final String mapName) {
+		return new InMemoryMapDAO<K, V>(
+				_storage.map("map-" + mapName),
+				isBidirectional ? _storage.map("map-" + mapName + "-reverse") : null);
+	}
+
+	@Override
+	public TripleIndexDAO getTripleIndexDAO(final ITopLevelDictionary dictionary) {
+		return new InMemoryTripleIndexDAO(_storage, dictionary);
+	}
+
+	@Override
+	public QuadIndexDAO getQuadIndexDAO(final ITopLevelDictionary dictionary) {
+		return new InMemoryQuadIndexDAO(_storage, dictionary);
+	}
+
+	@Override
+	public String getUnderlyingStorageInfo() {
+		return "In-memory";
+	}
+}
@@ -0,0 +1,172 @@
+package edu.kit.aifb.cumulus.datasource.inmemory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Iterators;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerException;
+import edu.kit.aifb.cumulus.framework.datasource.MapDAO;
+
+/**
+ * {@link MapDAO} implementation for the in-memory storage module.
+ * Byte array keys (and values of bidirectional maps) are wrapped in a {@link ByteBuffer}, which has value semantics.
+ * 
+ * @author agent
+ * @since 1.1.0
+ * 
+ * @param <K> the key kind.
+ * @param <V> the value kind.
+ */
+public class InMemoryMapDAO<K, V> implements MapDAO<K, V> {
+
+	protected final ConcurrentMap<Object, Object> _map;
+	private final ConcurrentMap<Object, Object> _reverseMap;
+	private V _defaultValue;
+
+	/**
+	 * Builds a new data access object with the given data.
+	 * 
+	 * @param map the map that holds data.
+	 * @param reverseMap the value to key map of a bidirectional map, null otherwise.
+	 */
+	InMemoryMapDAO(final ConcurrentMap<Object, Object> map, final ConcurrentMap<Object, Object> reverseMap) {
+		_map = map;
+		_reverseMap = reverseMap;
+	}
+
+	@Override
+	public boolean contains(final K key) throws DataAccessLayerException {
+		return key != null && _map.containsKey(wrap(key));
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public void delete(final K... keys) throws DataAccessLayerException {
+		for (final K key : keys) {
+			final Object value = _map.remove(wrap(key));
+			if (value != null && _reverseMap != null) {
+				_reverseMap.remove(wrap(value));
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public V get(final K key) throws DataAccessLayerException {
+		final Object value = _map.get(wrap(key));
+		return value != null ? (V) value : _defaultValue;
+	}
+
+	@Override
+	public List<V> getAll(final List<K> keys) throws DataAccessLayerException {
+		final List<V> values = new ArrayList<V>(keys.size());
+		for (final K key : keys) {
+			values.add(get(key));
+		}
+		return values;
+	}
+
+	@Override
+	public ListenableFuture<List<V>> getAllAsync(final List<K> keys) throws DataAccessLayerException {
+		return Futures.immediateFuture(getAll(keys));
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public K getKey(final V value) throws DataAccessLayerException {
+		final Object wrapped = wrap(value);
+		if (_reverseMap != null) {
+			return (K) unwrap(_reverseMap.get(wrapped));
+		}
+
+		for (final Entry<Object, Object> entry : _map.entrySet()) {
+			if (wrapped.equals(wrap(entry.getValue()))) {
+				return (K) unwrap(entry.getKey());
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public Iterator<K> keyIterator() throws DataAccessLayerException {
+		return Iterators.transform(_map.keySet().iterator(), new Function<Object, K>() {
+			@SuppressWarnings("unchecked")
+			@Override
+			public K apply(final Object key) {
+				return (K) unwrap(key);
+			}
+		});
+	}
+
+	@Override
+	public Set<K> keySet() throws DataAccessLayerException {
+		final Set<K> keys = new LinkedHashSet<K>();
+		Iterators.addAll(keys, keyIterator());
+		return keys;
+	}
+
+	@Override
+	public void set(final K key, final V value) throws DataAccessLayerException {
+		final Object oldValue = _map.put(wrap(key), value);
+		if (_reverseMap != null) {
+			if (oldValue != null) {
+				_reverseMap.remove(wrap(oldValue));
+			}
+			_reverseMap.put(wrap(value), wrap(key));
+		}
+	}
+
+	@Override
+	public void setAll(final Map<K, V> pairs) throws DataAccessLayerException {
+		for (final Entry<K, V> pair : pairs.entrySet()) {
+			set(pair.getKey(), pair.getValue());
+		}
+	}
+
+	@Override
+	public ListenableFuture<Void> setAllAsync(final Map<K, V> pairs) throws DataAccessLayerException {
+		setAll(pairs);
+		return Futures.immediateFuture(null);
+	}
+
+	@Override
+	public void setDefaultValue(final V defaultValue) throws DataAccessLayerException {
+		_defaultValue = defaultValue;
+	}
+
+	@Override
+	public void createRequiredSchemaEntities() throws DataAccessLayerException {
+		// Nothing to be done here, maps are created by the storage.
+	}
+
+	/**
+	 * Wraps a byte array in a {@link ByteBuffer}, so it can be used as a map key.
+	 * 
+	 * @param object the object.
+	 * @return the wrapped object, or the object itself if it isn't a byte array.
+	 */
+	static Object wrap(final Object object) {
+		return object instanceof byte[] ? ByteBuffer.wrap((byte[]) object) : object;
+	}
+
+	/**
+	 * Unwraps a byte array wrapped by {@link #wrap(Object)}.
+	 * 
+	 * @param object the (possibly) wrapped object.
+	 * @return the unwrapped object.
+	 */
+	static Object unwrap(final Object object) {
+		return object instanceof ByteBuffer ? ((ByteBuffer) object).array() : object;
+	}
+}
@@ -0,0 +1,34 @@
+package edu.kit.aifb.cumulus.datasource.inmemory;
+
+import edu.kit.aifb.cumulus.framework.datasource.QuadIndexDAO;
+import edu.kit.aifb.cumulus.framework.domain.dictionary.ITopLevelDictionary;
+
+/**
+ * In-memory implementation of {@link QuadIndexDAO}.
+ * In addition to the triple indexes, quads are stored in three indexes that start with the context,
+ * so any pattern with a bound context and another bound member is answered with a prefix scan.
+ * 
+ * @author agent
+ * @since 1.1.0
+ */
+public class InMemoryQuadIndexDAO extends InMemoryTripleIndexDAO implements QuadIndexDAO {
+
+	static final Permutation CSPO = new Permutation("CSPO", 3, 0, 1, 2);
+	static final Permutation CPOS = new Permutation("CPOS", 3, 1, 2, 0);
+	static final Permutation COSP = new Permutation("COSP", 3, 2, 0, 1);
+
+	/**
+	 * Buils a new dao with the given data.
+	 * 
+	 * @param storage the in-memory storage.
+	 * @param dictionary the dictionary currently used in the owning store instance.
+	 */
+	InMemoryQuadIndexDAO(final InMemoryStorage storage, final ITopLevelDictionary dictionary) {
+		super(storage, dictionary);
+	}
+
+	@Override
+	protected Permutation[] permutations() {
+		return new Permutation[] {SPOC, POSC, OSPC, CSPO, CPOS, COSP};
+	}
+}
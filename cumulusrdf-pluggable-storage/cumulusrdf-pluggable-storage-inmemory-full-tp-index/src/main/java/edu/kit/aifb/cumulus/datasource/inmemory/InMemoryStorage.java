@@ -0,0 +1,82 @@
+package edu.kit.aifb.cumulus.datasource.inmemory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import edu.kit.aifb.cumulus.framework.datasource.StorageLayout;
+
+/**
+ * The data of an in-memory storage: term numbers, tuple indexes and maps.
+ * Like a Cassandra keyspace, it outlives stores and factories: there's one storage per layout, for the whole JVM lifetime.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+final class InMemoryStorage {
+	private static final ConcurrentMap<StorageLayout, InMemoryStorage> STORAGES = new ConcurrentHashMap<StorageLayout, InMemoryStorage>();
+
+	private final TermTable _terms = new TermTable();
+	private final ConcurrentMap<String, TupleIndex> _indexes = new ConcurrentHashMap<String, TupleIndex>();
+	private final ConcurrentMap<String, ConcurrentMap<Object, Object>> _maps = new ConcurrentHashMap<String, ConcurrentMap<Object, Object>>();
+
+	/**
+	 * Returns the storage associated with a given layout.
+	 *
+	 * @param layout the storage layout.
+	 * @return the storage associated with the given layout.
+	 */
+	static InMemoryStorage get(final StorageLayout layout) {
+		final InMemoryStorage storage = STORAGES.get(layout);
+		if (storage != null) {
+			return storage;
+		}
+
+		final InMemoryStorage newStorage = new InMemoryStorage();
+		final InMemoryStorage existing = STORAGES.putIfAbsent(layout, newStorage);
+		return existing != null ? existing : newStorage;
+	}
+
+	/**
+	 * Returns the term table of this storage.
+	 *
+	 * @return the term table of this storage.
+	 */
+	TermTable terms() {
+		return _terms;
+	}
+
+	/**
+	 * Returns the tuple index with a given name, creating it if needed.
+	 *
+	 * @param name the index name.
+	 * @param width the tuple width.
+	 * @return the tuple index with the given name.
+	 */
+	TupleIndex index(final String name, final int width) {
+		final TupleIndex index = _indexes.get(name);
+		if (index != null) {
+			return index;
+		}
+
+		final TupleIndex newIndex = new TupleIndex(name, width);
+		final TupleIndex existing = _indexes.putIfAbsent(name, newIndex);
+		return existing != null ? existing : newIndex;
+	}
+
+	/**
+	 * Returns the map with a given name, creating it if needed.
+	 *
+	 * @param name the map name.
+	 * @return the map with the given name.
+	 */
+	ConcurrentMap<Object, Object> map(final String name) {
+		final ConcurrentMap<Object, Object> map = _maps.get(name);
+		if (map != null) {
+			return map;
+		}
+
+		final ConcurrentMap<Object, Object> newMap = new ConcurrentHashMap<Object, Object>();
+		final ConcurrentMap<Object, Object> existing = _maps.putIfAbsent(name, newMap);
+		return existing != null ? existing : newMap;
+	}
+}
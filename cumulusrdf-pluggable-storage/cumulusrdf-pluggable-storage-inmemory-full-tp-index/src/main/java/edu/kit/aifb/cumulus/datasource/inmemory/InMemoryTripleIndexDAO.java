@@ -0,0 +1,513 @@
+package edu.kit.aifb.cumulus.datasource.inmemory;
+
+import static edu.kit.aifb.cumulus.framework.util.Utility.isVariable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+import org.openrdf.model.Value;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+
+import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerException;
+import edu.kit.aifb.cumulus.framework.datasource.TripleIndexDAO;
+import edu.kit.aifb.cumulus.framework.domain.dictionary.ITopLevelDictionary;
+
+/**
+ * In-memory implementation of {@link TripleIndexDAO}.
+ *
+ * Identifiers are replaced by int numbers (see {@link TermTable}) and each triple is stored, as a tuple of numbers,
+ * in three sorted off-heap indexes (SPOC, POSC and OSPC). A triple pattern is answered by a prefix scan on the index
+ * where the bound members make the longest prefix; remaining bound members (if any) are compared as numbers,
+ * so the only allocation for each result is the returned identifiers array.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+public class InMemoryTripleIndexDAO implements TripleIndexDAO {
+
+	/**
+	 * The order of the triple members in an index: 0 is the subject, 1 the predicate, 2 the object and 3 the context.
+	 *
+	 * @author agent
+	 * @since 1.1.0
+	 */
+	static final class Permutation {
+		private final String _name;
+		private final int[] _order;
+		private final int[] _positions = new int[4];
+
+		/**
+		 * Builds a new permutation.
+		 *
+		 * @param name the index name.
+		 * @param order the order of the triple members in the index.
+		 */
+		Permutation(final String name, final int ... order) {
+			_name = name;
+			_order = order;
+			for (int i = 0; i < order.length; i++) {
+				_positions[order[i]] = i;
+			}
+		}
+
+		/**
+		 * Returns how many bound members of the given pattern make a prefix in this permutation.
+		 *
+		 * @param spoc the pattern numbers, where variables are {@link TermTable#UNKNOWN}.
+		 * @return how many bound members of the given pattern make a prefix in this permutation.
+		 */
+		int prefixLength(final int[] spoc) {
+			int length = 0;
+			while (length < _order.length && spoc[_order[length]] != TermTable.UNKNOWN) {
+				length++;
+			}
+			return length;
+		}
+
+		/**
+		 * Returns a given quad as a tuple of this permutation.
+		 *
+		 * @param spoc the quad numbers.
+		 * @return the tuple.
+		 */
+		int[] tuple(final int[] spoc) {
+			final int[] tuple = new int[_order.length];
+			for (int i = 0; i < _order.length; i++) {
+				tuple[i] = spoc[_order[i]];
+			}
+			return tuple;
+		}
+	}
+
+	static final Permutation SPOC = new Permutation("SPOC", 0, 1, 2, 3);
+	static final Permutation POSC = new Permutation("POSC", 1, 2, 0, 3);
+	static final Permutation OSPC = new Permutation("OSPC", 2, 0, 1, 3);
+
+	// Range tuples: (s, p, value high bits, value low bits, o) and (p, value high bits, value low bits, s, o)
+	static final String RN_SP_O = "RN_SP_O";
+	static final String RN_P_OS = "RN_P_OS";
+	static final String RDT_SP_O = "RDT_SP_O";
+	static final String RDT_P_OS = "RDT_P_OS";
+
+	protected final InMemoryStorage _storage;
+	protected final ITopLevelDictionary _dictionary;
+	private final TermTable _terms;
+	private final Comparator<byte[]> _order = new Comparator<byte[]>() {
+		@Override
+		public int compare(final byte[] first, final byte[] second) {
+			return Integer.compare(_terms.lookup(first), _terms.lookup(second));
+		}
+	};
+
+	private Permutation[] _permutations;
+	private TupleIndex[] _indexes;
+	private TupleIndex _numbersBySubject;
+	private TupleIndex _numbersByPredicate;
+	private TupleIndex _datesBySubject;
+	private TupleIndex _datesByPredicate;
+
+	/**
+	 * Buils a new dao with the given data.
+	 *
+	 * @param storage the in-memory storage.
+	 * @param dictionary the dictionary currently used in the owning store instance.
+	 */
+	InMemoryTripleIndexDAO(final InMemoryStorage storage, final ITopLevelDictionary dictionary) {
+		_storage = storage;
+		_dictionary = dictionary;
+		_terms = storage.terms();
+	}
+
+	@Override
+	public void initialiseRdfIndex() throws DataAccessLayerException {
+		_permutations = permutations();
+		_indexes = new TupleIndex[_permutations.length];
+		for (int i = 0; i < _permutations.length; i++) {
+			_indexes[i] = _storage.index(_permutations[i]._name, 4);
+		}
+
+		_numbersBySubject = _storage.index(RN_SP_O, 5);
+		_numbersByPredicate = _storage.index(RN_P_OS, 5);
+		_datesBySubject = _storage.index(RDT_SP_O, 5);
+		_datesByPredicate = _storage.index(RDT_P_OS, 5);
+	}
+
+	@Override
+	public void insertTriple(final byte[][] ids) throws DataAccessLayerException {
+		final int[] spoc = {
+				_terms.intern(ids[0]),
+				_terms.intern(ids[1]),
+				_terms.intern(ids[2]),
+				ids.length == 4 ? _terms.intern(ids[3]) : TermTable.EMPTY};
+
+		for (int i = 0; i < _permutations.length; i++) {
+			_indexes[i].insert(_permutations[i].tuple(spoc));
+		}
+	}
+
+	@Override
+	public void insertRanges(final byte[][] ids, final double value) throws DataAccessLayerException {
+		insertRanges(ids, sortable(value), _numbersBySubject, _numbersByPredicate);
+	}
+
+	@Override
+	public void insertRanges(final byte[][] ids, final long value) throws DataAccessLayerException {
+		insertRanges(ids, value, _datesBySubject, _datesByPredicate);
+	}
+
+	@Override
+	public List<byte[][]> deleteTriples(
+			final Iterator<byte[][]> nodes,
+			final int batchSize,
+			final boolean rangesEnabled) throws DataAccessLayerException {
+		final List<byte[][]> deleted = new ArrayList<byte[][]>(batchSize);
+		final List<int[]> literals = new ArrayList<int[]>();
+		while (nodes.hasNext()) {
+			final byte[][] ids = nodes.next();
+
+			// check if valid triple or quad
+			if (ids == null || ids.length < 3) {
+				continue;
+			}
+
+			final int[] spoc = {
+					_terms.lookup(ids[0]),
+					_terms.lookup(ids[1]),
+					_terms.lookup(ids[2]),
+					ids.length == 4 ? _terms.lookup(ids[3]) : TermTable.EMPTY};
+
+			if (spoc[0] != TermTable.UNKNOWN && spoc[1] != TermTable.UNKNOWN && spoc[2] != TermTable.UNKNOWN && spoc[3] != TermTable.UNKNOWN) {
+				for (int i = 0; i < _permutations.length; i++) {
+					_indexes[i].delete(_permutations[i].tuple(spoc));
+				}
+
+				if (rangesEnabled && _dictionary.isLiteral(ids[2])) {
+					literals.add(spoc);
+				}
+			}
+			deleted.add(ids);
+		}
+
+		if (!literals.isEmpty()) {
+			deleteRanges(literals, _numbersBySubject, _numbersByPredicate);
+			deleteRanges(literals, _datesBySubject, _datesByPredicate);
+		}
+		return deleted;
+	}
+
+	@Override
+	public void executePendingMutations() throws DataAccessLayerException {
+		// Nothing to be done here: mutations are visible as soon as they are executed.
+	}
+
+	@Override
+	public Iterator<byte[][]> query(final byte[][] query, final int limit) throws DataAccessLayerException {
+		final int[] spoc = new int[4];
+		for (int i = 0; i < 4; i++) {
+			if (i < query.length && !isVariable(query[i])) {
+				spoc[i] = _terms.lookup(query[i]);
+				if (spoc[i] == TermTable.UNKNOWN) {
+					return Collections.<byte[][]>emptyList().iterator();
+				}
+			} else {
+				spoc[i] = TermTable.UNKNOWN;
+			}
+		}
+
+		final int index = indexFor(spoc);
+		final Permutation permutation = _permutations[index];
+		final int[] tuple = permutation.tuple(spoc);
+		final int boundLength = permutation.prefixLength(spoc);
+		final TupleIndex.Cursor cursor = _indexes[index].cursor(tuple, boundLength);
+		final int[] positions = permutation._positions;
+		final Iterator<byte[][]> triples = new AbstractIterator<byte[][]>() {
+			@Override
+			protected byte[][] computeNext() {
+				while (cursor.next()) {
+					if (matches(cursor, tuple, boundLength)) {
+						final int c = cursor.get(positions[3]);
+						final byte[] s = _terms.term(cursor.get(positions[0]));
+						final byte[] p = _terms.term(cursor.get(positions[1]));
+						final byte[] o = _terms.term(cursor.get(positions[2]));
+						return c == TermTable.EMPTY ? new byte[][] {s, p, o} : new byte[][] {s, p, o, _terms.term(c)};
+					}
+				}
+				return endOfData();
+			}
+		};
+		return limit == Integer.MAX_VALUE ? triples : Iterators.limit(triples, limit);
+	}
+
+	@Override
+	public List<Iterator<byte[][]>> query(final List<byte[][]> queries, final int limit) throws DataAccessLayerException {
+		final List<Iterator<byte[][]>> results = new ArrayList<Iterator<byte[][]>>(queries.size());
+		for (final byte[][] query : queries) {
+			results.add(query(query, limit));
+		}
+		return results;
+	}
+
+	/**
+	 * Results are read with a prefix scan, so they are sorted by the (number of the) member that follows the prefix.
+	 */
+	@Override
+	public int sortedBy(final byte[][] query) {
+		final int[] spoc = new int[4];
+		for (int i = 0; i < 4; i++) {
+			spoc[i] = i < query.length && !isVariable(query[i]) ? TermTable.EMPTY : TermTable.UNKNOWN;
+		}
+
+		final Permutation permutation = _permutations[indexFor(spoc)];
+		final int prefixLength = permutation.prefixLength(spoc);
+		if (prefixLength < permutation._order.length && permutation._order[prefixLength] < 3) {
+			return permutation._order[prefixLength];
+		}
+		return -1;
+	}
+
+	@Override
+	public Comparator<byte[]> getIdentifiersOrder() {
+		return _order;
+	}
+
+	@Override
+	public Iterator<byte[][]> numericRangeQuery(
+			final Value[] query,
+			final double lowerBound,
+			final boolean equalsLower,
+			final double upperBound,
+			final boolean equalsUpper,
+			final boolean reverse,
+			final int limit) throws DataAccessLayerException {
+		return rangeQuery(
+				query,
+				sortable(lowerBound), equalsLower,
+				sortable(upperBound), equalsUpper,
+				reverse,
+				limit,
+				_numbersBySubject,
+				_numbersByPredicate);
+	}
+
+	@Override
+	public Iterator<byte[][]> dateRangeQuery(
+			final Value[] query,
+			final long lowerBound,
+			final boolean equalsLower,
+			final long upperBound,
+			final boolean equalsUpper,
+			final boolean reverse,
+			final int limit) throws DataAccessLayerException {
+		return rangeQuery(
+				query,
+				lowerBound, equalsLower,
+				upperBound, equalsUpper,
+				reverse,
+				limit,
+				_datesBySubject,
+				_datesByPredicate);
+	}
+
+	@Override
+	public void close() throws DataAccessLayerException {
+		// Nothing to be done here: data outlives the store.
+	}
+
+	@Override
+	public void clear() {
+		for (final TupleIndex index : _indexes) {
+			index.clear();
+		}
+
+		_numbersBySubject.clear();
+		_numbersByPredicate.clear();
+		_datesBySubject.clear();
+		_datesByPredicate.clear();
+	}
+
+	/**
+	 * Returns the indexes (as permutations of the quad members) that make up this index.
+	 *
+	 * @return the indexes (as permutations of the quad members) that make up this index.
+	 */
+	protected Permutation[] permutations() {
+		return new Permutation[] {SPOC, POSC, OSPC};
+	}
+
+	/**
+	 * Inserts the range entries of a given triple.
+	 *
+	 * @param ids the triple identifiers.
+	 * @param value the (sortable) range value.
+	 * @param bySubject the range index partitioned by subject and predicate.
+	 * @param byPredicate the range index partitioned by predicate.
+	 */
+	private void insertRanges(final byte[][] ids, final long value, final TupleIndex bySubject, final TupleIndex byPredicate) {
+		final int s = _terms.intern(ids[0]);
+		final int p = _terms.intern(ids[1]);
+		final int o = _terms.intern(ids[2]);
+		bySubject.insert(s, p, high(value), low(value), o);
+		byPredicate.insert(p, high(value), low(value), s, o);
+	}
+
+	/**
+	 * Deletes the range entries of the given triples.
+	 * Range values are found scanning the (subject, predicate) range entries, so the dictionary is never involved.
+	 * All values are looked up before deleting any entry, so lookups never wait for pending deletions to be applied.
+	 *
+	 * @param triples the triple numbers.
+	 * @param bySubject the range index partitioned by subject and predicate.
+	 * @param byPredicate the range index partitioned by predicate.
+	 */
+	private void deleteRanges(final List<int[]> triples, final TupleIndex bySubject, final TupleIndex byPredicate) {
+		final List<int[]> entries = new ArrayList<int[]>(triples.size());
+		final int[] prefix = new int[2];
+		for (final int[] spoc : triples) {
+			prefix[0] = spoc[0];
+			prefix[1] = spoc[1];
+			final TupleIndex.Cursor cursor = bySubject.cursor(prefix, 2);
+			while (cursor.next()) {
+				if (cursor.get(4) == spoc[2]) {
+					entries.add(new int[] {spoc[0], spoc[1], cursor.get(2), cursor.get(3), spoc[2]});
+				}
+			}
+		}
+
+		for (final int[] entry : entries) {
+			bySubject.delete(entry);
+			byPredicate.delete(entry[1], entry[2], entry[3], entry[0], entry[4]);
+		}
+	}
+
+	/**
+	 * Executes a range query.
+	 *
+	 * @param query the query pattern.
+	 * @param lowerBound the (sortable) lower bound of the requested range.
+	 * @param equalsLower if lower bound should be included.
+	 * @param upperBound the (sortable) upper bound of the requested range.
+	 * @param equalsUpper if upper bound should be included.
+	 * @param reverse the order by criteria.
+	 * @param limit the max number of triples in result.
+	 * @param bySubject the range index partitioned by subject and predicate.
+	 * @param byPredicate the range index partitioned by predicate.
+	 * @return an iterator containing query results (as identifiers).
+	 * @throws DataAccessLayerException in case of data access failure.
+	 */
+	private Iterator<byte[][]> rangeQuery(
+			final Value[] query,
+			final long lowerBound,
+			final boolean equalsLower,
+			final long upperBound,
+			final boolean equalsUpper,
+			final boolean reverse,
+			final int limit,
+			final TupleIndex bySubject,
+			final TupleIndex byPredicate) throws DataAccessLayerException {
+		final byte[] sid = _dictionary.getID(query[0], false);
+		final int p = _terms.lookup(_dictionary.getID(query[1], true));
+		final boolean subjectIsVariable = isVariable(sid);
+		final int s = subjectIsVariable ? TermTable.EMPTY : _terms.lookup(sid);
+		if (p == TermTable.UNKNOWN || s == TermTable.UNKNOWN) {
+			return Collections.<byte[][]>emptyList().iterator();
+		}
+
+		final TupleIndex.Cursor cursor = subjectIsVariable
+				? byPredicate.cursor(
+						new int[] {p, high(lowerBound), low(lowerBound)}, 3, equalsLower,
+						new int[] {p, high(upperBound), low(upperBound)}, 3, equalsUpper,
+						reverse)
+				: bySubject.cursor(
+						new int[] {s, p, high(lowerBound), low(lowerBound)}, 4, equalsLower,
+						new int[] {s, p, high(upperBound), low(upperBound)}, 4, equalsUpper,
+						reverse);
+
+		final Iterator<byte[][]> triples = new AbstractIterator<byte[][]>() {
+			@Override
+			protected byte[][] computeNext() {
+				if (!cursor.next()) {
+					return endOfData();
+				}
+
+				return subjectIsVariable
+						? new byte[][] {_terms.term(cursor.get(3)), _terms.term(cursor.get(0)), _terms.term(cursor.get(4))}
+						: new byte[][] {_terms.term(cursor.get(0)), _terms.term(cursor.get(1)), _terms.term(cursor.get(4))};
+			}
+		};
+		return limit == Integer.MAX_VALUE ? triples : Iterators.limit(triples, limit);
+	}
+
+	/**
+	 * Returns the index where the bound members of the given pattern make the longest prefix.
+	 *
+	 * @param spoc the pattern numbers, where variables are {@link TermTable#UNKNOWN}.
+	 * @return the index that will be used for answering the given pattern.
+	 */
+	private int indexFor(final int[] spoc) {
+		int index = 0;
+		int prefixLength = -1;
+		for (int i = 0; i < _permutations.length; i++) {
+			final int length = _permutations[i].prefixLength(spoc);
+			if (length > prefixLength) {
+				index = i;
+				prefixLength = length;
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Returns true if the current tuple of a cursor matches the bound members of a given pattern tuple.
+	 * The first members (i.e. the scanned prefix) match by definition.
+	 *
+	 * @param cursor the cursor.
+	 * @param pattern the pattern tuple, where variables are {@link TermTable#UNKNOWN}.
+	 * @param prefixLength the length of the scanned prefix.
+	 * @return true if the current tuple of the cursor matches the bound members of the pattern.
+	 */
+	private static boolean matches(final TupleIndex.Cursor cursor, final int[] pattern, final int prefixLength) {
+		for (int i = prefixLength; i < pattern.length; i++) {
+			if (pattern[i] != TermTable.UNKNOWN && cursor.get(i) != pattern[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns a long whose (signed) order is the order of the given double values.
+	 *
+	 * @param value the double value.
+	 * @return a long whose (signed) order is the order of the given double values.
+	 */
+	static long sortable(final double value) {
+		final long bits = Double.doubleToLongBits(value);
+		return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+	}
+
+	/**
+	 * Returns the high bits of a (sortable) value, as a range tuple member.
+	 *
+	 * @param value the value.
+	 * @return the high bits of the value.
+	 */
+	private static int high(final long value) {
+		return (int) (value >> 32);
+	}
+
+	/**
+	 * Returns the low bits of a (sortable) value, as a range tuple member.
+	 * The sign bit is flipped, so that members compare (as signed ints) like the unsigned low bits.
+	 *
+	 * @param value the value.
+	 * @return the low bits of the value.
+	 */
+	private static int low(final long value) {
+		return (int) value ^ Integer.MIN_VALUE;
+	}
+}
@@ -0,0 +1,128 @@
+package edu.kit.aifb.cumulus.datasource.inmemory;
+
+import java.util.Arrays;
+
+/**
+ * Maps the (variable length) dictionary identifiers to dense int numbers, so that tuples are made of primitives.
+ * Number 0 is reserved for the empty identifier (i.e. the context of a triple).
+ * Numbers are never reclaimed: like dictionary identifiers, they live as long as the storage.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+final class TermTable {
+	static final int EMPTY = 0;
+	static final int UNKNOWN = -1;
+
+	private static final byte[] EMPTY_TERM = new byte[0];
+
+	private volatile byte[][] _terms = new byte[1024][];
+	private int[] _slots = new int[2048];
+	private int _size;
+
+	/**
+	 * Builds a new term table.
+	 */
+	TermTable() {
+		_terms[EMPTY] = EMPTY_TERM;
+		_size = 1;
+	}
+
+	/**
+	 * Returns the number of a given identifier, assigning a new number if the identifier is unknown.
+	 *
+	 * @param term the identifier.
+	 * @return the number of the given identifier.
+	 */
+	synchronized int intern(final byte[] term) {
+		if (term == null || term.length == 0) {
+			return EMPTY;
+		}
+
+		final int slot = slot(term);
+		if (_slots[slot] != 0) {
+			return _slots[slot] - 1;
+		}
+
+		byte[][] terms = _terms;
+		if (_size == terms.length) {
+			terms = Arrays.copyOf(terms, terms.length * 2);
+		}
+
+		final int number = _size++;
+		terms[number] = term;
+		_terms = terms;
+		_slots[slot] = number + 1;
+
+		if (_size * 2 > _slots.length) {
+			rehash();
+		}
+		return number;
+	}
+
+	/**
+	 * Returns the number of a given identifier.
+	 *
+	 * @param term the identifier.
+	 * @return the number of the given identifier, {@link #UNKNOWN} if the identifier has never been stored.
+	 */
+	synchronized int lookup(final byte[] term) {
+		if (term == null || term.length == 0) {
+			return EMPTY;
+		}
+		return _slots[slot(term)] - 1;
+	}
+
+	/**
+	 * Returns the identifier with a given number.
+	 *
+	 * @param number the identifier number.
+	 * @return the identifier with the given number.
+	 */
+	byte[] term(final int number) {
+		return _terms[number];
+	}
+
+	/**
+	 * Returns the slot of a given identifier: the slot where it is stored or the empty slot where it should be stored.
+	 *
+	 * @param term the identifier.
+	 * @return the slot of the given identifier.
+	 */
+	private int slot(final byte[] term) {
+		final int mask = _slots.length - 1;
+		int slot = mix(Arrays.hashCode(term)) & mask;
+		while (_slots[slot] != 0 && !Arrays.equals(_terms[_slots[slot] - 1], term)) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * Doubles the slots table.
+	 */
+	private void rehash() {
+		final int[] slots = new int[_slots.length * 2];
+		final int mask = slots.length - 1;
+		final byte[][] terms = _terms;
+		for (int number = 1; number < _size; number++) {
+			int slot = mix(Arrays.hashCode(terms[number])) & mask;
+			while (slots[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			slots[slot] = number + 1;
+		}
+		_slots = slots;
+	}
+
+	/**
+	 * Spreads the bits of a hash code, as identifiers often share long prefixes.
+	 *
+	 * @param hash the hash code.
+	 * @return the mixed hash code.
+	 */
+	private static int mix(final int hash) {
+		final int h = hash * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
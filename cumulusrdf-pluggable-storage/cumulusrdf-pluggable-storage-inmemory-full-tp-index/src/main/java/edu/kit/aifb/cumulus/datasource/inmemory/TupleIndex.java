@@ -0,0 +1,669 @@
+package edu.kit.aifb.cumulus.datasource.inmemory;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+import edu.kit.aifb.cumulus.log.MessageCatalog;
+
+/**
+ * A sorted set of fixed width int tuples, held in off-heap memory.
+ *
+ * Tuples live in two immutable sorted runs: a main run and a (much smaller) delta run.
+ * Mutations are buffered and applied on the next read: inserts are merged in the delta run, deletes mark tuples
+ * in a (copy-on-write) bitmap of their run, so they cost a binary search each.
+ * Once the delta run and the deleted tuples grow too much, runs are merged in a new main run, without deleted tuples.
+ * Since runs and bitmaps are never modified, a scan works on a consistent snapshot without any locking.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+final class TupleIndex {
+
+	/**
+	 * An immutable, sorted run of tuples.
+	 *
+	 * @author agent
+	 * @since 1.1.0
+	 */
+	static final class Run {
+		private static final int PAGE_SHIFT = 16;
+		private static final int PAGE_MASK = (1 << PAGE_SHIFT) - 1;
+
+		private final IntBuffer _tuples;
+		private final int _size;
+		private final int _width;
+
+		// Pages of the deletions bitmap (a null page has no deletions), null if no tuple has been deleted
+		private final long[][] _deleted;
+		private final int _deletedCount;
+
+		/**
+		 * Builds a new run.
+		 *
+		 * @param tuples the tuples buffer.
+		 * @param size the number of tuples.
+		 * @param width the tuple width.
+		 */
+		Run(final IntBuffer tuples, final int size, final int width) {
+			this(tuples, size, width, null, 0);
+		}
+
+		/**
+		 * Builds a new run with deleted tuples.
+		 *
+		 * @param tuples the tuples buffer.
+		 * @param size the number of tuples.
+		 * @param width the tuple width.
+		 * @param deleted the pages of the deletions bitmap, null if no tuple has been deleted.
+		 * @param deletedCount the number of deleted tuples.
+		 */
+		private Run(final IntBuffer tuples, final int size, final int width, final long[][] deleted, final int deletedCount) {
+			_tuples = tuples;
+			_size = size;
+			_width = width;
+			_deleted = deleted;
+			_deletedCount = deletedCount;
+		}
+
+		/**
+		 * Returns true if a given tuple has been deleted.
+		 *
+		 * @param index the tuple index.
+		 * @return true if the given tuple has been deleted.
+		 */
+		boolean isDeleted(final int index) {
+			if (_deleted == null) {
+				return false;
+			}
+
+			final long[] page = _deleted[index >>> PAGE_SHIFT];
+			return page != null && (page[(index & PAGE_MASK) >>> 6] & (1L << index)) != 0;
+		}
+
+		/**
+		 * Returns a run with the same tuples, where the given tuples are marked as deleted (or restored).
+		 * Only the touched pages of the bitmap are copied.
+		 *
+		 * @param indexes the indexes of the tuples.
+		 * @param count how many indexes are used.
+		 * @param deleted true if the tuples must be marked as deleted, false if they must be restored.
+		 * @return a run with the same tuples, where the given tuples are marked as deleted (or restored).
+		 */
+		Run mark(final int[] indexes, final int count, final boolean deleted) {
+			final long[][] pages = _deleted != null ? _deleted.clone() : new long[(_size >>> PAGE_SHIFT) + 1][];
+			final boolean[] copied = new boolean[pages.length];
+			int deletedCount = _deletedCount;
+			for (int i = 0; i < count; i++) {
+				final int index = indexes[i];
+				final int page = index >>> PAGE_SHIFT;
+				if (!copied[page]) {
+					pages[page] = pages[page] != null ? pages[page].clone() : new long[(PAGE_MASK + 1) >>> 6];
+					copied[page] = true;
+				}
+
+				final int word = (index & PAGE_MASK) >>> 6;
+				final long bit = 1L << index;
+				if (((pages[page][word] & bit) != 0) != deleted) {
+					pages[page][word] ^= bit;
+					deletedCount += deleted ? 1 : -1;
+				}
+			}
+			return new Run(_tuples, _size, _width, deletedCount > 0 ? pages : null, deletedCount);
+		}
+
+		/**
+		 * Returns the number of tuples of this run that haven't been deleted.
+		 *
+		 * @return the number of tuples of this run that haven't been deleted.
+		 */
+		int live() {
+			return _size - _deletedCount;
+		}
+
+		/**
+		 * Returns a member of a tuple.
+		 *
+		 * @param index the tuple index.
+		 * @param position the member position.
+		 * @return the member of the tuple.
+		 */
+		int get(final int index, final int position) {
+			return _tuples.get(index * _width + position);
+		}
+
+		/**
+		 * Compares the first members of a tuple with a given key.
+		 *
+		 * @param index the tuple index.
+		 * @param key the key.
+		 * @param length how many members are compared.
+		 * @return a negative, zero or positive value if the tuple is less than, equal to or greater than the key.
+		 */
+		int compare(final int index, final int[] key, final int length) {
+			final int offset = index * _width;
+			for (int i = 0; i < length; i++) {
+				final int member = _tuples.get(offset + i);
+				if (member != key[i]) {
+					return member < key[i] ? -1 : 1;
+				}
+			}
+			return 0;
+		}
+
+		/**
+		 * Returns the index of the first tuple that is not less than a given key.
+		 *
+		 * @param key the key.
+		 * @param length how many members are compared.
+		 * @return the index of the first tuple that is not less than the given key.
+		 */
+		int lowerBound(final int[] key, final int length) {
+			int low = 0;
+			int high = _size;
+			while (low < high) {
+				final int middle = (low + high) >>> 1;
+				if (compare(middle, key, length) < 0) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			return low;
+		}
+
+		/**
+		 * Returns the index of the first tuple that is greater than a given key.
+		 *
+		 * @param key the key.
+		 * @param length how many members are compared.
+		 * @return the index of the first tuple that is greater than the given key.
+		 */
+		int upperBound(final int[] key, final int length) {
+			int low = 0;
+			int high = _size;
+			while (low < high) {
+				final int middle = (low + high) >>> 1;
+				if (compare(middle, key, length) <= 0) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			return low;
+		}
+
+		/**
+		 * Returns the index of a given tuple, deleted or not.
+		 *
+		 * @param tuple the tuple.
+		 * @return the index of the given tuple, -1 if this run doesn't contain it.
+		 */
+		int indexOf(final int[] tuple) {
+			final int index = lowerBound(tuple, _width);
+			return index < _size && compare(index, tuple, _width) == 0 ? index : -1;
+		}
+
+		/**
+		 * Returns true if this run contains a given tuple, deleted or not.
+		 *
+		 * @param tuple the tuple.
+		 * @return true if this run contains the given tuple.
+		 */
+		boolean contains(final int[] tuple) {
+			return indexOf(tuple) >= 0;
+		}
+	}
+
+	/**
+	 * A forward or backward cursor over the tuples in a given range.
+	 * Members of the current tuple are read in place, so scanning doesn't allocate anything. Deleted tuples are skipped.
+	 *
+	 * @author agent
+	 * @since 1.1.0
+	 */
+	static final class Cursor {
+		private final Run _main;
+		private final Run _delta;
+		private final boolean _reverse;
+		private int _mainPosition;
+		private final int _mainEnd;
+		private int _deltaPosition;
+		private final int _deltaEnd;
+
+		private Run _current;
+		private int _index;
+
+		/**
+		 * Builds a new cursor.
+		 *
+		 * @param main the main run.
+		 * @param mainStart the index of the first tuple of the main run in range.
+		 * @param mainEnd the index after the last tuple of the main run in range.
+		 * @param delta the delta run.
+		 * @param deltaStart the index of the first tuple of the delta run in range.
+		 * @param deltaEnd the index after the last tuple of the delta run in range.
+		 * @param reverse true for descending order.
+		 */
+		Cursor(
+				final Run main, final int mainStart, final int mainEnd,
+				final Run delta, final int deltaStart, final int deltaEnd,
+				final boolean reverse) {
+			_main = main;
+			_delta = delta;
+			_reverse = reverse;
+			_mainPosition = reverse ? mainEnd - 1 : mainStart;
+			_mainEnd = reverse ? mainStart - 1 : mainEnd;
+			_deltaPosition = reverse ? deltaEnd - 1 : deltaStart;
+			_deltaEnd = reverse ? deltaStart - 1 : deltaEnd;
+		}
+
+		/**
+		 * Moves this cursor to the next tuple.
+		 *
+		 * @return false if there are no more tuples.
+		 */
+		boolean next() {
+			do {
+				if (!advance()) {
+					_current = null;
+					return false;
+				}
+			} while (_current.isDeleted(_index));
+			return true;
+		}
+
+		/**
+		 * Moves this cursor to the next tuple, deleted or not.
+		 *
+		 * @return false if there are no more tuples.
+		 */
+		private boolean advance() {
+			final boolean hasMain = _mainPosition != _mainEnd;
+			final boolean hasDelta = _deltaPosition != _deltaEnd;
+			if (!hasMain && !hasDelta) {
+				return false;
+			}
+
+			boolean fromMain = !hasDelta;
+			if (hasMain && hasDelta) {
+				final int comparison = compare(_main, _mainPosition, _delta, _deltaPosition);
+				fromMain = _reverse ? comparison > 0 : comparison < 0;
+			}
+
+			final int step = _reverse ? -1 : 1;
+			if (fromMain) {
+				_current = _main;
+				_index = _mainPosition;
+				_mainPosition += step;
+			} else {
+				_current = _delta;
+				_index = _deltaPosition;
+				_deltaPosition += step;
+			}
+			return true;
+		}
+
+		/**
+		 * Returns a member of the current tuple.
+		 *
+		 * @param position the member position.
+		 * @return the member of the current tuple.
+		 */
+		int get(final int position) {
+			return _current.get(_index, position);
+		}
+	}
+
+	private static final int MIN_DELTA_SIZE = 4096;
+
+	private final String _name;
+	private final int _width;
+	private final Run _empty;
+
+	private volatile Run _main;
+	private volatile Run _delta;
+
+	private int[] _inserts;
+	private int _insertCount;
+	private int[] _deletes;
+	private int _deleteCount;
+	private volatile boolean _pending;
+
+	/**
+	 * Builds a new empty index.
+	 *
+	 * @param name the index name.
+	 * @param width the tuple width.
+	 */
+	TupleIndex(final String name, final int width) {
+		_name = name;
+		_width = width;
+		_empty = new Run(IntBuffer.allocate(0), 0, width);
+		_main = _empty;
+		_delta = _empty;
+		_inserts = new int[256 * width];
+		_deletes = new int[16 * width];
+	}
+
+	/**
+	 * Adds a tuple to this index.
+	 *
+	 * @param tuple the tuple.
+	 */
+	synchronized void insert(final int ... tuple) {
+		if (_deleteCount > 0) {
+			applyPending();
+		}
+
+		if ((_insertCount + 1) * _width > _inserts.length) {
+			_inserts = Arrays.copyOf(_inserts, _inserts.length * 2);
+		}
+		System.arraycopy(tuple, 0, _inserts, _insertCount * _width, _width);
+		_insertCount++;
+		_pending = true;
+	}
+
+	/**
+	 * Removes a tuple from this index.
+	 *
+	 * @param tuple the tuple.
+	 */
+	synchronized void delete(final int ... tuple) {
+		if (_insertCount > 0) {
+			applyPending();
+		}
+
+		if ((_deleteCount + 1) * _width > _deletes.length) {
+			_deletes = Arrays.copyOf(_deletes, _deletes.length * 2);
+		}
+		System.arraycopy(tuple, 0, _deletes, _deleteCount * _width, _width);
+		_deleteCount++;
+		_pending = true;
+	}
+
+	/**
+	 * Removes all tuples from this index.
+	 */
+	synchronized void clear() {
+		_insertCount = 0;
+		_deleteCount = 0;
+		_pending = false;
+		_main = _empty;
+		_delta = _empty;
+	}
+
+	/**
+	 * Returns the number of tuples in this index.
+	 *
+	 * @return the number of tuples in this index.
+	 */
+	long size() {
+		sync();
+		return (long) _main.live() + _delta.live();
+	}
+
+	/**
+	 * Returns a cursor over the tuples in a given range.
+	 * Bounds are compared on their first members only, so a prefix scan has the prefix as both bounds.
+	 *
+	 * @param from the lower bound.
+	 * @param fromLength how many members of the lower bound are compared.
+	 * @param fromInclusive true if tuples equal to the lower bound are in range.
+	 * @param to the upper bound.
+	 * @param toLength how many members of the upper bound are compared.
+	 * @param toInclusive true if tuples equal to the upper bound are in range.
+	 * @param reverse true for descending order.
+	 * @return a cursor over the tuples in the given range.
+	 */
+	Cursor cursor(
+			final int[] from, final int fromLength, final boolean fromInclusive,
+			final int[] to, final int toLength, final boolean toInclusive,
+			final boolean reverse) {
+		sync();
+
+		Run main;
+		Run delta;
+		synchronized (this) {
+			main = _main;
+			delta = _delta;
+		}
+
+		final int mainStart = fromInclusive ? main.lowerBound(from, fromLength) : main.upperBound(from, fromLength);
+		final int mainEnd = Math.max(mainStart, toInclusive ? main.upperBound(to, toLength) : main.lowerBound(to, toLength));
+		final int deltaStart = fromInclusive ? delta.lowerBound(from, fromLength) : delta.upperBound(from, fromLength);
+		final int deltaEnd = Math.max(deltaStart, toInclusive ? delta.upperBound(to, toLength) : delta.lowerBound(to, toLength));
+		return new Cursor(main, mainStart, mainEnd, delta, deltaStart, deltaEnd, reverse);
+	}
+
+	/**
+	 * Returns a cursor over the tuples that start with a given prefix.
+	 *
+	 * @param prefix the prefix.
+	 * @param length the prefix length.
+	 * @return a cursor over the tuples that start with the given prefix.
+	 */
+	Cursor cursor(final int[] prefix, final int length) {
+		return cursor(prefix, length, true, prefix, length, true, false);
+	}
+
+	/**
+	 * Applies the buffered mutations, if any.
+	 */
+	private void sync() {
+		if (_pending) {
+			synchronized (this) {
+				applyPending();
+			}
+		}
+	}
+
+	/**
+	 * Applies the buffered mutations.
+	 * Deletes mark tuples as deleted in their run. Inserts restore deleted tuples of the main run, the others
+	 * are merged in the delta run (skipping those already in the main run).
+	 * Once the delta run and the deleted tuples of the main run exceed 1/8 of the main run, runs are merged.
+	 */
+	private void applyPending() {
+		if (!_pending) {
+			return;
+		}
+
+		final Run inserts = sorted(_inserts, _insertCount);
+		final Run deletes = sorted(_deletes, _deleteCount);
+		Run main = _main;
+		Run delta = _delta;
+		if (deletes._size > 0) {
+			main = mark(main, deletes, true);
+			delta = mark(delta, deletes, true);
+		}
+
+		if (inserts._size > 0) {
+			main = mark(main, inserts, false);
+			delta = merge(new Run[] {delta, inserts}, main);
+		}
+
+		if (delta._size + main._deletedCount > Math.max(MIN_DELTA_SIZE, main._size / 8)) {
+			main = merge(new Run[] {main, delta}, _empty);
+			delta = _empty;
+		}
+
+		_main = main;
+		_delta = delta;
+
+		_insertCount = 0;
+		_deleteCount = 0;
+		if (_inserts.length > 4096 * _width) {
+			_inserts = new int[256 * _width];
+		}
+		_pending = false;
+	}
+
+	/**
+	 * Marks the given tuples as deleted (or restores them) in a given run.
+	 *
+	 * @param run the run.
+	 * @param tuples the (sorted) tuples, those that aren't in the run are ignored.
+	 * @param deleted true if the tuples must be marked as deleted, false if they must be restored.
+	 * @return the run with the given tuples marked as deleted (or restored).
+	 */
+	private Run mark(final Run run, final Run tuples, final boolean deleted) {
+		if (run._size == 0 || (!deleted && run._deletedCount == 0)) {
+			return run;
+		}
+
+		final int[] indexes = new int[tuples._size];
+		final int[] tuple = new int[_width];
+		int count = 0;
+		for (int i = 0; i < tuples._size; i++) {
+			for (int j = 0; j < _width; j++) {
+				tuple[j] = tuples.get(i, j);
+			}
+
+			final int index = run.indexOf(tuple);
+			if (index >= 0 && run.isDeleted(index) != deleted) {
+				indexes[count++] = index;
+			}
+		}
+		return count == 0 ? run : run.mark(indexes, count, deleted);
+	}
+
+	/**
+	 * Sorts a given set of tuples.
+	 *
+	 * @param tuples the tuples.
+	 * @param count the number of tuples.
+	 * @return a (heap) run with the sorted tuples, possibly with duplicates.
+	 */
+	private Run sorted(final int[] tuples, final int count) {
+		if (count == 0) {
+			return _empty;
+		}
+
+		// Bottom-up merge sort
+		int[] source = tuples;
+		int[] target = new int[count * _width];
+		for (int width = 1; width < count; width *= 2) {
+			for (int low = 0; low < count; low += 2 * width) {
+				final int middle = Math.min(low + width, count);
+				final int high = Math.min(low + 2 * width, count);
+				int i = low;
+				int j = middle;
+				int k = low;
+				while (i < middle && j < high) {
+					if (compare(source, i, source, j, _width) <= 0) {
+						System.arraycopy(source, (i++) * _width, target, (k++) * _width, _width);
+					} else {
+						System.arraycopy(source, (j++) * _width, target, (k++) * _width, _width);
+					}
+				}
+				System.arraycopy(source, i * _width, target, k * _width, (middle - i) * _width);
+				k += middle - i;
+				System.arraycopy(source, j * _width, target, k * _width, (high - j) * _width);
+			}
+
+			final int[] swap = source;
+			source = target;
+			target = swap;
+		}
+		return new Run(IntBuffer.wrap(source), count, _width);
+	}
+
+	/**
+	 * Merges sorted runs in a new off-heap run, removing duplicates and deleted tuples.
+	 *
+	 * @param sources the runs to be merged.
+	 * @param excluded the tuples that won't be part of the result.
+	 * @return the new run.
+	 */
+	private Run merge(final Run[] sources, final Run excluded) {
+		long total = 0;
+		for (final Run source : sources) {
+			total += source.live();
+		}
+
+		if ((total * _width) > Integer.MAX_VALUE / 4) {
+			throw new IllegalStateException(String.format(MessageCatalog._00123_IN_MEMORY_INDEX_FULL, _name, Integer.MAX_VALUE / 4 / _width));
+		}
+
+		final IntBuffer target = ByteBuffer.allocateDirect((int) Math.max(1, total * _width * 4)).order(ByteOrder.nativeOrder()).asIntBuffer();
+		final int[] positions = new int[sources.length];
+		final int[] tuple = new int[_width];
+		final int[] last = new int[_width];
+		int size = 0;
+		while (true) {
+			int smallest = -1;
+			for (int i = 0; i < sources.length; i++) {
+				if (positions[i] < sources[i]._size
+						&& (smallest == -1 || compare(sources[i], positions[i], sources[smallest], positions[smallest]) < 0)) {
+					smallest = i;
+				}
+			}
+
+			if (smallest == -1) {
+				break;
+			}
+
+			final Run source = sources[smallest];
+			final int index = positions[smallest]++;
+			if (source.isDeleted(index)) {
+				continue;
+			}
+
+			for (int i = 0; i < _width; i++) {
+				tuple[i] = source.get(index, i);
+			}
+
+			if ((size > 0 && Arrays.equals(tuple, last)) || excluded.contains(tuple)) {
+				continue;
+			}
+
+			target.put(tuple);
+			System.arraycopy(tuple, 0, last, 0, _width);
+			size++;
+		}
+		return size == 0 ? _empty : new Run(target, size, _width);
+	}
+
+	/**
+	 * Compares two tuples of (possibly) different runs.
+	 *
+	 * @param first the first run.
+	 * @param firstIndex the index of the tuple in the first run.
+	 * @param second the second run.
+	 * @param secondIndex the index of the tuple in the second run.
+	 * @return a negative, zero or positive value if the first tuple is less than, equal to or greater than the second.
+	 */
+	static int compare(final Run first, final int firstIndex, final Run second, final int secondIndex) {
+		for (int i = 0; i < first._width; i++) {
+			final int a = first.get(firstIndex, i);
+			final int b = second.get(secondIndex, i);
+			if (a != b) {
+				return a < b ? -1 : 1;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Compares two tuples stored in int arrays.
+	 *
+	 * @param first the first array.
+	 * @param firstIndex the index of the tuple in the first array.
+	 * @param second the second array.
+	 * @param secondIndex the index of the tuple in the second array.
+	 * @param width the tuple width.
+	 * @return a negative, zero or positive value if the first tuple is less than, equal to or greater than the second.
+	 */
+	private static int compare(final int[] first, final int firstIndex, final int[] second, final int secondIndex, final int width) {
+		for (int i = 0; i < width; i++) {
+			final int a = first[firstIndex * width + i];
+			final int b = second[secondIndex * width + i];
+			if (a != b) {
+				return a < b ? -1 : 1;
+			}
+		}
+		return 0;
+	}
+}
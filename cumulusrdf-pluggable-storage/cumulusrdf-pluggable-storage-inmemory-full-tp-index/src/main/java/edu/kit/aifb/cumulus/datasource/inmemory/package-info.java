@@ -0,0 +1,7 @@
+/**
+ * In-memory storage data access layer family (sorted, off-heap permutation arrays).
+ * 
+ * @author agent
+ * @since 1.1.0
+ */
+package edu.kit.aifb.cumulus.datasource.inmemory;
@@ -0,0 +1,127 @@
+package edu.kit.aifb.cumulus.datasource.inmemory;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Iterator;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerException;
+import edu.kit.aifb.cumulus.framework.datasource.StorageLayout;
+
+/**
+ * Test case for {@link InMemoryQuadIndexDAO}.
+ * 
+ * @author agent
+ * @since 1.1.0
+ */
+public class InMemoryQuadIndexDAOTest {
+	private InMemoryQuadIndexDAO _cut;
+
+	// Dummy identifiers...we don't need valid id here
+	private byte[] _s = { 11, 21, 13, 34, 45 };
+	private byte[] _p = { 13, 21, 53, 54, 25 };
+	private byte[] _o = { 1, 28, 36, 41, 52 };
+	private byte[] _c = { 7, 8 };
+	private byte[] _o2 = { 1, 28, 36 };
+
+	/**
+	 * Setup fixture for this test case.
+	 * 
+	 * @throws DataAccessLayerException never, otherwise the test fails.
+	 */
+	@Before
+	public void setUp() throws DataAccessLayerException {
+		_cut = new InMemoryQuadIndexDAO(InMemoryStorage.get(StorageLayout.QUAD), null);
+		_cut.initialiseRdfIndex();
+		_cut.insertTriple(new byte[][] {_s, _p, _o, _c});
+		_cut.insertTriple(new byte[][] {_s, _p, _o2});
+	}
+
+	/**
+	 * Shutdown procedure for this test case.
+	 */
+	@After
+	public void tearDown() {
+		_cut.clear();
+	}
+
+	/**
+	 * Each triple pattern must be answered, with the context only for quads.
+	 * 
+	 * @throws DataAccessLayerException never, otherwise the test fails.
+	 */
+	@Test
+	public void query() throws DataAccessLayerException {
+		assertEquals(2, count(_cut.query(new byte[][] {null, null, null, null}, Integer.MAX_VALUE)));
+		assertEquals(2, count(_cut.query(new byte[][] {_s, null, null}, Integer.MAX_VALUE)));
+		assertEquals(1, count(_cut.query(new byte[][] {null, null, _o2}, Integer.MAX_VALUE)));
+		assertEquals(1, count(_cut.query(new byte[][] {_s, null, _o, null}, Integer.MAX_VALUE)));
+		assertEquals(1, count(_cut.query(new byte[][] {null, _p, null, _c}, Integer.MAX_VALUE)));
+		assertEquals(0, count(_cut.query(new byte[][] {null, null, _o2, _c}, Integer.MAX_VALUE)));
+		assertEquals(1, count(_cut.query(new byte[][] {_s, _p, null}, 1)));
+		assertEquals(0, count(_cut.query(new byte[][] {new byte[] {9}, null, null}, Integer.MAX_VALUE)));
+
+		assertArrayEquals(new byte[][] {_s, _p, _o, _c}, _cut.query(new byte[][] {null, null, null, _c}, Integer.MAX_VALUE).next());
+		assertArrayEquals(new byte[][] {_s, _p, _o2}, _cut.query(new byte[][] {null, null, _o2}, Integer.MAX_VALUE).next());
+	}
+
+	/**
+	 * Deleted quads must not be returned anymore.
+	 * 
+	 * @throws DataAccessLayerException never, otherwise the test fails.
+	 */
+	@Test
+	public void delete() throws DataAccessLayerException {
+		assertEquals(1, _cut.deleteTriples(_cut.query(new byte[][] {null, null, null, _c}, Integer.MAX_VALUE), 100, false).size());
+		assertEquals(1, count(_cut.query(new byte[][] {_s, null, null}, Integer.MAX_VALUE)));
+		assertEquals(0, count(_cut.query(new byte[][] {null, null, _o}, Integer.MAX_VALUE)));
+	}
+
+	/**
+	 * Results must come sorted by the member declared by {@link InMemoryQuadIndexDAO#sortedBy(byte[][])}.
+	 * 
+	 * @throws DataAccessLayerException never, otherwise the test fails.
+	 */
+	@Test
+	public void sortedBy() throws DataAccessLayerException {
+		for (int i = 0; i < 100; i++) {
+			_cut.insertTriple(new byte[][] {new byte[] {(byte) (i * 37 % 101)}, _p, _o});
+		}
+
+		assertEquals(0, _cut.sortedBy(new byte[][] {null, _p, _o}));
+		assertEquals(2, _cut.sortedBy(new byte[][] {_s, _p, null}));
+		assertEquals(-1, _cut.sortedBy(new byte[][] {_s, _p, _o}));
+		assertEquals(0, _cut.sortedBy(new byte[][] {null, null, null, _c}));
+
+		final Iterator<byte[][]> results = _cut.query(new byte[][] {null, _p, _o}, Integer.MAX_VALUE);
+		byte[] previous = null;
+		int count = 0;
+		while (results.hasNext()) {
+			final byte[] subject = results.next()[0];
+			assertTrue(previous == null || _cut.getIdentifiersOrder().compare(previous, subject) <= 0);
+			previous = subject;
+			count++;
+		}
+		assertEquals(101, count);
+	}
+
+	/**
+	 * Counts the results of a query.
+	 * 
+	 * @param results the query results.
+	 * @return the number of results.
+	 */
+	private int count(final Iterator<byte[][]> results) {
+		int count = 0;
+		while (results.hasNext()) {
+			results.next();
+			count++;
+		}
+		return count;
+	}
+}
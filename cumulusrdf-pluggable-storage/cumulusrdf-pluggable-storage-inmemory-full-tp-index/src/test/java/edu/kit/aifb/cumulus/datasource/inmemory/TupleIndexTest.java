@@ -0,0 +1,211 @@
+package edu.kit.aifb.cumulus.datasource.inmemory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test case for {@link TupleIndex}.
+ * 
+ * @author agent
+ * @since 1.1.0
+ */
+public class TupleIndexTest {
+	private TupleIndex _cut;
+
+	/**
+	 * Setup fixture for this test case.
+	 */
+	@Before
+	public void setUp() {
+		_cut = new TupleIndex("test", 2);
+	}
+
+	/**
+	 * Tuples must be returned sorted and without duplicates, both from the main and the delta run.
+	 */
+	@Test
+	public void sortedAndDistinct() {
+		final List<Integer> expected = new ArrayList<Integer>();
+		for (int i = 0; i < 10000; i++) {
+			expected.add(i);
+		}
+
+		final List<Integer> shuffled = new ArrayList<Integer>(expected);
+		Collections.shuffle(shuffled, new Random(7));
+		for (final int value : shuffled) {
+			_cut.insert(value % 10, value);
+			_cut.insert(value % 10, value);
+		}
+
+		// Forces a read between inserts, so that tuples are split between main and delta runs
+		assertEquals(10000, _cut.size());
+		for (int i = 0; i < 100; i++) {
+			_cut.insert(i % 10, i);
+		}
+		assertEquals(10000, _cut.size());
+
+		final List<Integer> values = new ArrayList<Integer>();
+		final TupleIndex.Cursor cursor = _cut.cursor(new int[] {3}, 1);
+		while (cursor.next()) {
+			assertEquals(3, cursor.get(0));
+			values.add(cursor.get(1));
+		}
+
+		final List<Integer> expectedValues = new ArrayList<Integer>();
+		for (final int value : expected) {
+			if (value % 10 == 3) {
+				expectedValues.add(value);
+			}
+		}
+		assertEquals(expectedValues, values);
+	}
+
+	/**
+	 * Deleted tuples must not be returned, even if the same tuple is inserted and deleted in a row.
+	 */
+	@Test
+	public void delete() {
+		for (int i = 0; i < 100; i++) {
+			_cut.insert(1, i);
+		}
+		assertEquals(100, _cut.size());
+
+		for (int i = 0; i < 100; i += 2) {
+			_cut.delete(1, i);
+		}
+		_cut.insert(2, 1);
+		_cut.delete(2, 1);
+		assertEquals(50, _cut.size());
+
+		final TupleIndex.Cursor cursor = _cut.cursor(new int[] {1}, 1);
+		while (cursor.next()) {
+			assertEquals(1, cursor.get(1) % 2);
+		}
+		assertFalse(_cut.cursor(new int[] {2}, 1).next());
+	}
+
+	/**
+	 * Deletions from both runs must be skipped in both directions, and deleted tuples can be inserted again.
+	 */
+	@Test
+	public void deleteFromMainAndDelta() {
+		for (int i = 0; i < 10000; i++) {
+			_cut.insert(1, i);
+		}
+		assertEquals(10000, _cut.size());
+
+		// Delta run
+		for (int i = 10000; i < 10010; i++) {
+			_cut.insert(1, i);
+		}
+		assertEquals(10010, _cut.size());
+
+		_cut.delete(1, 0);
+		_cut.delete(1, 5000);
+		_cut.delete(1, 10005);
+		_cut.delete(1, 10009);
+		_cut.delete(1, 20000);
+		assertEquals(10006, _cut.size());
+
+		final List<Integer> expected = new ArrayList<Integer>();
+		for (int i = 0; i < 10010; i++) {
+			if (i != 0 && i != 5000 && i != 10005 && i != 10009) {
+				expected.add(i);
+			}
+		}
+		assertEquals(expected, values(_cut.cursor(new int[] {1}, 1)));
+
+		final List<Integer> reverse = new ArrayList<Integer>(expected);
+		Collections.reverse(reverse);
+		assertEquals(reverse, values(_cut.cursor(new int[] {1}, 1, true, new int[] {1}, 1, true, true)));
+
+		_cut.insert(1, 5000);
+		_cut.insert(1, 10005);
+		assertEquals(10008, _cut.size());
+		assertEquals(ints(4999, 5000, 5001), values(_cut.cursor(new int[] {1, 4999}, 2, true, new int[] {1, 5001}, 2, true, false)));
+		assertEquals(ints(10004, 10005, 10006), values(_cut.cursor(new int[] {1, 10004}, 2, true, new int[] {1, 10006}, 2, true, false)));
+	}
+
+	/**
+	 * A cursor must keep working on its snapshot, while deletions (and the merge of runs they cause) are applied.
+	 */
+	@Test
+	public void deleteWhileScanning() {
+		for (int i = 0; i < 10000; i++) {
+			_cut.insert(1, i);
+		}
+
+		final TupleIndex.Cursor cursor = _cut.cursor(new int[] {1}, 1);
+		for (int i = 0; i < 10000; i += 2) {
+			_cut.delete(1, i);
+		}
+		assertEquals(5000, _cut.size());
+
+		int count = 0;
+		while (cursor.next()) {
+			assertEquals(count++, cursor.get(1));
+		}
+		assertEquals(10000, count);
+
+		final TupleIndex.Cursor odd = _cut.cursor(new int[] {1}, 1);
+		count = 0;
+		while (odd.next()) {
+			assertEquals(1, odd.get(1) % 2);
+			count++;
+		}
+		assertEquals(5000, count);
+	}
+
+	/**
+	 * Range bounds must be honoured, in both directions.
+	 */
+	@Test
+	public void range() {
+		for (int i = -50; i < 50; i++) {
+			_cut.insert(1, i);
+		}
+		_cut.size();
+		_cut.insert(1, 100);
+		_cut.insert(1, -100);
+
+		assertEquals(ints(-10, -9, -8, -7, -6, -5, -4, -3, -2, -1, 0), values(_cut.cursor(new int[] {1, -10}, 2, true, new int[] {1, 0}, 2, true, false)));
+		assertEquals(ints(-1, -2, -3, -4, -5, -6, -7, -8, -9), values(_cut.cursor(new int[] {1, -10}, 2, false, new int[] {1, 0}, 2, false, true)));
+		assertEquals(ints(49, 100), values(_cut.cursor(new int[] {1, 48}, 2, false, new int[] {1}, 1, true, false)));
+	}
+
+	/**
+	 * Collects the second member of all tuples returned by a given cursor.
+	 * 
+	 * @param cursor the cursor.
+	 * @return the second member of all tuples returned by the cursor.
+	 */
+	private List<Integer> values(final TupleIndex.Cursor cursor) {
+		final List<Integer> values = new ArrayList<Integer>();
+		while (cursor.next()) {
+			values.add(cursor.get(1));
+		}
+		return values;
+	}
+
+	/**
+	 * Returns the given values as a list.
+	 * 
+	 * @param values the values.
+	 * @return the given values as a list.
+	 */
+	private List<Integer> ints(final int ... values) {
+		final List<Integer> result = new ArrayList<Integer>();
+		for (final int value : values) {
+			result.add(value);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,21 @@
+package edu.kit.aifb.cumulus.datasource.local;
+
+/**
+ * An interface that declares all configuration parameters needed by this module.
+ * 
+ * @author agent
+ * @since 1.1.0
+ */
+public interface ConfigurationParameter {
+	// The directory where tables are stored (a "triples" or "quads" subdirectory is created, depending on the layout)
+	String DIRECTORY = "local-storage-directory";
+	
+	// The size (in MB) of the in-memory table that triggers the write of a new segment
+	String MEMTABLE_SIZE_MB = "local-storage-memtable-size-mb";
+	
+	// The number of segments (per table) that triggers a compaction
+	String MAX_SEGMENTS = "local-storage-max-segments";
+	
+	// If true, pending mutations are written to disk (fsync) when they are executed, otherwise they are handed to the operating system
+	String SYNC_ON_COMMIT = "local-storage-sync-on-commit";
+}
@@ -0,0 +1,205 @@
+package edu.kit.aifb.cumulus.datasource.local;
+
+import java.util.Comparator;
+
+import com.google.common.primitives.UnsignedBytes;
+
+/**
+ * Utility class for building and decoding the (composite) keys of sorted tables.
+ *
+ * A composite key is the concatenation of its components, each one preceded by its length (as a varint).
+ * This encoding is prefix-free, so the keys that start with a given set of components are exactly the keys
+ * that have (the encoding of) those components as a byte prefix, and they are contiguous in a sorted table.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+public abstract class Keys {
+
+	/**
+	 * Unsigned lexicographic order of byte arrays: the order of all sorted tables.
+	 */
+	public static final Comparator<byte[]> ORDER = UnsignedBytes.lexicographicalComparator();
+
+	/**
+	 * The order of identifiers within a key component: the order of their (length prefixed) encoding.
+	 */
+	public static final Comparator<byte[]> COMPONENT_ORDER = new Comparator<byte[]>() {
+		@Override
+		public int compare(final byte[] first, final byte[] second) {
+			return ORDER.compare(compose(first), compose(second));
+		}
+	};
+
+	static final byte[] EMPTY = new byte[0];
+
+	/**
+	 * Builds a composite key with the given components.
+	 *
+	 * @param components the key components.
+	 * @return the composite key.
+	 */
+	public static byte[] compose(final byte[]... components) {
+		int size = 0;
+		for (final byte[] component : components) {
+			size += varintSize(component.length) + component.length;
+		}
+
+		final byte[] key = new byte[size];
+		int offset = 0;
+		for (final byte[] component : components) {
+			offset = writeVarint(key, offset, component.length);
+			System.arraycopy(component, 0, key, offset, component.length);
+			offset += component.length;
+		}
+		return key;
+	}
+
+	/**
+	 * Decodes a composite key.
+	 *
+	 * @param key the composite key.
+	 * @param howManyComponents the number of components of the key.
+	 * @return the key components.
+	 */
+	public static byte[][] decompose(final byte[] key, final int howManyComponents) {
+		final byte[][] components = new byte[howManyComponents][];
+		int offset = 0;
+		for (int i = 0; i < howManyComponents; i++) {
+			int length = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = key[offset++];
+				length |= (b & 0x7F) << shift;
+				shift += 7;
+			} while ((b & 0x80) != 0);
+
+			components[i] = new byte[length];
+			System.arraycopy(key, offset, components[i], 0, length);
+			offset += length;
+		}
+		return components;
+	}
+
+	/**
+	 * Returns the smallest key that is greater than all keys starting with the given prefix.
+	 *
+	 * @param prefix the key prefix.
+	 * @return the smallest key that is greater than all keys starting with the given prefix, null if there's no such key.
+	 */
+	public static byte[] successor(final byte[] prefix) {
+		for (int i = prefix.length - 1; i >= 0; i--) {
+			if (prefix[i] != (byte) 0xFF) {
+				final byte[] successor = new byte[i + 1];
+				System.arraycopy(prefix, 0, successor, 0, i + 1);
+				successor[i]++;
+				return successor;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Encodes a double so that the unsigned lexicographic order of encoded values is the numeric order.
+	 *
+	 * @param value the value.
+	 * @return the encoded value.
+	 */
+	public static byte[] sortable(final double value) {
+		long bits = Double.doubleToLongBits(value);
+		bits ^= (bits >> 63) | Long.MIN_VALUE;
+		return toBytes(bits);
+	}
+
+	/**
+	 * Encodes a long so that the unsigned lexicographic order of encoded values is the numeric order.
+	 *
+	 * @param value the value.
+	 * @return the encoded value.
+	 */
+	public static byte[] sortable(final long value) {
+		return toBytes(value ^ Long.MIN_VALUE);
+	}
+
+	/**
+	 * Returns the big-endian representation of a given long.
+	 *
+	 * @param value the value.
+	 * @return the big-endian representation of a given long.
+	 */
+	static byte[] toBytes(final long value) {
+		final byte[] bytes = new byte[8];
+		for (int i = 7, shift = 0; i >= 0; i--, shift += 8) {
+			bytes[i] = (byte) (value >>> shift);
+		}
+		return bytes;
+	}
+
+	/**
+	 * Decodes the big-endian representation of a long.
+	 *
+	 * @param bytes the big-endian representation of a long.
+	 * @return the long value.
+	 */
+	static long toLong(final byte[] bytes) {
+		long value = 0;
+		for (int i = 0; i < 8; i++) {
+			value = (value << 8) | (bytes[i] & 0xFF);
+		}
+		return value;
+	}
+
+	/**
+	 * Returns true if the given key starts with the given prefix.
+	 *
+	 * @param key the key.
+	 * @param prefix the prefix.
+	 * @return true if the given key starts with the given prefix.
+	 */
+	static boolean startsWith(final byte[] key, final byte[] prefix) {
+		if (key.length < prefix.length) {
+			return false;
+		}
+
+		for (int i = 0; i < prefix.length; i++) {
+			if (key[i] != prefix[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the size of the varint encoding of a given value.
+	 *
+	 * @param value the (non negative) value.
+	 * @return the size of the varint encoding of a given value.
+	 */
+	private static int varintSize(final int value) {
+		int size = 1;
+		for (int remaining = value >>> 7; remaining != 0; remaining >>>= 7) {
+			size++;
+		}
+		return size;
+	}
+
+	/**
+	 * Writes the varint encoding of a given value.
+	 *
+	 * @param buffer the target buffer.
+	 * @param offset the offset where the encoded value starts.
+	 * @param value the (non negative) value.
+	 * @return the offset after the encoded value.
+	 */
+	private static int writeVarint(final byte[] buffer, final int offset, final int value) {
+		int position = offset;
+		int remaining = value;
+		while ((remaining & ~0x7F) != 0) {
+			buffer[position++] = (byte) ((remaining & 0x7F) | 0x80);
+			remaining >>>= 7;
+		}
+		buffer[position++] = (byte) remaining;
+		return position;
+	}
+}
@@ -0,0 +1,58 @@
+package edu.kit.aifb.cumulus.datasource.local;
+
+import java.io.IOException;
+
+import edu.kit.aifb.cumulus.framework.datasource.CounterDAO;
+import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerException;
+
+/**
+ * {@link CounterDAO} implementation for the local storage module.
+ * Counters are 8 bytes values, updated with a read-modify-write under the DAO lock.
+ * 
+ * @author agent
+ * @since 1.1.0
+ * @param <K> The key class.
+ */
+public class LocalCounterDAO<K> extends LocalMapDAO<K, Long> implements CounterDAO<K> {
+
+	/**
+	 * Creates a new {@link LocalCounterDAO}.
+	 * 
+	 * @param factory the factory that created this counter.
+	 * @param name the counter name, acting as an identifier.
+	 * @param serializer the serializer used to serialize the name.
+	 */
+	LocalCounterDAO(final LocalDataAccessLayerFactory factory, final String name, final Serializer<K> serializer) {
+		super(factory, "counter-" + name, false, serializer, Serializer.LONG_SERIALIZER);
+	}
+
+	@Override
+	public void decrement(final K key, final Long delta) {
+		add(key, -delta);
+	}
+
+	@Override
+	public void increment(final K key, final Long delta) {
+		add(key, delta);
+	}
+
+	/**
+	 * Adds a given delta to a counter.
+	 * 
+	 * @param key the key of the counter.
+	 * @param delta the delta.
+	 */
+	private synchronized void add(final K key, final long delta) {
+		try {
+			final SortedTable table = table();
+			final byte[] serializedKey = _keySerializer.serialize(key);
+			final byte[] value = table.get(serializedKey);
+			final long current = value != null ? Keys.toLong(value) : 0;
+			table.put(serializedKey, Keys.toBytes(current + delta));
+		} catch (final DataAccessLayerException exception) {
+			throw new IllegalStateException(exception);
+		} catch (final IOException exception) {
+			throw new IllegalStateException(exception);
+		}
+	}
+}
@@ -0,0 +1,205 @@
+package edu.kit.aifb.cumulus.datasource.local;
+
+import static edu.kit.aifb.cumulus.datasource.local.ConfigurationParameter.DIRECTORY;
+import static edu.kit.aifb.cumulus.datasource.local.ConfigurationParameter.MAX_SEGMENTS;
+import static edu.kit.aifb.cumulus.datasource.local.ConfigurationParameter.MEMTABLE_SIZE_MB;
+import static edu.kit.aifb.cumulus.datasource.local.ConfigurationParameter.SYNC_ON_COMMIT;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import edu.kit.aifb.cumulus.framework.datasource.CounterDAO;
+import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerException;
+import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerFactory;
+import edu.kit.aifb.cumulus.framework.datasource.MapDAO;
+import edu.kit.aifb.cumulus.framework.datasource.QuadIndexDAO;
+import edu.kit.aifb.cumulus.framework.datasource.StorageLayout;
+import edu.kit.aifb.cumulus.framework.datasource.TripleIndexDAO;
+import edu.kit.aifb.cumulus.framework.domain.configuration.Configuration;
+import edu.kit.aifb.cumulus.framework.domain.dictionary.ITopLevelDictionary;
+
+/**
+ * Concrete factory for creating members of the embedded, local storage data access layer family.
+ * Data is stored in sorted, memory-mapped tables (see {@link SortedTable}) on the local disk,
+ * so there's no network hop between CumulusRDF and its storage.
+ * Tables are compacted in background, one at a time, by a thread shared by all tables of the factory.
+ *
+ * In order to use this factory, set the "cdrf.factory.fqdn" system property to the FQDN of this class.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+public class LocalDataAccessLayerFactory extends DataAccessLayerFactory {
+
+	private final String _directoryName;
+	private File _directory;
+	private long _memtableSize = 64L * 1024 * 1024;
+	private int _maxSegments = 8;
+	private boolean _syncOnCommit;
+
+	private final Map<String, SortedTable> _tables = new HashMap<String, SortedTable>();
+	private int _daoCount;
+	private ExecutorService _compactor;
+
+	/**
+	 * Builds a new local data access layer factory.
+	 *
+	 * @param layout the storage layout.
+	 */
+	public LocalDataAccessLayerFactory(final StorageLayout layout) {
+		super(layout);
+		_directoryName = layout == StorageLayout.TRIPLE ? "triples" : "quads";
+	}
+
+	@Override
+	public synchronized void accept(final Configuration<Map<String, Object>> configuration) {
+		_directory = new File(configuration.getAttribute(DIRECTORY, "cumulusrdf-data"), _directoryName);
+		_memtableSize = Math.max(1, configuration.getAttribute(MEMTABLE_SIZE_MB, Integer.valueOf(64))) * 1024L * 1024L;
+		_maxSegments = configuration.getAttribute(MAX_SEGMENTS, Integer.valueOf(8));
+		_syncOnCommit = configuration.getAttribute(SYNC_ON_COMMIT, Boolean.FALSE);
+	}
+
+	@Override
+	public <K> CounterDAO<K> getCounterDAO(final Class<K> keyClass, final String counterName) {
+		return new LocalCounterDAO<K>(this, counterName, Serializer.forClass(keyClass));
+	}
+
+	@Override
+	public <K, V> MapDAO<K, V> getMapDAO(
+			final Class<K> keyClass,
+			final Class<V> valueClass,
+			final boolean isBidirectional,
+			final String mapName) {
+		return new LocalMapDAO<K, V>(
+				this,
+				"map-" + mapName,
+				isBidirectional,
+				Serializer.forClass(keyClass),
+				Serializer.forClass(valueClass));
+	}
+
+	@Override
+	public synchronized TripleIndexDAO getTripleIndexDAO(final ITopLevelDictionary dictionary) {
+		_daoCount++;
+		return new LocalTripleIndexDAO(this, dictionary);
+	}
+
+	@Override
+	public synchronized QuadIndexDAO getQuadIndexDAO(final ITopLevelDictionary dictionary) {
+		_daoCount++;
+		return new LocalQuadIndexDAO(this, dictionary);
+	}
+
+	@Override
+	public String getUnderlyingStorageInfo() {
+		return "Local LSM";
+	}
+
+	/**
+	 * Returns the table with the given name, opening (or creating) it if needed.
+	 *
+	 * @param name the table name.
+	 * @return the table with the given name.
+	 * @throws DataAccessLayerException in case of data access failure.
+	 */
+	synchronized SortedTable table(final String name) throws DataAccessLayerException {
+		SortedTable table = _tables.get(name);
+		if (table == null || table.isClosed()) {
+			try {
+				if (_compactor == null) {
+					_compactor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+						@Override
+						public Thread newThread(final Runnable task) {
+							final Thread thread = new Thread(task, "cumulusrdf-local-compaction");
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+				}
+
+				final File directory = _directory != null ? _directory : new File("cumulusrdf-data", _directoryName);
+				table = new SortedTable(
+						new File(directory, name.replaceAll("[^A-Za-z0-9_\\-]", "_")),
+						name,
+						_memtableSize,
+						_maxSegments,
+						_compactor);
+				_tables.put(name, table);
+			} catch (final IOException exception) {
+				throw new DataAccessLayerException(exception);
+			}
+		}
+		return table;
+	}
+
+	/**
+	 * Makes all mutations executed so far durable.
+	 *
+	 * @throws DataAccessLayerException in case of data access failure.
+	 */
+	void commit() throws DataAccessLayerException {
+		try {
+			for (final SortedTable table : openTables()) {
+				table.commit(_syncOnCommit);
+			}
+		} catch (final IOException exception) {
+			throw new DataAccessLayerException(exception);
+		}
+	}
+
+	/**
+	 * Callback method that informs this factory about the closing of an index DAO.
+	 * Once all index DAOs have been closed, all tables are written to disk and closed.
+	 *
+	 * @throws DataAccessLayerException in case of data access failure.
+	 */
+	void daoWasClosed() throws DataAccessLayerException {
+		final List<SortedTable> tables;
+		final ExecutorService compactor;
+		synchronized (this) {
+			_daoCount--;
+			if (_daoCount > 0) {
+				return;
+			}
+
+			tables = new ArrayList<SortedTable>(_tables.values());
+			_tables.clear();
+			compactor = _compactor;
+			_compactor = null;
+		}
+
+		IOException failure = null;
+		for (final SortedTable table : tables) {
+			try {
+				table.close();
+			} catch (final IOException exception) {
+				failure = exception;
+			}
+		}
+
+		// Closed tables wait for the compaction in progress and skip the scheduled ones.
+		if (compactor != null) {
+			compactor.shutdown();
+		}
+
+		if (failure != null) {
+			throw new DataAccessLayerException(failure);
+		}
+	}
+
+	/**
+	 * Returns the tables currently open.
+	 *
+	 * @return the tables currently open.
+	 */
+	private synchronized List<SortedTable> openTables() {
+		return new ArrayList<SortedTable>(_tables.values());
+	}
+}
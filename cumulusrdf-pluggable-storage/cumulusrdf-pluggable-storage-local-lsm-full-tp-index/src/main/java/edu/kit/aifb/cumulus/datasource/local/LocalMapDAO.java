@@ -0,0 +1,219 @@
+package edu.kit.aifb.cumulus.datasource.local;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Iterators;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerException;
+import edu.kit.aifb.cumulus.framework.datasource.MapDAO;
+
+/**
+ * {@link MapDAO} implementation for the local storage module.
+ * A bidirectional map uses a second table, where values are the keys.
+ * 
+ * @author agent
+ * @since 1.1.0
+ * 
+ * @param <K> the key kind.
+ * @param <V> the value kind.
+ */
+public class LocalMapDAO<K, V> implements MapDAO<K, V> {
+
+	protected final LocalDataAccessLayerFactory _factory;
+	protected final String _tableName;
+	protected final boolean _isBidirectional;
+	protected final Serializer<K> _keySerializer;
+	protected final Serializer<V> _valueSerializer;
+
+	private V _defaultValue;
+	private volatile SortedTable _table;
+	private volatile SortedTable _reverseTable;
+
+	/**
+	 * Builds a new data access object with the given data.
+	 * 
+	 * @param factory the data access layer factory associated with this DAO.
+	 * @param tableName the name of the underlying table.
+	 * @param isBidirectional a flag indicating if this DAO should work in "bidirectional" mode.
+	 * @param keySerializer the serializer that will be used for keys.
+	 * @param valueSerializer the serializer that will be used for values.
+	 */
+	LocalMapDAO(
+			final LocalDataAccessLayerFactory factory,
+			final String tableName,
+			final boolean isBidirectional,
+			final Serializer<K> keySerializer,
+			final Serializer<V> valueSerializer) {
+		_factory = factory;
+		_tableName = tableName;
+		_isBidirectional = isBidirectional;
+		_keySerializer = keySerializer;
+		_valueSerializer = valueSerializer;
+	}
+
+	@Override
+	public boolean contains(final K key) throws DataAccessLayerException {
+		return key != null && table().get(_keySerializer.serialize(key)) != null;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public void delete(final K... keys) throws DataAccessLayerException {
+		try {
+			final SortedTable table = table();
+			for (final K key : keys) {
+				final byte[] serializedKey = _keySerializer.serialize(key);
+				if (_isBidirectional) {
+					final byte[] value = table.get(serializedKey);
+					if (value != null) {
+						reverseTable().delete(value);
+					}
+				}
+				table.delete(serializedKey);
+			}
+		} catch (final IOException exception) {
+			throw new DataAccessLayerException(exception);
+		}
+	}
+
+	@Override
+	public V get(final K key) throws DataAccessLayerException {
+		final byte[] value = table().get(_keySerializer.serialize(key));
+		return value != null ? _valueSerializer.deserialize(value) : _defaultValue;
+	}
+
+	@Override
+	public List<V> getAll(final List<K> keys) throws DataAccessLayerException {
+		final List<V> values = new ArrayList<V>(keys.size());
+		for (final K key : keys) {
+			values.add(get(key));
+		}
+		return values;
+	}
+
+	@Override
+	public ListenableFuture<List<V>> getAllAsync(final List<K> keys) throws DataAccessLayerException {
+		return Futures.immediateFuture(getAll(keys));
+	}
+
+	@Override
+	public K getKey(final V value) throws DataAccessLayerException {
+		final byte[] serializedValue = _valueSerializer.serialize(value);
+		if (_isBidirectional) {
+			final byte[] key = reverseTable().get(serializedValue);
+			return key != null ? _keySerializer.deserialize(key) : null;
+		}
+
+		final Iterator<Entry<byte[], byte[]>> entries = table().scan(Keys.EMPTY, false);
+		while (entries.hasNext()) {
+			final Entry<byte[], byte[]> entry = entries.next();
+			if (Arrays.equals(entry.getValue(), serializedValue)) {
+				return _keySerializer.deserialize(entry.getKey());
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public Iterator<K> keyIterator() throws DataAccessLayerException {
+		return Iterators.transform(table().scan(Keys.EMPTY, false), new Function<Entry<byte[], byte[]>, K>() {
+			@Override
+			public K apply(final Entry<byte[], byte[]> entry) {
+				return _keySerializer.deserialize(entry.getKey());
+			}
+		});
+	}
+
+	@Override
+	public Set<K> keySet() throws DataAccessLayerException {
+		final Set<K> keys = new LinkedHashSet<K>();
+		Iterators.addAll(keys, keyIterator());
+		return keys;
+	}
+
+	@Override
+	public void set(final K key, final V value) throws DataAccessLayerException {
+		try {
+			final SortedTable table = table();
+			final byte[] serializedKey = _keySerializer.serialize(key);
+			final byte[] serializedValue = _valueSerializer.serialize(value);
+			if (_isBidirectional) {
+				final byte[] oldValue = table.get(serializedKey);
+				if (oldValue != null && !Arrays.equals(oldValue, serializedValue)) {
+					reverseTable().delete(oldValue);
+				}
+				reverseTable().put(serializedValue, serializedKey);
+			}
+			table.put(serializedKey, serializedValue);
+		} catch (final IOException exception) {
+			throw new DataAccessLayerException(exception);
+		}
+	}
+
+	@Override
+	public void setAll(final Map<K, V> pairs) throws DataAccessLayerException {
+		for (final Entry<K, V> pair : pairs.entrySet()) {
+			set(pair.getKey(), pair.getValue());
+		}
+	}
+
+	@Override
+	public ListenableFuture<Void> setAllAsync(final Map<K, V> pairs) throws DataAccessLayerException {
+		setAll(pairs);
+		return Futures.immediateFuture(null);
+	}
+
+	@Override
+	public void setDefaultValue(final V defaultValue) throws DataAccessLayerException {
+		_defaultValue = defaultValue;
+	}
+
+	@Override
+	public void createRequiredSchemaEntities() throws DataAccessLayerException {
+		table();
+		if (_isBidirectional) {
+			reverseTable();
+		}
+	}
+
+	/**
+	 * Returns the underlying table, (re)opening it if needed.
+	 * 
+	 * @return the underlying table.
+	 * @throws DataAccessLayerException in case of data access failure.
+	 */
+	protected SortedTable table() throws DataAccessLayerException {
+		SortedTable table = _table;
+		if (table == null || table.isClosed()) {
+			table = _factory.table(_tableName);
+			_table = table;
+		}
+		return table;
+	}
+
+	/**
+	 * Returns the reverse (value to key) table of a bidirectional map, (re)opening it if needed.
+	 * 
+	 * @return the reverse table.
+	 * @throws DataAccessLayerException in case of data access failure.
+	 */
+	private SortedTable reverseTable() throws DataAccessLayerException {
+		SortedTable table = _reverseTable;
+		if (table == null || table.isClosed()) {
+			table = _factory.table(_tableName + "-reverse");
+			_reverseTable = table;
+		}
+		return table;
+	}
+}
@@ -0,0 +1,31 @@
+package edu.kit.aifb.cumulus.datasource.local;
+
+import edu.kit.aifb.cumulus.framework.datasource.QuadIndexDAO;
+import edu.kit.aifb.cumulus.framework.domain.dictionary.ITopLevelDictionary;
+
+/**
+ * Local storage implementation of {@link QuadIndexDAO}.
+ * In addition to the triple tables, quads are stored in a CSPO table, for patterns where the context is bound.
+ * 
+ * @author agent
+ * @since 1.1.0
+ */
+public class LocalQuadIndexDAO extends LocalTripleIndexDAO implements QuadIndexDAO {
+
+	static final Permutation CSPO = new Permutation("CSPO", 3, 0, 1, 2);
+
+	/**
+	 * Buils a new dao with the given data.
+	 * 
+	 * @param factory the data access layer factory.
+	 * @param dictionary the dictionary currently used in the owning store instance.
+	 */
+	LocalQuadIndexDAO(final LocalDataAccessLayerFactory factory, final ITopLevelDictionary dictionary) {
+		super(factory, dictionary);
+	}
+
+	@Override
+	protected Permutation[] permutations() {
+		return new Permutation[] {SPOC, POSC, OSPC, CSPO};
+	}
+}
@@ -0,0 +1,477 @@
+package edu.kit.aifb.cumulus.datasource.local;
+
+import static edu.kit.aifb.cumulus.framework.util.Utility.isVariable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.openrdf.model.Value;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+
+import edu.kit.aifb.cumulus.framework.datasource.DataAccessLayerException;
+import edu.kit.aifb.cumulus.framework.datasource.TripleIndexDAO;
+import edu.kit.aifb.cumulus.framework.domain.dictionary.ITopLevelDictionary;
+import edu.kit.aifb.cumulus.log.Log;
+import edu.kit.aifb.cumulus.log.MessageCatalog;
+
+/**
+ * Local storage implementation of {@link TripleIndexDAO}.
+ *
+ * Each triple is stored in three sorted tables (SPOC, POSC and OSPC), as a composite key whose components are
+ * the triple members in the table order. A triple pattern is answered by a prefix scan on the table
+ * where the bound members make the longest key prefix; remaining bound members (if any) are filtered.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+public class LocalTripleIndexDAO implements TripleIndexDAO {
+
+	/**
+	 * The order of the triple members in a sorted table: 0 is the subject, 1 the predicate, 2 the object and 3 the context.
+	 *
+	 * @author agent
+	 * @since 1.1.0
+	 */
+	static final class Permutation {
+		private final String _name;
+		private final int[] _order;
+
+		/**
+		 * Builds a new permutation.
+		 *
+		 * @param name the table name.
+		 * @param order the order of the triple members in the table.
+		 */
+		Permutation(final String name, final int ... order) {
+			_name = name;
+			_order = order;
+		}
+
+		/**
+		 * Returns how many bound members of the given pattern make a key prefix in this permutation.
+		 *
+		 * @param pattern the triple (or quad) pattern.
+		 * @return how many bound members of the given pattern make a key prefix in this permutation.
+		 */
+		int prefixLength(final byte[][] pattern) {
+			int length = 0;
+			while (length < _order.length && _order[length] < pattern.length && !isVariable(pattern[_order[length]])) {
+				length++;
+			}
+			return length;
+		}
+
+		/**
+		 * Returns the key of a given quad in this permutation.
+		 *
+		 * @param spoc the quad (context is {@link Keys#EMPTY} for triples).
+		 * @param length how many members (in permutation order) will be part of the key.
+		 * @return the key of a given quad in this permutation.
+		 */
+		byte[] key(final byte[][] spoc, final int length) {
+			final byte[][] components = new byte[length][];
+			for (int i = 0; i < length; i++) {
+				components[i] = spoc[_order[i]];
+			}
+			return Keys.compose(components);
+		}
+
+		/**
+		 * Decodes a key of this permutation.
+		 *
+		 * @param key the key.
+		 * @return the quad (subject, predicate, object, context).
+		 */
+		byte[][] quad(final byte[] key) {
+			final byte[][] components = Keys.decompose(key, _order.length);
+			final byte[][] spoc = new byte[4][];
+			for (int i = 0; i < _order.length; i++) {
+				spoc[_order[i]] = components[i];
+			}
+			return spoc;
+		}
+	}
+
+	static final Permutation SPOC = new Permutation("SPOC", 0, 1, 2, 3);
+	static final Permutation POSC = new Permutation("POSC", 1, 2, 0, 3);
+	static final Permutation OSPC = new Permutation("OSPC", 2, 0, 1, 3);
+
+	static final String RN_SP_O = "RN_SP_O";
+	static final String RN_P_OS = "RN_P_OS";
+	static final String RDT_SP_O = "RDT_SP_O";
+	static final String RDT_P_OS = "RDT_P_OS";
+
+	protected final Log _log = new Log(LoggerFactory.getLogger(getClass()));
+
+	protected final LocalDataAccessLayerFactory _factory;
+	protected final ITopLevelDictionary _dictionary;
+
+	private Permutation[] _permutations;
+	private SortedTable[] _indexes;
+	private SortedTable _numbersBySubject;
+	private SortedTable _numbersByPredicate;
+	private SortedTable _datesBySubject;
+	private SortedTable _datesByPredicate;
+
+	/**
+	 * Buils a new dao with the given data.
+	 *
+	 * @param factory the data access layer factory.
+	 * @param dictionary the dictionary currently used in the owning store instance.
+	 */
+	LocalTripleIndexDAO(final LocalDataAccessLayerFactory factory, final ITopLevelDictionary dictionary) {
+		_factory = factory;
+		_dictionary = dictionary;
+	}
+
+	@Override
+	public void initialiseRdfIndex() throws DataAccessLayerException {
+		_permutations = permutations();
+		_indexes = new SortedTable[_permutations.length];
+		for (int i = 0; i < _permutations.length; i++) {
+			_indexes[i] = _factory.table(_permutations[i]._name);
+		}
+
+		_numbersBySubject = _factory.table(RN_SP_O);
+		_numbersByPredicate = _factory.table(RN_P_OS);
+		_datesBySubject = _factory.table(RDT_SP_O);
+		_datesByPredicate = _factory.table(RDT_P_OS);
+	}
+
+	@Override
+	public void insertTriple(final byte[][] ids) throws DataAccessLayerException {
+		final byte[][] spoc = spoc(ids);
+		try {
+			for (int i = 0; i < _permutations.length; i++) {
+				_indexes[i].put(_permutations[i].key(spoc, 4), Keys.EMPTY);
+			}
+		} catch (final IOException exception) {
+			throw new DataAccessLayerException(exception);
+		}
+	}
+
+	@Override
+	public void insertRanges(final byte[][] ids, final double value) throws DataAccessLayerException {
+		insertRanges(ids, Keys.sortable(value), _numbersBySubject, _numbersByPredicate);
+	}
+
+	@Override
+	public void insertRanges(final byte[][] ids, final long value) throws DataAccessLayerException {
+		insertRanges(ids, Keys.sortable(value), _datesBySubject, _datesByPredicate);
+	}
+
+	@Override
+	public List<byte[][]> deleteTriples(
+			final Iterator<byte[][]> nodes,
+			final int batchSize,
+			final boolean rangesEnabled) throws DataAccessLayerException {
+		final List<byte[][]> deleted = new ArrayList<byte[][]>(batchSize);
+		try {
+			while (nodes.hasNext()) {
+				final byte[][] ids = nodes.next();
+
+				// check if valid triple or quad
+				if (ids == null || ids.length < 3) {
+					continue;
+				}
+
+				internalDelete(ids);
+				if (rangesEnabled && _dictionary.isLiteral(ids[2])) {
+					deleteRanges(ids, _numbersBySubject, _numbersByPredicate);
+					deleteRanges(ids, _datesBySubject, _datesByPredicate);
+				}
+				deleted.add(ids);
+			}
+		} catch (final IOException exception) {
+			throw new DataAccessLayerException(exception);
+		}
+		return deleted;
+	}
+
+	@Override
+	public void executePendingMutations() throws DataAccessLayerException {
+		_factory.commit();
+	}
+
+	@Override
+	public Iterator<byte[][]> query(final byte[][] query, final int limit) throws DataAccessLayerException {
+		final int index = indexFor(query);
+		final Permutation permutation = _permutations[index];
+		final int prefixLength = permutation.prefixLength(query);
+		final Iterator<Entry<byte[], byte[]>> entries = _indexes[index].scan(permutation.key(query, prefixLength), false);
+		final Iterator<byte[][]> triples = new AbstractIterator<byte[][]>() {
+			@Override
+			protected byte[][] computeNext() {
+				while (entries.hasNext()) {
+					final byte[][] spoc = permutation.quad(entries.next().getKey());
+					if (matches(spoc, query)) {
+						return spoc[3].length == 0 ? new byte[][] {spoc[0], spoc[1], spoc[2]} : spoc;
+					}
+				}
+				return endOfData();
+			}
+		};
+		return limit == Integer.MAX_VALUE ? triples : Iterators.limit(triples, limit);
+	}
+
+	@Override
+	public List<Iterator<byte[][]>> query(final List<byte[][]> queries, final int limit) throws DataAccessLayerException {
+		final List<Iterator<byte[][]>> results = new ArrayList<Iterator<byte[][]>>(queries.size());
+		for (final byte[][] query : queries) {
+			results.add(query(query, limit));
+		}
+		return results;
+	}
+
+	/**
+	 * Results are read with a prefix scan, so they are sorted by the member that follows the prefix.
+	 */
+	@Override
+	public int sortedBy(final byte[][] query) {
+		final Permutation permutation = _permutations[indexFor(query)];
+		final int prefixLength = permutation.prefixLength(query);
+		if (prefixLength < permutation._order.length && permutation._order[prefixLength] < 3) {
+			return permutation._order[prefixLength];
+		}
+		return -1;
+	}
+
+	@Override
+	public Comparator<byte[]> getIdentifiersOrder() {
+		return Keys.COMPONENT_ORDER;
+	}
+
+	@Override
+	public Iterator<byte[][]> numericRangeQuery(
+			final Value[] query,
+			final double lowerBound,
+			final boolean equalsLower,
+			final double upperBound,
+			final boolean equalsUpper,
+			final boolean reverse,
+			final int limit) throws DataAccessLayerException {
+		return rangeQuery(
+				query,
+				Keys.sortable(lowerBound), equalsLower,
+				Keys.sortable(upperBound), equalsUpper,
+				reverse,
+				limit,
+				_numbersBySubject,
+				_numbersByPredicate);
+	}
+
+	@Override
+	public Iterator<byte[][]> dateRangeQuery(
+			final Value[] query,
+			final long lowerBound,
+			final boolean equalsLower,
+			final long upperBound,
+			final boolean equalsUpper,
+			final boolean reverse,
+			final int limit) throws DataAccessLayerException {
+		return rangeQuery(
+				query,
+				Keys.sortable(lowerBound), equalsLower,
+				Keys.sortable(upperBound), equalsUpper,
+				reverse,
+				limit,
+				_datesBySubject,
+				_datesByPredicate);
+	}
+
+	@Override
+	public void close() throws DataAccessLayerException {
+		_factory.daoWasClosed();
+	}
+
+	@Override
+	public void clear() {
+		try {
+			for (final SortedTable index : _indexes) {
+				index.clear();
+			}
+
+			_numbersBySubject.clear();
+			_numbersByPredicate.clear();
+			_datesBySubject.clear();
+			_datesByPredicate.clear();
+		} catch (final IOException exception) {
+			_log.error(MessageCatalog._00093_DATA_ACCESS_LAYER_FAILURE, exception);
+		}
+	}
+
+	/**
+	 * Returns the sorted tables (as permutations of the quad members) that make up this index.
+	 *
+	 * @return the sorted tables (as permutations of the quad members) that make up this index.
+	 */
+	protected Permutation[] permutations() {
+		return new Permutation[] {SPOC, POSC, OSPC};
+	}
+
+	/**
+	 * Deletes the given triple (or quad) from all tables of this index.
+	 *
+	 * @param ids the triple (or quad) identifiers.
+	 * @throws IOException in case of I/O failure.
+	 */
+	private void internalDelete(final byte[][] ids) throws IOException {
+		final byte[][] spoc = spoc(ids);
+		for (int i = 0; i < _permutations.length; i++) {
+			_indexes[i].delete(_permutations[i].key(spoc, 4));
+		}
+	}
+
+	/**
+	 * Inserts the range entries of a given triple.
+	 *
+	 * @param ids the triple identifiers.
+	 * @param value the (sortable) range value.
+	 * @param bySubject the range table partitioned by subject and predicate.
+	 * @param byPredicate the range table partitioned by predicate.
+	 * @throws DataAccessLayerException in case of data access failure.
+	 */
+	private void insertRanges(
+			final byte[][] ids,
+			final byte[] value,
+			final SortedTable bySubject,
+			final SortedTable byPredicate) throws DataAccessLayerException {
+		try {
+			bySubject.put(Keys.compose(ids[0], ids[1], value, ids[2]), Keys.EMPTY);
+			byPredicate.put(Keys.compose(ids[1], value, ids[0], ids[2]), Keys.EMPTY);
+		} catch (final IOException exception) {
+			throw new DataAccessLayerException(exception);
+		}
+	}
+
+	/**
+	 * Deletes the range entries of a given triple.
+	 * The range value is found scanning the (subject, predicate) range entries, so the dictionary is never involved.
+	 *
+	 * @param ids the triple identifiers.
+	 * @param bySubject the range table partitioned by subject and predicate.
+	 * @param byPredicate the range table partitioned by predicate.
+	 * @throws IOException in case of I/O failure.
+	 */
+	private void deleteRanges(final byte[][] ids, final SortedTable bySubject, final SortedTable byPredicate) throws IOException {
+		final Iterator<Entry<byte[], byte[]>> entries = bySubject.scan(Keys.compose(ids[0], ids[1]), false);
+		while (entries.hasNext()) {
+			final byte[] key = entries.next().getKey();
+			final byte[][] spvo = Keys.decompose(key, 4);
+			if (Arrays.equals(spvo[3], ids[2])) {
+				bySubject.delete(key);
+				byPredicate.delete(Keys.compose(ids[1], spvo[2], ids[0], ids[2]));
+			}
+		}
+	}
+
+	/**
+	 * Returns the index of the sorted table where the bound members of the given query make the longest key prefix.
+	 *
+	 * @param query the query pattern.
+	 * @return the index of the sorted table that will be used for answering the given query.
+	 */
+	private int indexFor(final byte[][] query) {
+		int index = 0;
+		int prefixLength = -1;
+		for (int i = 0; i < _permutations.length; i++) {
+			final int length = _permutations[i].prefixLength(query);
+			if (length > prefixLength) {
+				index = i;
+				prefixLength = length;
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Executes a range query.
+	 *
+	 * @param query the query pattern.
+	 * @param lowerBound the (sortable) lower bound of the requested range.
+	 * @param equalsLower if lower bound should be included.
+	 * @param upperBound the (sortable) upper bound of the requested range.
+	 * @param equalsUpper if upper bound should be included.
+	 * @param reverse the order by criteria.
+	 * @param limit the max number of triples in result.
+	 * @param bySubject the range table partitioned by subject and predicate.
+	 * @param byPredicate the range table partitioned by predicate.
+	 * @return an iterator containing query results (as identifiers).
+	 * @throws DataAccessLayerException in case of data access failure.
+	 */
+	private Iterator<byte[][]> rangeQuery(
+			final Value[] query,
+			final byte[] lowerBound,
+			final boolean equalsLower,
+			final byte[] upperBound,
+			final boolean equalsUpper,
+			final boolean reverse,
+			final int limit,
+			final SortedTable bySubject,
+			final SortedTable byPredicate) throws DataAccessLayerException {
+		final byte[] s = _dictionary.getID(query[0], false);
+		final byte[] p = _dictionary.getID(query[1], true);
+		final boolean subjectIsVariable = isVariable(s);
+
+		final byte[] lowerKey = subjectIsVariable ? Keys.compose(p, lowerBound) : Keys.compose(s, p, lowerBound);
+		final byte[] upperKey = subjectIsVariable ? Keys.compose(p, upperBound) : Keys.compose(s, p, upperBound);
+
+		// All entries with a given value start with the (partition, value) prefix.
+		final byte[] from = equalsLower ? lowerKey : Keys.successor(lowerKey);
+		final byte[] to = equalsUpper ? Keys.successor(upperKey) : upperKey;
+		if (from == null) {
+			return Collections.<byte[][]>emptyList().iterator();
+		}
+
+		final Iterator<Entry<byte[], byte[]>> entries = (subjectIsVariable ? byPredicate : bySubject).scan(from, to, reverse);
+		final Iterator<byte[][]> triples = new AbstractIterator<byte[][]>() {
+			@Override
+			protected byte[][] computeNext() {
+				if (!entries.hasNext()) {
+					return endOfData();
+				}
+
+				final byte[][] components = Keys.decompose(entries.next().getKey(), 4);
+				return subjectIsVariable
+						? new byte[][] {components[2], components[0], components[3]}
+						: new byte[][] {components[0], components[1], components[3]};
+			}
+		};
+		return limit == Integer.MAX_VALUE ? triples : Iterators.limit(triples, limit);
+	}
+
+	/**
+	 * Returns the given triple as a quad, where the context is {@link Keys#EMPTY} for triples.
+	 *
+	 * @param ids the triple (or quad) identifiers.
+	 * @return the given triple as a quad.
+	 */
+	private static byte[][] spoc(final byte[][] ids) {
+		return new byte[][] {ids[0], ids[1], ids[2], ids.length == 4 && ids[3] != null ? ids[3] : Keys.EMPTY};
+	}
+
+	/**
+	 * Returns true if the given quad matches the bound members of a given pattern.
+	 *
+	 * @param spoc the quad.
+	 * @param pattern the triple (or quad) pattern.
+	 * @return true if the given quad matches the bound members of a given pattern.
+	 */
+	private static boolean matches(final byte[][] spoc, final byte[][] pattern) {
+		for (int i = 0; i < pattern.length && i < 4; i++) {
+			if (!isVariable(pattern[i]) && !Arrays.equals(spoc[i], pattern[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,116 @@
+package edu.kit.aifb.cumulus.datasource.local;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.PriorityQueue;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
+
+/**
+ * Merges the (sorted) entries of several sources of a sorted table.
+ * When a key appears in more than one source, the entry of the newest source wins; deletions are skipped,
+ * unless they must be kept (i.e. when merging segments that are newer than other segments of the table).
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+final class MergingIterator extends AbstractIterator<Entry<byte[], byte[]>> {
+
+	/**
+	 * A source of entries, with its rank (0 is the newest source).
+	 *
+	 * @author agent
+	 * @since 1.1.0
+	 */
+	private static final class Source {
+		private final PeekingIterator<Entry<byte[], byte[]>> _entries;
+		private final int _rank;
+
+		/**
+		 * Builds a new source.
+		 *
+		 * @param entries the source entries.
+		 * @param rank the source rank.
+		 */
+		Source(final Iterator<Entry<byte[], byte[]>> entries, final int rank) {
+			_entries = Iterators.peekingIterator(entries);
+			_rank = rank;
+		}
+	}
+
+	private final PriorityQueue<Source> _queue;
+	private final boolean _keepTombstones;
+
+	/**
+	 * Builds a new iterator that merges the given sources, skipping deletions.
+	 *
+	 * @param sources the sources, from the newest to the oldest.
+	 * @param reverse true if sources are in descending order.
+	 */
+	MergingIterator(final List<Iterator<Entry<byte[], byte[]>>> sources, final boolean reverse) {
+		this(sources, reverse, false);
+	}
+
+	/**
+	 * Builds a new iterator that merges the given sources.
+	 *
+	 * @param sources the sources, from the newest to the oldest.
+	 * @param reverse true if sources are in descending order.
+	 * @param keepTombstones true if deletions must be returned, false if they must be skipped.
+	 */
+	MergingIterator(final List<Iterator<Entry<byte[], byte[]>>> sources, final boolean reverse, final boolean keepTombstones) {
+		_keepTombstones = keepTombstones;
+		_queue = new PriorityQueue<Source>(Math.max(1, sources.size()), new Comparator<Source>() {
+			@Override
+			public int compare(final Source first, final Source second) {
+				final int comparison = Keys.ORDER.compare(first._entries.peek().getKey(), second._entries.peek().getKey());
+				if (comparison != 0) {
+					return reverse ? -comparison : comparison;
+				}
+				return first._rank - second._rank;
+			}
+		});
+
+		for (int rank = 0; rank < sources.size(); rank++) {
+			final Source source = new Source(sources.get(rank), rank);
+			if (source._entries.hasNext()) {
+				_queue.add(source);
+			}
+		}
+	}
+
+	@Override
+	protected Entry<byte[], byte[]> computeNext() {
+		while (!_queue.isEmpty()) {
+			final Entry<byte[], byte[]> entry = next(_queue.poll());
+
+			// Older versions of the same key are skipped
+			while (!_queue.isEmpty() && Keys.ORDER.compare(_queue.peek()._entries.peek().getKey(), entry.getKey()) == 0) {
+				next(_queue.poll());
+			}
+
+			if (_keepTombstones || entry.getValue() != SortedTable.TOMBSTONE) {
+				return entry;
+			}
+		}
+		return endOfData();
+	}
+
+	/**
+	 * Consumes the next entry of a given source, putting the source back in the queue if it has more entries.
+	 *
+	 * @param source the source.
+	 * @return the next entry of the source.
+	 */
+	private Entry<byte[], byte[]> next(final Source source) {
+		final Entry<byte[], byte[]> entry = source._entries.next();
+		if (source._entries.hasNext()) {
+			_queue.add(source);
+		}
+		return entry;
+	}
+}
@@ -0,0 +1,319 @@
+package edu.kit.aifb.cumulus.datasource.local;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.PeekingIterator;
+
+/**
+ * An immutable, sorted and memory-mapped file of key/value pairs.
+ *
+ * The file layout is:
+ *
+ * <ul>
+ * 	<li>the entries, sorted by key: key length (int), key, value length (int, -1 for deletions), value;</li>
+ * 	<li>the offset (int) of each entry, for binary searching;</li>
+ * 	<li>a footer: number of entries (int), offset of the offsets table (int) and a magic number (long).</li>
+ * </ul>
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+final class Segment {
+	static final String EXTENSION = ".db";
+	static final String TEMPORARY_EXTENSION = ".tmp";
+
+	private static final long MAGIC = 0x43756d756c75734cL;
+	private static final int FOOTER_SIZE = 16;
+
+	private final File _file;
+	private final long _sequence;
+	private final MappedByteBuffer _buffer;
+	private final int _count;
+	private final int _offsets;
+
+	/**
+	 * Opens an existing segment.
+	 *
+	 * @param file the segment file.
+	 * @param sequence the segment sequence number, unique within a table.
+	 * @throws IOException in case of I/O failure, or if the file is not a valid segment.
+	 */
+	Segment(final File file, final long sequence) throws IOException {
+		_file = file;
+		_sequence = sequence;
+
+		final RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			final FileChannel channel = raf.getChannel();
+			_buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			raf.close();
+		}
+
+		final int footer = _buffer.capacity() - FOOTER_SIZE;
+		if (footer < 0 || _buffer.getLong(footer + 8) != MAGIC) {
+			throw new IOException("Not a valid segment: " + file);
+		}
+
+		_count = _buffer.getInt(footer);
+		_offsets = _buffer.getInt(footer + 4);
+	}
+
+	/**
+	 * Writes a new segment with (some of) the given entries.
+	 * Entries are written until the iterator is exhausted or the segment size reaches the given limit.
+	 * The segment is first written in a temporary file, that is renamed once completed.
+	 *
+	 * @param file the segment file.
+	 * @param sequence the segment sequence number.
+	 * @param entries the (sorted) entries, values can be {@link SortedTable#TOMBSTONE}.
+	 * @param maxSize the maximum size of the segment, in bytes.
+	 * @return the new segment.
+	 * @throws IOException in case of I/O failure.
+	 */
+	static Segment write(
+			final File file,
+			final long sequence,
+			final PeekingIterator<Entry<byte[], byte[]>> entries,
+			final long maxSize) throws IOException {
+		final File temporary = new File(file.getParentFile(), file.getName() + TEMPORARY_EXTENSION);
+		final FileOutputStream stream = new FileOutputStream(temporary);
+		final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 64 * 1024));
+		try {
+			int[] offsets = new int[1024];
+			int count = 0;
+			long size = 0;
+			while (entries.hasNext() && size < maxSize) {
+				final Entry<byte[], byte[]> entry = entries.next();
+				if (count == offsets.length) {
+					offsets = Arrays.copyOf(offsets, count * 2);
+				}
+				offsets[count++] = (int) size;
+
+				final byte[] key = entry.getKey();
+				final byte[] value = entry.getValue();
+				out.writeInt(key.length);
+				out.write(key);
+				if (value == SortedTable.TOMBSTONE) {
+					out.writeInt(-1);
+					size += 8 + key.length;
+				} else {
+					out.writeInt(value.length);
+					out.write(value);
+					size += 8 + key.length + value.length;
+				}
+			}
+
+			for (int i = 0; i < count; i++) {
+				out.writeInt(offsets[i]);
+			}
+
+			out.writeInt(count);
+			out.writeInt((int) size);
+			out.writeLong(MAGIC);
+			out.flush();
+			stream.getFD().sync();
+		} finally {
+			out.close();
+		}
+
+		if (!temporary.renameTo(file)) {
+			throw new IOException("Unable to rename " + temporary + " to " + file);
+		}
+		return new Segment(file, sequence);
+	}
+
+	/**
+	 * Returns the segment file.
+	 *
+	 * @return the segment file.
+	 */
+	File file() {
+		return _file;
+	}
+
+	/**
+	 * Returns the sequence number of this segment.
+	 *
+	 * @return the sequence number of this segment.
+	 */
+	long sequence() {
+		return _sequence;
+	}
+
+	/**
+	 * Returns the size of this segment, in bytes.
+	 *
+	 * @return the size of this segment, in bytes.
+	 */
+	long size() {
+		return _buffer.capacity();
+	}
+
+	/**
+	 * Returns the number of entries in this segment.
+	 *
+	 * @return the number of entries in this segment.
+	 */
+	int count() {
+		return _count;
+	}
+
+	/**
+	 * Returns the value associated with a given key.
+	 *
+	 * @param key the key.
+	 * @return the value, {@link SortedTable#TOMBSTONE} if the key has been deleted, null if this segment doesn't contain the key.
+	 */
+	byte[] get(final byte[] key) {
+		final int index = ceiling(key);
+		if (index < _count && compare(index, key) == 0) {
+			return value(index);
+		}
+		return null;
+	}
+
+	/**
+	 * Returns an iterator over the entries with keys in the given range.
+	 *
+	 * @param from the lower bound (inclusive), null means unbounded.
+	 * @param to the upper bound (exclusive), null means unbounded.
+	 * @param reverse true for descending order.
+	 * @return an iterator over the entries with keys in the given range.
+	 */
+	Iterator<Entry<byte[], byte[]>> scan(final byte[] from, final byte[] to, final boolean reverse) {
+		final int start = from == null ? 0 : ceiling(from);
+		final int end = to == null ? _count : ceiling(to);
+		return new Iterator<Entry<byte[], byte[]>>() {
+			private int _next = reverse ? end - 1 : start;
+
+			@Override
+			public boolean hasNext() {
+				return reverse ? _next >= start : _next < end;
+			}
+
+			@Override
+			public Entry<byte[], byte[]> next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+
+				final int index = _next;
+				_next += reverse ? -1 : 1;
+				return Maps.immutableEntry(key(index), value(index));
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * Returns the index of the first entry with a key greater than or equal to the given key.
+	 *
+	 * @param key the key.
+	 * @return the index of the first entry with a key greater than or equal to the given key, {@link #count()} if there's no such entry.
+	 */
+	int ceiling(final byte[] key) {
+		int low = 0;
+		int high = _count;
+		while (low < high) {
+			final int middle = (low + high) >>> 1;
+			if (compare(middle, key) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the key of a given entry.
+	 *
+	 * @param index the entry index.
+	 * @return the key of a given entry.
+	 */
+	byte[] key(final int index) {
+		final int offset = offset(index);
+		final byte[] key = new byte[_buffer.getInt(offset)];
+		read(offset + 4, key);
+		return key;
+	}
+
+	/**
+	 * Returns the value of a given entry.
+	 *
+	 * @param index the entry index.
+	 * @return the value of a given entry, {@link SortedTable#TOMBSTONE} in case of deletion.
+	 */
+	byte[] value(final int index) {
+		final int offset = offset(index);
+		final int valueOffset = offset + 4 + _buffer.getInt(offset);
+		final int length = _buffer.getInt(valueOffset);
+		if (length < 0) {
+			return SortedTable.TOMBSTONE;
+		}
+
+		final byte[] value = new byte[length];
+		read(valueOffset + 4, value);
+		return value;
+	}
+
+	/**
+	 * Compares the key of a given entry with a given key, without copying it.
+	 *
+	 * @param index the entry index.
+	 * @param key the key.
+	 * @return a negative number, zero, or a positive number if the key of the entry is less than, equal to, or greater than the given key.
+	 */
+	private int compare(final int index, final byte[] key) {
+		final int offset = offset(index);
+		final int length = _buffer.getInt(offset);
+		final int min = Math.min(length, key.length);
+		for (int i = 0; i < min; i++) {
+			final int difference = (_buffer.get(offset + 4 + i) & 0xFF) - (key[i] & 0xFF);
+			if (difference != 0) {
+				return difference;
+			}
+		}
+		return length - key.length;
+	}
+
+	/**
+	 * Returns the offset of a given entry.
+	 *
+	 * @param index the entry index.
+	 * @return the offset of a given entry.
+	 */
+	private int offset(final int index) {
+		return _buffer.getInt(_offsets + index * 4);
+	}
+
+	/**
+	 * Copies bytes from this segment.
+	 *
+	 * @param offset the offset of the first byte.
+	 * @param target the target array, that will be filled.
+	 */
+	private void read(final int offset, final byte[] target) {
+		final ByteBuffer buffer = _buffer.duplicate();
+		buffer.position(offset);
+		buffer.get(target);
+	}
+}
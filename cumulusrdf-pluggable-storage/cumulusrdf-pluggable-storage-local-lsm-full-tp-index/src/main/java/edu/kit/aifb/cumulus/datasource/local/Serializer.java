@@ -0,0 +1,86 @@
+package edu.kit.aifb.cumulus.datasource.local;
+
+import java.nio.charset.Charset;
+
+/**
+ * Converts {@code <T>} to byte[] and back.
+ * 
+ * @param <T> The type to convert to and from.
+ * @author agent
+ * @since 1.1.0
+ */
+abstract class Serializer<T> {
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	static final Serializer<byte[]> BYTE_ARRAY_SERIALIZER = new Serializer<byte[]>() {
+		@Override
+		byte[] serialize(final byte[] object) {
+			return object;
+		}
+
+		@Override
+		byte[] deserialize(final byte[] serialized) {
+			return serialized;
+		}
+	};
+
+	static final Serializer<String> STRING_SERIALIZER = new Serializer<String>() {
+		@Override
+		byte[] serialize(final String object) {
+			return object.getBytes(UTF8);
+		}
+
+		@Override
+		String deserialize(final byte[] serialized) {
+			return new String(serialized, UTF8);
+		}
+	};
+
+	static final Serializer<Long> LONG_SERIALIZER = new Serializer<Long>() {
+		@Override
+		byte[] serialize(final Long object) {
+			return Keys.toBytes(object);
+		}
+
+		@Override
+		Long deserialize(final byte[] serialized) {
+			return Keys.toLong(serialized);
+		}
+	};
+
+	/**
+	 * Serializes the given object.
+	 * 
+	 * @param object The object to serialize.
+	 * @return The serialized form of the object.
+	 */
+	abstract byte[] serialize(T object);
+
+	/**
+	 * Deserializes the given byte[].
+	 * 
+	 * @param serialized The serialized object.
+	 * @return The deserialized object.
+	 */
+	abstract T deserialize(byte[] serialized);
+
+	/**
+	 * Returns the serializer associated with the given class.
+	 * 
+	 * @param clazz the class.
+	 * @param <T> the type managed by the returned serializer.
+	 * @return the serializer associated with the given class.
+	 * @throws IllegalArgumentException if no suitable serializer is found.
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> Serializer<T> forClass(final Class<T> clazz) {
+		if (clazz.equals(byte[].class)) {
+			return (Serializer<T>) BYTE_ARRAY_SERIALIZER;
+		} else if (clazz.equals(Long.class) || clazz.equals(long.class)) {
+			return (Serializer<T>) LONG_SERIALIZER;
+		} else if (clazz.equals(String.class)) {
+			return (Serializer<T>) STRING_SERIALIZER;
+		}
+		throw new IllegalArgumentException("No serializer available for " + clazz);
+	}
+}
@@ -0,0 +1,738 @@
+package edu.kit.aifb.cumulus.datasource.local;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
+
+import edu.kit.aifb.cumulus.log.Log;
+import edu.kit.aifb.cumulus.log.MessageCatalog;
+
+/**
+ * A sorted, persistent key/value table, organized as a log-structured merge tree.
+ *
+ * <ul>
+ * 	<li>Mutations are appended to a {@link WriteAheadLog} and applied to an in-memory sorted map (the memtable).</li>
+ * 	<li>Once the memtable reaches a given size, it is written to a new immutable, memory-mapped {@link Segment}.</li>
+ * 	<li>Segments are merged (compacted) in background, following a size-tiered strategy: a run of (adjacent) segments
+ * 		with similar sizes is merged in one. Deleted entries are dropped only when the oldest segment is merged.</li>
+ * </ul>
+ *
+ * Reads merge the memtable with all segments, from the newest to the oldest; they never block and always see a
+ * consistent set of sources. Point lookups are binary searches on the memory-mapped segments.
+ *
+ * The live segments, in order, are listed in a manifest, that is atomically replaced after each flush or compaction.
+ * Files are deleted only once the manifest doesn't reference them anymore, and files that aren't in the manifest
+ * (i.e. left by an interrupted flush or compaction) are deleted on open, so a crash never resurrects deleted keys.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+final class SortedTable {
+	static final byte[] TOMBSTONE = new byte[0];
+
+	// Segments are memory-mapped with a single buffer, so they must be smaller than 2GB.
+	static final long MAX_SEGMENT_SIZE = 1L << 30;
+
+	static final String MANIFEST = "MANIFEST";
+
+	// Number of segments with similar sizes that triggers their compaction.
+	static final int TIER_SIZE = 4;
+
+	private static final Log LOGGER = new Log(LoggerFactory.getLogger(SortedTable.class));
+	private static final int ENTRY_OVERHEAD = 64;
+	private static final double TIER_LOW = 0.5;
+	private static final double TIER_HIGH = 1.5;
+
+	/**
+	 * The sources of a table: they are replaced at once, so readers always see a consistent snapshot.
+	 *
+	 * @author agent
+	 * @since 1.1.0
+	 */
+	private static final class State {
+		private final ConcurrentNavigableMap<byte[], byte[]> _memtable;
+		private final ConcurrentNavigableMap<byte[], byte[]> _flushing;
+		private final List<Segment> _segments;
+
+		/**
+		 * Builds a new state.
+		 *
+		 * @param memtable the memtable.
+		 * @param flushing the memtable being written to a segment, null if there's no flush in progress.
+		 * @param segments the segments, from the newest to the oldest.
+		 */
+		State(final ConcurrentNavigableMap<byte[], byte[]> memtable, final ConcurrentNavigableMap<byte[], byte[]> flushing, final List<Segment> segments) {
+			_memtable = memtable;
+			_flushing = flushing;
+			_segments = segments;
+		}
+	}
+
+	private final String _name;
+	private final File _directory;
+	private final long _memtableThreshold;
+	private final int _maxSegments;
+
+	private final Executor _compactor;
+
+	private final ReadWriteLock _lock = new ReentrantReadWriteLock();
+	private final Object _flushLock = new Object();
+	private final Object _compactionLock = new Object();
+	private final Object _manifestLock = new Object();
+	private final AtomicBoolean _compactionScheduled = new AtomicBoolean();
+	private final AtomicLong _memtableSize = new AtomicLong();
+	private final AtomicLong _sequence = new AtomicLong();
+
+	private volatile State _state;
+	private volatile boolean _closed;
+	private WriteAheadLog _log;
+
+	/**
+	 * Opens (or creates) a table.
+	 * Mutations found in logs (i.e. not yet written to a segment when the table was closed) are recovered.
+	 *
+	 * @param directory the table directory.
+	 * @param name the table name.
+	 * @param memtableThreshold the size (in bytes) that triggers the flush of the memtable.
+	 * @param maxSegments the number of segments that triggers a compaction, even if segments sizes are not similar.
+	 * @param compactor the executor that runs compactions.
+	 * @throws IOException in case of I/O failure.
+	 */
+	SortedTable(
+			final File directory,
+			final String name,
+			final long memtableThreshold,
+			final int maxSegments,
+			final Executor compactor) throws IOException {
+		_name = name;
+		_directory = directory;
+		_memtableThreshold = Math.min(memtableThreshold, MAX_SEGMENT_SIZE / 2);
+		_maxSegments = Math.max(1, maxSegments);
+		_compactor = compactor;
+
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Unable to create directory " + directory);
+		}
+
+		for (final File temporary : files(Segment.TEMPORARY_EXTENSION)) {
+			temporary.delete();
+		}
+
+		final List<Segment> segments = new ArrayList<Segment>();
+		final File manifest = new File(directory, MANIFEST);
+		if (manifest.isFile()) {
+			final Set<String> live = new HashSet<String>();
+			for (final String segment : Files.readAllLines(manifest.toPath(), StandardCharsets.UTF_8)) {
+				if (!segment.isEmpty()) {
+					final File file = new File(directory, segment);
+					segments.add(new Segment(file, sequence(file)));
+					live.add(segment);
+				}
+			}
+
+			// Leftovers of an interrupted flush or compaction
+			for (final File file : files(Segment.EXTENSION)) {
+				if (!live.contains(file.getName())) {
+					delete(file);
+				}
+			}
+		} else {
+			// Tables written before manifests were introduced: segments are ordered by sequence number.
+			for (final File file : files(Segment.EXTENSION)) {
+				segments.add(new Segment(file, sequence(file)));
+			}
+			Collections.sort(segments, new Comparator<Segment>() {
+				@Override
+				public int compare(final Segment first, final Segment second) {
+					return Long.compare(second.sequence(), first.sequence());
+				}
+			});
+		}
+
+		final List<File> logs = files(WriteAheadLog.EXTENSION);
+		Collections.sort(logs, new Comparator<File>() {
+			@Override
+			public int compare(final File first, final File second) {
+				return Long.compare(sequence(first), sequence(second));
+			}
+		});
+
+		long lastSequence = 0;
+		for (final Segment segment : segments) {
+			lastSequence = Math.max(lastSequence, segment.sequence());
+		}
+		for (final File log : logs) {
+			lastSequence = Math.max(lastSequence, sequence(log));
+		}
+		_sequence.set(lastSequence);
+
+		// Mutations of previous sessions are replayed and written to a new segment.
+		final ConcurrentNavigableMap<byte[], byte[]> recovered = new ConcurrentSkipListMap<byte[], byte[]>(Keys.ORDER);
+		int recoveredCount = 0;
+		for (final File log : logs) {
+			recoveredCount += WriteAheadLog.replay(log, recovered);
+		}
+		if (!recovered.isEmpty()) {
+			segments.addAll(0, writeSegments(Iterators.peekingIterator(recovered.entrySet().iterator())));
+		}
+
+		_state = new State(new ConcurrentSkipListMap<byte[], byte[]>(Keys.ORDER), null, segments);
+		writeManifest();
+		for (final File log : logs) {
+			log.delete();
+		}
+
+		_log = new WriteAheadLog(new File(directory, _sequence.incrementAndGet() + WriteAheadLog.EXTENSION));
+
+		LOGGER.debug(MessageCatalog._00121_LOCAL_TABLE_OPENED, name, segments.size(), recoveredCount);
+	}
+
+	/**
+	 * Returns the value associated with a given key.
+	 *
+	 * @param key the key.
+	 * @return the value associated with a given key, null if the table doesn't contain the key.
+	 */
+	byte[] get(final byte[] key) {
+		final State state = _state;
+		byte[] value = state._memtable.get(key);
+		if (value == null && state._flushing != null) {
+			value = state._flushing.get(key);
+		}
+
+		for (int i = 0; value == null && i < state._segments.size(); i++) {
+			value = state._segments.get(i).get(key);
+		}
+		return value == TOMBSTONE ? null : value;
+	}
+
+	/**
+	 * Returns an iterator over the entries with keys in the given range.
+	 *
+	 * @param from the lower bound (inclusive), null means unbounded.
+	 * @param to the upper bound (exclusive), null means unbounded.
+	 * @param reverse true for descending order.
+	 * @return an iterator over the entries with keys in the given range.
+	 */
+	Iterator<Entry<byte[], byte[]>> scan(final byte[] from, final byte[] to, final boolean reverse) {
+		if (from != null && to != null && Keys.ORDER.compare(from, to) >= 0) {
+			return Collections.<Entry<byte[], byte[]>>emptyList().iterator();
+		}
+
+		final State state = _state;
+		final List<Iterator<Entry<byte[], byte[]>>> sources = new ArrayList<Iterator<Entry<byte[], byte[]>>>(state._segments.size() + 2);
+		sources.add(scan(state._memtable, from, to, reverse));
+		if (state._flushing != null) {
+			sources.add(scan(state._flushing, from, to, reverse));
+		}
+
+		for (final Segment segment : state._segments) {
+			sources.add(segment.scan(from, to, reverse));
+		}
+		return sources.size() == 1 ? withoutTombstones(sources.get(0)) : new MergingIterator(sources, reverse);
+	}
+
+	/**
+	 * Returns an iterator over the entries with keys that start with the given prefix.
+	 *
+	 * @param prefix the key prefix.
+	 * @param reverse true for descending order.
+	 * @return an iterator over the entries with keys that start with the given prefix.
+	 */
+	Iterator<Entry<byte[], byte[]>> scan(final byte[] prefix, final boolean reverse) {
+		return scan(prefix.length == 0 ? null : prefix, Keys.successor(prefix), reverse);
+	}
+
+	/**
+	 * Associates a value with a given key.
+	 *
+	 * @param key the key.
+	 * @param value the value.
+	 * @throws IOException in case of I/O failure.
+	 */
+	void put(final byte[] key, final byte[] value) throws IOException {
+		_lock.readLock().lock();
+		try {
+			checkOpen();
+			_log.append(key, value);
+			_state._memtable.put(key, value);
+		} finally {
+			_lock.readLock().unlock();
+		}
+
+		if (_memtableSize.addAndGet(key.length + value.length + ENTRY_OVERHEAD) >= _memtableThreshold) {
+			synchronized (_flushLock) {
+				// Another writer could have flushed the memtable in the meantime
+				if (_memtableSize.get() >= _memtableThreshold) {
+					flush();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes a given key.
+	 *
+	 * @param key the key.
+	 * @throws IOException in case of I/O failure.
+	 */
+	void delete(final byte[] key) throws IOException {
+		put(key, TOMBSTONE);
+	}
+
+	/**
+	 * Writes buffered mutations to the operating system, so that they survive a crash of the process.
+	 *
+	 * @param sync if true, waits until mutations have been written to disk, so that they survive a crash of the machine.
+	 * @throws IOException in case of I/O failure.
+	 */
+	void commit(final boolean sync) throws IOException {
+		_lock.readLock().lock();
+		try {
+			if (!_closed) {
+				_log.flush(sync);
+			}
+		} finally {
+			_lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Writes the memtable to a new segment and schedules a compaction, if needed.
+	 *
+	 * @throws IOException in case of I/O failure.
+	 */
+	void flush() throws IOException {
+		synchronized (_flushLock) {
+			final State state;
+			final WriteAheadLog log;
+
+			_lock.writeLock().lock();
+			try {
+				state = _state;
+				if (_closed || state._memtable.isEmpty()) {
+					return;
+				}
+
+				log = _log;
+				_log = new WriteAheadLog(new File(_directory, _sequence.incrementAndGet() + WriteAheadLog.EXTENSION));
+				_state = new State(new ConcurrentSkipListMap<byte[], byte[]>(Keys.ORDER), state._memtable, state._segments);
+				_memtableSize.set(0);
+			} finally {
+				_lock.writeLock().unlock();
+			}
+
+			log.close();
+			final List<Segment> flushed = writeSegments(Iterators.peekingIterator(state._memtable.entrySet().iterator()));
+
+			_lock.writeLock().lock();
+			try {
+				final List<Segment> segments = new ArrayList<Segment>(flushed);
+				segments.addAll(_state._segments);
+				_state = new State(_state._memtable, null, segments);
+			} finally {
+				_lock.writeLock().unlock();
+			}
+
+			writeManifest();
+			log.file().delete();
+		}
+
+		scheduleCompaction();
+	}
+
+	/**
+	 * Merges all segments in one, dropping deleted and overwritten entries.
+	 *
+	 * @throws IOException in case of I/O failure.
+	 */
+	void compact() throws IOException {
+		synchronized (_compactionLock) {
+			final List<Segment> segments = _state._segments;
+			if (!_closed && segments.size() > 1) {
+				merge(segments);
+			}
+		}
+	}
+
+	/**
+	 * Merges runs of segments, as long as the compaction strategy finds any.
+	 *
+	 * @throws IOException in case of I/O failure.
+	 */
+	void compactTiers() throws IOException {
+		synchronized (_compactionLock) {
+			List<Segment> run;
+			while (!_closed && (run = candidates(_state._segments)) != null) {
+				merge(run);
+			}
+		}
+	}
+
+	/**
+	 * Removes all entries of this table.
+	 *
+	 * @throws IOException in case of I/O failure.
+	 */
+	void clear() throws IOException {
+		synchronized (_flushLock) {
+			final State state;
+			final WriteAheadLog log;
+
+			_lock.writeLock().lock();
+			try {
+				checkOpen();
+				state = _state;
+				log = _log;
+				_log = new WriteAheadLog(new File(_directory, _sequence.incrementAndGet() + WriteAheadLog.EXTENSION));
+				_state = new State(new ConcurrentSkipListMap<byte[], byte[]>(Keys.ORDER), null, new ArrayList<Segment>());
+				_memtableSize.set(0);
+			} finally {
+				_lock.writeLock().unlock();
+			}
+
+			writeManifest();
+			log.close();
+			log.file().delete();
+			for (final Segment segment : state._segments) {
+				delete(segment.file());
+			}
+		}
+	}
+
+	/**
+	 * Writes the memtable to a segment and closes this table.
+	 * Waits for the compaction in progress, if any; scheduled compactions won't run.
+	 *
+	 * @throws IOException in case of I/O failure.
+	 */
+	void close() throws IOException {
+		synchronized (_flushLock) {
+			if (_closed) {
+				return;
+			}
+
+			flush();
+
+			synchronized (_compactionLock) {
+				_lock.writeLock().lock();
+				try {
+					_closed = true;
+					_log.close();
+					_log.file().delete();
+				} finally {
+					_lock.writeLock().unlock();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns true if this table has been closed.
+	 *
+	 * @return true if this table has been closed.
+	 */
+	boolean isClosed() {
+		return _closed;
+	}
+
+	/**
+	 * Returns the number of segments of this table.
+	 *
+	 * @return the number of segments of this table.
+	 */
+	int segments() {
+		return _state._segments.size();
+	}
+
+	/**
+	 * Schedules a compaction, unless one is already scheduled or there's nothing to compact.
+	 */
+	private void scheduleCompaction() {
+		if (_closed || candidates(_state._segments) == null || !_compactionScheduled.compareAndSet(false, true)) {
+			return;
+		}
+
+		try {
+			_compactor.execute(new Runnable() {
+				@Override
+				public void run() {
+					_compactionScheduled.set(false);
+					try {
+						compactTiers();
+					} catch (final IOException exception) {
+						LOGGER.error(MessageCatalog._00129_LOCAL_TABLE_COMPACTION_FAILURE, exception, _name);
+					}
+				}
+			});
+		} catch (final RejectedExecutionException exception) {
+			_compactionScheduled.set(false);
+		}
+	}
+
+	/**
+	 * Selects the segments to merge, following a size-tiered strategy.
+	 * Segments are scanned from the newest to the oldest: the first run of at least {@link #TIER_SIZE} adjacent
+	 * segments with similar sizes is selected (segments smaller than the memtable are always similar).
+	 * If there's no such run, but there are more than the maximum number of segments, the cheapest run of adjacent
+	 * segments that brings the number of segments back to the maximum is selected.
+	 * Only adjacent segments are merged, so that the merged segment can take their place in the newest-to-oldest order.
+	 *
+	 * @param segments the segments of the table, from the newest to the oldest.
+	 * @return the run of segments to merge, null if there's nothing to merge.
+	 */
+	private List<Segment> candidates(final List<Segment> segments) {
+		final int tierSize = Math.max(2, Math.min(TIER_SIZE, _maxSegments));
+		int first = 0;
+		long total = 0;
+		for (int i = 0; i < segments.size(); i++) {
+			final long size = segments.get(i).size();
+			if (i > first) {
+				final double average = total / (double) (i - first);
+				final boolean similar = Math.max(size, average) <= _memtableThreshold
+						|| (size >= average * TIER_LOW && size <= average * TIER_HIGH);
+				if (!similar) {
+					if (i - first >= tierSize) {
+						return new ArrayList<Segment>(segments.subList(first, i));
+					}
+					first = i;
+					total = 0;
+				}
+			}
+			total += size;
+		}
+
+		if (segments.size() - first >= tierSize) {
+			return new ArrayList<Segment>(segments.subList(first, segments.size()));
+		}
+
+		if (segments.size() > _maxSegments) {
+			final int length = Math.max(2, segments.size() - _maxSegments + 1);
+			int cheapest = 0;
+			long cheapestSize = Long.MAX_VALUE;
+			for (int i = 0; i + length <= segments.size(); i++) {
+				long size = 0;
+				for (int j = i; j < i + length; j++) {
+					size += segments.get(j).size();
+				}
+				if (size < cheapestSize) {
+					cheapest = i;
+					cheapestSize = size;
+				}
+			}
+			return new ArrayList<Segment>(segments.subList(cheapest, cheapest + length));
+		}
+		return null;
+	}
+
+	/**
+	 * Merges a run of adjacent segments, replacing them with the merged segment(s).
+	 * Deleted entries are kept, unless the run includes the oldest segment: otherwise they would no longer hide
+	 * the older versions of the same keys.
+	 *
+	 * @param run the segments to merge, from the newest to the oldest.
+	 * @throws IOException in case of I/O failure.
+	 */
+	private void merge(final List<Segment> run) throws IOException {
+		final long start = System.currentTimeMillis();
+		final List<Segment> segments = _state._segments;
+		final boolean oldest = run.get(run.size() - 1) == segments.get(segments.size() - 1);
+
+		final List<Iterator<Entry<byte[], byte[]>>> sources = new ArrayList<Iterator<Entry<byte[], byte[]>>>(run.size());
+		for (final Segment segment : run) {
+			sources.add(segment.scan(null, null, false));
+		}
+
+		final List<Segment> merged = writeSegments(Iterators.peekingIterator(new MergingIterator(sources, false, !oldest)));
+
+		// The run is replaced only if it's still there (i.e. the table hasn't been cleared in the meantime).
+		boolean replaced = false;
+		_lock.writeLock().lock();
+		try {
+			final List<Segment> current = _state._segments;
+			final int index = current.indexOf(run.get(0));
+			if (index >= 0 && index + run.size() <= current.size() && current.subList(index, index + run.size()).equals(run)) {
+				final List<Segment> compacted = new ArrayList<Segment>(current.subList(0, index));
+				compacted.addAll(merged);
+				compacted.addAll(current.subList(index + run.size(), current.size()));
+				_state = new State(_state._memtable, _state._flushing, compacted);
+				replaced = true;
+			}
+		} finally {
+			_lock.writeLock().unlock();
+		}
+
+		if (replaced) {
+			writeManifest();
+			for (final Segment segment : run) {
+				delete(segment.file());
+			}
+			LOGGER.debug(MessageCatalog._00122_LOCAL_TABLE_COMPACTED, _name, run.size(), System.currentTimeMillis() - start);
+		} else {
+			for (final Segment segment : merged) {
+				delete(segment.file());
+			}
+		}
+	}
+
+	/**
+	 * Atomically replaces the manifest with the list of the current segments.
+	 *
+	 * @throws IOException in case of I/O failure.
+	 */
+	private void writeManifest() throws IOException {
+		synchronized (_manifestLock) {
+			final File temporary = new File(_directory, MANIFEST + Segment.TEMPORARY_EXTENSION);
+			final FileOutputStream stream = new FileOutputStream(temporary);
+			final Writer writer = new OutputStreamWriter(stream, StandardCharsets.UTF_8);
+			try {
+				for (final Segment segment : _state._segments) {
+					writer.write(segment.file().getName());
+					writer.write('\n');
+				}
+				writer.flush();
+				stream.getFD().sync();
+			} finally {
+				writer.close();
+			}
+
+			Files.move(
+					temporary.toPath(),
+					new File(_directory, MANIFEST).toPath(),
+					StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		}
+	}
+
+	/**
+	 * Writes the given entries to one or more new segments.
+	 *
+	 * @param entries the (sorted) entries.
+	 * @return the new segments, from the newest to the oldest.
+	 * @throws IOException in case of I/O failure.
+	 */
+	private List<Segment> writeSegments(final PeekingIterator<Entry<byte[], byte[]>> entries) throws IOException {
+		final List<Segment> segments = new ArrayList<Segment>(1);
+		while (entries.hasNext()) {
+			final long sequence = _sequence.incrementAndGet();
+			segments.add(0, Segment.write(new File(_directory, sequence + Segment.EXTENSION), sequence, entries, MAX_SEGMENT_SIZE));
+		}
+		return segments;
+	}
+
+	/**
+	 * Returns an iterator over the entries of a memtable with keys in the given range.
+	 *
+	 * @param memtable the memtable.
+	 * @param from the lower bound (inclusive), null means unbounded.
+	 * @param to the upper bound (exclusive), null means unbounded.
+	 * @param reverse true for descending order.
+	 * @return an iterator over the entries of a memtable with keys in the given range.
+	 */
+	private static Iterator<Entry<byte[], byte[]>> scan(
+			final ConcurrentNavigableMap<byte[], byte[]> memtable,
+			final byte[] from,
+			final byte[] to,
+			final boolean reverse) {
+		ConcurrentNavigableMap<byte[], byte[]> range = memtable;
+		if (from != null && to != null) {
+			range = memtable.subMap(from, true, to, false);
+		} else if (from != null) {
+			range = memtable.tailMap(from, true);
+		} else if (to != null) {
+			range = memtable.headMap(to, false);
+		}
+		return (reverse ? range.descendingMap() : range).entrySet().iterator();
+	}
+
+	/**
+	 * Filters out deletions from a given iterator.
+	 *
+	 * @param entries the entries.
+	 * @return an iterator over the given entries, without deletions.
+	 */
+	private static Iterator<Entry<byte[], byte[]>> withoutTombstones(final Iterator<Entry<byte[], byte[]>> entries) {
+		return new MergingIterator(Collections.singletonList(entries), false);
+	}
+
+	/**
+	 * Deletes a file: if that's not possible (e.g. because the file is still mapped) it will be deleted on exit.
+	 *
+	 * @param file the file.
+	 */
+	private static void delete(final File file) {
+		if (!file.delete()) {
+			file.deleteOnExit();
+		}
+	}
+
+	/**
+	 * Returns the sequence number of a given segment or log file.
+	 *
+	 * @param file the segment or log file.
+	 * @return the sequence number of the file.
+	 */
+	private static long sequence(final File file) {
+		final String name = file.getName();
+		return Long.parseLong(name.substring(0, name.indexOf('.')));
+	}
+
+	/**
+	 * Returns the files of this table with a given extension.
+	 *
+	 * @param extension the file extension.
+	 * @return the files of this table with a given extension.
+	 */
+	private List<File> files(final String extension) {
+		final File[] files = _directory.listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(final File directory, final String name) {
+				return name.endsWith(extension);
+			}
+		});
+
+		final List<File> result = new ArrayList<File>();
+		if (files != null) {
+			Collections.addAll(result, files);
+		}
+		return result;
+	}
+
+	/**
+	 * Checks if this table is open.
+	 *
+	 * @throws IOException if this table has been closed.
+	 */
+	private void checkOpen() throws IOException {
+		if (_closed) {
+			throw new IOException("Table " + _name + " has been closed.");
+		}
+	}
+}
@@ -0,0 +1,122 @@
+package edu.kit.aifb.cumulus.datasource.local;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * The log of the mutations held in the memtable of a sorted table, replayed after a crash.
+ * Mutations are buffered: they reach the operating system on {@link #flush(boolean)} (and the disk, if requested).
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+final class WriteAheadLog {
+	static final String EXTENSION = ".log";
+
+	private final File _file;
+	private final FileOutputStream _stream;
+	private final DataOutputStream _out;
+
+	/**
+	 * Opens (or creates) a log file for appending.
+	 *
+	 * @param file the log file.
+	 * @throws IOException in case of I/O failure.
+	 */
+	WriteAheadLog(final File file) throws IOException {
+		_file = file;
+		_stream = new FileOutputStream(file, true);
+		_out = new DataOutputStream(new BufferedOutputStream(_stream, 64 * 1024));
+	}
+
+	/**
+	 * Appends a mutation to this log.
+	 *
+	 * @param key the key.
+	 * @param value the value, {@link SortedTable#TOMBSTONE} for deletions.
+	 * @throws IOException in case of I/O failure.
+	 */
+	synchronized void append(final byte[] key, final byte[] value) throws IOException {
+		_out.writeInt(key.length);
+		_out.write(key);
+		if (value == SortedTable.TOMBSTONE) {
+			_out.writeInt(-1);
+		} else {
+			_out.writeInt(value.length);
+			_out.write(value);
+		}
+	}
+
+	/**
+	 * Writes buffered mutations to the operating system.
+	 *
+	 * @param sync if true, waits until mutations have been written to disk.
+	 * @throws IOException in case of I/O failure.
+	 */
+	synchronized void flush(final boolean sync) throws IOException {
+		_out.flush();
+		if (sync) {
+			_stream.getFD().sync();
+		}
+	}
+
+	/**
+	 * Flushes and closes this log.
+	 *
+	 * @throws IOException in case of I/O failure.
+	 */
+	synchronized void close() throws IOException {
+		_out.close();
+	}
+
+	/**
+	 * Returns the log file.
+	 *
+	 * @return the log file.
+	 */
+	File file() {
+		return _file;
+	}
+
+	/**
+	 * Replays a log file.
+	 * A truncated mutation at the end of the file (i.e. a crash while writing it) is ignored.
+	 *
+	 * @param file the log file.
+	 * @param target the map where mutations will be applied.
+	 * @return the number of replayed mutations.
+	 * @throws IOException in case of I/O failure.
+	 */
+	static int replay(final File file, final Map<byte[], byte[]> target) throws IOException {
+		final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024));
+		int count = 0;
+		try {
+			while (true) {
+				final byte[] key = new byte[in.readInt()];
+				in.readFully(key);
+
+				final int length = in.readInt();
+				byte[] value = SortedTable.TOMBSTONE;
+				if (length >= 0) {
+					value = new byte[length];
+					in.readFully(value);
+				}
+
+				target.put(key, value);
+				count++;
+			}
+		} catch (final EOFException endOfLog) {
+			return count;
+		} finally {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,7 @@
+/**
+ * Embedded, local storage data access layer family (sorted, memory-mapped tables on local disk).
+ * 
+ * @author agent
+ * @since 1.1.0
+ */
+package edu.kit.aifb.cumulus.datasource.local;
@@ -0,0 +1,370 @@
+package edu.kit.aifb.cumulus.datasource.local;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Map.Entry;
+import java.util.concurrent.Executor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.MoreExecutors;
+
+/**
+ * Test case for {@link SortedTable}.
+ * 
+ * @author agent
+ * @since 1.1.0
+ */
+public class SortedTableTest {
+	private File _directory;
+	private SortedTable _cut;
+
+	/**
+	 * Setup fixture for this test case.
+	 * 
+	 * @throws IOException in case of I/O failure.
+	 */
+	@Before
+	public void setUp() throws IOException {
+		_directory = new File(System.getProperty("java.io.tmpdir"), "cumulus-table-" + System.nanoTime());
+		_cut = table(2);
+	}
+
+	/**
+	 * Shutdown procedure for this test case.
+	 * 
+	 * @throws IOException in case of I/O failure.
+	 */
+	@After
+	public void tearDown() throws IOException {
+		if (!_cut.isClosed()) {
+			_cut.close();
+		}
+
+		final File[] files = _directory.listFiles();
+		if (files != null) {
+			for (final File file : files) {
+				file.delete();
+			}
+		}
+		_directory.delete();
+	}
+
+	/**
+	 * Values must be found in memtable and on disk, with the newest version winning.
+	 * 
+	 * @throws IOException in case of I/O failure.
+	 */
+	@Test
+	public void getNewestVersion() throws IOException {
+		_cut.put(key(1), key(10));
+		_cut.flush();
+		_cut.put(key(1), key(11));
+		_cut.put(key(2), key(20));
+
+		assertArrayEquals(key(11), _cut.get(key(1)));
+		assertArrayEquals(key(20), _cut.get(key(2)));
+		assertNull(_cut.get(key(3)));
+
+		_cut.flush();
+		assertArrayEquals(key(11), _cut.get(key(1)));
+	}
+
+	/**
+	 * A deletion must hide older versions, even after a flush.
+	 * 
+	 * @throws IOException in case of I/O failure.
+	 */
+	@Test
+	public void delete() throws IOException {
+		_cut.put(key(1), key(10));
+		_cut.flush();
+		_cut.delete(key(1));
+
+		assertNull(_cut.get(key(1)));
+		assertFalse(_cut.scan(Keys.EMPTY, false).hasNext());
+
+		_cut.flush();
+		assertNull(_cut.get(key(1)));
+		assertFalse(_cut.scan(Keys.EMPTY, false).hasNext());
+	}
+
+	/**
+	 * Range scans must return entries in order, in both directions, across memtable and segments.
+	 * 
+	 * @throws IOException in case of I/O failure.
+	 */
+	@Test
+	public void scan() throws IOException {
+		for (int i = 0; i < 100; i += 2) {
+			_cut.put(key(i), key(i));
+		}
+		_cut.flush();
+		for (int i = 1; i < 100; i += 2) {
+			_cut.put(key(i), key(i));
+		}
+
+		assertEquals(range(10, 20), keys(_cut.scan(key(10), key(20), false)));
+
+		final List<Integer> reverse = range(10, 20);
+		Collections.reverse(reverse);
+		assertEquals(reverse, keys(_cut.scan(key(10), key(20), true)));
+		assertEquals(range(0, 100), keys(_cut.scan(Keys.EMPTY, false)));
+	}
+
+	/**
+	 * Once the segments limit is exceeded, segments must be merged into one, without losing data.
+	 * 
+	 * @throws IOException in case of I/O failure.
+	 */
+	@Test
+	public void compaction() throws IOException {
+		for (int i = 0; i < 3; i++) {
+			_cut.put(key(i), key(i));
+			_cut.flush();
+		}
+
+		assertEquals(1, _cut.segments());
+		assertEquals(range(0, 3), keys(_cut.scan(Keys.EMPTY, false)));
+	}
+
+	/**
+	 * Segments must be compacted in background: flushes only schedule the compaction.
+	 * 
+	 * @throws IOException in case of I/O failure.
+	 */
+	@Test
+	public void backgroundCompaction() throws IOException {
+		final List<Runnable> compactions = new ArrayList<Runnable>();
+		_cut.close();
+		_cut = new SortedTable(_directory, "table", 1024, 2, new Executor() {
+			@Override
+			public void execute(final Runnable task) {
+				compactions.add(task);
+			}
+		});
+
+		for (int i = 0; i < 3; i++) {
+			_cut.put(key(i), key(i));
+			_cut.flush();
+		}
+
+		assertEquals(3, _cut.segments());
+		assertEquals(1, compactions.size());
+
+		compactions.get(0).run();
+		assertEquals(1, _cut.segments());
+		assertEquals(range(0, 3), keys(_cut.scan(Keys.EMPTY, false)));
+	}
+
+	/**
+	 * Merging segments newer than the oldest one must keep deletions, otherwise deleted keys come back.
+	 * 
+	 * @throws IOException in case of I/O failure.
+	 */
+	@Test
+	public void compactionKeepsTombstones() throws IOException {
+		_cut.close();
+		_cut = table(100);
+
+		// The oldest segment is bigger than the others, so it's not in their tier.
+		_cut.put(key(1), new byte[2048]);
+		_cut.flush();
+		_cut.delete(key(1));
+		_cut.flush();
+		for (int i = 2; i < 2 + SortedTable.TIER_SIZE - 1; i++) {
+			_cut.put(key(i), key(i));
+			_cut.flush();
+		}
+
+		assertEquals(2, _cut.segments());
+		assertNull(_cut.get(key(1)));
+		assertEquals(range(2, 1 + SortedTable.TIER_SIZE), keys(_cut.scan(Keys.EMPTY, false)));
+
+		// Simulates a crash: the table is reopened without being closed
+		final SortedTable reopened = table(100);
+		try {
+			assertNull(reopened.get(key(1)));
+			assertEquals(2, reopened.segments());
+		} finally {
+			reopened.close();
+		}
+	}
+
+	/**
+	 * Segments that aren't in the manifest (e.g. the inputs of a compaction interrupted before deleting them)
+	 * must be ignored and deleted on open.
+	 * 
+	 * @throws IOException in case of I/O failure.
+	 */
+	@Test
+	public void compactionInterruptedBeforeDeletingInputs() throws IOException {
+		_cut.close();
+		_cut = table(100);
+
+		_cut.put(key(1), key(10));
+		_cut.put(key(2), key(20));
+		_cut.flush();
+		final File input = _directory.listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(final File directory, final String name) {
+				return name.endsWith(Segment.EXTENSION);
+			}
+		})[0];
+		final File copy = new File(_directory, "copy");
+		Files.copy(input, copy);
+
+		_cut.delete(key(1));
+		_cut.flush();
+		_cut.compact();
+		assertEquals(1, _cut.segments());
+		assertNull(_cut.get(key(1)));
+
+		assertTrue(copy.renameTo(input));
+
+		// Simulates a crash: the table is reopened without being closed
+		final SortedTable reopened = table(100);
+		try {
+			assertNull(reopened.get(key(1)));
+			assertArrayEquals(key(20), reopened.get(key(2)));
+			assertEquals(1, reopened.segments());
+			assertFalse(input.exists());
+		} finally {
+			reopened.close();
+		}
+	}
+
+	/**
+	 * Mutations that haven't been flushed must be recovered from the log.
+	 * 
+	 * @throws IOException in case of I/O failure.
+	 */
+	@Test
+	public void recovery() throws IOException {
+		_cut.put(key(1), key(10));
+		_cut.flush();
+		_cut.put(key(2), key(20));
+		_cut.delete(key(1));
+		_cut.commit(false);
+
+		// Simulates a crash: the table is reopened without being closed
+		final SortedTable reopened = table(2);
+		try {
+			assertNull(reopened.get(key(1)));
+			assertArrayEquals(key(20), reopened.get(key(2)));
+		} finally {
+			reopened.close();
+		}
+	}
+
+	/**
+	 * A table must hold its data after being closed and reopened.
+	 * 
+	 * @throws IOException in case of I/O failure.
+	 */
+	@Test
+	public void reopen() throws IOException {
+		_cut.put(key(1), key(10));
+		_cut.close();
+		assertTrue(_cut.isClosed());
+
+		_cut = table(2);
+		assertArrayEquals(key(10), _cut.get(key(1)));
+	}
+
+	/**
+	 * Opens the test table, with compactions executed by the thread that flushes the memtable.
+	 * 
+	 * @param maxSegments the number of segments that triggers a compaction.
+	 * @return the test table.
+	 * @throws IOException in case of I/O failure.
+	 */
+	private SortedTable table(final int maxSegments) throws IOException {
+		return new SortedTable(_directory, "table", 1024, maxSegments, MoreExecutors.sameThreadExecutor());
+	}
+
+	/**
+	 * Builds a key from a given integer.
+	 * 
+	 * @param value the integer value.
+	 * @return the key.
+	 */
+	private byte[] key(final int value) {
+		return Keys.toBytes(value);
+	}
+
+	/**
+	 * A prefix scan of composite keys must return the component that follows the prefix in {@link Keys#COMPONENT_ORDER}.
+	 * 
+	 * @throws IOException in case of I/O failure.
+	 */
+	@Test
+	public void componentOrder() throws IOException {
+		final byte[] prefix = {7};
+		final Random random = new Random(42);
+		for (int i = 0; i < 500; i++) {
+			final byte[] component = new byte[1 + random.nextInt(200)];
+			random.nextBytes(component);
+			_cut.put(Keys.compose(prefix, component), Keys.EMPTY);
+			if (i % 100 == 0) {
+				_cut.flush();
+			}
+		}
+		_cut.put(Keys.compose(new byte[] {8}, new byte[] {0}), Keys.EMPTY);
+
+		final Iterator<Entry<byte[], byte[]>> entries = _cut.scan(Keys.compose(prefix), false);
+		byte[] previous = null;
+		int count = 0;
+		while (entries.hasNext()) {
+			final byte[] component = Keys.decompose(entries.next().getKey(), 2)[1];
+			assertTrue(previous == null || Keys.COMPONENT_ORDER.compare(previous, component) < 0);
+			previous = component;
+			count++;
+		}
+		assertEquals(500, count);
+	}
+
+	/**
+	 * Collects the keys of a given set of entries.
+	 * 
+	 * @param entries the entries.
+	 * @return the keys, as integers.
+	 */
+	private List<Integer> keys(final Iterator<Entry<byte[], byte[]>> entries) {
+		final List<Integer> keys = new ArrayList<Integer>();
+		while (entries.hasNext()) {
+			keys.add((int) Keys.toLong(entries.next().getKey()));
+		}
+		return keys;
+	}
+
+	/**
+	 * Returns the integers in a given range.
+	 * 
+	 * @param from the lower bound (inclusive).
+	 * @param to the upper bound (exclusive).
+	 * @return the integers in a given range.
+	 */
+	private List<Integer> range(final int from, final int to) {
+		final List<Integer> result = new ArrayList<Integer>();
+		for (int i = from; i < to; i++) {
+			result.add(i);
+		}
+		return result;
+	}
+}
@@ -8,6 +8,7 @@ import org.apache.commons.cli.Options;
 import org.openrdf.rio.RDFFormat;
 
 import edu.kit.aifb.cumulus.cli.log.MessageCatalog;
+import edu.kit.aifb.cumulus.store.BulkLoadReport;
 import edu.kit.aifb.cumulus.store.Store;
 
 /**
@@ -32,12 +33,28 @@ public class Load extends Command {
 		final Option batchO = new Option("b", "Batch size - number of triples (default: 1000)");
 		batchO.setArgs(1);
 
+		final Option parsersO = new Option("p", "Number of parser threads, N-Triples and N-Quads only (default: 1)");
+		parsersO.setArgs(1);
+
+		final Option encodersO = new Option("e", "Number of dictionary encoding threads (default: number of processors + 2)");
+		encodersO.setArgs(1);
+
+		final Option writersO = new Option("w", "Number of index writer threads (default: number of processors + 2)");
+		writersO.setArgs(1);
+
+		final Option queueO = new Option("q", "Capacity, in batches, of the queues between load stages (default: 16)");
+		queueO.setArgs(1);
+
 		final Option helpO = new Option("h", "Print help");
 
 		final Options options = new Options();
 		options.addOption(inputO);
 		options.addOption(storageO);
 		options.addOption(batchO);
+		options.addOption(parsersO);
+		options.addOption(encodersO);
+		options.addOption(writersO);
+		options.addOption(queueO);
 		options.addOption(helpO);
 		
 		return options;
@@ -61,26 +78,47 @@ public class Load extends Command {
 			return;
 		}
 
-		int batchSize = 1000;
-		if (commandLine.hasOption("b")) {
-			try {
-				batchSize = Integer.parseInt(commandLine.getOptionValue("b"));	
-			} catch (final Exception exception) {
-				// Ignore: just use the default value
-			}
-			
-		}
-
-		store.setDefaultBatchLimit(batchSize);
+		store.setDefaultBatchLimit(intOption(commandLine, "b", 1000));
+		store.setBulkLoadParsers(intOption(commandLine, "p", 1));
+		store.setBulkLoadParallelism(intOption(commandLine, "e", 0), intOption(commandLine, "w", 0));
+		store.setBulkLoadQueueSize(intOption(commandLine, "q", 16));
 
 		long start = System.nanoTime();
 		try {
-			store.bulkLoad(inputFile, rdfFormat);
+			final BulkLoadReport report = store.bulkLoad(inputFile, rdfFormat);
 
 			double duration = (System.nanoTime() - start) / 1e9;
 			_log.info(MessageCatalog._00018_LOAD_REPORT, duration);
+			for (final BulkLoadReport.StageStats stage : report.getStages()) {
+				_log.info(
+						MessageCatalog._00029_LOAD_STAGE_REPORT, 
+						stage.getName(), 
+						stage.getThreads(), 
+						stage.getProcessed(), 
+						stage.getElapsed(), 
+						stage.getThroughput());
+			}
 		} catch (final Exception exception) {
 			_log.error(MessageCatalog._00026_NWS_SYSTEM_INTERNAL_FAILURE, exception);
 		} 
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Returns the integer value of a given option.
+	 * 
+	 * @param commandLine the command line.
+	 * @param name the option name.
+	 * @param defaultValue the value that will be returned if the option is missing or invalid.
+	 * @return the integer value of a given option.
+	 */
+	private int intOption(final CommandLine commandLine, final String name, final int defaultValue) {
+		if (commandLine.hasOption(name)) {
+			try {
+				return Integer.parseInt(commandLine.getOptionValue(name));	
+			} catch (final Exception exception) {
+				// Ignore: just use the default value
+			}
+		}
+		return defaultValue;
+	}
+}
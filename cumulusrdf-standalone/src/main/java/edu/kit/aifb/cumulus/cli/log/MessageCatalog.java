@@ -49,4 +49,5 @@ public interface MessageCatalog {
 	String _00026_NWS_SYSTEM_INTERNAL_FAILURE = PREFIX + "-00026> : Not-well specified system internal failure has been detected. See below for further details.";
 	String _00027_EMPTY_DUMP_REPORT = PREFIX + "-00027> : Dump completed. Howewer, the store is empty.";
 	String _00028_CL_PARSER_FAILURE = PREFIX + "-00028> : %s";
+	String _00029_LOAD_STAGE_REPORT = PREFIX + "-00029> : Stage '%s' (%s threads): %s triples in %s msecs (%s triples/s).";
 }
\ No newline at end of file
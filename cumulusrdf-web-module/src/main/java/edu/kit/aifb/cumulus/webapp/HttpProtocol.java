@@ -118,7 +118,8 @@ public class HttpProtocol {
 				QUERY = "query",
 				UPDATE = "update",
 				BASE_URI = "base-uri",
-				CONTENT_TYPE = "content-type";
+				CONTENT_TYPE = "content-type",
+				BINDING_PREFIX = "$";
 	}
 
 	private static final String DEFAULT_URL_ENCODING = "UTF-8";
@@ -23,6 +23,7 @@ import edu.kit.aifb.cumulus.framework.Environment.ConfigParams;
 import edu.kit.aifb.cumulus.log.Log;
 import edu.kit.aifb.cumulus.log.MessageCatalog;
 import edu.kit.aifb.cumulus.log.MessageFactory;
+import edu.kit.aifb.cumulus.store.BulkLoadReport;
 import edu.kit.aifb.cumulus.store.Store;
 
 /**
@@ -101,11 +102,12 @@ public class LoadServlet extends AbstractCumulusServlet {
 				return;
 			}
 
-			store.bulkLoad(tmp_file, rdf_format);
+			final BulkLoadReport report = store.bulkLoad(tmp_file, rdf_format);
 			
 			tmp_file.delete();
 
 			req.setAttribute("loadOk", true);
+			req.setAttribute("loadReport", report);
 			req.setAttribute("page", "Load Data");
 			forwardTo(req, resp, "addOrLoad.vm");
 
@@ -0,0 +1,328 @@
+package edu.kit.aifb.cumulus.webapp;
+
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import info.aduna.xml.XMLWriter;
+
+import org.openrdf.model.Statement;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.GraphQueryResult;
+import org.openrdf.query.QueryEvaluationException;
+import org.openrdf.query.QueryResult;
+import org.openrdf.query.QueryResultHandlerException;
+import org.openrdf.query.QueryResults;
+import org.openrdf.query.TupleQueryResult;
+import org.openrdf.query.TupleQueryResultHandler;
+import org.openrdf.query.TupleQueryResultHandlerException;
+import org.openrdf.query.resultio.QueryResultIO;
+import org.openrdf.query.resultio.TupleQueryResultFormat;
+import org.openrdf.query.resultio.TupleQueryResultWriter;
+import org.openrdf.query.resultio.sparqlxml.SPARQLResultsXMLWriter;
+import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.RDFWriter;
+import org.openrdf.rio.Rio;
+import org.openrdf.rio.helpers.RDFHandlerWrapper;
+import org.slf4j.LoggerFactory;
+
+import edu.kit.aifb.cumulus.log.Log;
+import edu.kit.aifb.cumulus.log.MessageCatalog;
+
+/**
+ * Streams query results to a client.
+ * The output is flushed right after the first result and then every N results or M milliseconds, whichever comes first.
+ * The M milliseconds flush is also scheduled, so it happens even when the query doesn't produce any new result.
+ * Results writers must be built with {@link #createWriter(TupleQueryResultFormat)} or {@link #createWriter(RDFFormat)}:
+ * they write on a buffer owned (and flushed) by this streamer.
+ * Since the length of a flushed response is not known in advance, the servlet container sends it with chunked transfer encoding.
+ *
+ * When the client disconnects, the results are closed: this cancels the query evaluation,
+ * as triple pattern scans are lazy and won't fetch any further page.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+public class ResultStreamer {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final ScheduledExecutorService FLUSHER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(final Runnable runnable) {
+			final Thread thread = new Thread(runnable, "cumulusrdf-results-flusher");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	private final Log _log = new Log(LoggerFactory.getLogger(getClass()));
+
+	private final OutputStream _out;
+	private final Writer _writer;
+	private final int _flushRows;
+	private final long _flushInterval;
+
+	private long _count;
+	private int _unflushedCount;
+	private volatile long _lastFlush;
+	private volatile IOException _failure;
+
+	/**
+	 * Builds a new streamer.
+	 *
+	 * @param out the output stream, where results writers write to.
+	 * @param flushRows the output is flushed after this number of results.
+	 * @param flushInterval the output is flushed if this number of milliseconds elapsed since the last flush.
+	 */
+	public ResultStreamer(final OutputStream out, final int flushRows, final long flushInterval) {
+		// The output is shared with the scheduled flush.
+		_out = new FilterOutputStream(out) {
+			@Override
+			public synchronized void write(final int b) throws IOException {
+				out.write(b);
+			}
+
+			@Override
+			public synchronized void write(final byte[] b, final int off, final int len) throws IOException {
+				out.write(b, off, len);
+			}
+
+			@Override
+			public synchronized void flush() throws IOException {
+				out.flush();
+			}
+		};
+		_writer = new BufferedWriter(new OutputStreamWriter(_out, UTF8));
+		_flushRows = flushRows;
+		_flushInterval = flushInterval;
+	}
+
+	/**
+	 * Creates a tuple results writer, writing on the output of this streamer.
+	 * Text formats without a character writer support (e.g. JSON) buffer their output internally,
+	 * so they are flushed only when that buffer is full.
+	 *
+	 * @param format the results format.
+	 * @return a tuple results writer, writing on the output of this streamer.
+	 */
+	public TupleQueryResultWriter createWriter(final TupleQueryResultFormat format) {
+		if (TupleQueryResultFormat.SPARQL.equals(format)) {
+			return new SPARQLResultsXMLWriter(new XMLWriter(_writer));
+		}
+		return QueryResultIO.createWriter(format, _out);
+	}
+
+	/**
+	 * Creates an RDF writer, writing on the output of this streamer.
+	 *
+	 * @param format the RDF format.
+	 * @return an RDF writer, writing on the output of this streamer.
+	 */
+	public RDFWriter createWriter(final RDFFormat format) {
+		if (format.hasCharset()) {
+			return Rio.createWriter(format, _writer);
+		}
+		return Rio.createWriter(format, _out);
+	}
+
+	/**
+	 * Streams the given tuple results.
+	 *
+	 * @param result the tuple results.
+	 * @param writer the results writer, writing on the output stream of this streamer.
+	 * @return true if all results have been sent, false if the client disconnected.
+	 * @throws QueryEvaluationException in case of query evaluation failure.
+	 * @throws TupleQueryResultHandlerException in case of results serialization failure.
+	 */
+	public boolean stream(final TupleQueryResult result, final TupleQueryResultHandler writer) throws QueryEvaluationException, TupleQueryResultHandlerException {
+		final ScheduledFuture<?> scheduledFlush = scheduleFlush();
+		try {
+			QueryResults.report(result, new TupleQueryResultHandler() {
+
+				@Override
+				public void handleBoolean(final boolean value) throws QueryResultHandlerException {
+					writer.handleBoolean(value);
+				}
+
+				@Override
+				public void handleLinks(final List<String> links) throws QueryResultHandlerException {
+					writer.handleLinks(links);
+				}
+
+				@Override
+				public void startQueryResult(final List<String> bindingNames) throws TupleQueryResultHandlerException {
+					writer.startQueryResult(bindingNames);
+				}
+
+				@Override
+				public void handleSolution(final BindingSet bindingSet) throws TupleQueryResultHandlerException {
+					writer.handleSolution(bindingSet);
+					try {
+						sent();
+					} catch (final IOException exception) {
+						throw new TupleQueryResultHandlerException(exception);
+					}
+				}
+
+				@Override
+				public void endQueryResult() throws TupleQueryResultHandlerException {
+					writer.endQueryResult();
+				}
+			});
+			flush();
+			return true;
+		} catch (final TupleQueryResultHandlerException exception) {
+			if (exception.getCause() instanceof IOException) {
+				return disconnected(result);
+			}
+			throw exception;
+		} catch (final IOException exception) {
+			return disconnected(result);
+		} finally {
+			cancel(scheduledFlush);
+		}
+	}
+
+	/**
+	 * Streams the given graph results.
+	 *
+	 * @param result the graph results.
+	 * @param writer the RDF writer, writing on the output stream of this streamer.
+	 * @return true if all results have been sent, false if the client disconnected.
+	 * @throws QueryEvaluationException in case of query evaluation failure.
+	 * @throws RDFHandlerException in case of results serialization failure.
+	 */
+	public boolean stream(final GraphQueryResult result, final RDFHandler writer) throws QueryEvaluationException, RDFHandlerException {
+		final ScheduledFuture<?> scheduledFlush = scheduleFlush();
+		try {
+			QueryResults.report(result, new RDFHandlerWrapper(writer) {
+				@Override
+				public void handleStatement(final Statement statement) throws RDFHandlerException {
+					super.handleStatement(statement);
+					try {
+						sent();
+					} catch (final IOException exception) {
+						throw new RDFHandlerException(exception);
+					}
+				}
+			});
+			flush();
+			return true;
+		} catch (final RDFHandlerException exception) {
+			if (exception.getCause() instanceof IOException) {
+				return disconnected(result);
+			}
+			throw exception;
+		} catch (final IOException exception) {
+			return disconnected(result);
+		} finally {
+			cancel(scheduledFlush);
+		}
+	}
+
+	/**
+	 * Returns the number of results that have been sent.
+	 *
+	 * @return the number of results that have been sent.
+	 */
+	public long getCount() {
+		return _count;
+	}
+
+	/**
+	 * Flushes the output, if needed, after a result has been sent.
+	 *
+	 * @throws IOException in case the output cannot be flushed (i.e. the client disconnected).
+	 */
+	void sent() throws IOException {
+		_count++;
+		_unflushedCount++;
+
+		if (_failure != null) {
+			throw _failure;
+		}
+
+		if (_count == 1 || _unflushedCount >= _flushRows || System.currentTimeMillis() - _lastFlush >= _flushInterval) {
+			flush();
+			_unflushedCount = 0;
+		}
+	}
+
+	/**
+	 * Flushes the output.
+	 *
+	 * @throws IOException in case the output cannot be flushed (i.e. the client disconnected).
+	 */
+	void flush() throws IOException {
+		_writer.flush();
+		_lastFlush = System.currentTimeMillis();
+	}
+
+	/**
+	 * Schedules a flush every M milliseconds, which happens even if no result is sent in the meantime.
+	 *
+	 * @return the scheduled flush, null if the flush interval is not positive.
+	 */
+	private ScheduledFuture<?> scheduleFlush() {
+		_lastFlush = System.currentTimeMillis();
+		if (_flushInterval <= 0) {
+			return null;
+		}
+
+		return FLUSHER.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				if (_failure != null || System.currentTimeMillis() - _lastFlush < _flushInterval) {
+					return;
+				}
+
+				try {
+					flush();
+				} catch (final IOException exception) {
+					// The next result will report the failure.
+					_failure = exception;
+				}
+			}
+		}, _flushInterval, _flushInterval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Cancels the given scheduled flush.
+	 *
+	 * @param scheduledFlush the scheduled flush, can be null.
+	 */
+	private void cancel(final ScheduledFuture<?> scheduledFlush) {
+		if (scheduledFlush != null) {
+			scheduledFlush.cancel(false);
+		}
+	}
+
+	/**
+	 * Handles a client disconnection (i.e. an I/O failure while sending results), closing the given results.
+	 *
+	 * @param result the query results.
+	 * @return false, as not all results have been sent.
+	 */
+	private boolean disconnected(final QueryResult<?> result) {
+		_log.debug(MessageCatalog._00128_CLIENT_DISCONNECTED, _count);
+		try {
+			result.close();
+		} catch (final QueryEvaluationException ignore) {
+			// Nothing to be done here...
+		}
+		return false;
+	}
+}
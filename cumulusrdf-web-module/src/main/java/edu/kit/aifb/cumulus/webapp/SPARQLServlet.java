@@ -6,6 +6,7 @@ import static edu.kit.aifb.cumulus.webapp.HttpProtocol.*;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
+import java.util.Enumeration;
 import java.util.Iterator;
 import java.util.Locale;
 
@@ -14,6 +15,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.openrdf.model.Statement;
+import org.openrdf.model.ValueFactory;
 import org.openrdf.query.BindingSet;
 import org.openrdf.query.BooleanQuery;
 import org.openrdf.query.GraphQuery;
@@ -27,18 +29,31 @@ import org.openrdf.query.QueryResultHandlerException;
 import org.openrdf.query.TupleQuery;
 import org.openrdf.query.TupleQueryResult;
 import org.openrdf.query.UpdateExecutionException;
+import org.openrdf.query.parser.ParsedBooleanQuery;
+import org.openrdf.query.parser.ParsedGraphQuery;
+import org.openrdf.query.parser.ParsedQuery;
+import org.openrdf.query.parser.ParsedTupleQuery;
+import org.openrdf.query.parser.QueryParserUtil;
 import org.openrdf.query.resultio.BooleanQueryResultFormat;
 import org.openrdf.query.resultio.QueryResultIO;
 import org.openrdf.query.resultio.TupleQueryResultFormat;
 import org.openrdf.repository.RepositoryConnection;
 import org.openrdf.repository.RepositoryException;
+import org.openrdf.repository.sail.SailBooleanQuery;
+import org.openrdf.repository.sail.SailGraphQuery;
 import org.openrdf.repository.sail.SailRepository;
+import org.openrdf.repository.sail.SailRepositoryConnection;
+import org.openrdf.repository.sail.SailTupleQuery;
 import org.openrdf.rio.RDFFormat;
 import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.ntriples.NTriplesUtil;
 
 import edu.kit.aifb.cumulus.framework.Environment.ConfigParams;
+import edu.kit.aifb.cumulus.framework.mx.ManagementRegistrar;
 import edu.kit.aifb.cumulus.log.MessageCatalog;
 import edu.kit.aifb.cumulus.store.CumulusStoreException;
+import edu.kit.aifb.cumulus.store.Store;
+import edu.kit.aifb.cumulus.store.sesame.QueryPlanCache;
 import edu.kit.aifb.cumulus.webapp.HttpProtocol.MimeTypes;
 import edu.kit.aifb.cumulus.webapp.HttpProtocol.Parameters;
 
@@ -51,6 +66,11 @@ import edu.kit.aifb.cumulus.webapp.HttpProtocol.Parameters;
  * @param query - HTTP parameter 'query', which holds a SPARQL query.
  * @param update - HTTP parameter 'update', which holds a SPARQL update.
  * @param base-uri - HTTP parameter 'base-uri', which is specifies the base URI used for SPARQL updates. 
+ * @param $name - HTTP parameters '$name', which bind the query variable 'name' to a given value (in N-Triples syntax).
+ * 
+ * Tuple and graph results (other than HTML) are streamed: the response is flushed after the first result and then
+ * every 'streaming-flush-rows' results or 'streaming-flush-interval' milliseconds (servlet init parameters).
+ * A 'streaming-flush-rows' value of 0 disables streaming.
  * 
  * @author Andreas Harth
  * @author Andreas Wagner
@@ -71,6 +91,51 @@ public class SPARQLServlet extends AbstractCumulusServlet {
 		}
 	};
 
+	static final String FLUSH_ROWS_PARAMETER = "streaming-flush-rows";
+	static final String FLUSH_INTERVAL_PARAMETER = "streaming-flush-interval";
+	static final int DEFAULT_FLUSH_ROWS = 100;
+	static final long DEFAULT_FLUSH_INTERVAL = 200;
+
+	private QueryPlanCache<ParsedQuery> _parsedQueries;
+
+	private int _flushRows = DEFAULT_FLUSH_ROWS;
+	private long _flushInterval = DEFAULT_FLUSH_INTERVAL;
+
+	@Override
+	public void init() throws ServletException {
+		final String flushRows = getInitParameter(FLUSH_ROWS_PARAMETER);
+		final String flushInterval = getInitParameter(FLUSH_INTERVAL_PARAMETER);
+		try {
+			if (!isNullOrEmptyString(flushRows)) {
+				_flushRows = Integer.parseInt(flushRows.trim());
+			}
+
+			if (!isNullOrEmptyString(flushInterval)) {
+				_flushInterval = Long.parseLong(flushInterval.trim());
+			}
+		} catch (final NumberFormatException exception) {
+			throw new ServletException(exception);
+		}
+
+		final Store store = (Store) getServletContext().getAttribute(ConfigParams.STORE);
+		if (store != null && store.getQueryPlanCacheSize() > 0) {
+			_parsedQueries = new QueryPlanCache<ParsedQuery>(getServletName(), store.getQueryPlanCacheSize());
+			try {
+				ManagementRegistrar.registerQueryPlanCache(_parsedQueries);
+			} catch (final Exception exception) {
+				_log.error(MessageCatalog._00109_UNABLE_TO_REGISTER_MBEAN, exception, _parsedQueries.getId());
+			}
+		}
+	}
+
+	@Override
+	public void destroy() {
+		if (_parsedQueries != null) {
+			ManagementRegistrar.unregisterQueryPlanCache(_parsedQueries);
+		}
+		super.destroy();
+	}
+
 	@Override
 	public void service(final HttpServletRequest request, final HttpServletResponse response) throws ServletException, IOException {
 
@@ -111,7 +176,8 @@ public class SPARQLServlet extends AbstractCumulusServlet {
 
 			if (query != null) {
 
-				final Query parsedQuery = connection.prepareQuery(QueryLanguage.SPARQL, query, parseBaseURI(request, null));
+				final Query parsedQuery = prepareQuery(connection, query, parseBaseURI(request, null));
+				setBindings(parsedQuery, request, connection.getValueFactory());
 
 				if (accept.equals(MimeTypes.TEXT_HTML)) {
 
@@ -233,10 +299,15 @@ public class SPARQLServlet extends AbstractCumulusServlet {
 
 						resultset = ((TupleQuery) parsedQuery).evaluate();
 
-						QueryResultIO.write(
-								(TupleQueryResult) resultset,
-								format,
-								response.getOutputStream());
+						if (_flushRows > 0) {
+							final ResultStreamer streamer = new ResultStreamer(response.getOutputStream(), _flushRows, _flushInterval);
+							streamer.stream((TupleQueryResult) resultset, streamer.createWriter(format));
+						} else {
+							QueryResultIO.write(
+									(TupleQueryResult) resultset,
+									format,
+									response.getOutputStream());
+						}
 
 					} else if (parsedQuery instanceof GraphQuery) {
 
@@ -245,10 +316,15 @@ public class SPARQLServlet extends AbstractCumulusServlet {
 
 						resultset = ((GraphQuery) parsedQuery).evaluate();
 
-						QueryResultIO.write(
-								(GraphQueryResult) resultset,
-								format,
-								response.getOutputStream());
+						if (_flushRows > 0) {
+							final ResultStreamer streamer = new ResultStreamer(response.getOutputStream(), _flushRows, _flushInterval);
+							streamer.stream((GraphQueryResult) resultset, streamer.createWriter(format));
+						} else {
+							QueryResultIO.write(
+									(GraphQueryResult) resultset,
+									format,
+									response.getOutputStream());
+						}
 					}
 
 					response.setStatus(HttpServletResponse.SC_OK);
@@ -306,4 +382,64 @@ public class SPARQLServlet extends AbstractCumulusServlet {
 			// CHECKSTYLE:ON
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Prepares a given query.
+	 * If the parsed queries cache is enabled, the same query (i.e. same query string and base URI) is parsed only once.
+	 * 
+	 * @param connection the repository connection.
+	 * @param query the SPARQL query.
+	 * @param baseURI the base URI of the query.
+	 * @return the prepared query.
+	 * @throws RepositoryException in case of repository access failure.
+	 * @throws MalformedQueryException in case the given query is not valid.
+	 */
+	Query prepareQuery(final RepositoryConnection connection, final String query, final String baseURI) throws RepositoryException, MalformedQueryException {
+		if (_parsedQueries == null || !(connection instanceof SailRepositoryConnection)) {
+			return connection.prepareQuery(QueryLanguage.SPARQL, query, baseURI);
+		}
+
+		final String key = baseURI + "\n" + query;
+		ParsedQuery parsedQuery = _parsedQueries.get(key);
+		if (parsedQuery == null) {
+			parsedQuery = QueryParserUtil.parseQuery(QueryLanguage.SPARQL, query, baseURI);
+			_parsedQueries.put(key, parsedQuery);
+		}
+
+		// Sail queries have protected constructors, hence the anonymous subclasses.
+		final SailRepositoryConnection sailConnection = (SailRepositoryConnection) connection;
+		if (parsedQuery instanceof ParsedTupleQuery) {
+			return new SailTupleQuery((ParsedTupleQuery) parsedQuery, sailConnection) { };
+		} else if (parsedQuery instanceof ParsedGraphQuery) {
+			return new SailGraphQuery((ParsedGraphQuery) parsedQuery, sailConnection) { };
+		} else if (parsedQuery instanceof ParsedBooleanQuery) {
+			return new SailBooleanQuery((ParsedBooleanQuery) parsedQuery, sailConnection) { };
+		}
+
+		throw new MalformedQueryException("Unsupported query type: " + parsedQuery.getClass().getName());
+	}
+
+	/**
+	 * Binds the query variables with the values found in the '$name' request parameters.
+	 * Bound values don't change the query plan, so all the executions of a query share the same (cached) plan.
+	 * 
+	 * @param query the query.
+	 * @param request the HTTP request.
+	 * @param valueFactory the value factory.
+	 * @throws MalformedQueryException in case a bound value is not a valid N-Triples value.
+	 */
+	@SuppressWarnings("unchecked")
+	void setBindings(final Query query, final HttpServletRequest request, final ValueFactory valueFactory) throws MalformedQueryException {
+		for (final Enumeration<String> names = request.getParameterNames(); names.hasMoreElements();) {
+			final String name = names.nextElement();
+			if (name.startsWith(Parameters.BINDING_PREFIX) && name.length() > Parameters.BINDING_PREFIX.length()) {
+				final String value = getParameterValue(request, name);
+				try {
+					query.setBinding(name.substring(Parameters.BINDING_PREFIX.length()), NTriplesUtil.parseValue(value, valueFactory));
+				} catch (final IllegalArgumentException exception) {
+					throw new MalformedQueryException("Invalid value for binding " + name + ": " + value, exception);
+				}
+			}
+		}
+	}
+}
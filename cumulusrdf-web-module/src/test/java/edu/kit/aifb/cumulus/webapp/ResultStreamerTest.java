@@ -0,0 +1,293 @@
+package edu.kit.aifb.cumulus.webapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import info.aduna.iteration.CloseableIteratorIteration;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openrdf.model.Statement;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.QueryEvaluationException;
+import org.openrdf.query.TupleQueryResultHandlerBase;
+import org.openrdf.query.impl.GraphQueryResultImpl;
+import org.openrdf.query.impl.MapBindingSet;
+import org.openrdf.query.impl.TupleQueryResultImpl;
+import org.openrdf.query.resultio.TupleQueryResultFormat;
+import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.helpers.RDFHandlerBase;
+
+/**
+ * Test case for {@link ResultStreamer}.
+ *
+ * @author agent
+ * @since 1.1.0
+ */
+public class ResultStreamerTest {
+
+	private static final ValueFactory VALUE_FACTORY = ValueFactoryImpl.getInstance();
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private int _flushCount;
+	private boolean _disconnected;
+	private boolean _closed;
+
+	private final ByteArrayOutputStream _bytes = new ByteArrayOutputStream();
+	private String _sentBeforeSecondResult;
+
+	private final OutputStream _out = new OutputStream() {
+		@Override
+		public void write(final int b) throws IOException {
+			if (_disconnected) {
+				throw new IOException("Broken pipe");
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			write(0);
+			_flushCount++;
+		}
+	};
+
+	/**
+	 * Setup fixture for this test.
+	 */
+	@Before
+	public void setUp() {
+		_flushCount = 0;
+		_disconnected = false;
+		_closed = false;
+		_bytes.reset();
+		_sentBeforeSecondResult = null;
+	}
+
+	/**
+	 * The first solution must reach the output stream before the second one is requested, with a real SPARQL/XML writer.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void streamSPARQLResultsXML() throws Exception {
+		final ResultStreamer cut = new ResultStreamer(_bytes, 10, Long.MAX_VALUE);
+
+		assertTrue(cut.stream(tuples(3), cut.createWriter(TupleQueryResultFormat.SPARQL)));
+
+		assertTrue(_sentBeforeSecondResult.contains("http://example.org/s0"));
+		assertFalse(_sentBeforeSecondResult.contains("http://example.org/s1"));
+		assertTrue(sent().contains("http://example.org/s2"));
+	}
+
+	/**
+	 * The first statement must reach the output stream before the second one is requested, with a real N-Triples writer.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void streamNTriples() throws Exception {
+		final ResultStreamer cut = new ResultStreamer(_bytes, 10, Long.MAX_VALUE);
+
+		assertTrue(cut.stream(statements(3), cut.createWriter(RDFFormat.NTRIPLES)));
+
+		assertTrue(_sentBeforeSecondResult.contains("<http://example.org/s0>"));
+		assertFalse(_sentBeforeSecondResult.contains("<http://example.org/s1>"));
+		assertTrue(sent().contains("<http://example.org/s2>"));
+	}
+
+	/**
+	 * The output must be flushed every M milliseconds, even if no result is produced in the meantime.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void scheduledFlush() throws Exception {
+		final ResultStreamer cut = new ResultStreamer(_bytes, 10, 10);
+		final boolean[] flushed = new boolean[1];
+
+		assertTrue(cut.stream(
+				new TupleQueryResultImpl(Arrays.asList("s"), new CloseableIteratorIteration<BindingSet, QueryEvaluationException>(
+						new Iterator<BindingSet>() {
+							@Override
+							public boolean hasNext() {
+								// A slow query: the header must be sent while waiting for the first result.
+								final long deadline = System.currentTimeMillis() + 5000;
+								while (!flushed[0] && System.currentTimeMillis() < deadline) {
+									flushed[0] = sent().contains("<sparql");
+									Thread.yield();
+								}
+								return false;
+							}
+
+							@Override
+							public BindingSet next() {
+								throw new UnsupportedOperationException();
+							}
+
+							@Override
+							public void remove() {
+								throw new UnsupportedOperationException();
+							}
+						})),
+				cut.createWriter(TupleQueryResultFormat.SPARQL)));
+
+		assertTrue(flushed[0]);
+		assertEquals(0, cut.getCount());
+	}
+
+	/**
+	 * The output must be flushed after the first result, and then every N results.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void flushEveryNResults() throws Exception {
+		final ResultStreamer cut = new ResultStreamer(_out, 3, Long.MAX_VALUE);
+
+		assertTrue(cut.stream(tuples(7), new TupleQueryResultHandlerBase()));
+		assertEquals(7, cut.getCount());
+
+		// After 1st, 4th and 7th result, then at the end.
+		assertEquals(4, _flushCount);
+	}
+
+	/**
+	 * The output must be flushed if M milliseconds elapsed since the last flush.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void flushEveryMMilliseconds() throws Exception {
+		final ResultStreamer cut = new ResultStreamer(_out, Integer.MAX_VALUE, 0);
+
+		assertTrue(cut.stream(statements(3), new RDFHandlerBase()));
+		assertEquals(3, cut.getCount());
+		assertEquals(4, _flushCount);
+	}
+
+	/**
+	 * When the client disconnects, results must be closed and no further result must be sent.
+	 *
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void cancelOnDisconnection() throws Exception {
+		_disconnected = true;
+		final ResultStreamer cut = new ResultStreamer(_out, 10, Long.MAX_VALUE);
+
+		assertFalse(cut.stream(tuples(5), new TupleQueryResultHandlerBase()));
+		assertEquals(1, cut.getCount());
+		assertTrue(_closed);
+	}
+
+	/**
+	 * Serialization failures (other than I/O failures) must be propagated.
+	 *
+	 * @throws Exception expected, the serialization failure.
+	 */
+	@Test(expected = RDFHandlerException.class)
+	public void serializationFailure() throws Exception {
+		new ResultStreamer(_out, 10, Long.MAX_VALUE).stream(statements(1), new RDFHandlerBase() {
+			@Override
+			public void handleStatement(final Statement statement) throws RDFHandlerException {
+				throw new RDFHandlerException("Unable to serialize " + statement);
+			}
+		});
+	}
+
+	/**
+	 * Creates tuple results.
+	 *
+	 * @param count how many results.
+	 * @return the tuple results.
+	 */
+	private TupleQueryResultImpl tuples(final int count) {
+		final List<BindingSet> results = new ArrayList<BindingSet>();
+		for (int i = 0; i < count; i++) {
+			final MapBindingSet result = new MapBindingSet();
+			result.addBinding("s", VALUE_FACTORY.createURI("http://example.org/s" + i));
+			results.add(result);
+		}
+
+		return new TupleQueryResultImpl(Arrays.asList("s"), new CloseableIteratorIteration<BindingSet, QueryEvaluationException>(recording(results)) {
+			@Override
+			protected void handleClose() throws QueryEvaluationException {
+				_closed = true;
+				super.handleClose();
+			}
+		});
+	}
+
+	/**
+	 * Creates graph results.
+	 *
+	 * @param count how many results.
+	 * @return the graph results.
+	 */
+	private GraphQueryResultImpl statements(final int count) {
+		final List<Statement> results = new ArrayList<Statement>();
+		for (int i = 0; i < count; i++) {
+			results.add(VALUE_FACTORY.createStatement(
+					VALUE_FACTORY.createURI("http://example.org/s" + i),
+					VALUE_FACTORY.createURI("http://example.org/p"),
+					VALUE_FACTORY.createLiteral(i)));
+		}
+		return new GraphQueryResultImpl(
+				Collections.<String, String> emptyMap(),
+				new CloseableIteratorIteration<Statement, QueryEvaluationException>(recording(results)));
+	}
+
+	/**
+	 * Returns an iterator over the given results, which records what has been sent before the second result is requested.
+	 *
+	 * @param results the results.
+	 * @param <E> the results type.
+	 * @return an iterator over the given results.
+	 */
+	private <E> Iterator<E> recording(final List<E> results) {
+		final Iterator<E> iterator = results.iterator();
+		return new Iterator<E>() {
+			private int _index;
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public E next() {
+				if (_index++ == 1) {
+					_sentBeforeSecondResult = sent();
+				}
+				return iterator.next();
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * Returns what has been sent on the output stream.
+	 *
+	 * @return what has been sent on the output stream.
+	 */
+	private String sent() {
+		return new String(_bytes.toByteArray(), UTF8);
+	}
+}
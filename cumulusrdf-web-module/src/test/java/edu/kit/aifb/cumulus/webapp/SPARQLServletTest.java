@@ -7,15 +7,19 @@ import static edu.kit.aifb.cumulus.WebTestUtils.tmpFile;
 import static edu.kit.aifb.cumulus.util.Util.*;
 
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.util.Arrays;
+import java.util.Collections;
 
 import javax.servlet.RequestDispatcher;
 import javax.servlet.ServletContext;
@@ -27,6 +31,11 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.model.vocabulary.XMLSchema;
+import org.openrdf.query.MalformedQueryException;
+import org.openrdf.query.Query;
 import org.openrdf.query.TupleQueryResult;
 import org.openrdf.query.resultio.BooleanQueryResultFormat;
 import org.openrdf.query.resultio.QueryResultIO;
@@ -52,6 +61,8 @@ import edu.kit.aifb.cumulus.webapp.HttpProtocol.Parameters;
  */
 public class SPARQLServletTest extends AbstractCumulusWebTest {
 
+	private static final ValueFactory VALUE_FACTORY = ValueFactoryImpl.getInstance();
+
 	/**
 	 * Setup fixture for all tests.
 	 * 
@@ -333,4 +344,52 @@ public class SPARQLServletTest extends AbstractCumulusWebTest {
 			}
 		}
 	}
+
+	/**
+	 * Request parameters prefixed with {@link Parameters#BINDING_PREFIX} must be bound to the query variables, as N-Triples values.
+	 * Other parameters must be ignored.
+	 * 
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void setBindings() throws Exception {
+		final HttpServletRequest request = mock(HttpServletRequest.class);
+		when(request.getMethod()).thenReturn(Methods.POST);
+		when(request.getParameterNames()).thenReturn(Collections.enumeration(Arrays.asList(
+				Parameters.QUERY, 
+				Parameters.BINDING_PREFIX, 
+				Parameters.BINDING_PREFIX + "s", 
+				Parameters.BINDING_PREFIX + "o")));
+		when(request.getParameter(Parameters.QUERY)).thenReturn("SELECT * WHERE { ?s ?p ?o }");
+		when(request.getParameter(Parameters.BINDING_PREFIX)).thenReturn("<http://example.org/ignored>");
+		when(request.getParameter(Parameters.BINDING_PREFIX + "s")).thenReturn("<http://example.org/s>");
+		when(request.getParameter(Parameters.BINDING_PREFIX + "o")).thenReturn("\"42\"^^<" + XMLSchema.INTEGER + ">");
+
+		final Query query = mock(Query.class);
+		_classUnderTest.setBindings(query, request, VALUE_FACTORY);
+
+		verify(query).setBinding("s", VALUE_FACTORY.createURI("http://example.org/s"));
+		verify(query).setBinding("o", VALUE_FACTORY.createLiteral("42", XMLSchema.INTEGER));
+		verifyNoMoreInteractions(query);
+	}
+
+	/**
+	 * A binding with an invalid N-Triples value must be rejected as a malformed query.
+	 * 
+	 * @throws Exception never, otherwise the test fails.
+	 */
+	@Test
+	public void setInvalidBindings() throws Exception {
+		final HttpServletRequest request = mock(HttpServletRequest.class);
+		when(request.getMethod()).thenReturn(Methods.POST);
+		when(request.getParameterNames()).thenReturn(Collections.enumeration(Arrays.asList(Parameters.BINDING_PREFIX + "s")));
+		when(request.getParameter(Parameters.BINDING_PREFIX + "s")).thenReturn("http://example.org/s");
+
+		try {
+			_classUnderTest.setBindings(mock(Query.class), request, VALUE_FACTORY);
+			fail();
+		} catch (final MalformedQueryException expected) {
+			// Nothing, this is the expected behaviour
+		}
+	}
 }
\ No newline at end of file